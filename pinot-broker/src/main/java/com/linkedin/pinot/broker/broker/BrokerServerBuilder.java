@@ -18,10 +18,12 @@ package com.linkedin.pinot.broker.broker;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.broker.broker.helix.LiveInstancesChangeListenerImpl;
 import com.linkedin.pinot.broker.pruner.SegmentZKMetadataPrunerService;
+import com.linkedin.pinot.broker.requesthandler.BrokerHedgingPolicy;
 import com.linkedin.pinot.broker.requesthandler.BrokerRequestHandler;
 import com.linkedin.pinot.broker.routing.CfgBasedRouting;
 import com.linkedin.pinot.broker.routing.HelixExternalViewBasedRouting;
 import com.linkedin.pinot.broker.routing.RoutingTable;
+import com.linkedin.pinot.broker.routing.ServerLatencyTracker;
 import com.linkedin.pinot.broker.routing.TimeBoundaryService;
 import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
@@ -31,8 +33,10 @@ import com.linkedin.pinot.common.response.BrokerResponseFactory;
 import com.linkedin.pinot.core.query.reduce.BrokerReduceService;
 import com.linkedin.pinot.transport.conf.TransportClientConf;
 import com.linkedin.pinot.transport.conf.TransportClientConf.RoutingMode;
+import com.linkedin.pinot.transport.conf.TransportClientConf.TransportMode;
 import com.linkedin.pinot.transport.config.ConnectionPoolConfig;
 import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import com.linkedin.pinot.transport.netty.MultiplexedNettyClientManager;
 import com.linkedin.pinot.transport.netty.PooledNettyClientResourceManager;
 import com.linkedin.pinot.transport.pool.KeyedPool;
 import com.linkedin.pinot.transport.pool.KeyedPoolImpl;
@@ -56,26 +60,37 @@ public class BrokerServerBuilder {
   private static final String TRANSPORT_CONFIG_PREFIX = "pinot.broker.transport";
   private static final String CLIENT_CONFIG_PREFIX = "pinot.broker.client";
   private static final String METRICS_CONFIG_PREFIX = "pinot.broker.metrics";
+  private static final String HEDGING_CONFIG_PREFIX = "pinot.broker.hedging";
   private static final long DEFAULT_BROKER_DELAY_SHUTDOWN_TIME_MS = 10 * 1000L;
   private static final String BROKER_DELAY_SHUTDOWN_TIME_CONFIG = "pinot.broker.delayShutdownTimeMs";
   private static final String PINOT_BROKER_TABLE_LEVEL_METRICS = "pinot.broker.enableTableLevelMetrics";
   private static final String PINOT_BROKER_TABLE_LEVEL_METRICS_LIST = "pinot.broker.tablelevel.metrics.whitelist";
   private static final String BROKER_SEGMENT_PRUNERS = "pinot.broker.segment.pruners";
   private static final String[] DEFAULT_BROKER_SEGMENT_PRUNERS = {};
+  // Streaming reduce: deserialize and reduce server responses on a worker pool as they arrive
+  private static final String BROKER_REDUCE_STREAMING_CONFIG = "pinot.broker.reduce.streaming";
+  private static final boolean DEFAULT_BROKER_REDUCE_STREAMING = false;
+  private static final String BROKER_REDUCE_THREADS_CONFIG = "pinot.broker.reduce.threads";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerServerBuilder.class);
   // Connection Pool Related
   private KeyedPool<PooledNettyClientResourceManager.PooledClientConnection> _connPool;
   private ScheduledThreadPoolExecutor _poolTimeoutExecutor;
   private ExecutorService _requestSenderPool;
+  // Only set when streaming reduce is enabled
+  private ExecutorService _reduceExecutor;
 
   // Netty Specific
   private EventLoopGroup _eventLoopGroup;
   private PooledNettyClientResourceManager _resourceManager;
+  // Only set in multiplexed transport mode
+  private MultiplexedNettyClientManager _multiplexedClientManager;
 
   private TimeBoundaryService _timeBoundaryService;
 
   private RoutingTable _routingTable;
+  // Only set with Helix based routing
+  private ServerLatencyTracker _serverLatencyTracker;
 
   private ScatterGather _scatterGather;
 
@@ -110,6 +125,9 @@ public class BrokerServerBuilder {
       delayedShutdownTimeMs = _config.getLong(BROKER_DELAY_SHUTDOWN_TIME_CONFIG, DEFAULT_BROKER_DELAY_SHUTDOWN_TIME_MS);
     }
     _routingTable = helixExternalViewBasedRouting;
+    if (helixExternalViewBasedRouting != null) {
+      _serverLatencyTracker = helixExternalViewBasedRouting.getServerLatencyTracker();
+    }
     _timeBoundaryService = timeBoundaryService;
     this.listener = listener;
   }
@@ -154,12 +172,30 @@ public class BrokerServerBuilder {
       final CfgBasedRouting rt = new CfgBasedRouting();
       rt.init(conf.getCfgBasedRouting());
       _routingTable = rt;
+      _serverLatencyTracker = null;
     } else {
       // Helix based routing is already initialized.
     }
 
     // Setup ScatterGather
-    _scatterGather = new ScatterGatherImpl(_connPool, _requestSenderPool);
+    ScatterGatherImpl scatterGather;
+    if (conf.getTransportMode() == TransportMode.MULTIPLEXED) {
+      LOGGER.info("Using multiplexed connections to servers");
+      _multiplexedClientManager =
+          new MultiplexedNettyClientManager(_eventLoopGroup, new HashedWheelTimer(), clientMetrics,
+              conf.getMultiplexed());
+      scatterGather = new ScatterGatherImpl(_multiplexedClientManager, _requestSenderPool);
+    } else {
+      scatterGather = new ScatterGatherImpl(_connPool, _requestSenderPool);
+    }
+    Configuration hedgingConfig = _config.subset(HEDGING_CONFIG_PREFIX);
+    if (hedgingConfig.getBoolean(BrokerHedgingPolicy.ENABLE_CONFIG, BrokerHedgingPolicy.DEFAULT_ENABLE)) {
+      LOGGER.info("Enabling hedged requests to servers");
+      scatterGather.setHedgingPolicy(
+          new BrokerHedgingPolicy(hedgingConfig, _routingTable, _serverLatencyTracker, _brokerMetrics),
+          _poolTimeoutExecutor);
+    }
+    _scatterGather = scatterGather;
 
     // Setup the broker pruner service
     String[] prunerNames = _config.getStringArray(BROKER_SEGMENT_PRUNERS);
@@ -170,8 +206,14 @@ public class BrokerServerBuilder {
 
     // Setup Broker Request Handler
     ReduceServiceRegistry reduceServiceRegistry = buildReduceServiceRegistry();
-    _requestHandler = new BrokerRequestHandler(_routingTable, _timeBoundaryService, _scatterGather,
-        reduceServiceRegistry, _brokerPrunerService, _brokerMetrics, _config);
+    if (_config.getBoolean(BROKER_REDUCE_STREAMING_CONFIG, DEFAULT_BROKER_REDUCE_STREAMING)) {
+      int numReduceThreads =
+          _config.getInt(BROKER_REDUCE_THREADS_CONFIG, Runtime.getRuntime().availableProcessors());
+      LOGGER.info("Reducing server responses as they arrive with {} threads", numReduceThreads);
+      _reduceExecutor = Executors.newFixedThreadPool(numReduceThreads);
+    }
+    _requestHandler = new BrokerRequestHandler(_routingTable, _serverLatencyTracker, _timeBoundaryService,
+        _scatterGather, reduceServiceRegistry, _reduceExecutor, _brokerPrunerService, _brokerMetrics, _config);
 
     LOGGER.info("Network initialized !!");
   }
@@ -228,10 +270,16 @@ public class BrokerServerBuilder {
     }
     _state.set(State.SHUTTING_DOWN);
     _connPool.shutdown();
+    if (_multiplexedClientManager != null) {
+      _multiplexedClientManager.shutdown();
+    }
     _eventLoopGroup.shutdownGracefully();
     _routingTable.shutdown();
     _poolTimeoutExecutor.shutdown();
     _requestSenderPool.shutdown();
+    if (_reduceExecutor != null) {
+      _reduceExecutor.shutdown();
+    }
     _state.set(State.SHUTDOWN);
     LOGGER.info("Network shutdown!!");
 
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.linkedin.pinot.broker.routing.RoutingTable;
+import com.linkedin.pinot.broker.routing.ServerLatencyTracker;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.scattergather.HedgingPolicy;
+import com.linkedin.pinot.transport.scattergather.ScatterGatherRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.configuration.Configuration;
+
+
+/**
+ * The <code>BrokerHedgingPolicy</code> class decides when and where the broker hedges the requests to slow servers.
+ * <p>The hedge delay of a table is a percentile of its recent server latencies, so that only the slowest requests are
+ * hedged. The alternate server must serve all the segments queried on the slow server; if several replicas qualify,
+ * the one with the lowest {@link ServerLatencyTracker} score is picked.
+ * <p>To cap the extra load, every successful response adds a fraction of a token to a budget shared by all tables, and
+ * every hedged request takes a whole token once it got sent. The hedged requests are also tracked as in flight in the
+ * {@link ServerLatencyTracker}, so that the alternate server selection sees the load they add.
+ */
+@ThreadSafe
+public class BrokerHedgingPolicy implements HedgingPolicy {
+  public static final String ENABLE_CONFIG = "enabled";
+  public static final boolean DEFAULT_ENABLE = false;
+  public static final String PERCENTILE_CONFIG = "percentile";
+  public static final double DEFAULT_PERCENTILE = 95.0;
+  public static final String MIN_DELAY_MS_CONFIG = "minDelayMs";
+  public static final long DEFAULT_MIN_DELAY_MS = 10L;
+  public static final String MIN_SAMPLES_CONFIG = "minSamples";
+  public static final int DEFAULT_MIN_SAMPLES = 100;
+  public static final String BUDGET_RATIO_CONFIG = "budgetRatio";
+  public static final double DEFAULT_BUDGET_RATIO = 0.05;
+  public static final String MAX_BUDGET_CONFIG = "maxBudget";
+  public static final double DEFAULT_MAX_BUDGET = 20.0;
+
+  // Number of latency samples kept for each table
+  private static final int NUM_SAMPLES = 1024;
+  // Minimum interval between two computations of the hedge delay of a table
+  private static final long DELAY_REFRESH_INTERVAL_MS = 1000L;
+
+  private final RoutingTable _routingTable;
+  private final ServerLatencyTracker _serverLatencyTracker;
+  private final BrokerMetrics _brokerMetrics;
+  private final double _percentile;
+  private final long _minDelayMs;
+  private final int _minSamples;
+  private final double _budgetRatio;
+  private final double _maxBudget;
+  private final ConcurrentHashMap<String, LatencyStats> _tableLatencyStats = new ConcurrentHashMap<>();
+
+  // Guarded by this
+  private double _budget;
+
+  /**
+   * Constructor for the broker hedging policy.
+   *
+   * @param hedgingConfig Hedging configuration.
+   * @param routingTable Routing table to find the alternate servers.
+   * @param serverLatencyTracker Optional server latency tracker to pick the best alternate server.
+   * @param brokerMetrics Broker metrics to report the exhausted hedging budget.
+   */
+  public BrokerHedgingPolicy(@Nonnull Configuration hedgingConfig, @Nonnull RoutingTable routingTable,
+      @Nullable ServerLatencyTracker serverLatencyTracker, @Nonnull BrokerMetrics brokerMetrics) {
+    _routingTable = routingTable;
+    _serverLatencyTracker = serverLatencyTracker;
+    _brokerMetrics = brokerMetrics;
+    _percentile = hedgingConfig.getDouble(PERCENTILE_CONFIG, DEFAULT_PERCENTILE);
+    if (_percentile <= 0.0 || _percentile > 100.0) {
+      throw new IllegalArgumentException("Hedging percentile must be in (0, 100], got: " + _percentile);
+    }
+    _minDelayMs = hedgingConfig.getLong(MIN_DELAY_MS_CONFIG, DEFAULT_MIN_DELAY_MS);
+    _minSamples = Math.max(1, hedgingConfig.getInt(MIN_SAMPLES_CONFIG, DEFAULT_MIN_SAMPLES));
+    _budgetRatio = hedgingConfig.getDouble(BUDGET_RATIO_CONFIG, DEFAULT_BUDGET_RATIO);
+    _maxBudget = hedgingConfig.getDouble(MAX_BUDGET_CONFIG, DEFAULT_MAX_BUDGET);
+  }
+
+  @Override
+  public long getHedgeDelayMs(@Nonnull ScatterGatherRequest request) {
+    LatencyStats latencyStats = _tableLatencyStats.get(getTableName(request));
+    if (latencyStats == null) {
+      return -1L;
+    }
+    return latencyStats.getHedgeDelayMs(System.currentTimeMillis());
+  }
+
+  @Nullable
+  @Override
+  public ServerInstance selectHedgeServer(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance server,
+      @Nonnull SegmentIdSet segmentIds) {
+    List<ServerInstance> alternateServers =
+        _routingTable.findAlternateServers(getTableName(request), server, segmentIds);
+    if (alternateServers.isEmpty()) {
+      return null;
+    }
+    if (!hasToken()) {
+      _brokerMetrics.addMeteredQueryValue(request.getBrokerRequest(), BrokerMeter.HEDGING_BUDGET_EXHAUSTED, 1);
+      return null;
+    }
+
+    ServerInstance hedgeServer = alternateServers.get(0);
+    if (_serverLatencyTracker != null) {
+      double minScore = _serverLatencyTracker.getScore(hedgeServer);
+      for (int i = 1; i < alternateServers.size(); i++) {
+        ServerInstance alternateServer = alternateServers.get(i);
+        double score = _serverLatencyTracker.getScore(alternateServer);
+        if (score < minScore) {
+          hedgeServer = alternateServer;
+          minScore = score;
+        }
+      }
+    }
+    return hedgeServer;
+  }
+
+  @Override
+  public void onHedgeSent(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer) {
+    // Concurrent hedges may all pass the check of the budget, which then goes slightly negative until it is refilled
+    synchronized (this) {
+      _budget -= 1.0;
+    }
+    if (_serverLatencyTracker != null) {
+      _serverLatencyTracker.requestsSent(Collections.singletonList(hedgeServer));
+    }
+  }
+
+  @Override
+  public void onHedgeCompleted(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer,
+      long latencyMs, @Nullable Throwable error) {
+    if (_serverLatencyTracker != null) {
+      Map<ServerInstance, Throwable> errors = (error != null) ? Collections.singletonMap(hedgeServer, error)
+          : Collections.<ServerInstance, Throwable>emptyMap();
+      _serverLatencyTracker.responsesReceived(Collections.singletonList(hedgeServer),
+          Collections.singletonMap(hedgeServer, latencyMs), errors);
+    }
+  }
+
+  @Override
+  public void onHedgeCancelled(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer) {
+    // Only no longer in flight, without any latency sample
+    if (_serverLatencyTracker != null) {
+      _serverLatencyTracker.responsesReceived(Collections.singletonList(hedgeServer),
+          Collections.<ServerInstance, Long>emptyMap(), Collections.<ServerInstance, Throwable>emptyMap());
+    }
+  }
+
+  @Override
+  public void onRequestCompleted(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance server,
+      long latencyMs) {
+    String tableName = getTableName(request);
+    LatencyStats latencyStats = _tableLatencyStats.get(tableName);
+    if (latencyStats == null) {
+      LatencyStats newLatencyStats = new LatencyStats();
+      latencyStats = _tableLatencyStats.putIfAbsent(tableName, newLatencyStats);
+      if (latencyStats == null) {
+        latencyStats = newLatencyStats;
+      }
+    }
+    latencyStats.addSample(latencyMs);
+
+    synchronized (this) {
+      _budget = Math.min(_maxBudget, _budget + _budgetRatio);
+    }
+  }
+
+  private synchronized boolean hasToken() {
+    return _budget >= 1.0;
+  }
+
+  private static String getTableName(ScatterGatherRequest request) {
+    BrokerRequest brokerRequest = request.getBrokerRequest();
+    return brokerRequest.getQuerySource().getTableName();
+  }
+
+  /**
+   * Latest latency samples of a table.
+   */
+  private class LatencyStats {
+    private final long[] _samples = new long[NUM_SAMPLES];
+    private long _numSamples = 0L;
+    private long _hedgeDelayMs = -1L;
+    private long _lastComputeTimeMs = 0L;
+
+    private synchronized void addSample(long latencyMs) {
+      _samples[(int) (_numSamples++ % NUM_SAMPLES)] = latencyMs;
+    }
+
+    private synchronized long getHedgeDelayMs(long currentTimeMs) {
+      if (_numSamples < _minSamples) {
+        return -1L;
+      }
+      if (currentTimeMs - _lastComputeTimeMs >= DELAY_REFRESH_INTERVAL_MS) {
+        int numSamples = (int) Math.min(_numSamples, NUM_SAMPLES);
+        long[] sortedSamples = Arrays.copyOf(_samples, numSamples);
+        Arrays.sort(sortedSamples);
+        int index = Math.max(0, (int) Math.ceil(_percentile / 100.0 * numSamples) - 1);
+        _hedgeDelayMs = Math.max(_minDelayMs, sortedSamples[index]);
+        _lastComputeTimeMs = currentTimeMs;
+      }
+      return _hedgeDelayMs;
+    }
+  }
+}
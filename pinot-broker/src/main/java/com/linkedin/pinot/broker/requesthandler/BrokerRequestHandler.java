@@ -16,9 +16,11 @@
 package com.linkedin.pinot.broker.requesthandler;
 
 import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
 import com.linkedin.pinot.broker.pruner.SegmentZKMetadataPrunerService;
 import com.linkedin.pinot.broker.routing.RoutingTable;
 import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.broker.routing.ServerLatencyTracker;
 import com.linkedin.pinot.broker.routing.TimeBoundaryService;
 import com.linkedin.pinot.broker.routing.TimeBoundaryService.TimeBoundaryInfo;
 import com.linkedin.pinot.common.config.TableNameBuilder;
@@ -26,6 +28,8 @@ import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.metrics.BrokerQueryPhase;
+import com.linkedin.pinot.common.query.IncrementalReduceService;
+import com.linkedin.pinot.common.query.IncrementalReducer;
 import com.linkedin.pinot.common.query.ReduceService;
 import com.linkedin.pinot.common.query.ReduceServiceRegistry;
 import com.linkedin.pinot.common.request.BrokerRequest;
@@ -58,6 +62,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
@@ -84,6 +92,13 @@ public class BrokerRequestHandler {
   private static final String BROKER_QUERY_RESPONSE_LIMIT_CONFIG = "pinot.broker.query.response.limit";
   private static final String BROKER_QUERY_SPLIT_IN_CLAUSE = "pinot.broker.query.split.in.clause";
   private static final String BROKER_QUERY_LOG_LENGTH = "pinot.broker.query.log.length";
+  private static final String BROKER_DATA_TABLE_VERSION_CONFIG = "pinot.broker.data.table.version";
+  private static final String BROKER_RESULT_CACHE_SIZE_CONFIG = "pinot.broker.result.cache.size.bytes";
+  private static final String BROKER_RESULT_CACHE_EXPIRATION_TIME_CONFIG = "pinot.broker.result.cache.expiration.ms";
+  private static final long DEFAULT_BROKER_RESULT_CACHE_SIZE = 0L;
+  private static final long DEFAULT_BROKER_RESULT_CACHE_EXPIRATION_TIME_MS = 5 * 60 * 1000L;
+  private static final String BROKER_COMPILED_QUERY_CACHE_SIZE_CONFIG = "pinot.broker.query.compiled.cache.size";
+  private static final long DEFAULT_BROKER_COMPILED_QUERY_CACHE_SIZE = 0L;
   public static final long DEFAULT_BROKER_TIME_OUT_MS = 10 * 1000L;
   private static final String BROKER_TIME_OUT_CONFIG = "pinot.broker.timeoutMs";
   private static final String DEFAULT_BROKER_ID;
@@ -94,6 +109,9 @@ public class BrokerRequestHandler {
   private final SegmentZKMetadataPrunerService _segmentPrunerService;
   private final boolean _splitInClause;
   private final int _queryLogLength;
+  private final int _dataTableVersion;
+  private final BrokerResultCache _resultCache;
+  private final CompiledQueryCache _compiledQueryCache;
 
   static {
     String defaultBrokerId = "";
@@ -106,8 +124,10 @@ public class BrokerRequestHandler {
   }
 
   private final RoutingTable _routingTable;
+  private final ServerLatencyTracker _serverLatencyTracker;
   private final ScatterGather _scatterGatherer;
   private final ReduceServiceRegistry _reduceServiceRegistry;
+  private final ExecutorService _reduceExecutor;
   private final BrokerMetrics _brokerMetrics;
   private final TimeBoundaryService _timeBoundaryService;
   private final long _brokerTimeOutMs;
@@ -116,12 +136,15 @@ public class BrokerRequestHandler {
   private final AtomicLong _requestIdGenerator;
   private final String _brokerId;
 
-  public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
-      ScatterGather scatterGatherer, ReduceServiceRegistry reduceServiceRegistry,
+  public BrokerRequestHandler(RoutingTable table, @Nullable ServerLatencyTracker serverLatencyTracker,
+      TimeBoundaryService timeBoundaryService, ScatterGather scatterGatherer,
+      ReduceServiceRegistry reduceServiceRegistry, @Nullable ExecutorService reduceExecutor,
       SegmentZKMetadataPrunerService segmentPrunerService, BrokerMetrics brokerMetrics, Configuration config) {
     _routingTable = table;
+    _serverLatencyTracker = serverLatencyTracker;
     _timeBoundaryService = timeBoundaryService;
     _reduceServiceRegistry = reduceServiceRegistry;
+    _reduceExecutor = reduceExecutor;
     _scatterGatherer = scatterGatherer;
     _brokerMetrics = brokerMetrics;
     _optimizer = new BrokerRequestOptimizer();
@@ -129,13 +152,34 @@ public class BrokerRequestHandler {
     _queryResponseLimit = config.getInt(BROKER_QUERY_RESPONSE_LIMIT_CONFIG, DEFAULT_BROKER_QUERY_RESPONSE_LIMIT);
     _splitInClause = config.getBoolean(BROKER_QUERY_SPLIT_IN_CLAUSE, DEFAULT_BROKER_QUERY_SPLIT_IN_CLAUSE);
     _queryLogLength = config.getInt(BROKER_QUERY_LOG_LENGTH, DEFAULT_QUERY_LOG_LENGTH);
+    _dataTableVersion = config.getInt(BROKER_DATA_TABLE_VERSION_CONFIG, DataTableFactory.MAX_SUPPORTED_VERSION);
     _brokerTimeOutMs = config.getLong(BROKER_TIME_OUT_CONFIG, DEFAULT_BROKER_TIME_OUT_MS);
     _brokerId = config.getString(BROKER_ID_CONFIG_KEY, DEFAULT_BROKER_ID);
     _segmentPrunerService = segmentPrunerService;
+    long resultCacheSize = config.getLong(BROKER_RESULT_CACHE_SIZE_CONFIG, DEFAULT_BROKER_RESULT_CACHE_SIZE);
+    if (resultCacheSize > 0) {
+      _resultCache = new BrokerResultCache(table, resultCacheSize,
+          config.getLong(BROKER_RESULT_CACHE_EXPIRATION_TIME_CONFIG, DEFAULT_BROKER_RESULT_CACHE_EXPIRATION_TIME_MS),
+          brokerMetrics);
+    } else {
+      _resultCache = null;
+    }
+    long compiledQueryCacheSize =
+        config.getLong(BROKER_COMPILED_QUERY_CACHE_SIZE_CONFIG, DEFAULT_BROKER_COMPILED_QUERY_CACHE_SIZE);
+    if (compiledQueryCacheSize > 0) {
+      _compiledQueryCache =
+          new CompiledQueryCache(REQUEST_COMPILER, _splitInClause, compiledQueryCacheSize, brokerMetrics);
+    } else {
+      _compiledQueryCache = null;
+    }
 
     LOGGER.info("Broker response limit is: " + _queryResponseLimit);
     LOGGER.info("Broker timeout is - " + _brokerTimeOutMs + " ms");
     LOGGER.info("Broker id: " + _brokerId);
+    LOGGER.info("Broker data table version: {}", _dataTableVersion);
+    LOGGER.info("Broker result cache size: {} bytes", resultCacheSize);
+    LOGGER.info("Broker compiled query cache size: {} entries", compiledQueryCacheSize);
+    LOGGER.info("Broker streaming reduce: {}", reduceExecutor != null);
   }
 
   /**
@@ -169,7 +213,11 @@ public class BrokerRequestHandler {
     long compilationStartTime = System.nanoTime();
     BrokerRequest brokerRequest;
     try {
-      brokerRequest = REQUEST_COMPILER.compileToBrokerRequest(pql, _splitInClause);
+      if (_compiledQueryCache != null) {
+        brokerRequest = _compiledQueryCache.compile(pql);
+      } else {
+        brokerRequest = REQUEST_COMPILER.compileToBrokerRequest(pql, _splitInClause);
+      }
     } catch (Exception e) {
       LOGGER.info("Parsing error on requestId {}: {}, {}", requestId, pql, e.getMessage());
       _brokerMetrics.addMeteredGlobalValue(BrokerMeter.REQUEST_COMPILATION_EXCEPTIONS, 1L);
@@ -227,6 +275,9 @@ public class BrokerRequestHandler {
     if (debugOptions != null) {
       brokerRequest.setDebugOptions(debugOptions);
     }
+    if (_dataTableVersion > DataTableFactory.VERSION_2) {
+      DataTableFactory.setRequestedVersion(brokerRequest, _dataTableVersion);
+    }
     brokerRequest.setResponseFormat(ResponseType.BROKER_RESPONSE_TYPE_NATIVE.name());
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.REQUEST_COMPILATION,
         System.nanoTime() - compilationStartTime);
@@ -247,10 +298,12 @@ public class BrokerRequestHandler {
     LOGGER.debug("Broker Response: {}", brokerResponse);
     // Table name might have been changed (with suffix _OFFLINE/_REALTIME appended).
     LOGGER.info("RequestId: {}, table: {}, totalTimeMs: {}, numDocsScanned: {}, numEntriesScannedInFilter: {}, "
-            + "numEntriesScannedPostFilter: {}, totalDocs: {}, scatterGatherStats: {}, query: {}", requestId,
-        brokerRequest.getQuerySource().getTableName(), totalTimeMs, brokerResponse.getNumDocsScanned(),
-        brokerResponse.getNumEntriesScannedInFilter(), brokerResponse.getNumEntriesScannedPostFilter(),
-        brokerResponse.getTotalDocs(), scatterGatherStats, StringUtils.substring(pql, 0, _queryLogLength));
+            + "numEntriesScannedPostFilter: {}, totalDocs: {}, threadCpuTimeNs: {}, allocatedBytes: {}, "
+            + "scatterGatherStats: {}, query: {}", requestId, brokerRequest.getQuerySource().getTableName(),
+        totalTimeMs, brokerResponse.getNumDocsScanned(), brokerResponse.getNumEntriesScannedInFilter(),
+        brokerResponse.getNumEntriesScannedPostFilter(), brokerResponse.getTotalDocs(),
+        brokerResponse.getThreadCpuTimeNs(), brokerResponse.getAllocatedBytes(), scatterGatherStats,
+        StringUtils.substring(pql, 0, _queryLogLength));
 
     return brokerResponse;
   }
@@ -437,6 +490,10 @@ public class BrokerRequestHandler {
 
   /**
    * Process the optimized broker requests for both OFFLINE and REALTIME table.
+   * <p>When the broker result cache is enabled, the server responses for the OFFLINE table are served from the cache
+   * if the routing table of the OFFLINE table did not change, and only the REALTIME table is queried.
+   * <p>When streaming reduce is enabled, each server response is deserialized and reduced on the reduce executor as
+   * soon as it arrives, instead of after all servers responded.
    *
    * @param originalBrokerRequest original broker request.
    * @param offlineBrokerRequest broker request for OFFLINE table.
@@ -458,23 +515,53 @@ public class BrokerRequestHandler {
     // Step 1: find the candidate servers to be queried for each set of segments from the routing table.
     // Step 2: select servers for each segment set and scatter request to the servers.
     String offlineTableName = null;
+    BrokerResultCache.Key offlineResultCacheKey = null;
+    Map<ServerInstance, DataTable> cachedOfflineDataTableMap = null;
     CompositeFuture<ByteBuf> offlineCompositeFuture = null;
+    List<ServerInstance> offlineServers = new ArrayList<>();
     if (offlineBrokerRequest != null) {
       offlineTableName = offlineBrokerRequest.getQuerySource().getTableName();
-      offlineCompositeFuture =
-          routeAndScatterBrokerRequest(offlineBrokerRequest, phaseTimes, scatterGatherStats, true, requestId);
+      if (_resultCache != null) {
+        // Look up the routing table version before routing, so that responses computed against a newer routing table
+        // are never cached under an older version.
+        offlineResultCacheKey = _resultCache.getKey(offlineBrokerRequest);
+        if (offlineResultCacheKey != null) {
+          cachedOfflineDataTableMap = _resultCache.get(offlineResultCacheKey);
+        }
+      }
+      if (cachedOfflineDataTableMap == null) {
+        offlineCompositeFuture =
+            routeAndScatterBrokerRequest(offlineBrokerRequest, phaseTimes, scatterGatherStats, true, requestId,
+                offlineServers);
+      }
     }
     String realtimeTableName = null;
     CompositeFuture<ByteBuf> realtimeCompositeFuture = null;
+    List<ServerInstance> realtimeServers = new ArrayList<>();
     if (realtimeBrokerRequest != null) {
       realtimeTableName = realtimeBrokerRequest.getQuerySource().getTableName();
       realtimeCompositeFuture =
-          routeAndScatterBrokerRequest(realtimeBrokerRequest, phaseTimes, scatterGatherStats, false, requestId);
+          routeAndScatterBrokerRequest(realtimeBrokerRequest, phaseTimes, scatterGatherStats, false, requestId,
+              realtimeServers);
     }
-    if ((offlineCompositeFuture == null) && (realtimeCompositeFuture == null)) {
+    if ((offlineCompositeFuture == null) && (realtimeCompositeFuture == null) && (cachedOfflineDataTableMap == null)) {
       // No server found in either OFFLINE or REALTIME table.
       return BrokerResponseFactory.getStaticEmptyBrokerResponse(serverResponseType);
     }
+    StreamingReduce streamingReduce = null;
+    if ((_reduceExecutor != null) && (reduceService instanceof IncrementalReduceService)) {
+      streamingReduce = new StreamingReduce(
+          ((IncrementalReduceService<?>) reduceService).newReducer(originalBrokerRequest, _brokerMetrics));
+      if (cachedOfflineDataTableMap != null) {
+        streamingReduce.reduce(cachedOfflineDataTableMap);
+      }
+      if (offlineCompositeFuture != null) {
+        streamingReduce.reduceOnArrival(offlineCompositeFuture, true, offlineTableName);
+      }
+      if (realtimeCompositeFuture != null) {
+        streamingReduce.reduceOnArrival(realtimeCompositeFuture, false, realtimeTableName);
+      }
+    }
 
     // Step 3: gather response from the servers.
     int numServersQueried = 0;
@@ -485,41 +572,81 @@ public class BrokerRequestHandler {
     if (offlineCompositeFuture != null) {
       numServersQueried += offlineCompositeFuture.getNumFutures();
       offlineServerResponseMap =
-          gatherServerResponses(offlineCompositeFuture, scatterGatherStats, true, offlineTableName,
+          gatherServerResponses(offlineCompositeFuture, offlineServers, scatterGatherStats, true, offlineTableName,
               processingExceptions);
     }
     if (realtimeCompositeFuture != null) {
       numServersQueried += realtimeCompositeFuture.getNumFutures();
       realtimeServerResponseMap =
-          gatherServerResponses(realtimeCompositeFuture, scatterGatherStats, false, realtimeTableName,
-              processingExceptions);
+          gatherServerResponses(realtimeCompositeFuture, realtimeServers, scatterGatherStats, false,
+              realtimeTableName, processingExceptions);
     }
     phaseTimes.addToGatherTime(System.nanoTime() - gatherStartTime);
-    if ((offlineServerResponseMap == null) && (realtimeServerResponseMap == null)) {
+    if ((offlineServerResponseMap == null) && (realtimeServerResponseMap == null)
+        && (cachedOfflineDataTableMap == null)) {
       // No response gathered.
       return BrokerResponseFactory.getBrokerResponseWithExceptions(serverResponseType, processingExceptions);
     }
 
-    //Step 4: deserialize the server responses.
     int numServersResponded = 0;
-    long deserializationStartTime = System.nanoTime();
-    Map<ServerInstance, DataTable> dataTableMap = new HashMap<>();
-    if (offlineServerResponseMap != null) {
-      numServersResponded += offlineServerResponseMap.size();
-      deserializeServerResponses(offlineServerResponseMap, true, dataTableMap, offlineTableName, processingExceptions);
-    }
-    if (realtimeServerResponseMap != null) {
-      numServersResponded += realtimeServerResponseMap.size();
-      deserializeServerResponses(realtimeServerResponseMap, false, dataTableMap, realtimeTableName,
-          processingExceptions);
-    }
-    phaseTimes.addToDeserializationTime(System.nanoTime() - deserializationStartTime);
+    BrokerResponse brokerResponse;
+    if (streamingReduce != null) {
+      // Step 4 and 5: the server responses got deserialized and reduced as they arrived, wait for the pending ones and
+      // create a broker response to be returned.
+      if (cachedOfflineDataTableMap != null) {
+        int numCachedServerResponses = cachedOfflineDataTableMap.size();
+        numServersQueried += numCachedServerResponses;
+        numServersResponded += numCachedServerResponses;
+      }
+      if (offlineServerResponseMap != null) {
+        numServersResponded += offlineServerResponseMap.size();
+      }
+      if (realtimeServerResponseMap != null) {
+        numServersResponded += realtimeServerResponseMap.size();
+      }
+      brokerResponse = streamingReduce.getBrokerResponse(processingExceptions, phaseTimes);
+      // Only cache complete responses.
+      Map<ServerInstance, DataTable> offlineDataTableMap = streamingReduce.getOfflineDataTableMap();
+      if (offlineResultCacheKey != null && offlineServerResponseMap != null
+          && offlineDataTableMap.size() == offlineCompositeFuture.getNumFutures()) {
+        _resultCache.put(offlineResultCacheKey, offlineDataTableMap);
+      }
+    } else {
+      //Step 4: deserialize the server responses.
+      long deserializationStartTime = System.nanoTime();
+      Map<ServerInstance, DataTable> dataTableMap = new HashMap<>();
+      if (cachedOfflineDataTableMap != null) {
+        int numCachedServerResponses = cachedOfflineDataTableMap.size();
+        numServersQueried += numCachedServerResponses;
+        numServersResponded += numCachedServerResponses;
+        dataTableMap.putAll(cachedOfflineDataTableMap);
+      }
+      if (offlineServerResponseMap != null) {
+        int numOfflineServersResponded = offlineServerResponseMap.size();
+        numServersResponded += numOfflineServersResponded;
+        int numProcessingExceptions = processingExceptions.size();
+        Map<ServerInstance, DataTable> offlineDataTableMap = new HashMap<>(numOfflineServersResponded);
+        deserializeServerResponses(offlineServerResponseMap, true, offlineDataTableMap, offlineTableName,
+            processingExceptions);
+        // Only cache complete responses.
+        if (offlineResultCacheKey != null && numOfflineServersResponded == offlineCompositeFuture.getNumFutures()
+            && processingExceptions.size() == numProcessingExceptions) {
+          _resultCache.put(offlineResultCacheKey, offlineDataTableMap);
+        }
+        dataTableMap.putAll(offlineDataTableMap);
+      }
+      if (realtimeServerResponseMap != null) {
+        numServersResponded += realtimeServerResponseMap.size();
+        deserializeServerResponses(realtimeServerResponseMap, false, dataTableMap, realtimeTableName,
+            processingExceptions);
+      }
+      phaseTimes.addToDeserializationTime(System.nanoTime() - deserializationStartTime);
 
-    // Step 5: reduce (merge) the server responses and create a broker response to be returned.
-    long reduceStartTime = System.nanoTime();
-    BrokerResponse brokerResponse =
-        reduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, _brokerMetrics);
-    phaseTimes.addToReduceTime(System.nanoTime() - reduceStartTime);
+      // Step 5: reduce (merge) the server responses and create a broker response to be returned.
+      long reduceStartTime = System.nanoTime();
+      brokerResponse = reduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, _brokerMetrics);
+      phaseTimes.addToReduceTime(System.nanoTime() - reduceStartTime);
+    }
 
     // Set processing exceptions and number of servers queried/responded.
     brokerResponse.setExceptions(processingExceptions);
@@ -541,14 +668,14 @@ public class BrokerRequestHandler {
   }
 
   /**
-   * Route and scatter the broker request.
+   * Route and scatter the broker request, append the servers the request is sent to to the server list passed in.
    *
    * @return composite future used to gather responses.
    */
   @Nullable
   private CompositeFuture<ByteBuf> routeAndScatterBrokerRequest(@Nonnull BrokerRequest brokerRequest,
       @Nonnull PhaseTimes phaseTimes, @Nonnull ScatterGatherStats scatterGatherStats, boolean isOfflineTable,
-      long requestId) throws InterruptedException {
+      long requestId, @Nonnull List<ServerInstance> servers) throws InterruptedException {
     // Step 1: find the candidate servers to be queried for each set of segments from the routing table.
     // TODO: add checks for whether all segments are covered.
     long routingStartTime = System.nanoTime();
@@ -567,6 +694,10 @@ public class BrokerRequestHandler {
         new ScatterGatherRequestImpl(brokerRequest, segmentServices, requestId, _brokerTimeOutMs, _brokerId);
     CompositeFuture<ByteBuf> compositeFuture =
         _scatterGatherer.scatterGather(scatterRequest, scatterGatherStats, isOfflineTable, _brokerMetrics);
+    servers.addAll(segmentServices.keySet());
+    if (_serverLatencyTracker != null) {
+      _serverLatencyTracker.requestsSent(servers);
+    }
     phaseTimes.addToScatterTime(System.nanoTime() - scatterStartTime);
     return compositeFuture;
   }
@@ -597,6 +728,7 @@ public class BrokerRequestHandler {
    * Gather responses from servers, append processing exceptions to the processing exception list passed in.
    *
    * @param compositeFuture composite future returned from scatter phase.
+   * @param servers servers the request is sent to in scatter phase.
    * @param scatterGatherStats scatter-gather statistics.
    * @param isOfflineTable whether the scatter-gather target is an OFFLINE table.
    * @param tableNameWithType table name with type suffix.
@@ -605,7 +737,7 @@ public class BrokerRequestHandler {
    */
   @Nullable
   private Map<ServerInstance, ByteBuf> gatherServerResponses(@Nonnull CompositeFuture<ByteBuf> compositeFuture,
-      @Nonnull ScatterGatherStats scatterGatherStats, boolean isOfflineTable, @Nonnull String tableNameWithType,
+      @Nonnull List<ServerInstance> servers, @Nonnull ScatterGatherStats scatterGatherStats, boolean isOfflineTable, @Nonnull String tableNameWithType,
       @Nonnull List<ProcessingException> processingExceptions) {
     try {
       Map<ServerInstance, ByteBuf> serverResponseMap = compositeFuture.get();
@@ -625,6 +757,11 @@ public class BrokerRequestHandler {
       _brokerMetrics.addMeteredTableValue(tableNameWithType, BrokerMeter.RESPONSE_FETCH_EXCEPTIONS, 1L);
       processingExceptions.add(QueryException.getException(QueryException.BROKER_GATHER_ERROR, e));
       return null;
+    } finally {
+      if (_serverLatencyTracker != null) {
+        _serverLatencyTracker.responsesReceived(servers, compositeFuture.getResponseTimes(),
+            compositeFuture.getError());
+      }
     }
   }
 
@@ -650,9 +787,8 @@ public class BrokerRequestHandler {
       }
       ByteBuf byteBuf = entry.getValue();
       try {
-        byte[] byteArray = new byte[byteBuf.readableBytes()];
-        byteBuf.readBytes(byteArray);
-        dataTableMap.put(serverInstance, DataTableFactory.getDataTable(byteArray));
+        // Read the data table from the response without copying it into a byte array.
+        dataTableMap.put(serverInstance, DataTableFactory.getDataTable(byteBuf.nioBuffer()));
       } catch (Exception e) {
         LOGGER.error("Caught exceptions while deserializing response for table: {} from server: {}", tableNameWithType,
             serverInstance, e);
@@ -662,6 +798,126 @@ public class BrokerRequestHandler {
     }
   }
 
+  /**
+   * Deserializes and reduces the server responses of one query on the reduce executor as they arrive, so that the
+   * reduce overlaps with waiting for the slower servers and the serialized responses need not be kept until the end.
+   */
+  private class StreamingReduce {
+    private final IncrementalReducer<? extends BrokerResponse> _reducer;
+    private final List<Future<?>> _tasks = new ArrayList<>();
+    private final List<ProcessingException> _processingExceptions =
+        Collections.synchronizedList(new ArrayList<ProcessingException>());
+    private final Map<ServerInstance, DataTable> _offlineDataTableMap = new ConcurrentHashMap<>();
+    private final AtomicLong _deserializationTime = new AtomicLong();
+    private final AtomicLong _reduceTime = new AtomicLong();
+    private boolean _closed = false;
+
+    private StreamingReduce(@Nonnull IncrementalReducer<? extends BrokerResponse> reducer) {
+      _reducer = reducer;
+    }
+
+    /**
+     * Reduce the data tables in the calling thread.
+     */
+    private void reduce(@Nonnull Map<ServerInstance, DataTable> dataTableMap) {
+      long reduceStartTime = System.nanoTime();
+      for (Entry<ServerInstance, DataTable> entry : dataTableMap.entrySet()) {
+        _reducer.reduce(entry.getKey(), entry.getValue());
+      }
+      _reduceTime.addAndGet(System.nanoTime() - reduceStartTime);
+    }
+
+    /**
+     * Submit each server response of the composite future to the reduce executor as soon as it arrives.
+     */
+    private void reduceOnArrival(@Nonnull CompositeFuture<ByteBuf> compositeFuture, final boolean isOfflineTable,
+        @Nonnull final String tableNameWithType) {
+      compositeFuture.setResponseListener(new CompositeFuture.ResponseListener<ByteBuf>() {
+        @Override
+        public void onResponse(final ServerInstance server, final ByteBuf response) {
+          // Empty responses are logged and dropped while gathering
+          if (response.readableBytes() == 0) {
+            return;
+          }
+          synchronized (_tasks) {
+            if (_closed) {
+              return;
+            }
+            _tasks.add(_reduceExecutor.submit(new Runnable() {
+              @Override
+              public void run() {
+                reduceServerResponse(server, response, isOfflineTable, tableNameWithType);
+              }
+            }));
+          }
+        }
+      });
+    }
+
+    private void reduceServerResponse(@Nonnull ServerInstance serverInstance, @Nonnull ByteBuf response,
+        boolean isOfflineTable, @Nonnull String tableNameWithType) {
+      // For hybrid use case, use response sequence to distinguish the responses from the same instance.
+      if (!isOfflineTable) {
+        serverInstance = serverInstance.withSeq(1);
+      }
+      long deserializationStartTime = System.nanoTime();
+      DataTable dataTable;
+      try {
+        dataTable = DataTableFactory.getDataTable(response.nioBuffer());
+      } catch (Exception e) {
+        LOGGER.error("Caught exceptions while deserializing response for table: {} from server: {}", tableNameWithType,
+            serverInstance, e);
+        _brokerMetrics.addMeteredTableValue(tableNameWithType, BrokerMeter.DATA_TABLE_DESERIALIZATION_EXCEPTIONS, 1L);
+        _processingExceptions.add(QueryException.getException(QueryException.DATA_TABLE_DESERIALIZATION_ERROR, e));
+        return;
+      } finally {
+        _deserializationTime.addAndGet(System.nanoTime() - deserializationStartTime);
+      }
+      if (isOfflineTable) {
+        _offlineDataTableMap.put(serverInstance, dataTable);
+      }
+      long reduceStartTime = System.nanoTime();
+      _reducer.reduce(serverInstance, dataTable);
+      _reduceTime.addAndGet(System.nanoTime() - reduceStartTime);
+    }
+
+    /**
+     * Wait for the submitted server responses to be reduced and create the broker response. Must be called after the
+     * server responses got gathered, so that every response has been submitted. Responses arriving later are ignored.
+     */
+    @Nonnull
+    private BrokerResponse getBrokerResponse(@Nonnull List<ProcessingException> processingExceptions,
+        @Nonnull PhaseTimes phaseTimes) throws InterruptedException {
+      List<Future<?>> tasks;
+      synchronized (_tasks) {
+        _closed = true;
+        tasks = new ArrayList<>(_tasks);
+      }
+      for (Future<?> task : tasks) {
+        try {
+          task.get();
+        } catch (ExecutionException e) {
+          throw Throwables.propagate(e.getCause());
+        }
+      }
+      processingExceptions.addAll(_processingExceptions);
+
+      long reduceStartTime = System.nanoTime();
+      BrokerResponse brokerResponse = _reducer.getBrokerResponse();
+      phaseTimes.addToDeserializationTime(_deserializationTime.get());
+      phaseTimes.addToReduceTime(_reduceTime.get() + System.nanoTime() - reduceStartTime);
+      return brokerResponse;
+    }
+
+    /**
+     * Get the deserialized data tables of the OFFLINE table server responses.
+     */
+    @Nonnull
+    private Map<ServerInstance, DataTable> getOfflineDataTableMap() {
+      return _offlineDataTableMap;
+    }
+  }
+
   /**
    * Container for time statistics in all phases.
    */
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.linkedin.pinot.broker.routing.RoutingTable;
+import com.linkedin.pinot.common.metrics.BrokerGauge;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.query.cache.QueryFingerprint;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>BrokerResultCache</code> class is a memory bounded, broker side cache of the server responses for the
+ * OFFLINE part of the queries.
+ * <p>Each entry is keyed by the OFFLINE table name, the version of its routing table and the {@link QueryFingerprint}
+ * of the optimized OFFLINE broker request, and holds the serialized data tables returned by the servers. Since the
+ * routing table version changes every time the external view of the table changes, entries computed against an older
+ * set of segments are never served. For hybrid tables, the time boundary is part of the OFFLINE broker request, so a
+ * moved time boundary never hits the entries of the old one, and the cached OFFLINE data tables can be reduced together
+ * with the fresh REALTIME data tables.
+ * <p>Segments refreshed in place do not change the external view, so entries also expire after a configurable time.
+ */
+@ThreadSafe
+public class BrokerResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BrokerResultCache.class);
+
+  // Do not cache responses that take more than this fraction of the cache, so that one large selection result cannot
+  // flush the whole cache.
+  private static final int MAX_ENTRY_SIZE_DIVISOR = 16;
+  // Estimated memory overhead of each cache entry (key, value and cache internals) besides the strings and bytes.
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 128;
+  private static final int SERVER_OVERHEAD_IN_BYTES = 64;
+
+  private final RoutingTable _routingTable;
+  private final BrokerMetrics _brokerMetrics;
+  private final Cache<Key, Entry> _cache;
+  private final long _maxEntrySizeInBytes;
+  private final AtomicLong _sizeInBytes = new AtomicLong();
+
+  /**
+   * Constructor for the broker result cache.
+   *
+   * @param routingTable Routing table to look up the routing table versions.
+   * @param maxSizeInBytes Maximum size of the cache in bytes.
+   * @param expirationTimeMs Time after which the entries expire.
+   * @param brokerMetrics Broker metrics to report the cache meters and gauges.
+   */
+  public BrokerResultCache(@Nonnull RoutingTable routingTable, long maxSizeInBytes, long expirationTimeMs,
+      @Nonnull BrokerMetrics brokerMetrics) {
+    _routingTable = routingTable;
+    _brokerMetrics = brokerMetrics;
+    _maxEntrySizeInBytes = maxSizeInBytes / MAX_ENTRY_SIZE_DIVISOR;
+    _cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .expireAfterWrite(expirationTimeMs, TimeUnit.MILLISECONDS)
+        .weigher(new Weigher<Key, Entry>() {
+          @Override
+          public int weigh(@Nonnull Key key, @Nonnull Entry entry) {
+            return entry._sizeInBytes;
+          }
+        })
+        .removalListener(new RemovalListener<Key, Entry>() {
+          @Override
+          public void onRemoval(@Nonnull RemovalNotification<Key, Entry> notification) {
+            _sizeInBytes.addAndGet(-notification.getValue()._sizeInBytes);
+          }
+        })
+        .build();
+    LOGGER.info("Initialized broker result cache with max size: {} bytes, expiration time: {}ms", maxSizeInBytes,
+        expirationTimeMs);
+  }
+
+  /**
+   * Returns the cache key for the given optimized OFFLINE broker request, or null if the request should not be cached
+   * (trace enabled or routing table not available).
+   */
+  @Nullable
+  public Key getKey(@Nonnull BrokerRequest offlineBrokerRequest) {
+    if (offlineBrokerRequest.isEnableTrace()) {
+      return null;
+    }
+    String tableName = offlineBrokerRequest.getQuerySource().getTableName();
+    long routingTableVersion = _routingTable.getRoutingTableVersion(tableName);
+    if (routingTableVersion == RoutingTable.INVALID_ROUTING_TABLE_VERSION) {
+      return null;
+    }
+    return new Key(tableName, routingTableVersion, QueryFingerprint.getFingerprint(offlineBrokerRequest));
+  }
+
+  /**
+   * Returns freshly de-serialized data tables for the given key, or null if the entry does not exist.
+   */
+  @Nullable
+  public Map<ServerInstance, DataTable> get(@Nonnull Key key) {
+    Entry entry = _cache.getIfPresent(key);
+    if (entry == null) {
+      _brokerMetrics.addMeteredTableValue(key._tableName, BrokerMeter.RESULT_CACHE_MISSES, 1L);
+      return null;
+    }
+    Map<ServerInstance, DataTable> dataTableMap = new HashMap<>(entry._serverResponses.size());
+    try {
+      for (Map.Entry<ServerInstance, byte[]> serverResponse : entry._serverResponses.entrySet()) {
+        dataTableMap.put(serverResponse.getKey(), DataTableFactory.getDataTable(serverResponse.getValue()));
+      }
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while de-serializing cached responses for table: {}", key._tableName, e);
+      _cache.invalidate(key);
+      updateGauges();
+      _brokerMetrics.addMeteredTableValue(key._tableName, BrokerMeter.RESULT_CACHE_MISSES, 1L);
+      return null;
+    }
+    _brokerMetrics.addMeteredTableValue(key._tableName, BrokerMeter.RESULT_CACHE_HITS, 1L);
+    return dataTableMap;
+  }
+
+  /**
+   * Caches the data tables returned by the servers under the given key.
+   * <p>The caller should only put complete responses (all servers queried responded). Responses with processing
+   * exceptions, and responses larger than the per entry limit are not cached.
+   */
+  public void put(@Nonnull Key key, @Nonnull Map<ServerInstance, DataTable> dataTableMap) {
+    Map<ServerInstance, byte[]> serverResponses = new HashMap<>(dataTableMap.size());
+    long sizeInBytes = ENTRY_OVERHEAD_IN_BYTES + 2L * key._queryFingerprint.length();
+    for (Map.Entry<ServerInstance, DataTable> entry : dataTableMap.entrySet()) {
+      DataTable dataTable = entry.getValue();
+      for (String metadataKey : dataTable.getMetadata().keySet()) {
+        if (metadataKey.startsWith(DataTable.EXCEPTION_METADATA_KEY)) {
+          return;
+        }
+      }
+      byte[] bytes;
+      try {
+        bytes = dataTable.toBytes();
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while serializing response for table: {}, skip caching", key._tableName, e);
+        return;
+      }
+      sizeInBytes += bytes.length + SERVER_OVERHEAD_IN_BYTES;
+      if (sizeInBytes > _maxEntrySizeInBytes) {
+        return;
+      }
+      serverResponses.put(entry.getKey(), bytes);
+    }
+    Entry entry = new Entry(serverResponses, (int) sizeInBytes);
+    _sizeInBytes.addAndGet(entry._sizeInBytes);
+    _cache.put(key, entry);
+    updateGauges();
+  }
+
+  public long getSizeInBytes() {
+    return _sizeInBytes.get();
+  }
+
+  public long getNumEntries() {
+    return _cache.size();
+  }
+
+  private void updateGauges() {
+    _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.RESULT_CACHE_SIZE_IN_BYTES, _sizeInBytes.get());
+    _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.RESULT_CACHE_NUM_ENTRIES, _cache.size());
+  }
+
+  /**
+   * Key of the broker result cache.
+   */
+  public static class Key {
+    private final String _tableName;
+    private final long _routingTableVersion;
+    private final String _queryFingerprint;
+    private final int _hashCode;
+
+    public Key(@Nonnull String tableName, long routingTableVersion, @Nonnull String queryFingerprint) {
+      _tableName = tableName;
+      _routingTableVersion = routingTableVersion;
+      _queryFingerprint = queryFingerprint;
+      _hashCode = 31 * (31 * tableName.hashCode() + (int) (routingTableVersion ^ (routingTableVersion >>> 32)))
+          + queryFingerprint.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return _routingTableVersion == that._routingTableVersion && _tableName.equals(that._tableName)
+          && _queryFingerprint.equals(that._queryFingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  private static class Entry {
+    private final Map<ServerInstance, byte[]> _serverResponses;
+    private final int _sizeInBytes;
+
+    private Entry(@Nonnull Map<ServerInstance, byte[]> serverResponses, int sizeInBytes) {
+      _serverResponses = serverResponses;
+      _sizeInBytes = sizeInBytes;
+    }
+  }
+}
@@ -0,0 +1,491 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterQuery;
+import com.linkedin.pinot.common.request.HavingFilterQuery;
+import com.linkedin.pinot.pql.parsers.Pql2CompilationException;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>CompiledQueryCache</code> class is a bounded, broker side cache of the compiled broker requests, keyed by
+ * the normalized query text.
+ * <p>Literals are parameterized, so that queries which only differ in their literals share one template. The template
+ * is compiled once from the query with each literal replaced by a unique sentinel literal. On a hit, the actual
+ * literals are bound in place of the sentinels. A template is only used if each sentinel shows up exactly once, and
+ * only inside the values of the filter and having predicates, where binding gives the same broker request as compiling
+ * the query. Literals of the TOP, LIMIT, IN and OPTION clauses are kept in the template text, because the compiler
+ * interprets them instead of copying them into a predicate value. Queries that cannot be parameterized are cached by
+ * their exact normalized text.
+ * <p>The returned broker requests are copies, so the caller can modify them. The broker request optimizer does not go
+ * through the cache, because its result depends on the literal values, the time column and the time boundary.
+ */
+@ThreadSafe
+public class CompiledQueryCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CompiledQueryCache.class);
+
+  private static final String TEMPLATE_KEY_PREFIX = "T:";
+  private static final String QUERY_KEY_PREFIX = "Q:";
+  private static final int MAX_NUM_LITERALS = 1000;
+
+  // Sentinel literals are made of these markers and the literal index, actual literals containing a marker are not
+  // bound into a template.
+  private static final String INTEGER_SENTINEL_MARKER = "8765432";
+  private static final long INTEGER_SENTINEL_BASE = 8765432100000000000L;
+  private static final String FLOATING_POINT_SENTINEL_MARKER = "0.8765";
+  private static final String STRING_SENTINEL_MARKER = "__pql_param_";
+
+  private final Pql2Compiler _compiler;
+  private final boolean _splitInClause;
+  private final BrokerMetrics _brokerMetrics;
+  private final Cache<String, Entry> _cache;
+
+  /**
+   * Constructor for the compiled query cache.
+   *
+   * @param compiler PQL compiler.
+   * @param splitInClause Whether the compiler sends the values of IN clauses as list.
+   * @param maxNumEntries Maximum number of cached queries and templates.
+   * @param brokerMetrics Broker metrics to report the cache meters.
+   */
+  public CompiledQueryCache(@Nonnull Pql2Compiler compiler, boolean splitInClause, long maxNumEntries,
+      @Nonnull BrokerMetrics brokerMetrics) {
+    _compiler = compiler;
+    _splitInClause = splitInClause;
+    _brokerMetrics = brokerMetrics;
+    _cache = CacheBuilder.newBuilder().maximumSize(maxNumEntries).build();
+    LOGGER.info("Initialized compiled query cache with max number of entries: {}", maxNumEntries);
+  }
+
+  /**
+   * Returns the compiled broker request for the given query, from the cache if possible.
+   *
+   * @param pql Query to compile.
+   * @return Broker request owned by the caller.
+   * @throws Pql2CompilationException If the query does not compile.
+   */
+  @Nonnull
+  public BrokerRequest compile(@Nonnull String pql) throws Pql2CompilationException {
+    ParsedQuery parsedQuery = ParsedQuery.parse(pql);
+    String templateKey = null;
+    if (parsedQuery != null && !parsedQuery._literals.isEmpty()) {
+      templateKey = TEMPLATE_KEY_PREFIX + parsedQuery._template;
+      Entry template = _cache.getIfPresent(templateKey);
+      if (template != null && template._sentinelValues != null) {
+        BrokerRequest brokerRequest = template.bind(parsedQuery._literals);
+        if (brokerRequest != null) {
+          _brokerMetrics.addMeteredGlobalValue(BrokerMeter.COMPILED_QUERY_CACHE_HITS, 1L);
+          _brokerMetrics.addMeteredGlobalValue(BrokerMeter.COMPILED_QUERY_CACHE_TEMPLATE_HITS, 1L);
+          return brokerRequest;
+        }
+      }
+    }
+
+    String queryKey = QUERY_KEY_PREFIX + (parsedQuery != null ? parsedQuery._normalizedQuery : pql);
+    Entry entry = _cache.getIfPresent(queryKey);
+    if (entry != null) {
+      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.COMPILED_QUERY_CACHE_HITS, 1L);
+      return entry._brokerRequest.deepCopy();
+    }
+    _brokerMetrics.addMeteredGlobalValue(BrokerMeter.COMPILED_QUERY_CACHE_MISSES, 1L);
+
+    // Compile the query itself first, so that invalid queries fail the same way as without the cache.
+    BrokerRequest brokerRequest = _compiler.compileToBrokerRequest(pql, _splitInClause);
+    if (templateKey != null && _cache.getIfPresent(templateKey) == null) {
+      // Also cache the templates which cannot be used, so that they are not compiled again
+      Entry template = compileTemplate(parsedQuery);
+      _cache.put(templateKey, template);
+      if (template._sentinelValues != null) {
+        return brokerRequest;
+      }
+    }
+    _cache.put(queryKey, new Entry(brokerRequest.deepCopy(), null));
+    return brokerRequest;
+  }
+
+  /**
+   * Compiles the query with sentinel literals, and checks that each sentinel can be bound.
+   */
+  @Nonnull
+  private Entry compileTemplate(@Nonnull ParsedQuery parsedQuery) {
+    int numLiterals = parsedQuery._literals.size();
+    String[] sentinelValues = new String[numLiterals];
+    StringBuilder sentinelQuery = new StringBuilder(parsedQuery._segments.get(0));
+    for (int i = 0; i < numLiterals; i++) {
+      Literal sentinel = parsedQuery._literals.get(i).getSentinel(i);
+      sentinelValues[i] = sentinel.getValueAsString();
+      sentinelQuery.append(' ').append(sentinel._text).append(' ').append(parsedQuery._segments.get(i + 1));
+    }
+    BrokerRequest brokerRequest;
+    try {
+      brokerRequest = _compiler.compileToBrokerRequest(sentinelQuery.toString(), _splitInClause);
+    } catch (Exception e) {
+      LOGGER.debug("Caught exception while compiling query template: {}", parsedQuery._template, e);
+      return new Entry(null, null);
+    }
+
+    // The sentinels must only show up in the values of the filter and having predicates
+    int[] numOccurrences = new int[numLiterals];
+    if (brokerRequest.isSetFilterSubQueryMap()) {
+      for (FilterQuery filterQuery : brokerRequest.getFilterSubQueryMap().getFilterQueryMap().values()) {
+        if (!countInValues(filterQuery.toString(), filterQuery.getValue(), sentinelValues, numOccurrences)) {
+          return new Entry(null, null);
+        }
+      }
+    }
+    if (brokerRequest.isSetHavingFilterSubQueryMap()) {
+      for (HavingFilterQuery havingFilterQuery : brokerRequest.getHavingFilterSubQueryMap()
+          .getFilterQueryMap()
+          .values()) {
+        if (!countInValues(havingFilterQuery.toString(), havingFilterQuery.getValue(), sentinelValues,
+            numOccurrences)) {
+          return new Entry(null, null);
+        }
+      }
+    }
+    BrokerRequest brokerRequestWithoutPredicates = brokerRequest.deepCopy();
+    brokerRequestWithoutPredicates.unsetFilterQuery();
+    brokerRequestWithoutPredicates.unsetFilterSubQueryMap();
+    brokerRequestWithoutPredicates.unsetHavingFilterQuery();
+    brokerRequestWithoutPredicates.unsetHavingFilterSubQueryMap();
+    String brokerRequestString = brokerRequestWithoutPredicates.toString();
+    for (int i = 0; i < numLiterals; i++) {
+      if (numOccurrences[i] != 1 || brokerRequestString.contains(sentinelValues[i])) {
+        return new Entry(null, null);
+      }
+    }
+    return new Entry(brokerRequest, sentinelValues);
+  }
+
+  /**
+   * Adds the number of occurrences of each sentinel in the predicate values, returns false if a sentinel also shows
+   * up elsewhere in the predicate.
+   */
+  private static boolean countInValues(@Nonnull String predicateString, @Nullable List<String> values,
+      @Nonnull String[] sentinelValues, @Nonnull int[] numOccurrences) {
+    for (int i = 0; i < sentinelValues.length; i++) {
+      String sentinelValue = sentinelValues[i];
+      int numOccurrencesInValues = 0;
+      if (values != null) {
+        for (String value : values) {
+          numOccurrencesInValues += countOccurrences(value, sentinelValue);
+        }
+      }
+      if (countOccurrences(predicateString, sentinelValue) != numOccurrencesInValues) {
+        return false;
+      }
+      numOccurrences[i] += numOccurrencesInValues;
+    }
+    return true;
+  }
+
+  private static int countOccurrences(@Nonnull String string, @Nonnull String subString) {
+    int count = 0;
+    int index = string.indexOf(subString);
+    while (index != -1) {
+      count++;
+      index = string.indexOf(subString, index + subString.length());
+    }
+    return count;
+  }
+
+  /**
+   * Cached broker request. For templates, holds the values of the sentinel literals to bind, or nothing if the query
+   * cannot be parameterized.
+   */
+  private static class Entry {
+    private final BrokerRequest _brokerRequest;
+    private final String[] _sentinelValues;
+
+    private Entry(@Nullable BrokerRequest brokerRequest, @Nullable String[] sentinelValues) {
+      _brokerRequest = brokerRequest;
+      _sentinelValues = sentinelValues;
+    }
+
+    /**
+     * Returns a copy of the template with the actual literals bound, or null if they cannot be bound.
+     */
+    @Nullable
+    private BrokerRequest bind(@Nonnull List<Literal> literals) {
+      String[] values = new String[_sentinelValues.length];
+      for (int i = 0; i < values.length; i++) {
+        String value;
+        try {
+          value = literals.get(i).getValueAsString();
+        } catch (NumberFormatException e) {
+          return null;
+        }
+        // A value looking like a sentinel could be replaced again by a later sentinel
+        if (value.contains(INTEGER_SENTINEL_MARKER) || value.contains(FLOATING_POINT_SENTINEL_MARKER)
+            || value.contains(STRING_SENTINEL_MARKER)) {
+          return null;
+        }
+        values[i] = value;
+      }
+
+      BrokerRequest brokerRequest = _brokerRequest.deepCopy();
+      if (brokerRequest.isSetFilterQuery()) {
+        FilterQuery filterQuery = brokerRequest.getFilterQuery();
+        filterQuery.setValue(bindValues(filterQuery.getValue(), values));
+      }
+      if (brokerRequest.isSetFilterSubQueryMap()) {
+        for (FilterQuery filterQuery : brokerRequest.getFilterSubQueryMap().getFilterQueryMap().values()) {
+          filterQuery.setValue(bindValues(filterQuery.getValue(), values));
+        }
+      }
+      if (brokerRequest.isSetHavingFilterQuery()) {
+        HavingFilterQuery havingFilterQuery = brokerRequest.getHavingFilterQuery();
+        havingFilterQuery.setValue(bindValues(havingFilterQuery.getValue(), values));
+      }
+      if (brokerRequest.isSetHavingFilterSubQueryMap()) {
+        for (HavingFilterQuery havingFilterQuery : brokerRequest.getHavingFilterSubQueryMap()
+            .getFilterQueryMap()
+            .values()) {
+          havingFilterQuery.setValue(bindValues(havingFilterQuery.getValue(), values));
+        }
+      }
+      return brokerRequest;
+    }
+
+    @Nullable
+    private List<String> bindValues(@Nullable List<String> predicateValues, @Nonnull String[] values) {
+      if (predicateValues == null) {
+        return null;
+      }
+      List<String> boundValues = new ArrayList<>(predicateValues.size());
+      for (String predicateValue : predicateValues) {
+        for (int i = 0; i < values.length; i++) {
+          predicateValue = predicateValue.replace(_sentinelValues[i], values[i]);
+        }
+        boundValues.add(predicateValue);
+      }
+      return boundValues;
+    }
+  }
+
+  private enum LiteralType {
+    STRING,
+    INTEGER,
+    FLOATING_POINT
+  }
+
+  /**
+   * Literal token of a query.
+   */
+  private static class Literal {
+    private final LiteralType _type;
+    private final String _text;
+
+    private Literal(@Nonnull LiteralType type, @Nonnull String text) {
+      _type = type;
+      _text = text;
+    }
+
+    /**
+     * Returns the sentinel literal of the same type for the given literal index.
+     */
+    @Nonnull
+    private Literal getSentinel(int index) {
+      switch (_type) {
+        case STRING:
+          return new Literal(_type, "'" + STRING_SENTINEL_MARKER + index + "__'");
+        case INTEGER:
+          return new Literal(_type, Long.toString(INTEGER_SENTINEL_BASE + index));
+        case FLOATING_POINT:
+          return new Literal(_type, String.format("%s%04d1", FLOATING_POINT_SENTINEL_MARKER, index));
+        default:
+          throw new IllegalStateException("Unsupported literal type: " + _type);
+      }
+    }
+
+    /**
+     * Returns the value of the literal as the compiler puts it in the broker request.
+     */
+    @Nonnull
+    private String getValueAsString() {
+      switch (_type) {
+        case STRING:
+          // Quotes are escaped by doubling them
+          String quote = _text.substring(0, 1);
+          return _text.substring(1, _text.length() - 1).replace(quote + quote, quote);
+        case INTEGER:
+          return Long.toString(Long.parseLong(_text));
+        case FLOATING_POINT:
+          return Double.toString(Double.valueOf(_text));
+        default:
+          throw new IllegalStateException("Unsupported literal type: " + _type);
+      }
+    }
+  }
+
+  /**
+   * Query split into its literals and the text around them.
+   * <p>The query is scanned with the same token rules as the PQL lexer, so that the literals found here are the
+   * literal tokens of the compiler.
+   */
+  private static class ParsedQuery {
+    // Text around the literals, with whitespace collapsed
+    private final List<String> _segments = new ArrayList<>();
+    private final List<Literal> _literals = new ArrayList<>();
+    private String _template;
+    private String _normalizedQuery;
+
+    /**
+     * Returns the parsed query, or null if it cannot be parameterized.
+     */
+    @Nullable
+    private static ParsedQuery parse(@Nonnull String pql) {
+      ParsedQuery parsedQuery = new ParsedQuery();
+      StringBuilder template = new StringBuilder();
+      StringBuilder normalizedQuery = new StringBuilder();
+      StringBuilder segment = new StringBuilder();
+
+      // Literals of the TOP and LIMIT clauses, and inside the parenthesis of the IN and OPTION clauses are kept
+      boolean keepNumbers = false;
+      boolean keepParenthesis = false;
+      int parenthesisDepth = 0;
+      int keptParenthesisDepth = -1;
+
+      int length = pql.length();
+      int i = 0;
+      while (i < length) {
+        char c = pql.charAt(i);
+        int end;
+        if (c == ' ' || c == '\t' || c == '\n') {
+          end = i + 1;
+          while (end < length && (pql.charAt(end) == ' ' || pql.charAt(end) == '\t' || pql.charAt(end) == '\n')) {
+            end++;
+          }
+          segment.append(' ');
+          normalizedQuery.append(' ');
+          i = end;
+          continue;
+        }
+        if (c == '?' || (c == '-' && i + 1 < length && pql.charAt(i + 1) == '-')) {
+          // Not valid outside literals, or comment
+          return null;
+        }
+
+        Literal literal = null;
+        if (Character.isLetter(c) && c < 128 || c == '_') {
+          // Identifier or keyword
+          end = i + 1;
+          while (end < length && isIdentifierPart(pql.charAt(end))) {
+            end++;
+          }
+          String word = pql.substring(i, end);
+          keepNumbers = word.equalsIgnoreCase("TOP") || word.equalsIgnoreCase("LIMIT");
+          keepParenthesis = word.equalsIgnoreCase("IN") || word.equalsIgnoreCase("OPTION");
+        } else if (c == '\'' || c == '"') {
+          end = i + 1;
+          while (true) {
+            if (end >= length) {
+              return null;
+            }
+            if (pql.charAt(end) == c) {
+              if (end + 1 < length && pql.charAt(end + 1) == c) {
+                end += 2;
+              } else {
+                end++;
+                break;
+              }
+            } else {
+              end++;
+            }
+          }
+          literal = new Literal(LiteralType.STRING, pql.substring(i, end));
+        } else {
+          // Integer or floating point literal, with optional sign
+          int start = (c == '+' || c == '-') ? i + 1 : i;
+          int integerPartEnd = skipDigits(pql, start);
+          end = integerPartEnd;
+          if (integerPartEnd < length && pql.charAt(integerPartEnd) == '.') {
+            int fractionPartEnd = skipDigits(pql, integerPartEnd + 1);
+            if (integerPartEnd > start || fractionPartEnd > integerPartEnd + 1) {
+              end = fractionPartEnd;
+              literal = new Literal(LiteralType.FLOATING_POINT, pql.substring(i, end));
+            }
+          } else if (integerPartEnd > start) {
+            literal = new Literal(LiteralType.INTEGER, pql.substring(i, end));
+          }
+          if (literal == null) {
+            // Single character token
+            end = i + 1;
+            if (c == '(') {
+              if (keepParenthesis && keptParenthesisDepth == -1) {
+                keptParenthesisDepth = parenthesisDepth;
+              }
+              parenthesisDepth++;
+            } else if (c == ')') {
+              parenthesisDepth--;
+              if (parenthesisDepth == keptParenthesisDepth) {
+                keptParenthesisDepth = -1;
+              }
+            }
+            keepNumbers &= c == ',';
+            keepParenthesis = false;
+          }
+        }
+
+        String token = pql.substring(i, end);
+        normalizedQuery.append(token);
+        boolean keepLiteral = keptParenthesisDepth != -1 || (keepNumbers && literal != null
+            && literal._type == LiteralType.INTEGER);
+        if (literal == null || keepLiteral) {
+          segment.append(token);
+        } else {
+          parsedQuery._segments.add(segment.toString());
+          parsedQuery._literals.add(literal);
+          if (parsedQuery._literals.size() > MAX_NUM_LITERALS) {
+            return null;
+          }
+          template.append(segment).append('?').append(literal._type.ordinal());
+          segment.setLength(0);
+        }
+        i = end;
+      }
+      parsedQuery._segments.add(segment.toString());
+      template.append(segment);
+      parsedQuery._template = template.toString();
+      parsedQuery._normalizedQuery = normalizedQuery.toString();
+      return parsedQuery;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+      return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+
+    private static int skipDigits(@Nonnull String pql, int index) {
+      while (index < pql.length() && pql.charAt(index) >= '0' && pql.charAt(index) <= '9') {
+        index++;
+      }
+      return index;
+    }
+  }
+}
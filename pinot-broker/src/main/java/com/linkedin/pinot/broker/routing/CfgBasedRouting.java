@@ -15,6 +15,8 @@
  */
 package com.linkedin.pinot.broker.routing;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
@@ -56,6 +58,18 @@ public class CfgBasedRouting implements RoutingTable {
     return routingTableEntry != null && !routingTableEntry.isEmpty();
   }
 
+  @Override
+  public long getRoutingTableVersion(String tableName) {
+    // The routing table is static, so its version never changes
+    return _cfg.getPerTableRoutingCfg().containsKey(tableName) ? 0L : INVALID_ROUTING_TABLE_VERSION;
+  }
+
+  @Override
+  public List<ServerInstance> findAlternateServers(String tableName, ServerInstance server, SegmentIdSet segmentIds) {
+    // Segments are not replicated in the static routing config
+    return Collections.emptyList();
+  }
+
   @Override
   public void start() {
     // Nothing to be done here
@@ -18,6 +18,7 @@ package com.linkedin.pinot.broker.routing;
 
 import com.google.common.collect.Sets;
 import com.linkedin.pinot.broker.routing.builder.RoutingTableBuilder;
+import com.linkedin.pinot.broker.routing.builder.RoutingTableInstancePruner;
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
@@ -28,8 +29,10 @@ import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.EqualityUtils;
 import com.linkedin.pinot.common.utils.NetUtil;
 import com.linkedin.pinot.common.utils.helix.HelixHelper;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -38,6 +41,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.configuration.Configuration;
 import org.apache.helix.AccessOption;
 import org.apache.helix.HelixDataAccessor;
@@ -67,9 +71,13 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   private final Map<String,RoutingTableBuilder> _routingTableBuilderMap;
 
   private final Map<String, Integer> _lastKnownExternalViewVersionMap = new ConcurrentHashMap<>();
+  private final Map<String, Long> _routingTableVersionMap = new ConcurrentHashMap<>();
+  private final AtomicLong _routingTableVersionGenerator = new AtomicLong();
   private final Map<String, Map<String, InstanceConfig>> _lastKnownInstanceConfigsForTable = new ConcurrentHashMap<>();
   private final Map<String, InstanceConfig> _lastKnownInstanceConfigs = new ConcurrentHashMap<>();
   private final Map<String, Set<String>> _tablesForInstance = new ConcurrentHashMap<>();
+  // Online replicas of every segment for each table, used to find alternate servers
+  private final Map<String, Map<String, List<ServerInstance>>> _segmentReplicasMap = new ConcurrentHashMap<>();
 
   private final HelixExternalViewBasedTimeBoundaryService _timeBoundaryService;
   private final HelixManager _helixManager;
@@ -83,6 +91,8 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
 
   private RoutingTableBuilderFactory _routingTableBuilderFactory;
 
+  private final ServerLatencyTracker _serverLatencyTracker;
+
   public HelixExternalViewBasedRouting(ZkHelixPropertyStore<ZNRecord> propertyStore, HelixManager helixManager,
       Configuration configuration) {
     _propertyStore = propertyStore;
@@ -90,7 +100,8 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     _timeBoundaryService = new HelixExternalViewBasedTimeBoundaryService(propertyStore);
     _routingTableBuilderMap = new HashMap<>();
     _helixManager = helixManager;
-    _routingTableBuilderFactory = new RoutingTableBuilderFactory(_configuration, propertyStore);
+    _serverLatencyTracker = new ServerLatencyTracker(_configuration);
+    _routingTableBuilderFactory = new RoutingTableBuilderFactory(_configuration, propertyStore, _serverLatencyTracker);
   }
 
   @Override
@@ -106,6 +117,43 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   }
 
 
+  @Override
+  public long getRoutingTableVersion(String tableName) {
+    Long routingTableVersion = _routingTableVersionMap.get(tableName);
+    return (routingTableVersion != null) ? routingTableVersion : INVALID_ROUTING_TABLE_VERSION;
+  }
+
+  @Override
+  public List<ServerInstance> findAlternateServers(String tableName, ServerInstance server, SegmentIdSet segmentIds) {
+    Map<String, List<ServerInstance>> segmentReplicas = _segmentReplicasMap.get(tableName);
+    if (segmentReplicas == null) {
+      return Collections.emptyList();
+    }
+
+    // Intersect the replicas of all segments
+    List<ServerInstance> alternateServers = null;
+    for (SegmentId segmentId : segmentIds.getSegments()) {
+      List<ServerInstance> replicas = segmentReplicas.get(segmentId.getSegmentId());
+      if (replicas == null) {
+        return Collections.emptyList();
+      }
+      if (alternateServers == null) {
+        alternateServers = new ArrayList<>(replicas);
+        alternateServers.remove(server);
+      } else {
+        alternateServers.retainAll(replicas);
+      }
+      if (alternateServers.isEmpty()) {
+        return alternateServers;
+      }
+    }
+    return (alternateServers != null) ? alternateServers : Collections.<ServerInstance>emptyList();
+  }
+
+  public ServerLatencyTracker getServerLatencyTracker() {
+    return _serverLatencyTracker;
+  }
+
   public void setBrokerMetrics(BrokerMetrics brokerMetrics) {
     _brokerMetrics = brokerMetrics;
   }
@@ -134,6 +182,7 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       // It is possible for us to get a request to serve a table for which there is no external view. In this case, just
       // keep a bogus last seen external view version to force a rebuild the next time we see an external view.
       _lastKnownExternalViewVersionMap.put(tableName, INVALID_EXTERNAL_VIEW_VERSION);
+      _routingTableVersionMap.remove(tableName);
       return;
     }
     buildRoutingTable(tableName, externalView, instanceConfigList);
@@ -250,6 +299,11 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
 
       routingTableBuilder.computeRoutingTableFromExternalView(tableNameWithType, externalView, instanceConfigs);
 
+      _segmentReplicasMap.put(tableNameWithType, computeSegmentReplicas(externalView, instanceConfigs));
+
+      // Use a broker local version instead of the external view version, which can go back when the table is re-created
+      _routingTableVersionMap.put(tableNameWithType, _routingTableVersionGenerator.incrementAndGet());
+
       // Keep track of the instance configs that are used in that routing table
       updateInstanceConfigsMapFromExternalView(relevantInstanceConfigs, instanceConfigs, externalView);
 
@@ -285,6 +339,8 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
 
       // Mark the routing table as needing a rebuild
       _lastKnownExternalViewVersionMap.put(tableNameWithType, INVALID_EXTERNAL_VIEW_VERSION);
+      _routingTableVersionMap.remove(tableNameWithType);
+      _segmentReplicasMap.remove(tableNameWithType);
     }
 
     try {
@@ -336,6 +392,33 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     LOGGER.info("Routing table update for table {} completed in {} ms", tableNameWithType, updateTime);
   }
 
+  /**
+   * Returns a map from segment name to the enabled servers where the segment is ONLINE.
+   */
+  private static Map<String, List<ServerInstance>> computeSegmentReplicas(ExternalView externalView,
+      List<InstanceConfig> instanceConfigs) {
+    RoutingTableInstancePruner pruner = new RoutingTableInstancePruner(instanceConfigs);
+    Map<String, ServerInstance> serverInstances = new HashMap<>();
+    Map<String, List<ServerInstance>> segmentReplicas = new HashMap<>();
+    for (String segmentName : externalView.getPartitionSet()) {
+      List<ServerInstance> replicas = new ArrayList<>();
+      for (Map.Entry<String, String> entry : externalView.getStateMap(segmentName).entrySet()) {
+        String instanceName = entry.getKey();
+        if (CommonConstants.Helix.StateModel.SegmentOnlineOfflineStateModel.ONLINE.equals(entry.getValue())
+            && !pruner.isInactive(instanceName)) {
+          ServerInstance serverInstance = serverInstances.get(instanceName);
+          if (serverInstance == null) {
+            serverInstance = ServerInstance.forInstanceName(instanceName);
+            serverInstances.put(instanceName, serverInstance);
+          }
+          replicas.add(serverInstance);
+        }
+      }
+      segmentReplicas.put(segmentName, replicas);
+    }
+    return segmentReplicas;
+  }
+
   protected void updateTimeBoundary(String tableName, ExternalView externalView) {
     LOGGER.info("Trying to compute time boundary service for table {}", tableName);
     long timeBoundaryUpdateStart = System.currentTimeMillis();
@@ -371,7 +454,9 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     LOGGER.info("Trying to remove data table from broker for {}", tableName);
     _routingTableBuilderMap.remove(tableName);
     _lastKnownExternalViewVersionMap.remove(tableName);
+    _routingTableVersionMap.remove(tableName);
     _lastKnownInstanceConfigsForTable.remove(tableName);
+    _segmentReplicasMap.remove(tableName);
     _timeBoundaryService.remove(tableName);
 
     // Remove table from all instances
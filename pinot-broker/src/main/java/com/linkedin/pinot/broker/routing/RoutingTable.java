@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.broker.routing;
 
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
@@ -22,6 +23,8 @@ import com.linkedin.pinot.transport.common.SegmentIdSet;
 
 
 public interface RoutingTable {
+  long INVALID_ROUTING_TABLE_VERSION = -1L;
+
   /**
    * Return the candidate set of servers that hosts each segment-set.
    * The List of services are expected to be ordered so that replica-selection strategy can be
@@ -39,6 +42,28 @@ public interface RoutingTable {
    */
   boolean routingTableExists(String tableName);
 
+  /**
+   * Returns the version of the routing table for a given table. The version changes every time the routing table is
+   * rebuilt (e.g. segments added, removed or moved), so that results computed against an older version can be
+   * detected as stale.
+   *
+   * @param tableName The table name for which to get the routing table version
+   * @return version of the routing table, or {@link #INVALID_ROUTING_TABLE_VERSION} if the routing table does not exist
+   * or needs to be rebuilt
+   */
+  long getRoutingTableVersion(String tableName);
+
+  /**
+   * Returns the servers other than the given one that serve all the given segments of a table, e.g. to send a hedged
+   * request to when the given server is slow.
+   *
+   * @param tableName The table name with type
+   * @param server The server to find alternates for
+   * @param segmentIds The segments to be served
+   * @return list of alternate servers, empty if there is none
+   */
+  List<ServerInstance> findAlternateServers(String tableName, ServerInstance server, SegmentIdSet segmentIds);
+
   /**
    * Initialize and start the Routing table population
    */
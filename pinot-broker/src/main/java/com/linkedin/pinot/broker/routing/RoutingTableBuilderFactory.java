@@ -31,6 +31,7 @@ import com.linkedin.pinot.broker.routing.builder.DefaultOfflineRoutingTableBuild
 import com.linkedin.pinot.broker.routing.builder.DefaultRealtimeRoutingTableBuilder;
 import com.linkedin.pinot.broker.routing.builder.KafkaHighLevelConsumerBasedRoutingTableBuilder;
 import com.linkedin.pinot.broker.routing.builder.KafkaLowLevelConsumerRoutingTableBuilder;
+import com.linkedin.pinot.broker.routing.builder.LatencyAwareRoutingTableBuilder;
 import com.linkedin.pinot.broker.routing.builder.RoutingTableBuilder;
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
@@ -43,6 +44,8 @@ public class RoutingTableBuilderFactory {
 
   private ZkHelixPropertyStore<ZNRecord> _propertyStore;
 
+  private ServerLatencyTracker _serverLatencyTracker;
+
   enum RoutingTableBuilderName {
     DefaultOffline,
     DefaultRealtime,
@@ -50,12 +53,15 @@ public class RoutingTableBuilderFactory {
     KafkaLowLevel,
     KafkaHighLevel,
     PartitionAwareOffline,
-    PartitionAwareRealtime
+    PartitionAwareRealtime,
+    LatencyAware
   }
 
-  public RoutingTableBuilderFactory(Configuration configuration, ZkHelixPropertyStore<ZNRecord> propertyStore) {
+  public RoutingTableBuilderFactory(Configuration configuration, ZkHelixPropertyStore<ZNRecord> propertyStore,
+      ServerLatencyTracker serverLatencyTracker) {
     _configuration = configuration;
     _propertyStore = propertyStore;
+    _serverLatencyTracker = serverLatencyTracker;
   }
 
   public RoutingTableBuilder createRoutingTableBuilder(TableConfig tableConfig) {
@@ -134,6 +140,9 @@ public class RoutingTableBuilderFactory {
           builder = new DefaultRealtimeRoutingTableBuilder();
         }
         break;
+      case LatencyAware:
+        builder = new LatencyAwareRoutingTableBuilder(_serverLatencyTracker);
+        break;
     }
     builder.init(_configuration, tableConfig, _propertyStore);
     return builder;
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.routing;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Broker wide tracker of how fast each server responds, used by latency aware routing to route around slow or
+ * overloaded servers.
+ *
+ * For each server, it keeps an exponentially weighted moving average (EWMA) of the response times observed by the
+ * broker, and the number of requests currently in flight. Errors (including timeouts) count as a response time of at
+ * least {@link #ERROR_LATENCY_MS_CONFIG}.
+ *
+ * The latency estimate of a server that has not responded for a while decays towards zero, so that a server that was
+ * slow once gets probed again instead of being avoided forever.
+ */
+@ThreadSafe
+public class ServerLatencyTracker {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServerLatencyTracker.class);
+
+  public static final String EWMA_ALPHA_CONFIG = "serverLatency.ewmaAlpha";
+  public static final double DEFAULT_EWMA_ALPHA = 0.3;
+  public static final String DECAY_HALF_LIFE_MS_CONFIG = "serverLatency.decayHalfLifeMs";
+  public static final long DEFAULT_DECAY_HALF_LIFE_MS = 30_000L;
+  public static final String ERROR_LATENCY_MS_CONFIG = "serverLatency.errorLatencyMs";
+  public static final long DEFAULT_ERROR_LATENCY_MS = 1000L;
+
+  private final ConcurrentHashMap<ServerInstance, ServerStats> _serverStatsMap = new ConcurrentHashMap<>();
+  private final double _ewmaAlpha;
+  private final long _decayHalfLifeMs;
+  private final long _errorLatencyMs;
+
+  public ServerLatencyTracker(@Nonnull Configuration configuration) {
+    double ewmaAlpha = configuration.getDouble(EWMA_ALPHA_CONFIG, DEFAULT_EWMA_ALPHA);
+    if (ewmaAlpha <= 0 || ewmaAlpha > 1) {
+      LOGGER.warn("Invalid EWMA alpha: {}, using default value: {}", ewmaAlpha, DEFAULT_EWMA_ALPHA);
+      ewmaAlpha = DEFAULT_EWMA_ALPHA;
+    }
+    _ewmaAlpha = ewmaAlpha;
+    long decayHalfLifeMs = configuration.getLong(DECAY_HALF_LIFE_MS_CONFIG, DEFAULT_DECAY_HALF_LIFE_MS);
+    if (decayHalfLifeMs <= 0) {
+      LOGGER.warn("Invalid decay half life: {}ms, using default value: {}ms", decayHalfLifeMs,
+          DEFAULT_DECAY_HALF_LIFE_MS);
+      decayHalfLifeMs = DEFAULT_DECAY_HALF_LIFE_MS;
+    }
+    _decayHalfLifeMs = decayHalfLifeMs;
+    _errorLatencyMs = configuration.getLong(ERROR_LATENCY_MS_CONFIG, DEFAULT_ERROR_LATENCY_MS);
+    LOGGER.info("Initialized server latency tracker with EWMA alpha: {}, decay half life: {}ms, error latency: {}ms",
+        _ewmaAlpha, _decayHalfLifeMs, _errorLatencyMs);
+  }
+
+  /**
+   * Records that a request was sent to each of the given servers.
+   */
+  public void requestsSent(@Nonnull Collection<ServerInstance> servers) {
+    for (ServerInstance server : servers) {
+      getServerStats(server)._numInFlightRequests.incrementAndGet();
+    }
+  }
+
+  /**
+   * Records the outcome of requests previously passed to {@link #requestsSent(Collection)}. Servers with neither
+   * response time nor error (e.g. requests cancelled after another server failed) are only no longer in flight.
+   *
+   * @param servers Servers the requests were sent to
+   * @param responseTimes Map from server to the time it took to get its response or error
+   * @param errors Map from server to error, for the servers that did not respond successfully
+   */
+  public void responsesReceived(@Nonnull Collection<ServerInstance> servers,
+      @Nonnull Map<ServerInstance, Long> responseTimes, @Nonnull Map<ServerInstance, Throwable> errors) {
+    long currentTimeMs = System.currentTimeMillis();
+    for (ServerInstance server : servers) {
+      ServerStats serverStats = getServerStats(server);
+      serverStats._numInFlightRequests.decrementAndGet();
+      Long responseTimeMs = responseTimes.get(server);
+      long latencyMs;
+      if (responseTimeMs == null) {
+        if (!errors.containsKey(server)) {
+          continue;
+        }
+        latencyMs = _errorLatencyMs;
+      } else if (errors.containsKey(server)) {
+        latencyMs = Math.max(responseTimeMs, _errorLatencyMs);
+      } else {
+        latencyMs = responseTimeMs;
+      }
+      serverStats.addLatency(latencyMs, currentTimeMs);
+    }
+  }
+
+  /**
+   * Returns the score of the given server, lower is better. The score grows with both the latency estimate and the
+   * number of requests in flight, so that load spreads to the other replicas before a server becomes slow.
+   */
+  public double getScore(@Nonnull ServerInstance server) {
+    ServerStats serverStats = _serverStatsMap.get(server);
+    if (serverStats == null) {
+      return 1.0;
+    }
+    return (serverStats.getLatencyMs(System.currentTimeMillis()) + 1.0) * (serverStats.getNumInFlightRequests() + 1);
+  }
+
+  public double getLatencyMs(@Nonnull ServerInstance server) {
+    ServerStats serverStats = _serverStatsMap.get(server);
+    return serverStats != null ? serverStats.getLatencyMs(System.currentTimeMillis()) : 0.0;
+  }
+
+  public int getNumInFlightRequests(@Nonnull ServerInstance server) {
+    ServerStats serverStats = _serverStatsMap.get(server);
+    return serverStats != null ? serverStats.getNumInFlightRequests() : 0;
+  }
+
+  private ServerStats getServerStats(ServerInstance server) {
+    ServerStats serverStats = _serverStatsMap.get(server);
+    if (serverStats == null) {
+      ServerStats newServerStats = new ServerStats();
+      serverStats = _serverStatsMap.putIfAbsent(server, newServerStats);
+      if (serverStats == null) {
+        serverStats = newServerStats;
+      }
+    }
+    return serverStats;
+  }
+
+  private class ServerStats {
+    private final AtomicInteger _numInFlightRequests = new AtomicInteger();
+    private double _ewmaLatencyMs;
+    private long _lastUpdateTimeMs;
+    private boolean _hasLatency;
+
+    private synchronized void addLatency(long latencyMs, long currentTimeMs) {
+      if (_hasLatency) {
+        _ewmaLatencyMs = _ewmaAlpha * latencyMs + (1 - _ewmaAlpha) * getLatencyMs(currentTimeMs);
+      } else {
+        _ewmaLatencyMs = latencyMs;
+        _hasLatency = true;
+      }
+      _lastUpdateTimeMs = currentTimeMs;
+    }
+
+    private synchronized double getLatencyMs(long currentTimeMs) {
+      long timeSinceLastUpdateMs = currentTimeMs - _lastUpdateTimeMs;
+      if (timeSinceLastUpdateMs <= 0) {
+        return _ewmaLatencyMs;
+      }
+      return _ewmaLatencyMs * Math.pow(0.5, (double) timeSinceLastUpdateMs / _decayHalfLifeMs);
+    }
+
+    private int getNumInFlightRequests() {
+      // Never report negative values if responses were recorded for requests sent before tracking started
+      return Math.max(_numInFlightRequests.get(), 0);
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.routing.builder;
+
+import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.broker.routing.ServerLatencyTracker;
+import com.linkedin.pinot.broker.routing.ServerToSegmentSetMap;
+import com.linkedin.pinot.common.config.TableConfig;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import org.apache.commons.configuration.Configuration;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Routing table builder that picks the replica of each segment at query time, based on the latency and the number of
+ * in flight requests of each server as tracked by the {@link ServerLatencyTracker}, instead of picking one of the
+ * precomputed random routing tables.
+ *
+ * To keep the cost per query bounded for tables with a lot of segments, segments are grouped by their set of online
+ * replicas when the external view changes, and large groups are split into chunks so that a table where every server
+ * hosts every segment still spreads over all of them. At query time, one replica is picked per group. The score of
+ * each replica is weighted by the number of segments already assigned to it for this query, so that a query does not
+ * pile all of its segments onto the fastest server. The routing of the previous query is reused if the same replicas
+ * are picked.
+ *
+ * Only ONLINE segments are routed to, so this builder is meant for offline tables.
+ */
+public class LatencyAwareRoutingTableBuilder extends AbstractRoutingTableBuilder {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LatencyAwareRoutingTableBuilder.class);
+
+  // Number of segment groups per server to aim for when splitting large groups
+  private static final int TARGET_NUM_GROUPS_PER_SERVER = 4;
+
+  private final ServerLatencyTracker _serverLatencyTracker;
+  private volatile RoutingState _routingState = new RoutingState(new ServerInstance[0], new int[0][],
+      Collections.<Set<SegmentId>>emptyList(), 0);
+
+  public LatencyAwareRoutingTableBuilder(@Nonnull ServerLatencyTracker serverLatencyTracker) {
+    _serverLatencyTracker = serverLatencyTracker;
+  }
+
+  @Override
+  public void init(Configuration configuration, TableConfig tableConfig, ZkHelixPropertyStore<ZNRecord> propertyStore) {
+  }
+
+  @Override
+  public synchronized void computeRoutingTableFromExternalView(String tableName, ExternalView externalView,
+      List<InstanceConfig> instanceConfigList) {
+    RoutingTableInstancePruner pruner = new RoutingTableInstancePruner(instanceConfigList);
+
+    // Group the segments by their sorted list of online replicas
+    List<String> instances = new ArrayList<>();
+    Map<String, Integer> instanceToIndexMap = new HashMap<>();
+    Map<List<Integer>, Set<SegmentId>> replicasToSegmentsMap = new HashMap<>();
+    int numSegments = 0;
+    for (String segment : externalView.getPartitionSet()) {
+      List<Integer> replicas = new ArrayList<>();
+      for (Map.Entry<String, String> entry : externalView.getStateMap(segment).entrySet()) {
+        String instance = entry.getKey();
+        if (!CommonConstants.Helix.StateModel.SegmentOnlineOfflineStateModel.ONLINE.equals(entry.getValue())
+            || pruner.isInactive(instance)) {
+          continue;
+        }
+        Integer index = instanceToIndexMap.get(instance);
+        if (index == null) {
+          index = instances.size();
+          instanceToIndexMap.put(instance, index);
+          instances.add(instance);
+        }
+        replicas.add(index);
+      }
+      if (replicas.isEmpty()) {
+        LOGGER.warn("No online replica for segment {} of table {}", segment, tableName);
+        continue;
+      }
+      Collections.sort(replicas);
+      Set<SegmentId> segments = replicasToSegmentsMap.get(replicas);
+      if (segments == null) {
+        segments = new HashSet<>();
+        replicasToSegmentsMap.put(replicas, segments);
+      }
+      segments.add(new SegmentId(segment));
+      numSegments++;
+    }
+
+    // Split the groups larger than the target group size
+    int numServers = instances.size();
+    int maxGroupSize = Math.max(1, numSegments / Math.max(1, numServers * TARGET_NUM_GROUPS_PER_SERVER));
+    List<int[]> groupReplicas = new ArrayList<>();
+    List<Set<SegmentId>> groupSegments = new ArrayList<>();
+    for (Map.Entry<List<Integer>, Set<SegmentId>> entry : replicasToSegmentsMap.entrySet()) {
+      List<Integer> replicaList = entry.getKey();
+      int[] replicas = new int[replicaList.size()];
+      for (int i = 0; i < replicas.length; i++) {
+        replicas[i] = replicaList.get(i);
+      }
+      Set<SegmentId> segments = entry.getValue();
+      if (segments.size() <= maxGroupSize) {
+        groupReplicas.add(replicas);
+        groupSegments.add(segments);
+      } else {
+        Set<SegmentId> chunk = new HashSet<>();
+        for (SegmentId segmentId : segments) {
+          chunk.add(segmentId);
+          if (chunk.size() == maxGroupSize) {
+            groupReplicas.add(replicas);
+            groupSegments.add(chunk);
+            chunk = new HashSet<>();
+          }
+        }
+        if (!chunk.isEmpty()) {
+          groupReplicas.add(replicas);
+          groupSegments.add(chunk);
+        }
+      }
+    }
+
+    ServerInstance[] servers = new ServerInstance[numServers];
+    for (int i = 0; i < numServers; i++) {
+      servers[i] = ServerInstance.forInstanceName(instances.get(i));
+    }
+    RoutingState routingState =
+        new RoutingState(servers, groupReplicas.toArray(new int[groupReplicas.size()][]), groupSegments, numSegments);
+
+    // Keep the routing without any latency information as the routing table, for snapshots
+    double[] scores = new double[numServers];
+    Arrays.fill(scores, 1.0);
+    int[] pickedReplicas = routingState.pickReplicas(scores);
+    Map<String, Set<String>> instanceToSegmentsMap = new HashMap<>();
+    for (int i = 0; i < pickedReplicas.length; i++) {
+      String instance = instances.get(pickedReplicas[i]);
+      Set<String> segments = instanceToSegmentsMap.get(instance);
+      if (segments == null) {
+        segments = new HashSet<>();
+        instanceToSegmentsMap.put(instance, segments);
+      }
+      for (SegmentId segmentId : groupSegments.get(i)) {
+        segments.add(segmentId.getSegmentId());
+      }
+    }
+    setRoutingTables(Collections.singletonList(new ServerToSegmentSetMap(instanceToSegmentsMap)));
+
+    LOGGER.info("Computed latency aware routing for table {} with {} segments in {} groups on {} servers", tableName,
+        numSegments, groupSegments.size(), numServers);
+    _routingState = routingState;
+  }
+
+  @Override
+  public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request) {
+    RoutingState routingState = _routingState;
+    ServerInstance[] servers = routingState._servers;
+    double[] scores = new double[servers.length];
+    for (int i = 0; i < servers.length; i++) {
+      scores[i] = _serverLatencyTracker.getScore(servers[i]);
+    }
+    return routingState.route(scores);
+  }
+
+  /**
+   * Immutable snapshot of the segment groups of a table, plus the last computed routing.
+   */
+  private static class RoutingState {
+    private final ServerInstance[] _servers;
+    // Server indexes of the replicas of each group, and the segments of each group
+    private final int[][] _groupReplicas;
+    private final List<Set<SegmentId>> _groupSegments;
+    // Average number of segments per server
+    private final double _fairShare;
+
+    private volatile CachedRouting _lastRouting;
+
+    private RoutingState(ServerInstance[] servers, int[][] groupReplicas, List<Set<SegmentId>> groupSegments,
+        int numSegments) {
+      _servers = servers;
+      _groupReplicas = groupReplicas;
+      _groupSegments = groupSegments;
+      _fairShare = Math.max(1.0, (double) numSegments / Math.max(1, servers.length));
+    }
+
+    /**
+     * Returns the index of the server picked for each group given the positive score of each server (lower is
+     * better).
+     */
+    private int[] pickReplicas(double[] scores) {
+      int numGroups = _groupReplicas.length;
+      int[] pickedReplicas = new int[numGroups];
+      int[] numAssignedSegments = new int[_servers.length];
+      for (int i = 0; i < numGroups; i++) {
+        int pickedReplica = -1;
+        double minScore = Double.MAX_VALUE;
+        for (int replica : _groupReplicas[i]) {
+          double score = scores[replica] * (1.0 + numAssignedSegments[replica] / _fairShare);
+          if (score < minScore) {
+            pickedReplica = replica;
+            minScore = score;
+          }
+        }
+        pickedReplicas[i] = pickedReplica;
+        numAssignedSegments[pickedReplica] += _groupSegments.get(i).size();
+      }
+      return pickedReplicas;
+    }
+
+    private Map<ServerInstance, SegmentIdSet> route(double[] scores) {
+      int[] pickedReplicas = pickReplicas(scores);
+      CachedRouting lastRouting = _lastRouting;
+      if (lastRouting != null && Arrays.equals(lastRouting._pickedReplicas, pickedReplicas)) {
+        return lastRouting._routing;
+      }
+      Map<ServerInstance, SegmentIdSet> routing = new HashMap<>();
+      for (int i = 0; i < pickedReplicas.length; i++) {
+        ServerInstance server = _servers[pickedReplicas[i]];
+        SegmentIdSet segmentIdSet = routing.get(server);
+        if (segmentIdSet == null) {
+          segmentIdSet = new SegmentIdSet();
+          routing.put(server, segmentIdSet);
+        }
+        segmentIdSet.addSegments(_groupSegments.get(i));
+      }
+      _lastRouting = new CachedRouting(pickedReplicas, routing);
+      return routing;
+    }
+  }
+
+  private static class CachedRouting {
+    private final int[] _pickedReplicas;
+    private final Map<ServerInstance, SegmentIdSet> _routing;
+
+    private CachedRouting(int[] pickedReplicas, Map<ServerInstance, SegmentIdSet> routing) {
+      _pickedReplicas = pickedReplicas;
+      _routing = routing;
+    }
+  }
+}
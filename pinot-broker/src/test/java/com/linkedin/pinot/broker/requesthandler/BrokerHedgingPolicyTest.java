@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.linkedin.pinot.broker.routing.RoutingTable;
+import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.broker.routing.ServerLatencyTracker;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.scattergather.ScatterGatherRequest;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for the broker hedging policy.
+ */
+public class BrokerHedgingPolicyTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final ServerInstance SLOW_SERVER = new ServerInstance("localhost", 8000);
+  private static final ServerInstance ALTERNATE_SERVER_1 = new ServerInstance("localhost", 8001);
+  private static final ServerInstance ALTERNATE_SERVER_2 = new ServerInstance("localhost", 8002);
+
+  @Test
+  public void testHedgeDelay() {
+    Configuration config = new BaseConfiguration();
+    config.setProperty(BrokerHedgingPolicy.PERCENTILE_CONFIG, 95.0);
+    config.setProperty(BrokerHedgingPolicy.MIN_DELAY_MS_CONFIG, 10L);
+    config.setProperty(BrokerHedgingPolicy.MIN_SAMPLES_CONFIG, 100);
+    BrokerHedgingPolicy hedgingPolicy = new BrokerHedgingPolicy(config, new AlternateServersRoutingTable(
+        Collections.<ServerInstance>emptyList()), null, new BrokerMetrics(new MetricsRegistry()));
+
+    // Not enough samples
+    TestScatterGatherRequest request = new TestScatterGatherRequest("SELECT COUNT(*) FROM myTable_OFFLINE");
+    Assert.assertEquals(hedgingPolicy.getHedgeDelayMs(request), -1L);
+    for (int i = 1; i < 100; i++) {
+      hedgingPolicy.onRequestCompleted(request, SLOW_SERVER, i);
+    }
+    Assert.assertEquals(hedgingPolicy.getHedgeDelayMs(request), -1L);
+
+    // 95th percentile of the latencies
+    hedgingPolicy.onRequestCompleted(request, SLOW_SERVER, 100L);
+    Assert.assertEquals(hedgingPolicy.getHedgeDelayMs(request), 95L);
+
+    // Fast table is hedged after the minimum delay
+    TestScatterGatherRequest fastRequest = new TestScatterGatherRequest("SELECT COUNT(*) FROM fastTable_OFFLINE");
+    for (int i = 0; i < 100; i++) {
+      hedgingPolicy.onRequestCompleted(fastRequest, SLOW_SERVER, 1L);
+    }
+    Assert.assertEquals(hedgingPolicy.getHedgeDelayMs(fastRequest), 10L);
+  }
+
+  @Test
+  public void testHedgeServer() {
+    Configuration config = new BaseConfiguration();
+    config.setProperty(BrokerHedgingPolicy.BUDGET_RATIO_CONFIG, 0.5);
+    config.setProperty(BrokerHedgingPolicy.MAX_BUDGET_CONFIG, 1.0);
+    ServerLatencyTracker serverLatencyTracker = new ServerLatencyTracker(new BaseConfiguration());
+    BrokerHedgingPolicy hedgingPolicy = new BrokerHedgingPolicy(config, new AlternateServersRoutingTable(
+        Arrays.asList(ALTERNATE_SERVER_1, ALTERNATE_SERVER_2)), serverLatencyTracker,
+        new BrokerMetrics(new MetricsRegistry()));
+    TestScatterGatherRequest request = new TestScatterGatherRequest("SELECT COUNT(*) FROM myTable_OFFLINE");
+    SegmentIdSet segmentIds = new SegmentIdSet();
+    segmentIds.addSegment(new SegmentId("segment"));
+
+    // No budget yet
+    Assert.assertNull(hedgingPolicy.selectHedgeServer(request, SLOW_SERVER, segmentIds));
+
+    // Each completed request adds half a token, and the budget is capped at one token
+    for (int i = 0; i < 10; i++) {
+      hedgingPolicy.onRequestCompleted(request, SLOW_SERVER, 10L);
+    }
+
+    // The alternate server with the lowest latency is picked
+    serverLatencyTracker.requestsSent(Collections.singletonList(ALTERNATE_SERVER_1));
+    serverLatencyTracker.responsesReceived(Collections.singletonList(ALTERNATE_SERVER_1),
+        Collections.singletonMap(ALTERNATE_SERVER_1, 100L),
+        Collections.<ServerInstance, Throwable>emptyMap());
+    Assert.assertEquals(hedgingPolicy.selectHedgeServer(request, SLOW_SERVER, segmentIds), ALTERNATE_SERVER_2);
+
+    // The token is only taken once the hedged request got sent
+    Assert.assertEquals(hedgingPolicy.selectHedgeServer(request, SLOW_SERVER, segmentIds), ALTERNATE_SERVER_2);
+    hedgingPolicy.onHedgeSent(request, ALTERNATE_SERVER_2);
+    Assert.assertEquals(serverLatencyTracker.getNumInFlightRequests(ALTERNATE_SERVER_2), 1);
+
+    // Budget exhausted
+    Assert.assertNull(hedgingPolicy.selectHedgeServer(request, SLOW_SERVER, segmentIds));
+
+    hedgingPolicy.onHedgeCompleted(request, ALTERNATE_SERVER_2, 10L, null);
+    Assert.assertEquals(serverLatencyTracker.getNumInFlightRequests(ALTERNATE_SERVER_2), 0);
+    Assert.assertEquals(serverLatencyTracker.getLatencyMs(ALTERNATE_SERVER_2), 10.0, 1.0);
+
+    // A cancelled hedged request adds no latency sample
+    hedgingPolicy.onHedgeSent(request, ALTERNATE_SERVER_1);
+    Assert.assertEquals(serverLatencyTracker.getNumInFlightRequests(ALTERNATE_SERVER_1), 1);
+    hedgingPolicy.onHedgeCancelled(request, ALTERNATE_SERVER_1);
+    Assert.assertEquals(serverLatencyTracker.getNumInFlightRequests(ALTERNATE_SERVER_1), 0);
+    Assert.assertEquals(serverLatencyTracker.getLatencyMs(ALTERNATE_SERVER_1), 100.0, 1.0);
+  }
+
+  private static class TestScatterGatherRequest implements ScatterGatherRequest {
+    private final BrokerRequest _brokerRequest;
+
+    private TestScatterGatherRequest(String query) {
+      _brokerRequest = COMPILER.compileToBrokerRequest(query);
+    }
+
+    @Override
+    public Map<ServerInstance, SegmentIdSet> getSegmentsServicesMap() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public byte[] getRequestForService(ServerInstance service, SegmentIdSet querySegments) {
+      return new byte[0];
+    }
+
+    @Override
+    public long getRequestId() {
+      return 0L;
+    }
+
+    @Override
+    public long getRequestTimeoutMs() {
+      return 10_000L;
+    }
+
+    @Override
+    public BrokerRequest getBrokerRequest() {
+      return _brokerRequest;
+    }
+  }
+
+  private static class AlternateServersRoutingTable implements RoutingTable {
+    private final List<ServerInstance> _alternateServers;
+
+    private AlternateServersRoutingTable(List<ServerInstance> alternateServers) {
+      _alternateServers = alternateServers;
+    }
+
+    @Override
+    public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request) {
+      return null;
+    }
+
+    @Override
+    public boolean routingTableExists(String tableName) {
+      return true;
+    }
+
+    @Override
+    public long getRoutingTableVersion(String tableName) {
+      return 0L;
+    }
+
+    @Override
+    public List<ServerInstance> findAlternateServers(String tableName, ServerInstance server,
+        SegmentIdSet segmentIds) {
+      return _alternateServers;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public String dumpSnapshot(String tableName) throws Exception {
+      return null;
+    }
+  }
+}
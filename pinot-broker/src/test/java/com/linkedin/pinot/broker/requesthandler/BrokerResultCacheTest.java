@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.linkedin.pinot.broker.routing.RoutingTable;
+import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for the broker result cache.
+ */
+public class BrokerResultCacheTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final String TABLE_NAME = "myTable_OFFLINE";
+  private static final long CACHE_SIZE_IN_BYTES = 1024 * 1024;
+  private static final long EXPIRATION_TIME_MS = TimeUnit.HOURS.toMillis(1L);
+
+  private VersionedRoutingTable _routingTable;
+  private BrokerResultCache _resultCache;
+
+  @BeforeMethod
+  public void setUp() {
+    _routingTable = new VersionedRoutingTable();
+    _resultCache =
+        new BrokerResultCache(_routingTable, CACHE_SIZE_IN_BYTES, EXPIRATION_TIME_MS,
+            new BrokerMetrics(new MetricsRegistry()));
+  }
+
+  @Test
+  public void testCacheHit() throws Exception {
+    BrokerResultCache.Key key = _resultCache.getKey(getBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE"));
+    Assert.assertNotNull(key);
+    Assert.assertNull(_resultCache.get(key));
+
+    Map<ServerInstance, DataTable> dataTableMap = getDataTableMap("numDocsScanned", "10");
+    _resultCache.put(key, dataTableMap);
+    Assert.assertEquals(_resultCache.getNumEntries(), 1L);
+    Assert.assertTrue(_resultCache.getSizeInBytes() > 0L);
+
+    BrokerResultCache.Key sameKey = _resultCache.getKey(getBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE"));
+    Assert.assertEquals(sameKey, key);
+    Map<ServerInstance, DataTable> cachedDataTableMap = _resultCache.get(sameKey);
+    Assert.assertNotNull(cachedDataTableMap);
+    Assert.assertEquals(cachedDataTableMap.keySet(), dataTableMap.keySet());
+    for (Map.Entry<ServerInstance, DataTable> entry : cachedDataTableMap.entrySet()) {
+      DataTable cachedDataTable = entry.getValue();
+      Assert.assertNotSame(cachedDataTable, dataTableMap.get(entry.getKey()));
+      Assert.assertEquals(cachedDataTable.getMetadata().get("numDocsScanned"), "10");
+    }
+  }
+
+  @Test
+  public void testRoutingTableChange() {
+    BrokerRequest brokerRequest = getBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE");
+    BrokerResultCache.Key key = _resultCache.getKey(brokerRequest);
+    Assert.assertNotNull(key);
+    _resultCache.put(key, getDataTableMap("numDocsScanned", "10"));
+
+    // Routing table rebuilt
+    _routingTable._version++;
+    BrokerResultCache.Key newKey = _resultCache.getKey(brokerRequest);
+    Assert.assertNotNull(newKey);
+    Assert.assertFalse(newKey.equals(key));
+    Assert.assertNull(_resultCache.get(newKey));
+
+    // Routing table not available
+    _routingTable._version = RoutingTable.INVALID_ROUTING_TABLE_VERSION;
+    Assert.assertNull(_resultCache.getKey(brokerRequest));
+  }
+
+  @Test
+  public void testTimeBoundaryChange() {
+    // The time boundary is attached to the OFFLINE broker request as a filter on the time column
+    BrokerResultCache.Key key =
+        _resultCache.getKey(getBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE WHERE daysSinceEpoch < 100"));
+    BrokerResultCache.Key movedKey =
+        _resultCache.getKey(getBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE WHERE daysSinceEpoch < 101"));
+    Assert.assertNotNull(key);
+    Assert.assertNotNull(movedKey);
+    Assert.assertFalse(movedKey.equals(key));
+  }
+
+  @Test
+  public void testNotCached() {
+    // Trace enabled
+    BrokerRequest brokerRequest = getBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE");
+    brokerRequest.setEnableTrace(true);
+    Assert.assertNull(_resultCache.getKey(brokerRequest));
+
+    // Response with processing exceptions
+    BrokerResultCache.Key key = _resultCache.getKey(getBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE"));
+    Assert.assertNotNull(key);
+    _resultCache.put(key, getDataTableMap(DataTable.EXCEPTION_METADATA_KEY + "200", "error"));
+    Assert.assertEquals(_resultCache.getNumEntries(), 0L);
+    Assert.assertNull(_resultCache.get(key));
+
+    // Response larger than the per entry limit
+    StringBuilder largeValue = new StringBuilder();
+    for (int i = 0; i < CACHE_SIZE_IN_BYTES / 8; i++) {
+      largeValue.append('a');
+    }
+    _resultCache.put(key, getDataTableMap("numDocsScanned", largeValue.toString()));
+    Assert.assertEquals(_resultCache.getNumEntries(), 0L);
+    Assert.assertEquals(_resultCache.getSizeInBytes(), 0L);
+  }
+
+  private static BrokerRequest getBrokerRequest(String query) {
+    return COMPILER.compileToBrokerRequest(query);
+  }
+
+  private static Map<ServerInstance, DataTable> getDataTableMap(String metadataKey, String metadataValue) {
+    Map<ServerInstance, DataTable> dataTableMap = new HashMap<>();
+    for (int i = 0; i < 2; i++) {
+      DataTable dataTable = new DataTableImplV2();
+      dataTable.getMetadata().put(metadataKey, metadataValue);
+      dataTableMap.put(new ServerInstance("localhost", 8000 + i), dataTable);
+    }
+    return dataTableMap;
+  }
+
+  private static class VersionedRoutingTable implements RoutingTable {
+    private long _version = 0L;
+
+    @Override
+    public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request) {
+      return null;
+    }
+
+    @Override
+    public boolean routingTableExists(String tableName) {
+      return TABLE_NAME.equals(tableName);
+    }
+
+    @Override
+    public long getRoutingTableVersion(String tableName) {
+      return TABLE_NAME.equals(tableName) ? _version : INVALID_ROUTING_TABLE_VERSION;
+    }
+
+    @Override
+    public List<ServerInstance> findAlternateServers(String tableName, ServerInstance server,
+        SegmentIdSet segmentIds) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public String dumpSnapshot(String tableName) throws Exception {
+      return null;
+    }
+  }
+}
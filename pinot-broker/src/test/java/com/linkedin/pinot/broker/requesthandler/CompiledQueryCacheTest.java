@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.pql.parsers.Pql2CompilationException;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for the compiled query cache.
+ */
+public class CompiledQueryCacheTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final long MAX_NUM_ENTRIES = 100L;
+
+  private BrokerMetrics _brokerMetrics;
+  private CompiledQueryCache _compiledQueryCache;
+
+  @BeforeMethod
+  public void setUp() {
+    _brokerMetrics = new BrokerMetrics(new MetricsRegistry());
+    _compiledQueryCache = new CompiledQueryCache(COMPILER, false, MAX_NUM_ENTRIES, _brokerMetrics);
+  }
+
+  @Test
+  public void testTemplateHit() throws Exception {
+    String[][] queries = new String[][]{
+        {"SELECT COUNT(*) FROM myTable WHERE foo = 'bar'", "SELECT COUNT(*) FROM myTable WHERE foo = 'baz'"},
+        {"SELECT * FROM myTable WHERE a > 5 AND b <= -3.5 LIMIT 10",
+            "SELECT *   FROM myTable\n\tWHERE a > 123 AND b <= 7. LIMIT 10"},
+        {"SELECT SUM(m) FROM myTable WHERE d BETWEEN 100 AND 200 GROUP BY c TOP 5",
+            "SELECT SUM(m) FROM myTable WHERE d BETWEEN -20 AND 30 GROUP BY c TOP 5"},
+        {"SELECT COUNT(*) FROM myTable WHERE name = 'it''s' OR name <> \"a\"",
+            "SELECT COUNT(*) FROM myTable WHERE name = 'x' OR name <> \"say \"\"hi\"\"\""},
+        {"SELECT SUM(m) FROM myTable WHERE c1 = 1 GROUP BY c2 HAVING SUM(m) > 10 TOP 3",
+            "SELECT SUM(m) FROM myTable WHERE c1 = 2 GROUP BY c2 HAVING SUM(m) > 20 TOP 3"},
+        {"SELECT COUNT(*) FROM myTable WHERE col_1 = .5 AND col-2 IN (1, 2, 3) OPTION(timeoutMs=1000)",
+            "SELECT COUNT(*) FROM myTable WHERE col_1 = 0.25 AND col-2 IN (1, 2, 3) OPTION(timeoutMs=1000)"},
+        {"SELECT COUNT(*) FROM myTable WHERE REGEXP_LIKE(c, 'a.*') AND d = 1",
+            "SELECT COUNT(*) FROM myTable WHERE REGEXP_LIKE(c, 'b[0-9]+') AND d = 2"}
+    };
+    for (String[] queryPair : queries) {
+      long templateHits = getMeterCount(BrokerMeter.COMPILED_QUERY_CACHE_TEMPLATE_HITS);
+      assertSameAsCompiler(queryPair[0]);
+      assertSameAsCompiler(queryPair[1]);
+      Assert.assertEquals(getMeterCount(BrokerMeter.COMPILED_QUERY_CACHE_TEMPLATE_HITS), templateHits + 1,
+          queryPair[1]);
+    }
+  }
+
+  @Test
+  public void testKeptLiterals() throws Exception {
+    // Literals of the IN, LIMIT, TOP and OPTION clauses are part of the template
+    String[] queries = new String[]{
+        "SELECT * FROM myTable WHERE a IN (1, 2) LIMIT 10",
+        "SELECT * FROM myTable WHERE a IN (2, 1) LIMIT 10",
+        "SELECT * FROM myTable WHERE a IN (1, 2) LIMIT 5, 20",
+        "SELECT SUM(m) FROM myTable GROUP BY c TOP 7",
+        "SELECT COUNT(*) FROM myTable OPTION(timeoutMs=5)"
+    };
+    for (String query : queries) {
+      assertSameAsCompiler(query);
+      assertSameAsCompiler(query);
+    }
+    Assert.assertEquals(getMeterCount(BrokerMeter.COMPILED_QUERY_CACHE_TEMPLATE_HITS), 0L);
+    Assert.assertEquals(getMeterCount(BrokerMeter.COMPILED_QUERY_CACHE_HITS), queries.length);
+    Assert.assertEquals(getMeterCount(BrokerMeter.COMPILED_QUERY_CACHE_MISSES), queries.length);
+  }
+
+  @Test
+  public void testReturnedCopies() throws Exception {
+    String query = "SELECT COUNT(*) FROM myTable WHERE foo = 'bar'";
+    BrokerRequest brokerRequest = _compiledQueryCache.compile(query);
+    brokerRequest.getFilterQuery().setValue(Collections.singletonList("modified"));
+    assertSameAsCompiler(query);
+    assertSameAsCompiler(query);
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    assertSameAsCompiler("SELECT COUNT(*) FROM myTable WHERE a = 1");
+    try {
+      _compiledQueryCache.compile("SELECT COUNT(*) FROM myTable WHERE a = 99999999999999999999");
+      Assert.fail("Query with an out of range literal should not compile");
+    } catch (Pql2CompilationException e) {
+      // Expected
+    }
+    try {
+      _compiledQueryCache.compile("SELECT COUNT(*) FROM myTable WHERE a = ");
+      Assert.fail("Query without literal should not compile");
+    } catch (Pql2CompilationException e) {
+      // Expected
+    }
+  }
+
+  private void assertSameAsCompiler(String query) {
+    Assert.assertEquals(_compiledQueryCache.compile(query), COMPILER.compileToBrokerRequest(query, false), query);
+  }
+
+  private long getMeterCount(BrokerMeter meter) {
+    return _brokerMetrics.addMeteredGlobalValue(meter, 0L, null).count();
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.routing.builder;
+
+import com.linkedin.pinot.broker.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.broker.routing.ServerLatencyTracker;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class LatencyAwareRoutingTableBuilderTest {
+  private static final String TABLE_NAME = "myTable_OFFLINE";
+  private static final int NUM_SEGMENTS = 120;
+  private static final String[] INSTANCES = {"Server_1.2.3.4_1234", "Server_1.2.3.5_2345", "Server_1.2.3.6_3456"};
+  private static final RoutingTableLookupRequest LOOKUP_REQUEST =
+      new RoutingTableLookupRequest(TABLE_NAME, Collections.<String>emptyList(), null);
+
+  private ServerLatencyTracker _serverLatencyTracker;
+  private LatencyAwareRoutingTableBuilder _routingTableBuilder;
+  private ServerInstance[] _servers;
+
+  @BeforeMethod
+  public void setUp() {
+    _serverLatencyTracker = new ServerLatencyTracker(new BaseConfiguration());
+    _routingTableBuilder = new LatencyAwareRoutingTableBuilder(_serverLatencyTracker);
+
+    // Every segment is hosted by every server
+    ExternalView externalView = new ExternalView(TABLE_NAME);
+    List<InstanceConfig> instanceConfigList = new ArrayList<>();
+    for (String instance : INSTANCES) {
+      for (int i = 0; i < NUM_SEGMENTS; i++) {
+        externalView.setState("segment_" + i, instance, "ONLINE");
+      }
+      instanceConfigList.add(new InstanceConfig(instance));
+    }
+    _routingTableBuilder.computeRoutingTableFromExternalView(TABLE_NAME, externalView, instanceConfigList);
+
+    _servers = new ServerInstance[INSTANCES.length];
+    for (int i = 0; i < INSTANCES.length; i++) {
+      _servers[i] = ServerInstance.forInstanceName(INSTANCES[i]);
+    }
+  }
+
+  @Test
+  public void testWithoutLatencyInformation() {
+    // Segments should be spread evenly over all servers
+    Map<ServerInstance, SegmentIdSet> routing = _routingTableBuilder.findServers(LOOKUP_REQUEST);
+    checkAllSegmentsRouted(routing);
+    for (ServerInstance server : _servers) {
+      Assert.assertEquals(routing.get(server).getSegments().size(), NUM_SEGMENTS / INSTANCES.length);
+    }
+    Assert.assertEquals(_routingTableBuilder.getRoutingTables().size(), 1);
+    Assert.assertEquals(_routingTableBuilder.getRoutingTables().get(0).getServerSet().size(), INSTANCES.length);
+  }
+
+  @Test
+  public void testSlowServerAvoided() {
+    Map<ServerInstance, Long> responseTimes = new HashMap<>();
+    responseTimes.put(_servers[0], 10L);
+    responseTimes.put(_servers[1], 10L);
+    responseTimes.put(_servers[2], 500L);
+    recordResponses(responseTimes, Collections.<ServerInstance, Throwable>emptyMap());
+
+    Map<ServerInstance, SegmentIdSet> routing = _routingTableBuilder.findServers(LOOKUP_REQUEST);
+    checkAllSegmentsRouted(routing);
+    Assert.assertFalse(routing.containsKey(_servers[2]));
+    Assert.assertEquals(routing.get(_servers[0]).getSegments().size(), NUM_SEGMENTS / 2);
+    Assert.assertEquals(routing.get(_servers[1]).getSegments().size(), NUM_SEGMENTS / 2);
+
+    // Same scores, so the same routing should be returned
+    Assert.assertSame(_routingTableBuilder.findServers(LOOKUP_REQUEST), routing);
+  }
+
+  @Test
+  public void testFailingServerAvoided() {
+    Map<ServerInstance, Long> responseTimes = new HashMap<>();
+    responseTimes.put(_servers[0], 10L);
+    responseTimes.put(_servers[1], 1L);
+    responseTimes.put(_servers[2], 10L);
+    recordResponses(responseTimes,
+        Collections.<ServerInstance, Throwable>singletonMap(_servers[1], new RuntimeException()));
+    Assert.assertEquals(_serverLatencyTracker.getLatencyMs(_servers[1]),
+        (double) ServerLatencyTracker.DEFAULT_ERROR_LATENCY_MS, 1.0);
+
+    Map<ServerInstance, SegmentIdSet> routing = _routingTableBuilder.findServers(LOOKUP_REQUEST);
+    checkAllSegmentsRouted(routing);
+    Assert.assertFalse(routing.containsKey(_servers[1]));
+  }
+
+  @Test
+  public void testBusyServerGetsFewerSegments() {
+    List<ServerInstance> busyServer = Collections.singletonList(_servers[0]);
+    for (int i = 0; i < 10; i++) {
+      _serverLatencyTracker.requestsSent(busyServer);
+    }
+    Assert.assertEquals(_serverLatencyTracker.getNumInFlightRequests(_servers[0]), 10);
+
+    Map<ServerInstance, SegmentIdSet> routing = _routingTableBuilder.findServers(LOOKUP_REQUEST);
+    checkAllSegmentsRouted(routing);
+    Assert.assertFalse(routing.containsKey(_servers[0]));
+
+    // Once the requests complete, the server gets its share of segments again
+    for (int i = 0; i < 10; i++) {
+      _serverLatencyTracker.responsesReceived(busyServer, Collections.singletonMap(_servers[0], 0L),
+          Collections.<ServerInstance, Throwable>emptyMap());
+    }
+    Assert.assertEquals(_serverLatencyTracker.getNumInFlightRequests(_servers[0]), 0);
+    routing = _routingTableBuilder.findServers(LOOKUP_REQUEST);
+    checkAllSegmentsRouted(routing);
+    Assert.assertTrue(routing.containsKey(_servers[0]));
+  }
+
+  @Test
+  public void testShortCircuitedRequestsComplete() {
+    // The gather short-circuits on the error of the second server, so the third one has neither response nor error
+    List<ServerInstance> servers = Arrays.asList(_servers);
+    _serverLatencyTracker.requestsSent(servers);
+    Map<ServerInstance, Long> responseTimes = new HashMap<>();
+    responseTimes.put(_servers[0], 10L);
+    responseTimes.put(_servers[1], 5L);
+    _serverLatencyTracker.responsesReceived(servers, responseTimes,
+        Collections.<ServerInstance, Throwable>singletonMap(_servers[1], new RuntimeException()));
+    for (ServerInstance server : _servers) {
+      Assert.assertEquals(_serverLatencyTracker.getNumInFlightRequests(server), 0);
+    }
+    Assert.assertEquals(_serverLatencyTracker.getLatencyMs(_servers[0]), 10.0, 1.0);
+    Assert.assertEquals(_serverLatencyTracker.getLatencyMs(_servers[1]),
+        (double) ServerLatencyTracker.DEFAULT_ERROR_LATENCY_MS, 1.0);
+
+    // The cancelled request is not charged any latency
+    Assert.assertEquals(_serverLatencyTracker.getLatencyMs(_servers[2]), 0.0);
+  }
+
+  private void recordResponses(Map<ServerInstance, Long> responseTimes, Map<ServerInstance, Throwable> errors) {
+    _serverLatencyTracker.requestsSent(responseTimes.keySet());
+    _serverLatencyTracker.responsesReceived(responseTimes.keySet(), responseTimes, errors);
+  }
+
+  private void checkAllSegmentsRouted(Map<ServerInstance, SegmentIdSet> routing) {
+    int numSegments = 0;
+    for (SegmentIdSet segmentIdSet : routing.values()) {
+      numSegments += segmentIdSet.getSegments().size();
+    }
+    Assert.assertEquals(numSegments, NUM_SEGMENTS);
+  }
+}
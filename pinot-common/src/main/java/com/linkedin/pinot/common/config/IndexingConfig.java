@@ -39,6 +39,8 @@ public class IndexingConfig {
   private String _starTreeFormat;
   private String _columnMinMaxValueGeneratorMode;
   private List<String> _noDictionaryColumns;
+  // Map from no dictionary column to the chunk compression type of its raw index (e.g. SNAPPY, LZ4, DEFLATE, DELTA)
+  private Map<String, String> _noDictionaryConfig;
   private List<String> _onHeapDictionaryColumns;
   private StarTreeIndexSpec _starTreeIndexSpec;
   private SegmentPartitionConfig _segmentPartitionConfig;
@@ -119,6 +121,14 @@ public class IndexingConfig {
     _noDictionaryColumns = noDictionaryColumns;
   }
 
+  public Map<String, String> getNoDictionaryConfig() {
+    return _noDictionaryConfig;
+  }
+
+  public void setNoDictionaryConfig(Map<String, String> noDictionaryConfig) {
+    _noDictionaryConfig = noDictionaryConfig;
+  }
+
   public void setOnHeapDictionaryColumns(List<String> onHeapDictionaryColumns) {
     _onHeapDictionaryColumns = onHeapDictionaryColumns;
   }
@@ -319,6 +319,7 @@ public class TableConfig {
     private String _sortedColumn;
     private List<String> _invertedIndexColumns;
     private List<String> _noDictionaryColumns;
+    private Map<String, String> _noDictionaryConfig;
     private List<String> _onHeapDictionaryColumns;
     private Map<String, String> _streamConfigs;
 
@@ -431,6 +432,11 @@ public class TableConfig {
       return this;
     }
 
+    public Builder setNoDictionaryConfig(Map<String, String> noDictionaryConfig) {
+      _noDictionaryConfig = noDictionaryConfig;
+      return this;
+    }
+
     public Builder setOnHeapDictionaryColumns(List<String> onHeapDictionaryColumns) {
       _onHeapDictionaryColumns = onHeapDictionaryColumns;
       return this;
@@ -493,6 +499,7 @@ public class TableConfig {
       }
       indexingConfig.setInvertedIndexColumns(_invertedIndexColumns);
       indexingConfig.setNoDictionaryColumns(_noDictionaryColumns);
+      indexingConfig.setNoDictionaryConfig(_noDictionaryConfig);
       indexingConfig.setOnHeapDictionaryColumns(_onHeapDictionaryColumns);
       indexingConfig.setStreamConfigs(_streamConfigs);
       // TODO: set SegmentPartitionConfig here
@@ -119,7 +119,10 @@ public final class MetricFieldSpec extends FieldSpec {
    */
   public enum DerivedMetricType {
     // HLL derived metric type.
-    HLL
+    HLL,
+
+    // KLL quantile sketch derived metric type.
+    KLL
   }
 
   @Override
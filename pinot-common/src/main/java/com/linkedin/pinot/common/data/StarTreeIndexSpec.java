@@ -27,6 +27,8 @@ import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 public class StarTreeIndexSpec {
   public static final Integer DEFAULT_MAX_LEAF_RECORDS = 100000; // TODO: determine a good number via experiment
   public static final int DEFAULT_SKIP_MATERIALIZATION_CARDINALITY_THRESHOLD = 10000;
+  public static final long DEFAULT_SORT_BUFFER_SIZE_IN_BYTES = 0L;
+  public static final int DEFAULT_NUM_SORT_THREADS = 0;
 
   /** The upper bound on the number of leaf records to be scanned for any query */
   private Integer maxLeafRecords = DEFAULT_MAX_LEAF_RECORDS;
@@ -41,6 +43,12 @@ public class StarTreeIndexSpec {
 
   private boolean enableOffHeapFormat = true;
 
+  /** Memory budget for sorting the records while building the star tree (0 means sorting in place without budget) */
+  private long sortBufferSizeInBytes = DEFAULT_SORT_BUFFER_SIZE_IN_BYTES;
+
+  /** Number of threads to sort the chunks of records exceeding the sort buffer (0 means number of processors) */
+  private int numSortThreads = DEFAULT_NUM_SORT_THREADS;
+
   public StarTreeIndexSpec() {}
 
   public Integer getMaxLeafRecords() {
@@ -121,4 +129,20 @@ public class StarTreeIndexSpec {
   public void setEnableOffHeapFormat(boolean enableOffHeapFormat) {
     this.enableOffHeapFormat = enableOffHeapFormat;
   }
+
+  public long getSortBufferSizeInBytes() {
+    return sortBufferSizeInBytes;
+  }
+
+  public void setSortBufferSizeInBytes(long sortBufferSizeInBytes) {
+    this.sortBufferSizeInBytes = sortBufferSizeInBytes;
+  }
+
+  public int getNumSortThreads() {
+    return numSortThreads;
+  }
+
+  public void setNumSortThreads(int numSortThreads) {
+    this.numSortThreads = numSortThreads;
+  }
 }
@@ -76,7 +76,23 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   LLC_QUERY_COUNT("queries", false),
   HLC_QUERY_COUNT("queries", false),
 
-  ROUTING_TABLE_REBUILD_FAILURES("failures", false);
+  ROUTING_TABLE_REBUILD_FAILURES("failures", false),
+
+  // Number of queries whose offline part is served from (hits) or not found in (misses) the broker result cache
+  RESULT_CACHE_HITS("queries", false),
+  RESULT_CACHE_MISSES("queries", false),
+
+  // Number of hedged requests (duplicate requests sent to another replica of a slow server), number of hedged requests
+  // that answered before the original request, and number of hedged requests not sent because the budget ran out
+  HEDGED_REQUESTS("requests", false),
+  HEDGED_REQUEST_WINS("requests", false),
+  HEDGING_BUDGET_EXHAUSTED("requests", false),
+
+  // Number of queries whose compiled broker request is served from (hits) or not found in (misses) the compiled query
+  // cache, and number of hits on a template shared by queries that only differ in their literals
+  COMPILED_QUERY_CACHE_HITS("queries", true),
+  COMPILED_QUERY_CACHE_MISSES("queries", true),
+  COMPILED_QUERY_CACHE_TEMPLATE_HITS("queries", true);
 
   private final String brokerMeterName;
   private final String unit;
@@ -33,7 +33,14 @@ public enum ServerGauge implements AbstractMetrics.Gauge {
   LAST_REALTIME_SEGMENT_COMPLETION_DURATION_SECONDS("seconds", false),
   KAFKA_PARTITION_OFFSET_LAG("messages", false),
   REALTIME_OFFHEAP_MEMORY_USED("bytes", false),
-  RUNNING_QUERIES("runningQueries", false);
+  RUNNING_QUERIES("runningQueries", false),
+  SEGMENT_RESULT_CACHE_SIZE_IN_BYTES("bytes", true),
+  SEGMENT_RESULT_CACHE_NUM_ENTRIES("entries", true),
+  SEGMENT_RESULT_CACHE_HIT_RATE_PERCENTAGE("percent", true),
+  DATA_BUFFER_DIRECT_BYTES("bytes", true),
+  DATA_BUFFER_MAPPED_BYTES("bytes", true),
+  TABLE_DATA_BUFFER_DIRECT_BYTES("bytes", false),
+  TABLE_DATA_BUFFER_MAPPED_BYTES("bytes", false);
 
   private final String gaugeName;
   private final String unit;
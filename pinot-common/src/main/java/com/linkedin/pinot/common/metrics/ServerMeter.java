@@ -46,7 +46,13 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   LLC_CONTROLLER_RESPONSE_KEEP("messages", false),
   LLC_CONTROLLER_RESPONSE_NOT_LEADER("messages", false),
   LLC_CONTROLLER_RESPONSE_FAILED("messages", false),
-  LLC_CONTROLLER_RESPONSE_COMMIT_SUCCESS("messages", false);
+  LLC_CONTROLLER_RESPONSE_COMMIT_SUCCESS("messages", false),
+  SEGMENT_DOWNLOADS("segments", false),
+  SEGMENT_DOWNLOADED_BYTES("bytes", false),
+  SEGMENT_DOWNLOADS_SKIPPED_WITH_MATCHING_CRC("segments", false),
+  SEGMENT_PRELOAD_FAILURES("segments", true),
+  DATA_BUFFER_RESERVATIONS_QUEUED("reservations", true),
+  DATA_BUFFER_RESERVATIONS_REFUSED("reservations", true);
 
   private final String meterName;
   private final String unit;
@@ -23,7 +23,11 @@ import com.linkedin.pinot.common.Utils;
 *
 */
 public enum ServerTimer implements AbstractMetrics.Timer {
-  CURRENT_MSG_EVENT_TIMESTAMP_LAG("currentMsgEventTimestampLag", false);
+  CURRENT_MSG_EVENT_TIMESTAMP_LAG("currentMsgEventTimestampLag", false),
+  SEGMENT_DOWNLOAD_TIME("milliseconds", false),
+  SEGMENT_UNTAR_TIME("milliseconds", false),
+  SEGMENT_LOAD_TIME("milliseconds", false),
+  SEGMENT_PRELOAD_TIME("milliseconds", true);
 
   private final String timerName;
   private final boolean global;
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.query;
+
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.BrokerResponse;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Reduce service that can also merge the data tables one at a time, as they are gathered from the servers.
+ * @param <T> type of broker response.
+ */
+@ThreadSafe
+public interface IncrementalReduceService<T extends BrokerResponse> extends ReduceService<T> {
+
+  /**
+   * Start reducing the data tables of a query.
+   *
+   * @param brokerRequest broker request.
+   * @param brokerMetrics broker metrics to track execution statistics.
+   * @return reducer to pass the data tables to.
+   */
+  @Nonnull
+  IncrementalReducer<T> newReducer(@Nonnull BrokerRequest brokerRequest, @Nullable BrokerMetrics brokerMetrics);
+}
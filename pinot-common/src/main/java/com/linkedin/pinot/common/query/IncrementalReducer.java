@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.query;
+
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Reduces the data tables of one query into a broker response. Data tables are merged as they are passed in, so that
+ * they do not need to be kept until all servers responded.
+ * @param <T> type of broker response.
+ */
+@ThreadSafe
+public interface IncrementalReducer<T extends BrokerResponse> {
+
+  /**
+   * Merge the data table returned by a server.
+   *
+   * @param serverInstance server instance which returned the data table.
+   * @param dataTable data table.
+   */
+  void reduce(@Nonnull ServerInstance serverInstance, @Nonnull DataTable dataTable);
+
+  /**
+   * Get the broker response for all data tables reduced so far. Must be called only once, after the last data table
+   * got reduced.
+   *
+   * @return broker response.
+   */
+  @Nonnull
+  T getBrokerResponse();
+}
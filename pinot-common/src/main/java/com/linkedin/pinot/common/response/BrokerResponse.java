@@ -75,6 +75,16 @@ public interface BrokerResponse {
    */
   long getNumEntriesScannedPostFilter();
 
+  /**
+   * Get total thread CPU time in nanoseconds used by the servers while processing the query.
+   */
+  long getThreadCpuTimeNs();
+
+  /**
+   * Get total bytes allocated on the heap by the servers while processing the query.
+   */
+  long getAllocatedBytes();
+
   /**
    * Get total number of documents within the table hit.
    */
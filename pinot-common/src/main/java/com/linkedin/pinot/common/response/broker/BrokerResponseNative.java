@@ -39,7 +39,7 @@ import org.json.JSONObject;
  *
  * Supports serialization via JSON.
  */
-@JsonPropertyOrder({"selectionResults", "aggregationResults", "exceptions", "numServersQueried", "numServersResponded", "numDocsScanned", "numEntriesScannedInFilter", "numEntriesScannedPostFilter", "totalDocs", "timeUsedMs", "segmentStatistics", "traceInfo"})
+@JsonPropertyOrder({"selectionResults", "aggregationResults", "exceptions", "numServersQueried", "numServersResponded", "numDocsScanned", "numEntriesScannedInFilter", "numEntriesScannedPostFilter", "totalDocs", "threadCpuTimeNs", "allocatedBytes", "timeUsedMs", "segmentStatistics", "traceInfo"})
 public class BrokerResponseNative implements BrokerResponse {
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
@@ -53,6 +53,8 @@ public class BrokerResponseNative implements BrokerResponse {
   private long _numEntriesScannedInFilter = 0L;
   private long _numEntriesScannedPostFilter = 0L;
   private long _totalDocs = 0L;
+  private long _threadCpuTimeNs = 0L;
+  private long _allocatedBytes = 0L;
   private long _timeUsedMs = 0L;
 
   private SelectionResults _selectionResults;
@@ -179,6 +181,28 @@ public class BrokerResponseNative implements BrokerResponse {
     _totalDocs = totalDocs;
   }
 
+  @JsonProperty("threadCpuTimeNs")
+  @Override
+  public long getThreadCpuTimeNs() {
+    return _threadCpuTimeNs;
+  }
+
+  @JsonProperty("threadCpuTimeNs")
+  public void setThreadCpuTimeNs(long threadCpuTimeNs) {
+    _threadCpuTimeNs = threadCpuTimeNs;
+  }
+
+  @JsonProperty("allocatedBytes")
+  @Override
+  public long getAllocatedBytes() {
+    return _allocatedBytes;
+  }
+
+  @JsonProperty("allocatedBytes")
+  public void setAllocatedBytes(long allocatedBytes) {
+    _allocatedBytes = allocatedBytes;
+  }
+
   @JsonProperty("timeUsedMs")
   public long getTimeUsedMs() {
     return _timeUsedMs;
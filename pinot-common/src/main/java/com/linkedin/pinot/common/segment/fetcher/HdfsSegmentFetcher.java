@@ -16,8 +16,11 @@
 package com.linkedin.pinot.common.segment.fetcher;
 
 import com.google.common.base.Strings;
+import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.common.utils.retry.RetryPolicies;
 import com.linkedin.pinot.common.utils.retry.RetryPolicy;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -27,6 +30,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.Callable;
 
 import static com.linkedin.pinot.common.utils.CommonConstants.SegmentFetcher.RETRY;
@@ -37,7 +41,7 @@ import static com.linkedin.pinot.common.utils.CommonConstants.SegmentFetcher.Hdf
 import static com.linkedin.pinot.common.utils.CommonConstants.SegmentFetcher.HdfsSegmentFetcher.KEYTAB;
 import static com.linkedin.pinot.common.utils.CommonConstants.SegmentFetcher.HdfsSegmentFetcher.PRINCIPLE;
 
-public class HdfsSegmentFetcher implements SegmentFetcher {
+public class HdfsSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HdfsSegmentFetcher.class);
   private FileSystem hadoopFS = null;
@@ -122,4 +126,40 @@ public class HdfsSegmentFetcher implements SegmentFetcher {
       throw ex;
     }
   }
+
+  @Override
+  public void fetchAndUntarSegmentToLocal(final String uri, final File outputDir) throws Exception {
+    LOGGER.debug("starting to fetch and untar segment from hdfs");
+    try {
+      final Path remoteFile = new Path(uri);
+
+      RetryPolicy fixDelayRetryPolicy = RetryPolicies.fixedDelayRetryPolicy(retryCount, retryWaitMs);
+      fixDelayRetryPolicy.attempt(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          if (hadoopFS == null) {
+            throw new RuntimeException("hadoopFS client is not initialized when trying to copy files");
+          }
+          FileUtils.deleteQuietly(outputDir);
+          InputStream inputStream = null;
+          try {
+            long startMs = System.currentTimeMillis();
+            inputStream = hadoopFS.open(remoteFile);
+            TarGzCompressionUtils.unTar(inputStream, outputDir);
+            LOGGER.debug("untarred {} from hdfs to {} in local, take {} ms", uri, outputDir,
+                System.currentTimeMillis() - startMs);
+            return true;
+          } catch (IOException ex) {
+            LOGGER.warn(String.format("failed to fetch and untar segment %s from hdfs, might retry", uri), ex);
+            return false;
+          } finally {
+            IOUtils.closeQuietly(inputStream);
+          }
+        }
+      });
+    } catch (Exception ex) {
+      LOGGER.error(String.format("failed to fetch and untar %s from hdfs to local %s", uri, outputDir), ex);
+      throw ex;
+    }
+  }
 }
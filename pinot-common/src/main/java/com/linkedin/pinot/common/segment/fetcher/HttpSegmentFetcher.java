@@ -20,6 +20,7 @@ import com.linkedin.pinot.common.utils.FileUploadUtils;
 import com.linkedin.pinot.common.utils.retry.RetryPolicies;
 import com.linkedin.pinot.common.utils.retry.RetryPolicy;
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,7 +30,7 @@ import java.util.concurrent.Callable;
 import static com.linkedin.pinot.common.utils.CommonConstants.SegmentFetcher.*;
 
 
-public class HttpSegmentFetcher implements SegmentFetcher {
+public class HttpSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpSegmentFetcher.class);
   private int retryCount = RETRY_DEFAULT;
@@ -64,4 +65,26 @@ public class HttpSegmentFetcher implements SegmentFetcher {
     });
   }
 
+  @Override
+  public void fetchAndUntarSegmentToLocal(final String uri, final File outputDir) throws Exception {
+    RetryPolicy policy = RetryPolicies.exponentialBackoffRetryPolicy(retryCount, retryWaitMs, 5);
+    policy.attempt(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        FileUtils.deleteQuietly(outputDir);
+        try {
+          final long httpGetResponseContentLength = FileUploadUtils.getFileAndUntar(uri, outputDir);
+          LOGGER.info("Downloaded and untarred file from {} to {}; Length of httpGetResponseContent: {}", uri,
+              outputDir, httpGetResponseContentLength);
+          return true;
+        } catch (PermanentDownloadException e) {
+          LOGGER.error("Failed to download file from {}, won't retry", uri, e);
+          throw e;
+        } catch (Exception e) {
+          LOGGER.error("Failed to download file from {}, might retry", uri, e);
+          return false;
+        }
+      }
+    });
+  }
 }
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.common.segment.fetcher;
 
+import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -22,7 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 
-public class LocalFileSegmentFetcher implements SegmentFetcher {
+public class LocalFileSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LocalFileSegmentFetcher.class);
 
@@ -35,4 +36,10 @@ public class LocalFileSegmentFetcher implements SegmentFetcher {
     FileUtils.copyFile(new File(uri), tempFile);
     LOGGER.info("Copy file from {} to {}; Length of file: {}", uri, tempFile, tempFile.length());
   }
+
+  @Override
+  public void fetchAndUntarSegmentToLocal(String uri, File outputDir) throws Exception {
+    TarGzCompressionUtils.unTar(new File(uri), outputDir);
+    LOGGER.info("Untarred file from {} to {}", uri, outputDir);
+  }
 }
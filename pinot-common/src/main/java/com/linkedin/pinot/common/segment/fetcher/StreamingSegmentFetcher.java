@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import java.io.File;
+
+
+/**
+ * Segment fetcher which can stream the compressed tar of a segment straight into the untarred segment, without
+ * writing the tar file to local disk first. This halves the disk I/O and the free disk space needed to download a
+ * segment.
+ */
+public interface StreamingSegmentFetcher extends SegmentFetcher {
+
+  /**
+   * Fetches the compressed tar of a segment from the given URI and untars it on the fly into the output directory.
+   * The output directory is cleaned up before each retry.
+   */
+  void fetchAndUntarSegmentToLocal(String uri, File outputDir) throws Exception;
+}
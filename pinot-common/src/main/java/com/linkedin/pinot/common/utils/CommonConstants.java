@@ -223,6 +223,22 @@ public class CommonConstants {
     public static final String CONFIG_OF_ENABLE_SHUTDOWN_DELAY = "pinot.server.instance.enable.shutdown.delay";
     public static final String CONFIG_OF_ENABLE_SPLIT_COMMIT = "pinot.server.instance.enable.split.commit";
     public static final String CONFIG_OF_REALTIME_OFFHEAP_ALLOCATION = "pinot.server.instance.realtime.alloc.offheap";
+    public static final String CONFIG_OF_REALTIME_INDEXING_BATCH_SIZE =
+        "pinot.server.instance.realtime.indexing.batch.size";
+    public static final String CONFIG_OF_REALTIME_PIPELINED_INDEXING =
+        "pinot.server.instance.realtime.pipelined.indexing";
+    public static final String CONFIG_OF_SEGMENT_PRELOAD_ENABLE = "pinot.server.segment.preload.enable";
+    public static final String CONFIG_OF_SEGMENT_DOWNLOAD_THREADS = "pinot.server.segment.download.threads";
+    public static final String CONFIG_OF_SEGMENT_UNTAR_THREADS = "pinot.server.segment.untar.threads";
+    public static final String CONFIG_OF_SEGMENT_LOAD_THREADS = "pinot.server.segment.load.threads";
+    public static final String CONFIG_OF_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND =
+        "pinot.server.segment.download.maxBytesPerSecond";
+    public static final String CONFIG_OF_SEGMENT_UNTAR_MAX_BYTES_PER_SECOND =
+        "pinot.server.segment.untar.maxBytesPerSecond";
+    public static final String CONFIG_OF_SEGMENT_STREAMING_DOWNLOAD_ENABLE =
+        "pinot.server.segment.download.streaming.enable";
+    public static final String CONFIG_OF_QUERY_COLUMN_STATS_DECAY_INTERVAL_MS =
+        "pinot.server.query.column.stats.decay.interval.ms";
 
     public static final int DEFAULT_ADMIN_API_PORT = 8097;
     public static final String DEFAULT_READ_MODE = "heap";
@@ -242,7 +258,20 @@ public class CommonConstants {
         "com.linkedin.pinot.server.request.SimpleRequestHandlerFactory";
     public static final String DEFAULT_SEGMENT_LOAD_MAX_RETRY_COUNT = "5";
     public static final String DEFAULT_SEGMENT_LOAD_MIN_RETRY_DELAY_MILLIS = "60000";
+    public static final boolean DEFAULT_SEGMENT_PRELOAD_ENABLE = false;
+    public static final int DEFAULT_SEGMENT_DOWNLOAD_THREADS = 4;
+    public static final int DEFAULT_SEGMENT_UNTAR_THREADS = 2;
+    public static final int DEFAULT_SEGMENT_LOAD_THREADS = Runtime.getRuntime().availableProcessors();
+    // 0 means no throttling
+    public static final long DEFAULT_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND = 0L;
+    public static final long DEFAULT_SEGMENT_UNTAR_MAX_BYTES_PER_SECOND = 0L;
+    public static final boolean DEFAULT_SEGMENT_STREAMING_DOWNLOAD_ENABLE = false;
+    public static final long DEFAULT_QUERY_COLUMN_STATS_DECAY_INTERVAL_MS = 60 * 60 * 1000L;
     public static final String PREFIX_OF_CONFIG_OF_SEGMENT_FETCHER_FACTORY = "pinot.server.segment.fetcher";
+    // Off-heap memory budgets, see PinotDataBufferMemoryManager for the keys under this prefix
+    public static final String PREFIX_OF_CONFIG_OF_MEMORY = "pinot.server.memory";
+    // Segment warm-up I/O budget, see SegmentWarmer for the keys under this prefix
+    public static final String PREFIX_OF_CONFIG_OF_SEGMENT_WARMUP = "pinot.server.segment.warmup";
     public static final String DEFAULT_STAR_TREE_FORMAT_VERSION = "OFF_HEAP";
     public static final String DEFAULT_COLUMN_MIN_MAX_VALUE_GENERATOR_MODE = "TIME";
   }
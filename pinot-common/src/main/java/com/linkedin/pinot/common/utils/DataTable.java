@@ -31,6 +31,8 @@ public interface DataTable {
   String NUM_ENTRIES_SCANNED_IN_FILTER_METADATA_KEY = "numEntriesScannedInFilter";
   String NUM_ENTRIES_SCANNED_POST_FILTER_METADATA_KEY = "numEntriesScannedPostFilter";
   String TOTAL_DOCS_METADATA_KEY = "totalDocs";
+  String THREAD_CPU_TIME_NS_METADATA_KEY = "threadCpuTimeNs";
+  String ALLOCATED_BYTES_METADATA_KEY = "allocatedBytes";
   String TIME_USED_MS_METADATA_KEY = "timeUsedMs";
   String TRACE_INFO_METADATA_KEY = "traceInfo";
   String REQUEST_ID_METADATA_KEY = "requestId";
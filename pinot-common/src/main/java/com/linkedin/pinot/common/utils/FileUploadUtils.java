@@ -39,6 +39,7 @@ import org.apache.commons.httpclient.methods.multipart.Part;
 import org.apache.commons.httpclient.methods.multipart.PartSource;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.http.entity.ContentType;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -261,9 +262,70 @@ public class FileUploadUtils {
   public static long getFile(String url, File file) throws Exception {
     GetMethod httpget = null;
     try {
-      httpget = new GetMethod(url);
-      int responseCode = FILE_UPLOAD_HTTP_CLIENT.executeMethod(httpget);
-      if (responseCode >= 400) {
+      httpget = executeGetMethod(url);
+      long ret = httpget.getResponseContentLength();  // Expected to be -1 if there is no content-length header.
+      BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+      IOUtils.copyLarge(httpget.getResponseBodyAsStream(), output);
+      IOUtils.closeQuietly(output);
+      if (ret != -1 && ret != file.length()) {
+        // The content-length header was present and does not match the file length.
+        throw new RuntimeException("File length " + file.length() + " does not match content length " + ret);
+      }
+      return ret;
+    } catch (Exception ex) {
+      LOGGER.error("Caught exception", ex);
+      throw ex;
+    } finally {
+      if (httpget != null) {
+        httpget.releaseConnection();
+      }
+    }
+  }
+
+  /**
+   * Downloads the compressed tar file from the given URL and untars it on the fly into the output directory, without
+   * writing the tar file to disk.
+   *
+   * @return The content length of the response, or -1 if there is no content-length header
+   */
+  public static long getFileAndUntar(String url, File outputDir) throws Exception {
+    GetMethod httpget = null;
+    try {
+      httpget = executeGetMethod(url);
+      long ret = httpget.getResponseContentLength();  // Expected to be -1 if there is no content-length header.
+      CountingInputStream input = new CountingInputStream(httpget.getResponseBodyAsStream());
+      TarGzCompressionUtils.unTar(input, outputDir);
+      if (ret != -1 && ret != input.getByteCount()) {
+        // The content-length header was present and does not match the number of bytes read.
+        throw new RuntimeException(
+            "Number of bytes read " + input.getByteCount() + " does not match content length " + ret);
+      }
+      return ret;
+    } catch (Exception ex) {
+      LOGGER.error("Caught exception", ex);
+      throw ex;
+    } finally {
+      if (httpget != null) {
+        httpget.releaseConnection();
+      }
+    }
+  }
+
+  /**
+   * Executes a GET request on the given URL, and throws {@link PermanentDownloadException} on client errors or
+   * {@link RuntimeException} on server errors, which the caller may retry.
+   */
+  private static GetMethod executeGetMethod(String url) throws Exception {
+    GetMethod httpget = new GetMethod(url);
+    int responseCode;
+    try {
+      responseCode = FILE_UPLOAD_HTTP_CLIENT.executeMethod(httpget);
+    } catch (Exception e) {
+      httpget.releaseConnection();
+      throw e;
+    }
+    if (responseCode >= 400) {
+      try {
         long contentLength = httpget.getResponseContentLength();
         if (contentLength > 0) {
           InputStream responseBodyAsStream = httpget.getResponseBodyAsStream();
@@ -272,33 +334,19 @@ public class FileUploadUtils {
           responseBodyAsStream.read(buffer);
           LOGGER.error("Error response from url:{} \n {}", url, new String(buffer));
         }
-        String errMsg = "Received error response from server while downloading file. url:" + url
-            + " response code:" + responseCode;
-        if (responseCode >= 500) {
-          // Caller may retry.
-          throw new RuntimeException(errMsg);
-        } else {
-          throw new PermanentDownloadException(errMsg);
-        }
-      } else {
-        long ret = httpget.getResponseContentLength();  // Expected to be -1 if there is no content-length header.
-        BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(file));
-        IOUtils.copyLarge(httpget.getResponseBodyAsStream(), output);
-        IOUtils.closeQuietly(output);
-        if (ret != -1 && ret != file.length()) {
-          // The content-length header was present and does not match the file length.
-          throw new RuntimeException("File length " + file.length() + " does not match content length " + ret);
-        }
-        return ret;
-      }
-    } catch (Exception ex) {
-      LOGGER.error("Caught exception", ex);
-      throw ex;
-    } finally {
-      if (httpget != null) {
+      } finally {
         httpget.releaseConnection();
       }
+      String errMsg = "Received error response from server while downloading file. url:" + url
+          + " response code:" + responseCode;
+      if (responseCode >= 500) {
+        // Caller may retry.
+        throw new RuntimeException(errMsg);
+      } else {
+        throw new PermanentDownloadException(errMsg);
+      }
     }
+    return httpget;
   }
 
   public enum FileUploadType {
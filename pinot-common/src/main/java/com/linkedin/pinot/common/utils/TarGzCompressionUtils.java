@@ -29,7 +29,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
-
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
@@ -39,6 +40,8 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +53,29 @@ import org.slf4j.LoggerFactory;
 public class TarGzCompressionUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(TarGzCompressionUtils.class);
   public static final String TAR_GZ_FILE_EXTENTION = ".tar.gz";
+  public static final String TAR_LZ4_FILE_EXTENSION = ".tar.lz4";
+
+  // Magic bytes at the beginning of the LZ4 streams, used to detect the compression type when untarring
+  private static final byte[] LZ4_BLOCK_MAGIC = {'L', 'Z', '4', 'B', 'l', 'o', 'c', 'k'};
+
+  /**
+   * Compression types supported for the tarred segments. LZ4 compresses and decompresses several times faster than
+   * GZIP at the cost of a lower compression ratio.
+   */
+  public enum CompressionType {
+    GZIP(TAR_GZ_FILE_EXTENTION),
+    LZ4(TAR_LZ4_FILE_EXTENSION);
+
+    private final String _fileExtension;
+
+    CompressionType(String fileExtension) {
+      _fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+      return _fileExtension;
+    }
+  }
 
   /**
    * Creates a tar.gz file at the specified path with the contents of the
@@ -70,18 +96,34 @@ public class TarGzCompressionUtils {
   }
 
   public static String createTarGzOfDirectory(String directoryPath, String tarGzPath, String entryPrefix) throws IOException {
+    return createTarOfDirectory(directoryPath, tarGzPath, entryPrefix, CompressionType.GZIP);
+  }
+
+  /**
+   * Creates a compressed tar file of the specified directory, with the file extension of the compression type appended
+   * to the path if missing.
+   *
+   * @return The path of the compressed tar file
+   */
+  public static String createTarOfDirectory(String directoryPath, String tarPath, String entryPrefix,
+      CompressionType compressionType) throws IOException {
     FileOutputStream fOut = null;
     BufferedOutputStream bOut = null;
-    GzipCompressorOutputStream gzOut = null;
+    OutputStream gzOut = null;
     TarArchiveOutputStream tOut = null;
-    if (!tarGzPath.endsWith(TAR_GZ_FILE_EXTENTION)) {
-      tarGzPath = tarGzPath + TAR_GZ_FILE_EXTENTION;
+    String tarGzPath = tarPath;
+    if (!tarGzPath.endsWith(compressionType.getFileExtension())) {
+      tarGzPath = tarGzPath + compressionType.getFileExtension();
     }
 
     try {
       fOut = new FileOutputStream(new File(tarGzPath));
       bOut = new BufferedOutputStream(fOut);
-      gzOut = new GzipCompressorOutputStream(bOut);
+      if (compressionType == CompressionType.LZ4) {
+        gzOut = new LZ4BlockOutputStream(bOut);
+      } else {
+        gzOut = new GzipCompressorOutputStream(bOut);
+      }
       tOut = new TarArchiveOutputStream(gzOut);
       tOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
       addFileToTarGz(tOut, directoryPath, entryPrefix);
@@ -172,11 +214,31 @@ public class TarGzCompressionUtils {
       ArchiveException {
 
     LOGGER.debug(String.format("Untaring %s to dir %s.", inputFile.getAbsolutePath(), outputDir.getAbsolutePath()));
+    InputStream inputStream = new FileInputStream(inputFile);
+    try {
+      return unTar(inputStream, outputDir);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  /**
+   * Untars a compressed tar stream into the output directory on the fly, without buffering the tar file on disk. The
+   * compression type (GZIP or LZ4) is detected from the magic bytes of the stream, and the checksums embedded in the
+   * compressed stream are validated while decompressing. The stream is read to the end but not closed.
+   *
+   * @param inputStream the compressed tar stream
+   * @param outputDir the output directory
+   * @return The {@link List} of {@link File}s with the untared content.
+   */
+  public static List<File> unTar(final InputStream inputStream, final File outputDir) throws IOException,
+      ArchiveException {
     TarArchiveInputStream debInputStream = null;
     InputStream is = null;
     final List<File> untaredFiles = new LinkedList<File>();
     try {
-      is = new GzipCompressorInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
+      // Closing the decompressing streams releases their resources, but must not close the stream of the caller
+      is = getDecompressedInputStream(new CloseShieldInputStream(inputStream));
       debInputStream = (TarArchiveInputStream) new ArchiveStreamFactory().createArchiveInputStream("tar", is);
       TarArchiveEntry entry = null;
       while ((entry = (TarArchiveEntry) debInputStream.getNextEntry()) != null) {
@@ -209,6 +271,8 @@ public class TarGzCompressionUtils {
         }
         untaredFiles.add(outputFile);
       }
+      // Consume the end of the compressed stream so that its trailing checksum is validated
+      IOUtils.copy(is, new NullOutputStream());
     } finally {
       IOUtils.closeQuietly(debInputStream);
       IOUtils.closeQuietly(is);
@@ -221,7 +285,7 @@ public class TarGzCompressionUtils {
     TarArchiveInputStream debInputStream = null;
     InputStream is = null;
     try {
-      is = new GzipCompressorInputStream(tarGzInputStream);
+      is = getDecompressedInputStream(tarGzInputStream);
       debInputStream = (TarArchiveInputStream) new ArchiveStreamFactory().createArchiveInputStream("tar", is);
       TarArchiveEntry entry = null;
       while ((entry = (TarArchiveEntry) debInputStream.getNextEntry()) != null) {
@@ -237,4 +301,40 @@ public class TarGzCompressionUtils {
     }
     return null;
   }
+
+  /**
+   * Wraps the compressed stream with the decompressor matching its magic bytes. Streams that are neither GZIP nor LZ4
+   * are treated as GZIP, which fails with a meaningful error.
+   */
+  private static InputStream getDecompressedInputStream(InputStream compressedInputStream) throws IOException {
+    InputStream bufferedInputStream = new BufferedInputStream(compressedInputStream);
+    bufferedInputStream.mark(LZ4_BLOCK_MAGIC.length);
+    byte[] magic = new byte[LZ4_BLOCK_MAGIC.length];
+    int numBytesRead = 0;
+    while (numBytesRead < magic.length) {
+      int n = bufferedInputStream.read(magic, numBytesRead, magic.length - numBytesRead);
+      if (n < 0) {
+        break;
+      }
+      numBytesRead += n;
+    }
+    bufferedInputStream.reset();
+    if (startsWith(magic, numBytesRead, LZ4_BLOCK_MAGIC)) {
+      return new LZ4BlockInputStream(bufferedInputStream);
+    } else {
+      return new GzipCompressorInputStream(bufferedInputStream);
+    }
+  }
+
+  private static boolean startsWith(byte[] bytes, int numBytes, byte[] prefix) {
+    if (numBytes < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
 }
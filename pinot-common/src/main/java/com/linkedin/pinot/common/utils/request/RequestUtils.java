@@ -16,6 +16,8 @@
 package com.linkedin.pinot.common.utils.request;
 
 import com.google.common.collect.ImmutableSet;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterOperator;
@@ -44,6 +46,7 @@ public class RequestUtils {
   }
 
   private static final String USE_STAR_TREE_KEY = "useStarTree";
+  private static final String USE_PARTITIONED_GROUP_BY_COMBINE_KEY = "usePartitionedGroupByCombine";
   private static final Pql2Compiler PQL2_COMPILER = new Pql2Compiler();
 
 
@@ -162,12 +165,17 @@ public class RequestUtils {
 
   public static final Set<String> ALLOWED_AGGREGATION_FUNCTIONS = ImmutableSet.of("sum", "fasthll");
 
+  // Percentile functions that can be answered from the pre-aggregated KLL sketch derived metrics
+  private static final String PERCENTILE_KLL_PREFIX = "percentilekll";
+  private static final String MV_SUFFIX = "mv";
+
   /**
    * Returns true for the following, false otherwise:
    * - BrokerRequest debug options have not explicitly disabled use of star tree
    * - Query is not aggregation/group-by
    * - Segment does not contain star tree
-   * - The only aggregation function in the query should be in {@link #ALLOWED_AGGREGATION_FUNCTIONS}
+   * - The only aggregation function in the query should be in {@link #ALLOWED_AGGREGATION_FUNCTIONS}, or be a
+   *   single-value PERCENTILEKLL on a KLL derived metric column
    * - All group by columns and predicate columns are materialized
    * - Predicates do not contain any metric columns
    * - Query consists only of simple predicates, conjoined by AND.
@@ -222,7 +230,8 @@ public class RequestUtils {
     // We currently support only limited aggregations
     for (AggregationInfo aggregationInfo : aggregationsInfo) {
       String aggregationFunctionName = aggregationInfo.getAggregationType().toLowerCase();
-      if (!ALLOWED_AGGREGATION_FUNCTIONS.contains(aggregationFunctionName)) {
+      if (!ALLOWED_AGGREGATION_FUNCTIONS.contains(aggregationFunctionName) && !isPercentileKllOnDerivedMetric(
+          segmentMetadata, aggregationFunctionName, aggregationInfo)) {
         return false;
       }
     }
@@ -274,6 +283,24 @@ public class RequestUtils {
     return true;
   }
 
+  /**
+   * Returns true if the aggregation is a single-value PERCENTILEKLL on a KLL derived metric column, which stores the
+   * pre-aggregated sketches in the star tree.
+   */
+  private static boolean isPercentileKllOnDerivedMetric(SegmentMetadata segmentMetadata,
+      String aggregationFunctionName, AggregationInfo aggregationInfo) {
+    if (!aggregationFunctionName.startsWith(PERCENTILE_KLL_PREFIX) || aggregationFunctionName.endsWith(MV_SUFFIX)) {
+      return false;
+    }
+    String column = aggregationInfo.getAggregationParams().get("column");
+    if (column == null) {
+      return false;
+    }
+    FieldSpec fieldSpec = segmentMetadata.getSchema().getFieldSpecFor(column);
+    return fieldSpec instanceof MetricFieldSpec
+        && ((MetricFieldSpec) fieldSpec).getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.KLL;
+  }
+
   /**
    * This method returns the value of {@link #USE_STAR_TREE_KEY} boolean flag specified in the debug options
    * in broker request. If the flag is not specified in the debug options, it returns true.
@@ -290,6 +317,21 @@ public class RequestUtils {
     return (useStarTreeString != null) ? Boolean.valueOf(useStarTreeString) : true;
   }
 
+  /**
+   * This method returns the value of {@link #USE_PARTITIONED_GROUP_BY_COMBINE_KEY} boolean flag specified in the debug
+   * options in broker request. If the flag is not specified in the debug options, it returns false.
+   *
+   * @param brokerRequest Broker Request
+   * @return Value of {@link #USE_PARTITIONED_GROUP_BY_COMBINE_KEY} debug option, or false if option not specified.
+   */
+  public static boolean isPartitionedGroupByCombineEnabledInBrokerRequest(BrokerRequest brokerRequest) {
+    Map<String, String> debugOptions = brokerRequest.getDebugOptions();
+    if (debugOptions == null) {
+      return false;
+    }
+    return Boolean.valueOf(debugOptions.get(USE_PARTITIONED_GROUP_BY_COMBINE_KEY));
+  }
+
   /**
    * Helper method to extract all column names from group by columns and expressions
    * @param groupBy
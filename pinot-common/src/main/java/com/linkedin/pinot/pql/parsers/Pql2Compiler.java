@@ -40,6 +40,8 @@ import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
 import org.antlr.v4.runtime.TokenStream;
 import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.misc.NotNull;
 import org.antlr.v4.runtime.misc.Nullable;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -81,20 +83,14 @@ public class Pql2Compiler implements AbstractCompiler {
   public BrokerRequest compileToBrokerRequest(String expression, boolean splitInClause) throws Pql2CompilationException {
     _splitInClause = splitInClause;
     try {
-      //
-      CharStream charStream = new ANTLRInputStream(expression);
-      PQL2Lexer lexer = new PQL2Lexer(charStream);
-      lexer.setTokenFactory(new CommonTokenFactory(true));
-      lexer.removeErrorListeners();
-      lexer.addErrorListener(ERROR_LISTENER);
-      TokenStream tokenStream = new UnbufferedTokenStream<CommonToken>(lexer);
-      PQL2Parser parser = new PQL2Parser(tokenStream);
-      parser.setErrorHandler(new BailErrorStrategy());
-      parser.removeErrorListeners();
-      parser.addErrorListener(ERROR_LISTENER);
-
-      // Parse
-      ParseTree parseTree = parser.root();
+      // Parse with the faster SLL prediction first, which succeeds for almost all queries. Only if it fails, parse
+      // again with the full LL prediction, which also reports the syntax errors.
+      ParseTree parseTree;
+      try {
+        parseTree = parse(expression, PredictionMode.SLL);
+      } catch (ParseCancellationException e) {
+        parseTree = parse(expression, PredictionMode.LL);
+      }
 
       ParseTreeWalker walker = new ParseTreeWalker();
       Pql2AstListener listener = new Pql2AstListener(expression, _splitInClause);
@@ -114,6 +110,24 @@ public class Pql2Compiler implements AbstractCompiler {
     }
   }
 
+  private ParseTree parse(String expression, PredictionMode predictionMode) {
+    CharStream charStream = new ANTLRInputStream(expression);
+    PQL2Lexer lexer = new PQL2Lexer(charStream);
+    lexer.setTokenFactory(new CommonTokenFactory(true));
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(ERROR_LISTENER);
+    TokenStream tokenStream = new UnbufferedTokenStream<CommonToken>(lexer);
+    PQL2Parser parser = new PQL2Parser(tokenStream);
+    parser.getInterpreter().setPredictionMode(predictionMode);
+    parser.setErrorHandler(new BailErrorStrategy());
+    parser.removeErrorListeners();
+    if (predictionMode != PredictionMode.SLL) {
+      // In SLL mode, a syntax error only means the query needs the full LL prediction
+      parser.addErrorListener(ERROR_LISTENER);
+    }
+    return parser.root();
+  }
+
   @Override
   public TransformExpressionTree compileToExpressionTree(String expression) {
     CharStream charStream = new ANTLRInputStream(expression);
@@ -15,9 +15,14 @@
  */
 package com.linkedin.pinot.common.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.io.FileUtils;
 import org.testng.Assert;
@@ -122,4 +127,54 @@ public class TarGzCompressionUtilsTest {
     Assert.assertEquals(segmentFiles.length, 0);
 
   }
+
+  @Test
+  public void testCompressionTypes()
+      throws IOException, ArchiveException {
+    byte[] content = new byte[100_000];
+    new Random().nextBytes(content);
+    FileUtils.writeByteArrayToFile(new File(segmentDir, "columns.psf"), content);
+
+    for (TarGzCompressionUtils.CompressionType compressionType : TarGzCompressionUtils.CompressionType.values()) {
+      String tarPath =
+          TarGzCompressionUtils.createTarOfDirectory(segmentDir.getPath(), new File(tarDir, SEGMENT_NAME).getPath(), "",
+              compressionType);
+      Assert.assertTrue(tarPath.endsWith(compressionType.getFileExtension()));
+
+      // Untar from the stream, where the compression type is detected from the magic bytes
+      File outputDir = new File(untarDir, compressionType.name());
+      InputStream inputStream = new FileInputStream(tarPath);
+      try {
+        TarGzCompressionUtils.unTar(inputStream, outputDir);
+        // The stream is read to the end but not closed
+        Assert.assertEquals(inputStream.read(), -1);
+      } finally {
+        inputStream.close();
+      }
+      File untarredFile = new File(new File(outputDir, SEGMENT_NAME), "columns.psf");
+      Assert.assertTrue(Arrays.equals(FileUtils.readFileToByteArray(untarredFile), content));
+    }
+  }
+
+  @Test
+  public void testTruncatedStream()
+      throws IOException, ArchiveException {
+    byte[] content = new byte[100_000];
+    new Random().nextBytes(content);
+    FileUtils.writeByteArrayToFile(new File(segmentDir, "columns.psf"), content);
+
+    for (TarGzCompressionUtils.CompressionType compressionType : TarGzCompressionUtils.CompressionType.values()) {
+      String tarPath =
+          TarGzCompressionUtils.createTarOfDirectory(segmentDir.getPath(), new File(tarDir, SEGMENT_NAME).getPath(), "",
+              compressionType);
+      byte[] bytes = FileUtils.readFileToByteArray(new File(tarPath));
+      try {
+        TarGzCompressionUtils.unTar(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 8)),
+            new File(untarDir, compressionType.name()));
+        Assert.fail("Untarring a truncated " + compressionType + " stream should fail");
+      } catch (IOException e) {
+        // Expected
+      }
+    }
+  }
 }
@@ -48,4 +48,40 @@ public abstract class BlockSingleValIterator implements BlockValIterator {
   public String nextStringVal() {
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Batch version of {@link #nextIntVal()}: reads the next <code>length</code> int values into the given buffer.
+   */
+  public void nextIntVals(int[] buffer, int length) {
+    for (int i = 0; i < length; i++) {
+      buffer[i] = nextIntVal();
+    }
+  }
+
+  /**
+   * Batch version of {@link #nextLongVal()}: reads the next <code>length</code> long values into the given buffer.
+   */
+  public void nextLongVals(long[] buffer, int length) {
+    for (int i = 0; i < length; i++) {
+      buffer[i] = nextLongVal();
+    }
+  }
+
+  /**
+   * Batch version of {@link #nextFloatVal()}: reads the next <code>length</code> float values into the given buffer.
+   */
+  public void nextFloatVals(float[] buffer, int length) {
+    for (int i = 0; i < length; i++) {
+      buffer[i] = nextFloatVal();
+    }
+  }
+
+  /**
+   * Batch version of {@link #nextDoubleVal()}: reads the next <code>length</code> double values into the given buffer.
+   */
+  public void nextDoubleVals(double[] buffer, int length) {
+    for (int i = 0; i < length; i++) {
+      buffer[i] = nextDoubleVal();
+    }
+  }
 }
@@ -15,24 +15,91 @@
  */
 package com.linkedin.pinot.core.common.datatable;
 
+import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.utils.DataTable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
 
 
 public class DataTableFactory {
   private DataTableFactory() {
   }
 
+  public static final int VERSION_2 = 2;
+  public static final int VERSION_3 = 3;
+  public static final int MAX_SUPPORTED_VERSION = VERSION_3;
+
+  // Debug option key used by the broker to advertise the highest data table version it can read.
+  public static final String DATA_TABLE_VERSION_KEY = "dataTableVersion";
+
   public static DataTable getDataTable(byte[] bytes)
       throws IOException {
-    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    return getDataTable(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Construct a data table from the given byte buffer, positioned at the start of the serialized data table.
+   * <p>For {@link DataTableImplV3}, the data table holds a view of the byte buffer instead of copying it.
+   */
+  public static DataTable getDataTable(ByteBuffer byteBuffer)
+      throws IOException {
     int version = byteBuffer.getInt();
     switch (version) {
-      case 2:
+      case VERSION_2:
         return new DataTableImplV2(byteBuffer);
+      case VERSION_3:
+        return new DataTableImplV3(byteBuffer);
       default:
         throw new UnsupportedOperationException("Unsupported data table version: " + version);
     }
   }
+
+  /**
+   * Serialize the given data table into the given version. (Server side)
+   * <p>Data tables are built in {@link DataTableImplV2} format, and converted into other versions on serialization.
+   */
+  @Nonnull
+  public static byte[] toBytes(@Nonnull DataTable dataTable, int version)
+      throws IOException {
+    if (version == VERSION_3 && dataTable instanceof DataTableImplV2) {
+      return DataTableImplV3.toBytes((DataTableImplV2) dataTable);
+    }
+    return dataTable.toBytes();
+  }
+
+  /**
+   * Returns the data table version the server should respond with for the given broker request. (Server side)
+   * <p>The version is the lower one of the version advertised by the broker and the highest version supported by the
+   * server. Brokers that do not advertise any version get {@link #VERSION_2}.
+   */
+  public static int getResponseVersion(@Nonnull BrokerRequest brokerRequest) {
+    Map<String, String> debugOptions = brokerRequest.getDebugOptions();
+    if (debugOptions == null) {
+      return VERSION_2;
+    }
+    String versionString = debugOptions.get(DATA_TABLE_VERSION_KEY);
+    if (versionString == null) {
+      return VERSION_2;
+    }
+    try {
+      return Math.max(VERSION_2, Math.min(Integer.parseInt(versionString), MAX_SUPPORTED_VERSION));
+    } catch (NumberFormatException e) {
+      return VERSION_2;
+    }
+  }
+
+  /**
+   * Advertise the highest data table version the broker can read in the given broker request. (Broker side)
+   */
+  public static void setRequestedVersion(@Nonnull BrokerRequest brokerRequest, int version) {
+    Map<String, String> debugOptions = new HashMap<>();
+    if (brokerRequest.getDebugOptions() != null) {
+      debugOptions.putAll(brokerRequest.getDebugOptions());
+    }
+    debugOptions.put(DATA_TABLE_VERSION_KEY, Integer.toString(version));
+    brokerRequest.setDebugOptions(debugOptions);
+  }
 }
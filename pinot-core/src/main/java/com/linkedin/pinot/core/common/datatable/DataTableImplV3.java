@@ -0,0 +1,735 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.common.datatable;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.DataTable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>DataTableImplV3</code> class is the columnar version of the data table.
+ * <p>Values of each column are stored contiguously so that they can be read with absolute positioning straight from
+ * the buffer received from the network without copying:
+ * <ul>
+ *   <li>Fixed size columns are stored as raw values.</li>
+ *   <li>STRING columns are dictionary encoded, and additionally run-length encoded if that is smaller.</li>
+ *   <li>OBJECT and array columns are stored as an offset array followed by the variable size values.</li>
+ * </ul>
+ * <p>V3 data tables are only serialized on the server side when the broker advertises that it can read them (see
+ * {@link DataTableFactory#getResponseVersion(com.linkedin.pinot.common.request.BrokerRequest)}), so mixed-version
+ * clusters keep working with {@link DataTableImplV2}.
+ * <p>On the broker side, the data table holds a view of the buffer passed in, so the buffer must not be released or
+ * modified while the data table is in use.
+ */
+public class DataTableImplV3 implements DataTable {
+  private static final int VERSION = 3;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // VERSION
+  // NUM_ROWS
+  // NUM_COLUMNS
+  // METADATA (START|SIZE)
+  // DATA_SCHEMA (START|SIZE)
+  // COLUMN_DATA (START|SIZE)
+  private static final int HEADER_SIZE = (Integer.SIZE / Byte.SIZE) * 9;
+
+  // Column encodings. Each column inside COLUMN_DATA is stored as: ENCODING|SIZE|PAYLOAD
+  // RAW: VALUES
+  private static final int RAW_ENCODING = 0;
+  // DICTIONARY: DICTIONARY|DICT_IDS
+  private static final int DICTIONARY_ENCODING = 1;
+  // RUN_LENGTH: DICTIONARY|NUM_RUNS|RUN_START_ROW_IDS|RUN_DICT_IDS
+  private static final int RUN_LENGTH_ENCODING = 2;
+  // VARIABLE_SIZE: OFFSETS (NUM_ROWS + 1)|VALUES
+  private static final int VARIABLE_SIZE_ENCODING = 3;
+  // DICTIONARY_VARIABLE_SIZE: DICTIONARY|OFFSETS (NUM_ROWS + 1)|DICT_IDS
+  private static final int DICTIONARY_VARIABLE_SIZE_ENCODING = 4;
+
+  private final int _numRows;
+  private final int _numColumns;
+  private final DataSchema _dataSchema;
+  private final Map<String, String> _metadata;
+  private final ByteBuffer _columnData;
+  private final int[] _columnEncodings;
+  private final int[] _columnStarts;
+  private final int[] _dataStarts;
+  private final int[] _numRuns;
+  private final String[][] _dictionaries;
+
+  /**
+   * Construct data table from byte buffer. (broker side)
+   * <p>The byte buffer should be positioned right after the version.
+   */
+  public DataTableImplV3(@Nonnull ByteBuffer byteBuffer)
+      throws IOException {
+    // Read header.
+    _numRows = byteBuffer.getInt();
+    _numColumns = byteBuffer.getInt();
+    int metadataStart = byteBuffer.getInt();
+    int metadataLength = byteBuffer.getInt();
+    int dataSchemaStart = byteBuffer.getInt();
+    int dataSchemaLength = byteBuffer.getInt();
+    int columnDataStart = byteBuffer.getInt();
+    int columnDataLength = byteBuffer.getInt();
+
+    // Read metadata.
+    byte[] metadataBytes = new byte[metadataLength];
+    byteBuffer.position(metadataStart);
+    byteBuffer.get(metadataBytes);
+    _metadata = DataTableUtils.deserializeMetadata(metadataBytes);
+
+    // Read data schema.
+    if (dataSchemaLength != 0) {
+      byte[] schemaBytes = new byte[dataSchemaLength];
+      byteBuffer.position(dataSchemaStart);
+      byteBuffer.get(schemaBytes);
+      _dataSchema = DataSchema.fromBytes(schemaBytes);
+    } else {
+      _dataSchema = null;
+    }
+
+    // Map column data without copying.
+    if (columnDataLength != 0) {
+      ByteBuffer duplicate = byteBuffer.duplicate();
+      duplicate.limit(columnDataStart + columnDataLength);
+      duplicate.position(columnDataStart);
+      _columnData = duplicate.slice();
+    } else {
+      _columnData = null;
+    }
+
+    _columnEncodings = new int[_numColumns];
+    _columnStarts = new int[_numColumns];
+    _dataStarts = new int[_numColumns];
+    _numRuns = new int[_numColumns];
+    _dictionaries = new String[_numColumns][];
+    int offset = 0;
+    for (int colId = 0; colId < _numColumns; colId++) {
+      int encoding = _columnData.getInt(offset);
+      int size = _columnData.getInt(offset + 4);
+      int start = offset + 8;
+      _columnEncodings[colId] = encoding;
+      _columnStarts[colId] = start;
+      switch (encoding) {
+        case RAW_ENCODING:
+        case VARIABLE_SIZE_ENCODING:
+          _dataStarts[colId] = start;
+          break;
+        case DICTIONARY_ENCODING:
+        case DICTIONARY_VARIABLE_SIZE_ENCODING:
+          _dataStarts[colId] = readDictionary(colId, start);
+          break;
+        case RUN_LENGTH_ENCODING:
+          int numRunsOffset = readDictionary(colId, start);
+          _numRuns[colId] = _columnData.getInt(numRunsOffset);
+          _dataStarts[colId] = numRunsOffset + 4;
+          break;
+        default:
+          throw new UnsupportedOperationException("Unsupported column encoding: " + encoding);
+      }
+      offset = start + size;
+    }
+  }
+
+  /**
+   * Helper method to read the dictionary for the given column starting at the given offset, returns the offset after
+   * the dictionary.
+   */
+  private int readDictionary(int colId, int offset) {
+    int numValues = _columnData.getInt(offset);
+    offset += 4;
+    String[] dictionary = new String[numValues];
+    for (int i = 0; i < numValues; i++) {
+      int length = _columnData.getInt(offset);
+      offset += 4;
+      byte[] bytes = new byte[length];
+      ByteBuffer duplicate = _columnData.duplicate();
+      duplicate.position(offset);
+      duplicate.get(bytes);
+      offset += length;
+      dictionary[i] = new String(bytes, UTF_8);
+    }
+    _dictionaries[colId] = dictionary;
+    return offset;
+  }
+
+  /**
+   * Serialize the given {@link DataTableImplV2} into V3 format. (Server side)
+   */
+  @Nonnull
+  public static byte[] toBytes(@Nonnull DataTableImplV2 dataTable)
+      throws IOException {
+    DataSchema dataSchema = dataTable.getDataSchema();
+    int numRows = dataTable.getNumberOfRows();
+    if (dataSchema == null) {
+      return toBytes(numRows, 0, dataTable.getMetadata(), null, null);
+    }
+
+    int numColumns = dataSchema.size();
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    for (int colId = 0; colId < numColumns; colId++) {
+      serializeColumn(dataTable, dataSchema.getColumnType(colId), numRows, colId, dataOutputStream);
+    }
+    return toBytes(numRows, numColumns, dataTable.getMetadata(), dataSchema,
+        ByteBuffer.wrap(byteArrayOutputStream.toByteArray()));
+  }
+
+  private static byte[] toBytes(int numRows, int numColumns, @Nonnull Map<String, String> metadata,
+      @Nullable DataSchema dataSchema, @Nullable ByteBuffer columnData)
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    dataOutputStream.writeInt(VERSION);
+    dataOutputStream.writeInt(numRows);
+    dataOutputStream.writeInt(numColumns);
+    int dataOffset = HEADER_SIZE;
+
+    // Write metadata.
+    dataOutputStream.writeInt(dataOffset);
+    byte[] metadataBytes = DataTableUtils.serializeMetadata(metadata);
+    dataOutputStream.writeInt(metadataBytes.length);
+    dataOffset += metadataBytes.length;
+
+    // Write data schema.
+    dataOutputStream.writeInt(dataOffset);
+    byte[] dataSchemaBytes = null;
+    if (dataSchema != null) {
+      dataSchemaBytes = dataSchema.toBytes();
+      dataOutputStream.writeInt(dataSchemaBytes.length);
+      dataOffset += dataSchemaBytes.length;
+    } else {
+      dataOutputStream.writeInt(0);
+    }
+
+    // Write column data.
+    dataOutputStream.writeInt(dataOffset);
+    if (columnData != null) {
+      dataOutputStream.writeInt(columnData.limit());
+    } else {
+      dataOutputStream.writeInt(0);
+    }
+
+    // Write actual data.
+    dataOutputStream.write(metadataBytes);
+    if (dataSchemaBytes != null) {
+      dataOutputStream.write(dataSchemaBytes);
+    }
+    if (columnData != null) {
+      if (columnData.hasArray()) {
+        dataOutputStream.write(columnData.array(), columnData.arrayOffset(), columnData.limit());
+      } else {
+        byte[] columnDataBytes = new byte[columnData.limit()];
+        columnData.duplicate().get(columnDataBytes);
+        dataOutputStream.write(columnDataBytes);
+      }
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * Helper method to serialize one column of the given row-major data table.
+   */
+  private static void serializeColumn(@Nonnull DataTableImplV2 dataTable, @Nonnull FieldSpec.DataType columnType,
+      int numRows, int colId, @Nonnull DataOutputStream dataOutputStream)
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream columnOutputStream = new DataOutputStream(byteArrayOutputStream);
+    int encoding;
+    switch (columnType) {
+      case BOOLEAN:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeBoolean(dataTable.getBoolean(rowId, colId));
+        }
+        break;
+      case BYTE:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeByte(dataTable.getByte(rowId, colId));
+        }
+        break;
+      case CHAR:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeChar(dataTable.getChar(rowId, colId));
+        }
+        break;
+      case SHORT:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeShort(dataTable.getShort(rowId, colId));
+        }
+        break;
+      case INT:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeInt(dataTable.getInt(rowId, colId));
+        }
+        break;
+      case LONG:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeLong(dataTable.getLong(rowId, colId));
+        }
+        break;
+      case FLOAT:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeFloat(dataTable.getFloat(rowId, colId));
+        }
+        break;
+      case DOUBLE:
+        encoding = RAW_ENCODING;
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          columnOutputStream.writeDouble(dataTable.getDouble(rowId, colId));
+        }
+        break;
+      case STRING:
+        encoding = serializeStringColumn(dataTable, numRows, colId, columnOutputStream);
+        break;
+      case OBJECT:
+        encoding = VARIABLE_SIZE_ENCODING;
+        serializeObjectColumn(dataTable, numRows, colId, columnOutputStream);
+        break;
+      case STRING_ARRAY:
+        encoding = DICTIONARY_VARIABLE_SIZE_ENCODING;
+        serializeStringArrayColumn(dataTable, numRows, colId, columnOutputStream);
+        break;
+      default:
+        encoding = VARIABLE_SIZE_ENCODING;
+        serializeArrayColumn(dataTable, columnType, numRows, colId, columnOutputStream);
+        break;
+    }
+
+    dataOutputStream.writeInt(encoding);
+    dataOutputStream.writeInt(byteArrayOutputStream.size());
+    byteArrayOutputStream.writeTo(dataOutputStream);
+  }
+
+  /**
+   * Helper method to serialize a STRING column, returns the encoding used.
+   * <p>Run-length encoding is used when it takes less space than plain dictionary encoding.
+   */
+  private static int serializeStringColumn(@Nonnull DataTableImplV2 dataTable, int numRows, int colId,
+      @Nonnull DataOutputStream columnOutputStream)
+      throws IOException {
+    Map<String, Integer> dictionary = new HashMap<>();
+    List<String> values = new ArrayList<>();
+    int[] dictIds = new int[numRows];
+    int numRuns = 0;
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      dictIds[rowId] = getOrAddDictId(dataTable.getString(rowId, colId), dictionary, values);
+      if (rowId == 0 || dictIds[rowId] != dictIds[rowId - 1]) {
+        numRuns++;
+      }
+    }
+    writeDictionary(values, columnOutputStream);
+
+    // Each run takes 2 ints, each dictionary encoded value takes 1 int.
+    if (2 * numRuns < numRows) {
+      columnOutputStream.writeInt(numRuns);
+      int[] runDictIds = new int[numRuns];
+      int runId = 0;
+      for (int rowId = 0; rowId < numRows; rowId++) {
+        if (rowId == 0 || dictIds[rowId] != dictIds[rowId - 1]) {
+          columnOutputStream.writeInt(rowId);
+          runDictIds[runId++] = dictIds[rowId];
+        }
+      }
+      for (int runDictId : runDictIds) {
+        columnOutputStream.writeInt(runDictId);
+      }
+      return RUN_LENGTH_ENCODING;
+    } else {
+      for (int dictId : dictIds) {
+        columnOutputStream.writeInt(dictId);
+      }
+      return DICTIONARY_ENCODING;
+    }
+  }
+
+  private static void serializeObjectColumn(@Nonnull DataTableImplV2 dataTable, int numRows, int colId,
+      @Nonnull DataOutputStream columnOutputStream)
+      throws IOException {
+    ByteArrayOutputStream valueByteArrayOutputStream = new ByteArrayOutputStream();
+    columnOutputStream.writeInt(0);
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      ByteBuffer serializedObject = dataTable.getSerializedObject(rowId, colId);
+      if (serializedObject.hasArray()) {
+        valueByteArrayOutputStream.write(serializedObject.array(),
+            serializedObject.arrayOffset() + serializedObject.position(), serializedObject.remaining());
+      } else {
+        byte[] bytes = new byte[serializedObject.remaining()];
+        serializedObject.get(bytes);
+        valueByteArrayOutputStream.write(bytes);
+      }
+      columnOutputStream.writeInt(valueByteArrayOutputStream.size());
+    }
+    valueByteArrayOutputStream.writeTo(columnOutputStream);
+  }
+
+  private static void serializeStringArrayColumn(@Nonnull DataTableImplV2 dataTable, int numRows, int colId,
+      @Nonnull DataOutputStream columnOutputStream)
+      throws IOException {
+    Map<String, Integer> dictionary = new HashMap<>();
+    List<String> values = new ArrayList<>();
+    ByteArrayOutputStream valueByteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream valueOutputStream = new DataOutputStream(valueByteArrayOutputStream);
+    int[] offsets = new int[numRows + 1];
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      for (String value : dataTable.getStringArray(rowId, colId)) {
+        valueOutputStream.writeInt(getOrAddDictId(value, dictionary, values));
+      }
+      offsets[rowId + 1] = valueByteArrayOutputStream.size();
+    }
+    writeDictionary(values, columnOutputStream);
+    for (int offset : offsets) {
+      columnOutputStream.writeInt(offset);
+    }
+    valueByteArrayOutputStream.writeTo(columnOutputStream);
+  }
+
+  private static void serializeArrayColumn(@Nonnull DataTableImplV2 dataTable, @Nonnull FieldSpec.DataType columnType,
+      int numRows, int colId, @Nonnull DataOutputStream columnOutputStream)
+      throws IOException {
+    ByteArrayOutputStream valueByteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream valueOutputStream = new DataOutputStream(valueByteArrayOutputStream);
+    columnOutputStream.writeInt(0);
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      switch (columnType) {
+        case BYTE_ARRAY:
+          valueOutputStream.write(dataTable.getByteArray(rowId, colId));
+          break;
+        case CHAR_ARRAY:
+          for (char value : dataTable.getCharArray(rowId, colId)) {
+            valueOutputStream.writeChar(value);
+          }
+          break;
+        case SHORT_ARRAY:
+          for (short value : dataTable.getShortArray(rowId, colId)) {
+            valueOutputStream.writeShort(value);
+          }
+          break;
+        case INT_ARRAY:
+          for (int value : dataTable.getIntArray(rowId, colId)) {
+            valueOutputStream.writeInt(value);
+          }
+          break;
+        case LONG_ARRAY:
+          for (long value : dataTable.getLongArray(rowId, colId)) {
+            valueOutputStream.writeLong(value);
+          }
+          break;
+        case FLOAT_ARRAY:
+          for (float value : dataTable.getFloatArray(rowId, colId)) {
+            valueOutputStream.writeFloat(value);
+          }
+          break;
+        case DOUBLE_ARRAY:
+          for (double value : dataTable.getDoubleArray(rowId, colId)) {
+            valueOutputStream.writeDouble(value);
+          }
+          break;
+        default:
+          throw new UnsupportedOperationException("Unsupported column type: " + columnType);
+      }
+      columnOutputStream.writeInt(valueByteArrayOutputStream.size());
+    }
+    valueByteArrayOutputStream.writeTo(columnOutputStream);
+  }
+
+  private static int getOrAddDictId(@Nonnull String value, @Nonnull Map<String, Integer> dictionary,
+      @Nonnull List<String> values) {
+    Integer dictId = dictionary.get(value);
+    if (dictId == null) {
+      dictId = values.size();
+      dictionary.put(value, dictId);
+      values.add(value);
+    }
+    return dictId;
+  }
+
+  private static void writeDictionary(@Nonnull List<String> values, @Nonnull DataOutputStream dataOutputStream)
+      throws IOException {
+    dataOutputStream.writeInt(values.size());
+    for (String value : values) {
+      byte[] valueBytes = value.getBytes(UTF_8);
+      dataOutputStream.writeInt(valueBytes.length);
+      dataOutputStream.write(valueBytes);
+    }
+  }
+
+  @Override
+  public void addException(@Nonnull ProcessingException processingException) {
+    _metadata.put(EXCEPTION_METADATA_KEY + processingException.getErrorCode(), processingException.getMessage());
+  }
+
+  @Nonnull
+  @Override
+  public byte[] toBytes()
+      throws IOException {
+    return toBytes(_numRows, _numColumns, _metadata, _dataSchema, _columnData);
+  }
+
+  @Nonnull
+  @Override
+  public Map<String, String> getMetadata() {
+    return _metadata;
+  }
+
+  @Nullable
+  @Override
+  public DataSchema getDataSchema() {
+    return _dataSchema;
+  }
+
+  @Override
+  public int getNumberOfRows() {
+    return _numRows;
+  }
+
+  @Override
+  public boolean getBoolean(int rowId, int colId) {
+    return _columnData.get(_dataStarts[colId] + rowId) == 1;
+  }
+
+  @Override
+  public char getChar(int rowId, int colId) {
+    return _columnData.getChar(_dataStarts[colId] + (rowId << 1));
+  }
+
+  @Override
+  public byte getByte(int rowId, int colId) {
+    return _columnData.get(_dataStarts[colId] + rowId);
+  }
+
+  @Override
+  public short getShort(int rowId, int colId) {
+    return _columnData.getShort(_dataStarts[colId] + (rowId << 1));
+  }
+
+  @Override
+  public int getInt(int rowId, int colId) {
+    return _columnData.getInt(_dataStarts[colId] + (rowId << 2));
+  }
+
+  @Override
+  public long getLong(int rowId, int colId) {
+    return _columnData.getLong(_dataStarts[colId] + (rowId << 3));
+  }
+
+  @Override
+  public float getFloat(int rowId, int colId) {
+    return _columnData.getFloat(_dataStarts[colId] + (rowId << 2));
+  }
+
+  @Override
+  public double getDouble(int rowId, int colId) {
+    return _columnData.getDouble(_dataStarts[colId] + (rowId << 3));
+  }
+
+  @Nonnull
+  @Override
+  public String getString(int rowId, int colId) {
+    return _dictionaries[colId][getDictId(rowId, colId)];
+  }
+
+  /**
+   * Helper method to get the dictionary id for the given cell of a dictionary or run-length encoded column.
+   */
+  private int getDictId(int rowId, int colId) {
+    int dataStart = _dataStarts[colId];
+    if (_columnEncodings[colId] == DICTIONARY_ENCODING) {
+      return _columnData.getInt(dataStart + (rowId << 2));
+    }
+
+    // Binary search the run that contains the row.
+    int numRuns = _numRuns[colId];
+    int low = 0;
+    int high = numRuns - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (_columnData.getInt(dataStart + (mid << 2)) <= rowId) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return _columnData.getInt(dataStart + ((numRuns + low) << 2));
+  }
+
+  @Nonnull
+  @Override
+  public <T> T getObject(int rowId, int colId) {
+    int dataStart = _dataStarts[colId];
+    int valueStart = dataStart + ((_numRows + 1) << 2);
+    int start = valueStart + _columnData.getInt(dataStart + (rowId << 2));
+    int end = valueStart + _columnData.getInt(dataStart + ((rowId + 1) << 2));
+    ObjectType objectType = ObjectType.getObjectType(_columnData.getInt(start));
+    ByteBuffer duplicate = _columnData.duplicate();
+    duplicate.limit(end);
+    duplicate.position(start + 4);
+    try {
+      return ObjectCustomSerDe.deserialize(duplicate.slice(), objectType);
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while de-serializing object.", e);
+    }
+  }
+
+  /**
+   * Helper method to get the absolute start offset of the values for the given cell of a variable size column.
+   */
+  private int getVariableSizeValueStart(int rowId, int colId) {
+    int dataStart = _dataStarts[colId];
+    return dataStart + ((_numRows + 1) << 2) + _columnData.getInt(dataStart + (rowId << 2));
+  }
+
+  /**
+   * Helper method to get the number of bytes of the values for the given cell of a variable size column.
+   */
+  private int getVariableSizeValueLength(int rowId, int colId) {
+    int dataStart = _dataStarts[colId];
+    return _columnData.getInt(dataStart + ((rowId + 1) << 2)) - _columnData.getInt(dataStart + (rowId << 2));
+  }
+
+  @Nonnull
+  @Override
+  public byte[] getByteArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId);
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = _columnData.get(start + i);
+    }
+    return bytes;
+  }
+
+  @Nonnull
+  @Override
+  public char[] getCharArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId) >> 1;
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = _columnData.getChar(start + (i << 1));
+    }
+    return chars;
+  }
+
+  @Nonnull
+  @Override
+  public short[] getShortArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId) >> 1;
+    short[] shorts = new short[length];
+    for (int i = 0; i < length; i++) {
+      shorts[i] = _columnData.getShort(start + (i << 1));
+    }
+    return shorts;
+  }
+
+  @Nonnull
+  @Override
+  public int[] getIntArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId) >> 2;
+    int[] ints = new int[length];
+    for (int i = 0; i < length; i++) {
+      ints[i] = _columnData.getInt(start + (i << 2));
+    }
+    return ints;
+  }
+
+  @Nonnull
+  @Override
+  public long[] getLongArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId) >> 3;
+    long[] longs = new long[length];
+    for (int i = 0; i < length; i++) {
+      longs[i] = _columnData.getLong(start + (i << 3));
+    }
+    return longs;
+  }
+
+  @Nonnull
+  @Override
+  public float[] getFloatArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId) >> 2;
+    float[] floats = new float[length];
+    for (int i = 0; i < length; i++) {
+      floats[i] = _columnData.getFloat(start + (i << 2));
+    }
+    return floats;
+  }
+
+  @Nonnull
+  @Override
+  public double[] getDoubleArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId) >> 3;
+    double[] doubles = new double[length];
+    for (int i = 0; i < length; i++) {
+      doubles[i] = _columnData.getDouble(start + (i << 3));
+    }
+    return doubles;
+  }
+
+  @Nonnull
+  @Override
+  public String[] getStringArray(int rowId, int colId) {
+    int start = getVariableSizeValueStart(rowId, colId);
+    int length = getVariableSizeValueLength(rowId, colId) >> 2;
+    String[] dictionary = _dictionaries[colId];
+    String[] strings = new String[length];
+    for (int i = 0; i < length; i++) {
+      strings[i] = dictionary[_columnData.getInt(start + (i << 2))];
+    }
+    return strings;
+  }
+
+  @Override
+  public String toString() {
+    if (_dataSchema == null) {
+      return _metadata.toString();
+    }
+
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(_dataSchema.toString()).append('\n');
+    stringBuilder.append("numRows: ").append(_numRows).append('\n');
+    for (int colId = 0; colId < _numColumns; colId++) {
+      stringBuilder.append(_dataSchema.getColumnName(colId)).append(": encoding ").append(_columnEncodings[colId])
+          .append(", start ").append(_columnStarts[colId]).append('\n');
+    }
+    return stringBuilder.toString();
+  }
+}
@@ -16,7 +16,9 @@
 package com.linkedin.pinot.core.common.datatable;
 
 import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import com.clearspring.analytics.stream.quantile.TDigest;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.AvgPair;
+import com.linkedin.pinot.core.query.aggregation.function.customobject.KllSketch;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.MinMaxRangePair;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.QuantileDigest;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
@@ -71,6 +73,10 @@ public class ObjectCustomSerDe {
       return serializeHashMap((HashMap<Object, Object>) object);
     } else if (object instanceof IntOpenHashSet) {
       return serializeIntOpenHashSet((IntOpenHashSet) object);
+    } else if (object instanceof TDigest) {
+      return serializeTDigest((TDigest) object);
+    } else if (object instanceof KllSketch) {
+      return ((KllSketch) object).toBytes();
     } else {
       throw new IllegalArgumentException("Illegal class for serialization: " + object.getClass().getName());
     }
@@ -104,6 +110,10 @@ public class ObjectCustomSerDe {
         return (T) deserializeHashMap(bytes);
       case IntOpenHashSet:
         return (T) deserializeIntOpenHashSet(bytes);
+      case TDigest:
+        return (T) TDigest.fromBytes(ByteBuffer.wrap(bytes));
+      case KllSketch:
+        return (T) KllSketch.fromBytes(bytes);
       default:
         throw new IllegalArgumentException("Illegal object type for de-serialization: " + objectType);
     }
@@ -140,6 +150,10 @@ public class ObjectCustomSerDe {
         return (T) deserializeHashMap(byteBuffer);
       case IntOpenHashSet:
         return (T) deserializeIntOpenHashSet(byteBuffer);
+      case TDigest:
+        return (T) TDigest.fromBytes(byteBuffer);
+      case KllSketch:
+        return (T) KllSketch.fromByteBuffer(byteBuffer);
       default:
         throw new IllegalArgumentException("Illegal object type for de-serialization: " + objectType);
     }
@@ -182,6 +196,10 @@ public class ObjectCustomSerDe {
       return ObjectType.HashMap;
     } else if (object instanceof IntOpenHashSet) {
       return ObjectType.IntOpenHashSet;
+    } else if (object instanceof TDigest) {
+      return ObjectType.TDigest;
+    } else if (object instanceof KllSketch) {
+      return ObjectType.KllSketch;
     } else {
       throw new IllegalArgumentException("No object type matches class: " + object.getClass().getName());
     }
@@ -342,6 +360,17 @@ public class ObjectCustomSerDe {
     return QuantileDigest.deserialize(new DataInputStream(new ByteArrayInputStream(bytes)));
   }
 
+  /**
+   * Helper method to serialize a {@link TDigest}.
+   * <p>Use the verbose encoding, because the small encoding stores the centroid means as floats, which loses precision
+   * for large values such as time stamps.
+   */
+  private static byte[] serializeTDigest(TDigest tDigest) {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(tDigest.byteSize());
+    tDigest.asBytes(byteBuffer);
+    return byteBuffer.array();
+  }
+
   /**
    * Helper method to serialize an {@link IntOpenHashSet}.
    */
@@ -59,6 +59,16 @@ public class FileBasedInstanceDataManagerConfig implements InstanceDataManagerCo
   // Whether memory for realtime consuming segments should be allocated off-heap.
   private static final String REALTIME_OFFHEAP_ALLOCATION = "realtime.alloc.offheap";
 
+  // Number of rows indexed together by realtime consuming segments.
+  private static final String REALTIME_INDEXING_BATCH_SIZE = "realtime.indexing.batch.size";
+  // Whether realtime consuming segments should index rows on a separate thread, pipelined with decoding.
+  private static final String REALTIME_PIPELINED_INDEXING = "realtime.pipelined.indexing";
+
+  // Whether to load the indexes of each column of the segments on first access instead of up front.
+  private static final String LAZY_COLUMN_LOADING = "lazy.column.loading";
+  // Idle time after which the lazily loaded columns are evicted, should be larger than the query timeout.
+  private static final String COLUMN_EVICTION_IDLE_TIME_MS = "column.eviction.idle.time.ms";
+
   private static String[] REQUIRED_KEYS = { INSTANCE_ID, INSTANCE_DATA_DIR, INSTANCE_TABLE_NAME };
   private Configuration _instanceDataManagerConfiguration = null;
   private Map<String, TableDataManagerConfig> _tableDataManagerConfigMap =
@@ -161,6 +171,26 @@ public class FileBasedInstanceDataManagerConfig implements InstanceDataManagerCo
     return _instanceDataManagerConfiguration.getBoolean(REALTIME_OFFHEAP_ALLOCATION, false);
   }
 
+  @Override
+  public String getRealtimeIndexingBatchSize() {
+    return _instanceDataManagerConfiguration.getString(REALTIME_INDEXING_BATCH_SIZE, null);
+  }
+
+  @Override
+  public boolean isRealtimePipelinedIndexing() {
+    return _instanceDataManagerConfiguration.getBoolean(REALTIME_PIPELINED_INDEXING, false);
+  }
+
+  @Override
+  public boolean isLazyColumnLoading() {
+    return _instanceDataManagerConfiguration.getBoolean(LAZY_COLUMN_LOADING, false);
+  }
+
+  @Override
+  public String getColumnEvictionIdleTimeMs() {
+    return _instanceDataManagerConfiguration.getString(COLUMN_EVICTION_IDLE_TIME_MS, null);
+  }
+
   @Override
   public String toString() {
     String configString = "";
@@ -43,4 +43,12 @@ public interface InstanceDataManagerConfig {
   boolean isEnableSplitCommit();
 
   boolean isRealtimeOffHeapAllocation();
+
+  String getRealtimeIndexingBatchSize();
+
+  boolean isRealtimePipelinedIndexing();
+
+  boolean isLazyColumnLoading();
+
+  String getColumnEvictionIdleTimeMs();
 }
@@ -15,7 +15,9 @@
  */
 package com.linkedin.pinot.core.data.manager.offline;
 
+import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 
 
 /**
@@ -49,6 +51,12 @@ public class OfflineSegmentDataManager extends SegmentDataManager {
 
   @Override
   public void destroy() {
+    SegmentMetadata segmentMetadata = _indexSegment.getSegmentMetadata();
+    String tableName = segmentMetadata.getTableName();
+    if (tableName != null) {
+      SegmentResultCache.getInstance()
+          .invalidate(tableName, _indexSegment.getSegmentName(), segmentMetadata.getCrc());
+    }
     _indexSegment.destroy();
   }
 }
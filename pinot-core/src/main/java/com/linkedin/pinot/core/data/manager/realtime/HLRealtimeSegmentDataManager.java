@@ -31,6 +31,7 @@ import com.linkedin.pinot.core.data.extractors.PlainFieldExtractor;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.realtime.StreamProvider;
 import com.linkedin.pinot.core.realtime.StreamProviderConfig;
 import com.linkedin.pinot.core.realtime.StreamProviderFactory;
@@ -40,6 +41,7 @@ import com.linkedin.pinot.core.realtime.impl.kafka.KafkaHighLevelStreamProviderC
 import com.linkedin.pinot.core.segment.index.loader.IndexLoadingConfig;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -86,6 +88,7 @@ public class HLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   private final String sortedColumn;
   private final List<String> invertedIndexColumns;
   private final List<String> noDictionaryColumns;
+  private final Map<String, ChunkCompressorFactory.CompressionType> noDictionaryCompressionTypes;
   private Logger segmentLogger = LOGGER;
   private final SegmentVersion _segmentVersion;
   private final RealtimeTableDataManager _realtimeTableDataManager;
@@ -141,6 +144,7 @@ public class HLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
 
     // No DictionaryColumns
     noDictionaryColumns = new ArrayList<>(indexLoadingConfig.getNoDictionaryColumns());
+    noDictionaryCompressionTypes = new HashMap<>(indexLoadingConfig.getNoDictionaryCompressionTypes());
 
     // create and init stream provider config
     // TODO : ideally resourceMetatda should create and give back a streamProviderConfig
@@ -267,7 +271,8 @@ public class HLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
               new RealtimeSegmentConverter(realtimeSegment, tempSegmentFolder.getAbsolutePath(), schema,
                   segmentMetadata.getTableName(), segmentMetadata.getSegmentName(), sortedColumn,
                   HLRealtimeSegmentDataManager.this.invertedIndexColumns,
-                  noDictionaryColumns, null/*StarTreeIndexSpec*/); // Star tree not supported for HLC.
+                  noDictionaryColumns, noDictionaryCompressionTypes,
+                  null/*StarTreeIndexSpec*/); // Star tree not supported for HLC.
 
           segmentLogger.info("Trying to build segment");
           final long buildStartTime = System.nanoTime();
@@ -17,6 +17,7 @@
 package com.linkedin.pinot.core.data.manager.realtime;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.linkedin.pinot.common.config.IndexingConfig;
 import com.linkedin.pinot.common.config.SegmentPartitionConfig;
@@ -40,6 +41,7 @@ import com.linkedin.pinot.core.data.extractors.FieldExtractorFactory;
 import com.linkedin.pinot.core.data.extractors.PlainFieldExtractor;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.realtime.converter.RealtimeSegmentConverter;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaLowLevelStreamProviderConfig;
@@ -54,9 +56,15 @@ import com.yammer.metrics.core.Meter;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -194,6 +202,7 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   private final String _tableName;
   private final List<String> _invertedIndexColumns;
   private final List<String> _noDictionaryColumns;
+  private final Map<String, ChunkCompressorFactory.CompressionType> _noDictionaryCompressionTypes;
   private final StarTreeIndexSpec _starTreeIndexSpec;
   private final String _sortedColumn;
   private Logger segmentLogger = LOGGER;
@@ -209,6 +218,14 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   private long _lastLogTime = 0;
   private int _lastConsumedCount = 0;
   private String _stopReason = null;
+  // Rows are buffered and indexed in batches. With pipelined indexing, one buffer is filled by the consumer thread
+  // while the other one is indexed by the indexing thread.
+  private final int _indexingBatchSize;
+  private final boolean _isPipelinedIndexing;
+  private final GenericRow[][] _indexingBuffers;
+  private int _currentIndexingBuffer = 0;
+  private ExecutorService _indexingExecutor = null;
+  private Future<Boolean> _pendingIndexingTask = null;
 
 
   // TODO each time this method is called, we print reason for stop. Good to print only once.
@@ -298,46 +315,58 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
 
     final long _endOffset = Long.MAX_VALUE; // No upper limit on Kafka offset
     segmentLogger.info("Starting consumption loop start offset {}, finalOffset {}", _currentOffset, _finalOffset);
-    while(!_shouldStop && !endCriteriaReached()) {
-      // Consume for the next _kafkaReadTime ms, or we get to final offset, whichever happens earlier,
-      // Update _currentOffset upon return from this method
-      MessageBatch messageBatch = null;
-      try {
-        messageBatch = _consumerWrapper.fetchMessages(_currentOffset, _endOffset,
-            _kafkaStreamMetadata.getKafkaFetchTimeoutMillis());
-        consecutiveErrorCount = 0;
-      } catch (TimeoutException e) {
-        handleTransientKafkaErrors(e);
-        continue;
-      } catch (SimpleConsumerWrapper.TransientConsumerException e) {
-        handleTransientKafkaErrors(e);
-        continue;
-      } catch (SimpleConsumerWrapper.PermanentConsumerException e) {
-        segmentLogger.warn("Kafka permanent exception when fetching messages, stopping consumption", e);
-        throw e;
-      } catch (Exception e) {
-        // Unknown exception from Kafka. Treat as a transient exception.
-        // One such exception seen so far is java.net.SocketTimeoutException
-        handleTransientKafkaErrors(e);
-        continue;
-      }
+    if (_isPipelinedIndexing) {
+      _indexingExecutor = Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat(_segmentNameStr + "-indexing").setDaemon(true).build());
+    }
+    try {
+      while(!_shouldStop && !endCriteriaReached()) {
+        // Consume for the next _kafkaReadTime ms, or we get to final offset, whichever happens earlier,
+        // Update _currentOffset upon return from this method
+        MessageBatch messageBatch = null;
+        try {
+          messageBatch = _consumerWrapper.fetchMessages(_currentOffset, _endOffset,
+              _kafkaStreamMetadata.getKafkaFetchTimeoutMillis());
+          consecutiveErrorCount = 0;
+        } catch (TimeoutException e) {
+          handleTransientKafkaErrors(e);
+          continue;
+        } catch (SimpleConsumerWrapper.TransientConsumerException e) {
+          handleTransientKafkaErrors(e);
+          continue;
+        } catch (SimpleConsumerWrapper.PermanentConsumerException e) {
+          segmentLogger.warn("Kafka permanent exception when fetching messages, stopping consumption", e);
+          throw e;
+        } catch (Exception e) {
+          // Unknown exception from Kafka. Treat as a transient exception.
+          // One such exception seen so far is java.net.SocketTimeoutException
+          handleTransientKafkaErrors(e);
+          continue;
+        }
 
-      processKafkaEvents(messageBatch, idlePipeSleepTimeMillis);
+        processKafkaEvents(messageBatch, idlePipeSleepTimeMillis);
 
-      if (_currentOffset != lastUpdatedOffset) {
-        // We consumed something. Update the highest kafka offset as well as partition-consuming metric.
-        _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.HIGHEST_KAFKA_OFFSET_CONSUMED, _currentOffset);
-        _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.LLC_PARTITION_CONSUMING, 1);
-        lastUpdatedOffset = _currentOffset;
-      } else {
-        // We did not consume any rows. Update the partition-consuming metric only if we have been idling for a long time.
-        // Create a new kafka consumer wrapper, in case we are stuck on something.
-        if (++idleCount > maxIdleCountBeforeStatUpdate) {
+        if (_currentOffset != lastUpdatedOffset) {
+          // We consumed something. Update the highest kafka offset as well as partition-consuming metric.
+          _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.HIGHEST_KAFKA_OFFSET_CONSUMED, _currentOffset);
           _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.LLC_PARTITION_CONSUMING, 1);
-          idleCount = 0;
-          makeConsumerWrapper("Idle for too long");
+          lastUpdatedOffset = _currentOffset;
+        } else {
+          // We did not consume any rows. Update the partition-consuming metric only if we have been idling for a long time.
+          // Create a new kafka consumer wrapper, in case we are stuck on something.
+          if (++idleCount > maxIdleCountBeforeStatUpdate) {
+            _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.LLC_PARTITION_CONSUMING, 1);
+            idleCount = 0;
+            makeConsumerWrapper("Idle for too long");
+          }
         }
       }
+    } finally {
+      if (_indexingExecutor != null) {
+        _indexingExecutor.shutdownNow();
+        _indexingExecutor = null;
+        _pendingIndexingTask = null;
+      }
     }
 
     _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.ROWS_WITH_ERRORS,
@@ -359,7 +388,8 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     int kafkaMessageCount = 0;
     boolean canTakeMore = true;
     GenericRow decodedRow = null;
-    GenericRow transformedRow = null;
+    GenericRow[] rows = _indexingBuffers[_currentIndexingBuffer];
+    int numRows = 0;
     for (int index = 0; index < messagesAndOffsets.getMessageCount(); index ++) {
       if (_shouldStop || endCriteriaReached()) {
         break;
@@ -391,20 +421,19 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
               messagesAndOffsets.getMessageLengthAtIndex(index), decodedRow);
 
       if (decodedRow != null) {
-        transformedRow = GenericRow.createOrReuseRow(transformedRow);
+        GenericRow transformedRow = GenericRow.createOrReuseRow(rows[numRows]);
         transformedRow = _fieldExtractor.transform(decodedRow, transformedRow);
 
         if (transformedRow != null) {
           realtimeRowsConsumedMeter = _serverMetrics
               .addMeteredTableValue(_metricKeyName, ServerMeter.REALTIME_ROWS_CONSUMED, 1, realtimeRowsConsumedMeter);
           indexedMessageCount++;
+          rows[numRows++] = transformedRow;
         } else {
           realtimeRowsDroppedMeter = _serverMetrics
               .addMeteredTableValue(_metricKeyName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1,
                   realtimeRowsDroppedMeter);
         }
-
-        canTakeMore = _realtimeSegment.index(transformedRow);
       } else {
         realtimeRowsDroppedMeter = _serverMetrics
             .addMeteredTableValue(_metricKeyName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1,
@@ -414,7 +443,18 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
       _currentOffset = messagesAndOffsets.getNextKafkaMessageOffsetAtIndex(index);
       _numRowsConsumed++;
       kafkaMessageCount++;
+
+      if (numRows == _indexingBatchSize) {
+        canTakeMore = indexRows(numRows);
+        rows = _indexingBuffers[_currentIndexingBuffer];
+        numRows = 0;
+      }
+    }
+    if (numRows > 0) {
+      indexRows(numRows);
     }
+    // Make sure all the consumed rows are indexed before updating the metrics and checking the end criteria
+    waitForIndexingTask();
     updateCurrentDocumentCountMetrics();
     if (kafkaMessageCount != 0) {
       segmentLogger.debug("Indexed {} messages ({} messages read from Kafka) current offset {}", indexedMessageCount,
@@ -426,6 +466,50 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     }
   }
 
+  /**
+   * Indexes the rows buffered in the current indexing buffer, either in the consumer thread, or asynchronously in the
+   * indexing thread with pipelined indexing. In the latter case, the previous indexing task is waited for before
+   * submitting the new one, and the consumer thread switches to the other buffer.
+   *
+   * @return Whether the realtime segment can take more rows, as of the last finished indexing task
+   */
+  private boolean indexRows(final int numRows) {
+    final GenericRow[] rows = _indexingBuffers[_currentIndexingBuffer];
+    if (_indexingExecutor == null) {
+      return _realtimeSegment.index(rows, numRows);
+    }
+    boolean canTakeMore = waitForIndexingTask();
+    _pendingIndexingTask = _indexingExecutor.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return _realtimeSegment.index(rows, numRows);
+      }
+    });
+    _currentIndexingBuffer = 1 - _currentIndexingBuffer;
+    return canTakeMore;
+  }
+
+  /**
+   * Waits for the pending indexing task if any.
+   *
+   * @return Whether the realtime segment can take more rows
+   */
+  private boolean waitForIndexingTask() {
+    if (_pendingIndexingTask == null) {
+      return true;
+    }
+    try {
+      return _pendingIndexingTask.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for indexing task", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Caught exception while indexing rows", e.getCause());
+    } finally {
+      _pendingIndexingTask = null;
+    }
+  }
+
   public class PartitionConsumer implements Runnable {
     public void run() {
       long initialConsumptionEnd = 0L;
@@ -585,7 +669,7 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     RealtimeSegmentConverter converter =
         new RealtimeSegmentConverter(_realtimeSegment, tempSegmentFolder.getAbsolutePath(), _schema,
             _segmentZKMetadata.getTableName(), _segmentZKMetadata.getSegmentName(), _sortedColumn,
-            _invertedIndexColumns, _noDictionaryColumns, _starTreeIndexSpec);
+            _invertedIndexColumns, _noDictionaryColumns, _noDictionaryCompressionTypes, _starTreeIndexSpec);
     logStatistics();
     segmentLogger.info("Trying to build segment");
     final long buildStartTime = now();
@@ -865,6 +949,9 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     _schema = schema;
     _serverMetrics = serverMetrics;
     _segmentVersion = indexLoadingConfig.getSegmentVersion();
+    _indexingBatchSize = indexLoadingConfig.getRealtimeIndexingBatchSize();
+    _isPipelinedIndexing = indexLoadingConfig.isRealtimePipelinedIndexing();
+    _indexingBuffers = new GenericRow[_isPipelinedIndexing ? 2 : 1][_indexingBatchSize];
     _instanceId = _realtimeTableDataManager.getServerInstance();
     _leaseExtender = SegmentBuildTimeLeaseExtender.getLeaseExtender(_instanceId);
     _protocolHandler = new ServerSegmentCompletionProtocolHandler(_instanceId);
@@ -920,6 +1007,7 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
 
     // No dictionary Columns
     _noDictionaryColumns = new ArrayList<>(indexLoadingConfig.getNoDictionaryColumns());
+    _noDictionaryCompressionTypes = new HashMap<>(indexLoadingConfig.getNoDictionaryCompressionTypes());
 
     // Read the star tree config
     _starTreeIndexSpec = indexingConfig.getStarTreeIndexSpec();
@@ -27,10 +27,12 @@ import com.linkedin.pinot.core.data.readers.CSVRecordReaderConfig;
 import com.linkedin.pinot.core.data.readers.FileFormat;
 import com.linkedin.pinot.core.data.readers.RecordReaderConfig;
 import com.linkedin.pinot.core.indexsegment.utils.AvroUtils;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.segment.DefaultSegmentNameGenerator;
 import com.linkedin.pinot.core.segment.SegmentNameGenerator;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.startree.hll.HllConfig;
+import com.linkedin.pinot.core.startree.kll.KllConfig;
 
 import java.io.File;
 import java.io.IOException;
@@ -68,6 +70,7 @@ public class SegmentGeneratorConfig {
 
   private Map<String, String> _customProperties = new HashMap<>();
   private Set<String> _rawIndexCreationColumns = new HashSet<>();
+  private Map<String, ChunkCompressorFactory.CompressionType> _rawIndexCompressionType = new HashMap<>();
   private List<String> _invertedIndexCreationColumns = new ArrayList<>();
   private String _dataDir = null;
   private String _inputFilePath = null;
@@ -93,11 +96,13 @@ public class SegmentGeneratorConfig {
   private String _creatorVersion = null;
   private char _paddingCharacter = V1Constants.Str.DEFAULT_STRING_PAD_CHAR;
   private HllConfig _hllConfig = null;
+  private KllConfig _kllConfig = null;
   private SegmentNameGenerator _segmentNameGenerator = null;
   private SegmentPartitionConfig _segmentPartitionConfig = null;
   private int _sequenceId = -1;
   private TimeColumnType _timeColumnType = TimeColumnType.EPOCH;
   private String _simpleDateFormat = null;
+  private int _numIndexingThreads = 1;
 
   public SegmentGeneratorConfig() {
   }
@@ -112,6 +117,7 @@ public class SegmentGeneratorConfig {
     Preconditions.checkNotNull(config);
     _customProperties.putAll(config._customProperties);
     _rawIndexCreationColumns.addAll(config._rawIndexCreationColumns);
+    _rawIndexCompressionType.putAll(config._rawIndexCompressionType);
     _invertedIndexCreationColumns.addAll(config._invertedIndexCreationColumns);
     _dataDir = config._dataDir;
     _inputFilePath = config._inputFilePath;
@@ -137,10 +143,12 @@ public class SegmentGeneratorConfig {
     _creatorVersion = config._creatorVersion;
     _paddingCharacter = config._paddingCharacter;
     _hllConfig = config._hllConfig;
+    _kllConfig = config._kllConfig;
     _segmentVersion = config._segmentVersion;
     _segmentName = config._segmentName;
     _segmentNameGenerator = config._segmentNameGenerator;
     _sequenceId = config._sequenceId;
+    _numIndexingThreads = config._numIndexingThreads;
   }
 
   public SegmentGeneratorConfig(Schema schema) {
@@ -183,6 +191,10 @@ public class SegmentGeneratorConfig {
     return _rawIndexCreationColumns;
   }
 
+  public Map<String, ChunkCompressorFactory.CompressionType> getRawIndexCompressionType() {
+    return _rawIndexCompressionType;
+  }
+
   public List<String> getInvertedIndexCreationColumns() {
     return _invertedIndexCreationColumns;
   }
@@ -192,6 +204,15 @@ public class SegmentGeneratorConfig {
     _rawIndexCreationColumns.addAll(rawIndexCreationColumns);
   }
 
+  /**
+   * Sets the chunk compression type for the raw index of the given columns, other raw index columns use
+   * {@link ChunkCompressorFactory#DEFAULT_COMPRESSION_TYPE}.
+   */
+  public void setRawIndexCompressionType(Map<String, ChunkCompressorFactory.CompressionType> rawIndexCompressionType) {
+    Preconditions.checkNotNull(rawIndexCompressionType);
+    _rawIndexCompressionType.putAll(rawIndexCompressionType);
+  }
+
   public void setInvertedIndexCreationColumns(List<String> indexCreationColumns) {
     Preconditions.checkNotNull(indexCreationColumns);
     _invertedIndexCreationColumns.addAll(indexCreationColumns);
@@ -461,6 +482,27 @@ public class SegmentGeneratorConfig {
     _hllConfig = hllConfig;
   }
 
+  public KllConfig getKllConfig() {
+    return _kllConfig;
+  }
+
+  public void setKllConfig(KllConfig kllConfig) {
+    _kllConfig = kllConfig;
+  }
+
+  public int getNumIndexingThreads() {
+    return _numIndexingThreads;
+  }
+
+  /**
+   * Set the number of threads to collect the stats and build the indexes of the columns. With more than one thread,
+   * the records are decoded on a separate thread in batches, and the columns of each batch are processed in parallel.
+   * Not applicable to star tree segments.
+   */
+  public void setNumIndexingThreads(int numIndexingThreads) {
+    _numIndexingThreads = numIndexingThreads;
+  }
+
   public SegmentNameGenerator getSegmentNameGenerator() {
     if (_segmentNameGenerator != null) {
       return _segmentNameGenerator;
@@ -35,4 +35,18 @@ public interface ChunkCompressor {
    */
   int compress(ByteBuffer inUncompressed, ByteBuffer outCompressed)
       throws IOException;
+
+  /**
+   * Returns the maximum size of the compressed output for the given size of input data.
+   *
+   * @param uncompressedSize Size of the input data.
+   * @return Maximum size of the compressed output data.
+   */
+  int maxCompressedSize(int uncompressedSize);
+
+  /**
+   * Returns the type of compression, which is recorded in the index so that readers can pick the matching
+   * {@link ChunkDecompressor}.
+   */
+  ChunkCompressorFactory.CompressionType getCompressionType();
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+
+/**
+ * Implementation of {@link ChunkCompressor} using the JDK built-in deflate (zlib), which trades compression and
+ * decompression speed for a higher compression ratio.
+ */
+public class DeflateCompressor implements ChunkCompressor {
+  private final ReusableByteArray _inputArray = new ReusableByteArray();
+  private final ReusableByteArray _outputArray = new ReusableByteArray();
+
+  @Override
+  public int compress(ByteBuffer inUncompressed, ByteBuffer outCompressed) {
+    int uncompressedSize = inUncompressed.remaining();
+    byte[] input = _inputArray.get(uncompressedSize);
+    inUncompressed.duplicate().get(input, 0, uncompressedSize);
+
+    int maxCompressedSize = maxCompressedSize(uncompressedSize);
+    byte[] output = _outputArray.get(maxCompressedSize);
+    int compressedSize = 0;
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(input, 0, uncompressedSize);
+      deflater.finish();
+      while (!deflater.finished()) {
+        compressedSize += deflater.deflate(output, compressedSize, maxCompressedSize - compressedSize);
+      }
+    } finally {
+      deflater.end();
+    }
+
+    outCompressed.duplicate().put(output, 0, compressedSize);
+    outCompressed.limit(outCompressed.position() + compressedSize);
+    return compressedSize;
+  }
+
+  /**
+   * Same bound as zlib <code>compressBound()</code>.
+   */
+  @Override
+  public int maxCompressedSize(int uncompressedSize) {
+    return uncompressedSize + (uncompressedSize >> 12) + (uncompressedSize >> 14) + (uncompressedSize >> 25) + 13;
+  }
+
+  @Override
+  public ChunkCompressorFactory.CompressionType getCompressionType() {
+    return ChunkCompressorFactory.CompressionType.DEFLATE;
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Implementation of {@link ChunkDecompressor} using the JDK built-in inflate (zlib), for data compressed with
+ * {@link DeflateCompressor}.
+ */
+@ThreadSafe
+public class DeflateDecompressor implements ChunkDecompressor {
+  // Inflater holds native memory, so reuse one per thread instead of creating one per chunk
+  private final ThreadLocal<Inflater> _inflater = new ThreadLocal<Inflater>() {
+    @Override
+    protected Inflater initialValue() {
+      return new Inflater();
+    }
+  };
+  private final ReusableByteArray _inputArray = new ReusableByteArray();
+  private final ReusableByteArray _outputArray = new ReusableByteArray();
+
+  @Override
+  public int decompress(ByteBuffer inCompressed, ByteBuffer outDecompressed)
+      throws IOException {
+    int compressedSize = inCompressed.remaining();
+    byte[] input = _inputArray.get(compressedSize);
+    inCompressed.duplicate().get(input, 0, compressedSize);
+
+    int maxUncompressedSize = outDecompressed.remaining();
+    byte[] output = _outputArray.get(maxUncompressedSize);
+    int uncompressedSize = 0;
+    Inflater inflater = _inflater.get();
+    inflater.reset();
+    inflater.setInput(input, 0, compressedSize);
+    try {
+      while (!inflater.finished()) {
+        int numBytesInflated = inflater.inflate(output, uncompressedSize, maxUncompressedSize - uncompressedSize);
+        if (numBytesInflated == 0 && (inflater.needsInput() || uncompressedSize == maxUncompressedSize)) {
+          throw new IOException("Corrupted or truncated deflate chunk");
+        }
+        uncompressedSize += numBytesInflated;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+
+    outDecompressed.duplicate().put(output, 0, uncompressedSize);
+    outDecompressed.limit(outDecompressed.position() + uncompressedSize);
+    return uncompressedSize;
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Implementation of {@link ChunkCompressor} for chunks of fixed width integral (int or long) values, using delta and
+ * frame-of-reference encoding.
+ * <p>The deltas between consecutive values are stored as bit-packed offsets from the minimum delta, so monotonic
+ * columns with a near constant stride (e.g. timestamps, ids) compress to a few bits per value, and a constant stride
+ * compresses to the header only.
+ *
+ * The layout of the compressed chunk is as follows:
+ * <ul>
+ *   <li> Byte: Size of the values (in bytes), 4 or 8. </li>
+ *   <li> Integer: Number of values. </li>
+ *   <li> Long: First value. </li>
+ *   <li> Long: Minimum delta between consecutive values. </li>
+ *   <li> Byte: Number of bits per packed offset. </li>
+ *   <li> Bit-packed (little endian) offsets of each delta from the minimum delta. </li>
+ * </ul>
+ */
+public class DeltaCompressor implements ChunkCompressor {
+  private static final int INT_SIZE = Integer.SIZE / Byte.SIZE;
+  private static final int LONG_SIZE = Long.SIZE / Byte.SIZE;
+  private static final int HEADER_SIZE = 1 + INT_SIZE + 2 * LONG_SIZE + 1;
+
+  private final int _valueSizeInBytes;
+
+  public DeltaCompressor(int valueSizeInBytes) {
+    Preconditions.checkArgument(valueSizeInBytes == INT_SIZE || valueSizeInBytes == LONG_SIZE,
+        "Delta compression only supports int and long values, got value size: %s", valueSizeInBytes);
+    _valueSizeInBytes = valueSizeInBytes;
+  }
+
+  @Override
+  public int compress(ByteBuffer inUncompressed, ByteBuffer outCompressed) {
+    int startPosition = inUncompressed.position();
+    int numValues = inUncompressed.remaining() / _valueSizeInBytes;
+
+    // Deltas are computed with long arithmetic, so they can wrap around for long values, which is fine because they
+    // are added back with the same arithmetic
+    long firstValue = 0;
+    long minDelta = 0;
+    if (numValues > 0) {
+      firstValue = getValue(inUncompressed, startPosition, 0);
+      minDelta = Long.MAX_VALUE;
+      long previousValue = firstValue;
+      for (int i = 1; i < numValues; i++) {
+        long value = getValue(inUncompressed, startPosition, i);
+        minDelta = Math.min(minDelta, value - previousValue);
+        previousValue = value;
+      }
+    }
+    long allOffsetBits = 0;
+    long previousValue = firstValue;
+    for (int i = 1; i < numValues; i++) {
+      long value = getValue(inUncompressed, startPosition, i);
+      allOffsetBits |= (value - previousValue) - minDelta;
+      previousValue = value;
+    }
+    int numBits = Long.SIZE - Long.numberOfLeadingZeros(allOffsetBits);
+
+    ByteBuffer outBuffer = outCompressed.duplicate();
+    outBuffer.put((byte) _valueSizeInBytes);
+    outBuffer.putInt(numValues);
+    outBuffer.putLong(firstValue);
+    outBuffer.putLong(minDelta);
+    outBuffer.put((byte) numBits);
+    if (numBits > 0) {
+      BitWriter bitWriter = new BitWriter(outBuffer);
+      previousValue = firstValue;
+      for (int i = 1; i < numValues; i++) {
+        long value = getValue(inUncompressed, startPosition, i);
+        bitWriter.write((value - previousValue) - minDelta, numBits);
+        previousValue = value;
+      }
+      bitWriter.flush();
+    }
+
+    int compressedSize = outBuffer.position() - outCompressed.position();
+    outCompressed.limit(outBuffer.position());
+    return compressedSize;
+  }
+
+  @Override
+  public int maxCompressedSize(int uncompressedSize) {
+    return HEADER_SIZE + (uncompressedSize / _valueSizeInBytes) * LONG_SIZE;
+  }
+
+  @Override
+  public ChunkCompressorFactory.CompressionType getCompressionType() {
+    return ChunkCompressorFactory.CompressionType.DELTA;
+  }
+
+  private long getValue(ByteBuffer buffer, int startPosition, int index) {
+    if (_valueSizeInBytes == INT_SIZE) {
+      return buffer.getInt(startPosition + index * _valueSizeInBytes);
+    } else {
+      return buffer.getLong(startPosition + index * _valueSizeInBytes);
+    }
+  }
+
+  /**
+   * Helper class to write bit-packed values of up to 64 bits into a byte buffer.
+   */
+  private static class BitWriter {
+    private final ByteBuffer _buffer;
+    private long _pendingBits;
+    private int _numPendingBits;
+
+    BitWriter(ByteBuffer buffer) {
+      _buffer = buffer;
+    }
+
+    void write(long value, int numBits) {
+      if (numBits > Integer.SIZE) {
+        writeUpTo32Bits(value, Integer.SIZE);
+        writeUpTo32Bits(value >>> Integer.SIZE, numBits - Integer.SIZE);
+      } else {
+        writeUpTo32Bits(value, numBits);
+      }
+    }
+
+    private void writeUpTo32Bits(long value, int numBits) {
+      // At most 7 bits are pending, so there is room for 32 more bits
+      _pendingBits |= (value & ((1L << numBits) - 1)) << _numPendingBits;
+      _numPendingBits += numBits;
+      while (_numPendingBits >= Byte.SIZE) {
+        _buffer.put((byte) _pendingBits);
+        _pendingBits >>>= Byte.SIZE;
+        _numPendingBits -= Byte.SIZE;
+      }
+    }
+
+    void flush() {
+      if (_numPendingBits > 0) {
+        _buffer.put((byte) _pendingBits);
+        _pendingBits = 0;
+        _numPendingBits = 0;
+      }
+    }
+  }
+}
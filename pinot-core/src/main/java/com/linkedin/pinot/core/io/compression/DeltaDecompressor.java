@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+import java.nio.ByteBuffer;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Implementation of {@link ChunkDecompressor} for data compressed with {@link DeltaCompressor}.
+ */
+@ThreadSafe
+public class DeltaDecompressor implements ChunkDecompressor {
+  private static final int INT_SIZE = Integer.SIZE / Byte.SIZE;
+
+  @Override
+  public int decompress(ByteBuffer inCompressed, ByteBuffer outDecompressed) {
+    ByteBuffer inBuffer = inCompressed.duplicate();
+    int valueSizeInBytes = inBuffer.get();
+    int numValues = inBuffer.getInt();
+    long value = inBuffer.getLong();
+    long minDelta = inBuffer.getLong();
+    int numBits = inBuffer.get();
+
+    int startPosition = outDecompressed.position();
+    boolean isInt = valueSizeInBytes == INT_SIZE;
+    BitReader bitReader = new BitReader(inBuffer);
+    for (int i = 0; i < numValues; i++) {
+      if (i > 0) {
+        value += minDelta;
+        if (numBits > 0) {
+          value += bitReader.read(numBits);
+        }
+      }
+      if (isInt) {
+        outDecompressed.putInt(startPosition + i * valueSizeInBytes, (int) value);
+      } else {
+        outDecompressed.putLong(startPosition + i * valueSizeInBytes, value);
+      }
+    }
+
+    int uncompressedSize = numValues * valueSizeInBytes;
+    outDecompressed.limit(startPosition + uncompressedSize);
+    return uncompressedSize;
+  }
+
+  /**
+   * Helper class to read bit-packed values of up to 64 bits from a byte buffer.
+   */
+  private static class BitReader {
+    private final ByteBuffer _buffer;
+    private long _pendingBits;
+    private int _numPendingBits;
+
+    BitReader(ByteBuffer buffer) {
+      _buffer = buffer;
+    }
+
+    long read(int numBits) {
+      if (numBits > Integer.SIZE) {
+        long lowBits = readUpTo32Bits(Integer.SIZE);
+        return lowBits | (readUpTo32Bits(numBits - Integer.SIZE) << Integer.SIZE);
+      } else {
+        return readUpTo32Bits(numBits);
+      }
+    }
+
+    private long readUpTo32Bits(int numBits) {
+      // Less than 32 bits are pending before reading each byte, so the pending bits never overflow
+      while (_numPendingBits < numBits) {
+        _pendingBits |= (_buffer.get() & 0xFFL) << _numPendingBits;
+        _numPendingBits += Byte.SIZE;
+      }
+      long value = _pendingBits & ((1L << numBits) - 1);
+      _pendingBits >>>= numBits;
+      _numPendingBits -= numBits;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+import java.nio.ByteBuffer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+
+/**
+ * Implementation of {@link ChunkCompressor} using LZ4.
+ * <p>The compressed chunk is prefixed with the size of the uncompressed data, which allows the faster LZ4
+ * decompressor to be used.
+ */
+public class Lz4Compressor implements ChunkCompressor {
+  private static final int INT_SIZE = Integer.SIZE / Byte.SIZE;
+  private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+
+  private final ReusableByteArray _inputArray = new ReusableByteArray();
+  private final ReusableByteArray _outputArray = new ReusableByteArray();
+
+  @Override
+  public int compress(ByteBuffer inUncompressed, ByteBuffer outCompressed) {
+    int uncompressedSize = inUncompressed.remaining();
+    byte[] input = _inputArray.get(uncompressedSize);
+    inUncompressed.duplicate().get(input, 0, uncompressedSize);
+
+    int maxCompressedLength = COMPRESSOR.maxCompressedLength(uncompressedSize);
+    byte[] output = _outputArray.get(maxCompressedLength);
+    int compressedLength = COMPRESSOR.compress(input, 0, uncompressedSize, output, 0, maxCompressedLength);
+
+    ByteBuffer outBuffer = outCompressed.duplicate();
+    outBuffer.putInt(uncompressedSize);
+    outBuffer.put(output, 0, compressedLength);
+    int compressedSize = INT_SIZE + compressedLength;
+    outCompressed.limit(outCompressed.position() + compressedSize);
+    return compressedSize;
+  }
+
+  @Override
+  public int maxCompressedSize(int uncompressedSize) {
+    return INT_SIZE + COMPRESSOR.maxCompressedLength(uncompressedSize);
+  }
+
+  @Override
+  public ChunkCompressorFactory.CompressionType getCompressionType() {
+    return ChunkCompressorFactory.CompressionType.LZ4;
+  }
+}
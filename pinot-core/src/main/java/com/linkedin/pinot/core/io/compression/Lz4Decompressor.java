@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+import java.nio.ByteBuffer;
+import javax.annotation.concurrent.ThreadSafe;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+
+/**
+ * Implementation of {@link ChunkDecompressor} using LZ4, for data compressed with {@link Lz4Compressor}.
+ */
+@ThreadSafe
+public class Lz4Decompressor implements ChunkDecompressor {
+  private static final int INT_SIZE = Integer.SIZE / Byte.SIZE;
+  private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+  private final ReusableByteArray _inputArray = new ReusableByteArray();
+  private final ReusableByteArray _outputArray = new ReusableByteArray();
+
+  @Override
+  public int decompress(ByteBuffer inCompressed, ByteBuffer outDecompressed) {
+    ByteBuffer inBuffer = inCompressed.duplicate();
+    int uncompressedSize = inBuffer.getInt();
+    int compressedLength = inBuffer.remaining();
+    byte[] input = _inputArray.get(compressedLength);
+    inBuffer.get(input, 0, compressedLength);
+
+    byte[] output = _outputArray.get(uncompressedSize);
+    DECOMPRESSOR.decompress(input, 0, output, 0, uncompressedSize);
+
+    outDecompressed.duplicate().put(output, 0, uncompressedSize);
+    outDecompressed.limit(outDecompressed.position() + uncompressedSize);
+    return uncompressedSize;
+  }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+/**
+ * Per-thread reusable byte array, used to bridge {@link java.nio.ByteBuffer}s with compression libraries that only
+ * work on byte arrays, without allocating new arrays for each chunk.
+ */
+class ReusableByteArray {
+  private final ThreadLocal<byte[]> _array = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[0];
+    }
+  };
+
+  /**
+   * Returns a byte array of at least the given size for the current thread.
+   */
+  byte[] get(int minSize) {
+    byte[] array = _array.get();
+    if (array.length < minSize) {
+      array = new byte[minSize];
+      _array.set(array);
+    }
+    return array;
+  }
+}
@@ -88,6 +88,31 @@ public interface SingleColumnSingleValueReader<T extends ReaderContext> extends
 
   void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos);
 
+  /**
+   * Batch read the int values of the contiguous rows [startRow, startRow + length) into the given buffer.
+   *
+   * @param startRow First row to read
+   * @param length Number of rows to read
+   * @param values Buffer for the values
+   * @param context Reader context
+   */
+  void readIntValues(int startRow, int length, int[] values, T context);
+
+  /**
+   * Batch read the long values of the contiguous rows [startRow, startRow + length) into the given buffer.
+   */
+  void readLongValues(int startRow, int length, long[] values, T context);
+
+  /**
+   * Batch read the float values of the contiguous rows [startRow, startRow + length) into the given buffer.
+   */
+  void readFloatValues(int startRow, int length, float[] values, T context);
+
+  /**
+   * Batch read the double values of the contiguous rows [startRow, startRow + length) into the given buffer.
+   */
+  void readDoubleValues(int startRow, int length, double[] values, T context);
+
   /**
    * Create reader context.
    * @return Reader context
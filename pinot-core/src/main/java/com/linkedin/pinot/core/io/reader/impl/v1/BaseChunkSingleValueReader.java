@@ -15,12 +15,15 @@
  */
 package com.linkedin.pinot.core.io.reader.impl.v1;
 
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.io.compression.ChunkDecompressor;
 import com.linkedin.pinot.core.io.reader.BaseSingleColumnSingleValueReader;
 import com.linkedin.pinot.core.io.reader.impl.ChunkReaderContext;
+import com.linkedin.pinot.core.io.writer.impl.v1.BaseChunkSingleValueWriter;
 import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,13 +54,14 @@ public abstract class BaseChunkSingleValueReader extends BaseSingleColumnSingleV
    * Constructor for the class.
    *
    * @param pinotDataBuffer Data buffer
-   * @param decompressor Data decompressor
+   * @param decompressor Data decompressor for files without compression type in the header (version 1), or
+   *                     <code>null</code> to use Snappy. Ignored if the header contains the compression type.
    */
-  public BaseChunkSingleValueReader(PinotDataBuffer pinotDataBuffer, ChunkDecompressor decompressor) {
-    _chunkDecompressor = decompressor;
+  public BaseChunkSingleValueReader(PinotDataBuffer pinotDataBuffer, @Nullable ChunkDecompressor decompressor) {
     _dataBuffer = pinotDataBuffer;
 
-    int headerOffset = INT_SIZE; // First entry is the version, which is unused currently.
+    int version = _dataBuffer.getInt(0);
+    int headerOffset = INT_SIZE;
     _numChunks = _dataBuffer.getInt(headerOffset);
     headerOffset += INT_SIZE;
 
@@ -68,6 +72,16 @@ public abstract class BaseChunkSingleValueReader extends BaseSingleColumnSingleV
     headerOffset += INT_SIZE;
     _chunkSize = (_lengthOfLongestEntry * _numDocsPerChunk);
 
+    if (version == BaseChunkSingleValueWriter.SNAPPY_ONLY_VERSION) {
+      _chunkDecompressor = (decompressor != null) ? decompressor
+          : ChunkCompressorFactory.getDecompressor(ChunkCompressorFactory.CompressionType.SNAPPY);
+    } else {
+      _chunkDecompressor =
+          ChunkCompressorFactory.getDecompressor(ChunkCompressorFactory.CompressionType.fromValue(
+              _dataBuffer.getInt(headerOffset)));
+      headerOffset += INT_SIZE;
+    }
+
     // Slice out the header from the data buffer.
     int headerLength = _numChunks * INT_SIZE;
     _header = _dataBuffer.view(headerOffset, headerOffset + headerLength);
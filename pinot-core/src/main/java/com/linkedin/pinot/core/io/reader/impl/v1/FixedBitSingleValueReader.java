@@ -46,6 +46,11 @@ public final class FixedBitSingleValueReader extends BaseSingleColumnSingleValue
     }
   }
 
+  @Override
+  public void readIntValues(int startRow, int length, int[] values, ReaderContext context) {
+    _reader.readInt(startRow, length, values);
+  }
+
   @Override
   public ReaderContext createContext() {
     return null;
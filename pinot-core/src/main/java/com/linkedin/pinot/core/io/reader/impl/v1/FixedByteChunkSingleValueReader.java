@@ -21,6 +21,7 @@ import com.linkedin.pinot.core.io.writer.impl.v1.FixedByteChunkSingleValueWriter
 import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
 
 
 /**
@@ -30,14 +31,25 @@ import java.nio.ByteBuffer;
  */
 public class FixedByteChunkSingleValueReader extends BaseChunkSingleValueReader {
 
+  /**
+   * Constructor for the class, the chunk decompressor is picked based on the compression type in the header.
+   *
+   * @param pinotDataBuffer Data buffer to read from
+   * @throws IOException
+   */
+  public FixedByteChunkSingleValueReader(PinotDataBuffer pinotDataBuffer)
+      throws IOException {
+    this(pinotDataBuffer, null);
+  }
+
   /**
    * Constructor for the class.
    *
    * @param pinotDataBuffer Data buffer to read from
-   * @param uncompressor Chunk uncompressor
+   * @param uncompressor Chunk uncompressor, only used for files without compression type in the header
    * @throws IOException
    */
-  public FixedByteChunkSingleValueReader(PinotDataBuffer pinotDataBuffer, ChunkDecompressor uncompressor)
+  public FixedByteChunkSingleValueReader(PinotDataBuffer pinotDataBuffer, @Nullable ChunkDecompressor uncompressor)
       throws IOException {
     super(pinotDataBuffer, uncompressor);
   }
@@ -74,6 +86,73 @@ public class FixedByteChunkSingleValueReader extends BaseChunkSingleValueReader
     return chunkBuffer.getDouble(chunkRowId * DOUBLE_SIZE);
   }
 
+  @Override
+  public void readIntValues(int startRow, int length, int[] values, ChunkReaderContext context) {
+    assert _lengthOfLongestEntry == INT_SIZE;
+    int valuesIndex = 0;
+    while (valuesIndex < length) {
+      int row = startRow + valuesIndex;
+      int chunkRowId = row % _numDocsPerChunk;
+      int numRowsInChunk = Math.min(length - valuesIndex, _numDocsPerChunk - chunkRowId);
+      getChunkSliceForRow(row, chunkRowId * INT_SIZE, context).asIntBuffer()
+          .get(values, valuesIndex, numRowsInChunk);
+      valuesIndex += numRowsInChunk;
+    }
+  }
+
+  @Override
+  public void readLongValues(int startRow, int length, long[] values, ChunkReaderContext context) {
+    assert _lengthOfLongestEntry == LONG_SIZE;
+    int valuesIndex = 0;
+    while (valuesIndex < length) {
+      int row = startRow + valuesIndex;
+      int chunkRowId = row % _numDocsPerChunk;
+      int numRowsInChunk = Math.min(length - valuesIndex, _numDocsPerChunk - chunkRowId);
+      getChunkSliceForRow(row, chunkRowId * LONG_SIZE, context).asLongBuffer()
+          .get(values, valuesIndex, numRowsInChunk);
+      valuesIndex += numRowsInChunk;
+    }
+  }
+
+  @Override
+  public void readFloatValues(int startRow, int length, float[] values, ChunkReaderContext context) {
+    assert _lengthOfLongestEntry == FLOAT_SIZE;
+    int valuesIndex = 0;
+    while (valuesIndex < length) {
+      int row = startRow + valuesIndex;
+      int chunkRowId = row % _numDocsPerChunk;
+      int numRowsInChunk = Math.min(length - valuesIndex, _numDocsPerChunk - chunkRowId);
+      getChunkSliceForRow(row, chunkRowId * FLOAT_SIZE, context).asFloatBuffer()
+          .get(values, valuesIndex, numRowsInChunk);
+      valuesIndex += numRowsInChunk;
+    }
+  }
+
+  @Override
+  public void readDoubleValues(int startRow, int length, double[] values, ChunkReaderContext context) {
+    assert _lengthOfLongestEntry == DOUBLE_SIZE;
+    int valuesIndex = 0;
+    while (valuesIndex < length) {
+      int row = startRow + valuesIndex;
+      int chunkRowId = row % _numDocsPerChunk;
+      int numRowsInChunk = Math.min(length - valuesIndex, _numDocsPerChunk - chunkRowId);
+      getChunkSliceForRow(row, chunkRowId * DOUBLE_SIZE, context).asDoubleBuffer()
+          .get(values, valuesIndex, numRowsInChunk);
+      valuesIndex += numRowsInChunk;
+    }
+  }
+
+  /**
+   * Helper method to get a view of the chunk for a given row, starting at the given offset inside the chunk, so that
+   * consecutive values can be bulk copied out of the chunk.
+   */
+  private ByteBuffer getChunkSliceForRow(int row, int offsetInChunk, ChunkReaderContext context) {
+    ByteBuffer chunkBuffer = getChunkForRow(row, context);
+    ByteBuffer chunkSlice = chunkBuffer.duplicate().order(chunkBuffer.order());
+    chunkSlice.position(offsetInChunk);
+    return chunkSlice;
+  }
+
   @Override
   public ChunkReaderContext createContext() {
     return new ChunkReaderContext(_chunkSize);
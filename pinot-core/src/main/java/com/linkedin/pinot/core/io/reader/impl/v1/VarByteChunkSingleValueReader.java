@@ -22,6 +22,7 @@ import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import javax.annotation.Nullable;
 
 
 /**
@@ -40,14 +41,25 @@ public class VarByteChunkSingleValueReader extends BaseChunkSingleValueReader {
     }
   };
 
+  /**
+   * Constructor for the class, the chunk decompressor is picked based on the compression type in the header.
+   *
+   * @param pinotDataBuffer Data buffer to read from
+   * @throws IOException
+   */
+  public VarByteChunkSingleValueReader(PinotDataBuffer pinotDataBuffer)
+      throws IOException {
+    this(pinotDataBuffer, null);
+  }
+
   /**
    * Constructor for the class.
    *
    * @param pinotDataBuffer Data buffer to read from
-   * @param uncompressor Chunk uncompressor
+   * @param uncompressor Chunk uncompressor, only used for files without compression type in the header
    * @throws IOException
    */
-  public VarByteChunkSingleValueReader(PinotDataBuffer pinotDataBuffer, ChunkDecompressor uncompressor)
+  public VarByteChunkSingleValueReader(PinotDataBuffer pinotDataBuffer, @Nullable ChunkDecompressor uncompressor)
       throws IOException {
     super(pinotDataBuffer, uncompressor);
 
@@ -137,4 +137,32 @@ public abstract class BaseSingleColumnSingleValueReaderWriter<T extends ReaderCo
   public void setBytes(int row, byte[] bytes) {
     throw new UnsupportedOperationException();
   }
+
+  @Override
+  public void readIntValues(int startRow, int length, int[] values, T context) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getInt(startRow + i, context);
+    }
+  }
+
+  @Override
+  public void readLongValues(int startRow, int length, long[] values, T context) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getLong(startRow + i, context);
+    }
+  }
+
+  @Override
+  public void readFloatValues(int startRow, int length, float[] values, T context) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getFloat(startRow + i, context);
+    }
+  }
+
+  @Override
+  public void readDoubleValues(int startRow, int length, double[] values, T context) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getDouble(startRow + i, context);
+    }
+  }
 }
@@ -22,6 +22,7 @@ import com.linkedin.pinot.common.utils.HLCSegmentName;
 import com.linkedin.pinot.common.utils.LLCSegmentName;
 import com.linkedin.pinot.common.utils.SegmentName;
 import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.LinkedList;
@@ -76,15 +77,28 @@ public abstract class RealtimeIndexOffHeapMemoryManager implements Closeable {
    * @param size size of memory
    * @param columnName Name of the column for which memory is being allocated
    * @return PinotDataBuffer
+   * @throws PinotDataBufferMemoryManager.BudgetExceededException If the memory does not fit into the budgets in time
    */
   public PinotDataBuffer allocate(long size, String columnName) {
-    PinotDataBuffer buffer = allocateInternal(size, columnName);
+    PinotDataBuffer buffer;
+    // Wait for the memory to fit into the budgets, and charge it to the consuming segment
+    try (PinotDataBufferMemoryManager.Scope ignored = PinotDataBufferMemoryManager.getInstance()
+        .reserve(_tableName, _segmentName, getAllocationType(), size)) {
+      buffer = allocateInternal(size, columnName);
+    }
     _totalMemBytes += size;
     _buffers.add(buffer);
     _serverMetrics.addValueToTableGauge(_tableName, ServerGauge.REALTIME_OFFHEAP_MEMORY_USED, size);
     return buffer;
   }
 
+  /**
+   * Returns the type of memory allocated, against which budget the allocations are reserved.
+   */
+  protected PinotDataBufferMemoryManager.AllocationType getAllocationType() {
+    return PinotDataBufferMemoryManager.AllocationType.DIRECT;
+  }
+
   /**
    * Method to be implemented by inheriting concrete classes
    */
@@ -32,6 +32,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.io.readerwriter.RealtimeIndexOffHeapMemoryManager;
 import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 
 
 /**
@@ -153,6 +154,11 @@ public class MmapMemoryManager extends RealtimeIndexOffHeapMemoryManager {
     return buffer;
   }
 
+  @Override
+  protected PinotDataBufferMemoryManager.AllocationType getAllocationType() {
+    return PinotDataBufferMemoryManager.AllocationType.MAPPED;
+  }
+
   @Override
   protected void doClose() {
     for (PinotDataBuffer buffer : _memMappedBuffers) {
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.io.writer.impl.v1;
 
 import com.linkedin.pinot.core.io.compression.ChunkCompressor;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.io.writer.SingleColumnSingleValueWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -39,6 +40,9 @@ public abstract class BaseChunkSingleValueWriter implements SingleColumnSingleVa
   protected static final int FLOAT_SIZE = Float.SIZE / Byte.SIZE;
   protected static final int DOUBLE_SIZE = Double.SIZE / Byte.SIZE;
 
+  // Version 1 files have no compression type in the header and are always compressed with Snappy.
+  public static final int SNAPPY_ONLY_VERSION = 1;
+
   protected final FileChannel _dataFile;
   protected final ByteBuffer _header;
   protected final ByteBuffer _chunkBuffer;
@@ -57,7 +61,8 @@ public abstract class BaseChunkSingleValueWriter implements SingleColumnSingleVa
    * @param numDocsPerChunk Number of docs per data chunk
    * @param chunkSize Size of chunk
    * @param sizeOfEntry Size of entry (in bytes), max size for variable byte implementation.
-   * @param version Version of file
+   * @param version Version of file, files compressed with Snappy are always written with
+   *                {@link #SNAPPY_ONLY_VERSION} so that they stay readable by older readers.
    * @throws FileNotFoundException
    */
   protected BaseChunkSingleValueWriter(File file, ChunkCompressor compressor, int totalDocs, int numDocsPerChunk,
@@ -66,18 +71,28 @@ public abstract class BaseChunkSingleValueWriter implements SingleColumnSingleVa
     _chunkSize = chunkSize;
     _chunkCompressor = compressor;
 
+    ChunkCompressorFactory.CompressionType compressionType = compressor.getCompressionType();
+    if (compressionType == ChunkCompressorFactory.CompressionType.SNAPPY) {
+      version = SNAPPY_ONLY_VERSION;
+    }
+
     int numChunks = (totalDocs + numDocsPerChunk - 1) / numDocsPerChunk;
-    int headerSize = (numChunks + 4) * INT_SIZE; // 4 items written before chunk indexing.
+    // 4 items written before chunk indexing, plus the compression type after version 1.
+    int numHeaderItems = (version == SNAPPY_ONLY_VERSION) ? 4 : 5;
+    int headerSize = (numChunks + numHeaderItems) * INT_SIZE;
 
     _header = ByteBuffer.allocateDirect(headerSize);
     _header.putInt(version);
     _header.putInt(numChunks);
     _header.putInt(numDocsPerChunk);
     _header.putInt(sizeOfEntry);
+    if (version != SNAPPY_ONLY_VERSION) {
+      _header.putInt(compressionType.getValue());
+    }
     _dataOffset = headerSize;
 
     _chunkBuffer = ByteBuffer.allocateDirect(chunkSize);
-    _compressedBuffer = ByteBuffer.allocateDirect(chunkSize * 2);
+    _compressedBuffer = ByteBuffer.allocateDirect(compressor.maxCompressedSize(chunkSize));
     _dataFile = new RandomAccessFile(file, "rw").getChannel();
   }
 
@@ -148,7 +163,6 @@ public abstract class BaseChunkSingleValueWriter implements SingleColumnSingleVa
    */
   protected void writeChunk() {
     _chunkBuffer.flip();
-    _compressedBuffer.flip();
 
     int compressedSize;
     try {
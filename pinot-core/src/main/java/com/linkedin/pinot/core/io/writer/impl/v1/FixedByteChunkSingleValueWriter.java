@@ -34,6 +34,7 @@ import javax.annotation.concurrent.NotThreadSafe;
  *   <li> Integer: Total number of chunks. </li>
  *   <li> Integer: Number of docs per chunk. </li>
  *   <li> Integer: Length of entry (in bytes). </li>
+ *   <li> Integer: Compression type (not present in version 1, which is always compressed with Snappy). </li>
  *   <li> Integer array: Integer offsets for all chunks in the data .</li>
  * </ul>
  *
@@ -47,7 +48,7 @@ import javax.annotation.concurrent.NotThreadSafe;
 @NotThreadSafe
 public class FixedByteChunkSingleValueWriter extends BaseChunkSingleValueWriter {
 
-  private static final int VERSION = 1;
+  private static final int VERSION = 2;
   private int _chunkDataOffset;
 
   /**
@@ -22,6 +22,7 @@ import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
+import com.linkedin.pinot.core.operator.docidsets.CompositeFilterBlockDocIdSet;
 import com.linkedin.pinot.core.operator.docidsets.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
 import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
@@ -43,9 +44,13 @@ public class BReusableFilteredDocIdSetOperator extends BaseOperator {
 
   private final BaseFilterOperator _filterOperator;
   private final int _maxSizeOfDocIdSet;
+  private final boolean _isDocIdRangeSet;
+  private final int _startDocId;
+  private final int _endDocId;
   private FilterBlockDocIdSet _filterBlockDocIdSet;
   private BlockDocIdIterator _blockDocIdIterator;
   private int _currentDocId = 0;
+  private boolean _hasPendingDocId = false;
 
   /**
    * @param filterOperator
@@ -58,6 +63,30 @@ public class BReusableFilteredDocIdSetOperator extends BaseOperator {
     Preconditions.checkArgument(maxSizeOfDocIdSet <= DocIdSetPlanNode.MAX_DOC_PER_CALL);
     _maxSizeOfDocIdSet = maxSizeOfDocIdSet;
     _filterOperator = (BaseFilterOperator) filterOperator;
+    _isDocIdRangeSet = false;
+    _startDocId = 0;
+    _endDocId = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Constructor for the operator which only returns the matching documents within the given document id range. Used
+   * to process different ranges of the same segment in parallel.
+   *
+   * @param filterOperator
+   * @param maxSizeOfDocIdSet must be less than {@link DocIdSetPlanNode}. MAX_DOC_PER_CALL which is
+   *          10000
+   * @param startDocId start document id (inclusive)
+   * @param endDocId end document id (inclusive)
+   */
+  public BReusableFilteredDocIdSetOperator(Operator filterOperator, int maxSizeOfDocIdSet, int startDocId,
+      int endDocId) {
+    Preconditions.checkArgument(maxSizeOfDocIdSet <= DocIdSetPlanNode.MAX_DOC_PER_CALL);
+    Preconditions.checkArgument(startDocId >= 0 && startDocId <= endDocId);
+    _maxSizeOfDocIdSet = maxSizeOfDocIdSet;
+    _filterOperator = (BaseFilterOperator) filterOperator;
+    _isDocIdRangeSet = true;
+    _startDocId = startDocId;
+    _endDocId = endDocId;
   }
 
   @Override
@@ -77,14 +106,29 @@ public class BReusableFilteredDocIdSetOperator extends BaseOperator {
     // Initialize filter block doc id set.
     if (_filterBlockDocIdSet == null) {
       _filterBlockDocIdSet = (FilterBlockDocIdSet) _filterOperator.nextBlock().getBlockDocIdSet();
-      _blockDocIdIterator = _filterBlockDocIdSet.iterator();
+      if (_isDocIdRangeSet) {
+        initDocIdRange();
+        if (_currentDocId == Constants.EOF) {
+          return null;
+        }
+      } else {
+        _blockDocIdIterator = _filterBlockDocIdSet.iterator();
+      }
     }
     int pos = 0;
     for (int i = 0; i < _maxSizeOfDocIdSet; i++) {
-      _currentDocId = _blockDocIdIterator.next();
+      if (_hasPendingDocId) {
+        _hasPendingDocId = false;
+      } else {
+        _currentDocId = _blockDocIdIterator.next();
+      }
       if (_currentDocId == Constants.EOF) {
         break;
       }
+      if (_currentDocId > _endDocId) {
+        _currentDocId = Constants.EOF;
+        break;
+      }
       docIdArray[pos++] = _currentDocId;
     }
     if (pos > 0) {
@@ -94,6 +138,28 @@ public class BReusableFilteredDocIdSetOperator extends BaseOperator {
     }
   }
 
+  /**
+   * Narrows down the filter block doc id set to the document id range, and positions the iterator on the first
+   * matching document within the range.
+   * <p>The doc id set only uses the range as a hint to avoid scanning documents outside of the range, the range is
+   * always enforced on the documents returned by the iterator.
+   */
+  private void initDocIdRange() {
+    int startDocId = Math.max(_startDocId, _filterBlockDocIdSet.getMinDocId());
+    int endDocId = Math.min(_endDocId, _filterBlockDocIdSet.getMaxDocId());
+    if (startDocId > endDocId) {
+      _currentDocId = Constants.EOF;
+      return;
+    }
+    if (!(_filterBlockDocIdSet instanceof CompositeFilterBlockDocIdSet)) {
+      _filterBlockDocIdSet.setStartDocId(startDocId);
+      _filterBlockDocIdSet.setEndDocId(endDocId);
+    }
+    _blockDocIdIterator = _filterBlockDocIdSet.iterator();
+    _currentDocId = _blockDocIdIterator.advance(_startDocId);
+    _hasPendingDocId = true;
+  }
+
   @Override
   public Block getNextBlock(BlockId blockId) {
     throw new UnsupportedOperationException();
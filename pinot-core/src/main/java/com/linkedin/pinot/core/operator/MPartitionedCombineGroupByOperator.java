@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByTrimmingService;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByCombinePartition;
+import com.linkedin.pinot.core.util.trace.TraceRunnable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>MPartitionedCombineGroupByOperator</code> class is the operator to combine aggregation group-by results
+ * without any per-key locking.
+ * <p>Unlike {@link MCombineGroupByOperator}, which merges all segments into one shared concurrent map guarded by
+ * striped locks, this operator:
+ * <ul>
+ *   <li>Merges segments into one {@link GroupByCombinePartition} per worker thread, where results of the additive and
+ *   min/max aggregation functions are kept in primitive arrays.</li>
+ *   <li>Joins the worker partitions in parallel, with each join task owning a disjoint hash range of the group keys.
+ *   </li>
+ * </ul>
+ */
+public class MPartitionedCombineGroupByOperator extends BaseOperator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MPartitionedCombineGroupByOperator.class);
+  private static final String OPERATOR_NAME = "MPartitionedCombineGroupByOperator";
+  private static final int MAX_NUM_WORKERS = Runtime.getRuntime().availableProcessors();
+
+  private final List<Operator> _operators;
+  private final ExecutorService _executorService;
+  private final BrokerRequest _brokerRequest;
+  private final long _timeOutMs;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param operators List of operators, whose result needs to be combined.
+   * @param executorService Executor service to use for multi-threaded portions of combine.
+   * @param timeOutMs Timeout for combine.
+   * @param brokerRequest BrokerRequest corresponding to the query.
+   */
+  public MPartitionedCombineGroupByOperator(List<Operator> operators, ExecutorService executorService,
+      long timeOutMs, BrokerRequest brokerRequest) {
+    Preconditions.checkArgument(brokerRequest.isSetAggregationsInfo() && brokerRequest.isSetGroupBy());
+
+    _operators = operators;
+    _executorService = executorService;
+    _brokerRequest = brokerRequest;
+    _timeOutMs = timeOutMs;
+  }
+
+  @Override
+  public boolean open() {
+    for (Operator operator : _operators) {
+      operator.open();
+    }
+    return true;
+  }
+
+  @Override
+  public Block getNextBlock() {
+    return combineBlocks();
+  }
+
+  /**
+   * This method combines the result blocks from underlying operators and builds a merged, sorted and trimmed result
+   * block.
+   * 1. Worker threads pick up the underlying operators one by one, and merge their result blocks into a partition
+   *    owned by the worker thread.
+   *
+   * 2. The worker partitions are joined by the join tasks, where each join task only merges the group keys that fall
+   *    into its own hash range.
+   *
+   * 3. The joined results are translated into what is expected by the broker (List<Map<String, Object>>), sorted and
+   *    trimmed as per 'TOP N' in the brokerRequest.
+   *
+   * @return IntermediateResultBlock containing the final results from combine operation.
+   */
+  private IntermediateResultsBlock combineBlocks() {
+    long endTime = System.currentTimeMillis() + _timeOutMs;
+    int numOperators = _operators.size();
+    int numWorkers = Math.max(1, Math.min(numOperators, MAX_NUM_WORKERS));
+    final ConcurrentLinkedQueue<ProcessingException> mergedProcessingExceptions = new ConcurrentLinkedQueue<>();
+
+    AggregationFunctionContext[] aggregationFunctionContexts =
+        AggregationFunctionUtils.getAggregationFunctionContexts(_brokerRequest.getAggregationsInfo(), null);
+    int numAggregationFunctions = aggregationFunctionContexts.length;
+    final AggregationFunction[] aggregationFunctions = new AggregationFunction[numAggregationFunctions];
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      aggregationFunctions[i] = aggregationFunctionContexts[i].getAggregationFunction();
+    }
+
+    // Phase 1: merge segment results into worker partitions.
+    final GroupByCombinePartition[] workerPartitions = new GroupByCombinePartition[numWorkers];
+    final AtomicInteger nextOperatorIndex = new AtomicInteger();
+    final CountDownLatch workerLatch = new CountDownLatch(numWorkers);
+    Future[] workerFutures = new Future[numWorkers];
+    for (int i = 0; i < numWorkers; i++) {
+      final int workerId = i;
+      workerFutures[i] = _executorService.submit(new TraceRunnable() {
+        @Override
+        public void runJob() {
+          GroupByCombinePartition partition = new GroupByCombinePartition(aggregationFunctions);
+          int index;
+          while ((index = nextOperatorIndex.getAndIncrement()) < _operators.size()) {
+            try {
+              IntermediateResultsBlock intermediateResultsBlock =
+                  (IntermediateResultsBlock) _operators.get(index).nextBlock();
+
+              // Merge processing exceptions.
+              List<ProcessingException> processingExceptionsToMerge =
+                  intermediateResultsBlock.getProcessingExceptions();
+              if (processingExceptionsToMerge != null) {
+                mergedProcessingExceptions.addAll(processingExceptionsToMerge);
+              }
+
+              // Merge aggregation group-by result.
+              AggregationGroupByResult aggregationGroupByResult =
+                  intermediateResultsBlock.getAggregationGroupByResult();
+              if (aggregationGroupByResult != null) {
+                partition.merge(aggregationGroupByResult);
+              }
+            } catch (Exception e) {
+              LOGGER.error("Exception processing CombineGroupBy for index {}, operator {}", index,
+                  _operators.get(index).getClass().getName(), e);
+              mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+            }
+          }
+          workerPartitions[workerId] = partition;
+          workerLatch.countDown();
+        }
+      });
+    }
+
+    Future[] joinFutures = null;
+    try {
+      if (!workerLatch.await(endTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+        return getTimeoutBlock();
+      }
+
+      // Phase 2: join worker partitions, each join task owns a disjoint hash range of the group keys.
+      final GroupByCombinePartition[] joinedPartitions;
+      if (numWorkers == 1) {
+        joinedPartitions = workerPartitions;
+      } else {
+        final int numJoinPartitions = numWorkers;
+        joinedPartitions = new GroupByCombinePartition[numJoinPartitions];
+        final CountDownLatch joinLatch = new CountDownLatch(numJoinPartitions);
+        joinFutures = new Future[numJoinPartitions];
+        for (int i = 0; i < numJoinPartitions; i++) {
+          final int joinPartitionId = i;
+          joinFutures[i] = _executorService.submit(new TraceRunnable() {
+            @Override
+            public void runJob() {
+              GroupByCombinePartition joinedPartition = new GroupByCombinePartition(aggregationFunctions);
+              for (GroupByCombinePartition workerPartition : workerPartitions) {
+                joinedPartition.merge(workerPartition, joinPartitionId, numJoinPartitions);
+              }
+              joinedPartitions[joinPartitionId] = joinedPartition;
+              joinLatch.countDown();
+            }
+          });
+        }
+        if (!joinLatch.await(endTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+          return getTimeoutBlock();
+        }
+      }
+
+      // Phase 3: trim the results.
+      int numGroups = 0;
+      for (GroupByCombinePartition joinedPartition : joinedPartitions) {
+        numGroups += joinedPartition.getNumGroups();
+      }
+      Map<String, Object[]> resultsMap = new HashMap<>(Math.max(16, (int) (numGroups / 0.75f) + 1));
+      for (GroupByCombinePartition joinedPartition : joinedPartitions) {
+        joinedPartition.dumpToMap(resultsMap);
+      }
+      AggregationGroupByTrimmingService aggregationGroupByTrimmingService =
+          new AggregationGroupByTrimmingService(aggregationFunctions, (int) _brokerRequest.getGroupBy().getTopN());
+      List<Map<String, Object>> trimmedResults =
+          aggregationGroupByTrimmingService.trimIntermediateResultsMap(resultsMap);
+      IntermediateResultsBlock mergedBlock =
+          new IntermediateResultsBlock(aggregationFunctionContexts, trimmedResults, true);
+
+      // Set the processing exceptions.
+      if (!mergedProcessingExceptions.isEmpty()) {
+        mergedBlock.setProcessingExceptions(new ArrayList<>(mergedProcessingExceptions));
+      }
+
+      // Set the execution statistics.
+      ExecutionStatistics executionStatistics = new ExecutionStatistics();
+      for (Operator operator : _operators) {
+        ExecutionStatistics executionStatisticsToMerge = operator.getExecutionStatistics();
+        if (executionStatisticsToMerge != null) {
+          executionStatistics.merge(executionStatisticsToMerge);
+        }
+      }
+      mergedBlock.setNumDocsScanned(executionStatistics.getNumDocsScanned());
+      mergedBlock.setNumEntriesScannedInFilter(executionStatistics.getNumEntriesScannedInFilter());
+      mergedBlock.setNumEntriesScannedPostFilter(executionStatistics.getNumEntriesScannedPostFilter());
+      mergedBlock.setNumTotalRawDocs(executionStatistics.getNumTotalRawDocs());
+
+      return mergedBlock;
+    } catch (Exception e) {
+      return new IntermediateResultsBlock(e);
+    } finally {
+      // Cancel all ongoing jobs
+      cancel(workerFutures);
+      if (joinFutures != null) {
+        cancel(joinFutures);
+      }
+    }
+  }
+
+  private IntermediateResultsBlock getTimeoutBlock() {
+    // If this happens, the broker side should already timed out, just log the error and return
+    String errorMessage = "Timed out while combining group-by results after " + _timeOutMs + "ms";
+    LOGGER.error(errorMessage);
+    return new IntermediateResultsBlock(new TimeoutException(errorMessage));
+  }
+
+  private static void cancel(Future[] futures) {
+    for (Future future : futures) {
+      if (!future.isDone()) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  public Block getNextBlock(BlockId blockId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getOperatorName() {
+    return OPERATOR_NAME;
+  }
+
+  @Override
+  public boolean close() {
+    for (Operator operator : _operators) {
+      operator.close();
+    }
+    return true;
+  }
+}
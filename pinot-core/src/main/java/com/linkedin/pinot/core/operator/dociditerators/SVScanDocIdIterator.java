@@ -24,7 +24,16 @@ import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.roaringbitmap.IntIterator;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
+/**
+ * Scan based doc id iterator for single-value columns.
+ * <p>When iterating with {@link #next()} and {@link #advance(int)}, the values are read and evaluated in batches of
+ * consecutive documents, and the matching doc ids of the batch are buffered. The number of entries scanned is still
+ * accounted as if the documents were evaluated one by one, so that it does not depend on the batch size.
+ */
 public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
+  // Keep the value and doc id buffers small enough to stay in the CPU cache
+  private static final int MAX_NUM_DOCS_PER_BATCH = 256;
+
   private int _currentDocId = -1;
   private final BlockSingleValIterator _valueIterator;
   private int _startDocId;
@@ -34,6 +43,12 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
   private int _numEntriesScanned = 0;
   private final ValueMatcher _valueMatcher;
 
+  // Matching doc ids of the current batch, which covers documents up to _batchEndDocId
+  private final int[] _matchingDocIds = new int[MAX_NUM_DOCS_PER_BATCH];
+  private int _numMatchingDocIds = 0;
+  private int _matchingDocIdIndex = 0;
+  private int _batchEndDocId = -1;
+
   public SVScanDocIdIterator(String datasourceName, BlockValSet blockValSet, BlockMetadata blockMetadata,
       PredicateEvaluator evaluator) {
     _datasourceName = datasourceName;
@@ -66,6 +81,7 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     _currentDocId = startDocId - 1;
     _valueIterator.skipTo(startDocId);
     _startDocId = startDocId;
+    resetBatch();
   }
 
   /**
@@ -76,6 +92,7 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
    */
   public void setEndDocId(int endDocId) {
     _endDocId = endDocId;
+    resetBatch();
   }
 
   @Override
@@ -97,14 +114,21 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
       targetDocId = _startDocId;
     } else if (targetDocId > _endDocId) {
       _currentDocId = Constants.EOF;
+      return _currentDocId;
     }
     if (_currentDocId >= targetDocId) {
       return _currentDocId;
+    }
+    // Documents skipped are not scanned
+    _currentDocId = targetDocId - 1;
+    if (targetDocId <= _batchEndDocId) {
+      while (_matchingDocIdIndex < _numMatchingDocIds && _matchingDocIds[_matchingDocIdIndex] < targetDocId) {
+        _matchingDocIdIndex++;
+      }
     } else {
-      _currentDocId = targetDocId - 1;
-      _valueIterator.skipTo(targetDocId);
-      return next();
+      resetBatch();
     }
+    return next();
   }
 
   @Override
@@ -112,15 +136,36 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     if (_currentDocId == Constants.EOF) {
       return Constants.EOF;
     }
-    while (_valueIterator.hasNext() && _currentDocId < _endDocId) {
-      _currentDocId = _currentDocId + 1;
-      _numEntriesScanned++;
-      if (_valueMatcher.doesCurrentEntryMatch(_valueIterator)) {
-        return _currentDocId;
+    while (true) {
+      if (_matchingDocIdIndex < _numMatchingDocIds) {
+        int docId = _matchingDocIds[_matchingDocIdIndex++];
+        _numEntriesScanned += docId - _currentDocId;
+        _currentDocId = docId;
+        return docId;
+      }
+      // The remaining documents of the current batch do not match
+      _numEntriesScanned += _batchEndDocId - _currentDocId;
+      _currentDocId = _batchEndDocId;
+      if (_currentDocId >= _endDocId) {
+        _currentDocId = Constants.EOF;
+        return Constants.EOF;
       }
+      int batchStartDocId = _currentDocId + 1;
+      int batchLength = Math.min(_endDocId - _currentDocId, MAX_NUM_DOCS_PER_BATCH);
+      _valueIterator.skipTo(batchStartDocId);
+      _numMatchingDocIds = _valueMatcher.matchBatch(_valueIterator, batchStartDocId, batchLength, _matchingDocIds);
+      _matchingDocIdIndex = 0;
+      _batchEndDocId = batchStartDocId + batchLength - 1;
     }
-    _currentDocId = Constants.EOF;
-    return Constants.EOF;
+  }
+
+  /**
+   * Helper method to drop the current batch, so that the next batch starts right after the current doc id.
+   */
+  private void resetBatch() {
+    _numMatchingDocIds = 0;
+    _matchingDocIdIndex = 0;
+    _batchEndDocId = _currentDocId;
   }
 
   @Override
@@ -195,38 +240,74 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     }
 
     abstract boolean doesCurrentEntryMatch(BlockSingleValIterator valueIterator);
+
+    /**
+     * Reads the next <code>length</code> values from the value iterator, and writes the doc ids of the matching values
+     * into <code>matchingDocIds</code>.
+     *
+     * @return number of matching doc ids
+     */
+    abstract int matchBatch(BlockSingleValIterator valueIterator, int startDocId, int length, int[] matchingDocIds);
   }
 
   private static class IntMatcher extends ValueMatcher {
+    private final int[] _values = new int[MAX_NUM_DOCS_PER_BATCH];
 
     @Override
     public boolean doesCurrentEntryMatch(BlockSingleValIterator valueIterator) {
       return _evaluator.apply(valueIterator.nextIntVal());
     }
+
+    @Override
+    int matchBatch(BlockSingleValIterator valueIterator, int startDocId, int length, int[] matchingDocIds) {
+      valueIterator.nextIntVals(_values, length);
+      return _evaluator.applySV(length, startDocId, _values, matchingDocIds);
+    }
   }
 
   private static class LongMatcher extends ValueMatcher {
+    private final long[] _values = new long[MAX_NUM_DOCS_PER_BATCH];
 
     @Override
     public boolean doesCurrentEntryMatch(BlockSingleValIterator valueIterator) {
       return _evaluator.apply(valueIterator.nextLongVal());
     }
+
+    @Override
+    int matchBatch(BlockSingleValIterator valueIterator, int startDocId, int length, int[] matchingDocIds) {
+      valueIterator.nextLongVals(_values, length);
+      return _evaluator.applySV(length, startDocId, _values, matchingDocIds);
+    }
   }
 
   private static class FloatMatcher extends ValueMatcher {
+    private final float[] _values = new float[MAX_NUM_DOCS_PER_BATCH];
 
     @Override
     public boolean doesCurrentEntryMatch(BlockSingleValIterator valueIterator) {
       return _evaluator.apply(valueIterator.nextFloatVal());
     }
+
+    @Override
+    int matchBatch(BlockSingleValIterator valueIterator, int startDocId, int length, int[] matchingDocIds) {
+      valueIterator.nextFloatVals(_values, length);
+      return _evaluator.applySV(length, startDocId, _values, matchingDocIds);
+    }
   }
 
   private static class DoubleMatcher extends ValueMatcher {
+    private final double[] _values = new double[MAX_NUM_DOCS_PER_BATCH];
 
     @Override
     public boolean doesCurrentEntryMatch(BlockSingleValIterator valueIterator) {
       return _evaluator.apply(valueIterator.nextDoubleVal());
     }
+
+    @Override
+    int matchBatch(BlockSingleValIterator valueIterator, int startDocId, int length, int[] matchingDocIds) {
+      valueIterator.nextDoubleVals(_values, length);
+      return _evaluator.applySV(length, startDocId, _values, matchingDocIds);
+    }
   }
 
   private static class StringMatcher extends ValueMatcher {
@@ -235,5 +316,17 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     public boolean doesCurrentEntryMatch(BlockSingleValIterator valueIterator) {
       return _evaluator.apply(valueIterator.nextStringVal());
     }
+
+    @Override
+    int matchBatch(BlockSingleValIterator valueIterator, int startDocId, int length, int[] matchingDocIds) {
+      // No primitive representation for STRING values, evaluate them one by one
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        if (_evaluator.apply(valueIterator.nextStringVal())) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
   }
 }
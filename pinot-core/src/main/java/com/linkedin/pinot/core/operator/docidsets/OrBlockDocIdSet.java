@@ -55,11 +55,19 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
   @Override
   public void setStartDocId(int startDocId) {
     _minDocId = Math.max(_minDocId, startDocId);
+    // Narrow down the children so that they do not process documents outside of the range
+    for (FilterBlockDocIdSet docIdSet : _docIdSets) {
+      docIdSet.setStartDocId(Math.max(docIdSet.getMinDocId(), _minDocId));
+    }
   }
 
   @Override
   public void setEndDocId(int endDocId) {
     _maxDocId = Math.min(_maxDocId, endDocId);
+    // Narrow down the children so that they do not process documents outside of the range
+    for (FilterBlockDocIdSet docIdSet : _docIdSets) {
+      docIdSet.setEndDocId(Math.min(docIdSet.getMaxDocId(), _maxDocId));
+    }
   }
 
   @Override
@@ -58,6 +58,30 @@ public final class SingleValueIterator extends BlockSingleValIterator {
     return _reader.getString(_nextDocId++, _context);
   }
 
+  @Override
+  public void nextIntVals(int[] buffer, int length) {
+    _reader.readIntValues(_nextDocId, length, buffer, _context);
+    _nextDocId += length;
+  }
+
+  @Override
+  public void nextLongVals(long[] buffer, int length) {
+    _reader.readLongValues(_nextDocId, length, buffer, _context);
+    _nextDocId += length;
+  }
+
+  @Override
+  public void nextFloatVals(float[] buffer, int length) {
+    _reader.readFloatValues(_nextDocId, length, buffer, _context);
+    _nextDocId += length;
+  }
+
+  @Override
+  public void nextDoubleVals(double[] buffer, int length) {
+    _reader.readDoubleValues(_nextDocId, length, buffer, _context);
+    _nextDocId += length;
+  }
+
   @Override
   public boolean hasNext() {
     return _nextDocId < _numDocs;
@@ -121,4 +121,53 @@ public abstract class BasePredicateEvaluator implements PredicateEvaluator {
   public boolean apply(double[] values, int length) {
     throw new UnsupportedOperationException(EXCEPTION_MESSAGE);
   }
+
+  /**
+   * Batch evaluation for single-value columns.
+   * <p>The default implementations evaluate the values one by one, evaluators should override them with tight loops
+   * when they have a fast path.
+   */
+  @Override
+  public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds) {
+    int numMatchingDocIds = 0;
+    for (int i = 0; i < length; i++) {
+      if (apply(values[i])) {
+        matchingDocIds[numMatchingDocIds++] = startDocId + i;
+      }
+    }
+    return numMatchingDocIds;
+  }
+
+  @Override
+  public int applySV(int length, int startDocId, long[] values, int[] matchingDocIds) {
+    int numMatchingDocIds = 0;
+    for (int i = 0; i < length; i++) {
+      if (apply(values[i])) {
+        matchingDocIds[numMatchingDocIds++] = startDocId + i;
+      }
+    }
+    return numMatchingDocIds;
+  }
+
+  @Override
+  public int applySV(int length, int startDocId, float[] values, int[] matchingDocIds) {
+    int numMatchingDocIds = 0;
+    for (int i = 0; i < length; i++) {
+      if (apply(values[i])) {
+        matchingDocIds[numMatchingDocIds++] = startDocId + i;
+      }
+    }
+    return numMatchingDocIds;
+  }
+
+  @Override
+  public int applySV(int length, int startDocId, double[] values, int[] matchingDocIds) {
+    int numMatchingDocIds = 0;
+    for (int i = 0; i < length; i++) {
+      if (apply(values[i])) {
+        matchingDocIds[numMatchingDocIds++] = startDocId + i;
+      }
+    }
+    return numMatchingDocIds;
+  }
 }
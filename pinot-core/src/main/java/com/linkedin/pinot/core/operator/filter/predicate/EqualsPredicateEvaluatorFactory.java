@@ -85,6 +85,18 @@ public class EqualsPredicateEvaluatorFactory {
       return (_expectedValue == inputValue);
     }
 
+    @Override
+    public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        int value = values[i];
+        if (value == _expectedValue) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(int[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -120,6 +132,18 @@ public class EqualsPredicateEvaluatorFactory {
       return (_expectedValue == inputValue);
     }
 
+    @Override
+    public int applySV(int length, int startDocId, long[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        long value = values[i];
+        if (value == _expectedValue) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(long[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -155,6 +179,18 @@ public class EqualsPredicateEvaluatorFactory {
       return (_expectedValue == inputValue);
     }
 
+    @Override
+    public int applySV(int length, int startDocId, float[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        float value = values[i];
+        if (value == _expectedValue) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(float[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -190,6 +226,18 @@ public class EqualsPredicateEvaluatorFactory {
       return (_expectedValue == inputValue);
     }
 
+    @Override
+    public int applySV(int length, int startDocId, double[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        double value = values[i];
+        if (value == _expectedValue) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(double[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -270,6 +318,18 @@ public class EqualsPredicateEvaluatorFactory {
       return (dictionaryId == _equalsMatchDictId);
     }
 
+    @Override
+    public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        int value = values[i];
+        if (value == _equalsMatchDictId) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(int[] dictionaryIds) {
       if (_equalsMatchDictId < 0) {
@@ -113,6 +113,18 @@ public class InPredicateEvaluatorFactory extends BasePredicateEvaluator {
       return _dictIdSet.contains(dictionaryId);
     }
 
+    @Override
+    public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        int value = values[i];
+        if (_dictIdSet.contains(value)) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(int[] dictionaryIds) {
       for (int dictId : dictionaryIds) {
@@ -169,6 +181,18 @@ public class InPredicateEvaluatorFactory extends BasePredicateEvaluator {
       return (_matchingValues.contains(inputValue));
     }
 
+    @Override
+    public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        int value = values[i];
+        if (_matchingValues.contains(value)) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(int[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -206,6 +230,18 @@ public class InPredicateEvaluatorFactory extends BasePredicateEvaluator {
       return (_matchingValues.contains(inputValue));
     }
 
+    @Override
+    public int applySV(int length, int startDocId, long[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        long value = values[i];
+        if (_matchingValues.contains(value)) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(long[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -243,6 +279,18 @@ public class InPredicateEvaluatorFactory extends BasePredicateEvaluator {
       return (_matchingValues.contains(inputValue));
     }
 
+    @Override
+    public int applySV(int length, int startDocId, float[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        float value = values[i];
+        if (_matchingValues.contains(value)) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(float[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -280,6 +328,18 @@ public class InPredicateEvaluatorFactory extends BasePredicateEvaluator {
       return (_matchingValues.contains(inputValue));
     }
 
+    @Override
+    public int applySV(int length, int startDocId, double[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        double value = values[i];
+        if (_matchingValues.contains(value)) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(double[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -103,4 +103,33 @@ public interface PredicateEvaluator {
   public boolean apply(double[] values);
 
   public boolean apply(double[] values, int length);
+
+  /**
+   * Batch evaluation for single-value columns.
+   * <p>Evaluates the predicate on the dictionary ids (or INT values for no-dictionary columns) of <code>length</code>
+   * consecutive documents starting from <code>startDocId</code>, and writes the doc ids of the matching documents into
+   * <code>matchingDocIds</code>.
+   *
+   * @param length number of values to evaluate
+   * @param startDocId doc id of the first value
+   * @param values dictionary ids or INT values
+   * @param matchingDocIds buffer for the matching doc ids
+   * @return number of matching doc ids
+   */
+  public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds);
+
+  /**
+   * Batch evaluation for single-value LONG no-dictionary columns, see {@link #applySV(int, int, int[], int[])}.
+   */
+  public int applySV(int length, int startDocId, long[] values, int[] matchingDocIds);
+
+  /**
+   * Batch evaluation for single-value FLOAT no-dictionary columns, see {@link #applySV(int, int, int[], int[])}.
+   */
+  public int applySV(int length, int startDocId, float[] values, int[] matchingDocIds);
+
+  /**
+   * Batch evaluation for single-value DOUBLE no-dictionary columns, see {@link #applySV(int, int, int[], int[])}.
+   */
+  public int applySV(int length, int startDocId, double[] values, int[] matchingDocIds);
 }
@@ -136,6 +136,18 @@ public class RangePredicateEvaluatorFactory {
       return dictionaryId >= _rangeStartIndex && dictionaryId <= _rangeEndIndex;
     }
 
+    @Override
+    public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        int value = values[i];
+        if (value >= _rangeStartIndex && value <= _rangeEndIndex) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(int[] dictionaryIds) {
       for (int dictId : dictionaryIds) {
@@ -308,6 +320,24 @@ public class RangePredicateEvaluatorFactory {
       }
     }
 
+    @Override
+    public int applySV(int length, int startDocId, int[] values, int[] matchingDocIds) {
+      // Convert exclusive boundaries into inclusive ones, so that the loop only does 2 comparisons per value
+      if ((!_incLower && _rangeStart == Integer.MAX_VALUE) || (!_incUpper && _rangeEnd == Integer.MIN_VALUE)) {
+        return 0;
+      }
+      int lower = _incLower ? _rangeStart : _rangeStart + 1;
+      int upper = _incUpper ? _rangeEnd : _rangeEnd - 1;
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        int value = values[i];
+        if (value >= lower && value <= upper) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(int[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -364,6 +394,24 @@ public class RangePredicateEvaluatorFactory {
       }
     }
 
+    @Override
+    public int applySV(int length, int startDocId, long[] values, int[] matchingDocIds) {
+      // Convert exclusive boundaries into inclusive ones, so that the loop only does 2 comparisons per value
+      if ((!_incLower && _rangeStart == Long.MAX_VALUE) || (!_incUpper && _rangeEnd == Long.MIN_VALUE)) {
+        return 0;
+      }
+      long lower = _incLower ? _rangeStart : _rangeStart + 1;
+      long upper = _incUpper ? _rangeEnd : _rangeEnd - 1;
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        long value = values[i];
+        if (value >= lower && value <= upper) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(long[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -420,6 +468,18 @@ public class RangePredicateEvaluatorFactory {
       }
     }
 
+    @Override
+    public int applySV(int length, int startDocId, float[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        float value = values[i];
+        if (apply(value)) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(float[] inputValues) {
       return apply(inputValues, inputValues.length);
@@ -476,6 +536,18 @@ public class RangePredicateEvaluatorFactory {
       }
     }
 
+    @Override
+    public int applySV(int length, int startDocId, double[] values, int[] matchingDocIds) {
+      int numMatchingDocIds = 0;
+      for (int i = 0; i < length; i++) {
+        double value = values[i];
+        if (apply(value)) {
+          matchingDocIds[numMatchingDocIds++] = startDocId + i;
+        }
+      }
+      return numMatchingDocIds;
+    }
+
     @Override
     public boolean apply(double[] inputValues) {
       return apply(inputValues, inputValues.length);
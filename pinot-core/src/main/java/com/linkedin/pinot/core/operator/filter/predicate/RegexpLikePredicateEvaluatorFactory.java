@@ -15,18 +15,85 @@
  */
 package com.linkedin.pinot.core.operator.filter.predicate;
 
-import java.util.regex.Pattern;
-
 import com.linkedin.pinot.core.common.predicate.RegexpLikePredicate;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.OnHeapStringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
 
 public class RegexpLikePredicateEvaluatorFactory {
+  private static final int PATTERN_FLAGS = Pattern.UNICODE_CASE | Pattern.CASE_INSENSITIVE;
+  private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+  private static final String OPTIONAL_QUANTIFIERS = "?*{";
+  // Maximum number of case variants of the literal prefix to look up in the dictionary
+  private static final int MAX_NUM_PREFIX_VARIANTS = 64;
+
+  // Characters matching each ASCII character under case insensitive unicode matching (same as java.util.regex, which
+  // compares Character.toLowerCase(Character.toUpperCase(c)))
+  private static final char[][] ASCII_CASE_VARIANTS = new char[128][];
+
+  static {
+    List<List<Character>> variants = new ArrayList<>(128);
+    for (int i = 0; i < 128; i++) {
+      variants.add(new ArrayList<Character>());
+    }
+    for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+      char c = (char) i;
+      if (Character.isSurrogate(c)) {
+        continue;
+      }
+      char foldedChar = foldCase(c);
+      char upperCaseChar = Character.toUpperCase(foldedChar);
+      // An ASCII character matches c iff its folded form is the same as the folded form of c
+      if (foldedChar < 128) {
+        variants.get(foldedChar).add(c);
+      }
+      if (upperCaseChar < 128 && upperCaseChar != foldedChar && foldCase(upperCaseChar) == foldedChar) {
+        variants.get(upperCaseChar).add(c);
+      }
+    }
+    for (int i = 0; i < 128; i++) {
+      List<Character> charVariants = variants.get(i);
+      int numVariants = charVariants.size();
+      char[] charArray = new char[numVariants];
+      for (int j = 0; j < numVariants; j++) {
+        charArray[j] = charVariants.get(j);
+      }
+      ASCII_CASE_VARIANTS[i] = charArray;
+    }
+  }
 
   private RegexpLikePredicateEvaluatorFactory() {
 
   }
 
+  /**
+   * Creates a dictionary based REGEXP_LIKE predicate evaluator.
+   * <p>For immutable dictionaries, the matching dictionary ids are computed up front and cached per dictionary and
+   * pattern, so that the pattern is not evaluated again for the same segment. If the pattern starts with a literal
+   * prefix (e.g. <code>^abc.*</code>), only the values inside the dictionary ranges of the prefix are evaluated.
+   */
   public static PredicateEvaluator newDictionaryBasedEvaluator(RegexpLikePredicate predicate, Dictionary dictionary) {
+    if (dictionary instanceof ImmutableDictionaryReader) {
+      ImmutableDictionaryReader immutableDictionary = (ImmutableDictionaryReader) dictionary;
+      String regex = predicate.getRegex();
+      ImmutableRoaringBitmap matchingDictIds = RegexpMatchingDictIdsCache.get(immutableDictionary, regex);
+      if (matchingDictIds == null) {
+        matchingDictIds =
+            computeMatchingDictIds(immutableDictionary, regex, Pattern.compile(regex, PATTERN_FLAGS));
+        RegexpMatchingDictIdsCache.put(immutableDictionary, regex, matchingDictIds);
+      }
+      return new MatchingDictIdsBasedRegexPredicateEvaluator(matchingDictIds);
+    }
     return new DictionaryBasedRegexPredicateEvaluator(predicate, dictionary);
   }
 
@@ -34,6 +101,196 @@ public class RegexpLikePredicateEvaluatorFactory {
     return new NoDictionaryBasedRegexPredicateEvaluator(predicate);
   }
 
+  /**
+   * Helper method to compute the dictionary ids of the values matching the pattern.
+   */
+  private static ImmutableRoaringBitmap computeMatchingDictIds(@Nonnull ImmutableDictionaryReader dictionary,
+      @Nonnull String regex, @Nonnull Pattern pattern) {
+    MutableRoaringBitmap matchingDictIds = new MutableRoaringBitmap();
+    Matcher matcher = pattern.matcher("");
+    String prefix = "";
+    if (dictionary instanceof StringDictionary || dictionary instanceof OnHeapStringDictionary) {
+      prefix = getLiteralPrefix(regex);
+    }
+    if (prefix.isEmpty()) {
+      int length = dictionary.length();
+      for (int dictId = 0; dictId < length; dictId++) {
+        if (matcher.reset(dictionary.getStringValue(dictId)).find()) {
+          matchingDictIds.add(dictId);
+        }
+      }
+    } else {
+      // Values sharing a prefix are contiguous in the sorted dictionary
+      for (String prefixVariant : getCaseVariants(prefix, MAX_NUM_PREFIX_VARIANTS)) {
+        int[] dictIdRange = dictionary.getDictIdRangeForPrefix(prefixVariant);
+        int endDictId = dictIdRange[1];
+        for (int dictId = dictIdRange[0]; dictId < endDictId; dictId++) {
+          if (matcher.reset(dictionary.getStringValue(dictId)).find()) {
+            matchingDictIds.add(dictId);
+          }
+        }
+      }
+    }
+    matchingDictIds.runOptimize();
+    return matchingDictIds;
+  }
+
+  /**
+   * Returns the literal prefix every value matching the regex must start with (ignoring case), or empty string if the
+   * regex is not anchored at the beginning or does not start with a literal.
+   * <p>Only ASCII characters are put into the prefix. The prefix is conservative: the regex still needs to be
+   * evaluated on the values starting with the prefix.
+   */
+  @Nonnull
+  static String getLiteralPrefix(@Nonnull String regex) {
+    int length = regex.length();
+    if (length == 0 || regex.charAt(0) != '^') {
+      return "";
+    }
+
+    // Alternation might make the anchor apply to only one of the branches
+    for (int i = 1; i < length; i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '|') {
+        return "";
+      }
+    }
+
+    StringBuilder prefix = new StringBuilder();
+    int index = 1;
+    while (index < length) {
+      char c = regex.charAt(index);
+      char literal;
+      int nextIndex;
+      if (c == '\\') {
+        // Escaped letters and digits are character classes, back references or special constructs
+        if (index + 1 == length) {
+          break;
+        }
+        literal = regex.charAt(index + 1);
+        if (isAsciiLetterOrDigit(literal)) {
+          break;
+        }
+        nextIndex = index + 2;
+      } else {
+        if (META_CHARACTERS.indexOf(c) >= 0) {
+          break;
+        }
+        literal = c;
+        nextIndex = index + 1;
+      }
+      if (literal >= 128) {
+        break;
+      }
+      if (nextIndex < length) {
+        char next = regex.charAt(nextIndex);
+        if (OPTIONAL_QUANTIFIERS.indexOf(next) >= 0) {
+          break;
+        }
+        if (next == '+') {
+          prefix.append(literal);
+          break;
+        }
+      }
+      prefix.append(literal);
+      index = nextIndex;
+    }
+    return prefix.toString();
+  }
+
+  /**
+   * Returns all the strings matching the given ASCII prefix under case insensitive unicode matching. The prefix is
+   * shortened if the number of variants exceeds the given maximum.
+   */
+  @Nonnull
+  static List<String> getCaseVariants(@Nonnull String prefix, int maxNumVariants) {
+    int length = prefix.length();
+    int prefixLength = 0;
+    int numVariants = 1;
+    while (prefixLength < length) {
+      int numCharVariants = ASCII_CASE_VARIANTS[prefix.charAt(prefixLength)].length;
+      if (numVariants * numCharVariants > maxNumVariants) {
+        break;
+      }
+      numVariants *= numCharVariants;
+      prefixLength++;
+    }
+    if (prefixLength == 0) {
+      return Collections.singletonList("");
+    }
+
+    List<String> variants = new ArrayList<>(numVariants);
+    char[] chars = new char[prefixLength];
+    addCaseVariants(prefix, 0, chars, variants);
+    return variants;
+  }
+
+  private static void addCaseVariants(String prefix, int index, char[] chars, List<String> variants) {
+    if (index == chars.length) {
+      variants.add(new String(chars));
+      return;
+    }
+    for (char c : ASCII_CASE_VARIANTS[prefix.charAt(index)]) {
+      chars[index] = c;
+      addCaseVariants(prefix, index + 1, chars, variants);
+    }
+  }
+
+  private static char foldCase(char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private static boolean isAsciiLetterOrDigit(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
+
+  /**
+   * Evaluator based on the pre-computed matching dictionary ids.
+   */
+  private static class MatchingDictIdsBasedRegexPredicateEvaluator extends BasePredicateEvaluator {
+    private final ImmutableRoaringBitmap _matchingDictIds;
+    private int[] _matchingDictIdArray;
+
+    public MatchingDictIdsBasedRegexPredicateEvaluator(ImmutableRoaringBitmap matchingDictIds) {
+      _matchingDictIds = matchingDictIds;
+    }
+
+    @Override
+    public boolean apply(int dictionaryId) {
+      return _matchingDictIds.contains(dictionaryId);
+    }
+
+    @Override
+    public boolean apply(int[] dictionaryIds) {
+      return apply(dictionaryIds, dictionaryIds.length);
+    }
+
+    @Override
+    public boolean apply(int[] dictionaryIds, int length) {
+      for (int i = 0; i < length; i++) {
+        if (_matchingDictIds.contains(dictionaryIds[i])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int[] getMatchingDictionaryIds() {
+      if (_matchingDictIdArray == null) {
+        _matchingDictIdArray = _matchingDictIds.toArray();
+      }
+      return _matchingDictIdArray;
+    }
+
+    @Override
+    public boolean alwaysFalse() {
+      return _matchingDictIds.isEmpty();
+    }
+  }
+
   private static class DictionaryBasedRegexPredicateEvaluator extends BasePredicateEvaluator {
     private Dictionary dictionary;
     private Pattern pattern;
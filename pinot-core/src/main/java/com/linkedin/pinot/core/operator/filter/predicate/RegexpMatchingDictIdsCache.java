@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter.predicate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import java.lang.ref.WeakReference;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+
+/**
+ * The <code>RegexpMatchingDictIdsCache</code> class caches the dictionary ids matching a REGEXP_LIKE pattern, keyed by
+ * the immutable dictionary (i.e. the column of a segment) and the pattern.
+ * <p>The dictionaries are weakly referenced, so that the entries of unloaded segments never match again and are
+ * evicted as the cache fills up. The cache is bounded by the size of the bitmaps.
+ */
+@ThreadSafe
+class RegexpMatchingDictIdsCache {
+  private static final long MAX_SIZE_IN_BYTES = 64L * 1024 * 1024;
+  private static final int MAX_ENTRY_SIZE_IN_BYTES = 1024 * 1024;
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 64;
+
+  private static final Cache<Key, ImmutableRoaringBitmap> CACHE = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_SIZE_IN_BYTES)
+      .weigher(new Weigher<Key, ImmutableRoaringBitmap>() {
+        @Override
+        public int weigh(@Nonnull Key key, @Nonnull ImmutableRoaringBitmap matchingDictIds) {
+          return matchingDictIds.getSizeInBytes() + 2 * key._regex.length() + ENTRY_OVERHEAD_IN_BYTES;
+        }
+      })
+      .build();
+
+  private RegexpMatchingDictIdsCache() {
+  }
+
+  @Nullable
+  static ImmutableRoaringBitmap get(@Nonnull ImmutableDictionaryReader dictionary, @Nonnull String regex) {
+    return CACHE.getIfPresent(new Key(dictionary, regex));
+  }
+
+  static void put(@Nonnull ImmutableDictionaryReader dictionary, @Nonnull String regex,
+      @Nonnull ImmutableRoaringBitmap matchingDictIds) {
+    // Do not let a single pattern matching a large number of scattered values flush the whole cache
+    if (matchingDictIds.getSizeInBytes() <= MAX_ENTRY_SIZE_IN_BYTES) {
+      CACHE.put(new Key(dictionary, regex), matchingDictIds);
+    }
+  }
+
+  static long getNumEntries() {
+    return CACHE.size();
+  }
+
+  static void invalidateAll() {
+    CACHE.invalidateAll();
+  }
+
+  /**
+   * Key of the cache, which compares the dictionaries by identity.
+   */
+  private static class Key {
+    private final WeakReference<ImmutableDictionaryReader> _dictionary;
+    private final String _regex;
+    private final int _hashCode;
+
+    private Key(@Nonnull ImmutableDictionaryReader dictionary, @Nonnull String regex) {
+      _dictionary = new WeakReference<>(dictionary);
+      _regex = regex;
+      _hashCode = 31 * System.identityHashCode(dictionary) + regex.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      ImmutableDictionaryReader dictionary = _dictionary.get();
+      return dictionary != null && dictionary == that._dictionary.get() && _regex.equals(that._regex);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+}
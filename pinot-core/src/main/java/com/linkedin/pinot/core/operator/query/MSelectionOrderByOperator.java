@@ -25,7 +25,6 @@ import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.operator.BaseOperator;
 import com.linkedin.pinot.core.operator.ExecutionStatistics;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
-import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
 import com.linkedin.pinot.core.query.selection.SelectionOperatorService;
@@ -90,12 +89,18 @@ public class MSelectionOrderByOperator extends BaseOperator {
     int numDocsScanned = 0;
 
     ProjectionBlock projectionBlock;
+    ProjectionBlock lastProjectionBlock = null;
     while ((projectionBlock = (ProjectionBlock) _projectionOperator.nextBlock()) != null) {
+      _selectionOperatorService.iterateOnProjectionBlockWithOrdering(projectionBlock);
+      lastProjectionBlock = projectionBlock;
+    }
+
+    // Only fetch the rows for the selected documents, the column blocks can fetch values for any document.
+    if (lastProjectionBlock != null) {
       for (int i = 0; i < _dataSchema.size(); i++) {
-        _blocks[i] = projectionBlock.getBlock(_dataSchema.getColumnName(i));
+        _blocks[i] = lastProjectionBlock.getBlock(_dataSchema.getColumnName(i));
       }
-      DocIdSetBlock docIdSetBlock = projectionBlock.getDocIdSetBlock();
-      _selectionOperatorService.iterateOnBlocksWithOrdering(docIdSetBlock.getBlockDocIdSet().iterator(), _blocks);
+      _selectionOperatorService.materializeRowsWithOrdering(_blocks);
     }
 
     // Create execution statistics.
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.query;
+
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>SegmentResultCacheOperator</code> class provides the operator for aggregation and aggregation group-by
+ * queries on a single segment backed by the {@link SegmentResultCache}.
+ * <ul>
+ *   <li>On a cache hit, it returns a copy of the cached segment level results without touching the segment.</li>
+ *   <li>On a cache miss, it runs the underlying operator and caches its results.</li>
+ * </ul>
+ */
+public class SegmentResultCacheOperator extends BaseOperator {
+  private static final String OPERATOR_NAME = "SegmentResultCacheOperator";
+
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentResultCache.Key _key;
+  private final AggregationFunctionContext[] _aggregationFunctionContexts;
+  private final SegmentResultCache.Entry _entry;
+  private final Operator _operator;
+  private ExecutionStatistics _executionStatistics;
+
+  /**
+   * Constructor for cache hit.
+   */
+  public SegmentResultCacheOperator(@Nonnull AggregationFunctionContext[] aggregationFunctionContexts,
+      @Nonnull SegmentResultCache.Entry entry) {
+    _segmentResultCache = null;
+    _key = null;
+    _aggregationFunctionContexts = aggregationFunctionContexts;
+    _entry = entry;
+    _operator = null;
+  }
+
+  /**
+   * Constructor for cache miss. The results of the underlying operator are returned and cached with the given
+   * aggregation function contexts, the same as on a cache hit.
+   */
+  public SegmentResultCacheOperator(@Nonnull AggregationFunctionContext[] aggregationFunctionContexts,
+      @Nonnull SegmentResultCache segmentResultCache, @Nonnull SegmentResultCache.Key key,
+      @Nonnull Operator operator) {
+    _segmentResultCache = segmentResultCache;
+    _key = key;
+    _aggregationFunctionContexts = aggregationFunctionContexts;
+    _entry = null;
+    _operator = operator;
+  }
+
+  @Override
+  public boolean open() {
+    if (_operator != null) {
+      _operator.open();
+    }
+    return true;
+  }
+
+  @Override
+  public Block getNextBlock() {
+    if (_entry != null) {
+      _executionStatistics = _entry.getExecutionStatistics();
+      try {
+        return _entry.getResultsBlock(_aggregationFunctionContexts);
+      } catch (Exception e) {
+        throw new RuntimeException("Caught exception while deserializing cached segment results", e);
+      }
+    }
+
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) _operator.nextBlock();
+    _executionStatistics = _operator.getExecutionStatistics();
+    if (resultsBlock.getAggregationFunctionContexts() != null) {
+      resultsBlock.setAggregationFunctionContexts(_aggregationFunctionContexts);
+    }
+    // Put the results into the cache before returning them, because the combine operator merges into them in place.
+    _segmentResultCache.put(_key, resultsBlock, _executionStatistics);
+    return resultsBlock;
+  }
+
+  @Override
+  public Block getNextBlock(BlockId blockId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getOperatorName() {
+    return OPERATOR_NAME;
+  }
+
+  @Override
+  public boolean close() {
+    if (_operator != null) {
+      _operator.close();
+    }
+    return true;
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    return _executionStatistics;
+  }
+}
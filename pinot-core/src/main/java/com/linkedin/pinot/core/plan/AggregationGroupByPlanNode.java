@@ -26,6 +26,7 @@ import com.linkedin.pinot.core.operator.transform.TransformExpressionOperator;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,24 +44,37 @@ public class AggregationGroupByPlanNode implements PlanNode {
   private final TransformPlanNode _transformPlanNode;
   private final int _maxInitialResultHolderCapacity;
   private final int _numGroupsLimit;
+  private final DocIdRange _docIdRange;
 
   public AggregationGroupByPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
       int maxInitialResultHolderCapacity, int numGroupsLimit) {
+    this(indexSegment, brokerRequest, maxInitialResultHolderCapacity, numGroupsLimit, null);
+  }
+
+  /**
+   * Constructor for the plan node which only processes the given range of documents of the segment.
+   */
+  public AggregationGroupByPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
+      int maxInitialResultHolderCapacity, int numGroupsLimit, @Nullable DocIdRange docIdRange) {
     _indexSegment = indexSegment;
     _aggregationInfos = brokerRequest.getAggregationsInfo();
     _groupBy = brokerRequest.getGroupBy();
     _maxInitialResultHolderCapacity = maxInitialResultHolderCapacity;
     _numGroupsLimit = numGroupsLimit;
-    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest);
+    _docIdRange = docIdRange;
+    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest, docIdRange);
   }
 
   @Override
   public Operator run() {
     TransformExpressionOperator transformOperator = (TransformExpressionOperator) _transformPlanNode.run();
     SegmentMetadata segmentMetadata = _indexSegment.getSegmentMetadata();
+    // Only count the total raw docs once per segment.
+    long numTotalRawDocs =
+        (_docIdRange == null || _docIdRange.isFirstRange()) ? segmentMetadata.getTotalRawDocs() : 0L;
     return new AggregationGroupByOperator(
         AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, segmentMetadata), _groupBy,
-        _maxInitialResultHolderCapacity, _numGroupsLimit, transformOperator, segmentMetadata.getTotalRawDocs());
+        _maxInitialResultHolderCapacity, _numGroupsLimit, transformOperator, numTotalRawDocs);
   }
 
   @Override
@@ -68,6 +82,9 @@ public class AggregationGroupByPlanNode implements PlanNode {
     LOGGER.debug(prefix + "Segment Level Inner-Segment Plan Node:");
     LOGGER.debug(prefix + "Operator: AggregationGroupByOperator");
     LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+    if (_docIdRange != null) {
+      LOGGER.debug(prefix + "DocIdRange - " + _docIdRange);
+    }
     LOGGER.debug(prefix + "Argument 1: Aggregations - " + _aggregationInfos);
     LOGGER.debug(prefix + "Argument 2: GroupBy - " + _groupBy);
     LOGGER.debug(prefix + "Argument 3: Transform -");
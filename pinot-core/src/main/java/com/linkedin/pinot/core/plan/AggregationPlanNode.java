@@ -25,6 +25,7 @@ import com.linkedin.pinot.core.operator.transform.TransformExpressionOperator;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,21 +39,34 @@ public class AggregationPlanNode implements PlanNode {
 
   private final IndexSegment _indexSegment;
   private final List<AggregationInfo> _aggregationInfos;
+  private final DocIdRange _docIdRange;
   private final TransformPlanNode _transformPlanNode;
 
   public AggregationPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest) {
+    this(indexSegment, brokerRequest, null);
+  }
+
+  /**
+   * Constructor for the plan node which only processes the given range of documents of the segment.
+   */
+  public AggregationPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
+      @Nullable DocIdRange docIdRange) {
     _indexSegment = indexSegment;
     _aggregationInfos = brokerRequest.getAggregationsInfo();
-    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest);
+    _docIdRange = docIdRange;
+    _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest, docIdRange);
   }
 
   @Override
   public Operator run() {
     TransformExpressionOperator transformOperator = (TransformExpressionOperator) _transformPlanNode.run();
     SegmentMetadata segmentMetadata = _indexSegment.getSegmentMetadata();
+    // Only count the total raw docs once per segment.
+    long numTotalRawDocs =
+        (_docIdRange == null || _docIdRange.isFirstRange()) ? segmentMetadata.getTotalRawDocs() : 0L;
     return new AggregationOperator(
         AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, segmentMetadata), transformOperator,
-        segmentMetadata.getTotalRawDocs());
+        numTotalRawDocs);
   }
 
   @Override
@@ -60,6 +74,9 @@ public class AggregationPlanNode implements PlanNode {
     LOGGER.debug(prefix + "Segment Level Inner-Segment Plan Node:");
     LOGGER.debug(prefix + "Operator: AggregationOperator");
     LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+    if (_docIdRange != null) {
+      LOGGER.debug(prefix + "DocIdRange - " + _docIdRange);
+    }
     LOGGER.debug(prefix + "Argument 1: Aggregations - " + _aggregationInfos);
     LOGGER.debug(prefix + "Argument 2: Transform -");
     _transformPlanNode.showTree(prefix + "    ");
@@ -16,9 +16,11 @@
 package com.linkedin.pinot.core.plan;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.MCombineGroupByOperator;
 import com.linkedin.pinot.core.operator.MCombineOperator;
+import com.linkedin.pinot.core.operator.MPartitionedCombineGroupByOperator;
 import com.linkedin.pinot.core.query.exception.BadQueryRequestException;
 import com.linkedin.pinot.core.util.trace.TraceCallable;
 import java.util.ArrayList;
@@ -115,6 +117,9 @@ public class CombinePlanNode implements PlanNode {
     // TODO: use the same combine operator for both aggregation and selection query.
     if (_brokerRequest.isSetAggregationsInfo() && _brokerRequest.getGroupBy() != null) {
       // Aggregation group-by query
+      if (RequestUtils.isPartitionedGroupByCombineEnabledInBrokerRequest(_brokerRequest)) {
+        return new MPartitionedCombineGroupByOperator(operators, _executorService, _timeOutMs, _brokerRequest);
+      }
       return new MCombineGroupByOperator(operators, _executorService, _timeOutMs, _brokerRequest);
     } else {
       // Selection or aggregation only query
@@ -125,7 +130,7 @@ public class CombinePlanNode implements PlanNode {
   @Override
   public void showTree(String prefix) {
     LOGGER.debug(prefix + "Instance Level Inter-Segments Combine Plan Node:");
-    LOGGER.debug(prefix + "Operator: MCombineOperator/MCombineGroupByOperator");
+    LOGGER.debug(prefix + "Operator: MCombineOperator/MCombineGroupByOperator/MPartitionedCombineGroupByOperator");
     LOGGER.debug(prefix + "Argument 0: BrokerRequest - " + _brokerRequest);
     int i = 1;
     for (PlanNode planNode : _planNodes) {
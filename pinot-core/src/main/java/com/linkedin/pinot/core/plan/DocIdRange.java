@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>DocIdRange</code> class represents a contiguous range of document ids within a segment, so that different
+ * ranges of the same segment can be processed in parallel.
+ */
+public class DocIdRange {
+  private final int _startDocId;
+  private final int _endDocId;
+
+  /**
+   * @param startDocId start document id (inclusive)
+   * @param endDocId end document id (inclusive)
+   */
+  public DocIdRange(int startDocId, int endDocId) {
+    Preconditions.checkArgument(startDocId >= 0 && startDocId <= endDocId);
+    _startDocId = startDocId;
+    _endDocId = endDocId;
+  }
+
+  public int getStartDocId() {
+    return _startDocId;
+  }
+
+  public int getEndDocId() {
+    return _endDocId;
+  }
+
+  /**
+   * Returns whether this is the first range of the segment. Segment level statistics (e.g. total number of documents)
+   * should only be reported once per segment.
+   */
+  public boolean isFirstRange() {
+    return _startDocId == 0;
+  }
+
+  /**
+   * Splits the document id space of a segment into the given number of ranges with (almost) equal size.
+   *
+   * @param numDocs total number of documents in the segment
+   * @param numRanges number of ranges
+   * @return list of ranges covering all documents in the segment
+   */
+  @Nonnull
+  public static List<DocIdRange> split(int numDocs, int numRanges) {
+    Preconditions.checkArgument(numDocs > 0 && numRanges > 0 && numRanges <= numDocs);
+    List<DocIdRange> docIdRanges = new ArrayList<>(numRanges);
+    int rangeSize = numDocs / numRanges;
+    int numLargerRanges = numDocs % numRanges;
+    int startDocId = 0;
+    for (int i = 0; i < numRanges; i++) {
+      int endDocId = startDocId + rangeSize - 1;
+      if (i < numLargerRanges) {
+        endDocId++;
+      }
+      docIdRanges.add(new DocIdRange(startDocId, endDocId));
+      startDocId = endDocId + 1;
+    }
+    return docIdRanges;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + _startDocId + ", " + _endDocId + "]";
+  }
+}
@@ -35,6 +35,7 @@ public class DocIdSetPlanNode implements PlanNode {
   private final BrokerRequest _brokerRequest;
   private final PlanNode _filterNode;
   private final int _maxDocPerCall;
+  private final DocIdRange _docIdRange;
   private BReusableFilteredDocIdSetOperator _projectOp = null;
 
   public DocIdSetPlanNode(IndexSegment indexSegment, BrokerRequest query) {
@@ -47,9 +48,20 @@ public class DocIdSetPlanNode implements PlanNode {
    * @param maxDocPerCall must be <= MAX_DOC_PER_CALL
    */
   public DocIdSetPlanNode(IndexSegment indexSegment, BrokerRequest query, int maxDocPerCall) {
+    this(indexSegment, query, maxDocPerCall, null);
+  }
+
+  /**
+   * @param indexSegment
+   * @param query
+   * @param maxDocPerCall must be <= MAX_DOC_PER_CALL
+   * @param docIdRange range of documents to process, or null to process the whole segment
+   */
+  public DocIdSetPlanNode(IndexSegment indexSegment, BrokerRequest query, int maxDocPerCall, DocIdRange docIdRange) {
     _maxDocPerCall = Math.min(maxDocPerCall, MAX_DOC_PER_CALL);
     _indexSegment = indexSegment;
     _brokerRequest = query;
+    _docIdRange = docIdRange;
     _filterNode = new FilterPlanNode(_indexSegment, _brokerRequest);
   }
 
@@ -58,7 +70,12 @@ public class DocIdSetPlanNode implements PlanNode {
     int totalRawDocs = _indexSegment.getSegmentMetadata().getTotalDocs();
     long start = System.currentTimeMillis();
     if (_projectOp == null) {
-      _projectOp = new BReusableFilteredDocIdSetOperator(_filterNode.run(), totalRawDocs, _maxDocPerCall);
+      if (_docIdRange == null) {
+        _projectOp = new BReusableFilteredDocIdSetOperator(_filterNode.run(), totalRawDocs, _maxDocPerCall);
+      } else {
+        _projectOp = new BReusableFilteredDocIdSetOperator(_filterNode.run(), _maxDocPerCall,
+            _docIdRange.getStartDocId(), _docIdRange.getEndDocId());
+      }
       long end = System.currentTimeMillis();
       LOGGER.debug("DocIdSetPlanNode.run took:" + (end - start));
       return _projectOp;
@@ -73,6 +90,9 @@ public class DocIdSetPlanNode implements PlanNode {
     LOGGER.debug(prefix + "DocIdSetPlanNode Plan Node :");
     LOGGER.debug(prefix + "Operator: BReusableFilteredDocIdSetOperator");
     LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+    if (_docIdRange != null) {
+      LOGGER.debug(prefix + "DocIdRange - " + _docIdRange);
+    }
     if (_filterNode != null) {
       LOGGER.debug(prefix + "Argument 1: FilterPlanNode :(see below)");
       _filterNode.showTree(prefix + "    ");
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.query.SegmentResultCacheOperator;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>SegmentResultCachePlanNode</code> class provides the execution plan for aggregation and aggregation
+ * group-by queries on a single segment backed by the {@link SegmentResultCache}.
+ * <p>The cache is looked up when the plan is run, so that the underlying plan is only run on a cache miss. Both cache
+ * hits and misses use the aggregation functions of the original broker request, so that they return the same results
+ * even if the underlying plan runs a per segment rewrite of the request.
+ */
+public class SegmentResultCachePlanNode implements PlanNode {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentResultCachePlanNode.class);
+
+  private final IndexSegment _indexSegment;
+  private final List<AggregationInfo> _aggregationInfos;
+  private final PlanNode _planNode;
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentResultCache.Key _key;
+
+  public SegmentResultCachePlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
+      @Nonnull PlanNode planNode, @Nonnull SegmentResultCache segmentResultCache,
+      @Nonnull SegmentResultCache.Key key) {
+    _indexSegment = indexSegment;
+    _aggregationInfos = brokerRequest.getAggregationsInfo();
+    _planNode = planNode;
+    _segmentResultCache = segmentResultCache;
+    _key = key;
+  }
+
+  @Override
+  public Operator run() {
+    AggregationFunctionContext[] aggregationFunctionContexts =
+        AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, _indexSegment.getSegmentMetadata());
+    SegmentResultCache.Entry entry = _segmentResultCache.get(_key);
+    if (entry != null) {
+      return new SegmentResultCacheOperator(aggregationFunctionContexts, entry);
+    } else {
+      return new SegmentResultCacheOperator(aggregationFunctionContexts, _segmentResultCache, _key, _planNode.run());
+    }
+  }
+
+  @Override
+  public void showTree(String prefix) {
+    LOGGER.debug(prefix + "Segment Level Inner-Segment Plan Node:");
+    LOGGER.debug(prefix + "Operator: SegmentResultCacheOperator");
+    LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+    LOGGER.debug(prefix + "Argument 1: Underlying Plan -");
+    _planNode.showTree(prefix + "    ");
+  }
+}
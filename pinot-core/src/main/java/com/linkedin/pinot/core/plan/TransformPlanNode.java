@@ -31,6 +31,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +60,18 @@ public class TransformPlanNode implements PlanNode {
    * @param brokerRequest BrokerRequest to process
    */
   public TransformPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest) {
+    this(indexSegment, brokerRequest, null);
+  }
+
+  /**
+   * Constructor for the class
+   *
+   * @param indexSegment Segment to process
+   * @param brokerRequest BrokerRequest to process
+   * @param docIdRange Range of documents to process, or null to process the whole segment
+   */
+  public TransformPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest,
+      @Nullable DocIdRange docIdRange) {
 
     Set<String> projectionColumns = new HashSet<>();
     Set<String> transformExpressions = new HashSet<>();
@@ -75,7 +88,7 @@ public class TransformPlanNode implements PlanNode {
 
     _projectionPlanNode =
         new ProjectionPlanNode(indexSegment, projectionColumns.toArray(new String[projectionColumns.size()]),
-            new DocIdSetPlanNode(indexSegment, brokerRequest));
+            new DocIdSetPlanNode(indexSegment, brokerRequest, DocIdSetPlanNode.MAX_DOC_PER_CALL, docIdRange));
   }
 
   /**
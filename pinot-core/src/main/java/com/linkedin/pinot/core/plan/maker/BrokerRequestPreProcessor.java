@@ -19,8 +19,11 @@ import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 
@@ -50,6 +53,54 @@ public class BrokerRequestPreProcessor {
     }
   }
 
+  /**
+   * Rewrite the columns of the single-value PERCENTILEKLL aggregations to their KLL derived columns for the given
+   * segment, so that the query is answered from the KLL sketches pre-aggregated in the star-tree.
+   * <p>Unlike the 'fasthll' rewrite, this is done per segment because the intermediate results are KLL sketches either
+   * way, so segments with and without the derived columns can be mixed in the same query. Only the column read by the
+   * aggregation is rewritten, the results are still named after the original column.
+   * <p>The passed in object is not modified. The rewritten copy is returned only if the segment has the derived
+   * columns and the rewritten query can be solved with the star-tree, otherwise the passed in object is returned.
+   *
+   * @param indexSegment index segment.
+   * @param brokerRequest broker request.
+   * @return broker request to use for the segment.
+   */
+  public static BrokerRequest rewritePercentileKllColumnNames(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
+    if (!brokerRequest.isSetAggregationsInfo() || !segmentMetadata.hasStarTree()) {
+      return brokerRequest;
+    }
+
+    BrokerRequest rewrittenBrokerRequest = null;
+    List<AggregationInfo> aggregationsInfo = brokerRequest.getAggregationsInfo();
+    int numAggregations = aggregationsInfo.size();
+    for (int i = 0; i < numAggregations; i++) {
+      AggregationInfo aggregationInfo = aggregationsInfo.get(i);
+      String aggregationType = aggregationInfo.getAggregationType().toLowerCase();
+      if (aggregationType.startsWith("percentilekll") && !aggregationType.endsWith("mv")) {
+        String column = aggregationInfo.getAggregationParams().get("column").trim();
+        String kllDerivedColumn = segmentMetadata.getDerivedColumn(column, MetricFieldSpec.DerivedMetricType.KLL);
+        if (kllDerivedColumn != null) {
+          if (rewrittenBrokerRequest == null) {
+            rewrittenBrokerRequest = brokerRequest.deepCopy();
+          }
+          Map<String, String> aggregationParams =
+              rewrittenBrokerRequest.getAggregationsInfo().get(i).getAggregationParams();
+          aggregationParams.put("column", kllDerivedColumn);
+          aggregationParams.put(AggregationFunctionContext.RESULT_COLUMN_KEY, column);
+        }
+      }
+    }
+
+    if (rewrittenBrokerRequest != null && RequestUtils.isFitForStarTreeIndex(segmentMetadata,
+        RequestUtils.generateFilterQueryTree(rewrittenBrokerRequest), rewrittenBrokerRequest)) {
+      return rewrittenBrokerRequest;
+    } else {
+      return brokerRequest;
+    }
+  }
+
   /**
    * Rewrite 'fasthll' column name.
    *
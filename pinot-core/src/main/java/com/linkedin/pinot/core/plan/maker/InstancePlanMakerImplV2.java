@@ -18,19 +18,26 @@ package com.linkedin.pinot.core.plan.maker;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterQuery;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.data.manager.offline.OfflineSegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.AggregationGroupByPlanNode;
 import com.linkedin.pinot.core.plan.AggregationPlanNode;
 import com.linkedin.pinot.core.plan.CombinePlanNode;
+import com.linkedin.pinot.core.plan.DocIdRange;
 import com.linkedin.pinot.core.plan.GlobalPlanImplV0;
 import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
 import com.linkedin.pinot.core.plan.MetadataBasedAggregationPlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.SegmentResultCachePlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.cache.QueryFingerprint;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -48,6 +55,17 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   private static final int DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY = 10_000;
   private final int _maxInitialResultHolderCapacity;
 
+  // Intra-segment parallelism: when the query hits fewer segments than the number of cores, split the large segments
+  // into doc id ranges which are processed in parallel as if they were separate segments.
+  private static final String ENABLE_INTRA_SEGMENT_PARALLELISM_KEY = "intra.segment.parallelism.enabled";
+  private static final String MIN_DOCS_PER_DOC_ID_RANGE_KEY = "intra.segment.parallelism.min.docs.per.range";
+  private static final String MAX_NUM_DOC_ID_RANGES_KEY = "intra.segment.parallelism.max.ranges";
+  private static final int DEFAULT_MIN_DOCS_PER_DOC_ID_RANGE = 500_000;
+  private static final int DEFAULT_MAX_NUM_DOC_ID_RANGES = Runtime.getRuntime().availableProcessors();
+  private final boolean _enableIntraSegmentParallelism;
+  private final int _minDocsPerDocIdRange;
+  private final int _maxNumDocIdRanges;
+
   // TODO: Fix the runtime trimming and add back the number of aggregation groups limit.
   // TODO: Need to revisit the runtime trimming solution. Current solution will remove group keys that should not be removed.
   // Limit on number of groups, beyond which results are truncated.
@@ -61,12 +79,17 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   public InstancePlanMakerImplV2() {
     _maxInitialResultHolderCapacity = DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY;
 //    _numAggrGroupsLimit = DEFAULT_NUM_AGGR_GROUPS_LIMIT;
+    _enableIntraSegmentParallelism = false;
+    _minDocsPerDocIdRange = DEFAULT_MIN_DOCS_PER_DOC_ID_RANGE;
+    _maxNumDocIdRanges = DEFAULT_MAX_NUM_DOC_ID_RANGES;
   }
 
   /**
    * Constructor for usage when client requires to pass {@link QueryExecutorConfig} to this class.
    * <ul>
    *   <li>Set limit on number of aggregation groups in query result.</li>
+   *   <li>Enable intra-segment parallelism and set the minimum number of documents per doc id range and the maximum
+   *   number of doc id ranges per query.</li>
    * </ul>
    *
    * @param queryExecutorConfig query executor configuration.
@@ -74,6 +97,16 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   public InstancePlanMakerImplV2(QueryExecutorConfig queryExecutorConfig) {
     _maxInitialResultHolderCapacity = queryExecutorConfig.getConfig()
         .getInt(MAX_INITIAL_RESULT_HOLDER_CAPACITY_KEY, DEFAULT_MAX_INITIAL_RESULT_HOLDER_CAPACITY);
+    _enableIntraSegmentParallelism =
+        queryExecutorConfig.getConfig().getBoolean(ENABLE_INTRA_SEGMENT_PARALLELISM_KEY, false);
+    _minDocsPerDocIdRange = Math.max(1,
+        queryExecutorConfig.getConfig().getInt(MIN_DOCS_PER_DOC_ID_RANGE_KEY, DEFAULT_MIN_DOCS_PER_DOC_ID_RANGE));
+    _maxNumDocIdRanges =
+        queryExecutorConfig.getConfig().getInt(MAX_NUM_DOC_ID_RANGES_KEY, DEFAULT_MAX_NUM_DOC_ID_RANGES);
+    if (_enableIntraSegmentParallelism) {
+      LOGGER.info("Intra-segment parallelism enabled with min docs per range: {}, max number of ranges: {}",
+          _minDocsPerDocIdRange, _maxNumDocIdRanges);
+    }
 
     // TODO: Read the limit on number of aggregation groups in query result from config.
     // _numAggrGroupsLimit = queryExecutorConfig.getConfig().getInt(NUM_AGGR_GROUPS_LIMIT, DEFAULT_NUM_AGGR_GROUPS_LIMIT);
@@ -84,6 +117,7 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   public PlanNode makeInnerSegmentPlan(IndexSegment indexSegment, BrokerRequest brokerRequest) {
     // Aggregation query.
     if (brokerRequest.isSetAggregationsInfo()) {
+      brokerRequest = BrokerRequestPreProcessor.rewritePercentileKllColumnNames(indexSegment, brokerRequest);
       if (brokerRequest.isSetGroupBy()) {
         // Aggregation group-by query.
         return new AggregationGroupByPlanNode(indexSegment, brokerRequest, _maxInitialResultHolderCapacity,
@@ -116,8 +150,46 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     }
     BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
 
+    // Segment level results of aggregation queries on immutable segments can be served from the segment result cache.
+    SegmentResultCache segmentResultCache = SegmentResultCache.getInstance();
+    String queryFingerprint = null;
+    if (segmentResultCache.isEnabled() && brokerRequest.isSetAggregationsInfo() && !isFitForMetadataBasedPlan(
+        brokerRequest)) {
+      queryFingerprint = QueryFingerprint.getFingerprint(brokerRequest);
+    }
+
+    // Split the segments into doc id ranges only if there are not enough segments to keep all the cores busy.
+    int numSegments = segmentDataManagers.size();
+    boolean splitSegments =
+        _enableIntraSegmentParallelism && numSegments < _maxNumDocIdRanges && brokerRequest.isSetAggregationsInfo()
+            && !isFitForMetadataBasedPlan(brokerRequest);
+
     List<PlanNode> planNodes = new ArrayList<>();
-    for (IndexSegment indexSegment : indexSegments) {
+    for (SegmentDataManager segmentDataManager : segmentDataManagers) {
+      IndexSegment indexSegment = segmentDataManager.getSegment();
+      if (queryFingerprint != null && segmentDataManager instanceof OfflineSegmentDataManager) {
+        SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
+        String tableName = segmentMetadata.getTableName();
+        String crc = segmentMetadata.getCrc();
+        if (tableName != null && crc != null) {
+          SegmentResultCache.Key key =
+              new SegmentResultCache.Key(tableName, indexSegment.getSegmentName(), crc, queryFingerprint);
+          planNodes.add(new SegmentResultCachePlanNode(indexSegment, brokerRequest,
+              makeInnerSegmentPlan(indexSegment, brokerRequest), segmentResultCache, key));
+          continue;
+        }
+      }
+      // Only split immutable segments, because documents can be appended to mutable segments during query execution.
+      if (splitSegments && indexSegment instanceof IndexSegmentImpl) {
+        int numDocs = indexSegment.getSegmentMetadata().getTotalDocs();
+        int numDocIdRanges = Math.min(_maxNumDocIdRanges / numSegments, numDocs / _minDocsPerDocIdRange);
+        if (numDocIdRanges > 1) {
+          for (DocIdRange docIdRange : DocIdRange.split(numDocs, numDocIdRanges)) {
+            planNodes.add(makeDocIdRangePlan(indexSegment, brokerRequest, docIdRange));
+          }
+          continue;
+        }
+      }
       planNodes.add(makeInnerSegmentPlan(indexSegment, brokerRequest));
     }
     CombinePlanNode combinePlanNode = new CombinePlanNode(planNodes, brokerRequest, executorService, timeOutMs);
@@ -125,6 +197,19 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     return new GlobalPlanImplV0(new InstanceResponsePlanNode(combinePlanNode));
   }
 
+  /**
+   * Helper method to make the plan for aggregation and aggregation group-by query on a range of documents of a segment.
+   */
+  private PlanNode makeDocIdRangePlan(IndexSegment indexSegment, BrokerRequest brokerRequest, DocIdRange docIdRange) {
+    brokerRequest = BrokerRequestPreProcessor.rewritePercentileKllColumnNames(indexSegment, brokerRequest);
+    if (brokerRequest.isSetGroupBy()) {
+      return new AggregationGroupByPlanNode(indexSegment, brokerRequest, _maxInitialResultHolderCapacity,
+          _numAggrGroupsLimit, docIdRange);
+    } else {
+      return new AggregationPlanNode(indexSegment, brokerRequest, docIdRange);
+    }
+  }
+
   /**
    * Helper method to identify if query is fit to be be served purely based on metadata.
    * Currently only count(*) queries without any filters are supported.
@@ -18,24 +18,39 @@ package com.linkedin.pinot.core.query.aggregation;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionFactory;
+import java.util.Map;
 
 
 /**
  * This class caches miscellaneous data to perform efficient aggregation.
  */
 public class AggregationFunctionContext {
+  // Aggregation parameter for the columns to name the results after, if the aggregation reads other columns (e.g. a
+  // derived column of the segment)
+  public static final String RESULT_COLUMN_KEY = "resultColumn";
+
   private final AggregationFunction _aggregationFunction;
   private final String[] _aggrColumns;
+  private final String[] _resultColumns;
 
   public static AggregationFunctionContext instantiate(AggregationInfo aggregationInfo) {
-    String[] aggrColumns = aggregationInfo.getAggregationParams().get("column").trim().split(",");
+    Map<String, String> aggregationParams = aggregationInfo.getAggregationParams();
+    String[] aggrColumns = aggregationParams.get("column").trim().split(",");
+    String resultColumn = aggregationParams.get(RESULT_COLUMN_KEY);
+    String[] resultColumns = (resultColumn != null) ? resultColumn.trim().split(",") : aggrColumns;
     String functionName = aggregationInfo.getAggregationType();
     AggregationFunction aggregationFunction = AggregationFunctionFactory.getAggregationFunction(functionName);
-    return new AggregationFunctionContext(aggrColumns, aggregationFunction);
+    return new AggregationFunctionContext(aggrColumns, resultColumns, aggregationFunction);
   }
 
   public AggregationFunctionContext(String[] aggrColumns, AggregationFunction aggregationFunction) {
+    this(aggrColumns, aggrColumns, aggregationFunction);
+  }
+
+  public AggregationFunctionContext(String[] aggrColumns, String[] resultColumns,
+      AggregationFunction aggregationFunction) {
     _aggrColumns = aggrColumns;
+    _resultColumns = resultColumns;
     _aggregationFunction = aggregationFunction;
   }
 
@@ -59,6 +74,6 @@ public class AggregationFunctionContext {
    * Returns the aggregation column name for the results.
    */
   public String getAggregationColumnName() {
-    return _aggregationFunction.getColumnName(_aggrColumns);
+    return _aggregationFunction.getColumnName(_resultColumns);
   }
 }
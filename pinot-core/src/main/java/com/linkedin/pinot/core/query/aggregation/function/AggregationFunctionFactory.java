@@ -59,6 +59,28 @@ public class AggregationFunctionFactory {
     PERCENTILEEST90("percentileEst90"),
     PERCENTILEEST95("percentileEst95"),
     PERCENTILEEST99("percentileEst99"),
+    PERCENTILETDIGEST10("percentileTDigest10"),
+    PERCENTILETDIGEST20("percentileTDigest20"),
+    PERCENTILETDIGEST30("percentileTDigest30"),
+    PERCENTILETDIGEST40("percentileTDigest40"),
+    PERCENTILETDIGEST50("percentileTDigest50"),
+    PERCENTILETDIGEST60("percentileTDigest60"),
+    PERCENTILETDIGEST70("percentileTDigest70"),
+    PERCENTILETDIGEST80("percentileTDigest80"),
+    PERCENTILETDIGEST90("percentileTDigest90"),
+    PERCENTILETDIGEST95("percentileTDigest95"),
+    PERCENTILETDIGEST99("percentileTDigest99"),
+    PERCENTILEKLL10("percentileKLL10"),
+    PERCENTILEKLL20("percentileKLL20"),
+    PERCENTILEKLL30("percentileKLL30"),
+    PERCENTILEKLL40("percentileKLL40"),
+    PERCENTILEKLL50("percentileKLL50"),
+    PERCENTILEKLL60("percentileKLL60"),
+    PERCENTILEKLL70("percentileKLL70"),
+    PERCENTILEKLL80("percentileKLL80"),
+    PERCENTILEKLL90("percentileKLL90"),
+    PERCENTILEKLL95("percentileKLL95"),
+    PERCENTILEKLL99("percentileKLL99"),
     // Multi-value aggregation functions.
     COUNTMV("countMV"),
     MINMV("minMV"),
@@ -90,7 +112,29 @@ public class AggregationFunctionFactory {
     PERCENTILEEST80MV("percentileEst80MV"),
     PERCENTILEEST90MV("percentileEst90MV"),
     PERCENTILEEST95MV("percentileEst95MV"),
-    PERCENTILEEST99MV("percentileEst99MV");
+    PERCENTILEEST99MV("percentileEst99MV"),
+    PERCENTILETDIGEST10MV("percentileTDigest10MV"),
+    PERCENTILETDIGEST20MV("percentileTDigest20MV"),
+    PERCENTILETDIGEST30MV("percentileTDigest30MV"),
+    PERCENTILETDIGEST40MV("percentileTDigest40MV"),
+    PERCENTILETDIGEST50MV("percentileTDigest50MV"),
+    PERCENTILETDIGEST60MV("percentileTDigest60MV"),
+    PERCENTILETDIGEST70MV("percentileTDigest70MV"),
+    PERCENTILETDIGEST80MV("percentileTDigest80MV"),
+    PERCENTILETDIGEST90MV("percentileTDigest90MV"),
+    PERCENTILETDIGEST95MV("percentileTDigest95MV"),
+    PERCENTILETDIGEST99MV("percentileTDigest99MV"),
+    PERCENTILEKLL10MV("percentileKLL10MV"),
+    PERCENTILEKLL20MV("percentileKLL20MV"),
+    PERCENTILEKLL30MV("percentileKLL30MV"),
+    PERCENTILEKLL40MV("percentileKLL40MV"),
+    PERCENTILEKLL50MV("percentileKLL50MV"),
+    PERCENTILEKLL60MV("percentileKLL60MV"),
+    PERCENTILEKLL70MV("percentileKLL70MV"),
+    PERCENTILEKLL80MV("percentileKLL80MV"),
+    PERCENTILEKLL90MV("percentileKLL90MV"),
+    PERCENTILEKLL95MV("percentileKLL95MV"),
+    PERCENTILEKLL99MV("percentileKLL99MV");
 
     private final String _name;
 
@@ -178,6 +222,50 @@ public class AggregationFunctionFactory {
         return new PercentileEstAggregationFunction(95);
       case PERCENTILEEST99:
         return new PercentileEstAggregationFunction(99);
+      case PERCENTILETDIGEST10:
+        return new PercentileTDigestAggregationFunction(10);
+      case PERCENTILETDIGEST20:
+        return new PercentileTDigestAggregationFunction(20);
+      case PERCENTILETDIGEST30:
+        return new PercentileTDigestAggregationFunction(30);
+      case PERCENTILETDIGEST40:
+        return new PercentileTDigestAggregationFunction(40);
+      case PERCENTILETDIGEST50:
+        return new PercentileTDigestAggregationFunction(50);
+      case PERCENTILETDIGEST60:
+        return new PercentileTDigestAggregationFunction(60);
+      case PERCENTILETDIGEST70:
+        return new PercentileTDigestAggregationFunction(70);
+      case PERCENTILETDIGEST80:
+        return new PercentileTDigestAggregationFunction(80);
+      case PERCENTILETDIGEST90:
+        return new PercentileTDigestAggregationFunction(90);
+      case PERCENTILETDIGEST95:
+        return new PercentileTDigestAggregationFunction(95);
+      case PERCENTILETDIGEST99:
+        return new PercentileTDigestAggregationFunction(99);
+      case PERCENTILEKLL10:
+        return new PercentileKLLAggregationFunction(10);
+      case PERCENTILEKLL20:
+        return new PercentileKLLAggregationFunction(20);
+      case PERCENTILEKLL30:
+        return new PercentileKLLAggregationFunction(30);
+      case PERCENTILEKLL40:
+        return new PercentileKLLAggregationFunction(40);
+      case PERCENTILEKLL50:
+        return new PercentileKLLAggregationFunction(50);
+      case PERCENTILEKLL60:
+        return new PercentileKLLAggregationFunction(60);
+      case PERCENTILEKLL70:
+        return new PercentileKLLAggregationFunction(70);
+      case PERCENTILEKLL80:
+        return new PercentileKLLAggregationFunction(80);
+      case PERCENTILEKLL90:
+        return new PercentileKLLAggregationFunction(90);
+      case PERCENTILEKLL95:
+        return new PercentileKLLAggregationFunction(95);
+      case PERCENTILEKLL99:
+        return new PercentileKLLAggregationFunction(99);
       case COUNTMV:
         return new CountMVAggregationFunction();
       case MINMV:
@@ -240,6 +328,50 @@ public class AggregationFunctionFactory {
         return new PercentileEstMVAggregationFunction(95);
       case PERCENTILEEST99MV:
         return new PercentileEstMVAggregationFunction(99);
+      case PERCENTILETDIGEST10MV:
+        return new PercentileTDigestMVAggregationFunction(10);
+      case PERCENTILETDIGEST20MV:
+        return new PercentileTDigestMVAggregationFunction(20);
+      case PERCENTILETDIGEST30MV:
+        return new PercentileTDigestMVAggregationFunction(30);
+      case PERCENTILETDIGEST40MV:
+        return new PercentileTDigestMVAggregationFunction(40);
+      case PERCENTILETDIGEST50MV:
+        return new PercentileTDigestMVAggregationFunction(50);
+      case PERCENTILETDIGEST60MV:
+        return new PercentileTDigestMVAggregationFunction(60);
+      case PERCENTILETDIGEST70MV:
+        return new PercentileTDigestMVAggregationFunction(70);
+      case PERCENTILETDIGEST80MV:
+        return new PercentileTDigestMVAggregationFunction(80);
+      case PERCENTILETDIGEST90MV:
+        return new PercentileTDigestMVAggregationFunction(90);
+      case PERCENTILETDIGEST95MV:
+        return new PercentileTDigestMVAggregationFunction(95);
+      case PERCENTILETDIGEST99MV:
+        return new PercentileTDigestMVAggregationFunction(99);
+      case PERCENTILEKLL10MV:
+        return new PercentileKLLMVAggregationFunction(10);
+      case PERCENTILEKLL20MV:
+        return new PercentileKLLMVAggregationFunction(20);
+      case PERCENTILEKLL30MV:
+        return new PercentileKLLMVAggregationFunction(30);
+      case PERCENTILEKLL40MV:
+        return new PercentileKLLMVAggregationFunction(40);
+      case PERCENTILEKLL50MV:
+        return new PercentileKLLMVAggregationFunction(50);
+      case PERCENTILEKLL60MV:
+        return new PercentileKLLMVAggregationFunction(60);
+      case PERCENTILEKLL70MV:
+        return new PercentileKLLMVAggregationFunction(70);
+      case PERCENTILEKLL80MV:
+        return new PercentileKLLMVAggregationFunction(80);
+      case PERCENTILEKLL90MV:
+        return new PercentileKLLMVAggregationFunction(90);
+      case PERCENTILEKLL95MV:
+        return new PercentileKLLMVAggregationFunction(95);
+      case PERCENTILEKLL99MV:
+        return new PercentileKLLMVAggregationFunction(99);
       default:
         throw new UnsupportedOperationException();
     }
@@ -103,10 +103,26 @@ public class AggregationFunctionVisitorBase {
     visitFunction(function);
   }
 
+  public void visit(PercentileKLLAggregationFunction function) {
+    visitFunction(function);
+  }
+
+  public void visit(PercentileKLLMVAggregationFunction function) {
+    visitFunction(function);
+  }
+
   public void visit(PercentileMVAggregationFunction function) {
     visitFunction(function);
   }
 
+  public void visit(PercentileTDigestAggregationFunction function) {
+    visitFunction(function);
+  }
+
+  public void visit(PercentileTDigestMVAggregationFunction function) {
+    visitFunction(function);
+  }
+
   public void visit(SumAggregationFunction function) {
     visitFunction(function);
   }
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.query.aggregation.AggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.ObjectAggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.function.customobject.KllSketch;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+import com.linkedin.pinot.core.startree.kll.KllUtil;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Percentile aggregation function backed by a {@link KllSketch}, which has a bounded size and a uniform rank error
+ * regardless of the number of values and the order in which the sketches are merged.
+ * <p>On a KLL derived column (STRING), the pre-aggregated sketches stored in the star-tree are merged instead.
+ */
+public class PercentileKLLAggregationFunction implements AggregationFunction<KllSketch, Double> {
+  private static final double DEFAULT_FINAL_RESULT = Double.NEGATIVE_INFINITY;
+
+  private final String _name;
+  private final int _percentile;
+
+  public PercentileKLLAggregationFunction(int percentile) {
+    _name = AggregationFunctionFactory.AggregationFunctionType.valueOf("PERCENTILEKLL" + percentile).getName();
+    _percentile = percentile;
+  }
+
+  @Nonnull
+  @Override
+  public String getName() {
+    return _name;
+  }
+
+  @Nonnull
+  @Override
+  public String getColumnName(@Nonnull String[] columns) {
+    return _name + "_" + columns[0];
+  }
+
+  @Override
+  public void accept(@Nonnull AggregationFunctionVisitorBase visitor) {
+    visitor.visit(this);
+  }
+
+  @Nonnull
+  @Override
+  public AggregationResultHolder createAggregationResultHolder() {
+    return new ObjectAggregationResultHolder();
+  }
+
+  @Nonnull
+  @Override
+  public GroupByResultHolder createGroupByResultHolder(int initialCapacity, int maxCapacity, int trimSize) {
+    return new ObjectGroupByResultHolder(initialCapacity, maxCapacity, trimSize);
+  }
+
+  @Override
+  public void aggregate(int length, @Nonnull AggregationResultHolder aggregationResultHolder,
+      @Nonnull BlockValSet... blockValSets) {
+    KllSketch sketch = aggregationResultHolder.getResult();
+    if (sketch == null) {
+      sketch = new KllSketch();
+      aggregationResultHolder.setValue(sketch);
+    }
+    if (blockValSets[0].getValueType() == FieldSpec.DataType.STRING) {
+      // KLL derived column, merge the pre-aggregated sketches
+      String[] stringValues = blockValSets[0].getStringValuesSV();
+      for (int i = 0; i < length; i++) {
+        sketch.merge(KllUtil.convertStringToKll(stringValues[i]));
+      }
+    } else {
+      double[] valueArray = blockValSets[0].getDoubleValuesSV();
+      for (int i = 0; i < length; i++) {
+        sketch.add(valueArray[i]);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupBySV(int length, @Nonnull int[] groupKeyArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    if (blockValSets[0].getValueType() == FieldSpec.DataType.STRING) {
+      // KLL derived column, merge the pre-aggregated sketches
+      String[] stringValues = blockValSets[0].getStringValuesSV();
+      for (int i = 0; i < length; i++) {
+        getSketch(groupByResultHolder, groupKeyArray[i]).merge(KllUtil.convertStringToKll(stringValues[i]));
+      }
+    } else {
+      double[] valueArray = blockValSets[0].getDoubleValuesSV();
+      for (int i = 0; i < length; i++) {
+        getSketch(groupByResultHolder, groupKeyArray[i]).add(valueArray[i]);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupByMV(int length, @Nonnull int[][] groupKeysArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    if (blockValSets[0].getValueType() == FieldSpec.DataType.STRING) {
+      // KLL derived column, merge the pre-aggregated sketches
+      String[] stringValues = blockValSets[0].getStringValuesSV();
+      for (int i = 0; i < length; i++) {
+        KllSketch value = KllUtil.convertStringToKll(stringValues[i]);
+        for (int groupKey : groupKeysArray[i]) {
+          getSketch(groupByResultHolder, groupKey).merge(value);
+        }
+      }
+    } else {
+      double[] valueArray = blockValSets[0].getDoubleValuesSV();
+      for (int i = 0; i < length; i++) {
+        double value = valueArray[i];
+        for (int groupKey : groupKeysArray[i]) {
+          getSketch(groupByResultHolder, groupKey).add(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the sketch for the given group key, and creates it if it does not exist.
+   */
+  private static KllSketch getSketch(@Nonnull GroupByResultHolder groupByResultHolder, int groupKey) {
+    KllSketch sketch = groupByResultHolder.getResult(groupKey);
+    if (sketch == null) {
+      sketch = new KllSketch();
+      groupByResultHolder.setValueForKey(groupKey, sketch);
+    }
+    return sketch;
+  }
+
+  @Nonnull
+  @Override
+  public KllSketch extractAggregationResult(@Nonnull AggregationResultHolder aggregationResultHolder) {
+    KllSketch sketch = aggregationResultHolder.getResult();
+    if (sketch == null) {
+      return new KllSketch();
+    } else {
+      return sketch;
+    }
+  }
+
+  @Nonnull
+  @Override
+  public KllSketch extractGroupByResult(@Nonnull GroupByResultHolder groupByResultHolder, int groupKey) {
+    KllSketch sketch = groupByResultHolder.getResult(groupKey);
+    if (sketch == null) {
+      return new KllSketch();
+    } else {
+      return sketch;
+    }
+  }
+
+  @Nonnull
+  @Override
+  public KllSketch merge(@Nonnull KllSketch intermediateResult1,
+      @Nonnull KllSketch intermediateResult2) {
+    intermediateResult1.merge(intermediateResult2);
+    return intermediateResult1;
+  }
+
+  @Override
+  public boolean isIntermediateResultComparable() {
+    return false;
+  }
+
+  @Nonnull
+  @Override
+  public FieldSpec.DataType getIntermediateResultDataType() {
+    return FieldSpec.DataType.OBJECT;
+  }
+
+  @Nonnull
+  @Override
+  public Double extractFinalResult(@Nonnull KllSketch intermediateResult) {
+    if (intermediateResult.getCount() == 0) {
+      return DEFAULT_FINAL_RESULT;
+    } else {
+      return intermediateResult.getQuantile(_percentile / 100.0);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function;
+
+import com.clearspring.analytics.stream.quantile.TDigest;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.query.aggregation.AggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.ObjectAggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Percentile aggregation function backed by a t-digest, which keeps a bounded number of centroids (controlled by the
+ * compression) with better accuracy for the extreme percentiles. Unlike the exact percentile, the intermediate result
+ * has a bounded size regardless of the number of values.
+ */
+public class PercentileTDigestAggregationFunction implements AggregationFunction<TDigest, Double> {
+  public static final double DEFAULT_COMPRESSION = 100;
+  private static final double DEFAULT_FINAL_RESULT = Double.NEGATIVE_INFINITY;
+
+  private final String _name;
+  private final int _percentile;
+
+  public PercentileTDigestAggregationFunction(int percentile) {
+    _name = AggregationFunctionFactory.AggregationFunctionType.valueOf("PERCENTILETDIGEST" + percentile).getName();
+    _percentile = percentile;
+  }
+
+  @Nonnull
+  @Override
+  public String getName() {
+    return _name;
+  }
+
+  @Nonnull
+  @Override
+  public String getColumnName(@Nonnull String[] columns) {
+    return _name + "_" + columns[0];
+  }
+
+  @Override
+  public void accept(@Nonnull AggregationFunctionVisitorBase visitor) {
+    visitor.visit(this);
+  }
+
+  @Nonnull
+  @Override
+  public AggregationResultHolder createAggregationResultHolder() {
+    return new ObjectAggregationResultHolder();
+  }
+
+  @Nonnull
+  @Override
+  public GroupByResultHolder createGroupByResultHolder(int initialCapacity, int maxCapacity, int trimSize) {
+    return new ObjectGroupByResultHolder(initialCapacity, maxCapacity, trimSize);
+  }
+
+  @Override
+  public void aggregate(int length, @Nonnull AggregationResultHolder aggregationResultHolder,
+      @Nonnull BlockValSet... blockValSets) {
+    double[] valueArray = blockValSets[0].getDoubleValuesSV();
+    TDigest sketch = aggregationResultHolder.getResult();
+    if (sketch == null) {
+      sketch = new TDigest(DEFAULT_COMPRESSION);
+      aggregationResultHolder.setValue(sketch);
+    }
+    for (int i = 0; i < length; i++) {
+      sketch.add(valueArray[i]);
+    }
+  }
+
+  @Override
+  public void aggregateGroupBySV(int length, @Nonnull int[] groupKeyArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    double[] valueArray = blockValSets[0].getDoubleValuesSV();
+    for (int i = 0; i < length; i++) {
+      int groupKey = groupKeyArray[i];
+      TDigest sketch = groupByResultHolder.getResult(groupKey);
+      if (sketch == null) {
+        sketch = new TDigest(DEFAULT_COMPRESSION);
+        groupByResultHolder.setValueForKey(groupKey, sketch);
+      }
+      sketch.add(valueArray[i]);
+    }
+  }
+
+  @Override
+  public void aggregateGroupByMV(int length, @Nonnull int[][] groupKeysArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    double[] valueArray = blockValSets[0].getDoubleValuesSV();
+    for (int i = 0; i < length; i++) {
+      double value = valueArray[i];
+      for (int groupKey : groupKeysArray[i]) {
+        TDigest sketch = groupByResultHolder.getResult(groupKey);
+        if (sketch == null) {
+          sketch = new TDigest(DEFAULT_COMPRESSION);
+          groupByResultHolder.setValueForKey(groupKey, sketch);
+        }
+        sketch.add(value);
+      }
+    }
+  }
+
+  @Nonnull
+  @Override
+  public TDigest extractAggregationResult(@Nonnull AggregationResultHolder aggregationResultHolder) {
+    TDigest sketch = aggregationResultHolder.getResult();
+    if (sketch == null) {
+      return new TDigest(DEFAULT_COMPRESSION);
+    } else {
+      return sketch;
+    }
+  }
+
+  @Nonnull
+  @Override
+  public TDigest extractGroupByResult(@Nonnull GroupByResultHolder groupByResultHolder, int groupKey) {
+    TDigest sketch = groupByResultHolder.getResult(groupKey);
+    if (sketch == null) {
+      return new TDigest(DEFAULT_COMPRESSION);
+    } else {
+      return sketch;
+    }
+  }
+
+  @Nonnull
+  @Override
+  public TDigest merge(@Nonnull TDigest intermediateResult1,
+      @Nonnull TDigest intermediateResult2) {
+    intermediateResult1.add(intermediateResult2);
+    return intermediateResult1;
+  }
+
+  @Override
+  public boolean isIntermediateResultComparable() {
+    return false;
+  }
+
+  @Nonnull
+  @Override
+  public FieldSpec.DataType getIntermediateResultDataType() {
+    return FieldSpec.DataType.OBJECT;
+  }
+
+  @Nonnull
+  @Override
+  public Double extractFinalResult(@Nonnull TDigest intermediateResult) {
+    if (intermediateResult.size() == 0) {
+      return DEFAULT_FINAL_RESULT;
+    } else {
+      return intermediateResult.quantile(_percentile / 100.0);
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.customobject;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+
+/**
+ * The <code>KllSketch</code> class is a mergeable quantile sketch for double values, based on the KLL algorithm
+ * (Karnin, Lang, Liberty: "Optimal Quantile Approximation in Streams").
+ * <p>The sketch keeps a hierarchy of compactors, where each value in the compactor of level <code>h</code> stands for
+ * <code>2^h</code> input values. When the sketch is full, the lowest full compactor is sorted and one value of each
+ * adjacent pair (randomly the first or the second ones) is promoted to the next level. The capacity of the compactors
+ * decreases geometrically from the top level down, so the number of retained values is bounded by about
+ * <code>3 * k</code> regardless of the number of input values, and the rank error is about <code>1.7 / k</code>.
+ */
+@NotThreadSafe
+public class KllSketch {
+  public static final int DEFAULT_K = 200;
+  private static final int MIN_K = 8;
+  private static final double CAPACITY_DECAY = 2.0 / 3;
+  private static final int MIN_CAPACITY = 2;
+
+  private final int _k;
+  private final List<DoubleArrayList> _compactors = new ArrayList<>();
+  private long _count;
+  private double _min = Double.POSITIVE_INFINITY;
+  private double _max = Double.NEGATIVE_INFINITY;
+  private int _size;
+  private int _maxSize;
+
+  public KllSketch() {
+    this(DEFAULT_K);
+  }
+
+  public KllSketch(int k) {
+    Preconditions.checkArgument(k >= MIN_K, "K must be at least %s, got: %s", MIN_K, k);
+    _k = k;
+    grow();
+  }
+
+  public int getK() {
+    return _k;
+  }
+
+  /**
+   * Returns the number of values added to the sketch.
+   */
+  public long getCount() {
+    return _count;
+  }
+
+  /**
+   * Returns the number of values retained by the sketch.
+   */
+  public int getNumRetainedValues() {
+    return _size;
+  }
+
+  public void add(double value) {
+    _compactors.get(0).add(value);
+    _count++;
+    _min = Math.min(_min, value);
+    _max = Math.max(_max, value);
+    if (++_size >= _maxSize) {
+      compress();
+    }
+  }
+
+  /**
+   * Merges another sketch into this one. The other sketch is not modified.
+   */
+  public void merge(@Nonnull KllSketch other) {
+    if (other._count == 0) {
+      return;
+    }
+    while (_compactors.size() < other._compactors.size()) {
+      grow();
+    }
+    int numLevels = other._compactors.size();
+    for (int level = 0; level < numLevels; level++) {
+      _compactors.get(level).addAll(other._compactors.get(level));
+    }
+    _count += other._count;
+    _min = Math.min(_min, other._min);
+    _max = Math.max(_max, other._max);
+    _size += other._size;
+    while (_size >= _maxSize) {
+      compress();
+    }
+  }
+
+  /**
+   * Returns the estimated value at the given quantile (between 0 and 1), or {@link Double#NaN} if the sketch is
+   * empty. The quantile follows the same definition as the exact percentile: the value with
+   * <code>(long) (quantile * count)</code> smaller values.
+   */
+  public double getQuantile(double quantile) {
+    if (_count == 0) {
+      return Double.NaN;
+    }
+    if (quantile <= 0) {
+      return _min;
+    }
+    if (quantile >= 1) {
+      return _max;
+    }
+
+    // Gather all retained values with their weights, and sort them by value
+    final double[] values = new double[_size];
+    final long[] weights = new long[_size];
+    int index = 0;
+    int numLevels = _compactors.size();
+    for (int level = 0; level < numLevels; level++) {
+      DoubleArrayList compactor = _compactors.get(level);
+      int compactorSize = compactor.size();
+      double[] elements = compactor.elements();
+      long weight = 1L << level;
+      for (int i = 0; i < compactorSize; i++) {
+        values[index] = elements[i];
+        weights[index++] = weight;
+      }
+    }
+    Arrays.quickSort(0, _size, new AbstractIntComparator() {
+      @Override
+      public int compare(int i, int j) {
+        return Double.compare(values[i], values[j]);
+      }
+    }, new Swapper() {
+      @Override
+      public void swap(int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        long weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+      }
+    });
+
+    long rank = (long) (quantile * _count);
+    long cumulativeWeight = 0;
+    for (int i = 0; i < _size; i++) {
+      cumulativeWeight += weights[i];
+      if (cumulativeWeight > rank) {
+        return values[i];
+      }
+    }
+    return _max;
+  }
+
+  /**
+   * Returns a deep copy of the sketch.
+   */
+  @Nonnull
+  public KllSketch copy() {
+    KllSketch copy = new KllSketch(_k);
+    copy.merge(this);
+    return copy;
+  }
+
+  @Nonnull
+  public byte[] toBytes() {
+    int numLevels = _compactors.size();
+    ByteBuffer byteBuffer = ByteBuffer.allocate(getSerializedSize(numLevels, _size));
+    byteBuffer.putInt(_k);
+    byteBuffer.putLong(_count);
+    byteBuffer.putDouble(_min);
+    byteBuffer.putDouble(_max);
+    byteBuffer.putInt(numLevels);
+    for (DoubleArrayList compactor : _compactors) {
+      int compactorSize = compactor.size();
+      double[] elements = compactor.elements();
+      byteBuffer.putInt(compactorSize);
+      for (int i = 0; i < compactorSize; i++) {
+        byteBuffer.putDouble(elements[i]);
+      }
+    }
+    return byteBuffer.array();
+  }
+
+  @Nonnull
+  public static KllSketch fromBytes(byte[] bytes) {
+    return fromByteBuffer(ByteBuffer.wrap(bytes));
+  }
+
+  @Nonnull
+  public static KllSketch fromByteBuffer(ByteBuffer byteBuffer) {
+    KllSketch sketch = new KllSketch(byteBuffer.getInt());
+    sketch._count = byteBuffer.getLong();
+    sketch._min = byteBuffer.getDouble();
+    sketch._max = byteBuffer.getDouble();
+    int numLevels = byteBuffer.getInt();
+    while (sketch._compactors.size() < numLevels) {
+      sketch.grow();
+    }
+    for (int level = 0; level < numLevels; level++) {
+      int compactorSize = byteBuffer.getInt();
+      DoubleArrayList compactor = sketch._compactors.get(level);
+      for (int i = 0; i < compactorSize; i++) {
+        compactor.add(byteBuffer.getDouble());
+      }
+      sketch._size += compactorSize;
+    }
+    return sketch;
+  }
+
+  /**
+   * Returns the maximum number of bytes of a serialized sketch with the given K and at most the given number of levels.
+   * <p>A sketch with <code>n</code> levels has received at least <code>2^(n - 1)</code> values, so the number of
+   * levels is bounded by the number of values the sketch can receive.
+   */
+  public static int getMaxSerializedSize(int k, int maxNumLevels) {
+    KllSketch sketch = new KllSketch(k);
+    while (sketch._compactors.size() < maxNumLevels) {
+      sketch.grow();
+    }
+    // The sketch is compressed as soon as the number of retained values reaches the maximum size
+    return getSerializedSize(maxNumLevels, sketch._maxSize - 1);
+  }
+
+  private static int getSerializedSize(int numLevels, int numRetainedValues) {
+    return 2 * V1Constants.Numbers.INTEGER_SIZE + V1Constants.Numbers.LONG_SIZE + 2 * V1Constants.Numbers.DOUBLE_SIZE
+        + numLevels * V1Constants.Numbers.INTEGER_SIZE + numRetainedValues * V1Constants.Numbers.DOUBLE_SIZE;
+  }
+
+  /**
+   * Returns the capacity of the compactor of the given level, which depends on its distance to the top level.
+   */
+  private int getCapacity(int level) {
+    int depth = _compactors.size() - level - 1;
+    return Math.max((int) Math.ceil(_k * Math.pow(CAPACITY_DECAY, depth)), MIN_CAPACITY);
+  }
+
+  /**
+   * Adds a new top level, which also updates the capacity of all the levels below.
+   */
+  private void grow() {
+    _compactors.add(new DoubleArrayList());
+    int numLevels = _compactors.size();
+    _maxSize = 0;
+    for (int level = 0; level < numLevels; level++) {
+      _maxSize += getCapacity(level);
+    }
+  }
+
+  /**
+   * Compacts the lowest full compactor into the next level. The sketch is full only if at least one compactor is full.
+   */
+  private void compress() {
+    for (int level = 0; level < _compactors.size(); level++) {
+      DoubleArrayList compactor = _compactors.get(level);
+      if (compactor.size() >= getCapacity(level)) {
+        if (level + 1 == _compactors.size()) {
+          grow();
+        }
+        DoubleArrayList nextCompactor = _compactors.get(level + 1);
+        double[] elements = compactor.elements();
+        int compactorSize = compactor.size();
+        java.util.Arrays.sort(elements, 0, compactorSize);
+
+        // Promote one value of each pair, and keep the largest value at this level if the number of values is odd
+        int numPairs = compactorSize / 2;
+        int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+        for (int i = 0; i < numPairs; i++) {
+          nextCompactor.add(elements[2 * i + offset]);
+        }
+        if ((compactorSize & 1) == 1) {
+          elements[0] = elements[compactorSize - 1];
+          compactor.size(1);
+        } else {
+          compactor.clear();
+        }
+        _size -= numPairs;
+        return;
+      }
+    }
+  }
+}
@@ -64,4 +64,18 @@ public class AggregationGroupByResult {
   public Object getResultForKey(GroupKeyGenerator.GroupKey groupKey, int index) {
     return _aggregationFunctions[index].extractGroupByResult(_resultHolders[index], groupKey._groupId);
   }
+
+  /**
+   * Given a group-by key and an index into the result holder array, returns the corresponding aggregation result as a
+   * primitive double.
+   * <p>This method should only be used for aggregation functions that store their group-by results as double values
+   * (e.g. COUNT, SUM, MIN, MAX), so that the result can be read without boxing.
+   *
+   * @param groupKey
+   * @param index
+   * @return
+   */
+  public double getDoubleResultForKey(GroupKeyGenerator.GroupKey groupKey, int index) {
+    return _resultHolders[index].getDoubleResult(groupKey._groupId);
+  }
 }
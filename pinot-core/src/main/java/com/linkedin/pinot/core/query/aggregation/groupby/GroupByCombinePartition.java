@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionFactory;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>GroupByCombinePartition</code> class is a single-threaded holder of combined aggregation group-by results.
+ * <p>Each group key is mapped to a dense group id, and the results are stored in per-function arrays indexed by the
+ * group id. Results of additive and min/max aggregation functions are kept in primitive double arrays, results of the
+ * other functions are kept in object arrays and merged through {@link AggregationFunction#merge(Object, Object)}.
+ * <p>This class is NOT thread-safe. Each combine thread owns its own partition, and partitions are joined together
+ * after all segments are merged.
+ */
+public class GroupByCombinePartition {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private enum MergeType {
+    SUM,
+    MIN,
+    MAX,
+    OBJECT
+  }
+
+  private final AggregationFunction[] _aggregationFunctions;
+  private final int _numAggregationFunctions;
+  private final MergeType[] _mergeTypes;
+  private final boolean[] _isLongResult;
+  private final Object2IntOpenHashMap<String> _groupIdMap;
+
+  private int _numGroups;
+  private int _capacity;
+  private String[] _groupKeys;
+  private final double[][] _doubleResults;
+  private final Object[][] _objectResults;
+
+  public GroupByCombinePartition(@Nonnull AggregationFunction[] aggregationFunctions) {
+    _aggregationFunctions = aggregationFunctions;
+    _numAggregationFunctions = aggregationFunctions.length;
+    _mergeTypes = new MergeType[_numAggregationFunctions];
+    _isLongResult = new boolean[_numAggregationFunctions];
+    _groupIdMap = new Object2IntOpenHashMap<>(INITIAL_CAPACITY);
+    _groupIdMap.defaultReturnValue(GroupKeyGenerator.INVALID_ID);
+
+    _capacity = INITIAL_CAPACITY;
+    _groupKeys = new String[_capacity];
+    _doubleResults = new double[_numAggregationFunctions][];
+    _objectResults = new Object[_numAggregationFunctions][];
+    for (int i = 0; i < _numAggregationFunctions; i++) {
+      MergeType mergeType = getMergeType(aggregationFunctions[i]);
+      _mergeTypes[i] = mergeType;
+      _isLongResult[i] = aggregationFunctions[i].getIntermediateResultDataType() == FieldSpec.DataType.LONG;
+      if (mergeType == MergeType.OBJECT) {
+        _objectResults[i] = new Object[_capacity];
+      } else {
+        _doubleResults[i] = new double[_capacity];
+      }
+    }
+  }
+
+  /**
+   * Merge all the groups inside the given segment level aggregation group-by result into this partition.
+   */
+  public void merge(@Nonnull AggregationGroupByResult aggregationGroupByResult) {
+    Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+    while (groupKeyIterator.hasNext()) {
+      GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+      int groupId = _groupIdMap.getInt(groupKey._stringKey);
+      if (groupId == GroupKeyGenerator.INVALID_ID) {
+        groupId = addGroup(groupKey._stringKey);
+        for (int i = 0; i < _numAggregationFunctions; i++) {
+          if (_mergeTypes[i] == MergeType.OBJECT) {
+            _objectResults[i][groupId] = aggregationGroupByResult.getResultForKey(groupKey, i);
+          } else {
+            _doubleResults[i][groupId] = aggregationGroupByResult.getDoubleResultForKey(groupKey, i);
+          }
+        }
+      } else {
+        for (int i = 0; i < _numAggregationFunctions; i++) {
+          if (_mergeTypes[i] == MergeType.OBJECT) {
+            mergeObject(i, groupId, aggregationGroupByResult.getResultForKey(groupKey, i));
+          } else {
+            mergeDouble(i, groupId, aggregationGroupByResult.getDoubleResultForKey(groupKey, i));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Merge the groups inside the given partition whose hash falls into the given join partition into this partition.
+   * <p>Each join partition only touches its own subset of the group keys, so that multiple partitions can be joined
+   * concurrently without any locking.
+   */
+  public void merge(@Nonnull GroupByCombinePartition partition, int joinPartitionId, int numJoinPartitions) {
+    int numGroups = partition._numGroups;
+    for (int groupIdToMerge = 0; groupIdToMerge < numGroups; groupIdToMerge++) {
+      String groupKey = partition._groupKeys[groupIdToMerge];
+      if (getJoinPartitionId(groupKey, numJoinPartitions) != joinPartitionId) {
+        continue;
+      }
+      int groupId = _groupIdMap.getInt(groupKey);
+      if (groupId == GroupKeyGenerator.INVALID_ID) {
+        groupId = addGroup(groupKey);
+        for (int i = 0; i < _numAggregationFunctions; i++) {
+          if (_mergeTypes[i] == MergeType.OBJECT) {
+            _objectResults[i][groupId] = partition._objectResults[i][groupIdToMerge];
+          } else {
+            _doubleResults[i][groupId] = partition._doubleResults[i][groupIdToMerge];
+          }
+        }
+      } else {
+        for (int i = 0; i < _numAggregationFunctions; i++) {
+          if (_mergeTypes[i] == MergeType.OBJECT) {
+            mergeObject(i, groupId, partition._objectResults[i][groupIdToMerge]);
+          } else {
+            mergeDouble(i, groupId, partition._doubleResults[i][groupIdToMerge]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of groups inside this partition.
+   */
+  public int getNumGroups() {
+    return _numGroups;
+  }
+
+  /**
+   * Dump all the groups inside this partition into the given map from group key to array of intermediate results (one
+   * for each aggregation function), which is the format expected by {@link AggregationGroupByTrimmingService}.
+   */
+  public void dumpToMap(@Nonnull Map<String, Object[]> dest) {
+    for (int groupId = 0; groupId < _numGroups; groupId++) {
+      Object[] results = new Object[_numAggregationFunctions];
+      for (int i = 0; i < _numAggregationFunctions; i++) {
+        if (_mergeTypes[i] == MergeType.OBJECT) {
+          results[i] = _objectResults[i][groupId];
+        } else if (_isLongResult[i]) {
+          results[i] = (long) _doubleResults[i][groupId];
+        } else {
+          results[i] = _doubleResults[i][groupId];
+        }
+      }
+      dest.put(_groupKeys[groupId], results);
+    }
+  }
+
+  /**
+   * Returns the join partition id for the given group key.
+   */
+  public static int getJoinPartitionId(@Nonnull String groupKey, int numJoinPartitions) {
+    // HashCode method might return negative value, make it non-negative
+    return (groupKey.hashCode() & Integer.MAX_VALUE) % numJoinPartitions;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void mergeObject(int functionIndex, int groupId, Object value) {
+    Object[] results = _objectResults[functionIndex];
+    results[groupId] = _aggregationFunctions[functionIndex].merge(results[groupId], value);
+  }
+
+  private void mergeDouble(int functionIndex, int groupId, double value) {
+    double[] results = _doubleResults[functionIndex];
+    switch (_mergeTypes[functionIndex]) {
+      case SUM:
+        results[groupId] += value;
+        break;
+      case MIN:
+        if (value < results[groupId]) {
+          results[groupId] = value;
+        }
+        break;
+      case MAX:
+        if (value > results[groupId]) {
+          results[groupId] = value;
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unsupported merge type: " + _mergeTypes[functionIndex]);
+    }
+  }
+
+  private int addGroup(String groupKey) {
+    if (_numGroups == _capacity) {
+      expand();
+    }
+    int groupId = _numGroups++;
+    _groupKeys[groupId] = groupKey;
+    _groupIdMap.put(groupKey, groupId);
+    return groupId;
+  }
+
+  private void expand() {
+    _capacity <<= 1;
+    _groupKeys = Arrays.copyOf(_groupKeys, _capacity);
+    for (int i = 0; i < _numAggregationFunctions; i++) {
+      if (_mergeTypes[i] == MergeType.OBJECT) {
+        _objectResults[i] = Arrays.copyOf(_objectResults[i], _capacity);
+      } else {
+        _doubleResults[i] = Arrays.copyOf(_doubleResults[i], _capacity);
+      }
+    }
+  }
+
+  private static MergeType getMergeType(AggregationFunction aggregationFunction) {
+    AggregationFunctionFactory.AggregationFunctionType aggregationFunctionType;
+    try {
+      aggregationFunctionType =
+          AggregationFunctionFactory.AggregationFunctionType.valueOf(aggregationFunction.getName().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return MergeType.OBJECT;
+    }
+    switch (aggregationFunctionType) {
+      case COUNT:
+      case COUNTMV:
+      case SUM:
+      case SUMMV:
+        return MergeType.SUM;
+      case MIN:
+      case MINMV:
+        return MergeType.MIN;
+      case MAX:
+      case MAXMV:
+        return MergeType.MAX;
+      default:
+        return MergeType.OBJECT;
+    }
+  }
+}
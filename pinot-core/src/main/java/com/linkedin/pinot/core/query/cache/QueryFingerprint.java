@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.cache;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.request.HavingFilterQuery;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>QueryFingerprint</code> class computes a normalized string representation of a {@link BrokerRequest}.
+ * <p>Two broker requests with the same fingerprint always produce the same results on the same data. The fingerprint
+ * ignores the parts of the request that do not affect the results (e.g. trace flag, response format, data table
+ * version), and normalizes the parts that are order insensitive (e.g. children of AND/OR filters, values of IN/NOT_IN
+ * filters, request options).
+ * <p>Every string is length prefixed so that values containing the separators cannot collide with each other.
+ */
+public class QueryFingerprint {
+  private QueryFingerprint() {
+  }
+
+  /**
+   * Returns the fingerprint of the given broker request.
+   */
+  @Nonnull
+  public static String getFingerprint(@Nonnull BrokerRequest brokerRequest) {
+    StringBuilder stringBuilder = new StringBuilder();
+    appendString(stringBuilder.append("T"), brokerRequest.getQuerySource().getTableName());
+    if (brokerRequest.isSetTimeInterval()) {
+      appendString(stringBuilder.append("|I"), brokerRequest.getTimeInterval());
+    }
+    if (brokerRequest.isSetDuration()) {
+      appendString(stringBuilder.append("|D"), brokerRequest.getDuration());
+    }
+    stringBuilder.append("|F");
+    appendString(stringBuilder, getFilterFingerprint(RequestUtils.generateFilterQueryTree(brokerRequest)));
+    if (brokerRequest.isSetAggregationsInfo()) {
+      stringBuilder.append("|A");
+      for (AggregationInfo aggregationInfo : brokerRequest.getAggregationsInfo()) {
+        appendAggregationInfo(stringBuilder, aggregationInfo);
+      }
+    }
+    if (brokerRequest.isSetGroupBy()) {
+      GroupBy groupBy = brokerRequest.getGroupBy();
+      stringBuilder.append("|G");
+      appendStrings(stringBuilder, groupBy.getColumns());
+      appendStrings(stringBuilder, groupBy.getExpressions());
+      stringBuilder.append(groupBy.getTopN());
+    }
+    if (brokerRequest.isSetSelections()) {
+      Selection selection = brokerRequest.getSelections();
+      stringBuilder.append("|S");
+      appendStrings(stringBuilder, selection.getSelectionColumns());
+      List<SelectionSort> selectionSortSequence = selection.getSelectionSortSequence();
+      if (selectionSortSequence != null) {
+        for (SelectionSort selectionSort : selectionSortSequence) {
+          appendString(stringBuilder, selectionSort.getColumn());
+          stringBuilder.append(selectionSort.isIsAsc() ? 'A' : 'D');
+        }
+      }
+      stringBuilder.append(selection.getOffset()).append(',').append(selection.getSize());
+    }
+    if (brokerRequest.isSetHavingFilterQuery()) {
+      stringBuilder.append("|H");
+      appendString(stringBuilder, getHavingFingerprint(brokerRequest.getHavingFilterQuery(),
+          brokerRequest.getHavingFilterSubQueryMap().getFilterQueryMap()));
+    }
+    appendOptions(stringBuilder.append("|O"), brokerRequest.getDebugOptions());
+    appendOptions(stringBuilder.append("|Q"), brokerRequest.getQueryOptions());
+    return stringBuilder.toString();
+  }
+
+  @Nullable
+  private static String getFilterFingerprint(@Nullable FilterQueryTree filterQueryTree) {
+    if (filterQueryTree == null) {
+      return null;
+    }
+    StringBuilder stringBuilder = new StringBuilder();
+    FilterOperator operator = filterQueryTree.getOperator();
+    stringBuilder.append(operator);
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+    if (children != null && !children.isEmpty()) {
+      // Children of AND/OR are order insensitive.
+      List<String> childFingerprints = new ArrayList<>(children.size());
+      for (FilterQueryTree child : children) {
+        childFingerprints.add(getFilterFingerprint(child));
+      }
+      Collections.sort(childFingerprints);
+      appendStrings(stringBuilder, childFingerprints);
+    } else {
+      appendString(stringBuilder, filterQueryTree.getColumn());
+      List<String> values = filterQueryTree.getValue();
+      if (values != null && (operator == FilterOperator.IN || operator == FilterOperator.NOT_IN)) {
+        values = new ArrayList<>(values);
+        Collections.sort(values);
+      }
+      appendStrings(stringBuilder, values);
+    }
+    return stringBuilder.toString();
+  }
+
+  @Nonnull
+  private static String getHavingFingerprint(@Nonnull HavingFilterQuery havingFilterQuery,
+      @Nonnull Map<Integer, HavingFilterQuery> havingFilterQueryMap) {
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(havingFilterQuery.getOperator());
+    AggregationInfo aggregationInfo = havingFilterQuery.getAggregationInfo();
+    if (aggregationInfo != null) {
+      appendAggregationInfo(stringBuilder, aggregationInfo);
+    }
+    appendStrings(stringBuilder, havingFilterQuery.getValue());
+    List<Integer> nestedFilterQueryIds = havingFilterQuery.getNestedFilterQueryIds();
+    if (nestedFilterQueryIds != null) {
+      for (Integer nestedFilterQueryId : nestedFilterQueryIds) {
+        appendString(stringBuilder,
+            getHavingFingerprint(havingFilterQueryMap.get(nestedFilterQueryId), havingFilterQueryMap));
+      }
+    }
+    return stringBuilder.toString();
+  }
+
+  private static void appendAggregationInfo(@Nonnull StringBuilder stringBuilder,
+      @Nonnull AggregationInfo aggregationInfo) {
+    appendString(stringBuilder, aggregationInfo.getAggregationType().toLowerCase());
+    appendOptions(stringBuilder, aggregationInfo.getAggregationParams());
+  }
+
+  private static void appendOptions(@Nonnull StringBuilder stringBuilder, @Nullable Map<String, String> options) {
+    if (options == null) {
+      stringBuilder.append('-');
+      return;
+    }
+    // Sort the options so that the fingerprint does not depend on the map implementation.
+    Map<String, String> sortedOptions = new TreeMap<>(options);
+    sortedOptions.remove(DataTableFactory.DATA_TABLE_VERSION_KEY);
+    stringBuilder.append(sortedOptions.size()).append('#');
+    for (Map.Entry<String, String> entry : sortedOptions.entrySet()) {
+      appendString(stringBuilder, entry.getKey());
+      appendString(stringBuilder, entry.getValue());
+    }
+  }
+
+  private static void appendStrings(@Nonnull StringBuilder stringBuilder, @Nullable List<String> strings) {
+    if (strings == null) {
+      stringBuilder.append('-');
+      return;
+    }
+    stringBuilder.append(strings.size()).append('#');
+    for (String string : strings) {
+      appendString(stringBuilder, string);
+    }
+  }
+
+  private static void appendString(@Nonnull StringBuilder stringBuilder, @Nullable String string) {
+    if (string == null) {
+      stringBuilder.append('-');
+    } else {
+      stringBuilder.append(string.length()).append(':').append(string);
+    }
+  }
+}
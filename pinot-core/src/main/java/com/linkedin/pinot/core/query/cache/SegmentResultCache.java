@@ -0,0 +1,532 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.metrics.ServerGauge;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableBuilder;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.operator.blocks.TransformBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>SegmentResultCache</code> class is a memory bounded, server side cache of the segment level results of
+ * aggregation and aggregation group-by queries on immutable segments.
+ * <p>Each entry is keyed by the table name, segment name, segment CRC and the {@link QueryFingerprint} of the broker
+ * request, and holds the serialized segment level results together with the execution statistics of the segment.
+ * Results are kept serialized because the combine operators merge into the segment level results in place, so every
+ * cache hit needs its own copy of the results.
+ * <p>The cache is shared by all the tables on the server, and is disabled until {@link #init(long, ServerMetrics)} is
+ * called with a positive size. Entries of a segment are invalidated when the segment is destroyed, and a replaced
+ * segment with a different CRC never hits the entries of the old one.
+ */
+public class SegmentResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentResultCache.class);
+  private static final SegmentResultCache INSTANCE = new SegmentResultCache();
+
+  // Do not cache results that take more than this fraction of the cache, so that one large group-by result cannot
+  // flush the whole cache.
+  private static final int MAX_ENTRY_SIZE_DIVISOR = 16;
+  // Estimated memory overhead of each cache entry (key, value and cache internals) besides the strings and bytes.
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 128;
+  private static final String GROUP_KEY_COLUMN_NAME = "groupKey";
+
+  private final AtomicLong _sizeInBytes = new AtomicLong();
+  private final AtomicLong _numHits = new AtomicLong();
+  private final AtomicLong _numMisses = new AtomicLong();
+  // Keys of the cached entries of each segment, so that invalidating a segment does not scan the whole cache
+  private final ConcurrentMap<String, Set<Key>> _segmentKeys = new ConcurrentHashMap<>();
+
+  private volatile Cache<Key, Entry> _cache;
+  private volatile long _maxEntrySizeInBytes;
+  private volatile ServerMetrics _serverMetrics;
+
+  /**
+   * Returns the cache shared by all the tables on the server.
+   */
+  public static SegmentResultCache getInstance() {
+    return INSTANCE;
+  }
+
+  private SegmentResultCache() {
+  }
+
+  /**
+   * (Re-)initializes the cache with the given maximum size, dropping all the existing entries. The cache is disabled if
+   * the maximum size is not positive.
+   *
+   * @param maxSizeInBytes Maximum size of the cache in bytes.
+   * @param serverMetrics Server metrics to report the cache gauges, or null if no metrics should be reported.
+   */
+  public synchronized void init(long maxSizeInBytes, @Nullable ServerMetrics serverMetrics) {
+    Cache<Key, Entry> oldCache = _cache;
+    _cache = null;
+    if (oldCache != null) {
+      oldCache.invalidateAll();
+    }
+    _segmentKeys.clear();
+    _sizeInBytes.set(0);
+    _numHits.set(0);
+    _numMisses.set(0);
+    _serverMetrics = serverMetrics;
+
+    if (maxSizeInBytes > 0) {
+      _maxEntrySizeInBytes = maxSizeInBytes / MAX_ENTRY_SIZE_DIVISOR;
+      _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeInBytes).weigher(new Weigher<Key, Entry>() {
+        @Override
+        public int weigh(@Nonnull Key key, @Nonnull Entry entry) {
+          return entry._sizeInBytes;
+        }
+      }).removalListener(new RemovalListener<Key, Entry>() {
+        @Override
+        public void onRemoval(@Nonnull RemovalNotification<Key, Entry> notification) {
+          _sizeInBytes.addAndGet(-notification.getValue()._sizeInBytes);
+          // A replaced entry is still cached under the same key
+          if (notification.getCause() != RemovalCause.REPLACED) {
+            Key key = notification.getKey();
+            Set<Key> keys = _segmentKeys.get(key.getSegmentId());
+            if (keys != null) {
+              keys.remove(key);
+            }
+          }
+        }
+      }).build();
+      LOGGER.info("Initialized segment result cache with max size: {} bytes", maxSizeInBytes);
+    } else {
+      LOGGER.info("Segment result cache is disabled");
+    }
+    updateGauges();
+  }
+
+  public boolean isEnabled() {
+    return _cache != null;
+  }
+
+  /**
+   * Returns the cached entry for the given key, or null if the cache is disabled or the entry does not exist.
+   */
+  @Nullable
+  public Entry get(@Nonnull Key key) {
+    Cache<Key, Entry> cache = _cache;
+    if (cache == null) {
+      return null;
+    }
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null) {
+      _numHits.incrementAndGet();
+    } else {
+      _numMisses.incrementAndGet();
+    }
+    updateGauges();
+    return entry;
+  }
+
+  /**
+   * Caches the given segment level results block and execution statistics under the given key.
+   * <p>Results blocks with processing exceptions, and results larger than the per entry limit are not cached.
+   */
+  public void put(@Nonnull Key key, @Nonnull IntermediateResultsBlock resultsBlock,
+      @Nonnull ExecutionStatistics executionStatistics) {
+    Cache<Key, Entry> cache = _cache;
+    AggregationFunctionContext[] aggregationFunctionContexts = resultsBlock.getAggregationFunctionContexts();
+    if (cache == null || aggregationFunctionContexts == null) {
+      return;
+    }
+    if (resultsBlock.getProcessingExceptions() != null && !resultsBlock.getProcessingExceptions().isEmpty()) {
+      return;
+    }
+    byte[] bytes;
+    try {
+      bytes = serialize(aggregationFunctionContexts, resultsBlock);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while serializing results of segment: {}, skip caching", key._segmentName, e);
+      return;
+    }
+    if (bytes == null) {
+      return;
+    }
+    Entry entry = new Entry(bytes, executionStatistics, key.getSizeInBytes());
+    if (entry._sizeInBytes > _maxEntrySizeInBytes) {
+      return;
+    }
+    _sizeInBytes.addAndGet(entry._sizeInBytes);
+    getSegmentKeys(key.getSegmentId()).add(key);
+    cache.put(key, entry);
+    updateGauges();
+  }
+
+  /**
+   * Invalidates all the entries for the given segment with the given CRC.
+   */
+  public void invalidate(@Nonnull String tableName, @Nonnull String segmentName, @Nullable String crc) {
+    Cache<Key, Entry> cache = _cache;
+    if (cache == null) {
+      return;
+    }
+    String segmentId = getSegmentId(tableName, segmentName);
+    Set<Key> keys = _segmentKeys.get(segmentId);
+    if (keys == null) {
+      return;
+    }
+    for (Key key : keys) {
+      if (crc == null || crc.equals(key._crc)) {
+        cache.invalidate(key);
+      }
+    }
+    if (keys.isEmpty()) {
+      _segmentKeys.remove(segmentId, keys);
+    }
+    updateGauges();
+  }
+
+  private Set<Key> getSegmentKeys(String segmentId) {
+    Set<Key> keys = _segmentKeys.get(segmentId);
+    if (keys == null) {
+      Set<Key> newKeys = Collections.newSetFromMap(new ConcurrentHashMap<Key, Boolean>());
+      keys = _segmentKeys.putIfAbsent(segmentId, newKeys);
+      if (keys == null) {
+        keys = newKeys;
+      }
+    }
+    return keys;
+  }
+
+  private static String getSegmentId(String tableName, String segmentName) {
+    return tableName + '/' + segmentName;
+  }
+
+  public long getSizeInBytes() {
+    return _sizeInBytes.get();
+  }
+
+  public long getNumEntries() {
+    Cache<Key, Entry> cache = _cache;
+    return cache != null ? cache.size() : 0;
+  }
+
+  public long getNumHits() {
+    return _numHits.get();
+  }
+
+  public long getNumMisses() {
+    return _numMisses.get();
+  }
+
+  private void updateGauges() {
+    ServerMetrics serverMetrics = _serverMetrics;
+    if (serverMetrics == null) {
+      return;
+    }
+    long numHits = _numHits.get();
+    long numLookups = numHits + _numMisses.get();
+    serverMetrics.setValueOfGlobalGauge(ServerGauge.SEGMENT_RESULT_CACHE_SIZE_IN_BYTES, _sizeInBytes.get());
+    serverMetrics.setValueOfGlobalGauge(ServerGauge.SEGMENT_RESULT_CACHE_NUM_ENTRIES, getNumEntries());
+    serverMetrics.setValueOfGlobalGauge(ServerGauge.SEGMENT_RESULT_CACHE_HIT_RATE_PERCENTAGE,
+        numLookups > 0 ? numHits * 100 / numLookups : 0);
+  }
+
+  /**
+   * Serializes the segment level aggregation or aggregation group-by results into a data table with one column per
+   * aggregation function (and a leading group key column for group-by), or returns null if there is no result.
+   */
+  @Nullable
+  private static byte[] serialize(@Nonnull AggregationFunctionContext[] aggregationFunctionContexts,
+      @Nonnull IntermediateResultsBlock resultsBlock)
+      throws Exception {
+    List<Object> aggregationResult = resultsBlock.getAggregationResult();
+    AggregationGroupByResult aggregationGroupByResult = resultsBlock.getAggregationGroupByResult();
+    if (aggregationResult == null && aggregationGroupByResult == null) {
+      return null;
+    }
+    boolean isGroupBy = aggregationResult == null;
+    int numAggregationFunctions = aggregationFunctionContexts.length;
+    int offset = isGroupBy ? 1 : 0;
+    String[] columnNames = new String[numAggregationFunctions + offset];
+    FieldSpec.DataType[] columnTypes = new FieldSpec.DataType[numAggregationFunctions + offset];
+    if (isGroupBy) {
+      columnNames[0] = GROUP_KEY_COLUMN_NAME;
+      columnTypes[0] = FieldSpec.DataType.STRING;
+    }
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      columnNames[i + offset] = aggregationFunctionContexts[i].getAggregationColumnName();
+      columnTypes[i + offset] = aggregationFunctionContexts[i].getAggregationFunction().getIntermediateResultDataType();
+    }
+
+    DataTableBuilder dataTableBuilder = new DataTableBuilder(new DataSchema(columnNames, columnTypes));
+    if (isGroupBy) {
+      Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+      while (groupKeyIterator.hasNext()) {
+        GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+        dataTableBuilder.startRow();
+        dataTableBuilder.setColumn(0, groupKey._stringKey);
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          setColumn(dataTableBuilder, i + 1, columnTypes[i + 1], aggregationGroupByResult.getResultForKey(groupKey, i));
+        }
+        dataTableBuilder.finishRow();
+      }
+    } else {
+      dataTableBuilder.startRow();
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        setColumn(dataTableBuilder, i, columnTypes[i], aggregationResult.get(i));
+      }
+      dataTableBuilder.finishRow();
+    }
+    return dataTableBuilder.build().toBytes();
+  }
+
+  private static void setColumn(@Nonnull DataTableBuilder dataTableBuilder, int colId,
+      @Nonnull FieldSpec.DataType columnType, @Nonnull Object value)
+      throws Exception {
+    switch (columnType) {
+      case LONG:
+        dataTableBuilder.setColumn(colId, ((Number) value).longValue());
+        break;
+      case DOUBLE:
+        dataTableBuilder.setColumn(colId, ((Number) value).doubleValue());
+        break;
+      case OBJECT:
+        dataTableBuilder.setColumn(colId, value);
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported aggregation column data type: " + columnType);
+    }
+  }
+
+  /**
+   * Key of the cache.
+   */
+  public static final class Key {
+    private final String _tableName;
+    private final String _segmentName;
+    private final String _crc;
+    private final String _queryFingerprint;
+    private final int _hashCode;
+
+    public Key(@Nonnull String tableName, @Nonnull String segmentName, @Nonnull String crc,
+        @Nonnull String queryFingerprint) {
+      _tableName = tableName;
+      _segmentName = segmentName;
+      _crc = crc;
+      _queryFingerprint = queryFingerprint;
+      int hashCode = tableName.hashCode();
+      hashCode = 31 * hashCode + segmentName.hashCode();
+      hashCode = 31 * hashCode + crc.hashCode();
+      _hashCode = 31 * hashCode + queryFingerprint.hashCode();
+    }
+
+    private String getSegmentId() {
+      return SegmentResultCache.getSegmentId(_tableName, _segmentName);
+    }
+
+    private int getSizeInBytes() {
+      // Strings are shared with the segment metadata except for the query fingerprint.
+      return 2 * _queryFingerprint.length();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return _hashCode == that._hashCode && _queryFingerprint.equals(that._queryFingerprint) && _segmentName.equals(
+          that._segmentName) && _crc.equals(that._crc) && _tableName.equals(that._tableName);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /**
+   * Value of the cache, which holds the serialized segment level results and the execution statistics.
+   */
+  public static final class Entry {
+    private final byte[] _bytes;
+    private final ExecutionStatistics _executionStatistics;
+    private final int _sizeInBytes;
+
+    private Entry(@Nonnull byte[] bytes, @Nonnull ExecutionStatistics executionStatistics, int keySizeInBytes) {
+      _bytes = bytes;
+      _executionStatistics = executionStatistics;
+      _sizeInBytes = bytes.length + keySizeInBytes + ENTRY_OVERHEAD_IN_BYTES;
+    }
+
+    @Nonnull
+    public ExecutionStatistics getExecutionStatistics() {
+      return _executionStatistics;
+    }
+
+    /**
+     * Deserializes a new copy of the cached results into a segment level results block.
+     */
+    @Nonnull
+    public IntermediateResultsBlock getResultsBlock(@Nonnull AggregationFunctionContext[] aggregationFunctionContexts)
+        throws Exception {
+      DataTable dataTable = DataTableFactory.getDataTable(_bytes);
+      DataSchema dataSchema = dataTable.getDataSchema();
+      int numAggregationFunctions = aggregationFunctionContexts.length;
+      int numRows = dataTable.getNumberOfRows();
+
+      if (dataSchema.size() == numAggregationFunctions) {
+        // Aggregation only.
+        List<Object> aggregationResult = new ArrayList<>(numAggregationFunctions);
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          aggregationResult.add(getValue(dataTable, 0, i, dataSchema.getColumnType(i)));
+        }
+        return new IntermediateResultsBlock(aggregationFunctionContexts, aggregationResult, false);
+      }
+
+      // Aggregation group-by.
+      String[] groupKeys = new String[numRows];
+      for (int rowId = 0; rowId < numRows; rowId++) {
+        groupKeys[rowId] = dataTable.getString(rowId, 0);
+      }
+      AggregationFunction[] aggregationFunctions = new AggregationFunction[numAggregationFunctions];
+      GroupByResultHolder[] resultHolders = new GroupByResultHolder[numAggregationFunctions];
+      int capacity = Math.max(numRows, 1);
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        AggregationFunction aggregationFunction = aggregationFunctionContexts[i].getAggregationFunction();
+        aggregationFunctions[i] = aggregationFunction;
+        GroupByResultHolder resultHolder =
+            aggregationFunction.createGroupByResultHolder(capacity, capacity, Integer.MAX_VALUE);
+        FieldSpec.DataType columnType = dataSchema.getColumnType(i + 1);
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          if (columnType == FieldSpec.DataType.OBJECT) {
+            resultHolder.setValueForKey(rowId, dataTable.getObject(rowId, i + 1));
+          } else {
+            resultHolder.setValueForKey(rowId, ((Number) getValue(dataTable, rowId, i + 1, columnType)).doubleValue());
+          }
+        }
+        resultHolders[i] = resultHolder;
+      }
+      return new IntermediateResultsBlock(aggregationFunctionContexts,
+          new AggregationGroupByResult(new CachedGroupKeyGenerator(groupKeys), aggregationFunctions, resultHolders));
+    }
+
+    @Nonnull
+    private static Object getValue(@Nonnull DataTable dataTable, int rowId, int colId,
+        @Nonnull FieldSpec.DataType columnType) {
+      switch (columnType) {
+        case LONG:
+          return dataTable.getLong(rowId, colId);
+        case DOUBLE:
+          return dataTable.getDouble(rowId, colId);
+        case OBJECT:
+          return dataTable.getObject(rowId, colId);
+        default:
+          throw new UnsupportedOperationException("Unsupported aggregation column data type: " + columnType);
+      }
+    }
+  }
+
+  /**
+   * Group key generator over the group keys of the cached results, where the group id is the row id.
+   */
+  private static final class CachedGroupKeyGenerator implements GroupKeyGenerator {
+    private final String[] _groupKeys;
+
+    private CachedGroupKeyGenerator(@Nonnull String[] groupKeys) {
+      _groupKeys = groupKeys;
+    }
+
+    @Override
+    public int getGlobalGroupKeyUpperBound() {
+      return _groupKeys.length;
+    }
+
+    @Override
+    public void generateKeysForBlock(TransformBlock transformBlock, int[] docIdToGroupKey) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void generateKeysForBlock(TransformBlock transformBlock, int[][] docIdToGroupKeys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getCurrentGroupKeyUpperBound() {
+      return _groupKeys.length;
+    }
+
+    @Override
+    public Iterator<GroupKey> getUniqueGroupKeys() {
+      return new Iterator<GroupKey>() {
+        private final GroupKey _groupKey = new GroupKey();
+        private int _groupId = 0;
+
+        @Override
+        public boolean hasNext() {
+          return _groupId < _groupKeys.length;
+        }
+
+        @Override
+        public GroupKey next() {
+          if (_groupId >= _groupKeys.length) {
+            throw new NoSuchElementException();
+          }
+          _groupKey._groupId = _groupId;
+          _groupKey._stringKey = _groupKeys[_groupId++];
+          return _groupKey;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public void purgeKeys(int[] keysToPurge) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
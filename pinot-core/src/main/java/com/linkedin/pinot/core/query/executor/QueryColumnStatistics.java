@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.executor;
+
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterQuery;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>QueryColumnStatistics</code> class keeps, for each raw table name, how many recent queries filtered on
+ * each column. The counts are halved on each {@link #decay()} so that the statistics follow the recent workload.
+ * <p>The statistics are shared by all the tables on the server, and can be saved to and loaded from a file so that
+ * they survive server restarts, when they are used to warm up the segments being loaded.
+ */
+@ThreadSafe
+public class QueryColumnStatistics {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryColumnStatistics.class);
+  private static final QueryColumnStatistics INSTANCE = new QueryColumnStatistics();
+  private static final char KEY_SEPARATOR = '/';
+  // Count of a column being removed by the decay, which concurrent increments must not use
+  private static final long REMOVED = -1L;
+
+  private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> _filterColumnCounts =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns the statistics shared by all the tables on the server.
+   */
+  public static QueryColumnStatistics getInstance() {
+    return INSTANCE;
+  }
+
+  // For tests only
+  QueryColumnStatistics() {
+  }
+
+  public void recordQuery(@Nonnull BrokerRequest brokerRequest) {
+    if (brokerRequest.getFilterSubQueryMap() == null) {
+      return;
+    }
+    // Count each column once per query
+    Set<String> filterColumns = new HashSet<>();
+    for (FilterQuery filterQuery : brokerRequest.getFilterSubQueryMap().getFilterQueryMap().values()) {
+      if (filterQuery.getColumn() != null) {
+        filterColumns.add(filterQuery.getColumn());
+      }
+    }
+    if (filterColumns.isEmpty()) {
+      return;
+    }
+    ConcurrentMap<String, AtomicLong> columnCounts =
+        getColumnCounts(TableNameBuilder.extractRawTableName(brokerRequest.getQuerySource().getTableName()));
+    for (String column : filterColumns) {
+      addToCount(columnCounts, column, 1L);
+    }
+  }
+
+  /**
+   * Returns the columns recently filtered on for the given raw table name, the most frequent first.
+   */
+  @Nonnull
+  public List<String> getFilterColumns(@Nonnull String rawTableName) {
+    Map<String, AtomicLong> columnCounts = _filterColumnCounts.get(rawTableName);
+    if (columnCounts == null) {
+      return Collections.emptyList();
+    }
+    final Map<String, Long> snapshot = new HashMap<>();
+    for (Map.Entry<String, AtomicLong> entry : columnCounts.entrySet()) {
+      long count = entry.getValue().get();
+      if (count > 0) {
+        snapshot.put(entry.getKey(), count);
+      }
+    }
+    List<String> columns = new ArrayList<>(snapshot.keySet());
+    Collections.sort(columns, new Comparator<String>() {
+      @Override
+      public int compare(String column1, String column2) {
+        return Long.compare(snapshot.get(column2), snapshot.get(column1));
+      }
+    });
+    return columns;
+  }
+
+  /**
+   * Halves all the counts, and removes the columns not filtered on any more.
+   */
+  public void decay() {
+    for (ConcurrentMap<String, AtomicLong> columnCounts : _filterColumnCounts.values()) {
+      for (Map.Entry<String, AtomicLong> entry : columnCounts.entrySet()) {
+        AtomicLong count = entry.getValue();
+        long value;
+        do {
+          value = count.get();
+        } while (value != REMOVED && !count.compareAndSet(value, value / 2));
+        // Only remove the count if no increment happened since it reached 0
+        if (value != REMOVED && value / 2 == 0 && count.compareAndSet(0L, REMOVED)) {
+          columnCounts.remove(entry.getKey(), count);
+        }
+      }
+    }
+  }
+
+  public void save(@Nonnull File file)
+      throws IOException {
+    Properties properties = new Properties();
+    for (Map.Entry<String, ConcurrentMap<String, AtomicLong>> tableEntry : _filterColumnCounts.entrySet()) {
+      for (Map.Entry<String, AtomicLong> columnEntry : tableEntry.getValue().entrySet()) {
+        long count = columnEntry.getValue().get();
+        if (count > 0) {
+          properties.setProperty(tableEntry.getKey() + KEY_SEPARATOR + columnEntry.getKey(), Long.toString(count));
+        }
+      }
+    }
+    // Write to a temporary file first so that a crash cannot leave a partial file
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+      properties.store(outputStream, "Query column statistics");
+    }
+    FileUtils.deleteQuietly(file);
+    FileUtils.moveFile(tempFile, file);
+  }
+
+  /**
+   * Adds the counts saved in the given file, if it exists.
+   */
+  public void load(@Nonnull File file)
+      throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    Properties properties = new Properties();
+    try (InputStream inputStream = new FileInputStream(file)) {
+      properties.load(inputStream);
+    }
+    for (String key : properties.stringPropertyNames()) {
+      int separatorIndex = key.indexOf(KEY_SEPARATOR);
+      if (separatorIndex <= 0) {
+        LOGGER.warn("Skipping invalid query column statistics key: {} in file: {}", key, file);
+        continue;
+      }
+      try {
+        long count = Long.parseLong(properties.getProperty(key));
+        addToCount(getColumnCounts(key.substring(0, separatorIndex)), key.substring(separatorIndex + 1), count);
+      } catch (NumberFormatException e) {
+        LOGGER.warn("Skipping invalid query column statistics count for key: {} in file: {}", key, file);
+      }
+    }
+    LOGGER.info("Loaded query column statistics for {} tables from file: {}", _filterColumnCounts.size(), file);
+  }
+
+  private ConcurrentMap<String, AtomicLong> getColumnCounts(String rawTableName) {
+    ConcurrentMap<String, AtomicLong> columnCounts = _filterColumnCounts.get(rawTableName);
+    if (columnCounts == null) {
+      ConcurrentMap<String, AtomicLong> newColumnCounts = new ConcurrentHashMap<>();
+      columnCounts = _filterColumnCounts.putIfAbsent(rawTableName, newColumnCounts);
+      if (columnCounts == null) {
+        columnCounts = newColumnCounts;
+      }
+    }
+    return columnCounts;
+  }
+
+  private static void addToCount(ConcurrentMap<String, AtomicLong> columnCounts, String column, long delta) {
+    while (true) {
+      AtomicLong count = getCount(columnCounts, column);
+      long value = count.get();
+      if (value == REMOVED) {
+        // Being removed by the decay, retry with a new count
+        columnCounts.remove(column, count);
+      } else if (count.compareAndSet(value, value + delta)) {
+        return;
+      }
+    }
+  }
+
+  private static AtomicLong getCount(ConcurrentMap<String, AtomicLong> columnCounts, String column) {
+    AtomicLong count = columnCounts.get(column);
+    if (count == null) {
+      AtomicLong newCount = new AtomicLong();
+      count = columnCounts.putIfAbsent(column, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    return count;
+  }
+}
@@ -35,6 +35,7 @@ import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
 import com.linkedin.pinot.core.query.exception.BadQueryRequestException;
 import com.linkedin.pinot.core.query.pruner.SegmentPrunerService;
@@ -55,6 +56,10 @@ import org.slf4j.LoggerFactory;
 public class ServerQueryExecutorV1Impl implements QueryExecutor {
   private static final Logger LOGGER = LoggerFactory.getLogger(ServerQueryExecutorV1Impl.class);
 
+  // Maximum size of the segment result cache in bytes, the cache is disabled by default.
+  public static final String SEGMENT_RESULT_CACHE_SIZE_KEY = "segment.result.cache.size.bytes";
+  private static final long DEFAULT_SEGMENT_RESULT_CACHE_SIZE = 0L;
+
   private InstanceDataManager _instanceDataManager = null;
   private SegmentPrunerService _segmentPrunerService = null;
   private PlanMaker _planMaker = null;
@@ -85,6 +90,9 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     _segmentPrunerService = new SegmentPrunerServiceImpl(queryExecutorConfig.getPrunerConfig());
     LOGGER.info("Trying to build QueryPlanMaker");
     _planMaker = new InstancePlanMakerImplV2(queryExecutorConfig);
+    long segmentResultCacheSize =
+        queryExecutorConfig.getConfig().getLong(SEGMENT_RESULT_CACHE_SIZE_KEY, DEFAULT_SEGMENT_RESULT_CACHE_SIZE);
+    SegmentResultCache.getInstance().init(segmentResultCacheSize, serverMetrics);
     LOGGER.info("Trying to build QueryExecutorTimer");
   }
 
@@ -106,6 +114,7 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       TraceContext.register(instanceRequest);
       final BrokerRequest brokerRequest = instanceRequest.getQuery();
       LOGGER.debug("Incoming query is : {}", brokerRequest);
+      QueryColumnStatistics.getInstance().recordQuery(brokerRequest);
 
       TimerContext.Timer segmentPruneTimer = timerContext.startNewPhaseTimer(ServerQueryPhase.SEGMENT_PRUNING);
 
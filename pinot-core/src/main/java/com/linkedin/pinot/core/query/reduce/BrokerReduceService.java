@@ -20,7 +20,8 @@ import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
-import com.linkedin.pinot.common.query.ReduceService;
+import com.linkedin.pinot.common.query.IncrementalReduceService;
+import com.linkedin.pinot.common.query.IncrementalReducer;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.request.HavingFilterQuery;
@@ -42,6 +43,7 @@ import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -57,9 +59,12 @@ import org.slf4j.LoggerFactory;
 /**
  * The <code>BrokerReduceService</code> class provides service to reduce data tables gathered from multiple servers
  * to {@link BrokerResponseNative}.
+ * <p>Data tables are reduced one at a time through a {@link DataTableReducer}, so that the broker can merge them as
+ * they arrive. Execution statistics, aggregation results and group-by results are merged on arrival; selection data
+ * tables are kept until the end, because the data schema to reduce on depends on all of them.
  */
 @ThreadSafe
-public class BrokerReduceService implements ReduceService<BrokerResponseNative> {
+public class BrokerReduceService implements IncrementalReduceService<BrokerResponseNative> {
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerReduceService.class);
 
   @Nonnull
@@ -78,31 +83,73 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
       return BrokerResponseNative.empty();
     }
 
-    BrokerResponseNative brokerResponseNative = new BrokerResponseNative();
-    List<QueryProcessingException> processingExceptions = brokerResponseNative.getProcessingExceptions();
-    long numDocsScanned = 0L;
-    long numEntriesScannedInFilter = 0L;
-    long numEntriesScannedPostFilter = 0L;
-    long numTotalRawDocs = 0L;
+    IncrementalReducer<BrokerResponseNative> reducer = newReducer(brokerRequest, brokerMetrics);
+    for (Map.Entry<ServerInstance, DataTable> entry : dataTableMap.entrySet()) {
+      reducer.reduce(entry.getKey(), entry.getValue());
+    }
+    return reducer.getBrokerResponse();
+  }
+
+  @Nonnull
+  @Override
+  public IncrementalReducer<BrokerResponseNative> newReducer(@Nonnull BrokerRequest brokerRequest,
+      @Nullable BrokerMetrics brokerMetrics) {
+    return new DataTableReducer(brokerRequest, brokerMetrics);
+  }
+
+  /**
+   * Reducer for the data tables of one query. Keeps running execution statistics and merged intermediate results.
+   */
+  @ThreadSafe
+  private class DataTableReducer implements IncrementalReducer<BrokerResponseNative> {
+    private final BrokerRequest _brokerRequest;
+    private final BrokerMetrics _brokerMetrics;
+    private final BrokerResponseNative _brokerResponseNative = new BrokerResponseNative();
+    private final AggregationFunction[] _aggregationFunctions;
+
+    private int _numDataTables = 0;
+    private long _numDocsScanned = 0L;
+    private long _numEntriesScannedInFilter = 0L;
+    private long _numEntriesScannedPostFilter = 0L;
+    private long _numTotalRawDocs = 0L;
+    private long _threadCpuTimeNs = 0L;
+    private long _allocatedBytes = 0L;
 
     // Cache a data schema from data tables (try to cache one with data rows associated with it).
-    DataSchema cachedDataSchema = null;
+    private DataSchema _cachedDataSchema;
+    private int _numDataTablesWithRows = 0;
+
+    // Selection query: data tables with data rows inside.
+    private final Map<ServerInstance, DataTable> _selectionDataTableMap = new LinkedHashMap<>();
+    // Aggregation only query: merged intermediate results.
+    private Object[] _intermediateResults;
+    // Aggregation group-by query: column names and merged intermediate result maps.
+    private String[] _columnNames;
+    private Map<String, Object>[] _intermediateResultMaps;
+
+    private DataTableReducer(@Nonnull BrokerRequest brokerRequest, @Nullable BrokerMetrics brokerMetrics) {
+      _brokerRequest = brokerRequest;
+      _brokerMetrics = brokerMetrics;
+      if (brokerRequest.isSetSelections()) {
+        _aggregationFunctions = null;
+      } else {
+        _aggregationFunctions = AggregationFunctionUtils.getAggregationFunctions(brokerRequest.getAggregationsInfo());
+      }
+    }
 
-    // Process server response metadata.
-    Iterator<Map.Entry<ServerInstance, DataTable>> iterator = dataTableMap.entrySet().iterator();
-    while (iterator.hasNext()) {
-      Map.Entry<ServerInstance, DataTable> entry = iterator.next();
-      ServerInstance serverInstance = entry.getKey();
-      DataTable dataTable = entry.getValue();
+    @Override
+    public synchronized void reduce(@Nonnull ServerInstance serverInstance, @Nonnull DataTable dataTable) {
+      _numDataTables++;
       Map<String, String> metadata = dataTable.getMetadata();
 
       // Reduce on trace info.
-      if (brokerRequest.isEnableTrace()) {
-        brokerResponseNative.getTraceInfo()
+      if (_brokerRequest.isEnableTrace()) {
+        _brokerResponseNative.getTraceInfo()
             .put(serverInstance.getHostname(), metadata.get(DataTable.TRACE_INFO_METADATA_KEY));
       }
 
       // Reduce on exceptions.
+      List<QueryProcessingException> processingExceptions = _brokerResponseNative.getProcessingExceptions();
       for (String key : metadata.keySet()) {
         if (key.startsWith(DataTable.EXCEPTION_METADATA_KEY)) {
           processingExceptions.add(new QueryProcessingException(Integer.parseInt(key.substring(9)), metadata.get(key)));
@@ -112,108 +159,202 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
       // Reduce on execution statistics.
       String numDocsScannedString = metadata.get(DataTable.NUM_DOCS_SCANNED_METADATA_KEY);
       if (numDocsScannedString != null) {
-        numDocsScanned += Long.parseLong(numDocsScannedString);
+        _numDocsScanned += Long.parseLong(numDocsScannedString);
       }
       String numEntriesScannedInFilterString = metadata.get(DataTable.NUM_ENTRIES_SCANNED_IN_FILTER_METADATA_KEY);
       if (numEntriesScannedInFilterString != null) {
-        numEntriesScannedInFilter += Long.parseLong(numEntriesScannedInFilterString);
+        _numEntriesScannedInFilter += Long.parseLong(numEntriesScannedInFilterString);
       }
       String numEntriesScannedPostFilterString = metadata.get(DataTable.NUM_ENTRIES_SCANNED_POST_FILTER_METADATA_KEY);
       if (numEntriesScannedPostFilterString != null) {
-        numEntriesScannedPostFilter += Long.parseLong(numEntriesScannedPostFilterString);
+        _numEntriesScannedPostFilter += Long.parseLong(numEntriesScannedPostFilterString);
       }
       String numTotalRawDocsString = metadata.get(DataTable.TOTAL_DOCS_METADATA_KEY);
       if (numTotalRawDocsString != null) {
-        numTotalRawDocs += Long.parseLong(numTotalRawDocsString);
+        _numTotalRawDocs += Long.parseLong(numTotalRawDocsString);
+      }
+      String threadCpuTimeNsString = metadata.get(DataTable.THREAD_CPU_TIME_NS_METADATA_KEY);
+      if (threadCpuTimeNsString != null) {
+        _threadCpuTimeNs += Long.parseLong(threadCpuTimeNsString);
+      }
+      String allocatedBytesString = metadata.get(DataTable.ALLOCATED_BYTES_METADATA_KEY);
+      if (allocatedBytesString != null) {
+        _allocatedBytes += Long.parseLong(allocatedBytesString);
       }
 
-      // After processing the metadata, remove data tables without data rows inside.
+      // After processing the metadata, skip data tables without data rows inside.
       DataSchema dataSchema = dataTable.getDataSchema();
       if (dataSchema == null) {
-        iterator.remove();
-      } else {
-        // Try to cache a data table with data rows inside, or cache one with data schema inside.
-        if (dataTable.getNumberOfRows() == 0) {
-          if (cachedDataSchema == null) {
-            cachedDataSchema = dataSchema;
-          }
-          iterator.remove();
-        } else {
-          cachedDataSchema = dataSchema;
+        return;
+      }
+      // Try to cache a data table with data rows inside, or cache one with data schema inside.
+      if (dataTable.getNumberOfRows() == 0) {
+        if (_cachedDataSchema == null) {
+          _cachedDataSchema = dataSchema;
         }
+        return;
+      }
+      _cachedDataSchema = dataSchema;
+      _numDataTablesWithRows++;
+
+      // Merge the query results.
+      if (_aggregationFunctions == null) {
+        _selectionDataTableMap.put(serverInstance, dataTable);
+      } else if (!_brokerRequest.isSetGroupBy()) {
+        mergeAggregationResults(dataTable, dataSchema);
+      } else {
+        mergeGroupByResults(dataTable);
       }
     }
 
-    // Set execution statistics.
-    brokerResponseNative.setNumDocsScanned(numDocsScanned);
-    brokerResponseNative.setNumEntriesScannedInFilter(numEntriesScannedInFilter);
-    brokerResponseNative.setNumEntriesScannedPostFilter(numEntriesScannedPostFilter);
-    brokerResponseNative.setTotalDocs(numTotalRawDocs);
-
-    // Update broker metrics.
-    String tableName = brokerRequest.getQuerySource().getTableName();
-    String rawTableName = TableNameBuilder.extractRawTableName(tableName);
-    if (brokerMetrics != null) {
-      brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.DOCUMENTS_SCANNED, numDocsScanned);
-      brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.ENTRIES_SCANNED_IN_FILTER,
-          numEntriesScannedInFilter);
-      brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.ENTRIES_SCANNED_POST_FILTER,
-          numEntriesScannedPostFilter);
-    }
-
-    if (dataTableMap.isEmpty()) {
-      // For empty data table map, construct empty result using the cached data schema.
+    @Nonnull
+    @Override
+    public synchronized BrokerResponseNative getBrokerResponse() {
+      if (_numDataTables == 0) {
+        // Empty response.
+        return BrokerResponseNative.empty();
+      }
 
-      // This will only happen to selection query.
-      if (cachedDataSchema != null) {
-        List<String> selectionColumns =
-            SelectionOperatorUtils.getSelectionColumns(brokerRequest.getSelections().getSelectionColumns(),
-                cachedDataSchema);
-        brokerResponseNative.setSelectionResults(
-            new SelectionResults(selectionColumns, new ArrayList<Serializable[]>(0)));
+      // Set execution statistics.
+      _brokerResponseNative.setNumDocsScanned(_numDocsScanned);
+      _brokerResponseNative.setNumEntriesScannedInFilter(_numEntriesScannedInFilter);
+      _brokerResponseNative.setNumEntriesScannedPostFilter(_numEntriesScannedPostFilter);
+      _brokerResponseNative.setTotalDocs(_numTotalRawDocs);
+      _brokerResponseNative.setThreadCpuTimeNs(_threadCpuTimeNs);
+      _brokerResponseNative.setAllocatedBytes(_allocatedBytes);
+
+      // Update broker metrics.
+      String tableName = _brokerRequest.getQuerySource().getTableName();
+      String rawTableName = TableNameBuilder.extractRawTableName(tableName);
+      if (_brokerMetrics != null) {
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.DOCUMENTS_SCANNED, _numDocsScanned);
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.ENTRIES_SCANNED_IN_FILTER,
+            _numEntriesScannedInFilter);
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.ENTRIES_SCANNED_POST_FILTER,
+            _numEntriesScannedPostFilter);
       }
-    } else {
-      // Reduce server responses data and set query results into the broker response.
-      assert cachedDataSchema != null;
 
-      if (brokerRequest.isSetSelections()) {
-        // Selection query.
-
-        // For data table map with more than one data tables, remove conflicting data tables.
-        DataSchema masterDataSchema = cachedDataSchema.clone();
-        if (dataTableMap.size() > 1) {
-          List<String> droppedServers = removeConflictingResponses(masterDataSchema, dataTableMap);
-          if (!droppedServers.isEmpty()) {
-            String errorMessage =
-                QueryException.MERGE_RESPONSE_ERROR.getMessage() + ": responses for table: " + tableName
-                    + " from servers: " + droppedServers + " got dropped due to data schema inconsistency.";
-            LOGGER.info(errorMessage);
-            if (brokerMetrics != null) {
-              brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESPONSE_MERGE_EXCEPTIONS, 1L);
-            }
-            brokerResponseNative.addToExceptions(
-                new QueryProcessingException(QueryException.MERGE_RESPONSE_ERROR_CODE, errorMessage));
-          }
+      if (_numDataTablesWithRows == 0) {
+        // For no data table with data rows, construct empty result using the cached data schema.
+
+        // This will only happen to selection query.
+        if (_cachedDataSchema != null) {
+          List<String> selectionColumns =
+              SelectionOperatorUtils.getSelectionColumns(_brokerRequest.getSelections().getSelectionColumns(),
+                  _cachedDataSchema);
+          _brokerResponseNative.setSelectionResults(
+              new SelectionResults(selectionColumns, new ArrayList<Serializable[]>(0)));
         }
-        setSelectionResults(brokerResponseNative, brokerRequest.getSelections(), dataTableMap, masterDataSchema);
       } else {
-        // Aggregation query.
-        AggregationFunction[] aggregationFunctions =
-            AggregationFunctionUtils.getAggregationFunctions(brokerRequest.getAggregationsInfo());
-        if (!brokerRequest.isSetGroupBy()) {
+        // Set query results into the broker response.
+        assert _cachedDataSchema != null;
+
+        if (_aggregationFunctions == null) {
+          // Selection query.
+
+          // For more than one data tables, remove conflicting data tables.
+          DataSchema masterDataSchema = _cachedDataSchema.clone();
+          if (_selectionDataTableMap.size() > 1) {
+            List<String> droppedServers = removeConflictingResponses(masterDataSchema, _selectionDataTableMap);
+            if (!droppedServers.isEmpty()) {
+              String errorMessage =
+                  QueryException.MERGE_RESPONSE_ERROR.getMessage() + ": responses for table: " + tableName
+                      + " from servers: " + droppedServers + " got dropped due to data schema inconsistency.";
+              LOGGER.info(errorMessage);
+              if (_brokerMetrics != null) {
+                _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESPONSE_MERGE_EXCEPTIONS, 1L);
+              }
+              _brokerResponseNative.addToExceptions(
+                  new QueryProcessingException(QueryException.MERGE_RESPONSE_ERROR_CODE, errorMessage));
+            }
+          }
+          setSelectionResults(_brokerResponseNative, _brokerRequest.getSelections(), _selectionDataTableMap,
+              masterDataSchema);
+        } else if (!_brokerRequest.isSetGroupBy()) {
           // Aggregation only query.
-          setAggregationResults(brokerResponseNative, aggregationFunctions, dataTableMap, cachedDataSchema);
+          setAggregationResults(_brokerResponseNative, _aggregationFunctions, _intermediateResults,
+              _cachedDataSchema);
         } else {
           // Aggregation group-by query.
           boolean[] aggregationFunctionSelectStatus =
-              AggregationFunctionUtils.getAggregationFunctionsSelectStatus(brokerRequest.getAggregationsInfo());
-          setGroupByHavingResults(brokerResponseNative, aggregationFunctions, aggregationFunctionSelectStatus,
-              brokerRequest.getGroupBy(), dataTableMap, brokerRequest.getHavingFilterQuery(),
-              brokerRequest.getHavingFilterSubQueryMap());
+              AggregationFunctionUtils.getAggregationFunctionsSelectStatus(_brokerRequest.getAggregationsInfo());
+          setGroupByHavingResults(_brokerResponseNative, _aggregationFunctions, aggregationFunctionSelectStatus,
+              _brokerRequest.getGroupBy(), _columnNames, _intermediateResultMaps,
+              _brokerRequest.getHavingFilterQuery(), _brokerRequest.getHavingFilterSubQueryMap());
+        }
+      }
+      return _brokerResponseNative;
+    }
+
+    /**
+     * Merge the aggregation results of a data table into the running intermediate results.
+     *
+     * @param dataTable data table.
+     * @param dataSchema data schema of the data table.
+     */
+    private void mergeAggregationResults(@Nonnull DataTable dataTable, @Nonnull DataSchema dataSchema) {
+      int numAggregationFunctions = _aggregationFunctions.length;
+      if (_intermediateResults == null) {
+        _intermediateResults = new Object[numAggregationFunctions];
+      }
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        Object intermediateResultToMerge;
+        FieldSpec.DataType columnType = dataSchema.getColumnType(i);
+        switch (columnType) {
+          case LONG:
+            intermediateResultToMerge = dataTable.getLong(0, i);
+            break;
+          case DOUBLE:
+            intermediateResultToMerge = dataTable.getDouble(0, i);
+            break;
+          case OBJECT:
+            intermediateResultToMerge = dataTable.getObject(0, i);
+            break;
+          default:
+            throw new IllegalStateException("Illegal column type in aggregation results: " + columnType);
+        }
+        Object mergedIntermediateResult = _intermediateResults[i];
+        if (mergedIntermediateResult == null) {
+          _intermediateResults[i] = intermediateResultToMerge;
+        } else {
+          _intermediateResults[i] = _aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge);
+        }
+      }
+    }
+
+    /**
+     * Merge the group-by results of a data table into the running intermediate result maps.
+     *
+     * @param dataTable data table.
+     */
+    @SuppressWarnings("unchecked")
+    private void mergeGroupByResults(@Nonnull DataTable dataTable) {
+      int numAggregationFunctions = _aggregationFunctions.length;
+      if (_columnNames == null) {
+        _columnNames = new String[numAggregationFunctions];
+        _intermediateResultMaps = new Map[numAggregationFunctions];
+      }
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        if (_columnNames[i] == null) {
+          _columnNames[i] = dataTable.getString(i, 0);
+          _intermediateResultMaps[i] = dataTable.getObject(i, 1);
+        } else {
+          Map<String, Object> mergedIntermediateResultMap = _intermediateResultMaps[i];
+          Map<String, Object> intermediateResultMapToMerge = dataTable.getObject(i, 1);
+          for (Map.Entry<String, Object> entry : intermediateResultMapToMerge.entrySet()) {
+            String groupKey = entry.getKey();
+            Object intermediateResultToMerge = entry.getValue();
+            if (mergedIntermediateResultMap.containsKey(groupKey)) {
+              Object mergedIntermediateResult = mergedIntermediateResultMap.get(groupKey);
+              mergedIntermediateResultMap.put(groupKey,
+                  _aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge));
+            } else {
+              mergedIntermediateResultMap.put(groupKey, intermediateResultToMerge);
+            }
+          }
         }
       }
     }
-    return brokerResponseNative;
   }
 
   /**
@@ -272,47 +413,20 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
   }
 
   /**
-   * Reduce aggregation results from multiple servers and set them into BrokerResponseNative passed in.
+   * Set the final aggregation results extracted from the merged intermediate results into BrokerResponseNative passed
+   * in.
    *
    * @param brokerResponseNative broker response.
    * @param aggregationFunctions array of aggregation functions.
-   * @param dataTableMap map from server to data table.
+   * @param intermediateResults merged intermediate results.
    * @param dataSchema data schema.
    */
   @SuppressWarnings("unchecked")
   private void setAggregationResults(@Nonnull BrokerResponseNative brokerResponseNative,
-      @Nonnull AggregationFunction[] aggregationFunctions, @Nonnull Map<ServerInstance, DataTable> dataTableMap,
+      @Nonnull AggregationFunction[] aggregationFunctions, @Nonnull Object[] intermediateResults,
       @Nonnull DataSchema dataSchema) {
     int numAggregationFunctions = aggregationFunctions.length;
 
-    // Merge results from all data tables.
-    Object[] intermediateResults = new Object[numAggregationFunctions];
-    for (DataTable dataTable : dataTableMap.values()) {
-      for (int i = 0; i < numAggregationFunctions; i++) {
-        Object intermediateResultToMerge;
-        FieldSpec.DataType columnType = dataSchema.getColumnType(i);
-        switch (columnType) {
-          case LONG:
-            intermediateResultToMerge = dataTable.getLong(0, i);
-            break;
-          case DOUBLE:
-            intermediateResultToMerge = dataTable.getDouble(0, i);
-            break;
-          case OBJECT:
-            intermediateResultToMerge = dataTable.getObject(0, i);
-            break;
-          default:
-            throw new IllegalStateException("Illegal column type in aggregation results: " + columnType);
-        }
-        Object mergedIntermediateResult = intermediateResults[i];
-        if (mergedIntermediateResult == null) {
-          intermediateResults[i] = intermediateResultToMerge;
-        } else {
-          intermediateResults[i] = aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge);
-        }
-      }
-    }
-
     // Extract final results and set them into the broker response.
     List<AggregationResult> reducedAggregationResults = new ArrayList<>(numAggregationFunctions);
     for (int i = 0; i < numAggregationFunctions; i++) {
@@ -324,49 +438,24 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
   }
 
   /**
-   * Reduce group-by results from multiple servers and set them into BrokerResponseNative passed in.
+   * Set the final group-by results extracted from the merged intermediate result maps into BrokerResponseNative passed
+   * in.
    *
    * @param brokerResponseNative broker response.
    * @param aggregationFunctions array of aggregation functions.
    * @param groupBy group-by information.
-   * @param dataTableMap map from server to data table.
+   * @param columnNames column names of the aggregation functions.
+   * @param intermediateResultMaps merged intermediate result maps.
    * @param havingFilterQuery having filter query
    * @param havingFilterQueryMap having filter query map
    */
   @SuppressWarnings("unchecked")
-
   private void setGroupByHavingResults(@Nonnull BrokerResponseNative brokerResponseNative,
       @Nonnull AggregationFunction[] aggregationFunctions, boolean[] aggregationFunctionsSelectStatus,
-      @Nonnull GroupBy groupBy, @Nonnull Map<ServerInstance, DataTable> dataTableMap,
+      @Nonnull GroupBy groupBy, @Nonnull String[] columnNames, @Nonnull Map<String, Object>[] intermediateResultMaps,
       HavingFilterQuery havingFilterQuery, HavingFilterQueryMap havingFilterQueryMap) {
     int numAggregationFunctions = aggregationFunctions.length;
 
-    // Merge results from all data tables.
-    String[] columnNames = new String[numAggregationFunctions];
-    Map<String, Object>[] intermediateResultMaps = new Map[numAggregationFunctions];
-    for (DataTable dataTable : dataTableMap.values()) {
-      for (int i = 0; i < numAggregationFunctions; i++) {
-        if (columnNames[i] == null) {
-          columnNames[i] = dataTable.getString(i, 0);
-          intermediateResultMaps[i] = dataTable.getObject(i, 1);
-        } else {
-          Map<String, Object> mergedIntermediateResultMap = intermediateResultMaps[i];
-          Map<String, Object> intermediateResultMapToMerge = dataTable.getObject(i, 1);
-          for (Map.Entry<String, Object> entry : intermediateResultMapToMerge.entrySet()) {
-            String groupKey = entry.getKey();
-            Object intermediateResultToMerge = entry.getValue();
-            if (mergedIntermediateResultMap.containsKey(groupKey)) {
-              Object mergedIntermediateResult = mergedIntermediateResultMap.get(groupKey);
-              mergedIntermediateResultMap.put(groupKey,
-                  aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge));
-            } else {
-              mergedIntermediateResultMap.put(groupKey, intermediateResultToMerge);
-            }
-          }
-        }
-      }
-    }
-
     // Extract final result maps from the merged intermediate result maps.
     Map<String, Comparable>[] finalResultMaps = new Map[numAggregationFunctions];
     for (int i = 0; i < numAggregationFunctions; i++) {
@@ -119,6 +119,11 @@ public abstract class AbstractSchedulerGroup implements SchedulerGroup {
     return reservedThreads.get();
   }
 
+  @Override
+  public void addCpuTime(long cpuTimeNs) {
+    // accounting is based on wall clock time of threads in use by default
+  }
+
   @Override
   public void startQuery() {
     incrementThreads();
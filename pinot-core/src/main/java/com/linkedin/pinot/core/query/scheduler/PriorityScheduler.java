@@ -104,11 +104,13 @@ public abstract class PriorityScheduler extends QueryScheduler {
             ServerQueryRequest queryRequest = request.getQueryRequest();
             final QueryExecutorService executor = resourceManager.getExecutorService(queryRequest,
                 request.getSchedulerGroup());
-            final ListenableFutureTask<byte[]> queryFutureTask = createQueryFutureTask(queryRequest, executor);
+            final ListenableFutureTask<byte[]> queryFutureTask =
+                createQueryFutureTask(queryRequest, executor, request.getResourceUsage());
             queryFutureTask.addListener(new Runnable() {
               @Override
               public void run() {
                 executor.releaseWorkers();
+                request.getSchedulerGroup().addCpuTime(request.getResourceUsage().getThreadCpuTimeNs());
                 request.getSchedulerGroup().endQuery();
                 runningQueriesSemaphore.release();
                 checkStopResourceManager();
@@ -31,8 +31,10 @@ import com.linkedin.pinot.common.query.context.TimerContext;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
 import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
 import com.linkedin.pinot.core.query.scheduler.resources.QueryExecutorService;
+import com.linkedin.pinot.core.query.scheduler.resources.QueryResourceUsage;
 import com.linkedin.pinot.core.query.scheduler.resources.ResourceManager;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -111,16 +113,17 @@ public abstract class QueryScheduler {
    * Create a future task for the query
    * @param request incoming query request
    * @param e executor service to use for parallelizing query. This is passed to the QueryExecutor
+   * @param resourceUsage accounts for the resources used by the query runner and worker threads of the query
    * @return Future task that can be scheduled for execution on an ExecutorService. Ideally, this future
    * should be executed on a different executor service than {@code e} to avoid deadlock.
    */
   protected ListenableFutureTask<byte[]> createQueryFutureTask(@Nonnull final ServerQueryRequest request,
-      @Nonnull final QueryExecutorService e) {
+      @Nonnull final QueryExecutorService e, @Nonnull final QueryResourceUsage resourceUsage) {
     return ListenableFutureTask.create(new Callable<byte[]>() {
       @Override
       public byte[] call()
           throws Exception {
-        return processQueryAndSerialize(request, e);
+        return processQueryAndSerialize(request, resourceUsage.trackingExecutorService(e), resourceUsage);
       }
     });
   }
@@ -129,11 +132,14 @@ public abstract class QueryScheduler {
    * Process query and serialize response
    * @param request incoming query request
    * @param executorService Executor service to use for parallelizing query processing
+   * @param resourceUsage accounts for the resources used by the query, reported in the response metadata
    * @return serialized query response
    */
   @Nullable
   protected byte[] processQueryAndSerialize(@Nonnull final ServerQueryRequest request,
-      @Nonnull final ExecutorService executorService) {
+      @Nonnull final ExecutorService executorService, @Nonnull final QueryResourceUsage resourceUsage) {
+    long startCpuTimeNs = QueryResourceUsage.getCurrentThreadCpuTimeNs();
+    long startAllocatedBytes = QueryResourceUsage.getCurrentThreadAllocatedBytes();
     DataTable result;
     try {
       result = queryExecutor.processQuery(request, executorService);
@@ -143,15 +149,24 @@ public abstract class QueryScheduler {
       result = new DataTableImplV2();
       result.addException(QueryException.getException(QueryException.INTERNAL_ERROR, e));
     }
+    // Usage of the query runner thread. Worker threads are accounted as their tasks finish.
+    resourceUsage.add(QueryResourceUsage.getCurrentThreadCpuTimeNs() - startCpuTimeNs,
+        QueryResourceUsage.getCurrentThreadAllocatedBytes() - startAllocatedBytes);
+    Map<String, String> resultMeta = result.getMetadata();
+    if (QueryResourceUsage.isThreadCpuTimeSupported()) {
+      resultMeta.put(DataTable.THREAD_CPU_TIME_NS_METADATA_KEY, Long.toString(resourceUsage.getThreadCpuTimeNs()));
+    }
+    if (QueryResourceUsage.isThreadAllocatedBytesSupported()) {
+      resultMeta.put(DataTable.ALLOCATED_BYTES_METADATA_KEY, Long.toString(resourceUsage.getAllocatedBytes()));
+    }
 
     byte[] responseData = serializeDataTable(request, result);
 
     // Log the statistics
     InstanceRequest instanceRequest = request.getInstanceRequest();
     TimerContext timerContext = request.getTimerContext();
-    Map<String, String> resultMeta = result.getMetadata();
     LOGGER.info(
-        "Processed requestId={},table={},reqSegments={},prunedToSegmentCount={},totalExecMs={},totalTimeMs={},broker={},numDocsScanned={},scanInFilter={},scanPostFilter={},sched={}",
+        "Processed requestId={},table={},reqSegments={},prunedToSegmentCount={},totalExecMs={},totalTimeMs={},broker={},numDocsScanned={},scanInFilter={},scanPostFilter={},cpuTimeNs={},allocatedBytes={},sched={}",
         instanceRequest.getRequestId(),
         request.getTableName(),
         instanceRequest.getSearchSegments().size(),
@@ -162,6 +177,8 @@ public abstract class QueryScheduler {
         getMetadataValue(resultMeta, DataTable.NUM_DOCS_SCANNED_METADATA_KEY),
         getMetadataValue(resultMeta, DataTable.NUM_ENTRIES_SCANNED_IN_FILTER_METADATA_KEY),
         getMetadataValue(resultMeta, DataTable.NUM_ENTRIES_SCANNED_POST_FILTER_METADATA_KEY),
+        getMetadataValue(resultMeta, DataTable.THREAD_CPU_TIME_NS_METADATA_KEY),
+        getMetadataValue(resultMeta, DataTable.ALLOCATED_BYTES_METADATA_KEY),
         name());
 
     return responseData;
@@ -188,7 +205,8 @@ public abstract class QueryScheduler {
     byte[] responseByte;
     InstanceRequest instanceRequest = queryRequest.getInstanceRequest();
     try {
-      responseByte = instanceResponse.toBytes();
+      responseByte =
+          DataTableFactory.toBytes(instanceResponse, DataTableFactory.getResponseVersion(instanceRequest.getQuery()));
     } catch (Exception e) {
       queryRequest.getServerMetrics().addMeteredGlobalValue(ServerMeter.RESPONSE_SERIALIZATION_EXCEPTIONS, 1);
       LOGGER.error("Caught exception while serializing response for requestId: {}, brokerId: {}",
@@ -23,7 +23,8 @@ package com.linkedin.pinot.core.query.scheduler;
  * We mainly account for wall clock time of each thread for a query. This captures
  * CPU and IO cost for each query but also penalizes for GC activity. We do not account
  * for memory utilization yet. Nevertheless, wall clock time is a good approximation for
- * resource utilization in an online system.
+ * resource utilization in an online system. Implementations can alternatively account for
+ * the measured thread CPU time of the queries (see {@link #addCpuTime(long)}).
  */
 public interface SchedulerGroupAccountant extends Comparable<SchedulerGroupAccountant> {
   /**
@@ -60,6 +61,13 @@ public interface SchedulerGroupAccountant extends Comparable<SchedulerGroupAccou
    */
   int totalReservedThreads();
 
+  /**
+   * Account for the CPU time measured for the threads of a finished query of this group.
+   * Implementations accounting for wall clock time may ignore it.
+   * @param cpuTimeNs thread CPU time in nanoseconds
+   */
+  void addCpuTime(long cpuTimeNs);
+
   /**
    * Mark start of a query if the implementor wants to perform additional accounting
    */
@@ -20,6 +20,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.linkedin.pinot.common.query.ServerQueryRequest;
+import com.linkedin.pinot.core.query.scheduler.resources.QueryResourceUsage;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -31,6 +32,7 @@ public class SchedulerQueryContext {
 
   private final ServerQueryRequest queryRequest;
   private final SettableFuture<byte[]> resultFuture;
+  private final QueryResourceUsage resourceUsage;
   private SchedulerGroup schedulerGroup;
 
   public SchedulerQueryContext(@Nonnull ServerQueryRequest queryRequest) {
@@ -38,6 +40,7 @@ public class SchedulerQueryContext {
 
     this.queryRequest = queryRequest;
     this.resultFuture = SettableFuture.create();
+    this.resourceUsage = new QueryResourceUsage();
   }
 
   public @Nonnull ServerQueryRequest getQueryRequest() {
@@ -52,6 +55,13 @@ public class SchedulerQueryContext {
     resultFuture.setFuture(f);
   }
 
+  /**
+   * Resources (CPU time, allocated bytes) used by the threads executing this query
+   */
+  public @Nonnull QueryResourceUsage getResourceUsage() {
+    return resourceUsage;
+  }
+
   public void setSchedulerGroupContext(SchedulerGroup schedulerGroup) {
     this.schedulerGroup = schedulerGroup;
   }
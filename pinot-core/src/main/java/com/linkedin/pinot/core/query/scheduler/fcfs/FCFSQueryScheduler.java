@@ -26,6 +26,7 @@ import com.linkedin.pinot.common.query.QueryExecutor;
 import com.linkedin.pinot.common.query.ServerQueryRequest;
 import com.linkedin.pinot.core.query.scheduler.QueryScheduler;
 import com.linkedin.pinot.core.query.scheduler.resources.QueryExecutorService;
+import com.linkedin.pinot.core.query.scheduler.resources.QueryResourceUsage;
 import com.linkedin.pinot.core.query.scheduler.resources.UnboundedResourceManager;
 import javax.annotation.Nonnull;
 import org.apache.commons.configuration.Configuration;
@@ -53,7 +54,8 @@ public class FCFSQueryScheduler extends QueryScheduler {
     queryRequest.getTimerContext().startNewPhaseTimer(ServerQueryPhase.SCHEDULER_WAIT);
     QueryExecutorService queryExecutorService =
         resourceManager.getExecutorService(queryRequest, null);
-    ListenableFutureTask<byte[]> queryTask = createQueryFutureTask(queryRequest, queryExecutorService);
+    ListenableFutureTask<byte[]> queryTask =
+        createQueryFutureTask(queryRequest, queryExecutorService, new QueryResourceUsage());
     resourceManager.getQueryRunners().submit(queryTask);
     return queryTask;
   }
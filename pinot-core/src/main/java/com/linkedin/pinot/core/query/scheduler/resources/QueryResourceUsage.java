@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler.resources;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Tracks the resources used by all the threads executing a query: the query runner thread and the query worker
+ * threads. We account for the thread CPU time and the bytes allocated on the heap, as measured by the JVM.
+ *
+ * Thread CPU time is measured only if the JVM supports and enables it. Allocated bytes are measured only on JVMs
+ * exposing {@link com.sun.management.ThreadMXBean} (HotSpot). Unsupported measurements are reported as 0.
+ */
+@ThreadSafe
+public class QueryResourceUsage {
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final boolean IS_THREAD_CPU_TIME_SUPPORTED;
+  private static final boolean IS_THREAD_ALLOCATED_BYTES_SUPPORTED;
+
+  static {
+    IS_THREAD_CPU_TIME_SUPPORTED =
+        THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    boolean isThreadAllocatedBytesSupported = false;
+    try {
+      if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        isThreadAllocatedBytesSupported =
+            threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+      }
+    } catch (Throwable t) {
+      // com.sun.management is not available on this JVM
+    }
+    IS_THREAD_ALLOCATED_BYTES_SUPPORTED = isThreadAllocatedBytesSupported;
+  }
+
+  private final AtomicLong _threadCpuTimeNs = new AtomicLong();
+  private final AtomicLong _allocatedBytes = new AtomicLong();
+
+  public static boolean isThreadCpuTimeSupported() {
+    return IS_THREAD_CPU_TIME_SUPPORTED;
+  }
+
+  public static boolean isThreadAllocatedBytesSupported() {
+    return IS_THREAD_ALLOCATED_BYTES_SUPPORTED;
+  }
+
+  /**
+   * Returns the CPU time used by the current thread in nanoseconds, or 0 if not supported.
+   */
+  public static long getCurrentThreadCpuTimeNs() {
+    return IS_THREAD_CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0L;
+  }
+
+  /**
+   * Returns the bytes allocated on the heap by the current thread, or 0 if not supported.
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    if (IS_THREAD_ALLOCATED_BYTES_SUPPORTED) {
+      return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    } else {
+      return 0L;
+    }
+  }
+
+  /**
+   * Adds the resources used by a thread of the query.
+   *
+   * @param threadCpuTimeNs thread CPU time in nanoseconds
+   * @param allocatedBytes bytes allocated on the heap
+   */
+  public void add(long threadCpuTimeNs, long allocatedBytes) {
+    _threadCpuTimeNs.addAndGet(threadCpuTimeNs);
+    _allocatedBytes.addAndGet(allocatedBytes);
+  }
+
+  /**
+   * Total CPU time in nanoseconds used by the threads of the query.
+   */
+  public long getThreadCpuTimeNs() {
+    return _threadCpuTimeNs.get();
+  }
+
+  /**
+   * Total bytes allocated on the heap by the threads of the query.
+   */
+  public long getAllocatedBytes() {
+    return _allocatedBytes.get();
+  }
+
+  /**
+   * Wraps the runnable so that the resources used by the thread running it are accounted to this query.
+   */
+  public Runnable track(@Nonnull final Runnable runnable) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        long startCpuTimeNs = getCurrentThreadCpuTimeNs();
+        long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+        try {
+          runnable.run();
+        } finally {
+          add(getCurrentThreadCpuTimeNs() - startCpuTimeNs, getCurrentThreadAllocatedBytes() - startAllocatedBytes);
+        }
+      }
+    };
+  }
+
+  /**
+   * Wraps the callable so that the resources used by the thread calling it are accounted to this query.
+   */
+  public <T> Callable<T> track(@Nonnull final Callable<T> callable) {
+    return new Callable<T>() {
+      @Override
+      public T call()
+          throws Exception {
+        long startCpuTimeNs = getCurrentThreadCpuTimeNs();
+        long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+        try {
+          return callable.call();
+        } finally {
+          add(getCurrentThreadCpuTimeNs() - startCpuTimeNs, getCurrentThreadAllocatedBytes() - startAllocatedBytes);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns an executor service for the query workers that accounts the resources used by the submitted tasks to this
+   * query, and delegates the execution to the given executor.
+   * <p>Submitted tasks are accounted before their futures complete, so that the usage is complete once the query
+   * has waited for all its tasks.
+   */
+  public QueryExecutorService trackingExecutorService(@Nonnull final Executor executor) {
+    return new QueryExecutorService() {
+      @Override
+      public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> futureTask = new FutureTask<>(track(task));
+        executor.execute(futureTask);
+        return futureTask;
+      }
+
+      @Override
+      public void execute(Runnable command) {
+        executor.execute(track(command));
+      }
+    };
+  }
+}
@@ -35,6 +35,8 @@ import org.apache.commons.configuration.Configuration;
 public class TokenPriorityScheduler extends PriorityScheduler {
   public static final String TOKENS_PER_MS_KEY = "tokens_per_ms";
   public static final String TOKEN_LIFETIME_MS_KEY = "token_lifetime_ms";
+  // deduct tokens for the measured thread CPU time of the queries instead of the wall clock time of threads in use
+  public static final String USE_CPU_TIME_KEY = "use_cpu_time";
   private static final int DEFAULT_TOKEN_LIFETIME_MS = 100;
 
   public static TokenPriorityScheduler create(@Nonnull Configuration config, @Nonnull QueryExecutor queryExecutor,
@@ -48,8 +50,9 @@ public class TokenPriorityScheduler extends PriorityScheduler {
         int maxTokensPerMs = rm.getNumQueryRunnerThreads() + rm.getNumQueryWorkerThreads();
         int tokensPerMs = config.getInt(TOKENS_PER_MS_KEY, maxTokensPerMs);
         int tokenLifetimeMs = config.getInt(TOKEN_LIFETIME_MS_KEY, DEFAULT_TOKEN_LIFETIME_MS);
+        boolean useCpuTime = config.getBoolean(USE_CPU_TIME_KEY, false);
 
-        return new TokenSchedulerGroup(groupName, tokensPerMs, tokenLifetimeMs);
+        return new TokenSchedulerGroup(groupName, tokensPerMs, tokenLifetimeMs, useCpuTime);
       }
     };
 
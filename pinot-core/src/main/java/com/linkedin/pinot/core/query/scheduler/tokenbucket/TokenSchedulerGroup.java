@@ -34,6 +34,10 @@ import java.util.concurrent.locks.ReentrantLock;
  * by applying linear decay. Linear decay memorizes resource utilization in the previous
  * time quantum penalizing heavy users. This is important to give fair chance to low qps
  * workloads.
+ *
+ * Alternatively, tokens can represent a unit of measured thread CPU time. In that case, the
+ * CPU time used by all the threads of a query is deducted from the group when the query ends,
+ * so that queries waiting on IO or GC are not penalized while CPU heavy ones are.
  */
 public class TokenSchedulerGroup extends AbstractSchedulerGroup {
 
@@ -47,6 +51,12 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
   // those can be scheduled if there is no other work
   private final int numTokensPerMs;
 
+  // if true, tokens are deducted for the measured thread CPU time of the queries instead of the
+  // wall clock time of the threads in use
+  private final boolean useCpuTime;
+  // CPU time not yet deducted from tokens because it's smaller than 1 token
+  private long pendingCpuTimeNs;
+
   // currently available tokens for this group
   private int availableTokens;
   // last time token values were updated for this group
@@ -64,11 +74,16 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
 
 
   TokenSchedulerGroup(String schedGroupName, int numTokensPerMs, int tokenLifetimeMs) {
+    this(schedGroupName, numTokensPerMs, tokenLifetimeMs, false);
+  }
+
+  TokenSchedulerGroup(String schedGroupName, int numTokensPerMs, int tokenLifetimeMs, boolean useCpuTime) {
     super(schedGroupName);
     Preconditions.checkArgument(numTokensPerMs > 0);
     Preconditions.checkArgument(tokenLifetimeMs > 0);
     this.numTokensPerMs = numTokensPerMs;
     this.tokenLifetimeMs = tokenLifetimeMs;
+    this.useCpuTime = useCpuTime;
     lastUpdateTimeMs = currentTimeMillis();
     availableTokens = numTokensPerMs * tokenLifetimeMs;
     lastTokenTimeMs = lastUpdateTimeMs;
@@ -90,6 +105,21 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
     super.decrementThreads();
   }
 
+  @Override
+  public void addCpuTime(long cpuTimeNs) {
+    if (!useCpuTime) {
+      return;
+    }
+    try (TokenLockManager lm = new TokenLockManager(tokenLock)) {
+      // bring tokens up to date before deducting the query cost
+      consumeTokens();
+      pendingCpuTimeNs += cpuTimeNs;
+      long cpuTimeMs = pendingCpuTimeNs / 1_000_000L;
+      availableTokens -= cpuTimeMs;
+      pendingCpuTimeNs -= cpuTimeMs * 1_000_000L;
+    }
+  }
+
   @Override
   public void startQuery() {
     consumeTokens();
@@ -153,7 +183,8 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
       if (diffMs <= 0) {
         return availableTokens;
       }
-      int threads = threadsInUse.get();
+      // with CPU time accounting, tokens are deducted by addCpuTime() and only replenished here
+      int threads = useCpuTime ? 0 : threadsInUse.get();
       long nextTokenTime = lastTokenTimeMs + tokenLifetimeMs;
       if (nextTokenTime > currentTimeMs) {
         availableTokens -= diffMs * threads;
@@ -22,13 +22,10 @@ import com.linkedin.pinot.common.response.broker.SelectionResults;
 import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.common.utils.DataTable;
 import com.linkedin.pinot.core.common.Block;
-import com.linkedin.pinot.core.common.BlockDocIdIterator;
-import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
-import com.linkedin.pinot.core.query.selection.comparator.CompositeDocIdValComparator;
+import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -73,6 +70,7 @@ public class SelectionOperatorService {
   private final int _maxNumRows;
   private final PriorityQueue<Serializable[]> _rows;
 
+  private SelectionOrderByTopKSelector _topKSelector;
   private long _numDocsScanned = 0;
 
   /**
@@ -266,27 +264,35 @@ public class SelectionOperatorService {
   }
 
   /**
-   * Iterate over {@link Block}s, extract values from them and merge the values to the selection results for selection
-   * queries with <code>ORDER BY</code>. (Inner segment)
+   * Select the top documents from a {@link ProjectionBlock} for selection queries with <code>ORDER BY</code>. (Inner
+   * segment)
+   * <p>Only the document ids and sort keys are kept, call {@link #materializeRowsWithOrdering(Block[])} after all the
+   * projection blocks are processed to fetch the selected rows.
    *
-   * @param blockDocIdIterator block document id iterator.
-   * @param blocks {@link Block} array.
+   * @param projectionBlock projection block.
    */
-  public void iterateOnBlocksWithOrdering(@Nonnull BlockDocIdIterator blockDocIdIterator, @Nonnull Block[] blocks) {
-    Comparator<Integer> rowDocIdComparator = new CompositeDocIdValComparator(_sortSequence, blocks);
-    PriorityQueue<Integer> rowDocIdPriorityQueue = new PriorityQueue<>(_maxNumRows, rowDocIdComparator);
-    int docId;
-    while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
-      _numDocsScanned++;
-      SelectionOperatorUtils.addToPriorityQueue(docId, rowDocIdPriorityQueue, _maxNumRows);
+  public void iterateOnProjectionBlockWithOrdering(@Nonnull ProjectionBlock projectionBlock) {
+    if (_topKSelector == null) {
+      _topKSelector = new SelectionOrderByTopKSelector(_sortSequence, projectionBlock, _maxNumRows);
     }
+    _numDocsScanned += _topKSelector.addProjectionBlock(projectionBlock);
+  }
 
+  /**
+   * Fetch the rows of the selected documents and merge them to the selection results for selection queries with
+   * <code>ORDER BY</code>. (Inner segment)
+   *
+   * @param blocks {@link Block} array for the columns in data schema, which can fetch values for any document.
+   */
+  public void materializeRowsWithOrdering(@Nonnull Block[] blocks) {
+    if (_topKSelector == null) {
+      return;
+    }
     SelectionFetcher selectionFetcher = new SelectionFetcher(blocks, _dataSchema);
-    Collection<Serializable[]> rows = new ArrayList<>(rowDocIdPriorityQueue.size());
-    for (int rowDocId : rowDocIdPriorityQueue) {
-      rows.add(selectionFetcher.getRow(rowDocId));
+    for (int docId : _topKSelector.getSortedDocIds()) {
+      SelectionOperatorUtils.addToPriorityQueue(selectionFetcher.getRow(docId), _rows, _maxNumRows);
     }
-    SelectionOperatorUtils.mergeWithOrdering(_rows, rows, _maxNumRows);
+    _topKSelector = null;
   }
 
   /**
@@ -0,0 +1,418 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.selection;
+
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>SelectionOrderByTopKSelector</code> class selects the top K documents of a segment for selection queries
+ * with <code>ORDER BY</code>. (Inner segment)
+ * <p>The sort keys of the selected documents are kept in primitive arrays, and the documents are ordered with a binary
+ * heap of slot indexes, so that no object is created per scanned document. Columns with sorted (immutable) dictionary
+ * are ordered on dictionary ids, other columns on their values.
+ * <p>Only the document ids are selected, the rows should be fetched for the final winners only.
+ * <p>Same as the row comparators in {@link SelectionOperatorService}, multi-value sort columns are not compared.
+ */
+public class SelectionOrderByTopKSelector {
+  private final int _maxNumRows;
+  private final SortKeys[] _sortKeys;
+  private final int _numSortKeys;
+  private final int[] _docIds;
+  // Binary heap of slot indexes, where the root is the worst document selected
+  private final int[] _heap;
+
+  private int _numRows = 0;
+
+  public SelectionOrderByTopKSelector(@Nonnull List<SelectionSort> sortSequence,
+      @Nonnull ProjectionBlock projectionBlock, int maxNumRows) {
+    _maxNumRows = maxNumRows;
+    List<SortKeys> sortKeys = new ArrayList<>(sortSequence.size());
+    for (SelectionSort selectionSort : sortSequence) {
+      SortKeys sortKeysForColumn = createSortKeys(selectionSort, projectionBlock, maxNumRows);
+      if (sortKeysForColumn != null) {
+        sortKeys.add(sortKeysForColumn);
+      }
+    }
+    _numSortKeys = sortKeys.size();
+    _sortKeys = sortKeys.toArray(new SortKeys[_numSortKeys]);
+    _docIds = new int[maxNumRows];
+    _heap = new int[maxNumRows];
+  }
+
+  /**
+   * Helper method to create the {@link SortKeys} for a sort column, or <code>null</code> if the column is not
+   * comparable.
+   */
+  private static SortKeys createSortKeys(@Nonnull SelectionSort selectionSort, @Nonnull ProjectionBlock projectionBlock,
+      int maxNumRows) {
+    String column = selectionSort.getColumn();
+    boolean isAsc = selectionSort.isIsAsc();
+    BlockMetadata blockMetadata = projectionBlock.getMetadata(column);
+    if (!blockMetadata.isSingleValue()) {
+      return null;
+    }
+    Dictionary dictionary = blockMetadata.getDictionary();
+    if (blockMetadata.hasDictionary() && dictionary instanceof ImmutableDictionaryReader) {
+      return new DictIdSortKeys(column, isAsc, maxNumRows);
+    }
+    switch (blockMetadata.getDataType()) {
+      case INT:
+        return new IntSortKeys(column, isAsc, maxNumRows);
+      case LONG:
+        return new LongSortKeys(column, isAsc, maxNumRows);
+      case FLOAT:
+        return new FloatSortKeys(column, isAsc, maxNumRows);
+      case DOUBLE:
+        return new DoubleSortKeys(column, isAsc, maxNumRows);
+      case STRING:
+        return new StringSortKeys(column, isAsc, maxNumRows);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Select the top K documents from a {@link ProjectionBlock}.
+   *
+   * @param projectionBlock projection block.
+   * @return number of documents scanned.
+   */
+  public int addProjectionBlock(@Nonnull ProjectionBlock projectionBlock) {
+    int numDocs = projectionBlock.getNumDocs();
+    if (_maxNumRows == 0) {
+      return numDocs;
+    }
+    for (int i = 0; i < _numSortKeys; i++) {
+      _sortKeys[i].loadBlock(projectionBlock);
+    }
+    int[] docIds = projectionBlock.getDocIdSetBlock().getDocIdSet();
+
+    int index = 0;
+    // Fill the heap
+    while (_numRows < _maxNumRows && index < numDocs) {
+      int slot = _numRows;
+      setSlot(slot, index, docIds[index]);
+      _heap[_numRows++] = slot;
+      siftUp(_numRows - 1);
+      index++;
+    }
+    // Replace the worst document selected if the document is better
+    while (index < numDocs) {
+      int rootSlot = _heap[0];
+      if (compareBlockToSlot(index, rootSlot) > 0) {
+        setSlot(rootSlot, index, docIds[index]);
+        siftDown(0);
+      }
+      index++;
+    }
+    return numDocs;
+  }
+
+  /**
+   * Get the ids of the selected documents, in ascending order.
+   *
+   * @return selected document ids.
+   */
+  @Nonnull
+  public int[] getSortedDocIds() {
+    int[] docIds = Arrays.copyOf(_docIds, _numRows);
+    Arrays.sort(docIds);
+    return docIds;
+  }
+
+  private void setSlot(int slot, int blockIndex, int docId) {
+    _docIds[slot] = docId;
+    for (int i = 0; i < _numSortKeys; i++) {
+      _sortKeys[i].setSlot(slot, blockIndex);
+    }
+  }
+
+  /**
+   * Compare the document in the current block against a selected document, returns positive value if the document in
+   * the block should be ranked before the selected one.
+   */
+  private int compareBlockToSlot(int blockIndex, int slot) {
+    for (int i = 0; i < _numSortKeys; i++) {
+      int result = _sortKeys[i].compareBlockToSlot(blockIndex, slot);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Compare 2 selected documents, returns positive value if the first one should be ranked before the second one.
+   */
+  private int compareSlots(int slot1, int slot2) {
+    for (int i = 0; i < _numSortKeys; i++) {
+      int result = _sortKeys[i].compareSlots(slot1, slot2);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  private void siftUp(int position) {
+    int slot = _heap[position];
+    while (position > 0) {
+      int parentPosition = (position - 1) >>> 1;
+      int parentSlot = _heap[parentPosition];
+      if (compareSlots(slot, parentSlot) >= 0) {
+        break;
+      }
+      _heap[position] = parentSlot;
+      position = parentPosition;
+    }
+    _heap[position] = slot;
+  }
+
+  private void siftDown(int position) {
+    int slot = _heap[position];
+    int half = _numRows >>> 1;
+    while (position < half) {
+      int childPosition = 2 * position + 1;
+      int childSlot = _heap[childPosition];
+      int rightPosition = childPosition + 1;
+      if (rightPosition < _numRows && compareSlots(_heap[rightPosition], childSlot) < 0) {
+        childPosition = rightPosition;
+        childSlot = _heap[rightPosition];
+      }
+      if (compareSlots(slot, childSlot) <= 0) {
+        break;
+      }
+      _heap[position] = childSlot;
+      position = childPosition;
+    }
+    _heap[position] = slot;
+  }
+
+  /**
+   * Sort keys of one sort column for the selected documents.
+   */
+  private static abstract class SortKeys {
+    protected final String _column;
+    // 1 for ascending order, -1 for descending order
+    protected final int _order;
+
+    SortKeys(String column, boolean isAsc) {
+      _column = column;
+      _order = isAsc ? 1 : -1;
+    }
+
+    abstract void loadBlock(ProjectionBlock projectionBlock);
+
+    abstract void setSlot(int slot, int blockIndex);
+
+    abstract int compareBlockToSlot(int blockIndex, int slot);
+
+    abstract int compareSlots(int slot1, int slot2);
+  }
+
+  /**
+   * Sort keys on dictionary ids, only for sorted dictionaries.
+   */
+  private static final class DictIdSortKeys extends SortKeys {
+    private final int[] _keys;
+    private int[] _blockKeys;
+
+    DictIdSortKeys(String column, boolean isAsc, int maxNumRows) {
+      super(column, isAsc);
+      _keys = new int[maxNumRows];
+    }
+
+    @Override
+    void loadBlock(ProjectionBlock projectionBlock) {
+      _blockKeys = projectionBlock.getBlockValueSet(_column).getDictionaryIds();
+    }
+
+    @Override
+    void setSlot(int slot, int blockIndex) {
+      _keys[slot] = _blockKeys[blockIndex];
+    }
+
+    @Override
+    int compareBlockToSlot(int blockIndex, int slot) {
+      return Integer.compare(_keys[slot], _blockKeys[blockIndex]) * _order;
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return Integer.compare(_keys[slot2], _keys[slot1]) * _order;
+    }
+  }
+
+  private static final class IntSortKeys extends SortKeys {
+    private final int[] _keys;
+    private int[] _blockKeys;
+
+    IntSortKeys(String column, boolean isAsc, int maxNumRows) {
+      super(column, isAsc);
+      _keys = new int[maxNumRows];
+    }
+
+    @Override
+    void loadBlock(ProjectionBlock projectionBlock) {
+      _blockKeys = projectionBlock.getBlockValueSet(_column).getIntValuesSV();
+    }
+
+    @Override
+    void setSlot(int slot, int blockIndex) {
+      _keys[slot] = _blockKeys[blockIndex];
+    }
+
+    @Override
+    int compareBlockToSlot(int blockIndex, int slot) {
+      return Integer.compare(_keys[slot], _blockKeys[blockIndex]) * _order;
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return Integer.compare(_keys[slot2], _keys[slot1]) * _order;
+    }
+  }
+
+  private static final class LongSortKeys extends SortKeys {
+    private final long[] _keys;
+    private long[] _blockKeys;
+
+    LongSortKeys(String column, boolean isAsc, int maxNumRows) {
+      super(column, isAsc);
+      _keys = new long[maxNumRows];
+    }
+
+    @Override
+    void loadBlock(ProjectionBlock projectionBlock) {
+      _blockKeys = projectionBlock.getBlockValueSet(_column).getLongValuesSV();
+    }
+
+    @Override
+    void setSlot(int slot, int blockIndex) {
+      _keys[slot] = _blockKeys[blockIndex];
+    }
+
+    @Override
+    int compareBlockToSlot(int blockIndex, int slot) {
+      return Long.compare(_keys[slot], _blockKeys[blockIndex]) * _order;
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return Long.compare(_keys[slot2], _keys[slot1]) * _order;
+    }
+  }
+
+  private static final class FloatSortKeys extends SortKeys {
+    private final float[] _keys;
+    private float[] _blockKeys;
+
+    FloatSortKeys(String column, boolean isAsc, int maxNumRows) {
+      super(column, isAsc);
+      _keys = new float[maxNumRows];
+    }
+
+    @Override
+    void loadBlock(ProjectionBlock projectionBlock) {
+      _blockKeys = projectionBlock.getBlockValueSet(_column).getFloatValuesSV();
+    }
+
+    @Override
+    void setSlot(int slot, int blockIndex) {
+      _keys[slot] = _blockKeys[blockIndex];
+    }
+
+    @Override
+    int compareBlockToSlot(int blockIndex, int slot) {
+      return Float.compare(_keys[slot], _blockKeys[blockIndex]) * _order;
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return Float.compare(_keys[slot2], _keys[slot1]) * _order;
+    }
+  }
+
+  private static final class DoubleSortKeys extends SortKeys {
+    private final double[] _keys;
+    private double[] _blockKeys;
+
+    DoubleSortKeys(String column, boolean isAsc, int maxNumRows) {
+      super(column, isAsc);
+      _keys = new double[maxNumRows];
+    }
+
+    @Override
+    void loadBlock(ProjectionBlock projectionBlock) {
+      _blockKeys = projectionBlock.getBlockValueSet(_column).getDoubleValuesSV();
+    }
+
+    @Override
+    void setSlot(int slot, int blockIndex) {
+      _keys[slot] = _blockKeys[blockIndex];
+    }
+
+    @Override
+    int compareBlockToSlot(int blockIndex, int slot) {
+      return Double.compare(_keys[slot], _blockKeys[blockIndex]) * _order;
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return Double.compare(_keys[slot2], _keys[slot1]) * _order;
+    }
+  }
+
+  private static final class StringSortKeys extends SortKeys {
+    private final String[] _keys;
+    private String[] _blockKeys;
+
+    StringSortKeys(String column, boolean isAsc, int maxNumRows) {
+      super(column, isAsc);
+      _keys = new String[maxNumRows];
+    }
+
+    @Override
+    void loadBlock(ProjectionBlock projectionBlock) {
+      _blockKeys = projectionBlock.getBlockValueSet(_column).getStringValuesSV();
+    }
+
+    @Override
+    void setSlot(int slot, int blockIndex) {
+      _keys[slot] = _blockKeys[blockIndex];
+    }
+
+    @Override
+    int compareBlockToSlot(int blockIndex, int slot) {
+      return Integer.signum(_keys[slot].compareTo(_blockKeys[blockIndex])) * _order;
+    }
+
+    @Override
+    int compareSlots(int slot1, int slot2) {
+      return Integer.signum(_keys[slot2].compareTo(_keys[slot1])) * _order;
+    }
+  }
+}
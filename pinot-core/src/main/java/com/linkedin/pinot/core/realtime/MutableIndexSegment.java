@@ -29,6 +29,15 @@ public interface MutableIndexSegment extends IndexSegment {
    */
   public boolean index(GenericRow row);
 
+  /**
+   * Index a batch of rows, same as calling {@link #index(GenericRow)} on each of them but more efficient.
+   *
+   * @param rows array of rows
+   * @param numRows number of rows to index from the beginning of the array
+   * @return whether the segment can take more rows
+   */
+  public boolean index(GenericRow[] rows, int numRows);
+
   /**
    * gives the raw count of the total number of streaming events
    * that are indexed
@@ -21,12 +21,15 @@ import com.linkedin.pinot.common.data.TimeFieldSpec;
 import com.linkedin.pinot.common.data.TimeGranularitySpec;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.realtime.converter.stats.RealtimeSegmentSegmentCreationDataSource;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 
@@ -40,11 +43,14 @@ public class RealtimeSegmentConverter {
   private String sortedColumn;
   private List<String> invertedIndexColumns;
   private List<String> noDictionaryColumns;
+  private Map<String, ChunkCompressorFactory.CompressionType> noDictionaryCompressionTypes;
   private StarTreeIndexSpec starTreeIndexSpec;
 
   public RealtimeSegmentConverter(RealtimeSegmentImpl realtimeSegment, String outputPath, Schema schema,
       String tableName, String segmentName, String sortedColumn, List<String> invertedIndexColumns,
-      List<String> noDictionaryColumns, StarTreeIndexSpec starTreeIndexSpec) {
+      List<String> noDictionaryColumns,
+      Map<String, ChunkCompressorFactory.CompressionType> noDictionaryCompressionTypes,
+      StarTreeIndexSpec starTreeIndexSpec) {
     if (new File(outputPath).exists()) {
       throw new IllegalAccessError("path already exists:" + outputPath);
     }
@@ -74,13 +80,15 @@ public class RealtimeSegmentConverter {
     this.tableName = tableName;
     this.segmentName = segmentName;
     this.noDictionaryColumns = noDictionaryColumns;
+    this.noDictionaryCompressionTypes = noDictionaryCompressionTypes;
     this.starTreeIndexSpec = starTreeIndexSpec;
   }
 
   public RealtimeSegmentConverter(RealtimeSegmentImpl realtimeSegment, String outputPath, Schema schema,
       String tableName, String segmentName, String sortedColumn) {
     this(realtimeSegment, outputPath, schema, tableName, segmentName, sortedColumn, new ArrayList<String>(),
-        new ArrayList<String>(), null/*StarTreeIndexSpec*/);
+        new ArrayList<String>(), new HashMap<String, ChunkCompressorFactory.CompressionType>(),
+        null/*StarTreeIndexSpec*/);
   }
 
   public void build(@Nullable SegmentVersion segmentVersion) throws Exception {
@@ -100,6 +108,9 @@ public class RealtimeSegmentConverter {
     if (noDictionaryColumns != null) {
       genConfig.setRawIndexCreationColumns(noDictionaryColumns);
     }
+    if (noDictionaryCompressionTypes != null) {
+      genConfig.setRawIndexCompressionType(noDictionaryCompressionTypes);
+    }
 
     // Presence of the spec enables star tree generation.
     if (starTreeIndexSpec != null) {
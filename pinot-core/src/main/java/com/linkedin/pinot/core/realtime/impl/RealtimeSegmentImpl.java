@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.realtime.impl;
 
+import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.Schema;
@@ -179,41 +180,7 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
   @Override
   public boolean index(GenericRow row) {
     // Validate row prior to indexing it
-    StringBuilder invalidColumns = null;
-
-    for (String dimension : dataSchema.getDimensionNames()) {
-      Object value = row.getValue(dimension);
-      if (value == null) {
-        if (invalidColumns == null) {
-          invalidColumns = new StringBuilder(dimension);
-        } else {
-          invalidColumns.append(", ").append(dimension);
-        }
-      }
-    }
-
-    for (String metric : dataSchema.getMetricNames()) {
-      Object value = row.getValue(metric);
-      if (value == null) {
-        if (invalidColumns == null) {
-          invalidColumns = new StringBuilder(metric);
-        } else {
-          invalidColumns.append(", ").append(metric);
-        }
-      }
-    }
-
-    {
-      Object value = row.getValue(outgoingTimeColumnName);
-      if (value == null) {
-        if (invalidColumns == null) {
-          invalidColumns = new StringBuilder(outgoingTimeColumnName);
-        } else {
-          invalidColumns.append(", ").append(outgoingTimeColumnName);
-        }
-      }
-    }
-
+    StringBuilder invalidColumns = getInvalidColumns(row);
     if (invalidColumns != null) {
       LOGGER.warn("Dropping invalid row {} with null values for column(s) {}", row, invalidColumns);
       serverMetrics.addMeteredTableValue(tableAndStreamName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1L);
@@ -327,6 +294,190 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     return numDocsIndexed < capacity;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>The rows are indexed column by column, so that the per column lookups are done once per batch, and the
+   * dictionary and inverted index of each column are updated for consecutive documents. The documents become
+   * searchable after all the columns are indexed.
+   */
+  @Override
+  public boolean index(GenericRow[] rows, int numRows) {
+    // Drop the invalid rows
+    GenericRow[] validRows = new GenericRow[numRows];
+    int numValidRows = 0;
+    for (int i = 0; i < numRows; i++) {
+      GenericRow row = rows[i];
+      StringBuilder invalidColumns = getInvalidColumns(row);
+      if (invalidColumns == null) {
+        validRows[numValidRows++] = row;
+      } else {
+        LOGGER.warn("Dropping invalid row {} with null values for column(s) {}", row, invalidColumns);
+        serverMetrics.addMeteredTableValue(tableAndStreamName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1L);
+      }
+    }
+    if (numValidRows == 0) {
+      return numDocsIndexed < capacity;
+    }
+    Preconditions.checkState(numDocsIndexed + numValidRows <= capacity,
+        "Cannot index %s rows into segment: %s with %s rows indexed (capacity %s)", numValidRows, segmentName,
+        numDocsIndexed, capacity);
+
+    int startDocId = docIdGenerator.getAndAdd(numValidRows) + 1;
+    for (String dimension : dataSchema.getDimensionNames()) {
+      indexColumn(dimension, validRows, numValidRows, startDocId);
+    }
+    for (String metric : dataSchema.getMetricNames()) {
+      indexColumn(metric, validRows, numValidRows, startDocId);
+    }
+    indexColumn(outgoingTimeColumnName, validRows, numValidRows, startDocId);
+
+    // Update the min max time values
+    for (int i = 0; i < numValidRows; i++) {
+      Object timeValueObj = validRows[i].getValue(outgoingTimeColumnName);
+      long timeValue;
+      if (timeValueObj instanceof Number) {
+        timeValue = ((Number) timeValueObj).longValue();
+      } else {
+        timeValue = Long.valueOf(timeValueObj.toString());
+      }
+      minTimeVal = Math.min(minTimeVal, timeValue);
+      maxTimeVal = Math.max(maxTimeVal, timeValue);
+    }
+
+    docIdSearchableOffset = startDocId + numValidRows - 1;
+    numDocsIndexed += numValidRows;
+    numSuccessIndexed += numValidRows;
+
+    return numDocsIndexed < capacity;
+  }
+
+  /**
+   * Helper method to index one column of a batch of valid rows into dictionary, forward index and inverted index.
+   */
+  private void indexColumn(String column, GenericRow[] rows, int numRows, int startDocId) {
+    FieldSpec fieldSpec = dataSchema.getFieldSpecFor(column);
+    DataFileReader readerWriter = columnIndexReaderWriterMap.get(column);
+
+    if (consumingNoDictionaryColumns.contains(column)) {
+      FixedByteSingleColumnSingleValueReaderWriter singleValueReaderWriter =
+          (FixedByteSingleColumnSingleValueReaderWriter) readerWriter;
+      switch (fieldSpec.getDataType()) {
+        case INT:
+          for (int i = 0; i < numRows; i++) {
+            singleValueReaderWriter.setInt(startDocId + i, (int) rows[i].getValue(column));
+          }
+          break;
+        case LONG:
+          for (int i = 0; i < numRows; i++) {
+            singleValueReaderWriter.setLong(startDocId + i, (long) rows[i].getValue(column));
+          }
+          break;
+        case FLOAT:
+          for (int i = 0; i < numRows; i++) {
+            singleValueReaderWriter.setFloat(startDocId + i, (float) rows[i].getValue(column));
+          }
+          break;
+        case DOUBLE:
+          for (int i = 0; i < numRows; i++) {
+            singleValueReaderWriter.setDouble(startDocId + i, (double) rows[i].getValue(column));
+          }
+          break;
+      }
+      return;
+    }
+
+    MutableDictionary dictionary = dictionaryMap.get(column);
+    RealtimeInvertedIndexReader invertedIndex = invertedIndexMap.get(column);
+    if (fieldSpec.isSingleValueField()) {
+      FixedByteSingleColumnSingleValueReaderWriter singleValueReaderWriter =
+          (FixedByteSingleColumnSingleValueReaderWriter) readerWriter;
+      // Skip the dictionary lookups for repeated values (e.g. time column)
+      Object previousValue = null;
+      int previousDictId = 0;
+      for (int i = 0; i < numRows; i++) {
+        int docId = startDocId + i;
+        Object value = rows[i].getValue(column);
+        int dictId;
+        if (value.equals(previousValue)) {
+          dictId = previousDictId;
+        } else {
+          dictionary.index(value);
+          dictId = dictionary.indexOf(value);
+          previousValue = value;
+          previousDictId = dictId;
+        }
+        singleValueReaderWriter.setInt(docId, dictId);
+        if (invertedIndex != null) {
+          invertedIndex.add(dictId, docId);
+        }
+      }
+    } else {
+      FixedByteSingleColumnMultiValueReaderWriter multiValueReaderWriter =
+          (FixedByteSingleColumnMultiValueReaderWriter) readerWriter;
+      int maxNumberOfMultiValues = maxNumberOfMultivaluesMap.get(column);
+      for (int i = 0; i < numRows; i++) {
+        int docId = startDocId + i;
+        Object[] values = (Object[]) rows[i].getValue(column);
+        dictionary.index(values);
+        int numValues = values.length;
+        maxNumberOfMultiValues = Math.max(maxNumberOfMultiValues, numValues);
+        int[] dictIds = new int[numValues];
+        for (int j = 0; j < numValues; j++) {
+          dictIds[j] = dictionary.indexOf(values[j]);
+        }
+        multiValueReaderWriter.setIntArray(docId, dictIds);
+        if (invertedIndex != null) {
+          for (int dictId : dictIds) {
+            invertedIndex.add(dictId, docId);
+          }
+        }
+      }
+      maxNumberOfMultivaluesMap.put(column, maxNumberOfMultiValues);
+    }
+  }
+
+  /**
+   * Helper method to get the columns with null value in the row, or <code>null</code> if the row is valid.
+   */
+  private StringBuilder getInvalidColumns(GenericRow row) {
+    StringBuilder invalidColumns = null;
+
+    for (String dimension : dataSchema.getDimensionNames()) {
+      Object value = row.getValue(dimension);
+      if (value == null) {
+        if (invalidColumns == null) {
+          invalidColumns = new StringBuilder(dimension);
+        } else {
+          invalidColumns.append(", ").append(dimension);
+        }
+      }
+    }
+
+    for (String metric : dataSchema.getMetricNames()) {
+      Object value = row.getValue(metric);
+      if (value == null) {
+        if (invalidColumns == null) {
+          invalidColumns = new StringBuilder(metric);
+        } else {
+          invalidColumns.append(", ").append(metric);
+        }
+      }
+    }
+
+    {
+      Object value = row.getValue(outgoingTimeColumnName);
+      if (value == null) {
+        if (invalidColumns == null) {
+          invalidColumns = new StringBuilder(outgoingTimeColumnName);
+        } else {
+          invalidColumns.append(", ").append(outgoingTimeColumnName);
+        }
+      }
+    }
+
+    return invalidColumns;
+  }
+
   private void storeIncomingColumnValue(GenericRow row, Map<String, Object> rawRowToDicIdMap, int docId, String columnName) {
     FixedByteSingleColumnSingleValueReaderWriter readerWriter =
         (FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(columnName);
@@ -16,13 +16,18 @@
 
 package com.linkedin.pinot.core.segment.creator;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.extractors.FieldExtractor;
 import com.linkedin.pinot.core.data.extractors.FieldExtractorFactory;
 import com.linkedin.pinot.core.data.extractors.PlainFieldExtractor;
 import com.linkedin.pinot.core.data.readers.RecordReader;
+import com.linkedin.pinot.core.segment.creator.impl.PipelinedRowBatchReader;
 import com.linkedin.pinot.core.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +40,16 @@ public class RecordReaderSegmentCreationDataSource implements SegmentCreationDat
   private static final Logger LOGGER = LoggerFactory.getLogger(RecordReaderSegmentCreationDataSource.class);
 
   public RecordReaderSegmentCreationDataSource(RecordReader recordReader) {
+    this(recordReader, 1);
+  }
+
+  /**
+   * @param recordReader Record reader to read the records from
+   * @param numThreads Number of threads to collect the stats of the columns, 1 to read and collect on the caller thread
+   */
+  public RecordReaderSegmentCreationDataSource(RecordReader recordReader, int numThreads) {
     _recordReader = recordReader;
+    _numThreads = numThreads;
 
     try {
       recordReader.init();
@@ -47,15 +61,22 @@ public class RecordReaderSegmentCreationDataSource implements SegmentCreationDat
   }
 
   private RecordReader _recordReader;
+  private final int _numThreads;
 
   @Override
   public SegmentPreIndexStatsCollector gatherStats(StatsCollectorConfig statsCollectorConfig) {
     try {
       PlainFieldExtractor fieldExtractor = FieldExtractorFactory.getPlainFieldExtractor(statsCollectorConfig.getSchema());
 
-      SegmentPreIndexStatsCollector collector = new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig);
+      SegmentPreIndexStatsCollectorImpl collector = new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig);
       collector.init();
 
+      if (_numThreads > 1) {
+        gatherStatsInParallel(collector, fieldExtractor);
+        collector.build();
+        return collector;
+      }
+
       // Gather the stats
       GenericRow readRow = new GenericRow();
       GenericRow transformedRow = new GenericRow();
@@ -73,6 +94,27 @@ public class RecordReaderSegmentCreationDataSource implements SegmentCreationDat
     }
   }
 
+  /**
+   * Decodes the records in batches on a separate thread, and collects the stats of the columns of each batch in
+   * parallel.
+   */
+  private void gatherStatsInParallel(SegmentPreIndexStatsCollectorImpl collector, FieldExtractor fieldExtractor)
+      throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(_numThreads,
+        new ThreadFactoryBuilder().setNameFormat("stats-collector-%d").setDaemon(true).build());
+    PipelinedRowBatchReader batchReader = new PipelinedRowBatchReader(_recordReader, fieldExtractor);
+    try {
+      batchReader.start();
+      List<GenericRow> batch;
+      while ((batch = batchReader.nextBatch()) != null) {
+        collector.collectRows(batch, executorService);
+      }
+    } finally {
+      batchReader.close();
+      executorService.shutdownNow();
+    }
+  }
+
   private GenericRow readNextRowSanitized(GenericRow readRow, GenericRow transformedRow, FieldExtractor extractor) {
     readRow = GenericRow.createOrReuseRow(readRow);
     readRow = _recordReader.next(readRow);
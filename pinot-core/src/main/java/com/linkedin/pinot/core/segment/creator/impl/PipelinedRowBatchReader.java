@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.extractors.FieldExtractor;
+import com.linkedin.pinot.core.data.readers.RecordReader;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>PipelinedRowBatchReader</code> class reads and transforms the records of a {@link RecordReader} in batches
+ * on a background thread, so that decoding the records overlaps with processing the previous batches.
+ * <p>The reader thread is the only one accessing the record reader and the field extractor, and each row is a new
+ * {@link GenericRow}, so the rows of a batch can be shared across threads once returned.
+ */
+public class PipelinedRowBatchReader implements Closeable {
+  public static final int DEFAULT_BATCH_SIZE = 10000;
+  public static final int DEFAULT_NUM_BUFFERED_BATCHES = 2;
+
+  // Marks the end of the records, compared by reference
+  private static final List<GenericRow> END_OF_RECORDS = new ArrayList<>(0);
+
+  private final RecordReader _recordReader;
+  private final FieldExtractor _fieldExtractor;
+  private final int _batchSize;
+  private final BlockingQueue<List<GenericRow>> _batchQueue;
+  private final Thread _readerThread;
+
+  private volatile Throwable _readerThrowable;
+  private boolean _endOfRecords = false;
+
+  public PipelinedRowBatchReader(RecordReader recordReader, FieldExtractor fieldExtractor) {
+    this(recordReader, fieldExtractor, DEFAULT_BATCH_SIZE, DEFAULT_NUM_BUFFERED_BATCHES);
+  }
+
+  public PipelinedRowBatchReader(RecordReader recordReader, FieldExtractor fieldExtractor, int batchSize,
+      int numBufferedBatches) {
+    _recordReader = recordReader;
+    _fieldExtractor = fieldExtractor;
+    _batchSize = batchSize;
+    _batchQueue = new ArrayBlockingQueue<>(numBufferedBatches);
+    _readerThread = new ThreadFactoryBuilder().setNameFormat("record-reader-%d").setDaemon(true).build()
+        .newThread(new Runnable() {
+          @Override
+          public void run() {
+            readRecords();
+          }
+        });
+  }
+
+  /**
+   * Starts reading the records on the background thread.
+   */
+  public void start() {
+    _readerThread.start();
+  }
+
+  /**
+   * Returns the next batch of transformed rows, or <code>null</code> if all the records have been read. Blocks until
+   * the next batch is available.
+   */
+  @Nullable
+  public List<GenericRow> nextBatch()
+      throws InterruptedException {
+    if (_endOfRecords) {
+      return null;
+    }
+    List<GenericRow> batch = _batchQueue.take();
+    if (batch == END_OF_RECORDS) {
+      _endOfRecords = true;
+      if (_readerThrowable != null) {
+        throw new RuntimeException("Caught exception while reading records", _readerThrowable);
+      }
+      return null;
+    }
+    return batch;
+  }
+
+  private void readRecords() {
+    try {
+      while (_recordReader.hasNext()) {
+        List<GenericRow> batch = new ArrayList<>(_batchSize);
+        while (batch.size() < _batchSize && _recordReader.hasNext()) {
+          GenericRow readRow = _recordReader.next(new GenericRow());
+          batch.add(_fieldExtractor.transform(readRow, new GenericRow()));
+        }
+        _batchQueue.put(batch);
+      }
+    } catch (InterruptedException e) {
+      // Closed before reading all the records
+      return;
+    } catch (Throwable t) {
+      _readerThrowable = t;
+    }
+    try {
+      _batchQueue.put(END_OF_RECORDS);
+    } catch (InterruptedException e) {
+      // Closed before consuming all the batches
+    }
+  }
+
+  /**
+   * Stops the reader thread. Does not close the record reader.
+   */
+  @Override
+  public void close() {
+    _readerThread.interrupt();
+    try {
+      _readerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -18,12 +18,14 @@ package com.linkedin.pinot.core.segment.creator.impl;
 import com.linkedin.pinot.common.data.DateTimeFieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.StarTreeIndexSpec;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.partition.PartitionFunction;
 import com.linkedin.pinot.common.config.ColumnPartitionConfig;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
 import com.linkedin.pinot.core.segment.creator.ForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.InvertedIndexCreator;
@@ -39,12 +41,17 @@ import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueUnsortedForwa
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueVarByteRawIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.inv.OffHeapBitmapInvertedIndexCreator;
 import com.linkedin.pinot.core.startree.hll.HllConfig;
+import com.linkedin.pinot.core.startree.kll.KllConfig;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -149,7 +156,8 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
         // Raw indexes store actual values, instead of dictionary ids.
         if (buildRawIndex) {
           forwardIndexCreatorMap.put(column,
-              getRawIndexCreatorForColumn(file, column, fieldSpec.getDataType(), totalDocs, maxLength));
+              getRawIndexCreatorForColumn(file, getRawIndexCompressionType(column, fieldSpec.getDataType()), column,
+                  fieldSpec.getDataType(), totalDocs, maxLength));
         } else {
           if (indexCreationInfo.isSorted()) {
             forwardIndexCreatorMap.put(column,
@@ -243,38 +251,71 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   @Override
   public void indexRow(GenericRow row) {
     for (final String column : forwardIndexCreatorMap.keySet()) {
-      try {
-        Object columnValueToIndex = row.getValue(column);
-        if (columnValueToIndex == null) {
-          throw new RuntimeException("Null value for column:" + column);
-        }
+      indexColumn(column, docIdCounter, row.getValue(column));
+    }
+    docIdCounter++;
+  }
 
-        SegmentDictionaryCreator dictionaryCreator = dictionaryCreatorMap.get(column);
-        if (schema.getFieldSpecFor(column).isSingleValueField()) {
-          if (dictionaryCreator != null) {
-            int dictionaryIndex = dictionaryCreator.indexOfSV(columnValueToIndex);
-            ((SingleValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docIdCounter, dictionaryIndex);
-            // TODO : {refactor inverted index addition}
-            if (invertedIndexCreatorMap.containsKey(column)) {
-              invertedIndexCreatorMap.get(column).add(docIdCounter, dictionaryIndex);
-            }
-          } else {
-            ((SingleValueRawIndexCreator) forwardIndexCreatorMap.get(column)).index(docIdCounter, columnValueToIndex);
+  /**
+   * Index a batch of rows, building the dictionary, forward index and inverted index of each column on the given
+   * executor service. The index creators of a column are only accessed by one thread at a time, so the columns can be
+   * indexed concurrently.
+   *
+   * @param rows Rows to index, in doc id order
+   * @param executorService Executor service to index the columns
+   * @throws Exception
+   */
+  public void indexRows(final List<GenericRow> rows, ExecutorService executorService) throws Exception {
+    final int startDocId = docIdCounter;
+    List<Future<Void>> futures = new ArrayList<>(forwardIndexCreatorMap.size());
+    for (final String column : forwardIndexCreatorMap.keySet()) {
+      futures.add(executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          int docId = startDocId;
+          for (GenericRow row : rows) {
+            indexColumn(column, docId++, row.getValue(column));
           }
-        } else {
-          int[] dictionaryIndex = dictionaryCreator.indexOfMV(columnValueToIndex);
-          ((MultiValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docIdCounter, dictionaryIndex);
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    docIdCounter += rows.size();
+  }
+
+  private void indexColumn(String column, int docId, Object columnValueToIndex) {
+    try {
+      if (columnValueToIndex == null) {
+        throw new RuntimeException("Null value for column:" + column);
+      }
 
+      SegmentDictionaryCreator dictionaryCreator = dictionaryCreatorMap.get(column);
+      if (schema.getFieldSpecFor(column).isSingleValueField()) {
+        if (dictionaryCreator != null) {
+          int dictionaryIndex = dictionaryCreator.indexOfSV(columnValueToIndex);
+          ((SingleValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docId, dictionaryIndex);
           // TODO : {refactor inverted index addition}
           if (invertedIndexCreatorMap.containsKey(column)) {
-            invertedIndexCreatorMap.get(column).add(docIdCounter, dictionaryIndex);
+            invertedIndexCreatorMap.get(column).add(docId, dictionaryIndex);
           }
+        } else {
+          ((SingleValueRawIndexCreator) forwardIndexCreatorMap.get(column)).index(docId, columnValueToIndex);
+        }
+      } else {
+        int[] dictionaryIndex = dictionaryCreator.indexOfMV(columnValueToIndex);
+        ((MultiValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docId, dictionaryIndex);
+
+        // TODO : {refactor inverted index addition}
+        if (invertedIndexCreatorMap.containsKey(column)) {
+          invertedIndexCreatorMap.get(column).add(docId, dictionaryIndex);
         }
-      } catch (Exception e) {
-        throw new RuntimeException("Exception while indexing column:"+ column, e);
       }
+    } catch (Exception e) {
+      throw new RuntimeException("Exception while indexing column:"+ column, e);
     }
-    docIdCounter++;
   }
 
   @Override
@@ -341,6 +382,13 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       derivedHllFieldToOriginMap = hllConfig.getDerivedHllFieldToOriginMap();
     }
 
+    KllConfig kllConfig = config.getKllConfig();
+    Map<String, String> derivedKllFieldToOriginMap = null;
+    if (kllConfig != null) {
+      properties.setProperty(SEGMENT_KLL_K, kllConfig.getKllK());
+      derivedKllFieldToOriginMap = kllConfig.getDerivedKllFieldToOriginMap();
+    }
+
     String timeColumn = config.getTimeColumnName();
     if (indexCreationInfoMap.get(timeColumn) != null) {
       properties.setProperty(SEGMENT_START_TIME, indexCreationInfoMap.get(timeColumn).getMin());
@@ -377,14 +425,17 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       //    boolean hasInvertedIndex = invertedIndexCreatorMap.containsKey();
       boolean hasInvertedIndex = true;
 
-      String hllOriginColumn = null;
+      String derivedMetricOriginColumn = null;
       if (derivedHllFieldToOriginMap != null) {
-        hllOriginColumn = derivedHllFieldToOriginMap.get(column);
+        derivedMetricOriginColumn = derivedHllFieldToOriginMap.get(column);
+      }
+      if (derivedMetricOriginColumn == null && derivedKllFieldToOriginMap != null) {
+        derivedMetricOriginColumn = derivedKllFieldToOriginMap.get(column);
       }
 
       addColumnMetadataInfo(properties, column, columnIndexCreationInfo, totalDocs, totalRawDocs, totalAggDocs,
           schema.getFieldSpecFor(column), dictionaryCreatorMap.containsKey(column), dictionaryElementSize,
-          hasInvertedIndex, hllOriginColumn);
+          hasInvertedIndex, derivedMetricOriginColumn);
     }
 
     properties.save();
@@ -393,7 +444,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   public static void addColumnMetadataInfo(PropertiesConfiguration properties, String column,
       ColumnIndexCreationInfo columnIndexCreationInfo, int totalDocs, int totalRawDocs,
       int totalAggDocs, FieldSpec fieldSpec, boolean hasDictionary, int dictionaryElementSize, boolean hasInvertedIndex,
-      String hllOriginColumn) {
+      String derivedMetricOriginColumn) {
     int distinctValueCount = columnIndexCreationInfo.getDistinctValueCount();
     properties.setProperty(getKeyFor(column, CARDINALITY), String.valueOf(distinctValueCount));
     properties.setProperty(getKeyFor(column, TOTAL_DOCS), String.valueOf(totalDocs));
@@ -441,10 +492,12 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
           dateTimeFieldSpec.getDateTimeType().toString());
     }
 
-    // HLL derived fields
-    if (hllOriginColumn != null) {
-      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, ORIGIN_COLUMN), hllOriginColumn);
-      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, DERIVED_METRIC_TYPE), "HLL");
+    // Derived fields (HLL, KLL)
+    if (derivedMetricOriginColumn != null) {
+      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, ORIGIN_COLUMN),
+          derivedMetricOriginColumn);
+      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, DERIVED_METRIC_TYPE),
+          ((MetricFieldSpec) fieldSpec).getDerivedMetricType().name());
     }
 
     Object defaultNullValue = columnIndexCreationInfo.getDefaultNullValue();
@@ -486,7 +539,26 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   }
 
   /**
-   * Helper method to build the raw index creator for the column.
+   * Helper method to get the chunk compression type configured for the raw index of the column.
+   * Falls back to the default compression type if delta compression is configured for a non-integral column.
+   */
+  private ChunkCompressorFactory.CompressionType getRawIndexCompressionType(String column,
+      FieldSpec.DataType dataType) {
+    ChunkCompressorFactory.CompressionType compressionType = config.getRawIndexCompressionType().get(column);
+    if (compressionType == null) {
+      return ChunkCompressorFactory.DEFAULT_COMPRESSION_TYPE;
+    }
+    if (compressionType == ChunkCompressorFactory.CompressionType.DELTA && dataType != FieldSpec.DataType.INT
+        && dataType != FieldSpec.DataType.LONG) {
+      LOGGER.warn("Delta compression is not supported for column: {} of data type: {}, using: {} instead", column,
+          dataType, ChunkCompressorFactory.DEFAULT_COMPRESSION_TYPE);
+      return ChunkCompressorFactory.DEFAULT_COMPRESSION_TYPE;
+    }
+    return compressionType;
+  }
+
+  /**
+   * Helper method to build the raw index creator for the column, using the default compression type.
    * Assumes that column to be indexed is single valued.
    *
    * @param file Output index file
@@ -499,31 +571,52 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   public static SingleValueRawIndexCreator getRawIndexCreatorForColumn(File file, String column,
       FieldSpec.DataType dataType, int totalDocs, int lengthOfLongestEntry)
       throws IOException {
+    return getRawIndexCreatorForColumn(file, ChunkCompressorFactory.DEFAULT_COMPRESSION_TYPE, column, dataType,
+        totalDocs, lengthOfLongestEntry);
+  }
+
+  /**
+   * Helper method to build the raw index creator for the column.
+   * Assumes that column to be indexed is single valued.
+   *
+   * @param file Output index file
+   * @param compressionType Type of compression for the chunks of the raw index
+   * @param column Column name
+   * @param totalDocs Total number of documents to index
+   * @param lengthOfLongestEntry Length of longest entry
+   * @return
+   * @throws IOException
+   */
+  public static SingleValueRawIndexCreator getRawIndexCreatorForColumn(File file,
+      ChunkCompressorFactory.CompressionType compressionType, String column, FieldSpec.DataType dataType,
+      int totalDocs, int lengthOfLongestEntry)
+      throws IOException {
 
     SingleValueRawIndexCreator indexCreator;
     switch(dataType) {
       case INT:
-        indexCreator =
-            new SingleValueFixedByteRawIndexCreator(file, column, totalDocs, V1Constants.Numbers.INTEGER_SIZE);
+        indexCreator = new SingleValueFixedByteRawIndexCreator(file, compressionType, column, totalDocs,
+            V1Constants.Numbers.INTEGER_SIZE);
         break;
 
       case LONG:
-        indexCreator =
-            new SingleValueFixedByteRawIndexCreator(file, column, totalDocs, V1Constants.Numbers.LONG_SIZE);
+        indexCreator = new SingleValueFixedByteRawIndexCreator(file, compressionType, column, totalDocs,
+            V1Constants.Numbers.LONG_SIZE);
         break;
 
       case FLOAT:
-        indexCreator =
-            new SingleValueFixedByteRawIndexCreator(file, column, totalDocs, V1Constants.Numbers.FLOAT_SIZE);
+        indexCreator = new SingleValueFixedByteRawIndexCreator(file, compressionType, column, totalDocs,
+            V1Constants.Numbers.FLOAT_SIZE);
         break;
 
       case DOUBLE:
-        indexCreator =
-            new SingleValueFixedByteRawIndexCreator(file, column, totalDocs, V1Constants.Numbers.DOUBLE_SIZE);
+        indexCreator = new SingleValueFixedByteRawIndexCreator(file, compressionType, column, totalDocs,
+            V1Constants.Numbers.DOUBLE_SIZE);
         break;
 
       case STRING:
-        indexCreator = new SingleValueVarByteRawIndexCreator(file, column, totalDocs, lengthOfLongestEntry);
+        indexCreator =
+            new SingleValueVarByteRawIndexCreator(file, compressionType, column, totalDocs, lengthOfLongestEntry);
         break;
 
       default:
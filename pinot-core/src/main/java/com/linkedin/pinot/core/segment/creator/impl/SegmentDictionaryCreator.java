@@ -88,12 +88,12 @@ public class SegmentDictionaryCreator implements Closeable {
       }
     }
 
-    // make hll column log info different than other columns, since range makes no sense for hll column
-    if (spec instanceof MetricFieldSpec &&
-        ((MetricFieldSpec)spec).getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.HLL) {
+    // make derived column (hll, kll) log info different than other columns, since range makes no sense for them
+    if (spec instanceof MetricFieldSpec && ((MetricFieldSpec) spec).isDerivedMetric()) {
       LOGGER.info(
-          "Creating segment for column {}, hasNulls = {}, cardinality = {}, dataType = {}, single value field = {}, is HLL derived column",
-          spec.getName(), hasNulls, rowCount, spec.getDataType(), spec.isSingleValueField());
+          "Creating segment for column {}, hasNulls = {}, cardinality = {}, dataType = {}, single value field = {}, is {} derived column",
+          spec.getName(), hasNulls, rowCount, spec.getDataType(), spec.isSingleValueField(),
+          ((MetricFieldSpec) spec).getDerivedMetricType());
     } else {
       LOGGER.info(
           "Creating segment for column {}, hasNulls = {}, cardinality = {}, dataType = {}, single value field = {}, range = {} to {}",
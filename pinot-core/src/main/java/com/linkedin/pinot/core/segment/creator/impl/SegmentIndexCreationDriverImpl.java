@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.commons.io.FileUtils;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -34,6 +36,7 @@ import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.collect.HashBiMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
@@ -51,7 +54,6 @@ import com.linkedin.pinot.core.segment.creator.ForwardIndexType;
 import com.linkedin.pinot.core.segment.creator.InvertedIndexType;
 import com.linkedin.pinot.core.segment.creator.RecordReaderSegmentCreationDataSource;
 import com.linkedin.pinot.core.segment.creator.SegmentCreationDataSource;
-import com.linkedin.pinot.core.segment.creator.SegmentCreator;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationInfo;
 import com.linkedin.pinot.core.segment.creator.SegmentPreIndexStatsContainer;
@@ -59,15 +61,19 @@ import com.linkedin.pinot.core.segment.creator.StatsCollectorConfig;
 import com.linkedin.pinot.core.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
 import com.linkedin.pinot.core.segment.index.converter.SegmentFormatConverter;
 import com.linkedin.pinot.core.segment.index.converter.SegmentFormatConverterFactory;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import com.linkedin.pinot.core.startree.OffHeapStarTreeBuilder;
 import com.linkedin.pinot.core.startree.StarTree;
 import com.linkedin.pinot.core.startree.StarTreeBuilder;
 import com.linkedin.pinot.core.startree.StarTreeBuilderConfig;
+import com.linkedin.pinot.core.startree.StarTreeDimensionDictionary;
 import com.linkedin.pinot.core.startree.StarTreeIndexNode;
 import com.linkedin.pinot.core.startree.StarTreeIndexNodeInterf;
 import com.linkedin.pinot.core.startree.StarTreeSerDe;
 import com.linkedin.pinot.core.startree.hll.HllConfig;
 import com.linkedin.pinot.core.startree.hll.HllUtil;
+import com.linkedin.pinot.core.startree.kll.KllConfig;
+import com.linkedin.pinot.core.startree.kll.KllUtil;
 import com.linkedin.pinot.core.util.CrcUtils;
 
 
@@ -83,7 +89,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   private RecordReader recordReader;
   private SegmentPreIndexStatsContainer segmentStats;
   private Map<String, ColumnIndexCreationInfo> indexCreationInfoMap;
-  private SegmentCreator indexCreator;
+  private SegmentColumnarIndexCreator indexCreator;
   private SegmentIndexCreationInfo segmentIndexCreationInfo;
   private Schema dataSchema;
   private PlainFieldExtractor extractor;
@@ -100,12 +106,15 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   // will create the HLL index for the given columns.
   // This will be false if HLL column is provided to us
   private boolean createHllIndex = false;
+  // flag indicates if this segment generator code will create the KLL quantile sketch index for the given columns.
+  private boolean createKllIndex = false;
 
   private File starTreeTempDir;
 
   @Override
   public void init(SegmentGeneratorConfig config) throws Exception {
-    init(config, new RecordReaderSegmentCreationDataSource(RecordReaderFactory.get(config)));
+    init(config,
+        new RecordReaderSegmentCreationDataSource(RecordReaderFactory.get(config), config.getNumIndexingThreads()));
   }
 
   public void init(SegmentGeneratorConfig config, SegmentCreationDataSource dataSource) throws Exception {
@@ -128,6 +137,13 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       // segment seal() will write the log2m value to the metadata
     }
 
+    if (config.getKllConfig() != null && config.getKllConfig().isEnableKllIndex()) {
+      if (!createStarTree) {
+        throw new IllegalArgumentException("Derived KLL fields generation will not work if StarTree is not enabled.");
+      }
+      createKllIndex = true;
+    }
+
     addDerivedFieldsInSchema();
 
     extractor = FieldExtractorFactory.getPlainFieldExtractor(dataSchema);
@@ -161,7 +177,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   }
 
   public void init(SegmentGeneratorConfig config, RecordReader reader) throws Exception {
-    init(config, new RecordReaderSegmentCreationDataSource(reader));
+    init(config, new RecordReaderSegmentCreationDataSource(reader, config.getNumIndexingThreads()));
   }
 
   private void addDerivedFieldsInSchema() {
@@ -179,6 +195,20 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
         }
       }
     }
+    if (createKllIndex) {
+      Collection<String> columnNames = dataSchema.getColumnNames();
+      KllConfig kllConfig = config.getKllConfig();
+      for (String derivedFieldName : kllConfig.getDerivedKllFieldToOriginMap().keySet()) {
+        if (columnNames.contains(derivedFieldName)) {
+          throw new IllegalArgumentException(
+              "Cannot add derived field: " + derivedFieldName + " since it already exists in schema.");
+        } else {
+          dataSchema.addField(
+              new MetricFieldSpec(derivedFieldName, FieldSpec.DataType.STRING, kllConfig.getKllFieldSize(),
+                  MetricFieldSpec.DerivedMetricType.KLL));
+        }
+      }
+    }
   }
 
   private void populateDefaultDerivedColumnValues(GenericRow row) throws IOException {
@@ -192,12 +222,31 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
             HllUtil.singleValueHllAsString(hllConfig.getHllLog2m(), row.getValue(originFieldName)));
       }
     }
+    //add default kll value in each row
+    if (createKllIndex) {
+      KllConfig kllConfig = config.getKllConfig();
+      int kllFieldSize = kllConfig.getKllFieldSize();
+      for (Entry<String, String> entry : kllConfig.getDerivedKllFieldToOriginMap().entrySet()) {
+        String derivedFieldName = entry.getKey();
+        String originFieldName = entry.getValue();
+        row.putField(derivedFieldName,
+            KllUtil.singleValueKllAsString(kllConfig.getKllK(), kllFieldSize, row.getValue(originFieldName)));
+      }
+    }
   }
 
   @Override
   public void build() throws Exception {
     if (createStarTree) {
-      buildStarTree();
+      // Charge the memory mapped by the star-tree builder to the table and segment being created
+      String tableName = config.getTableName();
+      String segmentName = config.getSegmentName();
+      try (PinotDataBufferMemoryManager.Scope ignored = PinotDataBufferMemoryManager.getInstance()
+          .reserve(tableName != null ? tableName : PinotDataBufferMemoryManager.UNATTRIBUTED,
+              segmentName != null ? segmentName : starTreeTempDir.getName(),
+              PinotDataBufferMemoryManager.AllocationType.MAPPED, 0L)) {
+        buildStarTree();
+      }
     } else {
       buildRaw();
     }
@@ -240,6 +289,8 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
     boolean enableOffHeapFormat = starTreeIndexSpec.isEnableOffHeapFormat();
     starTreeBuilderConfig.setEnableOffHealpFormat(enableOffHeapFormat);
+    starTreeBuilderConfig.setSortBufferSizeInBytes(starTreeIndexSpec.getSortBufferSizeInBytes());
+    starTreeBuilderConfig.setNumSortThreads(starTreeIndexSpec.getNumSortThreads());
 
     //initialize star tree builder
     StarTreeBuilder starTreeBuilder = new OffHeapStarTreeBuilder();
@@ -315,7 +366,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   private void serializeTree(StarTreeBuilder starTreeBuilder, boolean enableOffHeapFormat)
       throws Exception {
     //star tree was built using its own dictionary, we need to re-map dimension value id
-    Map<String, HashBiMap<Object, Integer>> dictionaryMap = starTreeBuilder.getDictionaryMap();
+    Map<String, StarTreeDimensionDictionary> dictionaryMap = starTreeBuilder.getDictionaryMap();
     StarTree tree = starTreeBuilder.getTree();
     HashBiMap<String, Integer> dimensionNameToIndexMap = starTreeBuilder.getDimensionNameToIndexMap();
     StarTreeIndexNode node = (StarTreeIndexNode) tree.getRoot();
@@ -336,7 +387,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
    * @param dictionaryMap
    * @param dimensionNameToIndexMap
    */
-  private void updateTree(StarTreeIndexNode node, Map<String, HashBiMap<Object, Integer>> dictionaryMap,
+  private void updateTree(StarTreeIndexNode node, Map<String, StarTreeDimensionDictionary> dictionaryMap,
       HashBiMap<String, Integer> dimensionNameToIndexMap) {
     //current node needs to update only if its not star
     if (node.getDimensionName() != StarTreeIndexNodeInterf.ALL) {
@@ -345,7 +396,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       if (dimensionValue != StarTreeIndexNodeInterf.ALL) {
         Object sortedValuesForDim = indexCreationInfoMap.get(dimName).getSortedUniqueElementsArray();
         int indexForDimValue =
-            searchValueInArray(sortedValuesForDim, dictionaryMap.get(dimName).inverse().get(dimensionValue));
+            searchValueInArray(sortedValuesForDim, dictionaryMap.get(dimName).getValue(dimensionValue));
         node.setDimensionValue(indexForDimValue);
       }
     }
@@ -362,7 +413,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
         int childMappedDimValue = StarTreeIndexNodeInterf.ALL;
         if (childDimValue != StarTreeIndexNodeInterf.ALL) {
           childMappedDimValue =
-              searchValueInArray(sortedValuesForDim, dictionaryMap.get(childDimName).inverse().get(childDimValue));
+              searchValueInArray(sortedValuesForDim, dictionaryMap.get(childDimName).getValue(childDimValue));
         }
         newChildren.put(childMappedDimValue, child);
         updateTree(child, dictionaryMap, dimensionNameToIndexMap);
@@ -385,16 +436,21 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     // Build the index
     recordReader.rewind();
     LOGGER.info("Start building IndexCreator!");
-    GenericRow readRow = new GenericRow();
-    GenericRow transformedRow = new GenericRow();
-    while (recordReader.hasNext()) {
-      long start = System.currentTimeMillis();
-      transformedRow = readNextRowSanitized(readRow, transformedRow);
-      long stop = System.currentTimeMillis();
-      indexCreator.indexRow(transformedRow);
-      long stop1 = System.currentTimeMillis();
-      totalRecordReadTime += (stop - start);
-      totalIndexTime += (stop1 - stop);
+    int numIndexingThreads = config.getNumIndexingThreads();
+    if (numIndexingThreads > 1) {
+      indexRowsInParallel(numIndexingThreads);
+    } else {
+      GenericRow readRow = new GenericRow();
+      GenericRow transformedRow = new GenericRow();
+      while (recordReader.hasNext()) {
+        long start = System.currentTimeMillis();
+        transformedRow = readNextRowSanitized(readRow, transformedRow);
+        long stop = System.currentTimeMillis();
+        indexCreator.indexRow(transformedRow);
+        long stop1 = System.currentTimeMillis();
+        totalRecordReadTime += (stop - start);
+        totalIndexTime += (stop1 - stop);
+      }
     }
     recordReader.close();
     LOGGER.info("Finished records indexing in IndexCreator!");
@@ -422,6 +478,34 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     handlePostCreation();
   }
 
+  /**
+   * Decodes the records in batches on a separate thread, and indexes the columns of each batch in parallel. The record
+   * read time only accounts for the time waiting for the decoded batches.
+   */
+  private void indexRowsInParallel(int numIndexingThreads)
+      throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(numIndexingThreads,
+        new ThreadFactoryBuilder().setNameFormat("segment-indexer-%d").setDaemon(true).build());
+    PipelinedRowBatchReader batchReader = new PipelinedRowBatchReader(recordReader, extractor);
+    try {
+      batchReader.start();
+      while (true) {
+        long start = System.currentTimeMillis();
+        List<GenericRow> batch = batchReader.nextBatch();
+        long stop = System.currentTimeMillis();
+        totalRecordReadTime += (stop - start);
+        if (batch == null) {
+          break;
+        }
+        indexCreator.indexRows(batch, executorService);
+        totalIndexTime += (System.currentTimeMillis() - stop);
+      }
+    } finally {
+      batchReader.close();
+      executorService.shutdownNow();
+    }
+  }
+
   private void handlePostCreation()
       throws Exception {
     final String timeColumn = config.getTimeColumnName();
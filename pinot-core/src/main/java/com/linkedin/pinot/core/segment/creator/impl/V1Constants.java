@@ -132,6 +132,7 @@ public class V1Constants {
       public static final String SEGMENT_TOTAL_CONVERSIONS = "segment.total.conversions";
       public static final String SEGMENT_TOTAL_NULL_COLS = "segment.total.null.cols";
       public static final String SEGMENT_HLL_LOG2M = "segment.hll.log2m";
+      public static final String SEGMENT_KLL_K = "segment.kll.k";
       public static final String SEGMENT_OPTIMIZATIONS = "segment.optimizations";
 
       // not using currently
@@ -37,7 +37,6 @@ public class SingleValueFixedByteRawIndexCreator extends BaseSingleValueRawIndex
   private static final int NUM_DOCS_PER_CHUNK = 1000; // TODO: Auto-derive this based on metadata.
 
   final FixedByteChunkSingleValueWriter _indexWriter;
-  private final ChunkCompressor compressor = ChunkCompressorFactory.getCompressor("snappy");
 
   /**
    * Constructor for the class
@@ -51,7 +50,24 @@ public class SingleValueFixedByteRawIndexCreator extends BaseSingleValueRawIndex
   public SingleValueFixedByteRawIndexCreator(File baseIndexDir, String column, int totalDocs,
       int sizeOfEntry)
       throws IOException {
+    this(baseIndexDir, ChunkCompressorFactory.DEFAULT_COMPRESSION_TYPE, column, totalDocs, sizeOfEntry);
+  }
+
+  /**
+   * Constructor for the class
+   *
+   * @param baseIndexDir Index directory
+   * @param compressionType Type of compression to use for the chunks
+   * @param column Name of column to index
+   * @param totalDocs Total number of documents to index
+   * @param sizeOfEntry Size of entry (in bytes)
+   * @throws IOException
+   */
+  public SingleValueFixedByteRawIndexCreator(File baseIndexDir, ChunkCompressorFactory.CompressionType compressionType,
+      String column, int totalDocs, int sizeOfEntry)
+      throws IOException {
     File file = new File(baseIndexDir, column + V1Constants.Indexes.RAW_SV_FWD_IDX_FILE_EXTENTION);
+    ChunkCompressor compressor = ChunkCompressorFactory.getCompressor(compressionType, sizeOfEntry);
     _indexWriter = new FixedByteChunkSingleValueWriter(file, compressor, totalDocs, NUM_DOCS_PER_CHUNK, sizeOfEntry);
   }
 
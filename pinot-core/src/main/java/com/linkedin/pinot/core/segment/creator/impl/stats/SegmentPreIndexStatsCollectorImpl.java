@@ -16,8 +16,13 @@
 package com.linkedin.pinot.core.segment.creator.impl.stats;
 
 import com.linkedin.pinot.core.segment.creator.StatsCollectorConfig;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -98,11 +103,12 @@ public class SegmentPreIndexStatsCollectorImpl implements SegmentPreIndexStatsCo
   public void collectRow(GenericRow row, boolean isAggregated) throws Exception {
     for (Map.Entry<String, Object> columnNameAndValue : row.getEntrySet()) {
       final String columnName = columnNameAndValue.getKey();
-      final Object value = columnNameAndValue.getValue();
+      final AbstractColumnStatisticsCollector columnStatsCollector = columnStatsCollectorMap.get(columnName);
 
-      if (columnStatsCollectorMap.containsKey(columnName)) {
+      if (columnStatsCollector != null) {
+        final Object value = getValueOrDefaultNull(columnNameAndValue.getValue(), columnStatsCollector.fieldSpec);
         try {
-          columnStatsCollectorMap.get(columnName).collect(value, isAggregated);
+          columnStatsCollector.collect(value, isAggregated);
         } catch (Exception e) {
           LOGGER.error("Exception while collecting stats for column:{} in row:{}", columnName, row);
           throw e;
@@ -118,6 +124,57 @@ public class SegmentPreIndexStatsCollectorImpl implements SegmentPreIndexStatsCo
     }
   }
 
+  /**
+   * Collect the stats of a batch of raw rows, with the stats of each column collected on the given executor service.
+   *
+   * @param rows Rows to collect stats for
+   * @param executorService Executor service to collect the stats of the columns
+   * @throws Exception
+   */
+  public void collectRows(final List<GenericRow> rows, ExecutorService executorService) throws Exception {
+    List<Future<Void>> futures = new ArrayList<>(columnStatsCollectorMap.size());
+    for (Map.Entry<String, AbstractColumnStatisticsCollector> entry : columnStatsCollectorMap.entrySet()) {
+      final String columnName = entry.getKey();
+      final AbstractColumnStatisticsCollector columnStatsCollector = entry.getValue();
+      futures.add(executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (GenericRow row : rows) {
+            Object value = getValueOrDefaultNull(row.getValue(columnName), columnStatsCollector.fieldSpec);
+            try {
+              columnStatsCollector.collect(value, false);
+            } catch (Exception e) {
+              LOGGER.error("Exception while collecting stats for column:{} in row:{}", columnName, row);
+              throw e;
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+
+    totalDocCount += rows.size();
+    rawDocCount += rows.size();
+  }
+
+  /**
+   * Returns the value, or the default null value of the column if the value is null, the same way the field extractor
+   * fills in null values.
+   */
+  private static Object getValueOrDefaultNull(Object value, FieldSpec fieldSpec) {
+    if (value != null) {
+      return value;
+    }
+    if (fieldSpec.isSingleValueField()) {
+      return fieldSpec.getDefaultNullValue();
+    } else {
+      return new Object[]{fieldSpec.getDefaultNullValue()};
+    }
+  }
+
   @Override
   public int getRawDocCount() {
     return rawDocCount;
@@ -40,6 +40,7 @@ import com.linkedin.pinot.core.data.partition.PartitionFunction;
 import com.linkedin.pinot.core.data.partition.PartitionFunctionFactory;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.startree.hll.HllUtil;
+import com.linkedin.pinot.core.startree.kll.KllUtil;
 
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.*;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Segment.SEGMENT_PADDING_CHARACTER;
@@ -151,6 +152,17 @@ public class ColumnMetadata {
             throw e;
           }
           break;
+        case KLL:
+          try {
+            final int kllK = config.getInt(V1Constants.MetadataKeys.Segment.SEGMENT_KLL_K);
+            builder.setFieldSize(KllUtil.getKllFieldSizeFromK(kllK));
+            final String originColumnName = config.getString(getKeyFor(column, ORIGIN_COLUMN));
+            builder.setOriginColumnName(originColumnName);
+          } catch (RuntimeException e) {
+            LOGGER.error("Column: " + column + " is KLL derived column, but missing k, fieldSize or originColumnName.");
+            throw e;
+          }
+          break;
         default:
           throw new IllegalArgumentException("Column: " + column + " with derived metric Type: " + derivedMetricType
               + " is not supported in building column metadata.");
@@ -26,6 +26,7 @@ import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.IndexType;
 import com.linkedin.pinot.core.io.reader.DataFileReader;
 import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
+import com.linkedin.pinot.core.segment.index.column.LazyColumnIndexContainers;
 import com.linkedin.pinot.core.segment.index.data.source.ColumnDataSource;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
@@ -43,7 +44,9 @@ public class IndexSegmentImpl implements IndexSegment {
 
   private SegmentDirectory segmentDirectory;
   private final SegmentMetadataImpl segmentMetadata;
+  // Exactly one of the eagerly loaded index container map and the lazily loaded index containers is set
   private final Map<String, ColumnIndexContainer> indexContainerMap;
+  private final LazyColumnIndexContainers lazyIndexContainers;
   private final StarTreeInterf starTree;
 
   public IndexSegmentImpl(SegmentDirectory segmentDirectory, SegmentMetadataImpl segmentMetadata,
@@ -51,20 +54,39 @@ public class IndexSegmentImpl implements IndexSegment {
     this.segmentDirectory = segmentDirectory;
     this.segmentMetadata = segmentMetadata;
     this.indexContainerMap = columnIndexContainerMap;
+    this.lazyIndexContainers = null;
     this.starTree = starTree;
     LOGGER.info("Successfully loaded the index segment : " + segmentDirectory);
   }
 
+  public IndexSegmentImpl(SegmentDirectory segmentDirectory, SegmentMetadataImpl segmentMetadata,
+      LazyColumnIndexContainers lazyIndexContainers, StarTreeInterf starTree) throws Exception {
+    this.segmentDirectory = segmentDirectory;
+    this.segmentMetadata = segmentMetadata;
+    this.indexContainerMap = null;
+    this.lazyIndexContainers = lazyIndexContainers;
+    this.starTree = starTree;
+    LOGGER.info("Successfully loaded the index segment with lazy column loading : " + segmentDirectory);
+  }
+
+  private ColumnIndexContainer getIndexContainerFor(String column) {
+    if (lazyIndexContainers != null) {
+      return lazyIndexContainers.get(column);
+    } else {
+      return indexContainerMap.get(column);
+    }
+  }
+
   public ImmutableDictionaryReader getDictionaryFor(String column) {
-    return indexContainerMap.get(column).getDictionary();
+    return getIndexContainerFor(column).getDictionary();
   }
 
   public DataFileReader getForwardIndexReaderFor(String column) {
-    return indexContainerMap.get(column).getForwardIndex();
+    return getIndexContainerFor(column).getForwardIndex();
   }
 
   public InvertedIndexReader getInvertedIndexFor(String column) {
-    return indexContainerMap.get(column).getInvertedIndex();
+    return getIndexContainerFor(column).getInvertedIndex();
   }
 
   @Override
@@ -89,7 +111,7 @@ public class IndexSegmentImpl implements IndexSegment {
 
   @Override
   public ColumnDataSource getDataSource(String columnName) {
-    return new ColumnDataSource(indexContainerMap.get(columnName), segmentMetadata.getColumnMetadataFor(columnName));
+    return new ColumnDataSource(getIndexContainerFor(columnName), segmentMetadata.getColumnMetadataFor(columnName));
   }
 
   public DataSource getDataSource(String columnName, Predicate p) {
@@ -104,29 +126,11 @@ public class IndexSegmentImpl implements IndexSegment {
   @Override
   public void destroy() {
     LOGGER.info("Trying to destroy segment : {}", this.getSegmentName());
-    for (String column : indexContainerMap.keySet()) {
-      ColumnIndexContainer columnIndexContainer = indexContainerMap.get(column);
-
-      try {
-        ImmutableDictionaryReader dictionary = columnIndexContainer.getDictionary();
-        if (dictionary != null) {
-          dictionary.close();
-        }
-      } catch (Exception e) {
-        LOGGER.error("Error when close dictionary index for column : " + column, e);
-      }
-      try {
-        columnIndexContainer.getForwardIndex().close();
-      } catch (Exception e) {
-        LOGGER.error("Error when close forward index for column : " + column, e);
-      }
-      try {
-        InvertedIndexReader invertedIndex = columnIndexContainer.getInvertedIndex();
-        if (invertedIndex != null) {
-          invertedIndex.close();
-        }
-      } catch (Exception e) {
-        LOGGER.error("Error when close inverted index for column : " + column, e);
+    if (lazyIndexContainers != null) {
+      lazyIndexContainers.close();
+    } else {
+      for (ColumnIndexContainer columnIndexContainer : indexContainerMap.values()) {
+        columnIndexContainer.close();
       }
     }
     try {
@@ -134,7 +138,9 @@ public class IndexSegmentImpl implements IndexSegment {
     } catch (Exception e) {
       LOGGER.error("Failed to close segment directory: {}. Continuing with error.", segmentDirectory, e);
     }
-    indexContainerMap.clear();
+    if (indexContainerMap != null) {
+      indexContainerMap.clear();
+    }
   }
 
   @Override
@@ -88,6 +88,7 @@ public class SegmentMetadataImpl implements SegmentMetadata {
   private char _paddingCharacter = V1Constants.Str.DEFAULT_STRING_PAD_CHAR;
   private int _hllLog2m = HllConstants.DEFAULT_LOG2M;
   private final Map<String, String> _hllDerivedColumnMap = new HashMap<>();
+  private final Map<String, String> _kllDerivedColumnMap = new HashMap<>();
   private int _totalDocs;
   private int _totalRawDocs;
   private long _segmentStartTime;
@@ -337,7 +338,7 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     // Set enabled optimizations
     _optimizations = _segmentMetadataPropertiesConfiguration.getList(Segment.SEGMENT_OPTIMIZATIONS, null);
 
-    // Build column metadata map, schema and hll derived column map.
+    // Build column metadata map, schema and hll/kll derived column maps.
     for (String column : _allColumns) {
       ColumnMetadata columnMetadata =
           ColumnMetadata.fromPropertiesConfiguration(column, _segmentMetadataPropertiesConfiguration);
@@ -345,6 +346,8 @@ public class SegmentMetadataImpl implements SegmentMetadata {
       _schema.addField(columnMetadata.getFieldSpec());
       if (columnMetadata.getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.HLL) {
         _hllDerivedColumnMap.put(columnMetadata.getOriginColumnName(), columnMetadata.getColumnName());
+      } else if (columnMetadata.getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.KLL) {
+        _kllDerivedColumnMap.put(columnMetadata.getOriginColumnName(), columnMetadata.getColumnName());
       }
     }
 
@@ -641,6 +644,8 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     switch (derivedMetricType) {
       case HLL:
         return _hllDerivedColumnMap.get(column);
+      case KLL:
+        return _kllDerivedColumnMap.get(column);
       default:
         throw new IllegalArgumentException();
     }
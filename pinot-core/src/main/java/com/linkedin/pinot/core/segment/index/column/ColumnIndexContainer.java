@@ -16,8 +16,6 @@
 package com.linkedin.pinot.core.segment.index.column;
 
 import com.linkedin.pinot.common.data.FieldSpec;
-import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
-import com.linkedin.pinot.core.io.compression.ChunkDecompressor;
 import com.linkedin.pinot.core.io.reader.DataFileReader;
 import com.linkedin.pinot.core.io.reader.SingleColumnSingleValueReader;
 import com.linkedin.pinot.core.io.reader.impl.v1.FixedBitMultiValueReader;
@@ -47,6 +45,7 @@ import org.slf4j.LoggerFactory;
 public final class ColumnIndexContainer {
   private static final Logger LOGGER = LoggerFactory.getLogger(ColumnIndexContainer.class);
 
+  private final String _columnName;
   private final DataFileReader _forwardIndex;
   private final InvertedIndexReader _invertedIndex;
   private final ImmutableDictionaryReader _dictionary;
@@ -54,6 +53,7 @@ public final class ColumnIndexContainer {
   public ColumnIndexContainer(SegmentDirectory.Reader segmentReader, ColumnMetadata metadata,
       IndexLoadingConfig indexLoadingConfig) throws IOException {
     String columnName = metadata.getColumnName();
+    _columnName = columnName;
     boolean loadInvertedIndex = false;
     boolean loadOnHeapDictionary = false;
     if (indexLoadingConfig != null) {
@@ -111,6 +111,31 @@ public final class ColumnIndexContainer {
     return _dictionary;
   }
 
+  /**
+   * Closes the dictionary, forward index and inverted index of the column, logging the errors.
+   */
+  public void close() {
+    try {
+      if (_dictionary != null) {
+        _dictionary.close();
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error when close dictionary index for column : " + _columnName, e);
+    }
+    try {
+      _forwardIndex.close();
+    } catch (Exception e) {
+      LOGGER.error("Error when close forward index for column : " + _columnName, e);
+    }
+    try {
+      if (_invertedIndex != null) {
+        _invertedIndex.close();
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error when close inverted index for column : " + _columnName, e);
+    }
+  }
+
   private static ImmutableDictionaryReader loadDictionary(PinotDataBuffer dictionaryBuffer, ColumnMetadata metadata,
       boolean loadOnHeap) throws IOException {
     FieldSpec.DataType dataType = metadata.getDataType();
@@ -141,17 +166,14 @@ public final class ColumnIndexContainer {
 
   private static SingleColumnSingleValueReader loadRawForwardIndex(PinotDataBuffer forwardIndexBuffer,
       FieldSpec.DataType dataType) throws IOException {
-    // TODO: Make compression/decompression configurable.
-    ChunkDecompressor decompressor = ChunkCompressorFactory.getDecompressor("snappy");
-
     switch (dataType) {
       case INT:
       case LONG:
       case FLOAT:
       case DOUBLE:
-        return new FixedByteChunkSingleValueReader(forwardIndexBuffer, decompressor);
+        return new FixedByteChunkSingleValueReader(forwardIndexBuffer);
       case STRING:
-        return new VarByteChunkSingleValueReader(forwardIndexBuffer, decompressor);
+        return new VarByteChunkSingleValueReader(forwardIndexBuffer);
       default:
         throw new IllegalStateException("Illegal data type for raw forward index: " + dataType);
     }
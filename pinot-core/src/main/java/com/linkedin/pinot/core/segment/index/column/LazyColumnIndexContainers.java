@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.column;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.IndexLoadingConfig;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
+import com.linkedin.pinot.core.segment.store.SegmentDirectory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>LazyColumnIndexContainers</code> class loads the {@link ColumnIndexContainer} (forward index, dictionary
+ * and inverted index) of each column of a segment on the first access of the column, so that the columns never queried
+ * in wide tables cost neither load time nor memory.
+ * <p>If an eviction idle time is configured, the columns not accessed for that long are evicted and loaded again on the
+ * next access. The evicted containers are closed only after another idle time so that the queries still holding them
+ * can finish, so the idle time should be larger than the query timeout. The buffers are owned by the segment directory,
+ * and are released only when the segment is destroyed.
+ * <p>Columns are accessed when the data sources are created for a query, so the per-block read path is not affected.
+ */
+@ThreadSafe
+public class LazyColumnIndexContainers {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LazyColumnIndexContainers.class);
+  private static final long MIN_EVICTION_CHECK_INTERVAL_MS = 1000L;
+  private static final ScheduledExecutorService EVICTION_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("column-eviction-%d").setDaemon(true).build());
+
+  private final SegmentDirectory.Reader _segmentReader;
+  private final SegmentMetadataImpl _segmentMetadata;
+  private final IndexLoadingConfig _indexLoadingConfig;
+  private final long _evictionIdleTimeMs;
+  private final PinotDataBufferMemoryManager.Account _memoryAccount;
+  private final Map<String, Entry> _entries = new ConcurrentHashMap<>();
+  private final ScheduledFuture<?> _evictionFuture;
+
+  // Guarded by this
+  private boolean _closed;
+
+  /**
+   * @param evictionIdleTimeMs Idle time after which the columns are evicted, or non-positive to never evict
+   */
+  public LazyColumnIndexContainers(@Nonnull SegmentDirectory.Reader segmentReader,
+      @Nonnull SegmentMetadataImpl segmentMetadata, @Nonnull IndexLoadingConfig indexLoadingConfig,
+      long evictionIdleTimeMs) {
+    _segmentReader = segmentReader;
+    _segmentMetadata = segmentMetadata;
+    _indexLoadingConfig = indexLoadingConfig;
+    _evictionIdleTimeMs = evictionIdleTimeMs;
+    // Charge the columns loaded later to the account of the segment load
+    _memoryAccount = PinotDataBufferMemoryManager.getCurrentAccount();
+    if (evictionIdleTimeMs > 0) {
+      long checkIntervalMs = Math.max(evictionIdleTimeMs / 2, MIN_EVICTION_CHECK_INTERVAL_MS);
+      _evictionFuture = EVICTION_EXECUTOR.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          evictIdleColumns(System.currentTimeMillis());
+        }
+      }, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      _evictionFuture = null;
+    }
+  }
+
+  /**
+   * Returns the index container of the given column, loading it if needed, or <code>null</code> if the column does not
+   * exist in the segment.
+   */
+  @Nullable
+  public ColumnIndexContainer get(@Nonnull String column) {
+    Entry entry = _entries.get(column);
+    if (entry == null) {
+      entry = load(column);
+      if (entry == null) {
+        return null;
+      }
+    }
+    entry._lastAccessTimeMs = System.currentTimeMillis();
+    return entry._indexContainer;
+  }
+
+  /**
+   * Returns the number of columns currently loaded.
+   */
+  public int getNumLoadedColumns() {
+    return _entries.size();
+  }
+
+  @Nullable
+  private synchronized Entry load(@Nonnull String column) {
+    Preconditions.checkState(!_closed, "Segment: %s is already destroyed", _segmentMetadata.getName());
+    Entry entry = _entries.get(column);
+    if (entry == null) {
+      ColumnMetadata columnMetadata = _segmentMetadata.getColumnMetadataFor(column);
+      if (columnMetadata == null) {
+        return null;
+      }
+      try (PinotDataBufferMemoryManager.Scope ignored = PinotDataBufferMemoryManager.getInstance()
+          .enterScope(_memoryAccount)) {
+        entry = new Entry(new ColumnIndexContainer(_segmentReader, columnMetadata, _indexLoadingConfig));
+      } catch (IOException e) {
+        throw new RuntimeException(
+            "Caught exception while loading column: " + column + " of segment: " + _segmentMetadata.getName(), e);
+      }
+      _entries.put(column, entry);
+      LOGGER.debug("Loaded column: {} of segment: {}", column, _segmentMetadata.getName());
+    }
+    return entry;
+  }
+
+  /**
+   * Evicts the columns not accessed during the idle time before the given time, and schedules to close them.
+   */
+  void evictIdleColumns(long currentTimeMs) {
+    final List<ColumnIndexContainer> evictedIndexContainers = new ArrayList<>();
+    synchronized (this) {
+      if (_closed) {
+        return;
+      }
+      Iterator<Entry> iterator = _entries.values().iterator();
+      while (iterator.hasNext()) {
+        Entry entry = iterator.next();
+        if (currentTimeMs - entry._lastAccessTimeMs > _evictionIdleTimeMs) {
+          iterator.remove();
+          evictedIndexContainers.add(entry._indexContainer);
+        }
+      }
+    }
+    if (!evictedIndexContainers.isEmpty()) {
+      LOGGER.info("Evicted {} idle columns of segment: {}", evictedIndexContainers.size(), _segmentMetadata.getName());
+      EVICTION_EXECUTOR.schedule(new Runnable() {
+        @Override
+        public void run() {
+          for (ColumnIndexContainer indexContainer : evictedIndexContainers) {
+            indexContainer.close();
+          }
+        }
+      }, _evictionIdleTimeMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Closes all the loaded columns. The columns cannot be accessed afterwards.
+   */
+  public void close() {
+    if (_evictionFuture != null) {
+      _evictionFuture.cancel(false);
+    }
+    synchronized (this) {
+      _closed = true;
+      for (Entry entry : _entries.values()) {
+        entry._indexContainer.close();
+      }
+      _entries.clear();
+    }
+  }
+
+  private static class Entry {
+    final ColumnIndexContainer _indexContainer;
+    volatile long _lastAccessTimeMs;
+
+    Entry(ColumnIndexContainer indexContainer) {
+      _indexContainer = indexContainer;
+    }
+  }
+}
@@ -20,11 +20,14 @@ import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.data.manager.config.InstanceDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
 import com.linkedin.pinot.core.segment.index.loader.columnminmaxvalue.ColumnMinMaxValueGeneratorMode;
 import com.linkedin.pinot.core.startree.StarTreeFormatVersion;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -35,11 +38,13 @@ import javax.annotation.Nullable;
  */
 public class IndexLoadingConfig {
   private static final int DEFAULT_REALTIME_AVG_MULTI_VALUE_COUNT = 2;
+  private static final int DEFAULT_REALTIME_INDEXING_BATCH_SIZE = 1000;
 
   private ReadMode _readMode = ReadMode.DEFAULT_MODE;
   private List<String> _sortedColumns = Collections.emptyList();
   private Set<String> _invertedIndexColumns = new HashSet<>();
   private Set<String> _noDictionaryColumns = new HashSet<>();
+  private Map<String, ChunkCompressorFactory.CompressionType> _noDictionaryCompressionTypes = new HashMap<>();
   private Set<String> _onHeapDictionaryColumns = new HashSet<>();
   private SegmentVersion _segmentVersion;
   private StarTreeFormatVersion _starTreeVersion = StarTreeFormatVersion.DEFAULT_VERSION;
@@ -49,6 +54,11 @@ public class IndexLoadingConfig {
   private int _realtimeAvgMultiValueCount = DEFAULT_REALTIME_AVG_MULTI_VALUE_COUNT;
   private boolean _enableSplitCommit;
   private boolean _isRealtimeOffheapAllocation;
+  private int _realtimeIndexingBatchSize = DEFAULT_REALTIME_INDEXING_BATCH_SIZE;
+  private boolean _isRealtimePipelinedIndexing;
+  private boolean _isLazyColumnLoading;
+  // Non-positive means never evict
+  private long _columnEvictionIdleTimeMs;
 
   public IndexLoadingConfig(@Nonnull InstanceDataManagerConfig instanceDataManagerConfig,
       @Nullable TableConfig tableConfig) {
@@ -81,6 +91,14 @@ public class IndexLoadingConfig {
       _noDictionaryColumns.addAll(noDictionaryColumns);
     }
 
+    Map<String, String> noDictionaryConfig = indexingConfig.getNoDictionaryConfig();
+    if (noDictionaryConfig != null) {
+      for (Map.Entry<String, String> entry : noDictionaryConfig.entrySet()) {
+        _noDictionaryCompressionTypes.put(entry.getKey(),
+            ChunkCompressorFactory.CompressionType.fromName(entry.getValue()));
+      }
+    }
+
     List<String> onHeapDictionaryColumns = indexingConfig.getOnHeapDictionaryColumns();
     if (onHeapDictionaryColumns != null) {
       _onHeapDictionaryColumns.addAll(onHeapDictionaryColumns);
@@ -124,6 +142,20 @@ public class IndexLoadingConfig {
     if (avgMultiValueCount != null) {
       _realtimeAvgMultiValueCount = Integer.valueOf(avgMultiValueCount);
     }
+
+    String realtimeIndexingBatchSize = instanceDataManagerConfig.getRealtimeIndexingBatchSize();
+    if (realtimeIndexingBatchSize != null) {
+      _realtimeIndexingBatchSize = Integer.valueOf(realtimeIndexingBatchSize);
+    }
+
+    _isRealtimePipelinedIndexing = instanceDataManagerConfig.isRealtimePipelinedIndexing();
+
+    _isLazyColumnLoading = instanceDataManagerConfig.isLazyColumnLoading();
+
+    String columnEvictionIdleTimeMs = instanceDataManagerConfig.getColumnEvictionIdleTimeMs();
+    if (columnEvictionIdleTimeMs != null) {
+      _columnEvictionIdleTimeMs = Long.valueOf(columnEvictionIdleTimeMs);
+    }
   }
 
   /**
@@ -166,6 +198,14 @@ public class IndexLoadingConfig {
     return _noDictionaryColumns;
   }
 
+  /**
+   * Returns the chunk compression type for the raw index of the no dictionary columns that have one configured.
+   */
+  @Nonnull
+  public Map<String, ChunkCompressorFactory.CompressionType> getNoDictionaryCompressionTypes() {
+    return _noDictionaryCompressionTypes;
+  }
+
   @Nonnull
   public Set<String> getOnHeapDictionaryColumns() {
     return _onHeapDictionaryColumns;
@@ -222,4 +262,34 @@ public class IndexLoadingConfig {
   public int getRealtimeAvgMultiValueCount() {
     return _realtimeAvgMultiValueCount;
   }
+
+  public int getRealtimeIndexingBatchSize() {
+    return _realtimeIndexingBatchSize;
+  }
+
+  public boolean isRealtimePipelinedIndexing() {
+    return _isRealtimePipelinedIndexing;
+  }
+
+  public boolean isLazyColumnLoading() {
+    return _isLazyColumnLoading;
+  }
+
+  /**
+   * For tests only.
+   */
+  public void setLazyColumnLoading(boolean lazyColumnLoading) {
+    _isLazyColumnLoading = lazyColumnLoading;
+  }
+
+  public long getColumnEvictionIdleTimeMs() {
+    return _columnEvictionIdleTimeMs;
+  }
+
+  /**
+   * For tests only.
+   */
+  public void setColumnEvictionIdleTimeMs(long columnEvictionIdleTimeMs) {
+    _columnEvictionIdleTimeMs = columnEvictionIdleTimeMs;
+  }
 }
@@ -23,8 +23,10 @@ import com.linkedin.pinot.core.segment.index.ColumnMetadata;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
+import com.linkedin.pinot.core.segment.index.column.LazyColumnIndexContainers;
 import com.linkedin.pinot.core.segment.index.converter.SegmentFormatConverter;
 import com.linkedin.pinot.core.segment.index.converter.SegmentFormatConverterFactory;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import com.linkedin.pinot.core.segment.store.SegmentDirectory;
 import com.linkedin.pinot.core.segment.store.SegmentDirectoryPaths;
 import com.linkedin.pinot.core.startree.StarTreeInterf;
@@ -34,6 +36,7 @@ import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,6 +72,24 @@ public class Loaders {
 
       String segmentName = indexDir.getName();
 
+      // Reserve the memory for the segment, which may wait for other segments to release memory
+      // NOTE: the buffers are charged to the segment until they are released when the segment is destroyed
+      String tableName = new SegmentMetadataImpl(indexDir).getTableName();
+      if (tableName == null) {
+        tableName = PinotDataBufferMemoryManager.UNATTRIBUTED;
+      }
+      PinotDataBufferMemoryManager.AllocationType allocationType =
+          indexLoadingConfig.getReadMode() == ReadMode.mmap ? PinotDataBufferMemoryManager.AllocationType.MAPPED
+              : PinotDataBufferMemoryManager.AllocationType.DIRECT;
+      try (PinotDataBufferMemoryManager.Scope ignored = PinotDataBufferMemoryManager.getInstance()
+          .reserve(tableName, segmentName, allocationType, FileUtils.sizeOfDirectory(indexDir))) {
+        return load(indexDir, segmentName, indexLoadingConfig, schema);
+      }
+    }
+
+    private static com.linkedin.pinot.core.indexsegment.IndexSegment load(@Nonnull File indexDir,
+        @Nonnull String segmentName, @Nonnull IndexLoadingConfig indexLoadingConfig, @Nullable Schema schema)
+        throws Exception {
       // Convert star-tree format if necessary
       StarTreeSerDe.convertStarTreeFormatIfNeeded(indexDir, indexLoadingConfig.getStarTreeVersion());
 
@@ -103,11 +124,6 @@ public class Loaders {
       ReadMode readMode = indexLoadingConfig.getReadMode();
       SegmentDirectory segmentDirectory = SegmentDirectory.createFromLocalFS(indexDir, segmentMetadata, readMode);
       SegmentDirectory.Reader segmentReader = segmentDirectory.createReader();
-      Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<>();
-      for (Map.Entry<String, ColumnMetadata> entry : segmentMetadata.getColumnMetadataMap().entrySet()) {
-        indexContainerMap.put(entry.getKey(),
-            new ColumnIndexContainer(segmentReader, entry.getValue(), indexLoadingConfig));
-      }
 
       // Load star tree index if it exists
       StarTreeInterf starTree = null;
@@ -116,6 +132,24 @@ public class Loaders {
         starTree = StarTreeSerDe.fromFile(segmentReader.getStarTreeFile(), readMode);
       }
 
+      // Warm up the indexes of the frequently filtered columns to avoid page faults on the first queries
+      if (readMode == ReadMode.mmap) {
+        SegmentWarmer.getInstance().warmUp(segmentReader, segmentMetadata);
+      }
+
+      if (indexLoadingConfig.isLazyColumnLoading()) {
+        // Columns are loaded on first access
+        LazyColumnIndexContainers lazyIndexContainers =
+            new LazyColumnIndexContainers(segmentReader, segmentMetadata, indexLoadingConfig,
+                indexLoadingConfig.getColumnEvictionIdleTimeMs());
+        return new IndexSegmentImpl(segmentDirectory, segmentMetadata, lazyIndexContainers, starTree);
+      }
+
+      Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<>();
+      for (Map.Entry<String, ColumnMetadata> entry : segmentMetadata.getColumnMetadataMap().entrySet()) {
+        indexContainerMap.put(entry.getKey(),
+            new ColumnIndexContainer(segmentReader, entry.getValue(), indexLoadingConfig));
+      }
       return new IndexSegmentImpl(segmentDirectory, segmentMetadata, indexContainerMap, starTree);
     }
   }
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.loader;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.core.query.executor.QueryColumnStatistics;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import com.linkedin.pinot.core.segment.store.ColumnIndexType;
+import com.linkedin.pinot.core.segment.store.SegmentDirectory;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>SegmentWarmer</code> class warms up the memory mapped indexes of the segments being loaded, so that the
+ * first queries after a server restart do not pay the page faults.
+ * <p>The warm-up is driven by the {@link QueryColumnStatistics} of the table: only the indexes of the most frequently
+ * filtered columns are warmed up, according to the {@link AccessPattern} of their type. The randomly accessed indexes
+ * (dictionaries and inverted indexes) are fully loaded because the kernel read-ahead cannot help them, while only the
+ * header of the sequentially scanned forward indexes is loaded and the read-ahead does the rest.
+ * <p>Without statistics for the table (e.g. on the first start of the server), all the indexes are warmed up as by the
+ * previous prefetch: fully until a fraction of the budget is used, then only their header page.
+ * <p>The warm-up is bounded by an I/O budget shared by all the segments loaded on the server: the total number of
+ * bytes warmed up, and optionally the number of bytes warmed up per second.
+ */
+@ThreadSafe
+public class SegmentWarmer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentWarmer.class);
+  private static final SegmentWarmer INSTANCE = new SegmentWarmer();
+
+  // Configs
+  public static final String MAX_BYTES_KEY = "max.bytes";
+  public static final String MAX_BYTES_PER_SECOND_KEY = "max.bytes.per.second";
+  public static final String MAX_COLUMNS_KEY = "max.columns";
+  // Matches the previous prefetch limit
+  public static final long DEFAULT_MAX_BYTES = 100L * 1024 * 1024 * 1024;
+  // 0 means no throttling
+  public static final long DEFAULT_MAX_BYTES_PER_SECOND = 0L;
+  public static final int DEFAULT_MAX_COLUMNS = 10;
+
+  // Matches most systems
+  private static final int PAGE_SIZE_BYTES = 4096;
+  // Pages are loaded by chunks so that the throttling is smooth
+  private static final int CHUNK_SIZE_BYTES = 1024 * 1024;
+  // The rate limiter permits are in KB so that large rates do not overflow
+  private static final int BYTES_PER_PERMIT = 1024;
+  // Without statistics, only the header page of the indexes is warmed up past this fraction of the budget
+  private static final double FULL_WARM_UP_BUDGET_FRACTION = 0.67;
+
+  public enum AccessPattern {
+    RANDOM,
+    SEQUENTIAL;
+
+    public static AccessPattern forIndexType(@Nonnull ColumnIndexType indexType) {
+      return indexType == ColumnIndexType.FORWARD_INDEX ? SEQUENTIAL : RANDOM;
+    }
+  }
+
+  private final AtomicLong _warmedUpBytes = new AtomicLong();
+  private volatile long _maxBytes = DEFAULT_MAX_BYTES;
+  private volatile int _maxColumns = DEFAULT_MAX_COLUMNS;
+  private volatile RateLimiter _rateLimiter;
+
+  /**
+   * Returns the warmer shared by all the segments on the server.
+   */
+  public static SegmentWarmer getInstance() {
+    return INSTANCE;
+  }
+
+  // For tests only
+  SegmentWarmer() {
+  }
+
+  /**
+   * Initializes the I/O budget from the given configuration (with keys relative to the warm-up config prefix).
+   */
+  public void init(@Nonnull Configuration config) {
+    _maxBytes = config.getLong(MAX_BYTES_KEY, DEFAULT_MAX_BYTES);
+    _maxColumns = config.getInt(MAX_COLUMNS_KEY, DEFAULT_MAX_COLUMNS);
+    long maxBytesPerSecond = config.getLong(MAX_BYTES_PER_SECOND_KEY, DEFAULT_MAX_BYTES_PER_SECOND);
+    _rateLimiter = maxBytesPerSecond > 0 ? RateLimiter.create(Math.max(maxBytesPerSecond / BYTES_PER_PERMIT, 1)) : null;
+    LOGGER.info("Initialized segment warm-up with max bytes: {}, max bytes per second: {}, max columns: {}", _maxBytes,
+        maxBytesPerSecond, _maxColumns);
+  }
+
+  /**
+   * Warms up the indexes of the most frequently filtered columns of the given memory mapped segment, or all its indexes
+   * if there is no statistics for the table.
+   */
+  public void warmUp(@Nonnull SegmentDirectory.Reader segmentReader, @Nonnull SegmentMetadataImpl segmentMetadata) {
+    String tableName = segmentMetadata.getTableName();
+    if (tableName == null) {
+      return;
+    }
+    List<String> filterColumns =
+        QueryColumnStatistics.getInstance().getFilterColumns(TableNameBuilder.extractRawTableName(tableName));
+    if (filterColumns.isEmpty()) {
+      warmUpAllColumns(segmentReader, segmentMetadata);
+      return;
+    }
+    int numColumns = 0;
+    long numBytes = 0;
+    for (String column : filterColumns) {
+      if (numColumns == _maxColumns || _warmedUpBytes.get() >= _maxBytes) {
+        break;
+      }
+      if (segmentMetadata.getColumnMetadataFor(column) == null) {
+        continue;
+      }
+      numColumns++;
+      try {
+        numBytes += warmUp(segmentReader, column, ColumnIndexType.DICTIONARY);
+        if (segmentReader.hasIndexFor(column, ColumnIndexType.INVERTED_INDEX)) {
+          numBytes += warmUp(segmentReader, column, ColumnIndexType.INVERTED_INDEX);
+        } else {
+          // The column is filtered by scanning the forward index
+          numBytes += warmUp(segmentReader, column, ColumnIndexType.FORWARD_INDEX);
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Caught exception while warming up column: {} of segment: {}, skipping", column,
+            segmentMetadata.getName(), e);
+      }
+    }
+    if (numColumns > 0) {
+      LOGGER.info("Warmed up {} bytes of {} columns of segment: {}", numBytes, numColumns, segmentMetadata.getName());
+    }
+  }
+
+  private void warmUpAllColumns(SegmentDirectory.Reader segmentReader, SegmentMetadataImpl segmentMetadata) {
+    long fullWarmUpBytes = (long) (FULL_WARM_UP_BUDGET_FRACTION * _maxBytes);
+    long numBytes = 0;
+    for (String column : segmentMetadata.getAllColumns()) {
+      for (ColumnIndexType indexType : ColumnIndexType.values()) {
+        if (_warmedUpBytes.get() >= _maxBytes) {
+          LOGGER.info("Warmed up {} bytes of segment: {} without query statistics", numBytes,
+              segmentMetadata.getName());
+          return;
+        }
+        try {
+          if (segmentReader.hasIndexFor(column, indexType)) {
+            PinotDataBuffer buffer = segmentReader.getIndexFor(column, indexType);
+            long size = _warmedUpBytes.get() < fullWarmUpBytes ? buffer.size()
+                : Math.min(buffer.size(), PAGE_SIZE_BYTES);
+            numBytes += prefetch(buffer, size);
+          }
+        } catch (IOException e) {
+          LOGGER.warn("Caught exception while warming up column: {} of segment: {}, skipping", column,
+              segmentMetadata.getName(), e);
+        }
+      }
+    }
+    LOGGER.info("Warmed up {} bytes of segment: {} without query statistics", numBytes, segmentMetadata.getName());
+  }
+
+  private long warmUp(SegmentDirectory.Reader segmentReader, String column, ColumnIndexType indexType)
+      throws IOException {
+    if (!segmentReader.hasIndexFor(column, indexType)) {
+      return 0L;
+    }
+    PinotDataBuffer buffer = segmentReader.getIndexFor(column, indexType);
+    long size = AccessPattern.forIndexType(indexType) == AccessPattern.RANDOM ? buffer.size()
+        : Math.min(buffer.size(), PAGE_SIZE_BYTES);
+    return prefetch(buffer, size);
+  }
+
+  /**
+   * Loads the pages of the first given bytes of the buffer within the I/O budget, and returns the number of bytes
+   * loaded.
+   */
+  long prefetch(@Nonnull PinotDataBuffer buffer, long size) {
+    long budget = _maxBytes - _warmedUpBytes.get();
+    if (budget <= 0) {
+      return 0L;
+    }
+    size = Math.min(size, budget);
+    _warmedUpBytes.addAndGet(size);
+    RateLimiter rateLimiter = _rateLimiter;
+    for (long chunkStart = 0; chunkStart < size; chunkStart += CHUNK_SIZE_BYTES) {
+      long chunkEnd = Math.min(chunkStart + CHUNK_SIZE_BYTES, size);
+      throttle(rateLimiter, chunkEnd - chunkStart);
+      for (long position = chunkStart; position < chunkEnd; position += PAGE_SIZE_BYTES) {
+        buffer.getByte((int) position);
+      }
+    }
+    return size;
+  }
+
+  private static void throttle(@Nullable RateLimiter rateLimiter, long numBytes) {
+    if (rateLimiter != null && numBytes > 0) {
+      rateLimiter.acquire((int) Math.max(numBytes / BYTES_PER_PERMIT, 1));
+    }
+  }
+
+  public long getWarmedUpBytes() {
+    return _warmedUpBytes.get();
+  }
+}
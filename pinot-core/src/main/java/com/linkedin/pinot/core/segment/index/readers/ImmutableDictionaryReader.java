@@ -152,6 +152,45 @@ public abstract class ImmutableDictionaryReader extends BaseDictionary {
     return -(low + 1);
   }
 
+  /**
+   * Returns the range of dictionary ids <code>[startDictId, endDictId)</code> of the STRING values starting with the
+   * given prefix. Values sharing a prefix are contiguous in the sorted dictionary, so the range is found with 2 binary
+   * searches.
+   * <p>If the prefix contains the padding character, the range might also contain values not starting with the
+   * prefix, so the caller should check the values inside the range.
+   *
+   * @param prefix Prefix of the values
+   * @return Array of 2 elements: start dictionary id (inclusive) and end dictionary id (exclusive)
+   */
+  public int[] getDictIdRangeForPrefix(String prefix) {
+    byte[] buffer = getBuffer();
+
+    // Find the first value not smaller than the prefix
+    int low = 0;
+    int high = _length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (getPaddedString(mid, buffer).compareTo(prefix) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    int startDictId = low;
+
+    // Find the first value after the start not starting with the prefix
+    high = _length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (getPaddedString(mid, buffer).startsWith(prefix)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return new int[]{startDictId, low};
+  }
+
   protected String addPadding(String value) {
     byte[] valueBytes = value.getBytes(UTF_8);
     int length = valueBytes.length;
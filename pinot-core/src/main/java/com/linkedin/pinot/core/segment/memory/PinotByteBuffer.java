@@ -372,6 +372,7 @@ public class PinotByteBuffer extends PinotDataBuffer {
       return;
     }
     MmapUtils.unloadByteBuffer(buffer);
+    releaseAllocation();
     if (raf != null) {
       try {
         raf.close();
@@ -47,6 +47,9 @@ public abstract class PinotDataBuffer implements AutoCloseable {
 
   private static boolean USE_LBUFFER = false;
   protected boolean owner;
+  // Memory charged for this buffer, set only on the owner created by the static factory methods
+  private PinotDataBufferMemoryManager.Allocation allocation;
+
   /**
    * Fully load the file in to the in-memory buffer
    * @param file file containing index data
@@ -76,13 +79,19 @@ public abstract class PinotDataBuffer implements AutoCloseable {
       ReadMode readMode, FileChannel.MapMode openMode, String context)
       throws IOException {
     Preconditions.checkNotNull(file, "Index file can not be null");
+    PinotDataBuffer buffer;
+    PinotDataBufferMemoryManager.AllocationType allocationType;
     if (readMode == ReadMode.heap) {
-      return loadFromFile(file, startPosition, length, context);
+      buffer = loadFromFile(file, startPosition, length, context);
+      allocationType = PinotDataBufferMemoryManager.AllocationType.DIRECT;
     } else if (readMode == ReadMode.mmap) {
-      return mapFromFile(file, startPosition, length, openMode, context);
+      buffer = mapFromFile(file, startPosition, length, openMode, context);
+      allocationType = PinotDataBufferMemoryManager.AllocationType.MAPPED;
     } else {
       throw new RuntimeException("Unknown readmode: " + readMode.name());
     }
+    buffer.allocation = PinotDataBufferMemoryManager.getInstance().recordAllocation(allocationType, length);
+    return buffer;
   }
 
   private static PinotDataBuffer mapFromFile(File file, long startPosition, long length, FileChannel.MapMode openMode,
@@ -110,16 +119,40 @@ public abstract class PinotDataBuffer implements AutoCloseable {
   }
 
   public static PinotDataBuffer allocateDirect(long size, String description) {
+    PinotDataBuffer buffer;
     if (USE_LBUFFER) {
-      return PinotLByteBuffer.allocateDirect(size);
+      buffer = PinotLByteBuffer.allocateDirect(size);
     } else {
       if (description == null || description.length() == 0) {
         description = " no description";
       }
-      return PinotByteBuffer.allocateDirect(size, description);
+      buffer = PinotByteBuffer.allocateDirect(size, description);
+    }
+    buffer.allocation =
+        PinotDataBufferMemoryManager.getInstance().recordAllocation(PinotDataBufferMemoryManager.AllocationType.DIRECT,
+            size);
+    return buffer;
+  }
+
+  /**
+   * Releases the memory charged for this buffer in the {@link PinotDataBufferMemoryManager}. Called by the owner
+   * when closing the buffer.
+   */
+  protected void releaseAllocation() {
+    if (allocation != null) {
+      allocation.release();
+      allocation = null;
     }
   }
 
+  /**
+   * Transfers the memory charged for this buffer along with the ownership.
+   */
+  protected void transferAllocationTo(PinotDataBuffer rhs) {
+    rhs.allocation = allocation;
+    allocation = null;
+  }
+
   /**
    * Duplicate the buffer without transfering ownership.
    * The new buffer will share the underlying data buffer (no data copy) and it's bounds.
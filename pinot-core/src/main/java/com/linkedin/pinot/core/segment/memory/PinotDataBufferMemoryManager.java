@@ -0,0 +1,493 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.memory;
+
+import com.linkedin.pinot.common.metrics.ServerGauge;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>PinotDataBufferMemoryManager</code> class is the process-wide accountant of the off-heap memory held by
+ * {@link PinotDataBuffer}s.
+ * <p>Every buffer allocated through {@link PinotDataBuffer#allocateDirect(long, String)} or
+ * {@link PinotDataBuffer#fromFile} is charged to the table and segment of the {@link Scope} open on the allocating
+ * thread (or to {@link #UNATTRIBUTED} if there is none), and released when the owning buffer is closed.
+ * <p>The bulk allocations (segment loads and consuming segment allocations) first reserve their estimated size with
+ * {@link #reserve(String, String, AllocationType, long)}. The reservation waits while it does not fit into the
+ * configured budgets, and fails with a {@link BudgetExceededException} if it still does not fit after the reservation
+ * timeout. The allocations charged to the segment within the reservation scope consume the reservation, so that they
+ * are not counted twice. The other allocations (e.g. query processing) are only accounted, never refused.
+ */
+@ThreadSafe
+public class PinotDataBufferMemoryManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PinotDataBufferMemoryManager.class);
+  private static final PinotDataBufferMemoryManager INSTANCE = new PinotDataBufferMemoryManager();
+
+  public static final String UNATTRIBUTED = "unattributed";
+
+  // Configs, 0 means unlimited
+  public static final String MAX_DIRECT_BYTES_KEY = "max.direct.bytes";
+  public static final String MAX_MAPPED_BYTES_KEY = "max.mapped.bytes";
+  public static final String MAX_TABLE_BYTES_KEY = "max.table.bytes";
+  public static final String RESERVATION_TIMEOUT_MS_KEY = "reservation.timeout.ms";
+  public static final long DEFAULT_RESERVATION_TIMEOUT_MS = 60_000L;
+
+  public enum AllocationType {
+    DIRECT,
+    MAPPED
+  }
+
+  private static final ThreadLocal<Account> CURRENT_ACCOUNT = new ThreadLocal<>();
+  private static final ThreadLocal<Scope> CURRENT_RESERVATION = new ThreadLocal<>();
+
+  private final ConcurrentMap<String, Account> _accounts = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, AtomicLong> _tableBytes = new ConcurrentHashMap<>();
+  private final AtomicLong _directBytes = new AtomicLong();
+  private final AtomicLong _mappedBytes = new AtomicLong();
+
+  private volatile long _maxDirectBytes;
+  private volatile long _maxMappedBytes;
+  private volatile long _maxTableBytes;
+  private volatile long _reservationTimeoutMs = DEFAULT_RESERVATION_TIMEOUT_MS;
+  private volatile ServerMetrics _serverMetrics;
+
+  // Guarded by this
+  private long _reservedDirectBytes;
+  private long _reservedMappedBytes;
+  private final Map<String, Long> _reservedTableBytes = new HashMap<>();
+  // Updated under this, read without lock when releasing memory
+  private volatile int _numWaiters;
+
+  public static PinotDataBufferMemoryManager getInstance() {
+    return INSTANCE;
+  }
+
+  // For tests only
+  PinotDataBufferMemoryManager() {
+  }
+
+  /**
+   * Initializes the budgets from the given configuration (with keys relative to the memory config prefix), and the
+   * metrics to report the memory usage to.
+   */
+  public void init(@Nonnull Configuration config, @Nullable ServerMetrics serverMetrics) {
+    setBudgets(config.getLong(MAX_DIRECT_BYTES_KEY, 0L), config.getLong(MAX_MAPPED_BYTES_KEY, 0L),
+        config.getLong(MAX_TABLE_BYTES_KEY, 0L),
+        config.getLong(RESERVATION_TIMEOUT_MS_KEY, DEFAULT_RESERVATION_TIMEOUT_MS));
+    _serverMetrics = serverMetrics;
+    if (serverMetrics != null) {
+      serverMetrics.setValueOfGlobalGauge(ServerGauge.DATA_BUFFER_DIRECT_BYTES, _directBytes.get());
+      serverMetrics.setValueOfGlobalGauge(ServerGauge.DATA_BUFFER_MAPPED_BYTES, _mappedBytes.get());
+    }
+  }
+
+  public synchronized void setBudgets(long maxDirectBytes, long maxMappedBytes, long maxTableBytes,
+      long reservationTimeoutMs) {
+    _maxDirectBytes = maxDirectBytes;
+    _maxMappedBytes = maxMappedBytes;
+    _maxTableBytes = maxTableBytes;
+    _reservationTimeoutMs = reservationTimeoutMs;
+    LOGGER.info("Set off-heap memory budgets: direct {} bytes, mapped {} bytes, per table {} bytes (0 for unlimited), "
+        + "reservation timeout {}ms", maxDirectBytes, maxMappedBytes, maxTableBytes, reservationTimeoutMs);
+    notifyAll();
+  }
+
+  /**
+   * Reserves the given number of bytes for the given table and segment, waiting up to the reservation timeout for them
+   * to fit into the budgets, and opens a {@link Scope} charging the allocations of the current thread to the segment.
+   * <p>The allocations of the given type charged to the segment within the scope are taken out of the reservation as
+   * they are accounted, and the rest of the reservation is released when the scope is closed.
+   *
+   * @throws BudgetExceededException If the bytes do not fit into the budgets before the reservation timeout
+   */
+  @Nonnull
+  public Scope reserve(@Nonnull String tableName, @Nonnull String segmentName, @Nonnull AllocationType type,
+      long numBytes) {
+    if (numBytes > 0) {
+      acquire(tableName, segmentName, type, numBytes);
+    }
+    return new Scope(getAccount(tableName, segmentName), type, Math.max(numBytes, 0L));
+  }
+
+  /**
+   * Opens a {@link Scope} charging the allocations of the current thread to the given account, e.g. to charge lazy
+   * allocations to the segment captured with {@link #getCurrentAccount()} at load time.
+   */
+  @Nonnull
+  public Scope enterScope(@Nullable Account account) {
+    return new Scope(account, null, 0L);
+  }
+
+  /**
+   * Returns the account the allocations of the current thread are charged to, or <code>null</code> if there is none.
+   */
+  @Nullable
+  public static Account getCurrentAccount() {
+    return CURRENT_ACCOUNT.get();
+  }
+
+  private synchronized void acquire(String tableName, String segmentName, AllocationType type, long numBytes) {
+    String reason = checkBudgets(tableName, type, numBytes);
+    if (reason != null) {
+      if (!canEverFit(type, numBytes)) {
+        throw budgetExceeded(tableName, segmentName, type, numBytes, reason);
+      }
+      LOGGER.info("Queueing reservation of {} {} bytes for segment: {} of table: {}: {}", numBytes, type, segmentName,
+          tableName, reason);
+      ServerMetrics serverMetrics = _serverMetrics;
+      if (serverMetrics != null) {
+        serverMetrics.addMeteredGlobalValue(ServerMeter.DATA_BUFFER_RESERVATIONS_QUEUED, 1L);
+      }
+      long deadline = System.currentTimeMillis() + _reservationTimeoutMs;
+      _numWaiters++;
+      try {
+        while (reason != null) {
+          long waitTimeMs = deadline - System.currentTimeMillis();
+          if (waitTimeMs <= 0) {
+            throw budgetExceeded(tableName, segmentName, type, numBytes, reason);
+          }
+          wait(waitTimeMs);
+          reason = checkBudgets(tableName, type, numBytes);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new BudgetExceededException(
+            "Interrupted while waiting to reserve memory for segment: " + segmentName + " of table: " + tableName);
+      } finally {
+        _numWaiters--;
+      }
+    }
+    if (type == AllocationType.DIRECT) {
+      _reservedDirectBytes += numBytes;
+    } else {
+      _reservedMappedBytes += numBytes;
+    }
+    Long reservedTableBytes = _reservedTableBytes.get(tableName);
+    _reservedTableBytes.put(tableName, reservedTableBytes == null ? numBytes : reservedTableBytes + numBytes);
+  }
+
+  private synchronized void releaseReservation(String tableName, AllocationType type, long numBytes) {
+    if (type == AllocationType.DIRECT) {
+      _reservedDirectBytes -= numBytes;
+    } else {
+      _reservedMappedBytes -= numBytes;
+    }
+    long reservedTableBytes = _reservedTableBytes.get(tableName) - numBytes;
+    if (reservedTableBytes == 0) {
+      _reservedTableBytes.remove(tableName);
+    } else {
+      _reservedTableBytes.put(tableName, reservedTableBytes);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Returns the reason why the given bytes do not fit into the budgets, or <code>null</code> if they fit.
+   */
+  @Nullable
+  private String checkBudgets(String tableName, AllocationType type, long numBytes) {
+    if (type == AllocationType.DIRECT) {
+      if (_maxDirectBytes > 0 && _directBytes.get() + _reservedDirectBytes + numBytes > _maxDirectBytes) {
+        return "direct memory budget of " + _maxDirectBytes + " bytes exceeded (used: " + _directBytes.get()
+            + ", reserved: " + _reservedDirectBytes + ")";
+      }
+    } else {
+      if (_maxMappedBytes > 0 && _mappedBytes.get() + _reservedMappedBytes + numBytes > _maxMappedBytes) {
+        return "mapped memory budget of " + _maxMappedBytes + " bytes exceeded (used: " + _mappedBytes.get()
+            + ", reserved: " + _reservedMappedBytes + ")";
+      }
+    }
+    if (_maxTableBytes > 0) {
+      long tableBytes = getTableBytes(tableName);
+      Long reservedTableBytes = _reservedTableBytes.get(tableName);
+      if (reservedTableBytes != null) {
+        tableBytes += reservedTableBytes;
+      }
+      if (tableBytes + numBytes > _maxTableBytes) {
+        return "table memory budget of " + _maxTableBytes + " bytes exceeded (used and reserved: " + tableBytes + ")";
+      }
+    }
+    return null;
+  }
+
+  private boolean canEverFit(AllocationType type, long numBytes) {
+    long maxBytes = type == AllocationType.DIRECT ? _maxDirectBytes : _maxMappedBytes;
+    return (maxBytes <= 0 || numBytes <= maxBytes) && (_maxTableBytes <= 0 || numBytes <= _maxTableBytes);
+  }
+
+  private BudgetExceededException budgetExceeded(String tableName, String segmentName, AllocationType type,
+      long numBytes, String reason) {
+    ServerMetrics serverMetrics = _serverMetrics;
+    if (serverMetrics != null) {
+      serverMetrics.addMeteredGlobalValue(ServerMeter.DATA_BUFFER_RESERVATIONS_REFUSED, 1L);
+    }
+    return new BudgetExceededException(
+        "Cannot reserve " + numBytes + " " + type + " bytes for segment: " + segmentName + " of table: " + tableName
+            + ": " + reason);
+  }
+
+  /**
+   * Takes the given bytes out of the remaining bytes of the reservation, once they have been accounted.
+   */
+  private synchronized void consumeReservation(Scope reservation, long numBytes) {
+    long consumedBytes = Math.min(reservation._remainingBytes, numBytes);
+    if (consumedBytes > 0) {
+      reservation._remainingBytes -= consumedBytes;
+      releaseReservation(reservation._account._tableName, reservation._reservedType, consumedBytes);
+    }
+  }
+
+  private synchronized void releaseRemainingReservation(Scope reservation) {
+    if (reservation._remainingBytes > 0) {
+      releaseReservation(reservation._account._tableName, reservation._reservedType, reservation._remainingBytes);
+      reservation._remainingBytes = 0;
+    }
+  }
+
+  /**
+   * Charges a new buffer to the account of the current thread. Called by {@link PinotDataBuffer} on allocation, and
+   * for the memory mapped outside of {@link PinotDataBuffer} (e.g. by the star-tree builder). The returned allocation
+   * must be released when the memory is freed.
+   */
+  @Nonnull
+  public Allocation recordAllocation(@Nonnull AllocationType type, long numBytes) {
+    Account account = CURRENT_ACCOUNT.get();
+    if (account == null) {
+      account = getAccount(UNATTRIBUTED, UNATTRIBUTED);
+    } else if (!_accounts.containsKey(account._key)) {
+      // The account was removed when it became empty, add it back
+      _accounts.putIfAbsent(account._key, account);
+    }
+    update(account, type, numBytes);
+    Scope reservation = CURRENT_RESERVATION.get();
+    if (reservation != null && reservation._account == account && reservation._reservedType == type) {
+      consumeReservation(reservation, numBytes);
+    }
+    return new Allocation(account, type, numBytes);
+  }
+
+  private void update(Account account, AllocationType type, long numBytes) {
+    long totalBytes;
+    ServerGauge gauge;
+    if (type == AllocationType.DIRECT) {
+      account._directBytes.addAndGet(numBytes);
+      totalBytes = _directBytes.addAndGet(numBytes);
+      gauge = ServerGauge.DATA_BUFFER_DIRECT_BYTES;
+    } else {
+      account._mappedBytes.addAndGet(numBytes);
+      totalBytes = _mappedBytes.addAndGet(numBytes);
+      gauge = ServerGauge.DATA_BUFFER_MAPPED_BYTES;
+    }
+    getTableCounter(account._tableName).addAndGet(numBytes);
+
+    ServerMetrics serverMetrics = _serverMetrics;
+    if (serverMetrics != null) {
+      serverMetrics.setValueOfGlobalGauge(gauge, totalBytes);
+      if (!UNATTRIBUTED.equals(account._tableName)) {
+        serverMetrics.addValueToTableGauge(account._tableName,
+            type == AllocationType.DIRECT ? ServerGauge.TABLE_DATA_BUFFER_DIRECT_BYTES
+                : ServerGauge.TABLE_DATA_BUFFER_MAPPED_BYTES, numBytes);
+      }
+    }
+  }
+
+  private void release(Allocation allocation) {
+    Account account = allocation._account;
+    update(account, allocation._type, -allocation._numBytes);
+    if (account._directBytes.get() == 0 && account._mappedBytes.get() == 0) {
+      _accounts.remove(account._key, account);
+    }
+    // Only take the lock if some reservation may be waiting for the memory
+    if (_numWaiters > 0) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  private Account getAccount(String tableName, String segmentName) {
+    String key = tableName + '/' + segmentName;
+    Account account = _accounts.get(key);
+    if (account == null) {
+      Account newAccount = new Account(key, tableName, segmentName);
+      account = _accounts.putIfAbsent(key, newAccount);
+      if (account == null) {
+        account = newAccount;
+      }
+    }
+    return account;
+  }
+
+  private AtomicLong getTableCounter(String tableName) {
+    AtomicLong counter = _tableBytes.get(tableName);
+    if (counter == null) {
+      AtomicLong newCounter = new AtomicLong();
+      counter = _tableBytes.putIfAbsent(tableName, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    return counter;
+  }
+
+  public long getDirectBytes() {
+    return _directBytes.get();
+  }
+
+  public long getMappedBytes() {
+    return _mappedBytes.get();
+  }
+
+  public long getTableBytes(@Nonnull String tableName) {
+    AtomicLong counter = _tableBytes.get(tableName);
+    return counter == null ? 0L : counter.get();
+  }
+
+  /**
+   * Returns a snapshot of the accounts with memory charged to them, for debugging purposes.
+   */
+  @Nonnull
+  public List<Account> getAccounts() {
+    return new ArrayList<>(_accounts.values());
+  }
+
+  /**
+   * Memory charged to a segment of a table.
+   */
+  public static class Account {
+    private final String _key;
+    private final String _tableName;
+    private final String _segmentName;
+    private final AtomicLong _directBytes = new AtomicLong();
+    private final AtomicLong _mappedBytes = new AtomicLong();
+
+    private Account(String key, String tableName, String segmentName) {
+      _key = key;
+      _tableName = tableName;
+      _segmentName = segmentName;
+    }
+
+    public String getTableName() {
+      return _tableName;
+    }
+
+    public String getSegmentName() {
+      return _segmentName;
+    }
+
+    public long getDirectBytes() {
+      return _directBytes.get();
+    }
+
+    public long getMappedBytes() {
+      return _mappedBytes.get();
+    }
+  }
+
+  /**
+   * Scope within which the allocations of the current thread are charged to an account. Scopes must be closed by the
+   * thread that opened them, in reverse order.
+   */
+  public class Scope implements AutoCloseable {
+    private final Account _previousAccount;
+    private final Scope _previousReservation;
+    private final Account _account;
+    private final AllocationType _reservedType;
+    private final boolean _isReservation;
+    // Guarded by the memory manager
+    private long _remainingBytes;
+    private boolean _closed;
+
+    private Scope(@Nullable Account account, @Nullable AllocationType reservedType, long reservedBytes) {
+      _previousAccount = CURRENT_ACCOUNT.get();
+      _previousReservation = CURRENT_RESERVATION.get();
+      _account = account;
+      _reservedType = reservedType;
+      _isReservation = reservedBytes > 0;
+      _remainingBytes = reservedBytes;
+      if (account != null) {
+        CURRENT_ACCOUNT.set(account);
+      }
+      if (_isReservation) {
+        CURRENT_RESERVATION.set(this);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (_closed) {
+        return;
+      }
+      _closed = true;
+      if (_previousAccount != null) {
+        CURRENT_ACCOUNT.set(_previousAccount);
+      } else {
+        CURRENT_ACCOUNT.remove();
+      }
+      if (_isReservation) {
+        if (_previousReservation != null) {
+          CURRENT_RESERVATION.set(_previousReservation);
+        } else {
+          CURRENT_RESERVATION.remove();
+        }
+        releaseRemainingReservation(this);
+      }
+    }
+  }
+
+  /**
+   * Memory charged for a buffer, released once when the owning buffer is closed.
+   */
+  public class Allocation {
+    private final Account _account;
+    private final AllocationType _type;
+    private final long _numBytes;
+    private final AtomicBoolean _released = new AtomicBoolean();
+
+    private Allocation(Account account, AllocationType type, long numBytes) {
+      _account = account;
+      _type = type;
+      _numBytes = numBytes;
+    }
+
+    public void release() {
+      if (_released.compareAndSet(false, true)) {
+        PinotDataBufferMemoryManager.this.release(this);
+      }
+    }
+  }
+
+  public static class BudgetExceededException extends RuntimeException {
+    public BudgetExceededException(String message) {
+      super(message);
+    }
+  }
+}
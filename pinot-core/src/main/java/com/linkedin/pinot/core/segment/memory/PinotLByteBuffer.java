@@ -147,6 +147,9 @@ public class PinotLByteBuffer extends PinotDataBuffer {
     if (rhs != this) {
       rhsBuffer.buffer = buffer;
       rhsBuffer.owner = owner;
+      if (owner) {
+        transferAllocationTo(rhsBuffer);
+      }
       this.owner = false;
     }
   }
@@ -175,6 +178,7 @@ public class PinotLByteBuffer extends PinotDataBuffer {
 
       buffer.release();
       buffer = null;
+      releaseAllocation();
     }
   }
 
@@ -29,7 +29,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
-import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -39,13 +38,6 @@ import org.slf4j.LoggerFactory;
 class SegmentLocalFSDirectory extends SegmentDirectory {
   private static Logger LOGGER = LoggerFactory.getLogger(SegmentLocalFSDirectory.class);
 
-  // matches most systems
-  private static final int PAGE_SIZE_BYTES = 4096;
-  // Prefetch limit...arbitrary but related to common server memory and data size profiles
-  private static final long MAX_MMAP_PREFETCH_PAGES = 100 * 1024 * 1024 * 1024L / PAGE_SIZE_BYTES;
-  private static final double PREFETCH_SLOWDOWN_PCT = 0.67;
-  private static AtomicLong prefetchedPages = new AtomicLong(0);
-
   private final File segmentDirectory;
   SegmentLock segmentLock;
   private SegmentMetadataImpl segmentMetadata;
@@ -237,52 +229,9 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
       default:
         throw new RuntimeException("Unknown index type: " + type.name());
     }
-    if (readMode == ReadMode.mmap) {
-      prefetchMmapData(buffer);
-    }
     return buffer;
   }
 
-  private void prefetchMmapData(PinotDataBuffer buffer) {
-    // mmap mode causes high number of major page faults after server restart.
-    // This impacts latency especially for prod "online" use cases that require low latency.
-    // This function proactively loads pages in memory to lower the variance in
-    // latencies after server startup.
-
-    // This has to handle two different data size profiles
-    // 1. Servers with data size close to main memory size
-    // 2. Servers with very large data sizes (terabytes)
-    // To prevent it from loading terabytes of data on startup, we put a limit
-    // on the number of pages this will prefetch (OS will do something more on top of this)
-    // The logic here is as follows:
-    // Server doesn't know total data size it is expected to serve. So this will
-    // load all data till 2/3rd (PREFETCH_SLOWDOWN_PCT) of the configured limit. After that it will only
-    // read the header page. We read headers because that has more frequently accessed
-    // information which will have bigger impact on the latency. This can go over the limit
-    // because it doesn't stop at any point. But that's not an issue considering this is
-    // an optimization.
-
-    // Prefetch limit and slowdown percentage are arbitrary
-    if (prefetchedPages.get() >= MAX_MMAP_PREFETCH_PAGES) {
-      return;
-    }
-
-    final long prefetchSlowdownPageLimit = (long) (PREFETCH_SLOWDOWN_PCT * MAX_MMAP_PREFETCH_PAGES);
-    if (prefetchedPages.get() >= prefetchSlowdownPageLimit) {
-      if (0 < buffer.size()) {
-        buffer.getByte(0);
-        prefetchedPages.incrementAndGet();
-      }
-    } else {
-      // pos needs to be long because buffer.size() is 32 bit but
-      // adding 4k can make it go over int size
-      for (long pos = 0; pos < buffer.size() && prefetchedPages.get() < prefetchSlowdownPageLimit; pos += PAGE_SIZE_BYTES) {
-        buffer.getByte((int)pos);
-        prefetchedPages.incrementAndGet();
-      }
-    }
-  }
-
   private boolean hasIndexFor(String column, ColumnIndexType type) {
     return columnIndexDirectory.hasIndexFor(column, type);
   }
@@ -19,7 +19,9 @@ import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
 import com.clearspring.analytics.stream.cardinality.HyperLogLog;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec.DerivedMetricType;
+import com.linkedin.pinot.core.query.aggregation.function.customobject.KllSketch;
 import com.linkedin.pinot.core.startree.hll.HllUtil;
+import com.linkedin.pinot.core.startree.kll.KllUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -28,12 +30,12 @@ import java.util.List;
 
 /**
  * fromBytes and toBytes methods are used only in {@link OffHeapStarTreeBuilder}, as read and write to temp files.
- * Thus no serialization of hll type to string is necessary at these steps.
+ * Thus no serialization of hll and kll types to string is necessary at these steps.
  */
 public class MetricBuffer {
 
   /**
-   * stored as number or hyperLogLog, but serialized out as number or string
+   * stored as number, hyperLogLog or kll sketch, but serialized out as number or string
    */
   private final Object[] values;
   private final List<MetricFieldSpec> metricFieldSpecs;
@@ -51,6 +53,9 @@ public class MetricBuffer {
         // deep copy of hll field
         this.values[i] = HllUtil.clone((HyperLogLog)copyValue,
             HllUtil.getLog2mFromHllFieldSize(copy.metricFieldSpecs.get(i).getFieldSize()));
+      } else if (copyValue instanceof KllSketch) {
+        // deep copy of kll field
+        this.values[i] = ((KllSketch) copyValue).copy();
       } else if (copyValue instanceof Number) {
         // number field is immutable
         this.values[i] = copyValue;
@@ -71,6 +76,10 @@ public class MetricBuffer {
         byte[] hllBytes = new byte[metric.getFieldSize()]; // TODO: buffer reuse
         buffer.get(hllBytes);
         values[i] = HllUtil.buildHllFromBytes(hllBytes);
+      } else if (metric.getDerivedMetricType() == DerivedMetricType.KLL) {
+        byte[] kllBytes = new byte[metric.getFieldSize()];
+        buffer.get(kllBytes);
+        values[i] = KllSketch.fromBytes(kllBytes);
       } else {
         switch (metric.getDataType()) {
           case SHORT:
@@ -104,6 +113,8 @@ public class MetricBuffer {
       MetricFieldSpec metric = metricFieldSpecs.get(i);
       if (metric.getDerivedMetricType() == DerivedMetricType.HLL) {
         buffer.put(((HyperLogLog)values[i]).getBytes());
+      } else if (metric.getDerivedMetricType() == DerivedMetricType.KLL) {
+        buffer.put(KllUtil.convertKllToBytes((KllSketch) values[i], metric.getFieldSize()));
       } else {
         switch (metric.getDataType()) {
           case SHORT:
@@ -138,6 +149,8 @@ public class MetricBuffer {
         } catch (CardinalityMergeException e) {
           throw new RuntimeException(e);
         }
+      } else if (metric.getDerivedMetricType() == DerivedMetricType.KLL) {
+        ((KllSketch) values[i]).merge((KllSketch) metrics.values[i]);
       } else {
         switch (metric.getDataType()) {
           case SHORT:
@@ -168,8 +181,11 @@ public class MetricBuffer {
    * @return
    */
   public Object getValueConformToDataType(int index) {
-    if (metricFieldSpecs.get(index).getDerivedMetricType() == DerivedMetricType.HLL) {
+    MetricFieldSpec metricFieldSpec = metricFieldSpecs.get(index);
+    if (metricFieldSpec.getDerivedMetricType() == DerivedMetricType.HLL) {
       return HllUtil.convertHllToString((HyperLogLog) values[index]);
+    } else if (metricFieldSpec.getDerivedMetricType() == DerivedMetricType.KLL) {
+      return KllUtil.convertKllToString((KllSketch) values[index], metricFieldSpec.getFieldSize());
     } else {
       return values[index];
     }
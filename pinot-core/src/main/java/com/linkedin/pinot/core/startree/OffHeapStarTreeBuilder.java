@@ -50,6 +50,7 @@ import java.util.Queue;
 import java.util.Set;
 
 import com.linkedin.pinot.core.startree.hll.HllUtil;
+import com.linkedin.pinot.core.startree.kll.KllUtil;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -123,12 +124,15 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
   private int dimensionSizeBytes;
   private int metricSizeBytes;
   private File outDir;
-  private Map<String, HashBiMap<Object, Integer>> dictionaryMap;
+  private Map<String, StarTreeDimensionDictionary> dictionaryMap;
+  private StarTreeDimensionDictionary[] dictionaries;
 
   boolean debugMode = false;
   private int[] sortOrder;
   private int skipMaterializationCardinalityThreshold;
   private boolean enableOffHeapFormat;
+  private long sortBufferSizeInBytes;
+  private int numSortThreads;
 
   public void init(StarTreeBuilderConfig builderConfig) throws Exception {
     schema = builderConfig.schema;
@@ -138,6 +142,11 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     skipMaterializationForDimensions = builderConfig.getSkipMaterializationForDimensions();
     skipMaterializationCardinalityThreshold = builderConfig.getSkipMaterializationCardinalityThreshold();
     enableOffHeapFormat = builderConfig.isEnableOffHealpFormat();
+    sortBufferSizeInBytes = builderConfig.getSortBufferSizeInBytes();
+    numSortThreads = builderConfig.getNumSortThreads();
+    if (numSortThreads <= 0) {
+      numSortThreads = Runtime.getRuntime().availableProcessors();
+    }
 
     this.maxLeafRecords = builderConfig.maxLeafRecords;
     this.outDir = builderConfig.getOutDir();
@@ -163,8 +172,7 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       starValue = getAllStarValue(spec);
       dimensionNameToStarValueMap.put(dimensionName, starValue);
       dimensionTypes.add(spec.getDataType());
-      HashBiMap<Object, Integer> dictionary = HashBiMap.create();
-      dictionaryMap.put(dimensionName, dictionary);
+      dictionaryMap.put(dimensionName, new StarTreeDimensionDictionary());
     }
     // Treat DATE_TIME columns as dimensions, however we will never split on this dimension,
     // unless explicitly defined in split order
@@ -179,8 +187,7 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       starValue = getAllStarValue(spec);
       dimensionNameToStarValueMap.put(dateTimeName, starValue);
       dimensionTypes.add(spec.getDataType());
-      HashBiMap<Object, Integer> dictionary = HashBiMap.create();
-      dictionaryMap.put(dateTimeName, dictionary);
+      dictionaryMap.put(dateTimeName, new StarTreeDimensionDictionary());
     }
     // treat time column as just another dimension, only difference is that we will never split on
     // this dimension unless explicitly specified in split order
@@ -193,11 +200,14 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       Object starValue;
       starValue = getAllStarValue(timeFieldSpec);
       dimensionNameToStarValueMap.put(timeColumnName, starValue);
-      HashBiMap<Object, Integer> dictionary = HashBiMap.create();
-      dictionaryMap.put(schema.getTimeColumnName(), dictionary);
+      dictionaryMap.put(schema.getTimeColumnName(), new StarTreeDimensionDictionary());
     }
     dimensionSizeBytes = dimensionNames.size() * Integer.SIZE / 8;
     this.numDimensions = dimensionNames.size();
+    dictionaries = new StarTreeDimensionDictionary[numDimensions];
+    for (int i = 0; i < numDimensions; i++) {
+      dictionaries[i] = dictionaryMap.get(dimensionNames.get(i));
+    }
 
     // READ METRIC COLUMNS
     this.metricNames = new ArrayList<>();
@@ -259,8 +269,7 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     Map<String, Object> map = new HashMap<>();
     for (int i = 0; i < dimensionNames.size(); i++) {
       String dimName = dimensionNames.get(i);
-      BiMap<Integer, Object> inverseDictionary = dictionaryMap.get(dimName).inverse();
-      Object dimValue = inverseDictionary.get(dimensionKey.getDimension(i));
+      Object dimValue = dictionaries[i].getValue(dimensionKey.getDimension(i));
       if (dimValue == null) {
         dimValue = dimensionNameToStarValueMap.get(dimName);
       }
@@ -278,7 +287,6 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     DimensionBuffer dimension = new DimensionBuffer(numDimensions);
     for (int i = 0; i < dimensionNames.size(); i++) {
       String dimName = dimensionNames.get(i);
-      Map<Object, Integer> dictionary = dictionaryMap.get(dimName);
       Object dimValue = row.getValue(dimName);
       if (dimValue == null) {
         // TODO: Have another default value to represent STAR. Using default value to represent STAR
@@ -287,18 +295,19 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
         // star tree
         dimValue = dimensionNameToStarValueMap.get(dimName);
       }
-      if (!dictionary.containsKey(dimValue)) {
-        dictionary.put(dimValue, dictionary.size());
-      }
-      dimension.setDimension(i, dictionary.get(dimValue));
+      dimension.setDimension(i, dictionaries[i].getOrCreateId(dimValue));
     }
     // initialize raw data row
     Object[] metrics = new Object[numMetrics];
     for (int i = 0; i < numMetrics; i++) {
       String metName = metricNames.get(i);
-      if (schema.getMetricFieldSpecs().get(i).getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.HLL) {
+      MetricFieldSpec.DerivedMetricType derivedMetricType = schema.getMetricFieldSpecs().get(i).getDerivedMetricType();
+      if (derivedMetricType == MetricFieldSpec.DerivedMetricType.HLL) {
         // hll field is in string format, convert it to hll data type first
         metrics[i] = HllUtil.convertStringToHll((String) row.getValue(metName));
+      } else if (derivedMetricType == MetricFieldSpec.DerivedMetricType.KLL) {
+        // kll field is in string format, convert it to kll sketch first
+        metrics[i] = KllUtil.convertStringToKll((String) row.getValue(metName));
       } else {
         // no conversion for standard data types
         metrics[i] = row.getValue(metName);
@@ -347,8 +356,10 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     dataBuffer.flush();
     // Sort the data based on default sort order (split order + remaining dimensions)
     sort(dataFile, 0, rawRecordCount);
+    long sortEnd = System.currentTimeMillis();
     // Recursively construct the star tree, continuously sorting the data
     constructStarTree(starTreeRootIndexNode, 0, rawRecordCount, 0, dataFile);
+    long constructEnd = System.currentTimeMillis();
 
     // Split the leaf nodes on time column. This is only possible if we have not split on time-column name
     // yet, and time column is still preserved (ie not replaced by StarTreeNode.all()).
@@ -356,12 +367,18 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
         !dimensionsSplitOrder.contains(timeColumnName)) {
       splitLeafNodesOnTimeColumn();
     }
+    long splitEnd = System.currentTimeMillis();
 
     // Create aggregate rows for all nodes in the tree
     createAggDocForAllNodes(starTreeRootIndexNode);
     long end = System.currentTimeMillis();
     LOG.info("Took {} ms to build star tree index. Original records:{} Materialized record:{}",
         (end - start), rawRecordCount, aggRecordCount);
+    LOG.info("Star tree build time breakdown (ms): sort raw records:{} construct tree:{} split on time column:{} "
+            + "create aggregated docs:{}. Sort buffer size:{} bytes, sort threads:{}, peak RSS:{} bytes, used heap:{} "
+            + "bytes", (sortEnd - start), (constructEnd - sortEnd), (splitEnd - constructEnd), (end - splitEnd),
+        sortBufferSizeInBytes, numSortThreads, getPeakResidentSetSizeInBytes(),
+        Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
     starTree = new StarTree(starTreeRootIndexNode, dimensionNameToIndexMap);
     File treeBinary = new File(outDir, "star-tree.bin");
 
@@ -378,6 +395,29 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     dataBuffer.close();
   }
 
+  /**
+   * Returns the peak resident set size of the process in bytes (VmHWM in /proc/self/status), or -1 if not available
+   * (e.g. not on Linux).
+   */
+  private static long getPeakResidentSetSizeInBytes() {
+    File statusFile = new File("/proc/self/status");
+    if (!statusFile.exists()) {
+      return -1L;
+    }
+    try {
+      for (String line : FileUtils.readLines(statusFile)) {
+        if (line.startsWith("VmHWM:")) {
+          // e.g. "VmHWM:     123456 kB"
+          String[] fields = line.substring("VmHWM:".length()).trim().split("\\s+");
+          return Long.parseLong(fields[0]) * 1024L;
+        }
+      }
+    } catch (Exception e) {
+      LOG.debug("Caught exception while reading peak RSS from: {}", statusFile, e);
+    }
+    return -1L;
+  }
+
   /**
    * Create aggregated docs using BFS
    * @param node
@@ -532,7 +572,7 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       dimName = inverse.get(node.getDimensionName());
     }
     if (node.getDimensionValue() != StarTreeIndexNodeInterf.ALL) {
-      dimValue = dictionaryMap.get(dimName).inverse().get(node.getDimensionValue());
+      dimValue = dictionaryMap.get(dimName).getValue(node.getDimensionValue());
     }
 
     String formattedOutput = Objects.toStringHelper(node).add("nodeId", node.getNodeId())
@@ -598,8 +638,8 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       printFile(file, startDocId, endDocId);
     }
 
-    StarTreeDataTable dataSorter =
-        new StarTreeDataTable(file, dimensionSizeBytes, metricSizeBytes, getSortOrder());
+    StarTreeDataTable dataSorter = new StarTreeDataTable(file, dimensionSizeBytes, metricSizeBytes, getSortOrder(),
+        sortBufferSizeInBytes, numSortThreads);
     dataSorter.sort(startDocId, endDocId);
     if (debugMode) {
       LOG.info("AFTER SORTING");
@@ -755,15 +795,19 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
         new File(outDir, file.getName() + "_" + startDocId + "_" + endDocId + ".unique.tmp");
     DataOutputStream dos =
         new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+    boolean[] dimensionsToStar = new boolean[numDimensions];
+    for (int i = 0; i < numDimensions; i++) {
+      String dimensionName = dimensionNameToIndexMap.inverse().get(i);
+      dimensionsToStar[i] = i == splitDimensionId || (skipMaterializationForDimensions != null
+          && skipMaterializationForDimensions.contains(dimensionName));
+    }
     while (iterator1.hasNext()) {
       Pair<byte[], byte[]> next = iterator1.next();
       byte[] dimensionBuffer = next.getLeft();
       byte[] metricBuffer = next.getRight();
       DimensionBuffer dimensions = DimensionBuffer.fromBytes(dimensionBuffer);
       for (int i = 0; i < numDimensions; i++) {
-        String dimensionName = dimensionNameToIndexMap.inverse().get(i);
-        if (i == splitDimensionId || (skipMaterializationForDimensions != null
-            && skipMaterializationForDimensions.contains(dimensionName))) {
+        if (dimensionsToStar[i]) {
           dos.writeInt(StarTreeIndexNodeInterf.ALL);
         } else {
           dos.writeInt(dimensions.getDimension(i));
@@ -772,8 +816,8 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       dos.write(metricBuffer);
     }
     dos.close();
-    dataSorter =
-        new StarTreeDataTable(tempFile, dimensionSizeBytes, metricSizeBytes, getSortOrder());
+    dataSorter = new StarTreeDataTable(tempFile, dimensionSizeBytes, metricSizeBytes, getSortOrder(),
+        sortBufferSizeInBytes, numSortThreads);
     dataSorter.sort(0, endDocId - startDocId);
     if (debugMode) {
       printFile(tempFile, 0, endDocId - startDocId);
@@ -875,14 +919,14 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
   }
 
   private void toJson(JSONObject json, StarTreeIndexNode node,
-      Map<String, HashBiMap<Object, Integer>> dictionaryMap) throws Exception {
+      Map<String, StarTreeDimensionDictionary> dictionaryMap) throws Exception {
     String dimName = "ALL";
     Object dimValue = "ALL";
     if (node.getDimensionName() != StarTreeIndexNodeInterf.ALL) {
       dimName = dimensionNames.get(node.getDimensionName());
     }
     if (node.getDimensionValue() != StarTreeIndexNodeInterf.ALL) {
-      dimValue = dictionaryMap.get(dimName).inverse().get(node.getDimensionValue());
+      dimValue = dictionaryMap.get(dimName).getValue(node.getDimensionValue());
     }
     json.put("title", dimName + ":" + dimValue);
     Iterator<StarTreeIndexNode> childrenIterator = node.getChildrenIterator();
@@ -933,7 +977,7 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     return dimensionsSplitOrder;
   }
 
-  public Map<String, HashBiMap<Object, Integer>> getDictionaryMap() {
+  public Map<String, StarTreeDimensionDictionary> getDictionaryMap() {
     return dictionaryMap;
   }
 
@@ -86,7 +86,7 @@ public interface StarTreeBuilder {
    */
   List<String> getDimensionsSplitOrder();
 
-  Map<String, HashBiMap<Object, Integer>> getDictionaryMap();
+  Map<String, StarTreeDimensionDictionary> getDictionaryMap();
 
   HashBiMap<String, Integer> getDimensionNameToIndexMap();
 
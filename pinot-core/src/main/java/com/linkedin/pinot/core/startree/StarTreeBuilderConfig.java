@@ -38,6 +38,8 @@ public class StarTreeBuilderConfig {
   private int skipMaterializationCardinalityThreshold =
       StarTreeIndexSpec.DEFAULT_SKIP_MATERIALIZATION_CARDINALITY_THRESHOLD;
   private boolean enableOffHealpFormat;
+  private long sortBufferSizeInBytes = StarTreeIndexSpec.DEFAULT_SORT_BUFFER_SIZE_IN_BYTES;
+  private int numSortThreads = StarTreeIndexSpec.DEFAULT_NUM_SORT_THREADS;
 
   public StarTreeBuilderConfig() {
   }
@@ -124,4 +126,36 @@ public class StarTreeBuilderConfig {
   public void setEnableOffHealpFormat(boolean enableOffHealpFormat) {
     this.enableOffHealpFormat = enableOffHealpFormat;
   }
+
+  /**
+   * Returns the memory budget in bytes for sorting the records, 0 to sort the records in place in the memory mapped
+   * file without any budget.
+   */
+  public long getSortBufferSizeInBytes() {
+    return sortBufferSizeInBytes;
+  }
+
+  /**
+   * Set the memory budget in bytes for sorting the records. If the records to sort do not fit in the budget, they are
+   * sorted with an external merge sort.
+   * @param sortBufferSizeInBytes
+   */
+  public void setSortBufferSizeInBytes(long sortBufferSizeInBytes) {
+    this.sortBufferSizeInBytes = sortBufferSizeInBytes;
+  }
+
+  /**
+   * Returns the number of threads to sort the chunks of the external merge sort, 0 to use the number of processors.
+   */
+  public int getNumSortThreads() {
+    return numSortThreads;
+  }
+
+  /**
+   * Set the number of threads to sort the chunks of the external merge sort.
+   * @param numSortThreads
+   */
+  public void setNumSortThreads(int numSortThreads) {
+    this.numSortThreads = numSortThreads;
+  }
 }
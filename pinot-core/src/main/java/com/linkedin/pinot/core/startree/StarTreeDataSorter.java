@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.startree;
 
 import com.linkedin.pinot.common.utils.Pairs.IntPair;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -44,6 +45,7 @@ public class StarTreeDataSorter {
   Logger LOGGER = LoggerFactory.getLogger(StarTreeDataSorter.class);
 
   final MMapBuffer mappedByteBuffer;
+  private final PinotDataBufferMemoryManager.Allocation allocation;
 
   private int dimensionSizeInBytes;
   private int metricSizeInBytes;
@@ -54,6 +56,8 @@ public class StarTreeDataSorter {
     this.metricSizeInBytes = metricSizeInBytes;
     this.totalSizeInBytes = dimensionSizeInBytes + metricSizeInBytes;
     mappedByteBuffer = new MMapBuffer(file, 0, file.length(), MMapMode.READ_WRITE);
+    allocation = PinotDataBufferMemoryManager.getInstance()
+        .recordAllocation(PinotDataBufferMemoryManager.AllocationType.MAPPED, file.length());
   }
 
   /**
@@ -143,6 +147,7 @@ public class StarTreeDataSorter {
       } catch (IOException e) {
         LOGGER.error("Exception caught while trying to close byte-buffer", e);
       }
+      allocation.release();
     }
   }
 
@@ -17,15 +17,35 @@ package com.linkedin.pinot.core.startree;
 
 import com.linkedin.pinot.common.utils.Pairs.IntPair;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import it.unimi.dsi.fastutil.Arrays;
 import it.unimi.dsi.fastutil.Swapper;
 import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.IntComparator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,18 +58,24 @@ import xerial.larray.mmap.MMapMode;
 /**
  * The StarTreeDataTable should be able to handle the memory range greater than 2GB.
  * As a result, all fields related to memory position should be declared as long to avoid int overflow.
+ * <p>When a sort buffer size is configured, ranges of records that do not fit in the buffer are sorted with an external
+ * merge sort: chunks of records fitting in the buffer are sorted in parallel into run files, which are then merged
+ * back into the data file.
  */
 public class StarTreeDataTable {
   private static final Logger LOGGER = LoggerFactory.getLogger(StarTreeDataTable.class);
 
   private static final Int2ObjectMap<IntPair> EMPTY_INT_OBJECT_MAP = new Int2ObjectLinkedOpenHashMap<>();
   private static final ByteOrder nativeByteOrder = ByteOrder.nativeOrder();
+  private static final int MERGE_BUFFER_SIZE_IN_BYTES = 64 * 1024;
 
   private File file;
   private int dimensionSizeInBytes;
   private int metricSizeInBytes;
   private int totalSizeInBytes;
   final int[] sortOrder;
+  private final long sortBufferSizeInBytes;
+  private final int numSortThreads;
 
   // Re-usable buffers
   private LBuffer dimLbuf1;
@@ -58,11 +84,22 @@ public class StarTreeDataTable {
   private LBufferAPI dimMetLbuf2;
 
   public StarTreeDataTable(File file, int dimensionSizeInBytes, int metricSizeInBytes, int[] sortOrder) {
+    this(file, dimensionSizeInBytes, metricSizeInBytes, sortOrder, 0L, 1);
+  }
+
+  /**
+   * @param sortBufferSizeInBytes Memory budget for sorting records, 0 to always sort the records in place
+   * @param numSortThreads Number of threads to sort the chunks of the external merge sort
+   */
+  public StarTreeDataTable(File file, int dimensionSizeInBytes, int metricSizeInBytes, int[] sortOrder,
+      long sortBufferSizeInBytes, int numSortThreads) {
     this.file = file;
     this.dimensionSizeInBytes = dimensionSizeInBytes;
     this.metricSizeInBytes = metricSizeInBytes;
     this.sortOrder = sortOrder;
     this.totalSizeInBytes = dimensionSizeInBytes + metricSizeInBytes;
+    this.sortBufferSizeInBytes = sortBufferSizeInBytes;
+    this.numSortThreads = Math.max(numSortThreads, 1);
 
     dimLbuf1 = new LBuffer(dimensionSizeInBytes);
     dimLbuf2 = new LBuffer(dimensionSizeInBytes);
@@ -76,19 +113,230 @@ public class StarTreeDataTable {
    * @param endRecordId exclusive
    */
   public void sort(int startRecordId, int endRecordId) {
-    final MMapBuffer mappedByteBuffer;
+    int numRecords = endRecordId - startRecordId;
+    // The in place sort maps all the records, and keeps 3 int arrays of the size of the number of records
+    if (sortBufferSizeInBytes > 0
+        && numRecords * (long) (totalSizeInBytes + 3 * V1Constants.Numbers.INTEGER_SIZE) > sortBufferSizeInBytes) {
+      externalSort(startRecordId, numRecords);
+      return;
+    }
+
+    MMapBuffer mappedByteBuffer = null;
+    PinotDataBufferMemoryManager.Allocation allocation = null;
     try {
-      int numRecords = endRecordId - startRecordId;
       final long startOffset = startRecordId * (long) totalSizeInBytes;
 
       // Sort the docIds without actually moving the docs themselves.
       mappedByteBuffer = new MMapBuffer(file, startOffset, numRecords * (long) totalSizeInBytes, MMapMode.READ_WRITE);
+      allocation = recordMapping(numRecords * (long) totalSizeInBytes);
       final int[] sortedDocIds = getSortedDocIds(mappedByteBuffer, totalSizeInBytes, dimensionSizeInBytes, numRecords);
 
       // Re-arrange the docs as per the sorted docId order.
       sortMmapBuffer(mappedByteBuffer, totalSizeInBytes, numRecords, sortedDocIds);
     } catch (IOException e) {
       LOGGER.error("Exception caught while sorting records", e);
+    } finally {
+      closeMapping(mappedByteBuffer, allocation);
+    }
+  }
+
+  /**
+   * Sorts the records with an external merge sort, so that at most the sort buffer size of records are held in memory.
+   *
+   * @param startRecordId inclusive
+   * @param numRecords Number of records to sort
+   */
+  private void externalSort(int startRecordId, int numRecords) {
+    long startOffset = startRecordId * (long) totalSizeInBytes;
+    // Each sort thread holds one chunk of records and their sorted ids
+    long maxRecordsPerChunk =
+        sortBufferSizeInBytes / numSortThreads / (totalSizeInBytes + V1Constants.Numbers.INTEGER_SIZE);
+    final int numRecordsPerChunk =
+        (int) Math.max(Math.min(maxRecordsPerChunk, Integer.MAX_VALUE / totalSizeInBytes), 1);
+    int numChunks = (numRecords + numRecordsPerChunk - 1) / numRecordsPerChunk;
+    LOGGER.info("Sorting {} records with external merge sort in {} chunks of at most {} records using {} threads",
+        numRecords, numChunks, numRecordsPerChunk, numSortThreads);
+
+    List<File> runFiles = new ArrayList<>(numChunks);
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(numSortThreads, numChunks));
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      final FileChannel fileChannel = randomAccessFile.getChannel();
+
+      // Sort the chunks in parallel into run files
+      List<Future<Void>> futures = new ArrayList<>(numChunks);
+      for (int i = 0; i < numChunks; i++) {
+        final long chunkOffset = startOffset + i * (long) numRecordsPerChunk * totalSizeInBytes;
+        final int numRecordsInChunk = Math.min(numRecordsPerChunk, numRecords - i * numRecordsPerChunk);
+        final File runFile = new File(file.getParentFile(), file.getName() + ".run." + i);
+        runFiles.add(runFile);
+        futures.add(executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call()
+              throws IOException {
+            sortChunk(fileChannel, chunkOffset, numRecordsInChunk, runFile);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+
+      // Merge the run files back into the data file
+      mergeRuns(fileChannel, startOffset, runFiles);
+    } catch (Exception e) {
+      throw new RuntimeException("Caught exception while sorting records with external merge sort", e);
+    } finally {
+      executorService.shutdownNow();
+      for (File runFile : runFiles) {
+        FileUtils.deleteQuietly(runFile);
+      }
+    }
+  }
+
+  /**
+   * Helper method to sort one chunk of records in memory, and write the sorted records into the run file.
+   */
+  private void sortChunk(FileChannel fileChannel, long chunkOffset, int numRecordsInChunk, File runFile)
+      throws IOException {
+    // Heap byte buffers are big endian, which is the order the records are written in
+    final ByteBuffer chunkBuffer = ByteBuffer.allocate(numRecordsInChunk * totalSizeInBytes);
+    while (chunkBuffer.hasRemaining()) {
+      if (fileChannel.read(chunkBuffer, chunkOffset + chunkBuffer.position()) < 0) {
+        throw new IOException("Unexpected end of file: " + file);
+      }
+    }
+
+    final int[] ids = new int[numRecordsInChunk];
+    for (int i = 0; i < numRecordsInChunk; i++) {
+      ids[i] = i;
+    }
+    IntComparator comparator = new IntComparator() {
+      @Override
+      public int compare(int i1, int i2) {
+        int pos1 = ids[i1] * totalSizeInBytes;
+        int pos2 = ids[i2] * totalSizeInBytes;
+        for (int dimIndex : sortOrder) {
+          int v1 = chunkBuffer.getInt(pos1 + dimIndex * V1Constants.Numbers.INTEGER_SIZE);
+          int v2 = chunkBuffer.getInt(pos2 + dimIndex * V1Constants.Numbers.INTEGER_SIZE);
+          if (v1 != v2) {
+            return v1 - v2;
+          }
+        }
+        return 0;
+      }
+
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return compare(o1.intValue(), o2.intValue());
+      }
+    };
+    Swapper swapper = new Swapper() {
+      @Override
+      public void swap(int i, int j) {
+        int tmp = ids[i];
+        ids[i] = ids[j];
+        ids[j] = tmp;
+      }
+    };
+    Arrays.quickSort(0, numRecordsInChunk, comparator, swapper);
+
+    byte[] chunkBytes = chunkBuffer.array();
+    try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(runFile),
+        MERGE_BUFFER_SIZE_IN_BYTES)) {
+      for (int id : ids) {
+        outputStream.write(chunkBytes, id * totalSizeInBytes, totalSizeInBytes);
+      }
+    }
+  }
+
+  /**
+   * Helper method to k-way merge the sorted run files, and write the merged records sequentially into the data file
+   * starting from the given offset.
+   */
+  private void mergeRuns(FileChannel fileChannel, long startOffset, List<File> runFiles)
+      throws IOException {
+    PriorityQueue<Run> runQueue = new PriorityQueue<>(runFiles.size(), new Comparator<Run>() {
+      @Override
+      public int compare(Run run1, Run run2) {
+        for (int dimIndex : sortOrder) {
+          int v1 = run1.getDimensionValue(dimIndex);
+          int v2 = run2.getDimensionValue(dimIndex);
+          if (v1 != v2) {
+            return v1 - v2;
+          }
+        }
+        return 0;
+      }
+    });
+    try {
+      for (File runFile : runFiles) {
+        Run run = new Run(runFile, totalSizeInBytes);
+        if (run.next()) {
+          runQueue.add(run);
+        } else {
+          run.close();
+        }
+      }
+
+      fileChannel.position(startOffset);
+      // Do not close the output stream, which would close the file channel
+      OutputStream outputStream =
+          new BufferedOutputStream(Channels.newOutputStream(fileChannel), MERGE_BUFFER_SIZE_IN_BYTES);
+      while (!runQueue.isEmpty()) {
+        Run run = runQueue.poll();
+        outputStream.write(run.record);
+        if (run.next()) {
+          runQueue.add(run);
+        } else {
+          run.close();
+        }
+      }
+      outputStream.flush();
+      fileChannel.force(false);
+    } finally {
+      for (Run run : runQueue) {
+        run.close();
+      }
+    }
+  }
+
+  /**
+   * Sorted run of records of the external merge sort, with the current record loaded.
+   */
+  private static class Run {
+    final DataInputStream inputStream;
+    final byte[] record;
+
+    Run(File runFile, int recordSizeInBytes)
+        throws IOException {
+      inputStream =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), MERGE_BUFFER_SIZE_IN_BYTES));
+      record = new byte[recordSizeInBytes];
+    }
+
+    /**
+     * Loads the next record, returns false if the run is exhausted.
+     */
+    boolean next()
+        throws IOException {
+      int numBytesRead = inputStream.read(record, 0, 1);
+      if (numBytesRead < 0) {
+        return false;
+      }
+      inputStream.readFully(record, 1, record.length - 1);
+      return true;
+    }
+
+    int getDimensionValue(int dimIndex) {
+      int pos = dimIndex * V1Constants.Numbers.INTEGER_SIZE;
+      return ((record[pos] & 0xff) << 24) | ((record[pos + 1] & 0xff) << 16) | ((record[pos + 2] & 0xff) << 8) | (
+          record[pos + 3] & 0xff);
+    }
+
+    void close()
+        throws IOException {
+      inputStream.close();
     }
   }
 
@@ -187,10 +435,7 @@ public class StarTreeDataTable {
       currentPositions[thisRecordId] = thatRecordIdPos;
     }
 
-    if (mappedByteBuffer != null) {
-      mappedByteBuffer.flush();
-      mappedByteBuffer.close();
-    }
+    mappedByteBuffer.flush();
   }
 
   /**
@@ -202,11 +447,13 @@ public class StarTreeDataTable {
    */
   public Int2ObjectMap<IntPair> groupByIntColumnCount(int startDocId, int endDocId, Integer colIndex) {
     MMapBuffer mappedByteBuffer = null;
+    PinotDataBufferMemoryManager.Allocation allocation = null;
     try {
       int length = endDocId - startDocId;
       Int2ObjectMap<IntPair> rangeMap = new Int2ObjectLinkedOpenHashMap<>();
       final long startOffset = startDocId * (long) totalSizeInBytes;
       mappedByteBuffer = new MMapBuffer(file, startOffset, length * (long) totalSizeInBytes, MMapMode.READ_WRITE);
+      allocation = recordMapping(length * (long) totalSizeInBytes);
       int prevValue = -1;
       int prevStart = 0;
 
@@ -232,6 +479,9 @@ public class StarTreeDataTable {
           e.printStackTrace();
         }
       }
+      if (allocation != null) {
+        allocation.release();
+      }
     }
     return EMPTY_INT_OBJECT_MAP;
   }
@@ -240,6 +490,7 @@ public class StarTreeDataTable {
     final int length = endDocId - startDocId;
     final long startOffset = startDocId * (long) totalSizeInBytes;
     final MMapBuffer mappedByteBuffer = new MMapBuffer(file, startOffset, length * (long) totalSizeInBytes, MMapMode.READ_WRITE);
+    final PinotDataBufferMemoryManager.Allocation allocation = recordMapping(length * (long) totalSizeInBytes);
     return new Iterator<Pair<byte[], byte[]>>() {
       int pointer = 0;
 
@@ -258,17 +509,20 @@ public class StarTreeDataTable {
         byte[] dimBuff = new byte[dimensionSizeInBytes];
         byte[] metBuff = new byte[metricSizeInBytes];
 
-        mappedByteBuffer.toDirectByteBuffer(pointer * (long) totalSizeInBytes, dimensionSizeInBytes).get(dimBuff);
-        if (metricSizeInBytes > 0) {
-          mappedByteBuffer.toDirectByteBuffer(pointer * (long) totalSizeInBytes + dimensionSizeInBytes,
-              metricSizeInBytes).get(metBuff);
-        }
-        pointer = pointer + 1;
-        if(pointer == length){
-          try {
-            mappedByteBuffer.close();
-          } catch (IOException e) {
-            LOGGER.error("Exception caught in record iterator", e);
+        // Unmap the records after the last one, or on any failure as the iteration cannot go on
+        boolean succeeded = false;
+        try {
+          mappedByteBuffer.toDirectByteBuffer(pointer * (long) totalSizeInBytes, dimensionSizeInBytes).get(dimBuff);
+          if (metricSizeInBytes > 0) {
+            mappedByteBuffer.toDirectByteBuffer(pointer * (long) totalSizeInBytes + dimensionSizeInBytes,
+                metricSizeInBytes).get(metBuff);
+          }
+          pointer = pointer + 1;
+          succeeded = true;
+        } finally {
+          if (!succeeded || pointer == length) {
+            pointer = length;
+            closeMapping(mappedByteBuffer, allocation);
           }
         }
         return Pair.of(dimBuff, metBuff);
@@ -291,4 +545,29 @@ public class StarTreeDataTable {
       return value;
     }
   }
+
+  /**
+   * Unmaps the given records, if mapped, and releases their allocation, if recorded.
+   */
+  private static void closeMapping(MMapBuffer mappedByteBuffer, PinotDataBufferMemoryManager.Allocation allocation) {
+    try {
+      if (mappedByteBuffer != null) {
+        mappedByteBuffer.close();
+      }
+    } catch (IOException e) {
+      LOGGER.error("Exception caught while unmapping records", e);
+    } finally {
+      if (allocation != null) {
+        allocation.release();
+      }
+    }
+  }
+
+  /**
+   * Charges the memory mapped for the records to the segment being built.
+   */
+  private static PinotDataBufferMemoryManager.Allocation recordMapping(long numBytes) {
+    return PinotDataBufferMemoryManager.getInstance()
+        .recordAllocation(PinotDataBufferMemoryManager.AllocationType.MAPPED, numBytes);
+  }
 }
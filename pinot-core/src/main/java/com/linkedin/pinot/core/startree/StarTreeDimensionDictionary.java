@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * Dictionary of the values of one dimension used while building the star-tree. Values get dense ids in the order they
+ * are first seen.
+ * <p>The ids are kept as primitive ints in an open hash map, and the values are looked up by id from an array, which
+ * takes much less memory than a bi-directional map of boxed ids for high cardinality dimensions.
+ */
+public class StarTreeDimensionDictionary {
+  private static final int INVALID_ID = -1;
+
+  private final Object2IntOpenHashMap<Object> _valueToIdMap = new Object2IntOpenHashMap<>();
+  private final ObjectArrayList<Object> _values = new ObjectArrayList<>();
+
+  public StarTreeDimensionDictionary() {
+    _valueToIdMap.defaultReturnValue(INVALID_ID);
+  }
+
+  /**
+   * Returns the id of the given value, and assigns a new id to it if it is not in the dictionary yet.
+   */
+  public int getOrCreateId(@Nonnull Object value) {
+    int id = _valueToIdMap.getInt(value);
+    if (id == INVALID_ID) {
+      id = _values.size();
+      _valueToIdMap.put(value, id);
+      _values.add(value);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the value for the given id, or <code>null</code> if the id is not in the dictionary (e.g. the star value
+   * {@link StarTreeIndexNodeInterf#ALL}).
+   */
+  @Nullable
+  public Object getValue(int id) {
+    if (id < 0 || id >= _values.size()) {
+      return null;
+    }
+    return _values.get(id);
+  }
+
+  public int size() {
+    return _values.size();
+  }
+}
@@ -19,6 +19,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.HashBiMap;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import com.linkedin.pinot.core.segment.store.SegmentDirectoryPaths;
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -162,16 +163,25 @@ public class StarTreeSerDe {
     long totalSize = headerSizeInBytes + computeOffHeapNodesSizeInBytes(starTree);
 
     MMapBuffer mappedByteBuffer = new MMapBuffer(outputFile, 0, totalSize, MMapMode.READ_WRITE);
-    long offset = writeHeaderOffHeap(starTree, headerSizeInBytes, mappedByteBuffer);
-
-    // Ensure that the computed offset is the same as actual offset.
-    Preconditions.checkState((offset == headerSizeInBytes), "Error writing Star Tree file, header size mis-match");
-
-    // Write the actual star tree nodes in level order.
-    writeNodesOffHeap(starTree, mappedByteBuffer, offset);
-
-    mappedByteBuffer.flush();
-    mappedByteBuffer.close();
+    PinotDataBufferMemoryManager.Allocation allocation = PinotDataBufferMemoryManager.getInstance()
+        .recordAllocation(PinotDataBufferMemoryManager.AllocationType.MAPPED, totalSize);
+    try {
+      long offset = writeHeaderOffHeap(starTree, headerSizeInBytes, mappedByteBuffer);
+
+      // Ensure that the computed offset is the same as actual offset.
+      Preconditions.checkState((offset == headerSizeInBytes), "Error writing Star Tree file, header size mis-match");
+
+      // Write the actual star tree nodes in level order.
+      writeNodesOffHeap(starTree, mappedByteBuffer, offset);
+
+      mappedByteBuffer.flush();
+    } finally {
+      try {
+        mappedByteBuffer.close();
+      } finally {
+        allocation.release();
+      }
+    }
   }
 
   /**
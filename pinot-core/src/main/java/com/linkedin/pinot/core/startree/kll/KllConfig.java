@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree.kll;
+
+import com.google.common.base.Preconditions;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.jackson.annotate.JsonIgnore;
+
+
+/**
+ * KllConfig is used at segment generation.
+ *
+ * If columnsToDeriveKllFields are specified and not empty, segment builder will generate corresponding KLL quantile
+ * sketch derived fields on the fly. The sketches are pre-aggregated in the star-tree, so that PERCENTILEKLL queries on
+ * the origin columns can be answered from the star-tree.
+ */
+public class KllConfig {
+  private int kllK = KllConstants.DEFAULT_K;
+  private String kllDeriveColumnSuffix = KllConstants.DEFAULT_KLL_DERIVE_COLUMN_SUFFIX;
+  private Set<String> columnsToDeriveKllFields = new HashSet<>();
+
+  private transient Map<String, String> derivedKllFieldToOriginMap;
+
+  /**
+   * KllConfig with default K. No KLL derived field is generated.
+   */
+  public KllConfig() {
+  }
+
+  /**
+   * KLL derived field generation is enabled when columnsToDeriveKllFields is not empty.
+   * @param kllK The K parameter defines the accuracy of the sketch.
+   *             The larger the K the better the accuracy.
+   *             rank error = 1.7/K
+   * @param columnsToDeriveKllFields columns to generate KLL index
+   * @param kllDeriveColumnSuffix suffix of column used for KLL index
+   */
+  public KllConfig(int kllK, Set<String> columnsToDeriveKllFields, String kllDeriveColumnSuffix) {
+    Preconditions.checkNotNull(columnsToDeriveKllFields, "ColumnsToDeriveKllFields should not be null.");
+    Preconditions.checkNotNull(kllDeriveColumnSuffix, "KLL Derived Field Suffix should not be null.");
+    this.kllK = kllK;
+    this.kllDeriveColumnSuffix = kllDeriveColumnSuffix;
+    this.columnsToDeriveKllFields = columnsToDeriveKllFields;
+  }
+
+  public int getKllK() {
+    return kllK;
+  }
+
+  public void setKllK(int kllK) {
+    this.kllK = kllK;
+  }
+
+  public String getKllDeriveColumnSuffix() {
+    return kllDeriveColumnSuffix;
+  }
+
+  public void setKllDeriveColumnSuffix(String kllDeriveColumnSuffix) {
+    this.kllDeriveColumnSuffix = kllDeriveColumnSuffix;
+  }
+
+  public Set<String> getColumnsToDeriveKllFields() {
+    return columnsToDeriveKllFields;
+  }
+
+  public void setColumnsToDeriveKllFields(Set<String> columnsToDeriveKllFields) {
+    this.columnsToDeriveKllFields = columnsToDeriveKllFields;
+  }
+
+  /**
+   * KLL derived field generation is enabled when columnsToDeriveKllFields is not empty.
+   */
+  @JsonIgnore
+  public boolean isEnableKllIndex() {
+    return columnsToDeriveKllFields.size() > 0;
+  }
+
+  @JsonIgnore
+  public int getKllFieldSize() {
+    return KllUtil.getKllFieldSizeFromK(kllK);
+  }
+
+  @JsonIgnore
+  public Map<String, String> getDerivedKllFieldToOriginMap() {
+    if (derivedKllFieldToOriginMap == null) {
+      derivedKllFieldToOriginMap = new HashMap<>();
+      for (String columnName : columnsToDeriveKllFields) {
+        derivedKllFieldToOriginMap.put(columnName + kllDeriveColumnSuffix, columnName);
+      }
+    }
+    return derivedKllFieldToOriginMap;
+  }
+}
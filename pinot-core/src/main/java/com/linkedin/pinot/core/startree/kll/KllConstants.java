@@ -13,9 +13,13 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.linkedin.pinot.core.query.selection.comparator;
+package com.linkedin.pinot.core.startree.kll;
 
-public interface IDocIdValComparator {
+public class KllConstants {
+  public static final int DEFAULT_K = 64;
+  public static final String DEFAULT_KLL_DERIVE_COLUMN_SUFFIX = "_kll";
 
-  int compare(int docId1, int docId2);
+  // Star-tree documents are addressed by int doc ids, so a sketch never receives more than 2^31 values, which bounds
+  // its number of levels
+  public static final int MAX_NUM_LEVELS = 32;
 }
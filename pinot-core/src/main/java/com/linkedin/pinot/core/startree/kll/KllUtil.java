@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree.kll;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.core.query.aggregation.function.customobject.KllSketch;
+import com.linkedin.pinot.core.startree.hll.HllUtil;
+import java.util.Arrays;
+
+
+/**
+ * Utility functions for manipulation of KLL quantile sketch field.
+ * <p>KLL fields are stored as fixed size strings: the serialized sketch is padded to the field size, then converted to
+ * chars the same way as the HLL fields.
+ */
+public class KllUtil {
+  private KllUtil() {
+  }
+
+  public static int getKllFieldSizeFromK(int k) {
+    return KllSketch.getMaxSerializedSize(k, KllConstants.MAX_NUM_LEVELS);
+  }
+
+  public static byte[] convertKllToBytes(KllSketch kll, int kllFieldSize) {
+    byte[] bytes = kll.toBytes();
+    Preconditions.checkState(bytes.length <= kllFieldSize,
+        "Serialized KLL sketch size: " + bytes.length + " exceeds the field size: " + kllFieldSize);
+    return Arrays.copyOf(bytes, kllFieldSize);
+  }
+
+  public static String convertKllToString(KllSketch kll, int kllFieldSize) {
+    return new String(HllUtil.SerializationConverter.byteArrayToChars(convertKllToBytes(kll, kllFieldSize)));
+  }
+
+  public static KllSketch convertStringToKll(String s) {
+    return KllSketch.fromBytes(HllUtil.SerializationConverter.charsToByteArray(s.toCharArray()));
+  }
+
+  /**
+   * Generate a KLL sketch from a single numeric value, and convert it to string type.
+   * It is used for default derived field value.
+   */
+  public static String singleValueKllAsString(int k, int kllFieldSize, Object value) {
+    KllSketch kll = new KllSketch(k);
+    kll.add(((Number) value).doubleValue());
+    return convertKllToString(kll, kllFieldSize);
+  }
+}
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.common.datatable;
 
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.common.utils.DataTable;
@@ -25,6 +26,7 @@ import java.util.Arrays;
 import java.util.Random;
 import org.apache.commons.lang.RandomStringUtils;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 
@@ -38,8 +40,13 @@ public class DataTableSerDeTest {
 
   private static final int NUM_ROWS = 100;
 
-  @Test
-  public void testException()
+  @DataProvider(name = "versions")
+  public Object[][] versions() {
+    return new Object[][]{{DataTableFactory.VERSION_2}, {DataTableFactory.VERSION_3}};
+  }
+
+  @Test(dataProvider = "versions")
+  public void testException(int version)
       throws IOException {
     Exception exception = new UnsupportedOperationException("Caught exception.");
     ProcessingException processingException =
@@ -48,7 +55,7 @@ public class DataTableSerDeTest {
 
     DataTable dataTable = new DataTableImplV2();
     dataTable.addException(processingException);
-    DataTable newDataTable = DataTableFactory.getDataTable(dataTable.toBytes());
+    DataTable newDataTable = DataTableFactory.getDataTable(DataTableFactory.toBytes(dataTable, version));
     Assert.assertNull(newDataTable.getDataSchema());
     Assert.assertEquals(newDataTable.getNumberOfRows(), 0);
 
@@ -57,8 +64,8 @@ public class DataTableSerDeTest {
     Assert.assertEquals(actual, expected);
   }
 
-  @Test
-  public void testAllDataTypes()
+  @Test(dataProvider = "versions")
+  public void testAllDataTypes(int version)
       throws IOException {
     DataType[] columnTypes = DataType.values();
     int numColumns = columnTypes.length;
@@ -212,7 +219,7 @@ public class DataTableSerDeTest {
     }
 
     DataTable dataTable = dataTableBuilder.build();
-    DataTable newDataTable = DataTableFactory.getDataTable(dataTable.toBytes());
+    DataTable newDataTable = DataTableFactory.getDataTable(DataTableFactory.toBytes(dataTable, version));
     Assert.assertEquals(newDataTable.getDataSchema(), dataSchema, ERROR_MESSAGE);
     Assert.assertEquals(newDataTable.getNumberOfRows(), NUM_ROWS, ERROR_MESSAGE);
 
@@ -281,4 +288,59 @@ public class DataTableSerDeTest {
       }
     }
   }
+
+  @Test
+  public void testV3StringEncodingAndReserialization()
+      throws IOException {
+    DataSchema dataSchema = new DataSchema(new String[]{"sorted", "random", "metric"},
+        new DataType[]{DataType.STRING, DataType.STRING, DataType.LONG});
+    DataTableBuilder dataTableBuilder = new DataTableBuilder(dataSchema);
+    String[] sortedValues = new String[NUM_ROWS];
+    String[] randomValues = new String[NUM_ROWS];
+    long[] longs = new long[NUM_ROWS];
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      dataTableBuilder.startRow();
+      // Long runs of the same value to trigger run-length encoding.
+      sortedValues[rowId] = "value_" + (rowId / 10);
+      dataTableBuilder.setColumn(0, sortedValues[rowId]);
+      randomValues[rowId] = RandomStringUtils.random(RANDOM.nextInt(20));
+      dataTableBuilder.setColumn(1, randomValues[rowId]);
+      longs[rowId] = RANDOM.nextLong();
+      dataTableBuilder.setColumn(2, longs[rowId]);
+      dataTableBuilder.finishRow();
+    }
+    DataTable dataTable = dataTableBuilder.build();
+    dataTable.getMetadata().put(DataTable.NUM_DOCS_SCANNED_METADATA_KEY, "123");
+
+    DataTable newDataTable =
+        DataTableFactory.getDataTable(DataTableFactory.toBytes(dataTable, DataTableFactory.VERSION_3));
+    Assert.assertTrue(newDataTable instanceof DataTableImplV3);
+    // Re-serialize the V3 data table (e.g. after attaching exceptions on the broker side).
+    newDataTable.addException(
+        QueryException.getException(QueryException.BROKER_GATHER_ERROR, new RuntimeException("Caught exception.")));
+    newDataTable = DataTableFactory.getDataTable(newDataTable.toBytes());
+
+    Assert.assertEquals(newDataTable.getDataSchema(), dataSchema, ERROR_MESSAGE);
+    Assert.assertEquals(newDataTable.getMetadata().get(DataTable.NUM_DOCS_SCANNED_METADATA_KEY), "123");
+    Assert.assertTrue(newDataTable.getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.BROKER_GATHER_ERROR.getErrorCode()));
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      Assert.assertEquals(newDataTable.getString(rowId, 0), sortedValues[rowId], ERROR_MESSAGE);
+      Assert.assertEquals(newDataTable.getString(rowId, 1), randomValues[rowId], ERROR_MESSAGE);
+      Assert.assertEquals(newDataTable.getLong(rowId, 2), longs[rowId], ERROR_MESSAGE);
+    }
+  }
+
+  @Test
+  public void testVersionNegotiation() {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    Assert.assertEquals(DataTableFactory.getResponseVersion(brokerRequest), DataTableFactory.VERSION_2);
+
+    DataTableFactory.setRequestedVersion(brokerRequest, DataTableFactory.VERSION_3);
+    Assert.assertEquals(DataTableFactory.getResponseVersion(brokerRequest), DataTableFactory.VERSION_3);
+
+    // Newer broker than server.
+    DataTableFactory.setRequestedVersion(brokerRequest, DataTableFactory.MAX_SUPPORTED_VERSION + 1);
+    Assert.assertEquals(DataTableFactory.getResponseVersion(brokerRequest), DataTableFactory.MAX_SUPPORTED_VERSION);
+  }
 }
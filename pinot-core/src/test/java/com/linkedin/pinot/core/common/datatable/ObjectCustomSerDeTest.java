@@ -15,7 +15,9 @@
  */
 package com.linkedin.pinot.core.common.datatable;
 
+import com.clearspring.analytics.stream.quantile.TDigest;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.AvgPair;
+import com.linkedin.pinot.core.query.aggregation.function.customobject.KllSketch;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.MinMaxRangePair;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
@@ -164,4 +166,56 @@ public class ObjectCustomSerDeTest {
       Assert.assertEquals((Object) actual, expected, ERROR_MESSAGE);
     }
   }
+
+  /**
+   * Test for ser/de of {@link TDigest}.
+   */
+  @Test
+  public void testTDigest()
+      throws IOException {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      int size = RANDOM.nextInt(10000);
+      TDigest expected = new TDigest(100);
+      for (int j = 0; j < size; j++) {
+        expected.add(RANDOM.nextLong());
+      }
+
+      byte[] bytes = ObjectCustomSerDe.serialize(expected);
+      TDigest actual = ObjectCustomSerDe.deserialize(bytes, ObjectType.TDigest);
+
+      Assert.assertEquals(actual.size(), expected.size(), ERROR_MESSAGE);
+      // Rebuilding the digest might change the interpolation between the centroids by a rounding error
+      for (int j = 0; j <= 100; j++) {
+        double quantile = j / 100.0;
+        double expectedQuantile = expected.quantile(quantile);
+        Assert.assertEquals(actual.quantile(quantile), expectedQuantile, Math.abs(expectedQuantile) * 1e-10,
+            ERROR_MESSAGE);
+      }
+    }
+  }
+
+  /**
+   * Test for ser/de of {@link KllSketch}.
+   */
+  @Test
+  public void testKllSketch()
+      throws IOException {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      int size = RANDOM.nextInt(10000);
+      KllSketch expected = new KllSketch();
+      for (int j = 0; j < size; j++) {
+        expected.add(RANDOM.nextLong());
+      }
+
+      byte[] bytes = ObjectCustomSerDe.serialize(expected);
+      KllSketch actual = ObjectCustomSerDe.deserialize(bytes, ObjectType.KllSketch);
+
+      Assert.assertEquals(actual.getCount(), expected.getCount(), ERROR_MESSAGE);
+      Assert.assertEquals(actual.getNumRetainedValues(), expected.getNumRetainedValues(), ERROR_MESSAGE);
+      for (int j = 0; j <= 100; j++) {
+        double quantile = j / 100.0;
+        Assert.assertEquals(actual.getQuantile(quantile), expected.getQuantile(quantile), ERROR_MESSAGE);
+      }
+    }
+  }
 }
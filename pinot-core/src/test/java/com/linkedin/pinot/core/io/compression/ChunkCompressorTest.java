@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.io.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class ChunkCompressorTest {
+  private static final int NUM_VALUES = 1000;
+  private static final Random RANDOM = new Random();
+
+  @Test
+  public void testRoundTrip()
+      throws Exception {
+    ByteBuffer input = ByteBuffer.allocateDirect(NUM_VALUES * Long.SIZE / Byte.SIZE);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      input.putLong(RANDOM.nextInt(100));
+    }
+    input.flip();
+
+    for (ChunkCompressorFactory.CompressionType compressionType : ChunkCompressorFactory.CompressionType.values()) {
+      ChunkCompressor compressor = ChunkCompressorFactory.getCompressor(compressionType, Long.SIZE / Byte.SIZE);
+      Assert.assertEquals(compressor.getCompressionType(), compressionType);
+      ByteBuffer decompressed = roundTrip(compressor, input);
+      Assert.assertEquals(decompressed, input, compressionType.toString());
+    }
+  }
+
+  @Test
+  public void testDelta()
+      throws Exception {
+    ChunkCompressor intCompressor = ChunkCompressorFactory.getCompressor(ChunkCompressorFactory.CompressionType.DELTA,
+        Integer.SIZE / Byte.SIZE);
+    ChunkCompressor longCompressor = ChunkCompressorFactory.getCompressor(ChunkCompressorFactory.CompressionType.DELTA,
+        Long.SIZE / Byte.SIZE);
+
+    // Constant stride only needs the header
+    ByteBuffer input = ByteBuffer.allocateDirect(NUM_VALUES * Long.SIZE / Byte.SIZE);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      input.putLong(1500000000000L + i * 1000L);
+    }
+    input.flip();
+    ByteBuffer compressed = ByteBuffer.allocateDirect(longCompressor.maxCompressedSize(input.remaining()));
+    int compressedSize = longCompressor.compress(input, compressed);
+    Assert.assertTrue(compressedSize < 32, "Compressed size: " + compressedSize);
+    Assert.assertEquals(roundTrip(longCompressor, input), input);
+
+    // Extreme values, where deltas overflow
+    long[] longValues = new long[]{Long.MIN_VALUE, Long.MAX_VALUE, 0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE, 1L};
+    input = ByteBuffer.allocateDirect(longValues.length * Long.SIZE / Byte.SIZE);
+    for (long value : longValues) {
+      input.putLong(value);
+    }
+    input.flip();
+    Assert.assertEquals(roundTrip(longCompressor, input), input);
+
+    int[] intValues = new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 1};
+    input = ByteBuffer.allocateDirect(intValues.length * Integer.SIZE / Byte.SIZE);
+    for (int value : intValues) {
+      input.putInt(value);
+    }
+    input.flip();
+    Assert.assertEquals(roundTrip(intCompressor, input), input);
+
+    // Random values with all numbers of bits
+    for (int numBits = 1; numBits < Long.SIZE; numBits++) {
+      input = ByteBuffer.allocateDirect(NUM_VALUES * Long.SIZE / Byte.SIZE);
+      for (int i = 0; i < NUM_VALUES; i++) {
+        input.putLong(RANDOM.nextLong() >> (Long.SIZE - numBits));
+      }
+      input.flip();
+      Assert.assertEquals(roundTrip(longCompressor, input), input, "Number of bits: " + numBits);
+    }
+  }
+
+  private static ByteBuffer roundTrip(ChunkCompressor compressor, ByteBuffer input)
+      throws Exception {
+    int uncompressedSize = input.remaining();
+    ByteBuffer compressed = ByteBuffer.allocateDirect(compressor.maxCompressedSize(uncompressedSize));
+    int compressedSize = compressor.compress(input, compressed);
+    Assert.assertEquals(compressed.remaining(), compressedSize);
+
+    ChunkDecompressor decompressor = ChunkCompressorFactory.getDecompressor(compressor.getCompressionType());
+    ByteBuffer decompressed = ByteBuffer.allocateDirect(uncompressedSize);
+    Assert.assertEquals(decompressor.decompress(compressed, decompressed), uncompressedSize);
+    Assert.assertEquals(decompressed.remaining(), uncompressedSize);
+    return decompressed;
+  }
+}
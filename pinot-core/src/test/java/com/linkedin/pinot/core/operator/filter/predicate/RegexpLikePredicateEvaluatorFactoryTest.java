@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter.predicate;
+
+import com.linkedin.pinot.core.common.predicate.RegexpLikePredicate;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class RegexpLikePredicateEvaluatorFactoryTest {
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+  private static final String ERROR_MESSAGE = "Random seed: " + RANDOM_SEED;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String COLUMN_NAME = "column";
+  private static final int NUM_VALUES = 2000;
+  private static final int MAX_VALUE_LENGTH = 8;
+  // Include characters matching ASCII letters under case insensitive unicode matching, e.g. the Kelvin sign
+  private static final char[] CHARACTERS = "abkKsSiI019._-\u212A\u017F\u0131\u0130\u00E9".toCharArray();
+  private static final String[] REGEXES = new String[]{
+      "^ab", "^AB.*", "^k", "^s1", "^Ii", "^a\\.b", "^\u00E9a", "^ab*", "^ab+", "^a{2}", "^a|b", "^[ab]k", "^\\d",
+      "^0\\w", "b.$", "k", "", "^", "^abkkssii"
+  };
+
+  private StringDictionary _dictionary;
+
+  @BeforeClass
+  public void setUp() {
+    Random random = new Random(RANDOM_SEED);
+    Set<String> valueSet = new TreeSet<>();
+    while (valueSet.size() < NUM_VALUES) {
+      int length = random.nextInt(MAX_VALUE_LENGTH) + 1;
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = CHARACTERS[random.nextInt(CHARACTERS.length)];
+      }
+      valueSet.add(new String(chars));
+    }
+    String[] values = valueSet.toArray(new String[NUM_VALUES]);
+
+    int numBytesPerValue = 0;
+    for (String value : values) {
+      numBytesPerValue = Math.max(numBytesPerValue, value.getBytes(UTF_8).length);
+    }
+    PinotDataBuffer dataBuffer = PinotDataBuffer.allocateDirect(NUM_VALUES * numBytesPerValue);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      byte[] valueBytes = values[i].getBytes(UTF_8);
+      for (int j = 0; j < numBytesPerValue; j++) {
+        dataBuffer.putByte(i * numBytesPerValue + j, j < valueBytes.length ? valueBytes[j] : 0);
+      }
+    }
+    _dictionary = new StringDictionary(dataBuffer, NUM_VALUES, numBytesPerValue, (byte) 0);
+  }
+
+  @Test
+  public void testGetLiteralPrefix() {
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^abc"), "abc");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^abc.*d"), "abc");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^a\\.b\\d"), "a.b");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^abc?"), "ab");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^abc*"), "ab");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^abc{0,2}"), "ab");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^abc+d"), "abc");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^ab(c|d)"), "");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^ab\\|c"), "ab|c");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^ab\u00E9"), "ab");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("abc"), "");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^[a]bc"), "");
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getLiteralPrefix("^ab\\"), "ab");
+  }
+
+  @Test
+  public void testGetCaseVariants() {
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getCaseVariants("a1", 64), Arrays.asList("A1", "a1"));
+    // 'k' also matches the Kelvin sign
+    Assert.assertEquals(new TreeSet<>(RegexpLikePredicateEvaluatorFactory.getCaseVariants("K", 64)),
+        new TreeSet<>(Arrays.asList("K", "k", "\u212A")));
+    // Prefix should be shortened to respect the maximum number of variants
+    List<String> variants = RegexpLikePredicateEvaluatorFactory.getCaseVariants("abcdefgh", 64);
+    Assert.assertEquals(variants.size(), 64);
+    for (String variant : variants) {
+      Assert.assertEquals(variant.toLowerCase(), "abcdef");
+    }
+    Assert.assertEquals(RegexpLikePredicateEvaluatorFactory.getCaseVariants("k", 2), Collections.singletonList(""));
+  }
+
+  @Test
+  public void testDictionaryBasedEvaluator() {
+    RegexpMatchingDictIdsCache.invalidateAll();
+    for (String regex : REGEXES) {
+      Pattern pattern = Pattern.compile(regex, Pattern.UNICODE_CASE | Pattern.CASE_INSENSITIVE);
+      for (int i = 0; i < 2; i++) {
+        PredicateEvaluator evaluator =
+            RegexpLikePredicateEvaluatorFactory.newDictionaryBasedEvaluator(createPredicate(regex), _dictionary);
+        int numMatchingValues = 0;
+        for (int dictId = 0; dictId < NUM_VALUES; dictId++) {
+          boolean expected = pattern.matcher(_dictionary.getStringValue(dictId)).find();
+          Assert.assertEquals(evaluator.apply(dictId), expected,
+              "Regex: " + regex + ", value: " + dictId + ", " + ERROR_MESSAGE);
+          if (expected) {
+            numMatchingValues++;
+          }
+        }
+        int[] matchingDictIds = evaluator.getMatchingDictionaryIds();
+        Assert.assertEquals(matchingDictIds.length, numMatchingValues, ERROR_MESSAGE);
+        for (int matchingDictId : matchingDictIds) {
+          Assert.assertTrue(pattern.matcher(_dictionary.getStringValue(matchingDictId)).find(), ERROR_MESSAGE);
+        }
+        Assert.assertEquals(evaluator.alwaysFalse(), numMatchingValues == 0, ERROR_MESSAGE);
+      }
+    }
+    // Second evaluation of each regex should hit the cache
+    Assert.assertEquals(RegexpMatchingDictIdsCache.getNumEntries(), REGEXES.length);
+  }
+
+  @Test
+  public void testDictIdRangeForPrefix() {
+    for (String prefix : new String[]{"", "a", "ab", "K", "Kk", "zz", "\u00E9"}) {
+      int[] dictIdRange = _dictionary.getDictIdRangeForPrefix(prefix);
+      for (int dictId = 0; dictId < NUM_VALUES; dictId++) {
+        boolean inRange = dictId >= dictIdRange[0] && dictId < dictIdRange[1];
+        Assert.assertEquals(inRange, _dictionary.getStringValue(dictId).startsWith(prefix), ERROR_MESSAGE);
+      }
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    RegexpMatchingDictIdsCache.invalidateAll();
+    _dictionary.close();
+  }
+
+  private static RegexpLikePredicate createPredicate(String regex) {
+    return new RegexpLikePredicate(COLUMN_NAME, Collections.singletonList(regex));
+  }
+}
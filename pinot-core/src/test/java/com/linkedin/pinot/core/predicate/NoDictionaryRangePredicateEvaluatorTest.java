@@ -256,6 +256,61 @@ public class NoDictionaryRangePredicateEvaluatorTest {
     }
   }
 
+  @Test
+  public void testBatchEvaluation() {
+    String[] rangeStrings = new String[]{
+        "[-10\t\t10]", "(-10\t\t10]", "[-10\t\t10)", "(-10\t\t10)", "(*\t\t10)", "(10\t\t*)", "(*\t\t*)",
+        "(2147483647\t\t*)", "(*\t\t-2147483648)"
+    };
+    int length = 50;
+    int startDocId = 100;
+    int[] intValues = new int[length];
+    long[] longValues = new long[length];
+    float[] floatValues = new float[length];
+    double[] doubleValues = new double[length];
+    for (int i = 0; i < length; i++) {
+      int value = i - length / 2;
+      intValues[i] = value;
+      longValues[i] = value;
+      floatValues[i] = value;
+      doubleValues[i] = value;
+    }
+    intValues[0] = Integer.MAX_VALUE;
+    intValues[1] = Integer.MIN_VALUE;
+    int[] matchingDocIds = new int[length];
+
+    for (String rangeString : rangeStrings) {
+      PredicateEvaluator predicateEvaluator = buildRangePredicate(rangeString, FieldSpec.DataType.INT);
+      int numMatchingDocIds = predicateEvaluator.applySV(length, startDocId, intValues, matchingDocIds);
+      int index = 0;
+      for (int i = 0; i < length; i++) {
+        if (predicateEvaluator.apply(intValues[i])) {
+          Assert.assertEquals(matchingDocIds[index++], startDocId + i, rangeString);
+        }
+      }
+      Assert.assertEquals(numMatchingDocIds, index, rangeString);
+    }
+
+    for (String rangeString : rangeStrings) {
+      PredicateEvaluator predicateEvaluator = buildRangePredicate(rangeString, FieldSpec.DataType.LONG);
+      int numMatchingDocIds = predicateEvaluator.applySV(length, startDocId, longValues, matchingDocIds);
+      int index = 0;
+      for (int i = 0; i < length; i++) {
+        if (predicateEvaluator.apply(longValues[i])) {
+          Assert.assertEquals(matchingDocIds[index++], startDocId + i, rangeString);
+        }
+      }
+      Assert.assertEquals(numMatchingDocIds, index, rangeString);
+    }
+
+    PredicateEvaluator predicateEvaluator = buildRangePredicate("(-10\t\t10]", FieldSpec.DataType.FLOAT);
+    Assert.assertEquals(predicateEvaluator.applySV(length, startDocId, floatValues, matchingDocIds), 20);
+    Assert.assertEquals(matchingDocIds[0], startDocId + length / 2 - 9);
+    predicateEvaluator = buildRangePredicate("[-10\t\t10)", FieldSpec.DataType.DOUBLE);
+    Assert.assertEquals(predicateEvaluator.applySV(length, startDocId, doubleValues, matchingDocIds), 20);
+    Assert.assertEquals(matchingDocIds[0], startDocId + length / 2 - 10);
+  }
+
   private PredicateEvaluator buildRangePredicate(String rangeString, FieldSpec.DataType dataType) {
     RangePredicate predicate = new RangePredicate(COLUMN_NAME, Collections.singletonList(rangeString));
     return RangePredicateEvaluatorFactory.newNoDictionaryBasedEvaluator(predicate, dataType);
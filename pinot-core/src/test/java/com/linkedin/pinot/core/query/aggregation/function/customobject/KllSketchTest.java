@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.customobject;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class KllSketchTest {
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+  private static final Random RANDOM = new Random(RANDOM_SEED);
+  private static final String ERROR_MESSAGE = "Random seed: " + RANDOM_SEED;
+
+  private static final int NUM_VALUES = 1_000_000;
+  private static final int NUM_SKETCHES = 100;
+  // Allowed rank error, well above the expected error of the default K
+  private static final double MAX_RANK_ERROR = 0.02;
+
+  @Test
+  public void testEmptySketch() {
+    KllSketch sketch = new KllSketch();
+    Assert.assertEquals(sketch.getCount(), 0L);
+    Assert.assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+    KllSketch deserialized = KllSketch.fromBytes(sketch.toBytes());
+    Assert.assertEquals(deserialized.getCount(), 0L);
+  }
+
+  @Test
+  public void testExactForSmallInput() {
+    KllSketch sketch = new KllSketch();
+    for (int i = 99; i >= 0; i--) {
+      sketch.add(i);
+    }
+    // No compaction happens before the sketch is full, so the quantiles are exact
+    Assert.assertEquals(sketch.getNumRetainedValues(), 100);
+    Assert.assertEquals(sketch.getQuantile(0.0), 0.0);
+    Assert.assertEquals(sketch.getQuantile(0.5), 50.0);
+    Assert.assertEquals(sketch.getQuantile(0.99), 99.0);
+    Assert.assertEquals(sketch.getQuantile(1.0), 99.0);
+  }
+
+  @Test
+  public void testAddAndMerge() {
+    double[] values = new double[NUM_VALUES];
+    KllSketch sketch = new KllSketch();
+    KllSketch[] sketches = new KllSketch[NUM_SKETCHES];
+    for (int i = 0; i < NUM_SKETCHES; i++) {
+      sketches[i] = new KllSketch();
+    }
+    for (int i = 0; i < NUM_VALUES; i++) {
+      double value = RANDOM.nextGaussian() * 1000;
+      values[i] = value;
+      sketch.add(value);
+      sketches[i % NUM_SKETCHES].add(value);
+    }
+    Arrays.sort(values);
+
+    // Merge the sketches through ser/de, as the broker would do
+    KllSketch mergedSketch = new KllSketch();
+    for (KllSketch partialSketch : sketches) {
+      mergedSketch.merge(KllSketch.fromBytes(partialSketch.toBytes()));
+    }
+
+    for (KllSketch actual : new KllSketch[]{sketch, mergedSketch}) {
+      Assert.assertEquals(actual.getCount(), NUM_VALUES, ERROR_MESSAGE);
+      Assert.assertTrue(actual.getNumRetainedValues() < 3 * KllSketch.DEFAULT_K + 100, ERROR_MESSAGE);
+      Assert.assertEquals(actual.getQuantile(0.0), values[0], ERROR_MESSAGE);
+      Assert.assertEquals(actual.getQuantile(1.0), values[NUM_VALUES - 1], ERROR_MESSAGE);
+      for (int percentile = 1; percentile < 100; percentile++) {
+        double estimate = actual.getQuantile(percentile / 100.0);
+        double rank = (double) getRank(values, estimate) / NUM_VALUES;
+        Assert.assertEquals(rank, percentile / 100.0, MAX_RANK_ERROR, ERROR_MESSAGE);
+      }
+    }
+  }
+
+  private static int getRank(double[] sortedValues, double value) {
+    int index = Arrays.binarySearch(sortedValues, value);
+    return index >= 0 ? index : -index - 1;
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.executor;
+
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class QueryColumnStatisticsTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final File STATS_FILE =
+      new File(FileUtils.getTempDirectory(), QueryColumnStatisticsTest.class.getSimpleName() + ".properties");
+
+  @Test
+  public void testQueryColumnStatistics()
+      throws Exception {
+    QueryColumnStatistics statistics = new QueryColumnStatistics();
+    statistics.recordQuery(COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE WHERE a = 1"));
+    statistics.recordQuery(
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_REALTIME WHERE b = 1 AND (a = 2 OR a = 3)"));
+    statistics.recordQuery(COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE b = 1 AND c > 5"));
+    statistics.recordQuery(COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE b = 1"));
+    statistics.recordQuery(COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable"));
+    Assert.assertEquals(statistics.getFilterColumns("myTable"), Arrays.asList("b", "a", "c"));
+    Assert.assertEquals(statistics.getFilterColumns("otherTable"), Collections.emptyList());
+
+    // Save and load
+    try {
+      statistics.save(STATS_FILE);
+      QueryColumnStatistics loadedStatistics = new QueryColumnStatistics();
+      loadedStatistics.load(STATS_FILE);
+      Assert.assertEquals(loadedStatistics.getFilterColumns("myTable"), Arrays.asList("b", "a", "c"));
+    } finally {
+      FileUtils.deleteQuietly(STATS_FILE);
+    }
+
+    // Counts are 3, 2 and 1, so 'c' is removed by the first decay, 'a' and 'b' by the second one
+    statistics.decay();
+    Assert.assertEquals(new HashSet<>(statistics.getFilterColumns("myTable")), new HashSet<>(Arrays.asList("a", "b")));
+    statistics.decay();
+    Assert.assertEquals(statistics.getFilterColumns("myTable"), Collections.emptyList());
+  }
+
+  @Test
+  public void testRecordAfterDecay()
+      throws Exception {
+    QueryColumnStatistics statistics = new QueryColumnStatistics();
+    statistics.recordQuery(COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE a = 1"));
+    statistics.decay();
+    Assert.assertEquals(statistics.getFilterColumns("myTable"), Collections.emptyList());
+
+    // The queries recorded after the removal of a column are counted
+    statistics.recordQuery(COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE a = 1"));
+    statistics.recordQuery(COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE a = 1"));
+    Assert.assertEquals(statistics.getFilterColumns("myTable"), Collections.singletonList("a"));
+    statistics.decay();
+    Assert.assertEquals(statistics.getFilterColumns("myTable"), Collections.singletonList("a"));
+  }
+}
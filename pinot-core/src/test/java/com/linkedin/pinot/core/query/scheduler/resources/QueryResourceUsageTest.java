@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+
+public class QueryResourceUsageTest {
+
+  @Test
+  public void testTrackingExecutorService() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      QueryResourceUsage resourceUsage = new QueryResourceUsage();
+      QueryExecutorService trackingExecutorService = resourceUsage.trackingExecutorService(executorService);
+      List<Future<Long>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(trackingExecutorService.submit(new Callable<Long>() {
+          @Override
+          public Long call() {
+            long sum = 0;
+            List<long[]> arrays = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+              long[] array = new long[10_000];
+              for (int k = 0; k < array.length; k++) {
+                array[k] = k;
+                sum += array[k];
+              }
+              arrays.add(array);
+            }
+            return sum + arrays.size();
+          }
+        }));
+      }
+      for (Future<Long> future : futures) {
+        future.get();
+      }
+
+      // Usage is complete once all the futures are done
+      if (QueryResourceUsage.isThreadCpuTimeSupported()) {
+        assertTrue(resourceUsage.getThreadCpuTimeNs() > 0);
+      } else {
+        assertEquals(resourceUsage.getThreadCpuTimeNs(), 0L);
+      }
+      if (QueryResourceUsage.isThreadAllocatedBytesSupported()) {
+        assertTrue(resourceUsage.getAllocatedBytes() >= 4 * 100 * 10_000 * 8L);
+      } else {
+        assertEquals(resourceUsage.getAllocatedBytes(), 0L);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+}
@@ -27,7 +27,11 @@ public class TokenSchedulerGroupTest {
     static final int numTokensPerMs = 100;
     static final int tokenLifetimeMs = 100;
     TestTokenSchedulerGroup() {
-      super("testGroup", numTokensPerMs, tokenLifetimeMs);
+      this(false);
+    }
+
+    TestTokenSchedulerGroup(boolean useCpuTime) {
+      super("testGroup", numTokensPerMs, tokenLifetimeMs, useCpuTime);
     }
 
     @Override
@@ -119,6 +123,40 @@ public class TokenSchedulerGroupTest {
     assertEquals(group.getThreadsInUse(), 0);
   }
 
+  @Test
+  public void testCpuTimeAccounting() {
+    timeMillis = 100;
+    TestTokenSchedulerGroup group = new TestTokenSchedulerGroup(true);
+    int availableTokens = group.getAvailableTokens();
+    assertEquals(availableTokens, TestTokenSchedulerGroup.numTokensPerMs * TestTokenSchedulerGroup.tokenLifetimeMs);
+
+    // threads in use do not consume tokens
+    group.startQuery();
+    incrementThreads(group, 4);
+    timeMillis += 20;
+    assertEquals(group.getAvailableTokens(), availableTokens);
+
+    // measured CPU time is deducted, sub-millisecond remainders are carried over
+    decrementThreads(group, 4);
+    group.addCpuTime(30_500_000L);
+    group.endQuery();
+    assertEquals(group.getAvailableTokens(), availableTokens - 30);
+    group.addCpuTime(500_000L);
+    assertEquals(group.getAvailableTokens(), availableTokens - 31);
+
+    // tokens are replenished with decay in the next quantum
+    timeMillis += TestTokenSchedulerGroup.tokenLifetimeMs;
+    int tokens = group.getAvailableTokens();
+    assertTrue(tokens > availableTokens - 31);
+    assertTrue(tokens < availableTokens);
+
+    // CPU time is ignored with wall clock accounting
+    TestTokenSchedulerGroup wallClockGroup = new TestTokenSchedulerGroup();
+    availableTokens = wallClockGroup.getAvailableTokens();
+    wallClockGroup.addCpuTime(30_000_000L);
+    assertEquals(wallClockGroup.getAvailableTokens(), availableTokens);
+  }
+
   private void incrementThreads(TokenSchedulerGroup group, int nThreads) {
     for (int i = 0; i < nThreads; i++) {
       group.incrementThreads();
@@ -98,4 +98,55 @@ public class RealtimeSegmentImplTest {
     Assert.assertEquals(notFull, true);
     Assert.assertEquals(realtimeSegment.getRawDocumentCount(), 2);
   }
+
+  @Test
+  public void testIndexBatch() throws Exception {
+    Schema schema = new Schema.SchemaBuilder()
+        .setSchemaName("potato")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING)
+        .addMultiValueDimension("multiValueDimension", FieldSpec.DataType.INT)
+        .addMetric("metric", FieldSpec.DataType.LONG)
+        .addTime("time", TimeUnit.SECONDS, FieldSpec.DataType.LONG)
+        .build();
+    ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+    RealtimeSegmentImpl rowBasedSegment =
+        createRealtimeSegmentImpl(schema, 100, "noTable", "rowBasedSegment", schema.getSchemaName(), serverMetrics);
+    RealtimeSegmentImpl batchBasedSegment =
+        createRealtimeSegmentImpl(schema, 100, "noTable", "batchBasedSegment", schema.getSchemaName(), serverMetrics);
+
+    int numRows = 80;
+    GenericRow[] rows = new GenericRow[numRows];
+    for (int i = 0; i < numRows; i++) {
+      Map<String, Object> genericRowContents = new HashMap<>();
+      genericRowContents.put("dimension", "value" + (i % 7));
+      genericRowContents.put("multiValueDimension", new Object[]{i % 3, i % 5, i % 3});
+      // Every 10th row is invalid
+      genericRowContents.put("metric", i % 10 == 9 ? null : (long) i);
+      genericRowContents.put("time", 1000L + i / 4);
+      rows[i] = new GenericRow();
+      rows[i].init(genericRowContents);
+    }
+
+    for (GenericRow row : rows) {
+      Assert.assertTrue(rowBasedSegment.index(row));
+    }
+    Assert.assertTrue(batchBasedSegment.index(rows, 50));
+    GenericRow[] remainingRows = new GenericRow[numRows];
+    System.arraycopy(rows, 50, remainingRows, 0, numRows - 50);
+    Assert.assertTrue(batchBasedSegment.index(remainingRows, numRows - 50));
+
+    Assert.assertEquals(batchBasedSegment.getRawDocumentCount(), 72);
+    Assert.assertEquals(batchBasedSegment.getRawDocumentCount(), rowBasedSegment.getRawDocumentCount());
+    Assert.assertEquals(batchBasedSegment.getMinTime(), rowBasedSegment.getMinTime());
+    Assert.assertEquals(batchBasedSegment.getMaxTime(), rowBasedSegment.getMaxTime());
+    for (int docId = 0; docId < 72; docId++) {
+      GenericRow expected = rowBasedSegment.getRawValueRowAt(docId, new GenericRow());
+      GenericRow actual = batchBasedSegment.getRawValueRowAt(docId, new GenericRow());
+      Assert.assertEquals(actual.getValue("dimension"), expected.getValue("dimension"));
+      Assert.assertEquals((Object[]) actual.getValue("multiValueDimension"),
+          (Object[]) expected.getValue("multiValueDimension"));
+      Assert.assertEquals(actual.getValue("metric"), expected.getValue("metric"));
+      Assert.assertEquals(actual.getValue("time"), expected.getValue("time"));
+    }
+  }
 }
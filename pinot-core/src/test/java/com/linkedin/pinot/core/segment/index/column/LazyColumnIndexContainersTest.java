@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.column;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.TestRecordReader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.io.reader.SingleColumnSingleValueReader;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.IndexLoadingConfig;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.store.SegmentDirectory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class LazyColumnIndexContainersTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "LazyColumnIndexContainersTest");
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final int NUM_ROWS = 1000;
+  private static final int NUM_DIMENSIONS = 10;
+  private static final String METRIC = "metric";
+
+  private File _segmentDir;
+  private SegmentMetadataImpl _segmentMetadata;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    Schema schema = new Schema();
+    schema.setSchemaName("schema");
+    for (int i = 0; i < NUM_DIMENSIONS; i++) {
+      schema.addField(new DimensionFieldSpec("d" + i, FieldSpec.DataType.STRING, true));
+    }
+    schema.addField(new MetricFieldSpec(METRIC, FieldSpec.DataType.LONG));
+
+    Random random = new Random();
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> fields = new HashMap<>();
+      for (int j = 0; j < NUM_DIMENSIONS; j++) {
+        fields.put("d" + j, "v" + random.nextInt(100));
+      }
+      fields.put(METRIC, random.nextLong());
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      rows.add(row);
+    }
+
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
+    config.setTableName("testTable");
+    config.setOutDir(INDEX_DIR.getPath());
+    config.setSegmentName(SEGMENT_NAME);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestRecordReader(rows, schema));
+    driver.build();
+    _segmentDir = new File(INDEX_DIR, SEGMENT_NAME);
+    _segmentMetadata = new SegmentMetadataImpl(_segmentDir);
+  }
+
+  @Test
+  public void testLoadOnFirstAccessAndEvict()
+      throws Exception {
+    SegmentDirectory segmentDirectory = SegmentDirectory.createFromLocalFS(_segmentDir, _segmentMetadata, ReadMode.mmap);
+    long evictionIdleTimeMs = 1000_000L;
+    LazyColumnIndexContainers indexContainers =
+        new LazyColumnIndexContainers(segmentDirectory.createReader(), _segmentMetadata, new IndexLoadingConfig(),
+            evictionIdleTimeMs);
+    try {
+      Assert.assertEquals(indexContainers.getNumLoadedColumns(), 0);
+      ColumnIndexContainer indexContainer = indexContainers.get("d0");
+      Assert.assertNotNull(indexContainer);
+      Assert.assertSame(indexContainers.get("d0"), indexContainer);
+      Assert.assertNotNull(indexContainers.get(METRIC));
+      Assert.assertNull(indexContainers.get("nonExistingColumn"));
+      Assert.assertEquals(indexContainers.getNumLoadedColumns(), 2);
+
+      // Nothing to evict before the idle time
+      indexContainers.evictIdleColumns(System.currentTimeMillis());
+      Assert.assertEquals(indexContainers.getNumLoadedColumns(), 2);
+
+      // Evicted columns are loaded again on the next access
+      indexContainers.evictIdleColumns(System.currentTimeMillis() + evictionIdleTimeMs + 1);
+      Assert.assertEquals(indexContainers.getNumLoadedColumns(), 0);
+      Assert.assertNotSame(indexContainers.get("d0"), indexContainer);
+      Assert.assertEquals(indexContainers.getNumLoadedColumns(), 1);
+    } finally {
+      indexContainers.close();
+      segmentDirectory.close();
+    }
+    Assert.assertEquals(indexContainers.getNumLoadedColumns(), 0);
+  }
+
+  @Test
+  public void testSameValuesAsEagerLoading()
+      throws Exception {
+    IndexLoadingConfig eagerLoadingConfig = new IndexLoadingConfig();
+    eagerLoadingConfig.setReadMode(ReadMode.mmap);
+    IndexLoadingConfig lazyLoadingConfig = new IndexLoadingConfig();
+    lazyLoadingConfig.setReadMode(ReadMode.mmap);
+    lazyLoadingConfig.setLazyColumnLoading(true);
+    IndexSegmentImpl eagerSegment = (IndexSegmentImpl) Loaders.IndexSegment.load(_segmentDir, eagerLoadingConfig);
+    IndexSegmentImpl lazySegment = (IndexSegmentImpl) Loaders.IndexSegment.load(_segmentDir, lazyLoadingConfig);
+    try {
+      for (String column : eagerSegment.getColumnNames()) {
+        Dictionary eagerDictionary = eagerSegment.getDictionaryFor(column);
+        Dictionary lazyDictionary = lazySegment.getDictionaryFor(column);
+        SingleColumnSingleValueReader eagerReader =
+            (SingleColumnSingleValueReader) eagerSegment.getForwardIndexReaderFor(column);
+        SingleColumnSingleValueReader lazyReader =
+            (SingleColumnSingleValueReader) lazySegment.getForwardIndexReaderFor(column);
+        for (int docId = 0; docId < NUM_ROWS; docId++) {
+          Assert.assertEquals(lazyDictionary.get(lazyReader.getInt(docId)),
+              eagerDictionary.get(eagerReader.getInt(docId)));
+        }
+      }
+    } finally {
+      eagerSegment.destroy();
+      lazySegment.destroy();
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
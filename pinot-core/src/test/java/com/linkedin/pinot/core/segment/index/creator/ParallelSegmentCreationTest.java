@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.creator;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.data.TimeFieldSpec;
+import com.linkedin.pinot.common.data.TimeGranularitySpec;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.PinotSegmentRecordReader;
+import com.linkedin.pinot.core.data.readers.TestRecordReader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.ColumnStatistics;
+import com.linkedin.pinot.core.segment.creator.StatsCollectorConfig;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.store.SegmentDirectory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that the segment created with multiple indexing threads is the same as the one created with a single thread.
+ */
+public class ParallelSegmentCreationTest {
+  private static final String SEGMENT_DIR_NAME =
+      System.getProperty("java.io.tmpdir") + File.separator + "parallelSegmentCreationTest";
+  // More than 2 batches of the pipelined reader
+  private static final int NUM_ROWS = 25000;
+  private static final int NUM_INDEXING_THREADS = 4;
+
+  private static final String D_SV_1 = "d_sv_1";
+  private static final String D_SV_2 = "d_sv_2";
+  private static final String D_MV_1 = "d_mv_1";
+  private static final String M1 = "m1";
+  private static final String M2 = "m2";
+  private static final String TIME = "t";
+
+  private Schema _schema;
+  private List<GenericRow> _rows;
+
+  @BeforeClass
+  public void setUp() {
+    FileUtils.deleteQuietly(new File(SEGMENT_DIR_NAME));
+
+    _schema = new Schema();
+    _schema.setSchemaName("schema");
+    _schema.addField(new DimensionFieldSpec(D_SV_1, FieldSpec.DataType.STRING, true));
+    _schema.addField(new DimensionFieldSpec(D_SV_2, FieldSpec.DataType.INT, true));
+    _schema.addField(new DimensionFieldSpec(D_MV_1, FieldSpec.DataType.STRING, false));
+    _schema.addField(new MetricFieldSpec(M1, FieldSpec.DataType.INT));
+    _schema.addField(new MetricFieldSpec(M2, FieldSpec.DataType.DOUBLE));
+    _schema.addField(new TimeFieldSpec(new TimeGranularitySpec(FieldSpec.DataType.LONG, TimeUnit.HOURS, TIME)));
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> fields = new HashMap<>();
+      fields.put(D_SV_1, "v" + random.nextInt(1000));
+      fields.put(D_SV_2, random.nextInt(100));
+      int numValues = 1 + random.nextInt(3);
+      Object[] mvValues = new Object[numValues];
+      for (int j = 0; j < numValues; j++) {
+        mvValues[j] = "mv" + random.nextInt(50);
+      }
+      fields.put(D_MV_1, mvValues);
+      fields.put(M1, random.nextInt());
+      fields.put(M2, random.nextDouble());
+      // Sorted time column
+      fields.put(TIME, 400000L + i / 100);
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      _rows.add(row);
+    }
+  }
+
+  @Test
+  public void testParallelSegmentCreation()
+      throws Exception {
+    File sequentialSegmentDir = buildSegment("sequentialSegment", 1);
+    File parallelSegmentDir = buildSegment("parallelSegment", NUM_INDEXING_THREADS);
+
+    // Same stats for all the columns
+    SegmentMetadataImpl sequentialMetadata = SegmentDirectory.loadSegmentMetadata(sequentialSegmentDir);
+    SegmentMetadataImpl parallelMetadata = SegmentDirectory.loadSegmentMetadata(parallelSegmentDir);
+    Assert.assertEquals(parallelMetadata.getTotalDocs(), NUM_ROWS);
+    Assert.assertEquals(parallelMetadata.getAllColumns(), sequentialMetadata.getAllColumns());
+    Assert.assertEquals(parallelMetadata.getStartTime(), sequentialMetadata.getStartTime());
+    Assert.assertEquals(parallelMetadata.getEndTime(), sequentialMetadata.getEndTime());
+    for (String column : sequentialMetadata.getAllColumns()) {
+      ColumnMetadata expected = sequentialMetadata.getColumnMetadataFor(column);
+      ColumnMetadata actual = parallelMetadata.getColumnMetadataFor(column);
+      Assert.assertEquals(actual.getCardinality(), expected.getCardinality(), column);
+      Assert.assertEquals(actual.getTotalDocs(), expected.getTotalDocs(), column);
+      Assert.assertEquals(actual.getBitsPerElement(), expected.getBitsPerElement(), column);
+      Assert.assertEquals(actual.isSorted(), expected.isSorted(), column);
+      Assert.assertEquals(actual.hasDictionary(), expected.hasDictionary(), column);
+      Assert.assertEquals(actual.hasInvertedIndex(), expected.hasInvertedIndex(), column);
+      Assert.assertEquals(actual.getMaxNumberOfMultiValues(), expected.getMaxNumberOfMultiValues(), column);
+      Assert.assertEquals(actual.getTotalNumberOfEntries(), expected.getTotalNumberOfEntries(), column);
+      Assert.assertEquals(actual.getMinValue(), expected.getMinValue(), column);
+      Assert.assertEquals(actual.getMaxValue(), expected.getMaxValue(), column);
+    }
+
+    // Same rows as the sequential segment, in the same order
+    PinotSegmentRecordReader sequentialRecordReader = new PinotSegmentRecordReader(sequentialSegmentDir);
+    PinotSegmentRecordReader parallelRecordReader = new PinotSegmentRecordReader(parallelSegmentDir);
+    sequentialRecordReader.init();
+    parallelRecordReader.init();
+    int rowId = 0;
+    while (sequentialRecordReader.hasNext()) {
+      Assert.assertTrue(parallelRecordReader.hasNext());
+      GenericRow expected = sequentialRecordReader.next();
+      GenericRow actual = parallelRecordReader.next();
+      for (String column : _schema.getColumnNames()) {
+        Assert.assertEquals(actual.getValue(column), expected.getValue(column), column);
+      }
+      rowId++;
+    }
+    Assert.assertFalse(parallelRecordReader.hasNext());
+    sequentialRecordReader.close();
+    parallelRecordReader.close();
+    Assert.assertEquals(rowId, NUM_ROWS);
+  }
+
+  @Test
+  public void testStatsCollectionWithNullValues()
+      throws Exception {
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.init(new HashMap<String, Object>());
+      for (String column : _schema.getColumnNames()) {
+        // Null out some of the values of every column
+        row.putField(column, i % 7 == 0 ? null : _rows.get(i).getValue(column));
+      }
+      rows.add(row);
+    }
+
+    StatsCollectorConfig statsCollectorConfig = new StatsCollectorConfig(_schema, null);
+    SegmentPreIndexStatsCollectorImpl sequentialCollector = new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig);
+    sequentialCollector.init();
+    for (GenericRow row : rows) {
+      sequentialCollector.collectRow(row);
+    }
+    sequentialCollector.build();
+    SegmentPreIndexStatsCollectorImpl parallelCollector = new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig);
+    parallelCollector.init();
+    ExecutorService executorService = Executors.newFixedThreadPool(NUM_INDEXING_THREADS);
+    try {
+      parallelCollector.collectRows(rows.subList(0, NUM_ROWS / 2), executorService);
+      parallelCollector.collectRows(rows.subList(NUM_ROWS / 2, NUM_ROWS), executorService);
+    } finally {
+      executorService.shutdown();
+    }
+    parallelCollector.build();
+
+    Assert.assertEquals(parallelCollector.getTotalDocCount(), sequentialCollector.getTotalDocCount());
+    for (String column : _schema.getColumnNames()) {
+      ColumnStatistics expected = sequentialCollector.getColumnProfileFor(column);
+      ColumnStatistics actual = parallelCollector.getColumnProfileFor(column);
+      Assert.assertEquals(actual.getCardinality(), expected.getCardinality(), column);
+      Assert.assertEquals(actual.getMinValue(), expected.getMinValue(), column);
+      Assert.assertEquals(actual.getMaxValue(), expected.getMaxValue(), column);
+      Assert.assertEquals(actual.hasNull(), expected.hasNull(), column);
+      Assert.assertEquals(actual.isSorted(), expected.isSorted(), column);
+      Assert.assertEquals(actual.getTotalNumberOfEntries(), expected.getTotalNumberOfEntries(), column);
+      Assert.assertEquals(actual.getMaxNumberOfMultiValues(), expected.getMaxNumberOfMultiValues(), column);
+    }
+  }
+
+  private File buildSegment(String segmentName, int numIndexingThreads)
+      throws Exception {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_schema);
+    config.setTableName("testTable");
+    config.setOutDir(SEGMENT_DIR_NAME);
+    config.setSegmentName(segmentName);
+    config.setInvertedIndexCreationColumns(Collections.singletonList(D_SV_1));
+    config.setNumIndexingThreads(numIndexingThreads);
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestRecordReader(_rows, _schema));
+    driver.build();
+    return new File(SEGMENT_DIR_NAME, segmentName);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(new File(SEGMENT_DIR_NAME));
+  }
+}
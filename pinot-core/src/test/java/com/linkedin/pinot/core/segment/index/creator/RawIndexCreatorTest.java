@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -212,6 +213,15 @@ public class RawIndexCreatorTest {
     SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
     config.setRawIndexCreationColumns(schema.getDimensionNames());
 
+    // Readers pick the decompressor from the index header, so use different compression types across columns. Delta
+    // compression is not supported for float and falls back to the default compression type.
+    Map<String, ChunkCompressorFactory.CompressionType> compressionTypes = new HashMap<>();
+    compressionTypes.put(INT_COLUMN, ChunkCompressorFactory.CompressionType.LZ4);
+    compressionTypes.put(LONG_COLUMN, ChunkCompressorFactory.CompressionType.DELTA);
+    compressionTypes.put(FLOAT_COLUMN, ChunkCompressorFactory.CompressionType.DELTA);
+    compressionTypes.put(STRING_COLUMN, ChunkCompressorFactory.CompressionType.DEFLATE);
+    config.setRawIndexCompressionType(compressionTypes);
+
     config.setOutDir(SEGMENT_DIR_NAME);
     config.setSegmentName(SEGMENT_NAME);
 
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.loader;
+
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import com.linkedin.pinot.core.segment.store.ColumnIndexType;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class SegmentWarmerTest {
+
+  @Test
+  public void testAccessPattern() {
+    Assert.assertEquals(SegmentWarmer.AccessPattern.forIndexType(ColumnIndexType.DICTIONARY),
+        SegmentWarmer.AccessPattern.RANDOM);
+    Assert.assertEquals(SegmentWarmer.AccessPattern.forIndexType(ColumnIndexType.INVERTED_INDEX),
+        SegmentWarmer.AccessPattern.RANDOM);
+    Assert.assertEquals(SegmentWarmer.AccessPattern.forIndexType(ColumnIndexType.FORWARD_INDEX),
+        SegmentWarmer.AccessPattern.SEQUENTIAL);
+  }
+
+  @Test
+  public void testBudget() {
+    SegmentWarmer segmentWarmer = new SegmentWarmer();
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty(SegmentWarmer.MAX_BYTES_KEY, 10000);
+    config.setProperty(SegmentWarmer.MAX_BYTES_PER_SECOND_KEY, 1024 * 1024);
+    segmentWarmer.init(config);
+
+    try (PinotDataBuffer buffer = PinotDataBuffer.allocateDirect(8192, "testBudget")) {
+      Assert.assertEquals(segmentWarmer.prefetch(buffer, 8192), 8192);
+      Assert.assertEquals(segmentWarmer.prefetch(buffer, 8192), 1808);
+      Assert.assertEquals(segmentWarmer.prefetch(buffer, 8192), 0);
+    }
+    Assert.assertEquals(segmentWarmer.getWarmedUpBytes(), 10000);
+  }
+}
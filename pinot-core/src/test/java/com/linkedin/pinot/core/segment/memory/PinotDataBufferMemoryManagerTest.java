@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.memory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class PinotDataBufferMemoryManagerTest {
+  private static final String TABLE_NAME = "memoryManagerTestTable";
+  private static final String SEGMENT_NAME = "memoryManagerTestSegment";
+
+  @Test
+  public void testAccounting() {
+    PinotDataBufferMemoryManager memoryManager = PinotDataBufferMemoryManager.getInstance();
+    long directBytes = memoryManager.getDirectBytes();
+
+    PinotDataBuffer buffer;
+    try (PinotDataBufferMemoryManager.Scope ignored = memoryManager.reserve(TABLE_NAME, SEGMENT_NAME,
+        PinotDataBufferMemoryManager.AllocationType.DIRECT, 1000)) {
+      buffer = PinotDataBuffer.allocateDirect(1000, "testAccounting");
+    }
+    Assert.assertNull(PinotDataBufferMemoryManager.getCurrentAccount());
+    Assert.assertEquals(memoryManager.getDirectBytes(), directBytes + 1000);
+    Assert.assertEquals(memoryManager.getTableBytes(TABLE_NAME), 1000);
+    PinotDataBufferMemoryManager.Account account = getAccount(memoryManager);
+    Assert.assertNotNull(account);
+    Assert.assertEquals(account.getDirectBytes(), 1000);
+    Assert.assertEquals(account.getMappedBytes(), 0);
+
+    // Closing a duplicate should not release the memory
+    buffer.duplicate().close();
+    Assert.assertEquals(memoryManager.getTableBytes(TABLE_NAME), 1000);
+
+    buffer.close();
+    buffer.close();
+    Assert.assertEquals(memoryManager.getDirectBytes(), directBytes);
+    Assert.assertEquals(memoryManager.getTableBytes(TABLE_NAME), 0);
+    Assert.assertNull(getAccount(memoryManager));
+  }
+
+  @Test
+  public void testBudgets()
+      throws Exception {
+    final PinotDataBufferMemoryManager memoryManager = new PinotDataBufferMemoryManager();
+    memoryManager.setBudgets(1000, 0, 0, 100);
+
+    // Never fits
+    try {
+      memoryManager.reserve(TABLE_NAME, SEGMENT_NAME, PinotDataBufferMemoryManager.AllocationType.DIRECT, 1001);
+      Assert.fail();
+    } catch (PinotDataBufferMemoryManager.BudgetExceededException e) {
+      // Expected
+    }
+
+    // Mapped memory is unlimited
+    memoryManager.reserve(TABLE_NAME, SEGMENT_NAME, PinotDataBufferMemoryManager.AllocationType.MAPPED, 10000)
+        .close();
+
+    PinotDataBufferMemoryManager.Scope scope =
+        memoryManager.reserve(TABLE_NAME, SEGMENT_NAME, PinotDataBufferMemoryManager.AllocationType.DIRECT, 600);
+
+    // Does not fit before the timeout
+    long startTimeMs = System.currentTimeMillis();
+    try {
+      memoryManager.reserve(TABLE_NAME, SEGMENT_NAME, PinotDataBufferMemoryManager.AllocationType.DIRECT, 600);
+      Assert.fail();
+    } catch (PinotDataBufferMemoryManager.BudgetExceededException e) {
+      // Expected
+    }
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs >= 100);
+
+    // Queued until the first reservation is released
+    memoryManager.setBudgets(1000, 0, 0, 60_000);
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> future = executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          memoryManager.reserve(TABLE_NAME, SEGMENT_NAME, PinotDataBufferMemoryManager.AllocationType.DIRECT, 600)
+              .close();
+        }
+      });
+      Thread.sleep(100);
+      Assert.assertFalse(future.isDone());
+      scope.close();
+      future.get(10, TimeUnit.SECONDS);
+    } finally {
+      executorService.shutdown();
+    }
+
+    // Per table budget
+    memoryManager.setBudgets(0, 0, 1000, 0);
+    scope = memoryManager.reserve(TABLE_NAME, SEGMENT_NAME, PinotDataBufferMemoryManager.AllocationType.MAPPED, 600);
+    memoryManager.reserve("otherTable", SEGMENT_NAME, PinotDataBufferMemoryManager.AllocationType.DIRECT, 600).close();
+    try {
+      memoryManager.reserve(TABLE_NAME, "otherSegment", PinotDataBufferMemoryManager.AllocationType.DIRECT, 600);
+      Assert.fail();
+    } catch (PinotDataBufferMemoryManager.BudgetExceededException e) {
+      // Expected
+    }
+    scope.close();
+  }
+
+  @Test
+  public void testAllocationsConsumeReservation() {
+    PinotDataBufferMemoryManager memoryManager = PinotDataBufferMemoryManager.getInstance();
+    memoryManager.setBudgets(memoryManager.getDirectBytes() + 1500, 0, 0, 0);
+    try {
+      PinotDataBuffer buffer;
+      try (PinotDataBufferMemoryManager.Scope ignored = memoryManager.reserve(TABLE_NAME, SEGMENT_NAME,
+          PinotDataBufferMemoryManager.AllocationType.DIRECT, 1000)) {
+        buffer = PinotDataBuffer.allocateDirect(1000, "testAllocationsConsumeReservation");
+
+        // The allocation is counted once, not on top of the reservation
+        memoryManager.reserve(TABLE_NAME, "otherSegment", PinotDataBufferMemoryManager.AllocationType.DIRECT, 500)
+            .close();
+        try {
+          memoryManager.reserve(TABLE_NAME, "otherSegment", PinotDataBufferMemoryManager.AllocationType.DIRECT, 501);
+          Assert.fail();
+        } catch (PinotDataBufferMemoryManager.BudgetExceededException e) {
+          // Expected
+        }
+      }
+      buffer.close();
+    } finally {
+      memoryManager.setBudgets(0, 0, 0, PinotDataBufferMemoryManager.DEFAULT_RESERVATION_TIMEOUT_MS);
+    }
+  }
+
+  private static PinotDataBufferMemoryManager.Account getAccount(PinotDataBufferMemoryManager memoryManager) {
+    for (PinotDataBufferMemoryManager.Account account : memoryManager.getAccounts()) {
+      if (account.getTableName().equals(TABLE_NAME) && account.getSegmentName().equals(SEGMENT_NAME)) {
+        return account;
+      }
+    }
+    return null;
+  }
+}
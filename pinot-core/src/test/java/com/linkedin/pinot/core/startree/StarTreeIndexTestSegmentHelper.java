@@ -31,6 +31,7 @@ import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverIm
 import com.linkedin.pinot.core.segment.index.loader.IndexLoadingConfig;
 import com.linkedin.pinot.core.segment.index.loader.Loaders;
 import com.linkedin.pinot.core.startree.hll.HllConfig;
+import com.linkedin.pinot.core.startree.kll.KllConfig;
 import com.linkedin.pinot.util.TestUtils;
 import java.io.File;
 import java.util.ArrayList;
@@ -63,16 +64,21 @@ public class StarTreeIndexTestSegmentHelper {
    */
   public static Schema buildSegment(String segmentDirName, String segmentName, boolean enableOffHeapFormat)
       throws Exception {
-    return buildSegment(segmentDirName, segmentName, null, enableOffHeapFormat);
+    return buildSegment(segmentDirName, segmentName, null, null, enableOffHeapFormat);
   }
 
   public static Schema buildSegmentWithHll(String segmentDirName, String segmentName, HllConfig hllConfig)
       throws Exception {
-    return buildSegment(segmentDirName, segmentName, hllConfig, false);
+    return buildSegment(segmentDirName, segmentName, hllConfig, null, false);
+  }
+
+  public static Schema buildSegmentWithKll(String segmentDirName, String segmentName, KllConfig kllConfig)
+      throws Exception {
+    return buildSegment(segmentDirName, segmentName, null, kllConfig, false);
   }
 
   private static Schema buildSegment(String segmentDirName, String segmentName, HllConfig hllConfig,
-      boolean enableOffHeapFormat)
+      KllConfig kllConfig, boolean enableOffHeapFormat)
       throws Exception {
     final int rows = (int) MathUtils.factorial(NUM_DIMENSIONS) * 100;
     Schema schema = new Schema();
@@ -96,6 +102,7 @@ public class StarTreeIndexTestSegmentHelper {
     config.setFormat(FileFormat.AVRO);
     config.setSegmentName(segmentName);
     config.setHllConfig(hllConfig);
+    config.setKllConfig(kllConfig);
     config.setStarTreeIndexSpec(buildStarTreeIndexSpec(enableOffHeapFormat));
 
     Random random = new Random(RANDOM_SEED);
@@ -17,15 +17,18 @@ package com.linkedin.pinot.core.startree;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.math.util.MathUtils;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.linkedin.pinot.common.data.DimensionFieldSpec;
@@ -171,4 +174,90 @@ public class TestOffheapStarTreeBuilder {
     FileUtils.deleteDirectory(builderConfig.outDir);
   }
 
+  /**
+   * Test that the star tree built with a small sort buffer (external merge sort) is the same as the one built with the
+   * in place sort.
+   * @throws Exception
+   */
+  @Test
+  public void testExternalSort()
+      throws Exception {
+    long seed = System.currentTimeMillis();
+    File inPlaceOutDir = new File("/tmp/startree-in-place");
+    File externalOutDir = new File("/tmp/startree-external");
+    OffHeapStarTreeBuilder inPlaceBuilder = buildRandom(seed, inPlaceOutDir, 0L, 0);
+    // Buffer of about 100 records
+    OffHeapStarTreeBuilder externalBuilder = buildRandom(seed, externalOutDir, 100 * 64, 4);
+    try {
+      String errorMessage = "Random seed: " + seed;
+      int numRawDocs = inPlaceBuilder.getTotalRawDocumentCount();
+      int numAggDocs = inPlaceBuilder.getTotalAggregateDocumentCount();
+      Assert.assertEquals(externalBuilder.getTotalRawDocumentCount(), numRawDocs, errorMessage);
+      Assert.assertEquals(externalBuilder.getTotalAggregateDocumentCount(), numAggDocs, errorMessage);
+      Assert.assertEquals(externalBuilder.getStarTreeAsJSON().toString(),
+          inPlaceBuilder.getStarTreeAsJSON().toString(), errorMessage);
+      // Records with the same dimensions might be sorted in different orders
+      Assert.assertEquals(getSortedRows(externalBuilder, 0, numRawDocs),
+          getSortedRows(inPlaceBuilder, 0, numRawDocs), errorMessage);
+      Assert.assertEquals(getSortedRows(externalBuilder, numRawDocs, numRawDocs + numAggDocs),
+          getSortedRows(inPlaceBuilder, numRawDocs, numRawDocs + numAggDocs), errorMessage);
+    } finally {
+      FileUtils.deleteDirectory(inPlaceOutDir);
+      FileUtils.deleteDirectory(externalOutDir);
+    }
+  }
+
+  private OffHeapStarTreeBuilder buildRandom(long seed, File outDir, long sortBufferSizeInBytes, int numSortThreads)
+      throws Exception {
+    int ROWS = 2000;
+    int numDimensions = 4;
+    int numMetrics = 2;
+    StarTreeBuilderConfig builderConfig = new StarTreeBuilderConfig();
+    Schema schema = new Schema();
+    builderConfig.dimensionsSplitOrder = new ArrayList<>();
+    for (int i = 0; i < numDimensions; i++) {
+      String dimName = "d" + (i + 1);
+      schema.addField(new DimensionFieldSpec(dimName, DataType.STRING, true));
+      builderConfig.dimensionsSplitOrder.add(dimName);
+    }
+    schema.setTimeFieldSpec(new TimeFieldSpec("daysSinceEpoch", DataType.INT, TimeUnit.DAYS));
+    for (int i = 0; i < numMetrics; i++) {
+      schema.addField(new MetricFieldSpec("m" + (i + 1), DataType.INT));
+    }
+    builderConfig.maxLeafRecords = 10;
+    builderConfig.schema = schema;
+    builderConfig.outDir = outDir;
+    builderConfig.setSortBufferSizeInBytes(sortBufferSizeInBytes);
+    builderConfig.setNumSortThreads(numSortThreads);
+    OffHeapStarTreeBuilder builder = new OffHeapStarTreeBuilder();
+    builder.init(builderConfig);
+    Random r = new Random(seed);
+    HashMap<String, Object> map = new HashMap<>();
+    for (int row = 0; row < ROWS; row++) {
+      for (int i = 0; i < numDimensions; i++) {
+        String dimName = schema.getDimensionFieldSpecs().get(i).getName();
+        map.put(dimName, dimName + "-v" + r.nextInt(numDimensions - i + 2));
+      }
+      map.put("daysSinceEpoch", r.nextInt(10));
+      for (int i = 0; i < numMetrics; i++) {
+        map.put(schema.getMetricFieldSpecs().get(i).getName(), r.nextInt(100));
+      }
+      GenericRow genericRow = new GenericRow();
+      genericRow.init(map);
+      builder.append(genericRow);
+    }
+    builder.build();
+    return builder;
+  }
+
+  private static List<String> getSortedRows(OffHeapStarTreeBuilder builder, int startDocId, int endDocId)
+      throws Exception {
+    List<String> rows = new ArrayList<>();
+    Iterator<GenericRow> iterator = builder.iterator(startDocId, endDocId);
+    while (iterator.hasNext()) {
+      rows.add(iterator.next().toString());
+    }
+    Collections.sort(rows);
+    return rows;
+  }
 }
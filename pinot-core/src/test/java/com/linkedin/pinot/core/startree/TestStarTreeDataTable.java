@@ -85,6 +85,64 @@ public class TestStarTreeDataTable {
 
   }
 
+  @Test
+  public void testExternalSort() throws Exception {
+    Random r = new Random();
+    int ROWS = 10000;
+    final int COLS = 4;
+    // The last column is a metric holding the row index, so that rows with equal dimensions can be told apart
+    final int TOTAL_COLS = COLS + 1;
+    int startRow = 100;
+    int endRow = 9000;
+    File tempFile = new File("/tmp/test." + System.currentTimeMillis());
+    DataOutputStream dos = new DataOutputStream(new FileOutputStream(tempFile));
+    for (int row = 0; row < ROWS; row++) {
+      for (int col = 0; col < COLS; col++) {
+        dos.writeInt(r.nextInt(5));
+      }
+      dos.writeInt(row);
+    }
+    dos.close();
+    int[][] input = read(tempFile, ROWS, TOTAL_COLS);
+
+    int[] sortOrder = new int[]{2, 0, 3, 1};
+    // Buffer fitting about 1000 records, so that the records are sorted in multiple chunks
+    StarTreeDataTable sorter =
+        new StarTreeDataTable(tempFile, COLS * (Integer.SIZE / 8), Integer.SIZE / 8, sortOrder, 1000 * 24, 4);
+    sorter.sort(startRow, endRow);
+    int[][] output = read(tempFile, ROWS, TOTAL_COLS);
+    tempFile.delete();
+
+    // Records outside of the range are not touched
+    for (int row = 0; row < ROWS; row++) {
+      if (row < startRow || row >= endRow) {
+        Assert.assertEquals(output[row], input[row]);
+      }
+    }
+    // Records in the range are sorted on the dimensions in the sort order
+    for (int row = startRow + 1; row < endRow; row++) {
+      int[] previous = output[row - 1];
+      int[] current = output[row];
+      for (int dimIndex : sortOrder) {
+        if (previous[dimIndex] != current[dimIndex]) {
+          Assert.assertTrue(previous[dimIndex] < current[dimIndex]);
+          break;
+        }
+      }
+    }
+    // Records in the range are the same as before sorting
+    Comparator<int[]> comparator = new Comparator<int[]>() {
+      @Override
+      public int compare(int[] o1, int[] o2) {
+        return Integer.compare(o1[COLS], o2[COLS]);
+      }
+    };
+    int[][] expected = Arrays.copyOfRange(input, startRow, endRow);
+    int[][] actual = Arrays.copyOfRange(output, startRow, endRow);
+    Arrays.sort(actual, comparator);
+    Assert.assertTrue(compare(expected, actual, endRow - startRow));
+  }
+
   private static boolean compare(int[][] expected, int[][] actual, int numRows) {
     for (int i = 0; i < numRows; i++) {
       if (!Arrays.equals(expected[i], actual[i])) {
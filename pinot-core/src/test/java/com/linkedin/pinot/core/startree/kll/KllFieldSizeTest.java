@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree.kll;
+
+import com.linkedin.pinot.core.query.aggregation.function.customobject.KllSketch;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class KllFieldSizeTest {
+  private final Random _random = new Random();
+
+  @Test
+  public void testKllFieldSerializedSize() {
+    for (int k : new int[]{16, KllConstants.DEFAULT_K, KllSketch.DEFAULT_K}) {
+      int kllFieldSize = KllUtil.getKllFieldSizeFromK(k);
+      KllSketch kll = new KllSketch(k);
+      KllSketch mergedKll = new KllSketch(k);
+      for (int i = 0; i < 1_000_000; i++) {
+        double value = _random.nextDouble();
+        kll.add(value);
+        if (i % 1000 == 0) {
+          mergedKll.merge(kll);
+        }
+        Assert.assertTrue(kll.getNumRetainedValues() * 8 < kllFieldSize);
+      }
+      Assert.assertTrue(kll.toBytes().length <= kllFieldSize);
+      Assert.assertTrue(mergedKll.toBytes().length <= kllFieldSize);
+
+      // Fixed size string round trip
+      String kllString = KllUtil.convertKllToString(kll, kllFieldSize);
+      Assert.assertEquals(kllString.length(), kllFieldSize);
+      KllSketch deserializedKll = KllUtil.convertStringToKll(kllString);
+      Assert.assertEquals(deserializedKll.getCount(), kll.getCount());
+      Assert.assertEquals(deserializedKll.getNumRetainedValues(), kll.getNumRetainedValues());
+      Assert.assertEquals(deserializedKll.getQuantile(0.5), kll.getQuantile(0.5));
+    }
+  }
+
+  @Test
+  public void testSingleValueKll() {
+    int kllFieldSize = KllUtil.getKllFieldSizeFromK(KllConstants.DEFAULT_K);
+    String kllString = KllUtil.singleValueKllAsString(KllConstants.DEFAULT_K, kllFieldSize, 123);
+    Assert.assertEquals(kllString.length(), kllFieldSize);
+    KllSketch kll = KllUtil.convertStringToKll(kllString);
+    Assert.assertEquals(kll.getK(), KllConstants.DEFAULT_K);
+    Assert.assertEquals(kll.getCount(), 1L);
+    Assert.assertEquals(kll.getQuantile(0.5), 123.0);
+  }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree.kll;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.core.data.manager.offline.OfflineSegmentDataManager;
+import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.operator.filter.StarTreeIndexOperator;
+import com.linkedin.pinot.core.plan.FilterPlanNode;
+import com.linkedin.pinot.core.plan.Plan;
+import com.linkedin.pinot.core.plan.maker.BrokerRequestPreProcessor;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.startree.StarTreeIndexTestSegmentHelper;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * This test generates a Star-Tree segment with random data and KLL derived columns, and ensures that PERCENTILEKLL
+ * queries are answered from the sketches pre-aggregated in the star-tree, with results close to the exact PERCENTILE
+ * results computed by scanning raw docs.
+ */
+public class KllStarTreeIndexTest {
+  private static final String DATA_DIR = System.getProperty("java.io.tmpdir") + File.separator + "KllStarTreeIndexTest";
+  private static final String SEGMENT_NAME = "starTreeSegment";
+  private static final String SEGMENT_WITHOUT_KLL_NAME = "starTreeSegmentWithoutKll";
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final PlanMaker PLAN_MAKER = new InstancePlanMakerImplV2();
+
+  private static final KllConfig KLL_CONFIG =
+      new KllConfig(KllConstants.DEFAULT_K, new HashSet<>(Arrays.asList("m1", "m2")),
+          KllConstants.DEFAULT_KLL_DERIVE_COLUMN_SUFFIX);
+
+  // Metric values are uniformly distributed in [0, 10000), allow 10% error on values (about 4 times the rank error)
+  private static final double DELTA = 1000;
+
+  private static final String[] HARD_CODED_QUERIES = new String[]{
+      "SELECT PERCENTILEKLL50(m1) FROM T",
+      "SELECT PERCENTILEKLL90(m1), PERCENTILEKLL50(m2) FROM T WHERE d1 = 'd1-v1'",
+      "SELECT PERCENTILEKLL50(m1) FROM T WHERE d1 <> 'd1-v1'",
+      "SELECT PERCENTILEKLL50(m1) FROM T WHERE d1 IN ('d1-v1', 'd1-v2') AND d2 NOT IN ('d2-v1')",
+      "SELECT PERCENTILEKLL50(m1) FROM T GROUP BY d1",
+      "SELECT PERCENTILEKLL90(m1), PERCENTILEKLL50(m2) FROM T WHERE d1 BETWEEN 'd1-v1' AND 'd1-v3' GROUP BY d2",
+      "SELECT PERCENTILEKLL50(m1) FROM T WHERE d1 IN ('d1-v1', 'd1-v2') GROUP BY d1, d2"
+  };
+
+  private IndexSegment _segment;
+  private IndexSegment _segmentWithoutKll;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    StarTreeIndexTestSegmentHelper.buildSegmentWithKll(DATA_DIR, SEGMENT_NAME, KLL_CONFIG);
+    _segment = ColumnarSegmentLoader.load(new File(DATA_DIR, SEGMENT_NAME), ReadMode.mmap);
+    StarTreeIndexTestSegmentHelper.buildSegment(DATA_DIR, SEGMENT_WITHOUT_KLL_NAME, false);
+    _segmentWithoutKll = ColumnarSegmentLoader.load(new File(DATA_DIR, SEGMENT_WITHOUT_KLL_NAME), ReadMode.mmap);
+  }
+
+  @Test
+  public void testRewrite() {
+    for (String query : HARD_CODED_QUERIES) {
+      BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+      BrokerRequest rewrittenBrokerRequest =
+          BrokerRequestPreProcessor.rewritePercentileKllColumnNames(_segment, brokerRequest);
+      Assert.assertNotSame(rewrittenBrokerRequest, brokerRequest, query);
+      Assert.assertTrue(new FilterPlanNode(_segment, rewrittenBrokerRequest).run() instanceof StarTreeIndexOperator,
+          query);
+      String rewrittenColumn = rewrittenBrokerRequest.getAggregationsInfo().get(0).getAggregationParams().get("column");
+      Assert.assertEquals(rewrittenColumn, "m1" + KllConstants.DEFAULT_KLL_DERIVE_COLUMN_SUFFIX, query);
+
+      // The passed in broker request should not be modified
+      Assert.assertEquals(brokerRequest.getAggregationsInfo().get(0).getAggregationParams().get("column"), "m1");
+    }
+
+    // No rewrite for the exact percentile or if star-tree is disabled
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest("SELECT PERCENTILEKLL50(m1), PERCENTILE50(m1) FROM T");
+    Assert.assertSame(BrokerRequestPreProcessor.rewritePercentileKllColumnNames(_segment, brokerRequest),
+        brokerRequest);
+    brokerRequest = COMPILER.compileToBrokerRequest("SELECT PERCENTILEKLL50(m1) FROM T");
+    Map<String, String> debugOptions = new HashMap<>();
+    debugOptions.put("useStarTree", "false");
+    brokerRequest.setDebugOptions(debugOptions);
+    Assert.assertSame(BrokerRequestPreProcessor.rewritePercentileKllColumnNames(_segment, brokerRequest),
+        brokerRequest);
+  }
+
+  @Test
+  public void testQueries() {
+    for (String query : HARD_CODED_QUERIES) {
+      BrokerRequest kllBrokerRequest = COMPILER.compileToBrokerRequest(query);
+      BrokerRequest exactBrokerRequest = COMPILER.compileToBrokerRequest(query.replace("PERCENTILEKLL", "PERCENTILE"));
+      Map<String, double[]> kllResults = execute(kllBrokerRequest);
+      Map<String, double[]> exactResults = execute(exactBrokerRequest);
+
+      Assert.assertEquals(kllResults.keySet(), exactResults.keySet(), query);
+      for (Map.Entry<String, double[]> entry : kllResults.entrySet()) {
+        double[] kllResult = entry.getValue();
+        double[] exactResult = exactResults.get(entry.getKey());
+        for (int i = 0; i < kllResult.length; i++) {
+          Assert.assertEquals(kllResult[i], exactResult[i], DELTA, query);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testResultColumnNames() {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(
+        "SELECT PERCENTILEKLL90(m1), PERCENTILEKLL50(m2) FROM T WHERE d1 = 'd1-v1'");
+    String[] expectedColumnNames = new String[]{
+        AggregationFunctionFactory.getAggregationFunction("PERCENTILEKLL90").getColumnName(new String[]{"m1"}),
+        AggregationFunctionFactory.getAggregationFunction("PERCENTILEKLL50").getColumnName(new String[]{"m2"})
+    };
+
+    // The results are named after the original columns whether or not the segment has the derived columns
+    for (IndexSegment indexSegment : new IndexSegment[]{_segment, _segmentWithoutKll}) {
+      IntermediateResultsBlock resultsBlock =
+          (IntermediateResultsBlock) PLAN_MAKER.makeInnerSegmentPlan(indexSegment, brokerRequest).run().nextBlock();
+      AggregationFunctionContext[] aggregationFunctionContexts = resultsBlock.getAggregationFunctionContexts();
+      for (int i = 0; i < expectedColumnNames.length; i++) {
+        Assert.assertEquals(aggregationFunctionContexts[i].getAggregationColumnName(), expectedColumnNames[i]);
+      }
+    }
+
+    // Mix the segments with and without the derived columns in both orders
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      for (List<IndexSegment> indexSegments : Arrays.asList(Arrays.asList(_segment, _segmentWithoutKll),
+          Arrays.asList(_segmentWithoutKll, _segment))) {
+        List<SegmentDataManager> segmentDataManagers = new ArrayList<>();
+        for (IndexSegment indexSegment : indexSegments) {
+          segmentDataManagers.add(new OfflineSegmentDataManager(indexSegment));
+        }
+        Plan plan = PLAN_MAKER.makeInterSegmentPlan(segmentDataManagers, brokerRequest, executorService, 10_000L);
+        plan.execute();
+        DataSchema dataSchema = plan.getInstanceResponse().getDataSchema();
+        Assert.assertEquals(dataSchema.size(), expectedColumnNames.length);
+        for (int i = 0; i < expectedColumnNames.length; i++) {
+          Assert.assertEquals(dataSchema.getColumnName(i), expectedColumnNames[i]);
+        }
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  /**
+   * Executes the query on the segment, and returns a map from group key (empty for aggregation only query) to the final
+   * results of the aggregation functions.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, double[]> execute(BrokerRequest brokerRequest) {
+    IntermediateResultsBlock resultsBlock =
+        (IntermediateResultsBlock) PLAN_MAKER.makeInnerSegmentPlan(_segment, brokerRequest).run().nextBlock();
+    int numAggregationFunctions = brokerRequest.getAggregationsInfoSize();
+    AggregationFunction[] aggregationFunctions = new AggregationFunction[numAggregationFunctions];
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      aggregationFunctions[i] = AggregationFunctionFactory.getAggregationFunction(
+          brokerRequest.getAggregationsInfo().get(i).getAggregationType());
+    }
+
+    Map<String, double[]> results = new HashMap<>();
+    if (brokerRequest.isSetGroupBy()) {
+      AggregationGroupByResult groupByResult = resultsBlock.getAggregationGroupByResult();
+      Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = groupByResult.getGroupKeyIterator();
+      while (groupKeyIterator.hasNext()) {
+        GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+        double[] result = new double[numAggregationFunctions];
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          result[i] = ((Number) aggregationFunctions[i].extractFinalResult(
+              groupByResult.getResultForKey(groupKey, i))).doubleValue();
+        }
+        results.put(groupKey._stringKey, result);
+      }
+    } else {
+      List<Object> aggregationResult = resultsBlock.getAggregationResult();
+      double[] result = new double[numAggregationFunctions];
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        result[i] = ((Number) aggregationFunctions[i].extractFinalResult(aggregationResult.get(i))).doubleValue();
+      }
+      results.put("", result);
+    }
+    return results;
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _segment.destroy();
+    _segmentWithoutKll.destroy();
+    FileUtils.deleteQuietly(new File(DATA_DIR));
+  }
+}
@@ -81,6 +81,18 @@ public class FixedByteChunkSingleValueReaderWriteTest {
       int actual = reader.getInt(i, context);
       Assert.assertEquals(actual, expected[i]);
     }
+
+    // Batch read across chunk boundaries
+    int[] actualValues = new int[NUM_VALUES];
+    reader.readIntValues(0, NUM_VALUES, actualValues, context);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      Assert.assertEquals(actualValues[i], expected[i]);
+    }
+    int startRow = NUM_DOCS_PER_CHUNK - 10;
+    reader.readIntValues(startRow, 20, actualValues, context);
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(actualValues[i], expected[startRow + i]);
+    }
     reader.close();
     FileUtils.deleteQuietly(outFile);
   }
@@ -117,6 +129,18 @@ public class FixedByteChunkSingleValueReaderWriteTest {
       long actual = reader.getLong(i, context);
       Assert.assertEquals(actual, expected[i]);
     }
+
+    // Batch read across chunk boundaries
+    long[] actualValues = new long[NUM_VALUES];
+    reader.readLongValues(0, NUM_VALUES, actualValues, context);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      Assert.assertEquals(actualValues[i], expected[i]);
+    }
+    int startRow = NUM_DOCS_PER_CHUNK - 10;
+    reader.readLongValues(startRow, 20, actualValues, context);
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(actualValues[i], expected[startRow + i]);
+    }
     reader.close();
     FileUtils.deleteQuietly(outFile);
   }
@@ -153,6 +177,18 @@ public class FixedByteChunkSingleValueReaderWriteTest {
       float actual = reader.getFloat(i, context);
       Assert.assertEquals(actual, expected[i]);
     }
+
+    // Batch read across chunk boundaries
+    float[] actualValues = new float[NUM_VALUES];
+    reader.readFloatValues(0, NUM_VALUES, actualValues, context);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      Assert.assertEquals(actualValues[i], expected[i]);
+    }
+    int startRow = NUM_DOCS_PER_CHUNK - 10;
+    reader.readFloatValues(startRow, 20, actualValues, context);
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(actualValues[i], expected[startRow + i]);
+    }
     reader.close();
     FileUtils.deleteQuietly(outFile);
   }
@@ -189,7 +225,80 @@ public class FixedByteChunkSingleValueReaderWriteTest {
       double actual = reader.getDouble(i, context);
       Assert.assertEquals(actual, expected[i]);
     }
+
+    // Batch read across chunk boundaries
+    double[] actualValues = new double[NUM_VALUES];
+    reader.readDoubleValues(0, NUM_VALUES, actualValues, context);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      Assert.assertEquals(actualValues[i], expected[i]);
+    }
+    int startRow = NUM_DOCS_PER_CHUNK - 10;
+    reader.readDoubleValues(startRow, 20, actualValues, context);
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(actualValues[i], expected[startRow + i]);
+    }
     reader.close();
     FileUtils.deleteQuietly(outFile);
   }
+
+  /**
+   * Writes monotonically increasing (timestamp like) long values and random int values with each of the non default
+   * compression types, and reads them back with the decompressor picked from the header.
+   */
+  @Test
+  public void testCompressionTypes()
+      throws Exception {
+    long[] expectedLongs = new long[NUM_VALUES];
+    int[] expectedInts = new int[NUM_VALUES];
+    long timestamp = System.currentTimeMillis();
+    for (int i = 0; i < NUM_VALUES; i++) {
+      timestamp += _random.nextInt(1000);
+      expectedLongs[i] = timestamp;
+      expectedInts[i] = _random.nextInt();
+    }
+
+    File outFile = new File(TEST_FILE);
+    for (ChunkCompressorFactory.CompressionType compressionType : new ChunkCompressorFactory.CompressionType[]{
+        ChunkCompressorFactory.CompressionType.LZ4, ChunkCompressorFactory.CompressionType.DEFLATE,
+        ChunkCompressorFactory.CompressionType.DELTA}) {
+      FileUtils.deleteQuietly(outFile);
+      FixedByteChunkSingleValueWriter writer = new FixedByteChunkSingleValueWriter(outFile,
+          ChunkCompressorFactory.getCompressor(compressionType, V1Constants.Numbers.LONG_SIZE), NUM_VALUES,
+          NUM_DOCS_PER_CHUNK, V1Constants.Numbers.LONG_SIZE);
+      for (int i = 0; i < NUM_VALUES; i++) {
+        writer.setLong(i, expectedLongs[i]);
+      }
+      writer.close();
+
+      PinotDataBuffer pinotDataBuffer =
+          PinotDataBuffer.fromFile(outFile, ReadMode.mmap, FileChannel.MapMode.READ_ONLY, getClass().getName());
+      FixedByteChunkSingleValueReader reader = new FixedByteChunkSingleValueReader(pinotDataBuffer);
+      ChunkReaderContext context = reader.createContext();
+      for (int i = 0; i < NUM_VALUES; i++) {
+        Assert.assertEquals(reader.getLong(i, context), expectedLongs[i], compressionType.toString());
+      }
+      reader.close();
+      pinotDataBuffer.close();
+
+      FileUtils.deleteQuietly(outFile);
+      writer = new FixedByteChunkSingleValueWriter(outFile,
+          ChunkCompressorFactory.getCompressor(compressionType, V1Constants.Numbers.INTEGER_SIZE), NUM_VALUES,
+          NUM_DOCS_PER_CHUNK, V1Constants.Numbers.INTEGER_SIZE);
+      for (int i = 0; i < NUM_VALUES; i++) {
+        writer.setInt(i, expectedInts[i]);
+      }
+      writer.close();
+
+      pinotDataBuffer =
+          PinotDataBuffer.fromFile(outFile, ReadMode.mmap, FileChannel.MapMode.READ_ONLY, getClass().getName());
+      reader = new FixedByteChunkSingleValueReader(pinotDataBuffer);
+      context = reader.createContext();
+      for (int i = 0; i < NUM_VALUES; i++) {
+        Assert.assertEquals(reader.getInt(i, context), expectedInts[i], compressionType.toString());
+      }
+      reader.close();
+      pinotDataBuffer.close();
+    }
+    FileUtils.deleteQuietly(outFile);
+  }
 }
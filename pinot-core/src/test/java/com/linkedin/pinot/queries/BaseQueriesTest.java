@@ -80,10 +80,33 @@ public abstract class BaseQueriesTest {
    * @return broker response.
    */
   protected BrokerResponseNative getBrokerResponseForQuery(String query) {
-    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    return getBrokerResponseForBrokerRequest(COMPILER.compileToBrokerRequest(query));
+  }
 
+  /**
+   * Run the given broker request on multiple index segments.
+   * <p>Use this to test the whole flow from server to broker with customized broker request (e.g. debug options).
+   * <p>The result should be equivalent to querying 4 identical index segments.
+   *
+   * @param brokerRequest broker request.
+   * @return broker response.
+   */
+  protected BrokerResponseNative getBrokerResponseForBrokerRequest(BrokerRequest brokerRequest) {
+    return getBrokerResponseForBrokerRequest(brokerRequest, PLAN_MAKER);
+  }
+
+  /**
+   * Run the given broker request on multiple index segments with the given plan maker.
+   * <p>Use this to test the whole flow from server to broker with customized plan maker (e.g. plan maker config).
+   * <p>The result should be equivalent to querying 4 identical index segments.
+   *
+   * @param brokerRequest broker request.
+   * @param planMaker plan maker.
+   * @return broker response.
+   */
+  protected BrokerResponseNative getBrokerResponseForBrokerRequest(BrokerRequest brokerRequest, PlanMaker planMaker) {
     // Server side.
-    Plan plan = PLAN_MAKER.makeInterSegmentPlan(getSegmentDataManagers(), brokerRequest, EXECUTOR_SERVICE, 10_000);
+    Plan plan = planMaker.makeInterSegmentPlan(getSegmentDataManagers(), brokerRequest, EXECUTOR_SERVICE, 10_000);
     plan.execute();
     DataTable instanceResponse = plan.getInstanceResponse();
 
@@ -22,7 +22,11 @@ import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.query.MSelectionOnlyOperator;
 import com.linkedin.pinot.core.operator.query.MSelectionOrderByOperator;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -173,4 +177,45 @@ public class InnerSegmentSelectionSingleValueQueriesTest extends BaseSingleValue
     Assert.assertEquals(((Integer) lastRow[0]).intValue(), 6043515);
     Assert.assertEquals(((Integer) lastRow[1]).intValue(), 462769197);
   }
+
+  @Test
+  public void testSelectionOrderByLargeLimit() {
+    // Select all the rows to compute the expected order.
+    MSelectionOnlyOperator selectionOnlyOperator =
+        getOperatorForQuery("SELECT column11, column9, column3 FROM testTable LIMIT 30000");
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) selectionOnlyOperator.nextBlock();
+    List<Serializable[]> expectedRows = new ArrayList<>((List<Serializable[]>) resultsBlock.getSelectionResult());
+    Assert.assertEquals(expectedRows.size(), 30000);
+    Collections.sort(expectedRows, new Comparator<Serializable[]>() {
+      @Override
+      public int compare(Serializable[] o1, Serializable[] o2) {
+        int result = ((String) o1[0]).compareTo((String) o2[0]);
+        if (result != 0) {
+          return result;
+        }
+        result = Integer.compare((Integer) o2[1], (Integer) o1[1]);
+        if (result != 0) {
+          return result;
+        }
+        return Integer.compare((Integer) o1[2], (Integer) o2[2]);
+      }
+    });
+
+    String query = "SELECT column11, column9, column3 FROM testTable ORDER BY column11, column9 DESC, column3 LIMIT 2000";
+    MSelectionOrderByOperator selectionOrderByOperator = getOperatorForQuery(query);
+    resultsBlock = (IntermediateResultsBlock) selectionOrderByOperator.nextBlock();
+    ExecutionStatistics executionStatistics = selectionOrderByOperator.getExecutionStatistics();
+    Assert.assertEquals(executionStatistics.getNumDocsScanned(), 30000L);
+    PriorityQueue<Serializable[]> selectionResult = (PriorityQueue<Serializable[]>) resultsBlock.getSelectionResult();
+    Assert.assertEquals(selectionResult.size(), 2000);
+
+    // The queue polls the last row first.
+    for (int i = 1999; i >= 0; i--) {
+      Serializable[] row = selectionResult.poll();
+      Serializable[] expectedRow = expectedRows.get(i);
+      Assert.assertEquals(row[0], expectedRow[0]);
+      Assert.assertEquals(row[1], expectedRow[1]);
+      Assert.assertEquals(row[2], expectedRow[2]);
+    }
+  }
 }
@@ -15,7 +15,10 @@
  */
 package com.linkedin.pinot.queries;
 
+import com.linkedin.pinot.common.response.broker.AggregationResult;
 import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import java.util.List;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 
@@ -274,6 +277,30 @@ public class InterSegmentAggregationSingleValueQueriesTest extends BaseSingleVal
         new String[]{"2146232405.00000", "999309554.00000"});
   }
 
+  @Test
+  public void testPercentileSketches() {
+    // The sketches are approximate and randomized, so compare them with the exact percentiles with some tolerance
+    double maxError = 0.02 * Integer.MAX_VALUE;
+    for (int percentile : new int[]{50, 90, 95, 99}) {
+      String query = String.format(
+          "SELECT PERCENTILE%1$d(column1), PERCENTILETDIGEST%1$d(column1), PERCENTILEKLL%1$d(column1), "
+              + "PERCENTILE%1$d(column3), PERCENTILETDIGEST%1$d(column3), PERCENTILEKLL%1$d(column3) FROM testTable",
+          percentile);
+      for (BrokerResponseNative brokerResponse : new BrokerResponseNative[]{getBrokerResponseForQuery(
+          query), getBrokerResponseForQueryWithFilter(query)}) {
+        List<AggregationResult> aggregationResults = brokerResponse.getAggregationResults();
+        for (int i = 0; i < 6; i += 3) {
+          double expected = Double.parseDouble((String) aggregationResults.get(i).getValue());
+          for (int j = i + 1; j < i + 3; j++) {
+            AggregationResult aggregationResult = aggregationResults.get(j);
+            Assert.assertEquals(Double.parseDouble((String) aggregationResult.getValue()), expected, maxError,
+                aggregationResult.getFunction());
+          }
+        }
+      }
+    }
+  }
+
   @Test
   public void testPercentileEst50() {
     String query = "SELECT PERCENTILEEST50(column1), PERCENTILEEST50(column3) FROM testTable";
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.queries;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.broker.AggregationResult;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that the partitioned (lock-free) group-by combine returns the same results as the default group-by combine.
+ */
+public class InterSegmentPartitionedGroupByCombineQueriesTest extends BaseSingleValueQueriesTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final String[] QUERIES = new String[]{
+      "SELECT COUNT(*), SUM(column1), MIN(column3), MAX(column3) FROM testTable GROUP BY column9 TOP 100000",
+      "SELECT AVG(column1), DISTINCTCOUNT(column6) FROM testTable GROUP BY column9 TOP 100000",
+      "SELECT COUNT(*), MINMAXRANGE(column1) FROM testTable GROUP BY column11, column12 TOP 100000",
+      "SELECT SUM(column3), PERCENTILE90(column1) FROM testTable GROUP BY column11 TOP 10"
+  };
+
+  @Test
+  public void testPartitionedGroupByCombine() {
+    for (String query : QUERIES) {
+      BrokerResponseNative expectedResponse = getBrokerResponseForQuery(query);
+
+      BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+      brokerRequest.setDebugOptions(Collections.singletonMap("usePartitionedGroupByCombine", "true"));
+      BrokerResponseNative actualResponse = getBrokerResponseForBrokerRequest(brokerRequest);
+
+      Assert.assertEquals(actualResponse.getNumDocsScanned(), expectedResponse.getNumDocsScanned());
+      Assert.assertEquals(actualResponse.getExceptionsSize(), 0);
+      List<AggregationResult> expectedAggregationResults = expectedResponse.getAggregationResults();
+      List<AggregationResult> actualAggregationResults = actualResponse.getAggregationResults();
+      int numAggregationResults = expectedAggregationResults.size();
+      Assert.assertEquals(actualAggregationResults.size(), numAggregationResults);
+      for (int i = 0; i < numAggregationResults; i++) {
+        Map<List<String>, Serializable> expectedGroups =
+            toGroupMap(expectedAggregationResults.get(i).getGroupByResult());
+        Map<List<String>, Serializable> actualGroups = toGroupMap(actualAggregationResults.get(i).getGroupByResult());
+        Assert.assertFalse(expectedGroups.isEmpty());
+        Assert.assertEquals(actualGroups, expectedGroups, query);
+      }
+    }
+  }
+
+  private static Map<List<String>, Serializable> toGroupMap(List<GroupByResult> groupByResults) {
+    Map<List<String>, Serializable> groupMap = new HashMap<>();
+    for (GroupByResult groupByResult : groupByResults) {
+      groupMap.put(groupByResult.getGroup(), groupByResult.getValue());
+    }
+    return groupMap;
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.queries;
+
+import com.linkedin.pinot.common.response.broker.AggregationResult;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
+import com.linkedin.pinot.core.plan.DocIdRange;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that splitting the segments into doc id ranges returns the same results as processing the whole segments.
+ */
+public class IntraSegmentParallelismQueriesTest extends BaseSingleValueQueriesTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final String[] QUERIES = new String[]{
+      "SELECT COUNT(*), SUM(column1), MIN(column3), MAX(column3) FROM testTable",
+      "SELECT AVG(column1), DISTINCTCOUNT(column6), PERCENTILE90(column3) FROM testTable WHERE column1 > 100000000",
+      "SELECT COUNT(*), SUM(column1) FROM testTable WHERE column6 < 500000000 OR column11 NOT IN ('t', 'P')",
+      "SELECT COUNT(*), SUM(column1), MINMAXRANGE(column3) FROM testTable GROUP BY column9 TOP 100000",
+      "SELECT AVG(column1), DISTINCTCOUNTHLL(column6) FROM testTable WHERE column12 <> 'foo' GROUP BY column11, column12",
+      "SELECT COUNT(*), SUM(column1), MAX(column3) FROM testTable WHERE column1 > 100000000"
+          + " AND column3 BETWEEN 20000000 AND 1000000000 AND column5 = 'gFuH'"
+          + " AND (column6 < 500000000 OR column11 NOT IN ('t', 'P')) AND daysSinceEpoch = 126164076"
+  };
+
+  private PlanMaker _intraSegmentParallelismPlanMaker;
+
+  @BeforeClass
+  public void setUpPlanMaker() throws Exception {
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty("intra.segment.parallelism.enabled", true);
+    config.setProperty("intra.segment.parallelism.min.docs.per.range", 1000);
+    config.setProperty("intra.segment.parallelism.max.ranges", 8);
+    _intraSegmentParallelismPlanMaker = new InstancePlanMakerImplV2(new QueryExecutorConfig(config));
+  }
+
+  @Test
+  public void testIntraSegmentParallelism() {
+    for (String query : QUERIES) {
+      BrokerResponseNative expectedResponse = getBrokerResponseForQuery(query);
+      BrokerResponseNative actualResponse =
+          getBrokerResponseForBrokerRequest(COMPILER.compileToBrokerRequest(query), _intraSegmentParallelismPlanMaker);
+
+      Assert.assertEquals(actualResponse.getExceptionsSize(), 0, query);
+      Assert.assertEquals(actualResponse.getNumDocsScanned(), expectedResponse.getNumDocsScanned(), query);
+      Assert.assertEquals(actualResponse.getNumEntriesScannedInFilter(),
+          expectedResponse.getNumEntriesScannedInFilter(), query);
+      Assert.assertEquals(actualResponse.getNumEntriesScannedPostFilter(),
+          expectedResponse.getNumEntriesScannedPostFilter(), query);
+      Assert.assertEquals(actualResponse.getTotalDocs(), expectedResponse.getTotalDocs(), query);
+      List<AggregationResult> expectedAggregationResults = expectedResponse.getAggregationResults();
+      List<AggregationResult> actualAggregationResults = actualResponse.getAggregationResults();
+      int numAggregationResults = expectedAggregationResults.size();
+      Assert.assertEquals(actualAggregationResults.size(), numAggregationResults, query);
+      for (int i = 0; i < numAggregationResults; i++) {
+        AggregationResult expectedAggregationResult = expectedAggregationResults.get(i);
+        AggregationResult actualAggregationResult = actualAggregationResults.get(i);
+        Assert.assertEquals(actualAggregationResult.getValue(), expectedAggregationResult.getValue(), query);
+        if (expectedAggregationResult.getGroupByResult() != null) {
+          Map<List<String>, Serializable> expectedGroups = toGroupMap(expectedAggregationResult.getGroupByResult());
+          Assert.assertFalse(expectedGroups.isEmpty());
+          Assert.assertEquals(toGroupMap(actualAggregationResult.getGroupByResult()), expectedGroups, query);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSplitDocIdRanges() {
+    List<DocIdRange> docIdRanges = DocIdRange.split(10, 3);
+    Assert.assertEquals(docIdRanges.size(), 3);
+    Assert.assertEquals(docIdRanges.get(0).getStartDocId(), 0);
+    Assert.assertEquals(docIdRanges.get(0).getEndDocId(), 3);
+    Assert.assertTrue(docIdRanges.get(0).isFirstRange());
+    Assert.assertEquals(docIdRanges.get(1).getStartDocId(), 4);
+    Assert.assertEquals(docIdRanges.get(1).getEndDocId(), 6);
+    Assert.assertFalse(docIdRanges.get(1).isFirstRange());
+    Assert.assertEquals(docIdRanges.get(2).getStartDocId(), 7);
+    Assert.assertEquals(docIdRanges.get(2).getEndDocId(), 9);
+
+    docIdRanges = DocIdRange.split(5, 5);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(docIdRanges.get(i).getStartDocId(), i);
+      Assert.assertEquals(docIdRanges.get(i).getEndDocId(), i);
+    }
+  }
+
+  private static Map<List<String>, Serializable> toGroupMap(List<GroupByResult> groupByResults) {
+    Map<List<String>, Serializable> groupMap = new HashMap<>();
+    for (GroupByResult groupByResult : groupByResults) {
+      groupMap.put(groupByResult.getGroup(), groupByResult.getValue());
+    }
+    return groupMap;
+  }
+}
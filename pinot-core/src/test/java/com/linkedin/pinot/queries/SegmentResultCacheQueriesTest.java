@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.queries;
+
+import com.linkedin.pinot.common.response.broker.AggregationResult;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.query.cache.QueryFingerprint;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that queries served from the {@link SegmentResultCache} return the same results as the ones computed on the
+ * segments.
+ */
+public class SegmentResultCacheQueriesTest extends BaseSingleValueQueriesTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final long CACHE_SIZE_IN_BYTES = 64 * 1024 * 1024;
+  private static final String[] QUERIES = new String[]{
+      "SELECT COUNT(*), SUM(column1), MIN(column3), MAX(column3) FROM testTable WHERE column1 > 100000000",
+      "SELECT AVG(column1), DISTINCTCOUNT(column6), PERCENTILE90(column3) FROM testTable",
+      "SELECT COUNT(*), SUM(column1), MINMAXRANGE(column3) FROM testTable GROUP BY column9 TOP 100000",
+      "SELECT AVG(column1), DISTINCTCOUNTHLL(column6) FROM testTable WHERE column12 <> 'foo' GROUP BY column11, column12"
+  };
+
+  @Test
+  public void testCachedResults() {
+    SegmentResultCache segmentResultCache = SegmentResultCache.getInstance();
+    for (String query : QUERIES) {
+      segmentResultCache.init(0L, null);
+      BrokerResponseNative expectedResponse = getBrokerResponseForQuery(query);
+      Assert.assertEquals(segmentResultCache.getNumEntries(), 0);
+
+      segmentResultCache.init(CACHE_SIZE_IN_BYTES, null);
+      // The 2 segment data managers share the same index segment, so they share the same cache entry.
+      BrokerResponseNative firstResponse = getBrokerResponseForQuery(query);
+      Assert.assertEquals(segmentResultCache.getNumEntries(), 1, query);
+      Assert.assertTrue(segmentResultCache.getSizeInBytes() > 0, query);
+      long numHits = segmentResultCache.getNumHits();
+      BrokerResponseNative cachedResponse = getBrokerResponseForQuery(query);
+      Assert.assertEquals(segmentResultCache.getNumHits(), numHits + 2, query);
+
+      for (BrokerResponseNative actualResponse : new BrokerResponseNative[]{firstResponse, cachedResponse}) {
+        Assert.assertEquals(actualResponse.getExceptionsSize(), 0);
+        Assert.assertEquals(actualResponse.getNumDocsScanned(), expectedResponse.getNumDocsScanned(), query);
+        Assert.assertEquals(actualResponse.getNumEntriesScannedInFilter(),
+            expectedResponse.getNumEntriesScannedInFilter(), query);
+        Assert.assertEquals(actualResponse.getTotalDocs(), expectedResponse.getTotalDocs(), query);
+        assertSameAggregationResults(actualResponse.getAggregationResults(),
+            expectedResponse.getAggregationResults(), query);
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidation() {
+    SegmentResultCache segmentResultCache = SegmentResultCache.getInstance();
+    segmentResultCache.init(CACHE_SIZE_IN_BYTES, null);
+    getBrokerResponseForQuery(QUERIES[0]);
+    getBrokerResponseForQuery(QUERIES[2]);
+    Assert.assertEquals(segmentResultCache.getNumEntries(), 2);
+
+    SegmentMetadata segmentMetadata = getIndexSegment().getSegmentMetadata();
+    String tableName = segmentMetadata.getTableName();
+    String segmentName = segmentMetadata.getName();
+
+    // Entries of the segment with a different CRC should not be invalidated.
+    segmentResultCache.invalidate(tableName, segmentName, "-1");
+    Assert.assertEquals(segmentResultCache.getNumEntries(), 2);
+
+    segmentResultCache.invalidate(tableName, segmentName, segmentMetadata.getCrc());
+    Assert.assertEquals(segmentResultCache.getNumEntries(), 0);
+    Assert.assertEquals(segmentResultCache.getSizeInBytes(), 0);
+  }
+
+  @Test
+  public void testQueryFingerprint() {
+    Assert.assertEquals(getFingerprint("SELECT SUM(column1) FROM testTable WHERE column6 IN (1, 2, 3) AND column11 = 'a'"),
+        getFingerprint("SELECT SUM(column1) FROM testTable WHERE column11 = 'a' AND column6 IN (3, 1, 2)"));
+    Assert.assertFalse(getFingerprint("SELECT SUM(column1) FROM testTable WHERE column11 = 'a'")
+        .equals(getFingerprint("SELECT SUM(column1) FROM testTable WHERE column11 = 'b'")));
+    Assert.assertFalse(getFingerprint("SELECT SUM(column1) FROM testTable GROUP BY column9 TOP 10")
+        .equals(getFingerprint("SELECT SUM(column1) FROM testTable GROUP BY column9 TOP 100")));
+    Assert.assertFalse(getFingerprint("SELECT SUM(column1) FROM testTable")
+        .equals(getFingerprint("SELECT SUM(column3) FROM testTable")));
+    Assert.assertFalse(getFingerprint("SELECT SUM(column1) FROM testTable WHERE column6 BETWEEN 1 AND 2")
+        .equals(getFingerprint("SELECT SUM(column1) FROM testTable WHERE column6 BETWEEN 2 AND 1")));
+  }
+
+  @AfterClass
+  public void disableCache() {
+    SegmentResultCache.getInstance().init(0L, null);
+  }
+
+  private static String getFingerprint(String query) {
+    return QueryFingerprint.getFingerprint(COMPILER.compileToBrokerRequest(query));
+  }
+
+  private static void assertSameAggregationResults(List<AggregationResult> actualAggregationResults,
+      List<AggregationResult> expectedAggregationResults, String query) {
+    int numAggregationResults = expectedAggregationResults.size();
+    Assert.assertEquals(actualAggregationResults.size(), numAggregationResults, query);
+    for (int i = 0; i < numAggregationResults; i++) {
+      AggregationResult actualAggregationResult = actualAggregationResults.get(i);
+      AggregationResult expectedAggregationResult = expectedAggregationResults.get(i);
+      Assert.assertEquals(actualAggregationResult.getFunction(), expectedAggregationResult.getFunction(), query);
+      Assert.assertEquals(actualAggregationResult.getValue(), expectedAggregationResult.getValue(), query);
+      if (expectedAggregationResult.getGroupByResult() != null) {
+        Map<List<String>, Serializable> expectedGroups = toGroupMap(expectedAggregationResult.getGroupByResult());
+        Assert.assertFalse(expectedGroups.isEmpty());
+        Assert.assertEquals(toGroupMap(actualAggregationResult.getGroupByResult()), expectedGroups, query);
+      }
+    }
+  }
+
+  private static Map<List<String>, Serializable> toGroupMap(List<GroupByResult> groupByResults) {
+    Map<List<String>, Serializable> groupMap = new HashMap<>();
+    for (GroupByResult groupByResult : groupByResults) {
+      groupMap.put(groupByResult.getGroup(), groupByResult.getValue());
+    }
+    return groupMap;
+  }
+}
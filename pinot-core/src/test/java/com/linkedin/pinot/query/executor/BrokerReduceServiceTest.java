@@ -16,6 +16,7 @@
 package com.linkedin.pinot.query.executor;
 
 import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.IncrementalReducer;
 import com.linkedin.pinot.common.query.ServerQueryRequest;
 import com.linkedin.pinot.common.query.ReduceService;
 import com.linkedin.pinot.common.request.AggregationInfo;
@@ -167,6 +168,46 @@ public class BrokerReduceServiceTest {
     LOGGER.info("Time used for BrokerResponse is " + brokerResponse.getTimeUsedMs());
   }
 
+  @Test
+  public void testIncrementalReduce() {
+    BrokerRequest brokerRequest = getCountQuery();
+
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName("midas");
+
+    brokerRequest.setQuerySource(querySource);
+    InstanceRequest instanceRequest = new InstanceRequest(0, brokerRequest);
+    instanceRequest.setSearchSegments(new ArrayList<String>());
+    for (IndexSegment segment : _indexSegmentList) {
+      instanceRequest.addToSearchSegments(segment.getSegmentName());
+    }
+
+    BrokerReduceService reduceService = new BrokerReduceService();
+    // No data table reduced gives an empty response
+    Assert.assertNull(reduceService.newReducer(brokerRequest, null).getBrokerResponse().getAggregationResults());
+
+    Map<ServerInstance, DataTable> instanceResponseMap = new HashMap<ServerInstance, DataTable>();
+    ServerQueryRequest queryRequest =
+        new ServerQueryRequest(instanceRequest, TableDataManagerProvider.getServerMetrics());
+    DataTable instanceResponse1 = _queryExecutor.processQuery(queryRequest, queryRunners);
+    instanceResponseMap.put(new ServerInstance("localhost:0000"), instanceResponse1);
+    DataTable instanceResponse2 = _queryExecutor.processQuery(queryRequest, queryRunners);
+    instanceResponseMap.put(new ServerInstance("localhost:1111"), instanceResponse2);
+
+    // Data tables reduced one at a time give the same result as reducing them all at once
+    IncrementalReducer<BrokerResponseNative> reducer = reduceService.newReducer(brokerRequest, null);
+    for (Map.Entry<ServerInstance, DataTable> entry : instanceResponseMap.entrySet()) {
+      reducer.reduce(entry.getKey(), entry.getValue());
+    }
+    BrokerResponseNative incrementalResponse = reducer.getBrokerResponse();
+    BrokerResponseNative brokerResponse = reduceService.reduceOnDataTable(brokerRequest, instanceResponseMap);
+    checkAggregationResult(incrementalResponse.getAggregationResults().get(0), "count_star", 800004.0);
+    Assert.assertEquals(incrementalResponse.getAggregationResults().get(0).getValue(),
+        brokerResponse.getAggregationResults().get(0).getValue());
+    Assert.assertEquals(incrementalResponse.getNumDocsScanned(), brokerResponse.getNumDocsScanned());
+    Assert.assertEquals(incrementalResponse.getTotalDocs(), brokerResponse.getTotalDocs());
+  }
+
   @Test
   public void testSumQuery() {
     BrokerRequest brokerRequest = getSumQuery();
@@ -27,6 +27,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.utils.FileUploadUtils;
+import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 
 
 public class SegmentTarPushJob extends Configured {
@@ -76,7 +77,8 @@ public class SegmentTarPushJob extends Configured {
 
   public void pushOneTarFile(FileSystem fs, Path path) throws Exception {
     String fileName = path.getName();
-    if (!fileName.endsWith(".tar.gz")) {
+    if (!fileName.endsWith(TarGzCompressionUtils.TAR_GZ_FILE_EXTENTION)
+        && !fileName.endsWith(TarGzCompressionUtils.TAR_LZ4_FILE_EXTENSION)) {
       return;
     }
     for (String host : _hosts) {
@@ -49,6 +49,7 @@ public class HadoopSegmentCreationMapReduceJob {
     private String _outputPath;
     private String _tableName;
     private String _postfix;
+    private TarGzCompressionUtils.CompressionType _tarCompressionType;
 
     private Path _currentHdfsWorkDir;
     private String _currentDiskWorkDir;
@@ -84,6 +85,8 @@ public class HadoopSegmentCreationMapReduceJob {
       _outputPath = _properties.get("path.to.output");
       _tableName = _properties.get("segment.table.name");
       _postfix = _properties.get("segment.name.postfix", null);
+      _tarCompressionType = TarGzCompressionUtils.CompressionType.valueOf(
+          _properties.get("segment.tar.compression", TarGzCompressionUtils.CompressionType.GZIP.name()).toUpperCase());
       if (_outputPath == null || _tableName == null) {
         throw new RuntimeException(
             "Missing configs: " +
@@ -189,10 +192,11 @@ public class HadoopSegmentCreationMapReduceJob {
       String segmentName = (new File(_localDiskSegmentDirectory).listFiles()[0]).getName();
       String localSegmentPath = new File(_localDiskSegmentDirectory, segmentName).getAbsolutePath();
 
-      String localTarPath = _localDiskSegmentTarPath + "/" + segmentName + ".tar.gz";
+      String tarFileExtension = _tarCompressionType.getFileExtension();
+      String localTarPath = _localDiskSegmentTarPath + "/" + segmentName + tarFileExtension;
       LOGGER.info("Trying to tar the segment to: {}", localTarPath);
-      TarGzCompressionUtils.createTarGzOfDirectory(localSegmentPath, localTarPath);
-      String hdfsTarPath = _localHdfsSegmentTarPath + "/" + segmentName + ".tar.gz";
+      TarGzCompressionUtils.createTarOfDirectory(localSegmentPath, localTarPath, "", _tarCompressionType);
+      String hdfsTarPath = _localHdfsSegmentTarPath + "/" + segmentName + tarFileExtension;
 
       LOGGER.info("*********************************************************************");
       LOGGER.info("Copy from : {} to {}", localTarPath, hdfsTarPath);
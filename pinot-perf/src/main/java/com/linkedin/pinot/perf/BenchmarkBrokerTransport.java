@@ -0,0 +1,336 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.CompositeFuture;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.config.MultiplexedTransportConfig;
+import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import com.linkedin.pinot.transport.netty.MultiplexedNettyClientManager;
+import com.linkedin.pinot.transport.netty.NettyServer;
+import com.linkedin.pinot.transport.netty.NettyTCPServer;
+import com.linkedin.pinot.transport.netty.PooledNettyClientResourceManager;
+import com.linkedin.pinot.transport.pool.KeyedPoolImpl;
+import com.linkedin.pinot.transport.scattergather.ScatterGather;
+import com.linkedin.pinot.transport.scattergather.ScatterGatherImpl;
+import com.linkedin.pinot.transport.scattergather.ScatterGatherRequest;
+import com.linkedin.pinot.transport.scattergather.ScatterGatherStats;
+import com.yammer.metrics.core.MetricsRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+
+/**
+ * Load benchmark for the broker-to-server transport: pooled connections (one outstanding request per connection,
+ * checked out for every request) v.s. multiplexed connections (many requests pipelined over a few channels).
+ *
+ * It starts in-process servers answering every request with a fixed size response after a fixed latency (without
+ * blocking the netty threads, like the query scheduler does), then hammers them through {@link ScatterGatherImpl}
+ * from many client threads, and reports throughput and latency percentiles for each mode.
+ */
+@SuppressWarnings("FieldCanBeLocal")
+public class BenchmarkBrokerTransport {
+  private static final String LOCAL_HOST = "localhost";
+  private static final long REQUEST_TIMEOUT_MS = 10_000L;
+
+  @Option(name = "-mode", required = false, usage = "Transport mode to benchmark (POOLED|MULTIPLEXED|BOTH)")
+  private String _mode = "BOTH";
+
+  @Option(name = "-numServers", required = false, usage = "Number of servers each query fans out to")
+  private int _numServers = 8;
+
+  @Option(name = "-basePort", required = false, usage = "Port of the first server")
+  private int _basePort = 19_000;
+
+  @Option(name = "-numClientThreads", required = false, usage = "Number of concurrent query threads")
+  private int _numClientThreads = 64;
+
+  @Option(name = "-numQueries", required = false, usage = "Number of queries per client thread")
+  private int _numQueries = 2000;
+
+  @Option(name = "-numWarmupQueries", required = false, usage = "Number of warm-up queries per client thread")
+  private int _numWarmupQueries = 200;
+
+  @Option(name = "-serverLatencyMs", required = false, usage = "Server side latency of each request")
+  private long _serverLatencyMs = 5L;
+
+  @Option(name = "-responseSize", required = false, usage = "Size in bytes of each server response")
+  private int _responseSize = 1024;
+
+  @Option(name = "-maxConnectionsPerServer", required = false, usage = "Pooled mode: max connections per server")
+  private int _maxConnectionsPerServer = 30;
+
+  @Option(name = "-maxBacklogPerServer", required = false, usage = "Pooled mode: max pending checkouts per server")
+  private int _maxBacklogPerServer = 30;
+
+  @Option(name = "-connectionsPerServer", required = false, usage = "Multiplexed mode: connections per server")
+  private int _connectionsPerServer = 2;
+
+  @Option(name = "-help", required = false, help = true, aliases = {"-h"}, usage = "print this message")
+  private boolean _help = false;
+
+  private ListeningScheduledExecutorService _serverExecutor;
+
+  public void run()
+      throws Exception {
+    if (_help) {
+      new CmdLineParser(this).printUsage(System.out);
+      return;
+    }
+
+    _serverExecutor = MoreExecutors.listeningDecorator(Executors.newScheduledThreadPool(8));
+    NettyServer[] servers = new NettyServer[_numServers];
+    Map<ServerInstance, SegmentIdSet> serverToSegmentsMap = new HashMap<>(_numServers);
+    for (int i = 0; i < _numServers; i++) {
+      servers[i] = new NettyTCPServer(_basePort + i, new FixedResponseRequestHandlerFactory(), null);
+      new Thread(servers[i]).start();
+      serverToSegmentsMap.put(new ServerInstance(LOCAL_HOST, _basePort + i), new SegmentIdSet());
+    }
+    for (NettyServer server : servers) {
+      while (!server.isStarted()) {
+        Thread.sleep(10L);
+      }
+    }
+
+    try {
+      if (!_mode.equalsIgnoreCase("MULTIPLEXED")) {
+        runPooled(serverToSegmentsMap);
+      }
+      if (!_mode.equalsIgnoreCase("POOLED")) {
+        runMultiplexed(serverToSegmentsMap);
+      }
+    } finally {
+      for (NettyServer server : servers) {
+        server.shutdownGracefully();
+      }
+      _serverExecutor.shutdownNow();
+    }
+  }
+
+  private void runPooled(Map<ServerInstance, SegmentIdSet> serverToSegmentsMap)
+      throws Exception {
+    MetricsRegistry metricsRegistry = new MetricsRegistry();
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    HashedWheelTimer timer = new HashedWheelTimer();
+    ScheduledThreadPoolExecutor poolTimeoutExecutor = new ScheduledThreadPoolExecutor(1);
+    ExecutorService requestSenderPool = Executors.newCachedThreadPool();
+    PooledNettyClientResourceManager resourceManager =
+        new PooledNettyClientResourceManager(eventLoopGroup, timer, new NettyClientMetrics(metricsRegistry, "client_"));
+    KeyedPoolImpl<PooledNettyClientResourceManager.PooledClientConnection> connPool =
+        new KeyedPoolImpl<>(1, _maxConnectionsPerServer, 300_000L, _maxBacklogPerServer, resourceManager,
+            poolTimeoutExecutor, requestSenderPool, metricsRegistry);
+    resourceManager.setPool(connPool);
+    connPool.start();
+
+    try {
+      runQueries("POOLED (maxConnectionsPerServer=" + _maxConnectionsPerServer + ")",
+          new ScatterGatherImpl(connPool, requestSenderPool), serverToSegmentsMap, metricsRegistry);
+    } finally {
+      connPool.shutdown().get();
+      requestSenderPool.shutdown();
+      poolTimeoutExecutor.shutdown();
+      eventLoopGroup.shutdownGracefully();
+      timer.stop();
+    }
+  }
+
+  private void runMultiplexed(Map<ServerInstance, SegmentIdSet> serverToSegmentsMap)
+      throws Exception {
+    MetricsRegistry metricsRegistry = new MetricsRegistry();
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    HashedWheelTimer timer = new HashedWheelTimer();
+    ExecutorService requestSenderPool = Executors.newCachedThreadPool();
+    MultiplexedTransportConfig config = new MultiplexedTransportConfig();
+    config.setConnectionsPerServer(_connectionsPerServer);
+    MultiplexedNettyClientManager clientManager =
+        new MultiplexedNettyClientManager(eventLoopGroup, timer, new NettyClientMetrics(metricsRegistry, "client_"),
+            config);
+
+    try {
+      runQueries("MULTIPLEXED (connectionsPerServer=" + _connectionsPerServer + ")",
+          new ScatterGatherImpl(clientManager, requestSenderPool), serverToSegmentsMap, metricsRegistry);
+    } finally {
+      clientManager.shutdown();
+      requestSenderPool.shutdown();
+      eventLoopGroup.shutdownGracefully();
+      timer.stop();
+    }
+  }
+
+  private void runQueries(String name, final ScatterGather scatterGather,
+      final Map<ServerInstance, SegmentIdSet> serverToSegmentsMap, MetricsRegistry metricsRegistry)
+      throws Exception {
+    final BrokerMetrics brokerMetrics = new BrokerMetrics(metricsRegistry);
+    final long[][] latenciesNs = new long[_numClientThreads][_numQueries];
+    final AtomicInteger numErrors = new AtomicInteger();
+    final AtomicLong requestIdGenerator = new AtomicLong();
+
+    Thread[] threads = new Thread[_numClientThreads];
+    for (int i = 0; i < _numClientThreads; i++) {
+      final long[] threadLatenciesNs = latenciesNs[i];
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = -_numWarmupQueries; j < _numQueries; j++) {
+            long queryStartTimeNs = System.nanoTime();
+            try {
+              CompositeFuture<ByteBuf> future = scatterGather.scatterGather(
+                  new BenchmarkScatterGatherRequest(serverToSegmentsMap, requestIdGenerator.incrementAndGet()),
+                  new ScatterGatherStats(), brokerMetrics);
+              Map<ServerInstance, ByteBuf> responses = future.get();
+              if (responses == null || responses.size() != serverToSegmentsMap.size()) {
+                numErrors.incrementAndGet();
+              }
+              if (responses != null) {
+                for (ByteBuf response : responses.values()) {
+                  response.release();
+                }
+              }
+            } catch (Exception e) {
+              numErrors.incrementAndGet();
+            }
+            if (j >= 0) {
+              threadLatenciesNs[j] = System.nanoTime() - queryStartTimeNs;
+            }
+          }
+        }
+      });
+    }
+
+    long startTimeNs = System.nanoTime();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // Warm-up queries are included in the wall time, so throughput is slightly underestimated for both modes
+    long totalTimeNs = System.nanoTime() - startTimeNs;
+
+    int numQueries = _numClientThreads * _numQueries;
+    long[] allLatenciesNs = new long[numQueries];
+    for (int i = 0; i < _numClientThreads; i++) {
+      System.arraycopy(latenciesNs[i], 0, allLatenciesNs, i * _numQueries, _numQueries);
+    }
+    Arrays.sort(allLatenciesNs);
+    long sumNs = 0;
+    for (long latencyNs : allLatenciesNs) {
+      sumNs += latencyNs;
+    }
+
+    int numTotalQueries = _numClientThreads * (_numQueries + _numWarmupQueries);
+    System.out.println("Mode: " + name);
+    System.out.println("  Servers: " + _numServers + ", client threads: " + _numClientThreads + ", queries: "
+        + numQueries + ", errors: " + numErrors.get());
+    System.out.println(String.format("  Throughput: %.1f queries/s", numTotalQueries * 1e9 / totalTimeNs));
+    System.out.println(String.format("  Latency (ms): avg %.2f, p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f",
+        sumNs / 1e6 / numQueries, percentileMs(allLatenciesNs, 50), percentileMs(allLatenciesNs, 90),
+        percentileMs(allLatenciesNs, 99), percentileMs(allLatenciesNs, 99.9), allLatenciesNs[numQueries - 1] / 1e6));
+  }
+
+  private static double percentileMs(long[] sortedLatenciesNs, double percentile) {
+    int index = (int) Math.ceil(percentile / 100 * sortedLatenciesNs.length) - 1;
+    return sortedLatenciesNs[Math.max(index, 0)] / 1e6;
+  }
+
+  private static class BenchmarkScatterGatherRequest implements ScatterGatherRequest {
+    private static final byte[] REQUEST = new byte[100];
+
+    private final Map<ServerInstance, SegmentIdSet> _serverToSegmentsMap;
+    private final long _requestId;
+
+    private BenchmarkScatterGatherRequest(Map<ServerInstance, SegmentIdSet> serverToSegmentsMap, long requestId) {
+      _serverToSegmentsMap = serverToSegmentsMap;
+      _requestId = requestId;
+    }
+
+    @Override
+    public Map<ServerInstance, SegmentIdSet> getSegmentsServicesMap() {
+      return _serverToSegmentsMap;
+    }
+
+    @Override
+    public byte[] getRequestForService(ServerInstance service, SegmentIdSet querySegments) {
+      return REQUEST;
+    }
+
+    @Override
+    public long getRequestId() {
+      return _requestId;
+    }
+
+    @Override
+    public long getRequestTimeoutMs() {
+      return REQUEST_TIMEOUT_MS;
+    }
+
+    @Override
+    public BrokerRequest getBrokerRequest() {
+      return null;
+    }
+  }
+
+  /**
+   * Answers every request with a fixed size response after the configured latency.
+   */
+  private class FixedResponseRequestHandlerFactory implements NettyServer.RequestHandlerFactory {
+    private final byte[] _response = new byte[_responseSize];
+
+    @Override
+    public NettyServer.RequestHandler createNewRequestHandler() {
+      return new NettyServer.RequestHandler() {
+        @Override
+        public ListenableFuture<byte[]> processRequest(ChannelHandlerContext channelHandlerContext, ByteBuf request) {
+          return _serverExecutor.schedule(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+              return _response;
+            }
+          }, _serverLatencyMs, TimeUnit.MILLISECONDS);
+        }
+      };
+    }
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    BenchmarkBrokerTransport benchmark = new BenchmarkBrokerTransport();
+    CmdLineParser parser = new CmdLineParser(benchmark);
+    parser.parseArgument(args);
+    benchmark.run();
+  }
+}
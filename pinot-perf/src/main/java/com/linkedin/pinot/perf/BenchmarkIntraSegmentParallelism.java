@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
+import com.linkedin.pinot.core.data.manager.offline.OfflineSegmentDataManager;
+import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.plan.Plan;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.integration.tests.ClusterTest;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for the server side latency of aggregation queries on a single segment, with and without splitting the
+ * segment into document id ranges processed in parallel.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+public class BenchmarkIntraSegmentParallelism {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkIntraSegmentParallelism");
+  private static final URL RESOURCE_URL =
+      ClusterTest.class.getClassLoader().getResource("On_Time_On_Time_Performance_2014_100k_subset_nonulls.tar.gz");
+  private static final String AVRO_FILE_NAME = "On_Time_On_Time_Performance_2014_1.avro";
+  private static final String TABLE_NAME = "table";
+  private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+  private static final long TIMEOUT_MS = 60_000L;
+
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final String[] QUERIES = new String[]{
+      "SELECT COUNT(*), SUM(DepDelay), MAX(DivActualElapsedTime) FROM table",
+      "SELECT SUM(DepDelayMinutes), DISTINCTCOUNT(FlightNum) FROM table WHERE DepDelay > 0",
+      "SELECT SUM(DepDelay), MAX(DepDelayMinutes) FROM table GROUP BY DestCityName TOP 100"
+  };
+
+  /** Index of the query to run */
+  @Param({"0", "1", "2"})
+  public int queryIndex;
+
+  /** Minimum number of documents of each document id range, the default 500K is too large for the 100K docs segment */
+  @Param({"10000"})
+  public int minDocsPerDocIdRange;
+
+  private IndexSegment _indexSegment;
+  private List<SegmentDataManager> _segmentDataManagers;
+  private ExecutorService _executorService;
+  private PlanMaker _planMaker;
+  private PlanMaker _intraSegmentParallelismPlanMaker;
+  private BrokerRequest _brokerRequest;
+
+  @Setup
+  public void setUp() throws Exception {
+    Preconditions.checkNotNull(RESOURCE_URL);
+    FileUtils.deleteQuietly(TEMP_DIR);
+
+    File avroDir = new File(TEMP_DIR, "avro");
+    TarGzCompressionUtils.unTar(new File(TestUtils.getFileFromResourceUrl(RESOURCE_URL)), avroDir);
+    File avroFile = new File(avroDir, AVRO_FILE_NAME);
+
+    File dataDir = new File(TEMP_DIR, "index");
+    SegmentIndexCreationDriver driver = new SegmentIndexCreationDriverImpl();
+    driver.init(SegmentTestUtils.getSegmentGeneratorConfigWithoutTimeColumn(avroFile, dataDir, TABLE_NAME));
+    driver.build();
+
+    _indexSegment = ColumnarSegmentLoader.load(new File(dataDir, TABLE_NAME), ReadMode.heap);
+    _segmentDataManagers =
+        Collections.<SegmentDataManager>singletonList(new OfflineSegmentDataManager(_indexSegment));
+    _executorService = Executors.newFixedThreadPool(NUM_THREADS);
+
+    _planMaker = new InstancePlanMakerImplV2();
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty("intra.segment.parallelism.enabled", true);
+    config.setProperty("intra.segment.parallelism.min.docs.per.range", minDocsPerDocIdRange);
+    config.setProperty("intra.segment.parallelism.max.ranges", NUM_THREADS);
+    _intraSegmentParallelismPlanMaker = new InstancePlanMakerImplV2(new QueryExecutorConfig(config));
+
+    _brokerRequest = COMPILER.compileToBrokerRequest(QUERIES[queryIndex]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public DataTable wholeSegment() {
+    return executeQuery(_planMaker);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public DataTable docIdRanges() {
+    return executeQuery(_intraSegmentParallelismPlanMaker);
+  }
+
+  private DataTable executeQuery(PlanMaker planMaker) {
+    Plan plan = planMaker.makeInterSegmentPlan(_segmentDataManagers, _brokerRequest, _executorService, TIMEOUT_MS);
+    plan.execute();
+    return plan.getInstanceResponse();
+  }
+
+  @TearDown
+  public void tearDown() {
+    _executorService.shutdown();
+    _indexSegment.destroy();
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkIntraSegmentParallelism.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5))
+        .warmupIterations(2)
+        .measurementTime(TimeValue.seconds(5))
+        .measurementIterations(3)
+        .forks(1)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import com.linkedin.pinot.core.common.BaseBlockValSet;
+import com.linkedin.pinot.core.common.datatable.ObjectCustomSerDe;
+import com.linkedin.pinot.core.common.datatable.ObjectType;
+import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
+import com.linkedin.pinot.core.query.aggregation.AggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for the percentile aggregation functions: the exact PERCENTILE, PERCENTILEEST (q-digest),
+ * PERCENTILETDIGEST and PERCENTILEKLL.
+ * <p>Each invocation aggregates the values of several segments, ser/de the intermediate results as they would be sent
+ * from the servers to the broker, then merges them and extracts the final result. The latency is measured by JMH, and
+ * the serialized size and the accuracy of the final result are printed at the end of each trial.
+ */
+@SuppressWarnings({"unchecked", "unused"})
+@State(Scope.Benchmark)
+public class BenchmarkPercentileAggregation {
+  private static final int NUM_SEGMENTS = 10;
+  private static final int NUM_DOCS_PER_SEGMENT = 100_000;
+
+  @Param({"percentile", "percentileEst", "percentileTDigest", "percentileKLL"})
+  public String functionName;
+
+  @Param({"50", "99"})
+  public int percentile;
+
+  private AggregationFunction _aggregationFunction;
+  private DoubleBlockValSet[][] _blockValSets;
+  private double _exactResult;
+  private long _serializedSize;
+
+  @Setup
+  public void setUp() {
+    _aggregationFunction = AggregationFunctionFactory.getAggregationFunction(functionName + percentile);
+
+    // Log-normal values similar to latencies, rounded to long so that the q-digest does not lose precision
+    Random random = new Random();
+    double[] allValues = new double[NUM_SEGMENTS * NUM_DOCS_PER_SEGMENT];
+    for (int i = 0; i < allValues.length; i++) {
+      allValues[i] = Math.round(Math.exp(random.nextGaussian()) * 1000);
+    }
+
+    // Split the values into segments and blocks
+    int numBlocksPerSegment =
+        (NUM_DOCS_PER_SEGMENT + DocIdSetPlanNode.MAX_DOC_PER_CALL - 1) / DocIdSetPlanNode.MAX_DOC_PER_CALL;
+    _blockValSets = new DoubleBlockValSet[NUM_SEGMENTS][numBlocksPerSegment];
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      for (int j = 0; j < numBlocksPerSegment; j++) {
+        int startIndex = i * NUM_DOCS_PER_SEGMENT + j * DocIdSetPlanNode.MAX_DOC_PER_CALL;
+        int endIndex = Math.min(startIndex + DocIdSetPlanNode.MAX_DOC_PER_CALL, (i + 1) * NUM_DOCS_PER_SEGMENT);
+        _blockValSets[i][j] = new DoubleBlockValSet(Arrays.copyOfRange(allValues, startIndex, endIndex));
+      }
+    }
+    Arrays.sort(allValues);
+    _exactResult = allValues[allValues.length * percentile / 100];
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public double aggregateAndMerge()
+      throws Exception {
+    Object mergedResult = null;
+    long serializedSize = 0;
+    for (DoubleBlockValSet[] segmentBlockValSets : _blockValSets) {
+      // Server side: aggregate the segment by blocks and serialize the intermediate result
+      AggregationResultHolder resultHolder = _aggregationFunction.createAggregationResultHolder();
+      for (DoubleBlockValSet blockValSet : segmentBlockValSets) {
+        _aggregationFunction.aggregate(blockValSet._values.length, resultHolder, blockValSet);
+      }
+      Object intermediateResult = _aggregationFunction.extractAggregationResult(resultHolder);
+      ObjectType objectType = ObjectCustomSerDe.getObjectType(intermediateResult);
+      byte[] bytes = ObjectCustomSerDe.serialize(intermediateResult);
+      serializedSize += bytes.length;
+
+      // Broker side: de-serialize and merge the intermediate results
+      Object deserializedResult = ObjectCustomSerDe.deserialize(bytes, objectType);
+      if (mergedResult == null) {
+        mergedResult = deserializedResult;
+      } else {
+        mergedResult = _aggregationFunction.merge(mergedResult, deserializedResult);
+      }
+    }
+    _serializedSize = serializedSize;
+    return ((Number) _aggregationFunction.extractFinalResult(mergedResult)).doubleValue();
+  }
+
+  @TearDown
+  public void tearDown()
+      throws Exception {
+    double result = aggregateAndMerge();
+    System.out.println();
+    System.out.println(
+        String.format("%s%d: result = %.1f, exact = %.1f, relative error = %.4f, serialized bytes = %d", functionName,
+            percentile, result, _exactResult, Math.abs(result - _exactResult) / _exactResult, _serializedSize));
+  }
+
+  private static class DoubleBlockValSet extends BaseBlockValSet {
+    private final double[] _values;
+
+    private DoubleBlockValSet(double[] values) {
+      _values = values;
+    }
+
+    @Override
+    public double[] getDoubleValuesSV() {
+      return _values;
+    }
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkPercentileAggregation.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5))
+        .warmupIterations(2)
+        .measurementTime(TimeValue.seconds(5))
+        .measurementIterations(3)
+        .forks(1)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
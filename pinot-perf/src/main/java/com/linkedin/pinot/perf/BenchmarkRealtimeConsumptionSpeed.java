@@ -16,6 +16,7 @@
 package com.linkedin.pinot.perf;
 
 import com.google.common.util.concurrent.Uninterruptibles;
+import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.KafkaStarterUtils;
 import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.integration.tests.ClusterIntegrationTestUtils;
@@ -27,6 +28,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import kafka.server.KafkaServerStartable;
+import org.apache.commons.configuration.Configuration;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -34,6 +36,8 @@ import org.json.JSONObject;
 /**
  * Benchmark that writes a configurable amount of rows in Kafka and checks how much time it takes to consume all of
  * them.
+ * <p>The realtime indexing batch size and pipelined indexing of the low level consumer can be configured with the
+ * system properties <code>realtime.indexing.batch.size</code> and <code>realtime.pipelined.indexing</code>.
  */
 public class BenchmarkRealtimeConsumptionSpeed extends RealtimeClusterIntegrationTest {
   private static final int ROW_COUNT = 100_000;
@@ -42,6 +46,8 @@ public class BenchmarkRealtimeConsumptionSpeed extends RealtimeClusterIntegratio
   private final File _tmpDir = new File("/tmp/" + getHelixClusterName());
   private static final int SEGMENT_COUNT = 1;
   private static final Random RANDOM = new Random(123456L);
+  private static final String INDEXING_BATCH_SIZE_PROPERTY = "realtime.indexing.batch.size";
+  private static final String PIPELINED_INDEXING_PROPERTY = "realtime.pipelined.indexing";
 
   public static void main(String[] args) {
     try {
@@ -52,6 +58,24 @@ public class BenchmarkRealtimeConsumptionSpeed extends RealtimeClusterIntegratio
     System.exit(0);
   }
 
+  @Override
+  protected boolean useLlc() {
+    return true;
+  }
+
+  @Override
+  protected void startServer() {
+    Configuration serverConfiguration = getDefaultServerConfiguration();
+    String indexingBatchSize = System.getProperty(INDEXING_BATCH_SIZE_PROPERTY);
+    if (indexingBatchSize != null) {
+      serverConfiguration.setProperty(CommonConstants.Server.CONFIG_OF_REALTIME_INDEXING_BATCH_SIZE,
+          indexingBatchSize);
+    }
+    serverConfiguration.setProperty(CommonConstants.Server.CONFIG_OF_REALTIME_PIPELINED_INDEXING,
+        Boolean.getBoolean(PIPELINED_INDEXING_PROPERTY));
+    startServer(serverConfiguration);
+  }
+
   private void runBenchmark() throws Exception {
     // Start ZK and Kafka
     startZk();
@@ -125,6 +149,9 @@ public class BenchmarkRealtimeConsumptionSpeed extends RealtimeClusterIntegratio
 
     long endTime = System.currentTimeMillis();
 
-    System.out.println("Consumed " + ROW_COUNT + " rows in " + (endTime - startTime) / 1000.0 + " seconds");
+    double timeInSeconds = (endTime - startTime) / 1000.0;
+    System.out.println("Consumed " + ROW_COUNT + " rows in " + timeInSeconds + " seconds (" + ROW_COUNT / timeInSeconds
+        + " rows/second, indexing batch size: " + System.getProperty(INDEXING_BATCH_SIZE_PROPERTY, "default")
+        + ", pipelined indexing: " + Boolean.getBoolean(PIPELINED_INDEXING_PROPERTY) + ")");
   }
 }
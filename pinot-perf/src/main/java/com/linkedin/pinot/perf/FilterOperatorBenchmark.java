@@ -24,6 +24,7 @@ import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.operator.docidsets.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.plan.FilterPlanNode;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.loader.IndexLoadingConfig;
@@ -40,11 +41,14 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.log4j.Level;
 
 /**
  * Allows us to benchmark filter operator in isolation
- * USAGE FilterOperatorBenchmark &lt;IndexRootDir&gt; &lt;Query&gt;
+ * USAGE FilterOperatorBenchmark &lt;IndexRootDir&gt; &lt;Query&gt; [&lt;NumRuns&gt;]
+ * <p>Besides the latency, reports the number of entries scanned by the filter and the scan throughput, so that the
+ * performance of scan based (unindexed) predicates can be tracked.
  */
 public class FilterOperatorBenchmark {
   static {
@@ -55,7 +59,9 @@ public class FilterOperatorBenchmark {
     String rootDir = args[0];
     File[] segmentDirs = new File(rootDir).listFiles();
     String query = args[1];
+    int numRuns = args.length > 2 ? Integer.parseInt(args[2]) : 5;
     AtomicInteger totalDocsMatched = new AtomicInteger(0);
+    AtomicLong totalEntriesScanned = new AtomicLong(0);
     Pql2Compiler pql2Compiler = new Pql2Compiler();
     BrokerRequest brokerRequest = pql2Compiler.compileToBrokerRequest(query);
     List<Callable<Void>> segmentProcessors = new ArrayList<>();
@@ -81,22 +87,29 @@ public class FilterOperatorBenchmark {
       IndexSegmentImpl indexSegmentImpl =
           (IndexSegmentImpl) ColumnarSegmentLoader.load(indexSegmentDir, indexLoadingConfig);
       segmentProcessors.add(new SegmentProcessor(i, indexSegmentImpl, brokerRequest,
-          totalDocsMatched, timesSpent));
+          totalDocsMatched, totalEntriesScanned, timesSpent));
     }
     ExecutorService executorService = Executors.newCachedThreadPool();
-    for (int run = 0; run < 5; run++) {
+    long minTimeSpent = Long.MAX_VALUE;
+    for (int run = 0; run < numRuns; run++) {
       System.out.println("START RUN:"+ run );
       totalDocsMatched.set(0);
+      totalEntriesScanned.set(0);
       long start = System.currentTimeMillis();
       List<Future<Void>> futures = executorService.invokeAll(segmentProcessors);
       for (int i = 0; i < futures.size(); i++) {
         futures.get(i).get();
       }
       long end = System.currentTimeMillis();
-      System.out.println("Total docs matched:" + totalDocsMatched + " took:" + (end - start));
+      long timeSpent = end - start;
+      minTimeSpent = Math.min(minTimeSpent, timeSpent);
+      System.out.println("Total docs matched:" + totalDocsMatched + " took:" + timeSpent);
+      System.out.println("Entries scanned in filter:" + totalEntriesScanned + " scan throughput (entries/ms):"
+          + totalEntriesScanned.get() / Math.max(timeSpent, 1));
       System.out.println("Times spent:" + Arrays.toString(timesSpent));
       System.out.println("END RUN:"+ run );
     }
+    System.out.println("Min time spent:" + minTimeSpent);
     System.exit(0);
   }
 
@@ -104,16 +117,18 @@ public class FilterOperatorBenchmark {
     private IndexSegment indexSegmentImpl;
     private BrokerRequest brokerRequest;
     AtomicInteger totalDocsMatched;
+    AtomicLong totalEntriesScanned;
     private long[] timesSpent;
     private int id;
 
     public SegmentProcessor(int id, IndexSegment indexSegmentImpl, BrokerRequest brokerRequest,
-         AtomicInteger totalDocsMatched, long[] timesSpent) {
+         AtomicInteger totalDocsMatched, AtomicLong totalEntriesScanned, long[] timesSpent) {
       super();
       this.id = id;
       this.indexSegmentImpl = indexSegmentImpl;
       this.brokerRequest = brokerRequest;
       this.totalDocsMatched = totalDocsMatched;
+      this.totalEntriesScanned = totalEntriesScanned;
       this.timesSpent = timesSpent;
     }
 
@@ -154,6 +169,9 @@ public class FilterOperatorBenchmark {
       timesSpent[id] = (end - start);
       filterOperator.close();
       totalDocsMatched.addAndGet(matchedCount);
+      if (filteredDocIdSet instanceof FilterBlockDocIdSet) {
+        totalEntriesScanned.addAndGet(((FilterBlockDocIdSet) filteredDocIdSet).getNumEntriesScannedInFilter());
+      }
       return null;
     }
 
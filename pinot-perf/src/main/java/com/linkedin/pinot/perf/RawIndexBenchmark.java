@@ -26,6 +26,13 @@ import com.linkedin.pinot.core.data.readers.RecordReader;
 import com.linkedin.pinot.core.data.readers.TestRecordReader;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.io.compression.ChunkCompressorFactory;
+import com.linkedin.pinot.core.io.reader.impl.ChunkReaderContext;
+import com.linkedin.pinot.core.io.reader.impl.v1.BaseChunkSingleValueReader;
+import com.linkedin.pinot.core.io.reader.impl.v1.FixedByteChunkSingleValueReader;
+import com.linkedin.pinot.core.io.reader.impl.v1.VarByteChunkSingleValueReader;
+import com.linkedin.pinot.core.io.writer.impl.v1.FixedByteChunkSingleValueWriter;
+import com.linkedin.pinot.core.io.writer.impl.v1.VarByteChunkSingleValueWriter;
 import com.linkedin.pinot.core.operator.BReusableFilteredDocIdSetOperator;
 import com.linkedin.pinot.core.operator.BaseOperator;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
@@ -37,10 +44,12 @@ import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
 import com.linkedin.pinot.operator.ArrayBasedFilterBlock;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -48,6 +57,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
@@ -55,7 +65,8 @@ import org.kohsuke.args4j.Option;
 /**
  * Class to perform benchmark on lookups for dictionary encoded fwd index v.s. raw index without dictionary.
  * It can take an existing segment with two columns to compare. It can also create a segment on the fly with a
- * given input file containing strings (one string per line).
+ * given input file containing strings or longs (one value per line), in which case it can also compare the size, write
+ * time and lookup time of the raw index with different chunk compression types.
  */
 @SuppressWarnings({"FieldCanBeLocal", "unused"})
 public class RawIndexBenchmark {
@@ -67,6 +78,7 @@ public class RawIndexBenchmark {
   private static final String DEFAULT_FWD_INDEX_COLUMN = "column_1";
   private static final int DEFAULT_NUM_LOOKUP = 100_000;
   private static final int DEFAULT_NUM_CONSECUTIVE_LOOKUP = 50;
+  private static final int NUM_DOCS_PER_CHUNK = 1000;
 
   @Option(name = "-segmentDir", required = false, forbids = {"-dataFile"}, usage = "Untarred segment")
   private String _segmentDir = null;
@@ -77,9 +89,17 @@ public class RawIndexBenchmark {
   @Option(name = "-rawIndexColumn", required = false, usage = "Name of column with raw index (no-dictionary")
   private String _rawIndexColumn = DEFAULT_RAW_INDEX_COLUMN;
 
-  @Option(name = "-dataFile", required = false, forbids = {"-segmentDir"}, usage = "File containing input data (one string per line)")
+  @Option(name = "-dataFile", required = false, forbids = {"-segmentDir"},
+      usage = "File containing input data (one value per line)")
   private String _dataFile = null;
 
+  @Option(name = "-dataType", required = false, usage = "Data type of the input data (STRING|LONG)")
+  private String _dataType = FieldSpec.DataType.STRING.toString();
+
+  @Option(name = "-compressionTypes", required = false, forbids = {"-segmentDir"},
+      usage = "Comma separated chunk compression types to compare for the raw index (SNAPPY,LZ4,DEFLATE,DELTA)")
+  private String _compressionTypes = null;
+
   @Option(name = "-loadMode", required = false, usage = "Load mode for data (mmap|heap")
   private String _loadMode = "heap";
 
@@ -93,6 +113,7 @@ public class RawIndexBenchmark {
   private boolean _help = false;
 
   private int _numRows = 0;
+  private final List<Object> _values = new ArrayList<>();
 
   public void run()
       throws Exception {
@@ -105,6 +126,9 @@ public class RawIndexBenchmark {
     IndexSegment segment = Loaders.IndexSegment.load(segmentFile, ReadMode.valueOf(_loadMode));
     compareIndexSizes(segment, segmentFile, _fwdIndexColumn, _rawIndexColumn);
     compareLookups(segment);
+    if (_compressionTypes != null) {
+      compareCompressionTypes();
+    }
 
     // Cleanup the temporary directory
     if (_segmentDir != null) {
@@ -122,10 +146,11 @@ public class RawIndexBenchmark {
   private File buildSegment()
       throws Exception {
     Schema schema = new Schema();
+    FieldSpec.DataType dataType = FieldSpec.DataType.valueOf(_dataType.toUpperCase());
 
     for (int i = 0; i < NUM_COLUMNS; i++) {
       String column = "column_" + i;
-      DimensionFieldSpec dimensionFieldSpec = new DimensionFieldSpec(column, FieldSpec.DataType.STRING, true);
+      DimensionFieldSpec dimensionFieldSpec = new DimensionFieldSpec(column, dataType, true);
       schema.addField(dimensionFieldSpec);
     }
 
@@ -136,12 +161,14 @@ public class RawIndexBenchmark {
     config.setSegmentName(SEGMENT_NAME);
 
     BufferedReader reader = new BufferedReader(new FileReader(_dataFile));
-    String value;
+    String line;
 
     final List<GenericRow> rows = new ArrayList<>();
 
     System.out.println("Reading data...");
-    while ((value = reader.readLine()) != null) {
+    while ((line = reader.readLine()) != null) {
+      Object value = (dataType == FieldSpec.DataType.LONG) ? Long.parseLong(line.trim()) : line;
+      _values.add(value);
       HashMap<String, Object> map = new HashMap<>();
 
       for (FieldSpec fieldSpec : schema.getAllFieldSpecs()) {
@@ -198,7 +225,7 @@ public class RawIndexBenchmark {
    * @param segment Segment to compare the columns for
    */
   private void compareLookups(IndexSegment segment) {
-    int[] filteredDocIds = generateDocIds(segment);
+    int[] filteredDocIds = generateDocIds(segment.getSegmentMetadata().getTotalDocs());
     long rawIndexTime = profileLookups(segment, _rawIndexColumn, filteredDocIds);
     long fwdIndexTime = profileLookups(segment, _fwdIndexColumn, filteredDocIds);
 
@@ -207,6 +234,87 @@ public class RawIndexBenchmark {
     System.out.println("Percentage change: " + ((fwdIndexTime - rawIndexTime) * 100.0 / rawIndexTime) + " %");
   }
 
+  /**
+   * Compares the raw index of the input data written with each of the {@link #_compressionTypes}.
+   * For each compression type, prints the size of the index, the time to write it, and the time to lookup the same
+   * randomly generated docIds as {@link #compareLookups(IndexSegment)}.
+   *
+   * @throws Exception
+   */
+  private void compareCompressionTypes()
+      throws Exception {
+    boolean isString = FieldSpec.DataType.valueOf(_dataType.toUpperCase()) == FieldSpec.DataType.STRING;
+    int[] docIds = generateDocIds(_values.size());
+
+    for (String compressionTypeName : StringUtils.split(_compressionTypes, ',')) {
+      ChunkCompressorFactory.CompressionType compressionType =
+          ChunkCompressorFactory.CompressionType.fromName(compressionTypeName.trim());
+      if (isString && compressionType == ChunkCompressorFactory.CompressionType.DELTA) {
+        System.out.println("Skipping compression type: " + compressionType + " which is not supported for strings.");
+        continue;
+      }
+      File indexFile =
+          new File(SEGMENT_DIR_NAME, compressionType + V1Constants.Indexes.RAW_SV_FWD_IDX_FILE_EXTENTION);
+      FileUtils.deleteQuietly(indexFile);
+
+      long start = System.currentTimeMillis();
+      writeRawIndex(indexFile, compressionType, isString);
+      long writeTime = System.currentTimeMillis() - start;
+
+      PinotDataBuffer dataBuffer = PinotDataBuffer.fromFile(indexFile, ReadMode.valueOf(_loadMode),
+          FileChannel.MapMode.READ_ONLY, getClass().getName());
+      BaseChunkSingleValueReader reader = isString ? new VarByteChunkSingleValueReader(dataBuffer)
+          : new FixedByteChunkSingleValueReader(dataBuffer);
+      ChunkReaderContext context = reader.createContext();
+
+      start = System.currentTimeMillis();
+      for (int docId : docIds) {
+        if (isString) {
+          reader.getString(docId, context);
+        } else {
+          reader.getLong(docId, context);
+        }
+      }
+      long lookupTime = System.currentTimeMillis() - start;
+
+      System.out.println(
+          "Compression type: " + compressionType + ", raw index size: " + toMegaBytes(indexFile.length())
+              + " MB, write time: " + writeTime + " ms, lookup time: " + lookupTime + " ms.");
+      reader.close();
+      dataBuffer.close();
+      FileUtils.deleteQuietly(indexFile);
+    }
+  }
+
+  /**
+   * Helper method to write the input data into a raw index file with the given compression type.
+   */
+  private void writeRawIndex(File indexFile, ChunkCompressorFactory.CompressionType compressionType,
+      boolean isString)
+      throws Exception {
+    int numValues = _values.size();
+    if (isString) {
+      int maxLength = 0;
+      for (Object value : _values) {
+        maxLength = Math.max(maxLength, ((String) value).getBytes("UTF-8").length);
+      }
+      try (VarByteChunkSingleValueWriter writer = new VarByteChunkSingleValueWriter(indexFile,
+          ChunkCompressorFactory.getCompressor(compressionType), numValues, NUM_DOCS_PER_CHUNK, maxLength)) {
+        for (int i = 0; i < numValues; i++) {
+          writer.setString(i, (String) _values.get(i));
+        }
+      }
+    } else {
+      try (FixedByteChunkSingleValueWriter writer = new FixedByteChunkSingleValueWriter(indexFile,
+          ChunkCompressorFactory.getCompressor(compressionType, V1Constants.Numbers.LONG_SIZE), numValues,
+          NUM_DOCS_PER_CHUNK, V1Constants.Numbers.LONG_SIZE)) {
+        for (int i = 0; i < numValues; i++) {
+          writer.setLong(i, (Long) _values.get(i));
+        }
+      }
+    }
+  }
+
   /**
    * Profiles the lookup time for a given column, for the given docIds.
    *
@@ -238,7 +346,7 @@ public class RawIndexBenchmark {
    * @return Size in MB's
    */
   private double toMegaBytes(long sizeInBytes) {
-    return sizeInBytes / (1024 * 1024);
+    return sizeInBytes / (1024.0 * 1024);
   }
 
   /**
@@ -261,12 +369,11 @@ public class RawIndexBenchmark {
    *   <li> Total of {@link #_numLookups} docIds are generated. </li>
    *   <li> DocId's are in clusters containing {@link #_numConsecutiveLookups} ids. </li>
    * </ul>
-   * @param segment
+   * @param numDocs Number of docs to generate docIds for
    * @return
    */
-  private int[] generateDocIds(IndexSegment segment) {
+  private int[] generateDocIds(int numDocs) {
     Random random = new Random();
-    int numDocs = segment.getSegmentMetadata().getTotalDocs();
     int maxDocId = numDocs - _numConsecutiveLookups - 1;
 
     int[] docIdSet = new int[_numLookups];
@@ -22,6 +22,7 @@ import java.util.Map;
 import org.apache.commons.lang3.tuple.Pair;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import com.linkedin.pinot.common.utils.MmapUtils;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
@@ -46,6 +47,14 @@ public class MmapDebugResource {
     public int size;
   }
 
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class AccountInfo {
+    public String tableName;
+    public String segmentName;
+    public long directBytes;
+    public long mappedBytes;
+  }
+
   @GET
   @Path("memory/offheap")
   @ApiOperation(value = "View current off-heap allocations",
@@ -68,4 +77,25 @@ public class MmapDebugResource {
     allocationMap.put("allocations", allocations);
     return allocationMap;
   }
+
+  @GET
+  @Path("memory/accounts")
+  @ApiOperation(value = "View off-heap memory per table and segment",
+      notes = "Lists the direct and mapped bytes charged to each segment")
+  @ApiResponses(value = {@ApiResponse(code=200, message = "Success")})
+  @Produces(MediaType.APPLICATION_JSON)
+  public Map<String, List<AccountInfo>> getOffHeapAccounts() {
+    List<AccountInfo> accounts = new ArrayList<>();
+    for (PinotDataBufferMemoryManager.Account account : PinotDataBufferMemoryManager.getInstance().getAccounts()) {
+      AccountInfo info = new AccountInfo();
+      info.tableName = account.getTableName();
+      info.segmentName = account.getSegmentName();
+      info.directBytes = account.getDirectBytes();
+      info.mappedBytes = account.getMappedBytes();
+      accounts.add(info);
+    }
+    Map<String, List<AccountInfo>> accountMap = new HashMap<>();
+    accountMap.put("accounts", accounts);
+    return accountMap;
+  }
 }
@@ -17,6 +17,7 @@ package com.linkedin.pinot.server.starter.helix;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Striped;
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.data.Schema;
@@ -39,9 +40,10 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.commons.configuration.Configuration;
@@ -62,8 +64,13 @@ import org.slf4j.LoggerFactory;
 public class HelixInstanceDataManager implements InstanceDataManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(HelixInstanceDataManager.class);
 
+  private static final int NUM_SEGMENT_LOCK_STRIPES = 1024;
+
   private HelixInstanceDataManagerConfig _instanceDataManagerConfig;
-  private Map<String, TableDataManager> _tableDataManagerMap = new HashMap<>();
+  private Map<String, TableDataManager> _tableDataManagerMap = new ConcurrentHashMap<>();
+  // Segments are loaded and reloaded under the per-segment locks so that different segments can be loaded in parallel
+  // Always acquire the segment lock before the instance lock to avoid deadlock
+  private final Striped<Lock> _segmentLocks = Striped.lock(NUM_SEGMENT_LOCK_STRIPES);
   private boolean _isStarted = false;
   private SegmentMetadataLoader _segmentMetadataLoader;
 
@@ -150,7 +157,7 @@ public class HelixInstanceDataManager implements InstanceDataManager {
   }
 
   @Override
-  public synchronized void addSegment(@Nonnull SegmentMetadata segmentMetadata, @Nullable TableConfig tableConfig,
+  public void addSegment(@Nonnull SegmentMetadata segmentMetadata, @Nullable TableConfig tableConfig,
       @Nullable Schema schema)
       throws Exception {
     String segmentName = segmentMetadata.getName();
@@ -164,12 +171,15 @@ public class HelixInstanceDataManager implements InstanceDataManager {
     } else {
       tableName = TableNameBuilder.OFFLINE.tableNameWithType(tableName);
     }
-    if (!_tableDataManagerMap.containsKey(tableName)) {
-      LOGGER.info("Trying to add TableDataManager for OFFLINE table: {}", tableName);
-      addTableIfNeed(tableConfig, tableName, null);
+    TableDataManager tableDataManager = getOrAddTableDataManager(tableConfig, tableName);
+    Lock segmentLock = _segmentLocks.get(tableName + "__" + segmentName);
+    segmentLock.lock();
+    try {
+      tableDataManager.addSegment(segmentMetadata, new IndexLoadingConfig(_instanceDataManagerConfig, tableConfig),
+          schema);
+    } finally {
+      segmentLock.unlock();
     }
-    _tableDataManagerMap.get(tableName)
-        .addSegment(segmentMetadata, new IndexLoadingConfig(_instanceDataManagerConfig, tableConfig), schema);
     LOGGER.info("Added segment: {} to OFFLINE table: {}", segmentName, tableName);
   }
 
@@ -199,6 +209,17 @@ public class HelixInstanceDataManager implements InstanceDataManager {
     LOGGER.info("Added segment: {} to REALTIME table: {}", segmentName, tableName);
   }
 
+  @Nonnull
+  private synchronized TableDataManager getOrAddTableDataManager(@Nullable TableConfig tableConfig,
+      @Nonnull String tableName)
+      throws ConfigurationException {
+    if (!_tableDataManagerMap.containsKey(tableName)) {
+      LOGGER.info("Trying to add TableDataManager for OFFLINE table: {}", tableName);
+      addTableIfNeed(tableConfig, tableName, null);
+    }
+    return _tableDataManagerMap.get(tableName);
+  }
+
   public synchronized void addTableIfNeed(@Nullable TableConfig tableConfig, @Nonnull String tableName,
       @Nullable String serverInstance)
       throws ConfigurationException {
@@ -225,7 +246,20 @@ public class HelixInstanceDataManager implements InstanceDataManager {
   }
 
   @Override
-  public synchronized void reloadSegment(@Nonnull String tableNameWithType, @Nonnull SegmentMetadata segmentMetadata,
+  public void reloadSegment(@Nonnull String tableNameWithType, @Nonnull SegmentMetadata segmentMetadata,
+      @Nullable TableConfig tableConfig, @Nullable Schema schema)
+      throws Exception {
+    String segmentName = segmentMetadata.getName();
+    Lock segmentLock = _segmentLocks.get(tableNameWithType + "__" + segmentName);
+    segmentLock.lock();
+    try {
+      reloadSegmentUnderLock(tableNameWithType, segmentMetadata, tableConfig, schema);
+    } finally {
+      segmentLock.unlock();
+    }
+  }
+
+  private void reloadSegmentUnderLock(@Nonnull String tableNameWithType, @Nonnull SegmentMetadata segmentMetadata,
       @Nullable TableConfig tableConfig, @Nullable Schema schema)
       throws Exception {
     String segmentName = segmentMetadata.getName();
@@ -62,6 +62,16 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
   // Whether memory for realtime consuming segments should be allocated off-heap.
   private static final String REALTIME_OFFHEAP_ALLOCATION = "realtime.alloc.offheap";
 
+  // Number of rows indexed together by realtime consuming segments.
+  private static final String REALTIME_INDEXING_BATCH_SIZE = "realtime.indexing.batch.size";
+  // Whether realtime consuming segments should index rows on a separate thread, pipelined with decoding.
+  private static final String REALTIME_PIPELINED_INDEXING = "realtime.pipelined.indexing";
+
+  // Whether to load the indexes of each column of the segments on first access instead of up front.
+  private static final String LAZY_COLUMN_LOADING = "lazy.column.loading";
+  // Idle time after which the lazily loaded columns are evicted, should be larger than the query timeout.
+  private static final String COLUMN_EVICTION_IDLE_TIME_MS = "column.eviction.idle.time.ms";
+
   // Number of simultaneous segments that can be refreshed on one server.
   // Segment refresh works by loading the old as well as new versions of segments in memory, assigning
   // new incoming queries to use the new version. The old version is dropped when all the queries that
@@ -153,6 +163,26 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
     return _instanceDataManagerConfiguration.getBoolean(REALTIME_OFFHEAP_ALLOCATION, false);
   }
 
+  @Override
+  public String getRealtimeIndexingBatchSize() {
+    return _instanceDataManagerConfiguration.getString(REALTIME_INDEXING_BATCH_SIZE, null);
+  }
+
+  @Override
+  public boolean isRealtimePipelinedIndexing() {
+    return _instanceDataManagerConfiguration.getBoolean(REALTIME_PIPELINED_INDEXING, false);
+  }
+
+  @Override
+  public boolean isLazyColumnLoading() {
+    return _instanceDataManagerConfiguration.getBoolean(LAZY_COLUMN_LOADING, false);
+  }
+
+  @Override
+  public String getColumnEvictionIdleTimeMs() {
+    return _instanceDataManagerConfiguration.getString(COLUMN_EVICTION_IDLE_TIME_MS, null);
+  }
+
   @Override
   public String getAvgMultiValueCount() {
     return _instanceDataManagerConfiguration.getString(AVERAGE_MV_COUNT, null);
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.server.starter.helix;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.common.config.TableNameBuilder;
@@ -28,14 +29,22 @@ import com.linkedin.pinot.common.utils.NetUtil;
 import com.linkedin.pinot.common.utils.ServiceStatus;
 import com.linkedin.pinot.common.utils.ZkUtils;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentMetadataLoader;
+import com.linkedin.pinot.core.query.executor.QueryColumnStatistics;
+import com.linkedin.pinot.core.segment.index.loader.SegmentWarmer;
+import com.linkedin.pinot.core.segment.memory.PinotDataBufferMemoryManager;
 import com.linkedin.pinot.server.conf.ServerConf;
 import com.linkedin.pinot.server.realtime.ControllerLeaderLocator;
 import com.linkedin.pinot.server.starter.ServerInstance;
 import com.yammer.metrics.core.MetricsRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -47,6 +56,7 @@ import org.apache.helix.PreConnectCallback;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.model.HelixConfigScope;
 import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
+import org.apache.helix.model.IdealState;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
@@ -67,6 +77,7 @@ import org.slf4j.LoggerFactory;
 public class HelixServerStarter {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HelixServerStarter.class);
+  private static final String QUERY_COLUMN_STATS_FILE_NAME = "queryColumnStats.properties";
   private final long MAX_QUERY_TIME_MILLIS;
 
   protected final HelixManager _helixManager;
@@ -79,6 +90,8 @@ public class HelixServerStarter {
   private final String _helixClusterName;
   private final String _instanceId;
   private AdminApiApplication _adminApiApplication;
+  private File _queryColumnStatsFile;
+  private ScheduledExecutorService _queryColumnStatsExecutor;
 
   public HelixServerStarter(String helixClusterName, String zkServer, Configuration pinotHelixProperties)
       throws Exception {
@@ -110,6 +123,10 @@ public class HelixServerStarter {
 
     pinotHelixProperties.addProperty("pinot.server.instance.id", _instanceId);
     startServerInstance(pinotHelixProperties);
+    PinotDataBufferMemoryManager.getInstance()
+        .init(pinotHelixProperties.subset(CommonConstants.Server.PREFIX_OF_CONFIG_OF_MEMORY),
+            _serverInstance.getServerMetrics());
+    initSegmentWarmUp(pinotHelixProperties);
 
     LOGGER.info("Connecting Helix components");
     // Replace all white-spaces from list of zkServers.
@@ -121,7 +138,15 @@ public class HelixServerStarter {
     ZkHelixPropertyStore<ZNRecord> zkPropertyStore = ZkUtils.getZkPropertyStore(_helixManager, helixClusterName);
 
     SegmentFetcherAndLoader fetcherAndLoader = new SegmentFetcherAndLoader(_serverInstance.getInstanceDataManager(),
-        new ColumnarSegmentMetadataLoader(), zkPropertyStore, pinotHelixProperties, _instanceId);
+        new ColumnarSegmentMetadataLoader(), zkPropertyStore, pinotHelixProperties, _instanceId,
+        _serverInstance.getServerMetrics());
+    _helixAdmin = _helixManager.getClusterManagmentTool();
+
+    // Preload the OFFLINE segments in parallel before handling the state transitions, which are processed one at a time
+    if (pinotHelixProperties.getBoolean(CommonConstants.Server.CONFIG_OF_SEGMENT_PRELOAD_ENABLE,
+        CommonConstants.Server.DEFAULT_SEGMENT_PRELOAD_ENABLE)) {
+      fetcherAndLoader.preloadOfflineSegments(getOfflineSegmentsToPreload(helixClusterName));
+    }
 
     // Register state model factory
     final StateModelFactory<?> stateModelFactory =
@@ -129,7 +154,6 @@ public class HelixServerStarter {
             _serverInstance.getInstanceDataManager(),  zkPropertyStore, fetcherAndLoader);
     stateMachineEngine.registerStateModelFactory(SegmentOnlineOfflineStateModelFactory.getStateModelName(),
         stateModelFactory);
-    _helixAdmin = _helixManager.getClusterManagmentTool();
     addInstanceTagIfNeeded(helixClusterName, _instanceId);
     // Start restlet server for admin API endpoint
     int adminApiPort = pinotHelixProperties.getInt(CommonConstants.Server.CONFIG_OF_ADMIN_API_PORT,
@@ -226,6 +250,35 @@ public class HelixServerStarter {
     _helixAdmin.setConfig(scope, props);
   }
 
+  /**
+   * Returns a map from OFFLINE table name to the names of the segments assigned to this instance as ONLINE in the ideal
+   * state.
+   */
+  private Map<String, List<String>> getOfflineSegmentsToPreload(String clusterName) {
+    Map<String, List<String>> tableToSegmentsMap = new HashMap<>();
+    for (String resourceName : _helixAdmin.getResourcesInCluster(clusterName)) {
+      if (!TableNameBuilder.OFFLINE.tableHasTypeSuffix(resourceName)) {
+        continue;
+      }
+      IdealState idealState = _helixAdmin.getResourceIdealState(clusterName, resourceName);
+      if (idealState == null) {
+        continue;
+      }
+      List<String> segmentNames = new ArrayList<>();
+      for (String segmentName : idealState.getPartitionSet()) {
+        Map<String, String> instanceStateMap = idealState.getInstanceStateMap(segmentName);
+        if (instanceStateMap != null && CommonConstants.Helix.StateModel.SegmentOnlineOfflineStateModel.ONLINE.equals(
+            instanceStateMap.get(_instanceId))) {
+          segmentNames.add(segmentName);
+        }
+      }
+      if (!segmentNames.isEmpty()) {
+        tableToSegmentsMap.put(resourceName, segmentNames);
+      }
+    }
+    return tableToSegmentsMap;
+  }
+
   private void addInstanceTagIfNeeded(String clusterName, String instanceName) {
     InstanceConfig instanceConfig = _helixAdmin.getInstanceConfig(clusterName, instanceName);
     List<String> instanceTags = instanceConfig.getTags();
@@ -282,6 +335,44 @@ public class HelixServerStarter {
     }
     _helixManager.disconnect();
     _serverInstance.shutDown();
+    _queryColumnStatsExecutor.shutdownNow();
+    saveQueryColumnStatistics();
+  }
+
+  /**
+   * Sets up the warm-up of the segments being loaded, driven by the query column statistics saved before the restart.
+   * The statistics are saved and decayed periodically so that the warm-up follows the recent queries.
+   */
+  private void initSegmentWarmUp(Configuration pinotHelixProperties) {
+    SegmentWarmer.getInstance()
+        .init(pinotHelixProperties.subset(CommonConstants.Server.PREFIX_OF_CONFIG_OF_SEGMENT_WARMUP));
+    _queryColumnStatsFile = new File(pinotHelixProperties.getString(CommonConstants.Server.CONFIG_OF_INSTANCE_DATA_DIR,
+        CommonConstants.Server.DEFAULT_INSTANCE_DATA_DIR), QUERY_COLUMN_STATS_FILE_NAME);
+    try {
+      QueryColumnStatistics.getInstance().load(_queryColumnStatsFile);
+    } catch (IOException e) {
+      LOGGER.warn("Caught exception while loading query column statistics from file: {}", _queryColumnStatsFile, e);
+    }
+    long decayIntervalMs =
+        pinotHelixProperties.getLong(CommonConstants.Server.CONFIG_OF_QUERY_COLUMN_STATS_DECAY_INTERVAL_MS,
+            CommonConstants.Server.DEFAULT_QUERY_COLUMN_STATS_DECAY_INTERVAL_MS);
+    _queryColumnStatsExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("query-column-stats-%d").setDaemon(true).build());
+    _queryColumnStatsExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        saveQueryColumnStatistics();
+        QueryColumnStatistics.getInstance().decay();
+      }
+    }, decayIntervalMs, decayIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void saveQueryColumnStatistics() {
+    try {
+      QueryColumnStatistics.getInstance().save(_queryColumnStatsFile);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while saving query column statistics to file: {}", _queryColumnStatsFile, e);
+    }
   }
 
   public static HelixServerStarter startDefault() throws Exception {
@@ -16,6 +16,13 @@
 package com.linkedin.pinot.server.starter.helix;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.common.config.TableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
@@ -24,9 +31,14 @@ import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.exception.PermanentDownloadException;
 import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.metrics.ServerTimer;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadataLoader;
+import com.linkedin.pinot.common.segment.fetcher.SegmentFetcher;
 import com.linkedin.pinot.common.segment.fetcher.SegmentFetcherFactory;
+import com.linkedin.pinot.common.segment.fetcher.StreamingSegmentFetcher;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.EqualityUtils;
 import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
@@ -34,7 +46,12 @@ import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 import com.linkedin.pinot.core.segment.index.loader.LoaderUtils;
 import com.linkedin.pinot.core.segment.index.loader.V3RemoveIndexException;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -48,21 +65,35 @@ import org.slf4j.LoggerFactory;
 
 public class SegmentFetcherAndLoader {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentFetcherAndLoader.class);
+  private static final int BYTES_PER_PERMIT = 1024;
 
   private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
   private final DataManager _dataManager;
   private final SegmentMetadataLoader _metadataLoader;
   private final String _instanceId;
+  private final ServerMetrics _serverMetrics;
 
   private final int _segmentLoadMaxRetryCount;
   private final long _segmentLoadMinRetryDelayMs; // Min delay (in msecs) between retries
 
+  // Pool sizes of the stages of the segment preload
+  private final int _numDownloadThreads;
+  private final int _numUntarThreads;
+  private final int _numLoadThreads;
+  // Throttles for the segment downloads and untars in KB per second, null if not throttled
+  private final RateLimiter _downloadRateLimiter;
+  private final RateLimiter _untarRateLimiter;
+  // Whether to untar the segments on the fly while downloading them, if supported by the segment fetcher
+  private final boolean _streamingDownload;
+
   public SegmentFetcherAndLoader(DataManager dataManager, SegmentMetadataLoader metadataLoader,
-      ZkHelixPropertyStore<ZNRecord> propertyStore, Configuration pinotHelixProperties, String instanceId) {
+      ZkHelixPropertyStore<ZNRecord> propertyStore, Configuration pinotHelixProperties, String instanceId,
+      ServerMetrics serverMetrics) {
     _propertyStore = propertyStore;
     _dataManager = dataManager;
     _metadataLoader = metadataLoader;
     _instanceId = instanceId;
+    _serverMetrics = serverMetrics;
     int maxRetries = Integer.parseInt(CommonConstants.Server.DEFAULT_SEGMENT_LOAD_MAX_RETRY_COUNT);
     try {
       maxRetries = pinotHelixProperties
@@ -83,9 +114,43 @@ public class SegmentFetcherAndLoader {
     }
     _segmentLoadMinRetryDelayMs = minRetryDelayMillis;
 
+    _numDownloadThreads = pinotHelixProperties.getInt(CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_THREADS,
+        CommonConstants.Server.DEFAULT_SEGMENT_DOWNLOAD_THREADS);
+    _numUntarThreads = pinotHelixProperties.getInt(CommonConstants.Server.CONFIG_OF_SEGMENT_UNTAR_THREADS,
+        CommonConstants.Server.DEFAULT_SEGMENT_UNTAR_THREADS);
+    _numLoadThreads = pinotHelixProperties.getInt(CommonConstants.Server.CONFIG_OF_SEGMENT_LOAD_THREADS,
+        CommonConstants.Server.DEFAULT_SEGMENT_LOAD_THREADS);
+    _downloadRateLimiter = createRateLimiter(
+        pinotHelixProperties.getLong(CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND,
+            CommonConstants.Server.DEFAULT_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND));
+    _untarRateLimiter = createRateLimiter(
+        pinotHelixProperties.getLong(CommonConstants.Server.CONFIG_OF_SEGMENT_UNTAR_MAX_BYTES_PER_SECOND,
+            CommonConstants.Server.DEFAULT_SEGMENT_UNTAR_MAX_BYTES_PER_SECOND));
+    _streamingDownload = pinotHelixProperties.getBoolean(CommonConstants.Server.CONFIG_OF_SEGMENT_STREAMING_DOWNLOAD_ENABLE,
+        CommonConstants.Server.DEFAULT_SEGMENT_STREAMING_DOWNLOAD_ENABLE);
+
     SegmentFetcherFactory.initSegmentFetcherFactory(pinotHelixProperties);
   }
 
+  @Nullable
+  private static RateLimiter createRateLimiter(long maxBytesPerSecond) {
+    if (maxBytesPerSecond > 0) {
+      return RateLimiter.create((double) maxBytesPerSecond / BYTES_PER_PERMIT);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Acquires the permits for the given number of bytes from the rate limiter if not null. One permit stands for
+   * {@link #BYTES_PER_PERMIT} bytes so that the number of permits of large segments fits in an int.
+   */
+  private static void throttle(@Nullable RateLimiter rateLimiter, long numBytes) {
+    if (rateLimiter != null) {
+      rateLimiter.acquire((int) Math.min(Math.max(numBytes / BYTES_PER_PERMIT, 1L), Integer.MAX_VALUE));
+    }
+  }
+
   public void addOrReplaceOfflineSegment(String tableName, String segmentId, boolean retryOnFailure) {
     OfflineSegmentZKMetadata newSegmentZKMetadata =
         ZKMetadataProvider.getOfflineSegmentZKMetadata(_propertyStore, tableName, segmentId);
@@ -123,8 +188,10 @@ public class SegmentFetcherAndLoader {
             if (!isNewSegmentMetadata(newSegmentZKMetadata, localSegmentMetadata)) {
               LOGGER.info("Segment metadata same as before, loading {} of table {} (crc {}) from disk", segmentId,
                   tableName, localSegmentMetadata.getCrc());
+              _serverMetrics.addMeteredTableValue(tableName, ServerMeter.SEGMENT_DOWNLOADS_SKIPPED_WITH_MATCHING_CRC,
+                  1L);
               TableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
-              _dataManager.addSegment(localSegmentMetadata, tableConfig, schema);
+              loadSegment(tableName, localSegmentMetadata, tableConfig, schema);
               // TODO Update zk metadata with CRC for this instance
               return;
             }
@@ -167,10 +234,9 @@ public class SegmentFetcherAndLoader {
           long attemptStartTime = System.currentTimeMillis();
           try {
             TableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
-            final String uri = newSegmentZKMetadata.getDownloadUrl();
-            final String localSegmentDir = downloadSegmentToLocal(uri, tableName, segmentId);
+            final String localSegmentDir = downloadSegmentToLocal(newSegmentZKMetadata, tableName, segmentId);
             final SegmentMetadata segmentMetadata = _metadataLoader.loadIndexSegmentMetadataFromDir(localSegmentDir);
-            _dataManager.addSegment(segmentMetadata, tableConfig, schema);
+            loadSegment(tableName, segmentMetadata, tableConfig, schema);
             LOGGER.info("Downloaded segment {} of table {} crc {} from controller", segmentId, tableName,
                 segmentMetadata.getCrc());
 
@@ -253,18 +319,249 @@ public class SegmentFetcherAndLoader {
     }
   }
 
+  /**
+   * Downloads and loads the given OFFLINE segments in parallel. The download, the untar and the load (including the
+   * segment pre-processing) of the segments run on separately sized pools, so that a segment can be loaded while the
+   * next ones are being downloaded. Segments with a local copy of the same CRC as in ZK are loaded from disk without
+   * being downloaded again.
+   * <p>This is meant to be called on server startup before handling the state transitions, so that the transitions
+   * find the segments already loaded. Segments failing to preload are left to the state transitions, which retry them.
+   *
+   * @param tableToSegmentsMap Map from OFFLINE table name to the names of the segments to preload
+   */
+  public void preloadOfflineSegments(@Nonnull Map<String, List<String>> tableToSegmentsMap) {
+    long startTime = System.currentTimeMillis();
+    ListeningExecutorService downloadExecutor = createExecutor(_numDownloadThreads, "segment-download-%d");
+    ListeningExecutorService untarExecutor = createExecutor(_numUntarThreads, "segment-untar-%d");
+    ListeningExecutorService loadExecutor = createExecutor(_numLoadThreads, "segment-load-%d");
+    List<String> segmentNames = new ArrayList<>();
+    List<ListenableFuture<String>> futures = new ArrayList<>();
+    int numFailures = 0;
+    try {
+      for (Map.Entry<String, List<String>> entry : tableToSegmentsMap.entrySet()) {
+        final String tableName = entry.getKey();
+        final TableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
+        final Schema schema = ZKMetadataProvider.getTableSchema(_propertyStore, tableName);
+        for (final String segmentName : entry.getValue()) {
+          // Returns either the index directory (local with the same CRC, or streamed), or the downloaded tar file
+          ListenableFuture<File> downloadFuture = downloadExecutor.submit(new Callable<File>() {
+            @Override
+            public File call()
+                throws Exception {
+              return downloadSegmentIfNeeded(tableName, segmentName);
+            }
+          });
+          ListenableFuture<String> untarFuture =
+              Futures.transformAsync(downloadFuture, new AsyncFunction<File, String>() {
+                @Override
+                public ListenableFuture<String> apply(@Nonnull File file)
+                    throws Exception {
+                  if (file.isDirectory()) {
+                    return Futures.immediateFuture(file.getAbsolutePath());
+                  }
+                  return Futures.immediateFuture(untarSegment(file, tableName, segmentName));
+                }
+              }, untarExecutor);
+          ListenableFuture<String> loadFuture = Futures.transformAsync(untarFuture, new AsyncFunction<String, String>() {
+            @Override
+            public ListenableFuture<String> apply(@Nonnull String indexDir)
+                throws Exception {
+              loadSegment(tableName, _metadataLoader.loadIndexSegmentMetadataFromDir(indexDir), tableConfig, schema);
+              return Futures.immediateFuture(segmentName);
+            }
+          }, loadExecutor);
+          segmentNames.add(segmentName);
+          futures.add(loadFuture);
+        }
+      }
+
+      int numSegments = futures.size();
+      for (int i = 0; i < numSegments; i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          numFailures++;
+          LOGGER.warn("Failed to preload segment: {}, will load it in the state transition", segmentNames.get(i),
+              e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while preloading segments");
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while preloading segments", e);
+    } finally {
+      downloadExecutor.shutdownNow();
+      untarExecutor.shutdownNow();
+      loadExecutor.shutdownNow();
+    }
+
+    long preloadTime = System.currentTimeMillis() - startTime;
+    _serverMetrics.addTimedValue(ServerTimer.SEGMENT_PRELOAD_TIME, preloadTime, TimeUnit.MILLISECONDS);
+    _serverMetrics.addMeteredGlobalValue(ServerMeter.SEGMENT_PRELOAD_FAILURES, numFailures);
+    LOGGER.info("Preloaded {} segments ({} failures) of {} tables in {}ms with {} download, {} untar and {} load threads",
+        futures.size() - numFailures, numFailures, tableToSegmentsMap.size(), preloadTime, _numDownloadThreads,
+        _numUntarThreads, _numLoadThreads);
+  }
+
+  private static ListeningExecutorService createExecutor(int numThreads, String nameFormat) {
+    return MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build()));
+  }
+
+  /**
+   * Returns the local index directory of the segment if it has the same CRC as in ZK, downloads the segment and returns
+   * either the tar file or the index directory (see {@link #downloadSegment}) otherwise.
+   */
+  @Nonnull
+  private File downloadSegmentIfNeeded(@Nonnull String tableName, @Nonnull String segmentName)
+      throws Exception {
+    OfflineSegmentZKMetadata segmentZKMetadata =
+        ZKMetadataProvider.getOfflineSegmentZKMetadata(_propertyStore, tableName, segmentName);
+    Preconditions.checkNotNull(segmentZKMetadata, "Failed to find ZK metadata for segment: %s of table: %s",
+        segmentName, tableName);
+    File indexDir = new File(getSegmentLocalDirectory(tableName, segmentName));
+    LoaderUtils.reloadFailureRecovery(indexDir);
+    if (indexDir.exists()) {
+      try {
+        if (!isNewSegmentMetadata(segmentZKMetadata, new SegmentMetadataImpl(indexDir))) {
+          LOGGER.info("Segment {} of table {} found on disk with the same crc, skipping download", segmentName,
+              tableName);
+          _serverMetrics.addMeteredTableValue(tableName, ServerMeter.SEGMENT_DOWNLOADS_SKIPPED_WITH_MATCHING_CRC, 1L);
+          return indexDir;
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Failed to load segment metadata from {}, downloading the segment again", indexDir, e);
+      }
+    }
+    return downloadSegment(segmentZKMetadata, tableName, segmentName);
+  }
+
+  private void loadSegment(@Nonnull String tableName, @Nonnull SegmentMetadata segmentMetadata,
+      @Nullable TableConfig tableConfig, @Nullable Schema schema)
+      throws Exception {
+    long startTime = System.currentTimeMillis();
+    _dataManager.addSegment(segmentMetadata, tableConfig, schema);
+    _serverMetrics.addTimedTableValue(tableName, ServerTimer.SEGMENT_LOAD_TIME, System.currentTimeMillis() - startTime,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Nonnull
+  private String downloadSegmentToLocal(@Nonnull OfflineSegmentZKMetadata segmentZKMetadata,
+      @Nonnull String tableName, @Nonnull String segmentName)
+      throws Exception {
+    File file = downloadSegment(segmentZKMetadata, tableName, segmentName);
+    if (file.isDirectory()) {
+      return file.getAbsolutePath();
+    } else {
+      return untarSegment(file, tableName, segmentName);
+    }
+  }
+
+  /**
+   * Downloads the segment, and returns the index directory if the segment is untarred on the fly while downloading, or
+   * the tar file otherwise.
+   */
+  @Nonnull
+  private File downloadSegment(@Nonnull OfflineSegmentZKMetadata segmentZKMetadata, @Nonnull String tableName,
+      @Nonnull String segmentName)
+      throws Exception {
+    String uri = segmentZKMetadata.getDownloadUrl();
+    if (_streamingDownload) {
+      SegmentFetcher segmentFetcher = SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri);
+      if (segmentFetcher instanceof StreamingSegmentFetcher) {
+        return streamSegment((StreamingSegmentFetcher) segmentFetcher, uri, tableName, segmentName,
+            segmentZKMetadata.getCrc());
+      }
+    }
+    return downloadSegmentTar(uri, tableName, segmentName);
+  }
+
+  /**
+   * Streams the compressed tar of the segment straight into a temporary directory, then validates the CRC of the
+   * untarred segment against the CRC in ZK before moving it to the index directory of the segment.
+   */
   @Nonnull
-  private String downloadSegmentToLocal(@Nonnull String uri, @Nonnull String tableName, @Nonnull String segmentName)
+  private File streamSegment(@Nonnull StreamingSegmentFetcher segmentFetcher, @Nonnull String uri,
+      @Nonnull String tableName, @Nonnull String segmentName, long expectedCrc)
+      throws Exception {
+    File tempSegmentDir = new File(new File(_dataManager.getSegmentFileDirectory(), tableName),
+        "tmp_" + segmentName + "_" + System.nanoTime());
+    try {
+      long startTime = System.currentTimeMillis();
+      segmentFetcher.fetchAndUntarSegmentToLocal(uri, tempSegmentDir);
+      File[] files = tempSegmentDir.listFiles();
+      Preconditions.checkState(files != null && files.length == 1);
+      File tempIndexDir = files[0];
+      String crc = new SegmentMetadataImpl(tempIndexDir).getCrc();
+      Preconditions.checkState(Long.toString(expectedCrc).equals(crc),
+          "CRC mismatch for segment: %s of table: %s downloaded from: %s, expected: %s, got: %s", segmentName,
+          tableName, uri, expectedCrc, crc);
+      long downloadTime = System.currentTimeMillis() - startTime;
+      _serverMetrics.addTimedTableValue(tableName, ServerTimer.SEGMENT_DOWNLOAD_TIME, downloadTime,
+          TimeUnit.MILLISECONDS);
+      _serverMetrics.addMeteredTableValue(tableName, ServerMeter.SEGMENT_DOWNLOADS, 1L);
+
+      File indexDir = new File(new File(_dataManager.getSegmentDataDirectory(), tableName), segmentName);
+      if (indexDir.exists()) {
+        LOGGER.info("Deleting existing index directory for segment: {} for table: {}", segmentName, tableName);
+        FileUtils.deleteDirectory(indexDir);
+      }
+      FileUtils.moveDirectory(tempIndexDir, indexDir);
+      LOGGER.info("Successfully streamed segment: {} for table: {} from: {} to: {} in {}ms", segmentName, tableName,
+          uri, indexDir, downloadTime);
+
+      // The compressed size is unknown when streaming, so throttle on the untarred size
+      throttle(_downloadRateLimiter, FileUtils.sizeOfDirectory(indexDir));
+      return indexDir;
+    } finally {
+      FileUtils.deleteQuietly(tempSegmentDir);
+    }
+  }
+
+  /**
+   * Downloads the tarred segment into a new temporary directory and returns the tar file. The temporary directory is
+   * deleted by {@link #untarSegment(File, String, String)}, or here if the download fails.
+   */
+  @Nonnull
+  private File downloadSegmentTar(@Nonnull String uri, @Nonnull String tableName, @Nonnull String segmentName)
       throws Exception {
     File tempDir = new File(new File(_dataManager.getSegmentFileDirectory(), tableName),
         "tmp_" + segmentName + "_" + System.nanoTime());
     FileUtils.forceMkdir(tempDir);
     File tempTarFile = new File(tempDir, segmentName + ".tar.gz");
-    File tempSegmentDir = new File(tempDir, segmentName);
+    long startTime = System.currentTimeMillis();
     try {
       SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri).fetchSegmentToLocal(uri, tempTarFile);
-      LOGGER.info("Downloaded tarred segment: {} for table: {} from: {} to: {}, file length: {}", segmentName,
-          tableName, uri, tempTarFile, tempTarFile.length());
+    } catch (Exception e) {
+      FileUtils.deleteQuietly(tempDir);
+      throw e;
+    }
+    long downloadTime = System.currentTimeMillis() - startTime;
+    long fileLength = tempTarFile.length();
+    LOGGER.info("Downloaded tarred segment: {} for table: {} from: {} to: {}, file length: {} in {}ms", segmentName,
+        tableName, uri, tempTarFile, fileLength, downloadTime);
+    _serverMetrics.addTimedTableValue(tableName, ServerTimer.SEGMENT_DOWNLOAD_TIME, downloadTime, TimeUnit.MILLISECONDS);
+    _serverMetrics.addMeteredTableValue(tableName, ServerMeter.SEGMENT_DOWNLOADS, 1L);
+    _serverMetrics.addMeteredTableValue(tableName, ServerMeter.SEGMENT_DOWNLOADED_BYTES, fileLength);
+
+    // The size is only known after the download, so the throttle delays the next downloads
+    throttle(_downloadRateLimiter, fileLength);
+    return tempTarFile;
+  }
+
+  /**
+   * Untars the downloaded segment into the index directory of the segment, and deletes the temporary directory of the
+   * tar file.
+   */
+  @Nonnull
+  private String untarSegment(@Nonnull File tempTarFile, @Nonnull String tableName, @Nonnull String segmentName)
+      throws Exception {
+    File tempDir = tempTarFile.getParentFile();
+    File tempSegmentDir = new File(tempDir, segmentName);
+    try {
+      throttle(_untarRateLimiter, tempTarFile.length());
+      long startTime = System.currentTimeMillis();
       TarGzCompressionUtils.unTar(tempTarFile, tempSegmentDir);
       File[] files = tempSegmentDir.listFiles();
       Preconditions.checkState(files != null && files.length == 1);
@@ -276,6 +573,8 @@ public class SegmentFetcherAndLoader {
         FileUtils.deleteDirectory(indexDir);
       }
       FileUtils.moveDirectory(tempIndexDir, indexDir);
+      _serverMetrics.addTimedTableValue(tableName, ServerTimer.SEGMENT_UNTAR_TIME,
+          System.currentTimeMillis() - startTime, TimeUnit.MILLISECONDS);
       LOGGER.info("Successfully downloaded segment: {} for table: {} to: {}", segmentName, tableName, indexDir);
       return indexDir.getAbsolutePath();
     } finally {
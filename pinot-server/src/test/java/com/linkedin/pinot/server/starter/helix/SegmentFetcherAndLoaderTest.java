@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.starter.helix;
+
+import com.linkedin.pinot.common.config.TableConfig;
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.data.DataManager;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.segment.SegmentMetadataLoader;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentMetadataLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.io.FileUtils;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.zookeeper.data.Stat;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+
+
+public class SegmentFetcherAndLoaderTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "SegmentFetcherAndLoaderTest");
+  private static final File DATA_DIR = new File(TEMP_DIR, "data");
+  private static final File FILE_DIR = new File(TEMP_DIR, "files");
+  private static final String AVRO_DATA = "data/test_data-sv.avro";
+  private static final String TABLE_NAME = TableNameBuilder.OFFLINE.tableNameWithType("testTable");
+  private static final int NUM_SEGMENTS = 8;
+  private static final int NUM_LOAD_THREADS = 2;
+  private static final long LOAD_TIME_MS = 100L;
+
+  private File _segmentDir;
+  private long _crc;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+
+    String filePath = TestUtils.getFileFromResourceUrl(getClass().getClassLoader().getResource(AVRO_DATA));
+    SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), TEMP_DIR, "daysSinceEpoch",
+            TimeUnit.DAYS, TABLE_NAME);
+    SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    _segmentDir = new File(TEMP_DIR, driver.getSegmentName());
+    _crc = Long.parseLong(new SegmentMetadataImpl(_segmentDir).getCrc());
+  }
+
+  @Test
+  public void testPreloadOfflineSegments()
+      throws Exception {
+    // All the segments are on disk, but the last one has a different CRC in ZK and needs to be downloaded again, which
+    // fails as the download URL does not exist
+    @SuppressWarnings("unchecked")
+    ZkHelixPropertyStore<ZNRecord> propertyStore = mock(ZkHelixPropertyStore.class);
+    List<String> segmentNames = new CopyOnWriteArrayList<>();
+    Set<String> expectedLoadedSegments = new HashSet<>();
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      String segmentName = "segment_" + i;
+      segmentNames.add(segmentName);
+      FileUtils.copyDirectory(_segmentDir, new File(new File(DATA_DIR, TABLE_NAME), segmentName));
+
+      OfflineSegmentZKMetadata segmentZKMetadata = new OfflineSegmentZKMetadata();
+      segmentZKMetadata.setSegmentName(segmentName);
+      segmentZKMetadata.setTableName(TABLE_NAME);
+      segmentZKMetadata.setDownloadUrl("file:" + new File(TEMP_DIR, "missing.tar.gz").getAbsolutePath());
+      if (i < NUM_SEGMENTS - 1) {
+        segmentZKMetadata.setCrc(_crc);
+        expectedLoadedSegments.add(segmentName);
+      } else {
+        segmentZKMetadata.setCrc(_crc + 1);
+      }
+      when(propertyStore.get(eq(ZKMetadataProvider.constructPropertyStorePathForSegment(TABLE_NAME, segmentName)),
+          any(Stat.class), anyInt())).thenReturn(segmentZKMetadata.toZNRecord());
+    }
+
+    final List<String> loadedSegments = new CopyOnWriteArrayList<>();
+    DataManager dataManager = mock(DataManager.class);
+    when(dataManager.getSegmentDataDirectory()).thenReturn(DATA_DIR.getAbsolutePath());
+    when(dataManager.getSegmentFileDirectory()).thenReturn(FILE_DIR.getAbsolutePath());
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        SegmentMetadata segmentMetadata = (SegmentMetadata) invocation.getArguments()[0];
+        loadedSegments.add(new File(segmentMetadata.getIndexDir()).getName());
+        return null;
+      }
+    }).when(dataManager).addSegment(any(SegmentMetadata.class), any(TableConfig.class), any(Schema.class));
+
+    // Track how many segments are being loaded at the same time in the metadata loader, which runs in the load stage
+    // (Mockito runs the answers of a stubbed method one at a time)
+    final AtomicInteger numLoadingSegments = new AtomicInteger();
+    final AtomicInteger maxNumLoadingSegments = new AtomicInteger();
+    SegmentMetadataLoader metadataLoader = new ColumnarSegmentMetadataLoader() {
+      @Override
+      public SegmentMetadata loadIndexSegmentMetadataFromDir(String segmentDir)
+          throws Exception {
+        int numLoading = numLoadingSegments.incrementAndGet();
+        int maxNumLoading;
+        do {
+          maxNumLoading = maxNumLoadingSegments.get();
+        } while (numLoading > maxNumLoading && !maxNumLoadingSegments.compareAndSet(maxNumLoading, numLoading));
+        try {
+          Thread.sleep(LOAD_TIME_MS);
+          return super.loadIndexSegmentMetadataFromDir(segmentDir);
+        } finally {
+          numLoadingSegments.decrementAndGet();
+        }
+      }
+    };
+
+    Configuration config = new BaseConfiguration();
+    config.setProperty(CommonConstants.Server.CONFIG_OF_SEGMENT_LOAD_THREADS, NUM_LOAD_THREADS);
+    SegmentFetcherAndLoader segmentFetcherAndLoader =
+        new SegmentFetcherAndLoader(dataManager, metadataLoader, propertyStore, config,
+            "Server_localhost_8098", new ServerMetrics(new MetricsRegistry()));
+    segmentFetcherAndLoader.preloadOfflineSegments(Collections.singletonMap(TABLE_NAME, segmentNames));
+
+    // The segments with the same CRC are loaded from disk, at most the number of load threads at a time
+    Assert.assertEquals(loadedSegments.size(), NUM_SEGMENTS - 1);
+    Assert.assertEquals(new HashSet<>(loadedSegments), expectedLoadedSegments);
+    Assert.assertEquals(maxNumLoadingSegments.get(), NUM_LOAD_THREADS);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
@@ -18,6 +18,7 @@ package com.linkedin.pinot.transport.common;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -56,6 +57,13 @@ public class CompositeFuture<V> extends AbstractCompositeListenableFuture<V> {
     AND,
   };
 
+  /**
+   * Listener notified of each successful response as soon as it is received, before the composite future completes.
+   */
+  public interface ResponseListener<V> {
+    void onResponse(ServerInstance server, V response);
+  }
+
   private final Collection<ServerResponseFuture<V>> _futures;
 
   // Composite Response
@@ -71,6 +79,10 @@ public class CompositeFuture<V> extends AbstractCompositeListenableFuture<V> {
   // Descriptive name of the future
   private final String _name;
 
+  // Guards the hand-over of responses to the response listener, so that each response is delivered exactly once
+  private final Object _responseListenerLock = new Object();
+  private ResponseListener<V> _responseListener;
+
   public CompositeFuture(String name, GatherModeOnError mode) {
     _name = name;
     _futures = new ArrayList<ServerResponseFuture<V>>();
@@ -183,6 +195,30 @@ public class CompositeFuture<V> extends AbstractCompositeListenableFuture<V> {
     return Collections.unmodifiableMap(_responseTimeMap);
   }
 
+  /**
+   * Set the listener to be notified of each response. Responses received before the listener is set are delivered
+   * right away in the calling thread, later ones in the thread completing the underlying future. All notifications
+   * happen before the composite future completes.
+   */
+  public void setResponseListener(ResponseListener<V> listener) {
+    Map<ServerInstance, V> receivedResponses;
+    synchronized (_responseListenerLock) {
+      _responseListener = listener;
+      receivedResponses = new HashMap<>(_delayedResponseMap);
+    }
+    notifyResponseListener(listener, receivedResponses);
+  }
+
+  private void notifyResponseListener(ResponseListener<V> listener, Map<ServerInstance, V> responses) {
+    for (Map.Entry<ServerInstance, V> entry : responses.entrySet()) {
+      try {
+        listener.onResponse(entry.getKey(), entry.getValue());
+      } catch (Exception e) {
+        LOGGER.error("Caught exception in response listener for {}", entry.getKey(), e);
+      }
+    }
+  }
+
   @Override
   public ServerInstance getServerInstance() {
     throw new RuntimeException("Invalid API call on a composite future");
@@ -194,7 +230,14 @@ public class CompositeFuture<V> extends AbstractCompositeListenableFuture<V> {
     boolean ret = false;
     if (null != response) {
       LOGGER.debug("Response from {} is {}", server, response);
-      _delayedResponseMap.putAll(response);
+      ResponseListener<V> listener;
+      synchronized (_responseListenerLock) {
+        _delayedResponseMap.putAll(response);
+        listener = _responseListener;
+      }
+      if (listener != null) {
+        notifyResponseListener(listener, response);
+      }
     } else if (null != error) {
       LOGGER.debug("Error from {} is : {}", server, error);
       _errorMap.putAll(error);
@@ -19,6 +19,7 @@ import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 
 import com.linkedin.pinot.transport.config.ConnectionPoolConfig;
+import com.linkedin.pinot.transport.config.MultiplexedTransportConfig;
 import com.linkedin.pinot.transport.config.RoutingTableConfig;
 
 
@@ -29,22 +30,38 @@ public class TransportClientConf {
     HELIX
   };
 
+  /**
+   * How requests are sent to the servers: over connections checked out of a pool, one request per connection at a
+   * time, or multiplexed over a few long-lived connections per server.
+   */
+  public static enum TransportMode {
+    POOLED,
+    MULTIPLEXED
+  }
+
   public static final String ROUTING_MODE_KEY = "routingMode";
   public static final String CFG_BASED_ROUTING = "routing";
   public static final String HELIX_CONFIG = "helix";
   public static final String CONNECTION_POOL_CONFIG = "connPool";
+  public static final String TRANSPORT_MODE_KEY = "transportMode";
+  public static final String MULTIPLEXED_CONFIG = "multiplexed";
 
   // TODO: Revisit defaults
   private static final String DEFAULT_ROUTING_MODE = "CONFIG";
+  private static final String DEFAULT_TRANSPORT_MODE = "POOLED";
 
   private RoutingMode _routingMode;
   private RoutingTableConfig _cfgBasedRouting;
   private ConnectionPoolConfig _connPool;
+  private TransportMode _transportMode;
+  private MultiplexedTransportConfig _multiplexed;
 
   public TransportClientConf() {
     _routingMode = RoutingMode.valueOf(DEFAULT_ROUTING_MODE);
     _cfgBasedRouting = new RoutingTableConfig();
     _connPool = new ConnectionPoolConfig();
+    _transportMode = TransportMode.valueOf(DEFAULT_TRANSPORT_MODE);
+    _multiplexed = new MultiplexedTransportConfig();
   }
 
   public void init(Configuration cfg) throws ConfigurationException {
@@ -59,6 +76,13 @@ public class TransportClientConf {
     if (connPoolCfg != null) {
       _connPool.init(connPoolCfg);
     }
+
+    if (cfg.containsKey(TRANSPORT_MODE_KEY)) {
+      _transportMode = TransportMode.valueOf(cfg.getString(TRANSPORT_MODE_KEY).toUpperCase());
+    }
+    if (_transportMode == TransportMode.MULTIPLEXED) {
+      _multiplexed.init(cfg.subset(MULTIPLEXED_CONFIG));
+    }
   }
 
   public RoutingMode getRoutingMode() {
@@ -72,4 +96,12 @@ public class TransportClientConf {
   public ConnectionPoolConfig getConnPool() {
     return _connPool;
   }
+
+  public TransportMode getTransportMode() {
+    return _transportMode;
+  }
+
+  public MultiplexedTransportConfig getMultiplexed() {
+    return _multiplexed;
+  }
 }
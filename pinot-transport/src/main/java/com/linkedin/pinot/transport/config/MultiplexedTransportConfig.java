@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.config;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Config for the multiplexed transport mode, where each broker keeps a few long-lived channels per server and
+ * pipelines many requests over them instead of checking pooled connections out per request.
+ */
+public class MultiplexedTransportConfig {
+
+  // Number of long-lived channels kept to each server
+  public static final String CONNECTIONS_PER_SERVER_KEY = "connectionsPerServer";
+
+  // Maximum number of requests written to a channel without a response
+  public static final String MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_KEY = "maxInFlightRequestsPerConnection";
+
+  // Maximum number of requests queued on a channel by flow control before new requests get rejected
+  public static final String MAX_PENDING_REQUESTS_PER_CONNECTION_KEY = "maxPendingRequestsPerConnection";
+
+  // Time (ms) to wait for the server to acknowledge the multiplexed protocol on a new channel
+  public static final String HANDSHAKE_TIMEOUT_MS_KEY = "handshakeTimeoutMs";
+
+  // Minimum time (ms) between two connection attempts to the same server after a failed one
+  public static final String RECONNECT_BACKOFF_MS_KEY = "reconnectBackoffMs";
+
+  private static final int DEFAULT_CONNECTIONS_PER_SERVER = 2;
+  private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION = 256;
+  private static final int DEFAULT_MAX_PENDING_REQUESTS_PER_CONNECTION = 1024;
+  private static final long DEFAULT_HANDSHAKE_TIMEOUT_MS = 5000L;
+  private static final long DEFAULT_RECONNECT_BACKOFF_MS = 1000L;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexedTransportConfig.class);
+
+  private int _connectionsPerServer = DEFAULT_CONNECTIONS_PER_SERVER;
+  private int _maxInFlightRequestsPerConnection = DEFAULT_MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION;
+  private int _maxPendingRequestsPerConnection = DEFAULT_MAX_PENDING_REQUESTS_PER_CONNECTION;
+  private long _handshakeTimeoutMs = DEFAULT_HANDSHAKE_TIMEOUT_MS;
+  private long _reconnectBackoffMs = DEFAULT_RECONNECT_BACKOFF_MS;
+
+  public void init(Configuration cfg) {
+    _connectionsPerServer = cfg.getInt(CONNECTIONS_PER_SERVER_KEY, DEFAULT_CONNECTIONS_PER_SERVER);
+    _maxInFlightRequestsPerConnection =
+        cfg.getInt(MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_KEY, DEFAULT_MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION);
+    _maxPendingRequestsPerConnection =
+        cfg.getInt(MAX_PENDING_REQUESTS_PER_CONNECTION_KEY, DEFAULT_MAX_PENDING_REQUESTS_PER_CONNECTION);
+    _handshakeTimeoutMs = cfg.getLong(HANDSHAKE_TIMEOUT_MS_KEY, DEFAULT_HANDSHAKE_TIMEOUT_MS);
+    _reconnectBackoffMs = cfg.getLong(RECONNECT_BACKOFF_MS_KEY, DEFAULT_RECONNECT_BACKOFF_MS);
+
+    if (_connectionsPerServer <= 0) {
+      LOGGER.warn("Invalid value for " + CONNECTIONS_PER_SERVER_KEY + "({}). Resetting to default.",
+          _connectionsPerServer);
+      _connectionsPerServer = DEFAULT_CONNECTIONS_PER_SERVER;
+    }
+    if (_maxInFlightRequestsPerConnection <= 0) {
+      LOGGER.warn("Invalid value for " + MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_KEY + "({}). Resetting to default.",
+          _maxInFlightRequestsPerConnection);
+      _maxInFlightRequestsPerConnection = DEFAULT_MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION;
+    }
+    if (_maxPendingRequestsPerConnection < 0) {
+      LOGGER.warn("Invalid value for " + MAX_PENDING_REQUESTS_PER_CONNECTION_KEY + "({}). Resetting to default.",
+          _maxPendingRequestsPerConnection);
+      _maxPendingRequestsPerConnection = DEFAULT_MAX_PENDING_REQUESTS_PER_CONNECTION;
+    }
+    if (_handshakeTimeoutMs <= 0) {
+      LOGGER.warn("Invalid value for " + HANDSHAKE_TIMEOUT_MS_KEY + "({}). Resetting to default.",
+          _handshakeTimeoutMs);
+      _handshakeTimeoutMs = DEFAULT_HANDSHAKE_TIMEOUT_MS;
+    }
+    if (_reconnectBackoffMs < 0) {
+      LOGGER.warn("Invalid value for " + RECONNECT_BACKOFF_MS_KEY + "({}). Resetting to default.",
+          _reconnectBackoffMs);
+      _reconnectBackoffMs = DEFAULT_RECONNECT_BACKOFF_MS;
+    }
+
+    LOGGER.info(toString());
+  }
+
+  public String toString() {
+    return "connectionsPerServer = " + _connectionsPerServer + ", maxInFlightRequestsPerConnection = "
+        + _maxInFlightRequestsPerConnection + ", maxPendingRequestsPerConnection = " + _maxPendingRequestsPerConnection
+        + ", handshakeTimeoutMs = " + _handshakeTimeoutMs + ", reconnectBackoffMs = " + _reconnectBackoffMs;
+  }
+
+  public int getConnectionsPerServer() {
+    return _connectionsPerServer;
+  }
+
+  public void setConnectionsPerServer(int connectionsPerServer) {
+    _connectionsPerServer = connectionsPerServer;
+  }
+
+  public int getMaxInFlightRequestsPerConnection() {
+    return _maxInFlightRequestsPerConnection;
+  }
+
+  public void setMaxInFlightRequestsPerConnection(int maxInFlightRequestsPerConnection) {
+    _maxInFlightRequestsPerConnection = maxInFlightRequestsPerConnection;
+  }
+
+  public int getMaxPendingRequestsPerConnection() {
+    return _maxPendingRequestsPerConnection;
+  }
+
+  public void setMaxPendingRequestsPerConnection(int maxPendingRequestsPerConnection) {
+    _maxPendingRequestsPerConnection = maxPendingRequestsPerConnection;
+  }
+
+  public long getHandshakeTimeoutMs() {
+    return _handshakeTimeoutMs;
+  }
+
+  public void setHandshakeTimeoutMs(long handshakeTimeoutMs) {
+    _handshakeTimeoutMs = handshakeTimeoutMs;
+  }
+
+  public long getReconnectBackoffMs() {
+    return _reconnectBackoffMs;
+  }
+
+  public void setReconnectBackoffMs(long reconnectBackoffMs) {
+    _reconnectBackoffMs = reconnectBackoffMs;
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+
+/**
+ * Framing helpers for the multiplexed broker-to-server transport.
+ *
+ * A multiplexed channel starts with a handshake: the client sends a frame holding only {@link #HANDSHAKE_MAGIC} and
+ * the server echoes it back once it has switched the channel to multiplexed mode. Servers that predate this protocol
+ * treat the handshake as a (bad) query and answer with something else, which lets the client detect them.
+ *
+ * After the handshake, every request and response frame carries a stream id that correlates a response with its
+ * request, so that many requests can be in flight on the same channel and responses can arrive out of order:
+ *
+ * 0                                                         31
+ * ------------------------------------------------------------
+ * |                  Length ( 32 bits)                       |
+ * |                 Stream Id ( 64 bits)                     |
+ * |                                                          |
+ * |                 Payload (Request/Response)               |
+ * |                    ...............                       |
+ * ------------------------------------------------------------
+ */
+public class MultiplexedFrames {
+  private MultiplexedFrames() {
+  }
+
+  // Serialized instance requests are always longer than the handshake, so it cannot be mistaken for a query
+  public static final long HANDSHAKE_MAGIC = 0x50494E4F544D5558L; // "PINOTMUX"
+  public static final int HANDSHAKE_SIZE = 8;
+  public static final int STREAM_ID_SIZE = 8;
+
+  public static ByteBuf newHandshake() {
+    return Unpooled.buffer(HANDSHAKE_SIZE).writeLong(HANDSHAKE_MAGIC);
+  }
+
+  public static boolean isHandshake(ByteBuf frame) {
+    return frame.readableBytes() == HANDSHAKE_SIZE && frame.getLong(frame.readerIndex()) == HANDSHAKE_MAGIC;
+  }
+
+  /**
+   * Returns a frame holding the stream id followed by the given payload. The payload is not copied.
+   */
+  public static ByteBuf wrap(long streamId, ByteBuf payload) {
+    return Unpooled.wrappedBuffer(Unpooled.buffer(STREAM_ID_SIZE).writeLong(streamId), payload);
+  }
+}
@@ -0,0 +1,406 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.netty;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.linkedin.pinot.common.metrics.MetricsHelper;
+import com.linkedin.pinot.common.metrics.MetricsHelper.TimerContext;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.Cancellable;
+import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * TCP based Netty client connection which multiplexes many outstanding requests over a single long-lived channel.
+ *
+ * Unlike {@link NettyTCPClientConnection}, this connection is shared by all request senders and is never checked out
+ * of a pool. Each request is tagged with a connection-local stream id (see {@link MultiplexedFrames}) and the server
+ * echoes the stream id in its response, so responses are matched to their futures in whatever order they arrive.
+ *
+ * Flow control: at most <code>maxInFlightRequests</code> requests are written to the channel without a response.
+ * Requests beyond that, or issued while the channel is not writable (outbound buffer above its high water mark), are
+ * queued and written as responses come back. Once <code>maxPendingRequests</code> requests are queued, new requests
+ * fail immediately instead of piling up behind a slow server.
+ *
+ * A request timing out only fails its own future; the channel stays open for the other requests. Channel errors fail
+ * all outstanding requests and leave the connection invalid.
+ */
+@ThreadSafe
+public class MultiplexedNettyClientConnection extends NettyClientConnection {
+  // Connection Id generator
+  private static final AtomicLong CONN_ID_GEN = new AtomicLong(0);
+
+  private final NettyClientMetrics _clientMetric;
+  private final int _maxInFlightRequests;
+  private final int _maxPendingRequests;
+  private final long _handshakeTimeoutMs;
+
+  private final AtomicLong _streamIdGen = new AtomicLong(0);
+  private final SettableFuture<Boolean> _handshakeFuture = SettableFuture.create();
+
+  // Requests written to the channel and waiting for response, keyed by stream id. Guarded by this.
+  private final Map<Long, InFlightRequest> _inFlightRequests = new HashMap<>();
+  // Requests held back by flow control. Guarded by this.
+  private final ArrayDeque<InFlightRequest> _pendingRequests = new ArrayDeque<>();
+
+  public MultiplexedNettyClientConnection(ServerInstance server, EventLoopGroup eventGroup, Timer timer,
+      NettyClientMetrics metric, int maxInFlightRequests, int maxPendingRequests, long handshakeTimeoutMs) {
+    super(server, eventGroup, timer, CONN_ID_GEN.incrementAndGet());
+    _clientMetric = metric;
+    _maxInFlightRequests = maxInFlightRequests;
+    _maxPendingRequests = maxPendingRequests;
+    _handshakeTimeoutMs = handshakeTimeoutMs;
+    _bootstrap = new Bootstrap();
+    _bootstrap.group(_eventGroup)
+        .channel(NioSocketChannel.class)
+        .handler(new ChannelHandlerInitializer(new MultiplexedClientConnectionHandler()));
+  }
+
+  /**
+   * Connects to the server and negotiates the multiplexed protocol. Returns false if the server cannot be reached or
+   * does not support multiplexing.
+   */
+  @Override
+  public boolean connect() {
+    try {
+      TimerContext t = MetricsHelper.startTimer();
+      _channel = _bootstrap.connect(_server.getHostname(), _server.getPort()).sync().channel();
+      _channel.writeAndFlush(MultiplexedFrames.newHandshake());
+      boolean accepted = _handshakeFuture.get(_handshakeTimeoutMs, TimeUnit.MILLISECONDS);
+      t.stop();
+      if (!accepted) {
+        LOGGER.error("Server {} does not support multiplexed connections, connId {}", _server, getConnId());
+        close();
+        return false;
+      }
+      _connState = State.CONNECTED;
+      _clientMetric.addConnectStats(t.getLatencyMs());
+      LOGGER.info("Opened multiplexed connection to server {}, connId {}", _server, getConnId());
+      return true;
+    } catch (Exception e) {
+      LOGGER.warn("Could not open multiplexed connection to server {}, connId {}: {}", _server, getConnId(),
+          e.getMessage());
+      _connState = State.ERROR;
+      if (_channel != null) {
+        _channel.close();
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    LOGGER.info("Closing multiplexed client channel to {} connId {}", _server, getConnId());
+    if (_channel != null) {
+      _channel.close().sync();
+    }
+  }
+
+  @Override
+  public boolean validate() {
+    return _connState == State.CONNECTED && super.validate();
+  }
+
+  @Override
+  public ResponseFuture sendRequest(ByteBuf serializedRequest, long requestId, long timeoutMs) {
+    ResponseFuture future = new ResponseFuture(_server,
+        "Response Future for request " + requestId + " to server " + _server + " connId " + getConnId());
+    final InFlightRequest request =
+        new InFlightRequest(_streamIdGen.incrementAndGet(), requestId, serializedRequest, future);
+    future.setCancellable(new Cancellable() {
+      @Override
+      public boolean cancel() {
+        remove(request);
+        return true;
+      }
+    });
+
+    Exception rejection = null;
+    synchronized (this) {
+      if (_connState != State.CONNECTED) {
+        rejection = new Exception("Multiplexed connection to server " + _server + " connId " + getConnId()
+            + " is not connected (state=" + _connState + ")");
+      } else if (_inFlightRequests.size() < _maxInFlightRequests && _channel.isWritable()) {
+        write(request);
+      } else if (_pendingRequests.size() < _maxPendingRequests) {
+        _pendingRequests.add(request);
+      } else {
+        rejection = new Exception(
+            "Too many outstanding requests (" + (_inFlightRequests.size() + _pendingRequests.size())
+                + ") on multiplexed connection to server " + _server + " connId " + getConnId());
+      }
+      if (rejection == null && timeoutMs >= 0) {
+        request._timeout = _timer.newTimeout(new RequestTimeoutHandler(request), timeoutMs, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (rejection != null) {
+      request.releasePayload();
+      fail(request, rejection);
+    }
+    return future;
+  }
+
+  /**
+   * Returns the number of requests written to or queued for this connection and still waiting for response.
+   */
+  public synchronized int getNumOutstandingRequests() {
+    return _inFlightRequests.size() + _pendingRequests.size();
+  }
+
+  // Must be called with the lock held
+  private void write(final InFlightRequest request) {
+    _inFlightRequests.put(request._streamId, request);
+    request._sendLatency = MetricsHelper.startTimer();
+    ByteBuf payload = request._payload;
+    request._payload = null;
+    _channel.writeAndFlush(MultiplexedFrames.wrap(request._streamId, payload)).addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(final ChannelFuture future) throws Exception {
+        request._sendLatency.stop();
+        if (!future.isSuccess()) {
+          // The listener may run inline while this connection's lock is held, so fail the future outside of it
+          future.channel().eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+              if (remove(request)) {
+                fail(request, future.cause());
+              }
+            }
+          });
+        }
+      }
+    });
+  }
+
+  // Must be called with the lock held
+  private void drainPendingRequests() {
+    while (!_pendingRequests.isEmpty() && _inFlightRequests.size() < _maxInFlightRequests && _channel.isWritable()) {
+      write(_pendingRequests.poll());
+    }
+  }
+
+  /**
+   * Removes the request from the in-flight map or the pending queue, and writes queued requests if a slot freed up.
+   * Returns false if the request was already removed (e.g. completed, timed out or cancelled).
+   */
+  private boolean remove(InFlightRequest request) {
+    if (request._timeout != null) {
+      request._timeout.cancel();
+    }
+    synchronized (this) {
+      if (_inFlightRequests.remove(request._streamId) != null) {
+        if (_connState == State.CONNECTED) {
+          drainPendingRequests();
+        }
+        return true;
+      }
+      if (_pendingRequests.remove(request)) {
+        request.releasePayload();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private void fail(InFlightRequest request, Throwable cause) {
+    request._future.onError(cause);
+    _clientMetric.addRequestResponseStats(request._requestSizeInBytes, 1, 0, true,
+        request._sendLatency == null ? 0 : request._sendLatency.getLatencyMs(), request._responseLatency.getLatencyMs());
+  }
+
+  /**
+   * Fails all outstanding requests and marks the connection unusable.
+   */
+  private void failAll(Throwable cause) {
+    if (!_handshakeFuture.isDone()) {
+      _handshakeFuture.setException(cause);
+    }
+    List<InFlightRequest> requests;
+    synchronized (this) {
+      _connState = State.ERROR;
+      requests = new ArrayList<>(_inFlightRequests.values());
+      requests.addAll(_pendingRequests);
+      _inFlightRequests.clear();
+      _pendingRequests.clear();
+    }
+    for (InFlightRequest request : requests) {
+      if (request._timeout != null) {
+        request._timeout.cancel();
+      }
+      request.releasePayload();
+      fail(request, cause);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Server:" + _server + ",State:" + _connState + ",connId:" + getConnId() + ",multiplexed";
+  }
+
+  /**
+   * A request sent (or queued to be sent) on this connection.
+   */
+  private static class InFlightRequest {
+    private final long _streamId;
+    private final long _requestId;
+    private final ResponseFuture _future;
+    private final long _requestSizeInBytes;
+    private final TimerContext _responseLatency = MetricsHelper.startTimer();
+    // Serialized request until it is handed over to the channel
+    private ByteBuf _payload;
+    private volatile TimerContext _sendLatency;
+    private volatile Timeout _timeout;
+
+    private InFlightRequest(long streamId, long requestId, ByteBuf payload, ResponseFuture future) {
+      _streamId = streamId;
+      _requestId = requestId;
+      _payload = payload;
+      _future = future;
+      _requestSizeInBytes = payload.readableBytes();
+    }
+
+    private void releasePayload() {
+      if (_payload != null) {
+        _payload.release();
+        _payload = null;
+      }
+    }
+  }
+
+  /**
+   * Channel Handler for the handshake and incoming responses.
+   */
+  private class MultiplexedClientConnectionHandler extends ChannelInboundHandlerAdapter {
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      ByteBuf frame = (ByteBuf) msg;
+      if (!_handshakeFuture.isDone()) {
+        boolean accepted = MultiplexedFrames.isHandshake(frame);
+        frame.release();
+        _handshakeFuture.set(accepted);
+        return;
+      }
+
+      long streamId = frame.readLong();
+      InFlightRequest request;
+      synchronized (MultiplexedNettyClientConnection.this) {
+        request = _inFlightRequests.get(streamId);
+      }
+      if (request == null || !remove(request)) {
+        // Request was cancelled or timed out before the response arrived
+        LOGGER.debug("Discarding response for unknown stream {} from server {}, connId {}", streamId, _server,
+            getConnId());
+        frame.release();
+        return;
+      }
+      request._responseLatency.stop();
+      _clientMetric.addRequestResponseStats(request._requestSizeInBytes, 1, frame.readableBytes(), false,
+          request._sendLatency.getLatencyMs(), request._responseLatency.getLatencyMs());
+      request._future.onSuccess(frame);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+      if (ctx.channel().isWritable()) {
+        synchronized (MultiplexedNettyClientConnection.this) {
+          if (_connState == State.CONNECTED) {
+            drainPendingRequests();
+          }
+        }
+      }
+      super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      LOGGER.info("Multiplexed client channel to server ({}) (id = {}) in inactive state (closed).", _server,
+          getConnId());
+      failAll(new Exception("Client Channel to server (" + _server + ") is in inactive state (closed) !!"));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      LOGGER.info("Got exception in the multiplexed channel to {}, connId {}, cause:{}", _server, getConnId(),
+          cause.getMessage());
+      failAll(cause);
+      ctx.close();
+    }
+  }
+
+  /**
+   * Netty Client Channel Initializer responsible for setting the pipeline
+   */
+  private static class ChannelHandlerInitializer extends ChannelInitializer<SocketChannel> {
+    private final MultiplexedClientConnectionHandler _handler;
+
+    private ChannelHandlerInitializer(MultiplexedClientConnectionHandler handler) {
+      _handler = handler;
+    }
+
+    @Override
+    protected void initChannel(SocketChannel ch) throws Exception {
+      ChannelPipeline pipeline = ch.pipeline();
+      pipeline.addLast("decoder", new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4));
+      pipeline.addLast("encoder", new LengthFieldPrepender(4));
+      pipeline.addLast("handler", _handler);
+    }
+  }
+
+  /**
+   * Timer task failing a single request on timeout. The channel is left open for the other requests.
+   */
+  private class RequestTimeoutHandler implements TimerTask {
+    private final InFlightRequest _request;
+
+    private RequestTimeoutHandler(InFlightRequest request) {
+      _request = request;
+    }
+
+    @Override
+    public void run(Timeout timeout) throws Exception {
+      if (remove(_request)) {
+        String message = "Request (" + _request._requestId + ") to server " + _server + " connId " + getConnId()
+            + " timed-out waiting for response";
+        LOGGER.warn(message);
+        fail(_request, new Exception(message));
+      }
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.netty;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.config.MultiplexedTransportConfig;
+import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Keeps a fixed number of {@link MultiplexedNettyClientConnection}s to each server and hands out the least loaded one.
+ *
+ * Connections are opened lazily on first use and re-opened when found broken, at most once per reconnect back-off
+ * period per server so that a dead server does not get hammered with connection attempts.
+ */
+@ThreadSafe
+public class MultiplexedNettyClientManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexedNettyClientManager.class);
+
+  private final EventLoopGroup _eventLoopGroup;
+  private final Timer _timer;
+  private final NettyClientMetrics _metrics;
+  private final MultiplexedTransportConfig _config;
+  private final ConcurrentHashMap<ServerInstance, ServerConnections> _serverConnections = new ConcurrentHashMap<>();
+
+  public MultiplexedNettyClientManager(@Nonnull EventLoopGroup eventLoopGroup, @Nonnull Timer timer,
+      @Nonnull NettyClientMetrics metrics, @Nonnull MultiplexedTransportConfig config) {
+    _eventLoopGroup = eventLoopGroup;
+    _timer = timer;
+    _metrics = metrics;
+    _config = config;
+  }
+
+  /**
+   * Returns the least loaded connection to the server, or <code>null</code> if no connection could be established.
+   * The returned connection is shared, it must not be closed by the caller.
+   */
+  @Nullable
+  public MultiplexedNettyClientConnection getConnection(@Nonnull ServerInstance server) {
+    ServerConnections serverConnections = _serverConnections.get(server);
+    if (serverConnections == null) {
+      ServerConnections newServerConnections = new ServerConnections(server);
+      serverConnections = _serverConnections.putIfAbsent(server, newServerConnections);
+      if (serverConnections == null) {
+        serverConnections = newServerConnections;
+      }
+    }
+    return serverConnections.getConnection();
+  }
+
+  /**
+   * Closes all connections. Outstanding requests fail.
+   */
+  public void shutdown() {
+    for (ServerConnections serverConnections : _serverConnections.values()) {
+      serverConnections.close();
+    }
+    _serverConnections.clear();
+  }
+
+  /**
+   * Connections to a single server.
+   */
+  private class ServerConnections {
+    private final ServerInstance _server;
+    private final AtomicReferenceArray<MultiplexedNettyClientConnection> _connections;
+    private volatile long _lastConnectFailureMs = 0L;
+
+    private ServerConnections(ServerInstance server) {
+      _server = server;
+      _connections = new AtomicReferenceArray<>(_config.getConnectionsPerServer());
+    }
+
+    private MultiplexedNettyClientConnection getConnection() {
+      MultiplexedNettyClientConnection bestConnection = null;
+      int minOutstandingRequests = Integer.MAX_VALUE;
+      boolean hasBrokenConnection = false;
+      for (int i = 0; i < _connections.length(); i++) {
+        MultiplexedNettyClientConnection connection = _connections.get(i);
+        if (connection != null && connection.validate()) {
+          int numOutstandingRequests = connection.getNumOutstandingRequests();
+          if (numOutstandingRequests < minOutstandingRequests) {
+            bestConnection = connection;
+            minOutstandingRequests = numOutstandingRequests;
+          }
+        } else {
+          hasBrokenConnection = true;
+        }
+      }
+
+      // Open the missing connections if the existing ones are busy, or there is none
+      if (hasBrokenConnection && (bestConnection == null || minOutstandingRequests > 0)) {
+        MultiplexedNettyClientConnection newConnection = reconnect();
+        if (newConnection != null) {
+          return newConnection;
+        }
+        // Another thread might have opened the connections while we were waiting for the lock
+        if (bestConnection == null) {
+          return getLeastLoadedConnection();
+        }
+      }
+      return bestConnection;
+    }
+
+    @Nullable
+    private MultiplexedNettyClientConnection getLeastLoadedConnection() {
+      MultiplexedNettyClientConnection bestConnection = null;
+      int minOutstandingRequests = Integer.MAX_VALUE;
+      for (int i = 0; i < _connections.length(); i++) {
+        MultiplexedNettyClientConnection connection = _connections.get(i);
+        if (connection != null && connection.validate()) {
+          int numOutstandingRequests = connection.getNumOutstandingRequests();
+          if (numOutstandingRequests < minOutstandingRequests) {
+            bestConnection = connection;
+            minOutstandingRequests = numOutstandingRequests;
+          }
+        }
+      }
+      return bestConnection;
+    }
+
+    /**
+     * Replaces the first broken connection with a new one. Returns the new connection, or <code>null</code> if none
+     * was opened.
+     */
+    private synchronized MultiplexedNettyClientConnection reconnect() {
+      if (System.currentTimeMillis() - _lastConnectFailureMs < _config.getReconnectBackoffMs()) {
+        return null;
+      }
+      for (int i = 0; i < _connections.length(); i++) {
+        MultiplexedNettyClientConnection connection = _connections.get(i);
+        if (connection == null || !connection.validate()) {
+          MultiplexedNettyClientConnection newConnection =
+              new MultiplexedNettyClientConnection(_server, _eventLoopGroup, _timer, _metrics,
+                  _config.getMaxInFlightRequestsPerConnection(), _config.getMaxPendingRequestsPerConnection(),
+                  _config.getHandshakeTimeoutMs());
+          if (!newConnection.connect()) {
+            _lastConnectFailureMs = System.currentTimeMillis();
+            return null;
+          }
+          _connections.set(i, newConnection);
+          return newConnection;
+        }
+      }
+      return null;
+    }
+
+    private synchronized void close() {
+      for (int i = 0; i < _connections.length(); i++) {
+        MultiplexedNettyClientConnection connection = _connections.get(i);
+        if (connection != null) {
+          try {
+            connection.close();
+          } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted while closing connection {}", connection, e);
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }
+  }
+}
@@ -220,12 +220,18 @@ public abstract class NettyServer implements Runnable {
    * |                    ...............                       |
    * |                    ...............                       |
    * ------------------------------------------------------------
+   *
+   * If the client opens the channel with a multiplexed handshake, requests and responses additionally carry a stream
+   * id (see {@link MultiplexedFrames}) and responses are written back in completion order.
    */
   public static class NettyChannelInboundHandler extends ChannelInboundHandlerAdapter {
     private final long _defaultLargeQueryLatencyMs;
     private final RequestHandler _handler;
     private final NettyServerMetrics _metric;
 
+    // Set once the client negotiated the multiplexed protocol on this channel
+    private volatile boolean _multiplexed = false;
+
     public NettyChannelInboundHandler(RequestHandler handler, NettyServerMetrics metric, long defaultLargeQueryLatencyMs) {
       _handler = handler;
       _metric = metric;
@@ -242,6 +248,15 @@ public abstract class NettyServer implements Runnable {
       LOGGER.debug("Request received by server !!");
 
       final ByteBuf request = (ByteBuf) msg;
+      if (!_multiplexed && MultiplexedFrames.isHandshake(request)) {
+        LOGGER.info("Switching channel {} to multiplexed mode", ctx.channel());
+        request.release();
+        _multiplexed = true;
+        ctx.writeAndFlush(MultiplexedFrames.newHandshake());
+        return;
+      }
+      final boolean multiplexed = _multiplexed;
+      final long streamId = multiplexed ? request.readLong() : 0L;
       final long requestSizeInBytes = request.readableBytes();
 
       //Call processing handler
@@ -253,7 +268,10 @@ public abstract class NettyServer implements Runnable {
           requestProcessingLatency.stop();
 
           // Send Response
-          final ByteBuf responseBuf = Unpooled.wrappedBuffer(result);
+          ByteBuf responseBuf = Unpooled.wrappedBuffer(result);
+          if (multiplexed) {
+            responseBuf = MultiplexedFrames.wrap(streamId, responseBuf);
+          }
           final TimerContext responseSendLatency = MetricsHelper.startTimer();
           ChannelFuture f = requestChannelHandlerContext.writeAndFlush(responseBuf);
           f.addListener(new ChannelFutureListener() {
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.scattergather;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * Policy for hedged requests: when a server has not answered within some delay, the same segments are sent to another
+ * replica, the first response is used and the other request is cancelled.
+ */
+public interface HedgingPolicy {
+
+  /**
+   * Returns the delay in milliseconds after which requests of the given scatter-gather request should be hedged, or a
+   * negative value to not hedge them.
+   */
+  long getHedgeDelayMs(@Nonnull ScatterGatherRequest request);
+
+  /**
+   * Returns the server to send a hedged request to, or <code>null</code> if the request should not be hedged (e.g. no
+   * other replica serves all the segments, or the hedging budget is exhausted).
+   *
+   * @param request Scatter-gather request
+   * @param server Server that has not answered yet
+   * @param segmentIds Segments queried on that server
+   */
+  @Nullable
+  ServerInstance selectHedgeServer(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance server,
+      @Nonnull SegmentIdSet segmentIds);
+
+  /**
+   * Called once the hedged request got sent to the server returned by
+   * {@link #selectHedgeServer(ScatterGatherRequest, ServerInstance, SegmentIdSet)}, which is not called if sending
+   * failed.
+   */
+  void onHedgeSent(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer);
+
+  /**
+   * Called for every hedged request passed to {@link #onHedgeSent(ScatterGatherRequest, ServerInstance)} when it
+   * completes, unless it got cancelled in which case
+   * {@link #onHedgeCancelled(ScatterGatherRequest, ServerInstance)} is called instead.
+   *
+   * @param request Scatter-gather request
+   * @param hedgeServer Server the hedged request was sent to
+   * @param latencyMs Time since the hedged request was sent
+   * @param error Error of the hedged request, <code>null</code> if it succeeded
+   */
+  void onHedgeCompleted(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer, long latencyMs,
+      @Nullable Throwable error);
+
+  /**
+   * Called for every hedged request passed to {@link #onHedgeSent(ScatterGatherRequest, ServerInstance)} that got
+   * cancelled, e.g. because the original request answered first. The time until the cancellation says nothing about
+   * the latency of the hedge server.
+   */
+  void onHedgeCancelled(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer);
+
+  /**
+   * Called for every successful response with the time it took. If the hedged request answered first, the latency is
+   * the time the original request had been outstanding at that point, which is a lower bound of its actual latency.
+   */
+  void onRequestCompleted(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance server, long latencyMs);
+}
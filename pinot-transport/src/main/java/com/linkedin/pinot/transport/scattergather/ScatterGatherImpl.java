@@ -20,10 +20,13 @@ import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.metrics.BrokerQueryPhase;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.Cancellable;
 import com.linkedin.pinot.transport.common.CompositeFuture;
 import com.linkedin.pinot.transport.common.CompositeFuture.GatherModeOnError;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 import com.linkedin.pinot.transport.common.ServerResponseFuture;
+import com.linkedin.pinot.transport.netty.MultiplexedNettyClientConnection;
+import com.linkedin.pinot.transport.netty.MultiplexedNettyClientManager;
 import com.linkedin.pinot.transport.netty.NettyClientConnection.ResponseFuture;
 import com.linkedin.pinot.transport.netty.PooledNettyClientResourceManager;
 import com.linkedin.pinot.transport.pool.KeyedPool;
@@ -33,8 +36,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,19 +54,51 @@ import org.slf4j.LoggerFactory;
  *
  * Scatter-Gather implementation
  *
+ * Requests are sent either over connections checked out of a {@link KeyedPool} (one outstanding request per
+ * connection), or over the shared connections of a {@link MultiplexedNettyClientManager}.
+ *
+ * If a {@link HedgingPolicy} is set, a request to a server that has not answered within the hedge delay is also sent
+ * to another replica, and the first response is used.
+ *
  */
 public class ScatterGatherImpl implements ScatterGather {
   private static final Logger LOGGER = LoggerFactory.getLogger(ScatterGatherImpl.class);
 
+  // Exactly one of the connection pool and the multiplexed client manager is set
   private final KeyedPool<PooledNettyClientResourceManager.PooledClientConnection> _connPool;
+  private final MultiplexedNettyClientManager _multiplexedClientManager;
   private final ExecutorService _executorService;
 
+  // Only set if hedged requests are enabled
+  private volatile HedgingPolicy _hedgingPolicy;
+  private volatile ScheduledExecutorService _hedgingExecutor;
+
   public ScatterGatherImpl(@Nonnull KeyedPool<PooledNettyClientResourceManager.PooledClientConnection> connPool,
       @Nonnull ExecutorService executorService) {
     _connPool = connPool;
+    _multiplexedClientManager = null;
+    _executorService = executorService;
+  }
+
+  public ScatterGatherImpl(@Nonnull MultiplexedNettyClientManager multiplexedClientManager,
+      @Nonnull ExecutorService executorService) {
+    _connPool = null;
+    _multiplexedClientManager = multiplexedClientManager;
     _executorService = executorService;
   }
 
+  /**
+   * Enables hedged requests.
+   *
+   * @param hedgingPolicy Policy deciding when and where to send hedged requests
+   * @param hedgingExecutor Executor used to schedule the hedged requests
+   */
+  public void setHedgingPolicy(@Nonnull HedgingPolicy hedgingPolicy,
+      @Nonnull ScheduledExecutorService hedgingExecutor) {
+    _hedgingExecutor = hedgingExecutor;
+    _hedgingPolicy = hedgingPolicy;
+  }
+
   @Nonnull
   @Override
   public CompositeFuture<ByteBuf> scatterGather(@Nonnull ScatterGatherRequest scatterGatherRequest,
@@ -111,8 +149,9 @@ public class ScatterGatherImpl implements ScatterGather {
         }
       }
       scatterGatherStats.initServer(shortServerName);
-      SingleRequestHandler handler = new SingleRequestHandler(_connPool, server, scatterGatherRequest, entry.getValue(),
-          scatterGatherRequestContext.getRemainingTimeMs(), requestDispatchLatch, brokerMetrics);
+      SingleRequestHandler handler =
+          new SingleRequestHandler(_connPool, _multiplexedClientManager, server, scatterGatherRequest,
+              entry.getValue(), scatterGatherRequestContext.getRemainingTimeMs(), requestDispatchLatch, brokerMetrics);
       // Submit to thread-pool for checking-out and sending request
       _executorService.submit(handler);
       handlers.add(handler);
@@ -126,9 +165,16 @@ public class ScatterGatherImpl implements ScatterGather {
     boolean sentSuccessfully = requestDispatchLatch.await(timeRemaining, TimeUnit.MILLISECONDS);
 
     if (sentSuccessfully) {
+      HedgingPolicy hedgingPolicy = _hedgingPolicy;
+      long hedgeDelayMs = (hedgingPolicy != null) ? hedgingPolicy.getHedgeDelayMs(scatterGatherRequest) : -1L;
       List<ServerResponseFuture<ByteBuf>> responseFutures = new ArrayList<>();
       for (SingleRequestHandler h : handlers) {
-        responseFutures.add(h.getResponseFuture());
+        if (hedgingPolicy != null && h.isSent()) {
+          responseFutures.add(
+              new HedgedRequest(hedgingPolicy, h, scatterGatherRequestContext, brokerMetrics).start(hedgeDelayMs));
+        } else {
+          responseFutures.add(h.getResponseFuture());
+        }
         String shortServerName = h.getServer().getShortHostName();
         if (isOfflineTable != null) {
           if (isOfflineTable) {
@@ -159,6 +205,228 @@ public class ScatterGatherImpl implements ScatterGather {
     return response;
   }
 
+  /**
+   * Request to one server that may be hedged: if the server has not answered after the hedge delay, the same segments
+   * are sent to the replica picked by the {@link HedgingPolicy}. The first successful response completes the returned
+   * future (still keyed by the original server) and the other request is cancelled.
+   */
+  private class HedgedRequest {
+    private final HedgingPolicy _policy;
+    private final SingleRequestHandler _primaryHandler;
+    private final ScatterGatherRequestContext _requestContext;
+    private final BrokerMetrics _brokerMetrics;
+    private final ResponseFuture _responseFuture;
+    private final long _startTimeMs;
+
+    // Guarded by this
+    private SingleRequestHandler _hedgeHandler;
+    private long _hedgeSendTimeMs;
+    private ScheduledFuture<?> _hedgeTask;
+    private int _numPendingRequests = 1;
+    private Throwable _primaryError;
+    private boolean _done;
+
+    private HedgedRequest(HedgingPolicy policy, SingleRequestHandler primaryHandler,
+        ScatterGatherRequestContext requestContext, BrokerMetrics brokerMetrics) {
+      _policy = policy;
+      _primaryHandler = primaryHandler;
+      _requestContext = requestContext;
+      _brokerMetrics = brokerMetrics;
+      _responseFuture = new ResponseFuture(primaryHandler.getServer(),
+          "Hedged response for request " + requestContext._request.getRequestId() + " to server "
+              + primaryHandler.getServer());
+      _startTimeMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Starts tracking the request and schedules the hedged request if the delay is not negative.
+     */
+    private ResponseFuture start(long hedgeDelayMs) {
+      _responseFuture.setCancellable(new Cancellable() {
+        @Override
+        public boolean cancel() {
+          cancelRequests();
+          return true;
+        }
+      });
+      listen(_primaryHandler, false);
+      if (hedgeDelayMs >= 0) {
+        synchronized (this) {
+          if (!_done) {
+            _hedgeTask = _hedgingExecutor.schedule(new Runnable() {
+              @Override
+              public void run() {
+                // Sending might wait for a connection, so do not block the scheduler
+                _executorService.submit(new Runnable() {
+                  @Override
+                  public void run() {
+                    sendHedgedRequest();
+                  }
+                });
+              }
+            }, hedgeDelayMs, TimeUnit.MILLISECONDS);
+          }
+        }
+      }
+      return _responseFuture;
+    }
+
+    private void sendHedgedRequest() {
+      synchronized (this) {
+        if (_done) {
+          return;
+        }
+      }
+      ScatterGatherRequest request = _requestContext._request;
+      ServerInstance server = _primaryHandler.getServer();
+      ServerInstance hedgeServer = _policy.selectHedgeServer(request, server, _primaryHandler.getSegmentIds());
+      long timeRemainingMs = _requestContext.getRemainingTimeMs();
+      if (hedgeServer == null || timeRemainingMs <= 0) {
+        return;
+      }
+
+      LOGGER.debug("Hedging request {} to server {} with server {}", request.getRequestId(), server, hedgeServer);
+      SingleRequestHandler hedgeHandler =
+          new SingleRequestHandler(_connPool, _multiplexedClientManager, hedgeServer, request,
+              _primaryHandler.getSegmentIds(), timeRemainingMs, new CountDownLatch(1), _brokerMetrics);
+      hedgeHandler.run();
+      if (!hedgeHandler.isSent()) {
+        return;
+      }
+      long hedgeSendTimeMs = System.currentTimeMillis();
+      _policy.onHedgeSent(request, hedgeServer);
+      _brokerMetrics.addMeteredQueryValue(request.getBrokerRequest(), BrokerMeter.HEDGED_REQUESTS, 1);
+
+      boolean cancel;
+      synchronized (this) {
+        cancel = _done;
+        if (!_done) {
+          _hedgeHandler = hedgeHandler;
+          _hedgeSendTimeMs = hedgeSendTimeMs;
+          _numPendingRequests++;
+        }
+      }
+      if (cancel) {
+        hedgeHandler.cancel();
+        _policy.onHedgeCancelled(request, hedgeServer);
+      } else {
+        listen(hedgeHandler, true);
+      }
+    }
+
+    private void listen(final SingleRequestHandler handler, final boolean isHedge) {
+      // Run the listener on the executor, so that the lock of the completed future is not held while completing or
+      // cancelling the other futures
+      final ResponseFuture future = handler.getResponseFuture();
+      future.addListener(new Runnable() {
+        @Override
+        public void run() {
+          onRequestCompleted(future, isHedge);
+        }
+      }, _executorService);
+    }
+
+    private void onRequestCompleted(ResponseFuture future, boolean isHedge) {
+      ByteBuf response = null;
+      Throwable error = null;
+      if (future.isCancelled()) {
+        error = new CancellationException("Request to server " + future.getServerInstance() + " was cancelled");
+      } else {
+        try {
+          response = future.getOne();
+        } catch (Exception e) {
+          error = e;
+        }
+        if (response == null && error == null) {
+          Map<ServerInstance, Throwable> errorMap = future.getError();
+          error = (errorMap != null && !errorMap.isEmpty()) ? errorMap.values().iterator().next()
+              : new IllegalStateException("No response from server " + future.getServerInstance());
+        }
+      }
+
+      ScatterGatherRequest request = _requestContext._request;
+      if (isHedge) {
+        if (future.isCancelled()) {
+          _policy.onHedgeCancelled(request, future.getServerInstance());
+        } else {
+          long hedgeSendTimeMs;
+          synchronized (this) {
+            hedgeSendTimeMs = _hedgeSendTimeMs;
+          }
+          _policy.onHedgeCompleted(request, future.getServerInstance(), System.currentTimeMillis() - hedgeSendTimeMs,
+              error);
+        }
+      }
+
+      boolean succeeded = false;
+      Throwable failure = null;
+      SingleRequestHandler requestToCancel = null;
+      synchronized (this) {
+        _numPendingRequests--;
+        if (_done) {
+          // Lost the race against the other request, or cancelled
+        } else if (response != null) {
+          _done = true;
+          succeeded = true;
+          requestToCancel = isHedge ? _primaryHandler : _hedgeHandler;
+          cancelHedgeTask();
+        } else {
+          if (!isHedge) {
+            _primaryError = error;
+          }
+          // Fail once no request is pending anymore, errors of the original request are not hedged
+          if (_numPendingRequests == 0) {
+            _done = true;
+            failure = (_primaryError != null) ? _primaryError : error;
+            cancelHedgeTask();
+          }
+        }
+      }
+
+      if (succeeded) {
+        if (isHedge) {
+          _brokerMetrics.addMeteredQueryValue(request.getBrokerRequest(), BrokerMeter.HEDGED_REQUEST_WINS, 1);
+          _policy.onRequestCompleted(request, _primaryHandler.getServer(),
+              System.currentTimeMillis() - _startTimeMs);
+        } else {
+          _policy.onRequestCompleted(request, _primaryHandler.getServer(), future.getDurationMillis());
+        }
+        _responseFuture.onSuccess(response);
+        if (requestToCancel != null) {
+          requestToCancel.cancel();
+        }
+      } else if (failure != null) {
+        _responseFuture.onError(failure);
+      } else if (response != null) {
+        // Response of the request that lost the race
+        response.release();
+      }
+    }
+
+    private void cancelRequests() {
+      SingleRequestHandler hedgeHandler;
+      synchronized (this) {
+        if (_done) {
+          return;
+        }
+        _done = true;
+        cancelHedgeTask();
+        hedgeHandler = _hedgeHandler;
+      }
+      _primaryHandler.cancel();
+      if (hedgeHandler != null) {
+        hedgeHandler.cancel();
+      }
+    }
+
+    // Must be called while holding the lock on this
+    private void cancelHedgeTask() {
+      if (_hedgeTask != null) {
+        _hedgeTask.cancel(false);
+      }
+    }
+  }
+
   private static class ScatterGatherRequestContext {
     private final ScatterGatherRequest _request;
     private final long _startTimeMs;
@@ -200,6 +468,9 @@ public class ScatterGatherImpl implements ScatterGather {
     // Connection Pool: Used if we need to checkin/destroy object in case of timeout
     private final KeyedPool<PooledNettyClientResourceManager.PooledClientConnection> _connPool;
 
+    // Multiplexed connections: Used instead of the connection pool if set
+    private final MultiplexedNettyClientManager _multiplexedClientManager;
+
     // Track if request has been dispatched
     private final AtomicBoolean _isSent = new AtomicBoolean(false);
 
@@ -215,9 +486,10 @@ public class ScatterGatherImpl implements ScatterGather {
     private long _endTime;
 
     public SingleRequestHandler(KeyedPool<PooledNettyClientResourceManager.PooledClientConnection> connPool,
-        ServerInstance server, ScatterGatherRequest request, SegmentIdSet segmentIds, long timeoutMS,
-        CountDownLatch latch, final BrokerMetrics brokerMetrics) {
+        MultiplexedNettyClientManager multiplexedClientManager, ServerInstance server, ScatterGatherRequest request,
+        SegmentIdSet segmentIds, long timeoutMS, CountDownLatch latch, final BrokerMetrics brokerMetrics) {
       _connPool = connPool;
+      _multiplexedClientManager = multiplexedClientManager;
       _server = server;
       _request = request;
       _segmentIds = segmentIds;
@@ -258,6 +530,11 @@ public class ScatterGatherImpl implements ScatterGather {
         return;
       }
 
+      if (_multiplexedClientManager != null) {
+        sendMultiplexedRequest();
+        return;
+      }
+
       PooledNettyClientResourceManager.PooledClientConnection conn = null;
       ServerResponseFuture<PooledNettyClientResourceManager.PooledClientConnection> serverResponseFuture = null;
       boolean gotConnection = false;
@@ -346,6 +623,48 @@ public class ScatterGatherImpl implements ScatterGather {
       }
     }
 
+    /**
+     * Sends the request over a shared multiplexed connection. No checkout is involved, so the only wait is for
+     * opening a connection to the server if there is none yet.
+     */
+    private void sendMultiplexedRequest() {
+      MultiplexedNettyClientConnection conn = null;
+      boolean error = true;
+      long startTimeNs = System.nanoTime();
+      long timeWaitedNs = 0;
+      try {
+        conn = _multiplexedClientManager.getConnection(_server);
+        timeWaitedNs = System.nanoTime() - startTimeNs;
+        if (conn == null) {
+          throw new ConnectionLimitReachedException("Could not connect to " + _server);
+        }
+        long timeRemainingMillis = _timeoutMS - (System.currentTimeMillis() - _startTime);
+        if (timeRemainingMillis <= 0) {
+          throw new TimeoutException("Timed out trying to connect to " + _server + "(timeout=" + _timeoutMS + "ms)");
+        }
+        byte[] serializedRequest = _request.getRequestForService(_server, _segmentIds);
+        _responseFuture = conn.sendRequest(Unpooled.wrappedBuffer(serializedRequest), _request.getRequestId(),
+            timeRemainingMillis);
+        _isSent.set(true);
+        error = false;
+      } catch (Exception e) {
+        LOGGER.warn("Request {} not sent to server {} (gotConnection={}):{}", _request.getRequestId(), _server,
+            conn != null, e.getMessage());
+        _responseFuture = new ResponseFuture(_server, e, "Error Future for request " + _request.getRequestId());
+      } finally {
+        _requestDispatchLatch.countDown();
+        BrokerRequest brokerRequest = _request.getBrokerRequest();
+        _brokerMetrics.addPhaseTiming(brokerRequest, BrokerQueryPhase.REQUEST_CONNECTION_WAIT, timeWaitedNs);
+        if (error) {
+          if (conn != null) {
+            _brokerMetrics.addMeteredQueryValue(brokerRequest, BrokerMeter.REQUEST_DROPPED_DUE_TO_SEND_ERROR, 1);
+          } else {
+            _brokerMetrics.addMeteredQueryValue(brokerRequest, BrokerMeter.REQUEST_DROPPED_DUE_TO_CONNECTION_ERROR, 1);
+          }
+        }
+      }
+    }
+
     /**
      * Cancel checking-out request if possible. If in unsafe state (request already sent),
      * discard the connection from the pool.
@@ -371,6 +690,10 @@ public class ScatterGatherImpl implements ScatterGather {
       return _server;
     }
 
+    public SegmentIdSet getSegmentIds() {
+      return _segmentIds;
+    }
+
     public ResponseFuture getResponseFuture() {
       return _responseFuture;
     }
@@ -327,6 +327,42 @@ public class CompositeFutureTest {
     executor.shutdown();
   }
 
+  @Test
+  /**
+   * Response listener set after some responses were received still gets every response exactly once, before the
+   * composite future completes.
+   * @throws Exception
+   */
+  public void testResponseListener() throws Exception {
+    int numFutures = 10;
+    List<AsyncResponseFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < numFutures; i++) {
+      futures.add(new AsyncResponseFuture<String>(new ServerInstance("localhost:" + i), ""));
+    }
+    CompositeFuture<String> compositeFuture = new CompositeFuture<String>("test", GatherModeOnError.AND);
+    compositeFuture.start(new ArrayList<ServerResponseFuture<String>>(futures));
+
+    for (int i = 0; i < numFutures / 2; i++) {
+      futures.get(i).onSuccess("dummy Message_" + i);
+    }
+    final Map<ServerInstance, String> listenerResponse = new HashMap<>();
+    final List<ServerInstance> notifiedServers = new ArrayList<>();
+    compositeFuture.setResponseListener(new CompositeFuture.ResponseListener<String>() {
+      @Override
+      public synchronized void onResponse(ServerInstance server, String response) {
+        notifiedServers.add(server);
+        listenerResponse.put(server, response);
+      }
+    });
+    for (int i = numFutures / 2; i < numFutures; i++) {
+      futures.get(i).onSuccess("dummy Message_" + i);
+    }
+
+    Map<ServerInstance, String> response = compositeFuture.get();
+    Assert.assertEquals(notifiedServers.size(), numFutures);
+    Assert.assertEquals(listenerResponse, response);
+  }
+
   @Test
   /**
    * Tests Composite future with one underlying future.
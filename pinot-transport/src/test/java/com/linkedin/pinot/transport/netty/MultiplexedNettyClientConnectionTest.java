@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.netty;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import com.linkedin.pinot.transport.netty.NettyClientConnection.ResponseFuture;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class MultiplexedNettyClientConnectionTest {
+  private static final int PORT = NettyTestUtils.DEFAULT_PORT + 1;
+  private static final long TIMEOUT_MS = 10_000L;
+
+  private ListeningScheduledExecutorService _serverExecutor;
+  private NettyTCPServer _nettyTCPServer;
+  private EventLoopGroup _eventLoopGroup;
+  private HashedWheelTimer _timer;
+  private ServerInstance _server;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    _serverExecutor = MoreExecutors.listeningDecorator(Executors.newScheduledThreadPool(4));
+    _nettyTCPServer = new NettyTCPServer(PORT, new DelayedEchoRequestHandlerFactory(), null);
+    new Thread(_nettyTCPServer, "NettyTCPServer").start();
+    NettyTestUtils.waitForServerStarted(_nettyTCPServer, 10 * 1000L);
+
+    _eventLoopGroup = new NioEventLoopGroup();
+    _timer = new HashedWheelTimer();
+    _server = new ServerInstance("localhost", PORT);
+  }
+
+  @Test
+  public void testConcurrentRequests()
+      throws Exception {
+    MultiplexedNettyClientConnection connection = newConnection(1000, 0);
+    Assert.assertTrue(connection.connect());
+
+    // Random server-side delays make responses come back out of order
+    Random random = new Random();
+    List<String> requests = new ArrayList<>();
+    List<ResponseFuture> responseFutures = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      String request = random.nextInt(50) + ":" + NettyTestUtils.DUMMY_REQUEST + i;
+      requests.add(request);
+      responseFutures.add(connection.sendRequest(Unpooled.wrappedBuffer(request.getBytes()), i, TIMEOUT_MS));
+    }
+    for (int i = 0; i < requests.size(); i++) {
+      Assert.assertEquals(getResponse(responseFutures.get(i)), requests.get(i));
+    }
+    Assert.assertEquals(connection.getNumOutstandingRequests(), 0);
+
+    connection.close();
+    Assert.assertFalse(connection.validate());
+  }
+
+  @Test
+  public void testFlowControl()
+      throws Exception {
+    // One request on the wire, one queued, the rest rejected
+    MultiplexedNettyClientConnection connection = newConnection(1, 1);
+    Assert.assertTrue(connection.connect());
+
+    ResponseFuture slowFuture = connection.sendRequest(Unpooled.wrappedBuffer("500:slow".getBytes()), 1L, TIMEOUT_MS);
+    ResponseFuture queuedFuture = connection.sendRequest(Unpooled.wrappedBuffer("0:queued".getBytes()), 2L, TIMEOUT_MS);
+    ResponseFuture rejectedFuture =
+        connection.sendRequest(Unpooled.wrappedBuffer("0:rejected".getBytes()), 3L, TIMEOUT_MS);
+    Assert.assertEquals(connection.getNumOutstandingRequests(), 2);
+
+    Assert.assertTrue(rejectedFuture.isDone());
+    Assert.assertNull(rejectedFuture.getOne());
+    Assert.assertNotNull(rejectedFuture.getError());
+
+    // The queued request is only written once the slow one completed
+    Assert.assertEquals(getResponse(slowFuture), "500:slow");
+    Assert.assertEquals(getResponse(queuedFuture), "0:queued");
+    Assert.assertTrue(queuedFuture.getDurationMillis() >= slowFuture.getDurationMillis());
+
+    connection.close();
+  }
+
+  @Test
+  public void testTimeoutAndCancel()
+      throws Exception {
+    MultiplexedNettyClientConnection connection = newConnection(10, 10);
+    Assert.assertTrue(connection.connect());
+
+    ResponseFuture timedOutFuture =
+        connection.sendRequest(Unpooled.wrappedBuffer("1000:timedOut".getBytes()), 1L, 100L);
+    Assert.assertNull(timedOutFuture.getOne());
+    Assert.assertNotNull(timedOutFuture.getError());
+
+    ResponseFuture cancelledFuture =
+        connection.sendRequest(Unpooled.wrappedBuffer("1000:cancelled".getBytes()), 2L, TIMEOUT_MS);
+    Assert.assertTrue(cancelledFuture.cancel(true));
+    Assert.assertEquals(connection.getNumOutstandingRequests(), 0);
+
+    // Timeouts and cancellations do not close the shared channel
+    Assert.assertTrue(connection.validate());
+    ResponseFuture responseFuture = connection.sendRequest(Unpooled.wrappedBuffer("0:ok".getBytes()), 3L, TIMEOUT_MS);
+    Assert.assertEquals(getResponse(responseFuture), "0:ok");
+
+    connection.close();
+  }
+
+  @Test
+  public void testChannelCloseFailsOutstandingRequests()
+      throws Exception {
+    MultiplexedNettyClientConnection connection = newConnection(10, 10);
+    Assert.assertTrue(connection.connect());
+    ResponseFuture pendingFuture =
+        connection.sendRequest(Unpooled.wrappedBuffer("5000:pending".getBytes()), 1L, TIMEOUT_MS);
+    ResponseFuture closeFuture = connection.sendRequest(Unpooled.wrappedBuffer("close".getBytes()), 2L, TIMEOUT_MS);
+
+    // Server closes the channel, all outstanding requests fail
+    Assert.assertNull(pendingFuture.getOne());
+    Assert.assertNotNull(pendingFuture.getError());
+    Assert.assertNull(closeFuture.getOne());
+    Assert.assertNotNull(closeFuture.getError());
+    Assert.assertFalse(connection.validate());
+
+    // New requests fail right away
+    ResponseFuture responseFuture =
+        connection.sendRequest(Unpooled.wrappedBuffer("0:request".getBytes()), 3L, TIMEOUT_MS);
+    Assert.assertTrue(responseFuture.isDone());
+    Assert.assertNotNull(responseFuture.getError());
+  }
+
+  @AfterClass
+  public void tearDown() {
+    NettyTestUtils.closeServerConnection(_nettyTCPServer);
+    _serverExecutor.shutdownNow();
+    _eventLoopGroup.shutdownGracefully();
+    _timer.stop();
+  }
+
+  private MultiplexedNettyClientConnection newConnection(int maxInFlightRequests, int maxPendingRequests) {
+    return new MultiplexedNettyClientConnection(_server, _eventLoopGroup, _timer, new NettyClientMetrics(null, "abc"),
+        maxInFlightRequests, maxPendingRequests, TIMEOUT_MS);
+  }
+
+  private static String getResponse(ResponseFuture responseFuture)
+      throws Exception {
+    ByteBuf byteBuf = responseFuture.getOne();
+    Assert.assertNotNull(byteBuf, "Got error: " + responseFuture.getError());
+    byte[] bytes = new byte[byteBuf.readableBytes()];
+    byteBuf.readBytes(bytes);
+    return new String(bytes);
+  }
+
+  /**
+   * Echoes the request back after the delay (ms) given before the ':' in the request, without blocking the netty
+   * thread. Closes the channel on a "close" request.
+   */
+  private class DelayedEchoRequestHandlerFactory implements NettyServer.RequestHandlerFactory {
+    @Override
+    public NettyServer.RequestHandler createNewRequestHandler() {
+      return new NettyServer.RequestHandler() {
+        @Override
+        public ListenableFuture<byte[]> processRequest(ChannelHandlerContext channelHandlerContext, ByteBuf request) {
+          final byte[] bytes = new byte[request.readableBytes()];
+          request.readBytes(bytes);
+          String requestString = new String(bytes);
+          if (requestString.equals("close")) {
+            channelHandlerContext.close();
+            return SettableFuture.create();
+          }
+          long delayMs = Long.parseLong(requestString.substring(0, requestString.indexOf(':')));
+          return _serverExecutor.schedule(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+              return bytes;
+            }
+          }, delayMs, TimeUnit.MILLISECONDS);
+        }
+      };
+    }
+  }
+}
@@ -24,11 +24,14 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.transport.common.CompositeFuture;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.config.MultiplexedTransportConfig;
 import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import com.linkedin.pinot.transport.netty.MultiplexedNettyClientManager;
 import com.linkedin.pinot.transport.netty.NettyServer;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandler;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandlerFactory;
 import com.linkedin.pinot.transport.netty.NettyTCPServer;
+import com.linkedin.pinot.transport.netty.NettyTestUtils;
 import com.linkedin.pinot.transport.netty.PooledNettyClientResourceManager;
 import com.linkedin.pinot.transport.pool.KeyedPoolImpl;
 import com.yammer.metrics.core.MetricsRegistry;
@@ -38,13 +41,18 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.ResourceLeakDetector;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -165,7 +173,13 @@ public class ScatterGatherTest {
     Assert.assertEquals(serverToErrorMap.size(), 1);
     Assert.assertTrue(serverToErrorMap.containsKey(serverInstances[0]));
 
+    // The connection is destroyed after the response future times out
+    long deadlineMs = System.currentTimeMillis() + 5_000L;
     connectionPool.getStats().refresh();
+    while (connectionPool.getStats().getTotalBadDestroyed() == 0 && System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10L);
+      connectionPool.getStats().refresh();
+    }
     Assert.assertEquals(connectionPool.getStats().getTotalBadDestroyed(), 1);
 
     connectionPool.shutdown();
@@ -243,6 +257,160 @@ public class ScatterGatherTest {
     }
   }
 
+  @Test
+  public void testMultiplexed() throws Exception {
+    NettyServer[] nettyServers = new NettyServer[NUM_SERVERS];
+    ServerInstance[] serverInstances = new ServerInstance[NUM_SERVERS];
+    Map<ServerInstance, SegmentIdSet> serverToSegmentsMap = new HashMap<>(NUM_SERVERS);
+    Map<ServerInstance, String> serverToRequestMap = new HashMap<>(NUM_SERVERS);
+
+    for (int i = 0; i < NUM_SERVERS; i++) {
+      int serverPort = BASE_SERVER_PORT + i;
+      nettyServers[i] = new NettyTCPServer(serverPort, new TestRequestHandlerFactory(0L, false), null);
+      new Thread(nettyServers[i]).start();
+      // Connections are not retried before the reconnect back-off, so the servers must be listening
+      NettyTestUtils.waitForServerStarted((NettyTCPServer) nettyServers[i], 10_000L);
+
+      ServerInstance serverInstance = new ServerInstance(LOCAL_HOST, serverPort);
+      serverInstances[i] = serverInstance;
+      serverToSegmentsMap.put(serverInstance, new SegmentIdSet());
+      serverToRequestMap.put(serverInstance, "request_" + i);
+    }
+
+    // Setup client
+    MetricsRegistry metricsRegistry = new MetricsRegistry();
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    HashedWheelTimer timer = new HashedWheelTimer();
+    MultiplexedNettyClientManager clientManager =
+        new MultiplexedNettyClientManager(eventLoopGroup, timer,
+            new NettyClientMetrics(metricsRegistry, "client_"), new MultiplexedTransportConfig());
+    ExecutorService executorService = Executors.newCachedThreadPool();
+    ScatterGather scatterGather = new ScatterGatherImpl(clientManager, executorService);
+    BrokerMetrics brokerMetrics = new BrokerMetrics(metricsRegistry);
+
+    // Send several requests, they share the same connections
+    for (int j = 0; j < 10; j++) {
+      ScatterGatherRequest scatterGatherRequest =
+          new TestScatterGatherRequest(serverToSegmentsMap, serverToRequestMap, 10_000L);
+      CompositeFuture<ByteBuf> future =
+          scatterGather.scatterGather(scatterGatherRequest, new ScatterGatherStats(), brokerMetrics);
+
+      Map<ServerInstance, ByteBuf> serverToResponseMap = future.get();
+      Assert.assertEquals(serverToResponseMap.size(), NUM_SERVERS);
+      for (int i = 0; i < NUM_SERVERS; i++) {
+        Assert.assertEquals(getResponse(serverToResponseMap.get(serverInstances[i])),
+            serverToRequestMap.get(serverInstances[i]));
+      }
+      Assert.assertTrue(future.getError().isEmpty());
+    }
+
+    clientManager.shutdown();
+    executorService.shutdown();
+    eventLoopGroup.shutdownGracefully();
+    timer.stop();
+
+    for (int i = 0; i < NUM_SERVERS; i++) {
+      nettyServers[i].shutdownGracefully();
+    }
+  }
+
+  @Test
+  public void testHedgedRequest() throws Exception {
+    int slowServerPort = BASE_SERVER_PORT + NUM_SERVERS;
+    int fastServerPort = slowServerPort + 1;
+    NettyTCPServer slowServer = new NettyTCPServer(slowServerPort, new TestRequestHandlerFactory(2_000L, false), null);
+    new Thread(slowServer).start();
+    NettyTCPServer fastServer = new NettyTCPServer(fastServerPort, new TestRequestHandlerFactory(0L, false), null);
+    new Thread(fastServer).start();
+    NettyTestUtils.waitForServerStarted(slowServer, 10_000L);
+    NettyTestUtils.waitForServerStarted(fastServer, 10_000L);
+    final ServerInstance slowServerInstance = new ServerInstance(LOCAL_HOST, slowServerPort);
+    final ServerInstance fastServerInstance = new ServerInstance(LOCAL_HOST, fastServerPort);
+
+    Map<ServerInstance, SegmentIdSet> serverToSegmentsMap = new HashMap<>();
+    serverToSegmentsMap.put(slowServerInstance, new SegmentIdSet());
+    Map<ServerInstance, String> serverToRequestMap = new HashMap<>();
+    serverToRequestMap.put(slowServerInstance, "request_0");
+    serverToRequestMap.put(fastServerInstance, "request_1");
+
+    // Setup client
+    MetricsRegistry metricsRegistry = new MetricsRegistry();
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    HashedWheelTimer timer = new HashedWheelTimer();
+    MultiplexedNettyClientManager clientManager =
+        new MultiplexedNettyClientManager(eventLoopGroup, timer,
+            new NettyClientMetrics(metricsRegistry, "client_"), new MultiplexedTransportConfig());
+    ExecutorService executorService = Executors.newCachedThreadPool();
+    ScheduledExecutorService hedgingExecutor = new ScheduledThreadPoolExecutor(1);
+    ScatterGatherImpl scatterGather = new ScatterGatherImpl(clientManager, executorService);
+    final List<ServerInstance> completedServers = new CopyOnWriteArrayList<>();
+    final List<ServerInstance> hedgeServers = new CopyOnWriteArrayList<>();
+    final List<ServerInstance> completedHedgeServers = new CopyOnWriteArrayList<>();
+    final List<ServerInstance> cancelledHedgeServers = new CopyOnWriteArrayList<>();
+    scatterGather.setHedgingPolicy(new HedgingPolicy() {
+      @Override
+      public long getHedgeDelayMs(@Nonnull ScatterGatherRequest request) {
+        return 100L;
+      }
+
+      @Nullable
+      @Override
+      public ServerInstance selectHedgeServer(@Nonnull ScatterGatherRequest request,
+          @Nonnull ServerInstance server, @Nonnull SegmentIdSet segmentIds) {
+        return server.equals(slowServerInstance) ? fastServerInstance : null;
+      }
+
+      @Override
+      public void onHedgeSent(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer) {
+        hedgeServers.add(hedgeServer);
+      }
+
+      @Override
+      public void onHedgeCompleted(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer,
+          long latencyMs, @Nullable Throwable error) {
+        Assert.assertNull(error);
+        completedHedgeServers.add(hedgeServer);
+      }
+
+      @Override
+      public void onHedgeCancelled(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance hedgeServer) {
+        cancelledHedgeServers.add(hedgeServer);
+      }
+
+      @Override
+      public void onRequestCompleted(@Nonnull ScatterGatherRequest request, @Nonnull ServerInstance server,
+          long latencyMs) {
+        completedServers.add(server);
+      }
+    }, hedgingExecutor);
+    BrokerMetrics brokerMetrics = new BrokerMetrics(metricsRegistry);
+
+    ScatterGatherRequest scatterGatherRequest =
+        new TestScatterGatherRequest(serverToSegmentsMap, serverToRequestMap, 10_000L);
+    long startTimeMs = System.currentTimeMillis();
+    CompositeFuture<ByteBuf> future =
+        scatterGather.scatterGather(scatterGatherRequest, new ScatterGatherStats(), brokerMetrics);
+
+    // The response of the hedged request is keyed by the original server
+    Map<ServerInstance, ByteBuf> serverToResponseMap = future.get();
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs < 2_000L);
+    Assert.assertEquals(serverToResponseMap.size(), 1);
+    Assert.assertEquals(getResponse(serverToResponseMap.get(slowServerInstance)), "request_1");
+    Assert.assertTrue(future.getError().isEmpty());
+    Assert.assertEquals(completedServers, Collections.singletonList(slowServerInstance));
+    Assert.assertEquals(hedgeServers, Collections.singletonList(fastServerInstance));
+    Assert.assertEquals(completedHedgeServers, Collections.singletonList(fastServerInstance));
+    Assert.assertTrue(cancelledHedgeServers.isEmpty());
+
+    clientManager.shutdown();
+    executorService.shutdown();
+    hedgingExecutor.shutdown();
+    eventLoopGroup.shutdownGracefully();
+    timer.stop();
+    slowServer.shutdownGracefully();
+    fastServer.shutdownGracefully();
+  }
+
   private KeyedPoolImpl<PooledNettyClientResourceManager.PooledClientConnection> setUpConnectionPool(
       MetricsRegistry metricsRegistry, EventLoopGroup eventLoopGroup) {
     ScheduledExecutorService timedExecutor = new ScheduledThreadPoolExecutor(1);